@@ -0,0 +1,130 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.elasticsearch.benchmark.common.compress;
+
+import org.elasticsearch.common.bytes.BytesReference;
+import org.elasticsearch.common.compress.Compressor;
+import org.elasticsearch.common.compress.CompressorFactory;
+import org.elasticsearch.common.io.stream.BytesStreamOutput;
+import org.elasticsearch.common.io.stream.StreamInput;
+import org.elasticsearch.common.io.stream.StreamOutput;
+import org.elasticsearch.common.xcontent.XContentBuilder;
+import org.elasticsearch.common.xcontent.XContentFactory;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the throughput of the DEFLATE and LZ4 compressors on JSON documents that look like log events. The compress benchmark
+ * reports the number of input and output bytes as secondary results, their quotient is the compression ratio.
+ */
+@Warmup(iterations = 5, time = 1, timeUnit = TimeUnit.SECONDS)
+@Measurement(iterations = 5, time = 1, timeUnit = TimeUnit.SECONDS)
+@Fork(1)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@State(Scope.Benchmark)
+public class CompressorBenchmark {
+
+    private static final String[] LEVELS = new String[] { "INFO", "WARN", "DEBUG", "ERROR" };
+    private static final String[] SERVICES = new String[] { "frontend", "checkout", "payments", "inventory", "search" };
+
+    @Param({"deflate", "lz4"})
+    private String compressorName;
+
+    @Param({"1024", "65536", "1048576"})
+    private int size;
+
+    private Compressor compressor;
+    private BytesReference uncompressed;
+    private BytesReference compressed;
+    private byte[] buffer;
+
+    @Setup
+    public void setUp() throws IOException {
+        compressor = CompressorFactory.forName(compressorName);
+        final Random random = new Random(42);
+        final BytesStreamOutput out = new BytesStreamOutput(size);
+        while (out.size() < size) {
+            try (XContentBuilder builder = XContentFactory.jsonBuilder()) {
+                builder.startObject();
+                builder.field("@timestamp", 1546300800000L + random.nextInt(86_400_000));
+                builder.field("level", LEVELS[random.nextInt(LEVELS.length)]);
+                builder.field("service", SERVICES[random.nextInt(SERVICES.length)]);
+                builder.field("duration_ms", random.nextInt(5000));
+                builder.field("message", "request " + Long.toHexString(random.nextLong()) + " completed with status "
+                    + (200 + random.nextInt(4) * 100));
+                builder.endObject();
+                BytesReference.bytes(builder).writeTo(out);
+            }
+            out.writeByte((byte) '\n');
+        }
+        uncompressed = out.bytes().slice(0, size);
+        compressed = doCompress();
+        buffer = new byte[8192];
+    }
+
+    private BytesReference doCompress() throws IOException {
+        final BytesStreamOutput out = new BytesStreamOutput();
+        try (StreamOutput compressedOut = compressor.streamOutput(out)) {
+            uncompressed.writeTo(compressedOut);
+        }
+        return out.bytes();
+    }
+
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    @State(Scope.Thread)
+    public static class CompressedBytes {
+        public long inputBytes;
+        public long outputBytes;
+    }
+
+    @Benchmark
+    public BytesReference compress(CompressedBytes compressedBytes) throws IOException {
+        final BytesReference result = doCompress();
+        compressedBytes.inputBytes += uncompressed.length();
+        compressedBytes.outputBytes += result.length();
+        return result;
+    }
+
+    @Benchmark
+    public long decompress() throws IOException {
+        long checksum = 0;
+        try (StreamInput in = compressor.streamInput(compressed.streamInput())) {
+            int read;
+            while ((read = in.read(buffer, 0, buffer.length)) != -1) {
+                checksum += read + buffer[0];
+            }
+        }
+        return checksum;
+    }
+}
@@ -0,0 +1,121 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.elasticsearch.benchmark.search.aggregations;
+
+import com.carrotsearch.hppc.BitMixer;
+import org.elasticsearch.common.util.BigArrays;
+import org.elasticsearch.search.aggregations.metrics.HyperLogLogPlusPlus;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures collecting hashes into the buckets of a {@link HyperLogLogPlusPlus}, like a cardinality aggregation under a terms
+ * aggregation does on a shard, and merging the buckets of several shards, like the coordinating node does when it reduces.
+ */
+@Warmup(iterations = 5, time = 1, timeUnit = TimeUnit.SECONDS)
+@Measurement(iterations = 5, time = 1, timeUnit = TimeUnit.SECONDS)
+@Fork(1)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@State(Scope.Benchmark)
+public class HyperLogLogPlusPlusBenchmark {
+
+    private static final int NUM_SHARDS = 5;
+
+    @Param({"14"})
+    private int precision;
+
+    @Param({"1", "1000"})
+    private int numBuckets;
+
+    // the number of distinct values per bucket, small values keep buckets on linear counting
+    @Param({"10", "1000", "100000"})
+    private int cardinality;
+
+    private long[] hashes;
+    private HyperLogLogPlusPlus[] shards;
+
+    @Setup
+    public void setup() {
+        final Random random = new Random(0);
+        // every bucket collects every value once, capped so that runs with many buckets stay reasonably short
+        final int numValues = (int) Math.min((long) numBuckets * cardinality, 1_000_000);
+        hashes = new long[numValues];
+        for (int i = 0; i < numValues; ++i) {
+            hashes[i] = BitMixer.mix64(random.nextInt(cardinality));
+        }
+        shards = new HyperLogLogPlusPlus[NUM_SHARDS];
+        for (int i = 0; i < NUM_SHARDS; ++i) {
+            shards[i] = collect();
+        }
+    }
+
+    @TearDown
+    public void tearDown() {
+        for (HyperLogLogPlusPlus shard : shards) {
+            shard.close();
+        }
+    }
+
+    private HyperLogLogPlusPlus collect() {
+        final HyperLogLogPlusPlus counts = new HyperLogLogPlusPlus(precision, BigArrays.NON_RECYCLING_INSTANCE, 1);
+        for (int i = 0; i < hashes.length; ++i) {
+            counts.collect(i % numBuckets, hashes[i]);
+        }
+        return counts;
+    }
+
+    @Benchmark
+    public long collectAndCount() {
+        try (HyperLogLogPlusPlus counts = collect()) {
+            long total = 0;
+            for (long bucket = 0; bucket < numBuckets; ++bucket) {
+                total += counts.cardinality(bucket);
+            }
+            return total;
+        }
+    }
+
+    @Benchmark
+    public long mergeAndCount() {
+        long total = 0;
+        for (long bucket = 0; bucket < numBuckets; ++bucket) {
+            try (HyperLogLogPlusPlus reduced = new HyperLogLogPlusPlus(precision, BigArrays.NON_RECYCLING_INSTANCE, 1)) {
+                for (HyperLogLogPlusPlus shard : shards) {
+                    reduced.merge(0, shard, bucket);
+                }
+                total += reduced.cardinality(0);
+            }
+        }
+        return total;
+    }
+}
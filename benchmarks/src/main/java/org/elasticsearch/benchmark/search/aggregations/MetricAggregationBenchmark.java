@@ -0,0 +1,273 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.benchmark.search.aggregations;
+
+import org.apache.lucene.document.Document;
+import org.apache.lucene.document.SortedNumericDocValuesField;
+import org.apache.lucene.index.DirectoryReader;
+import org.apache.lucene.index.IndexOptions;
+import org.apache.lucene.index.IndexWriter;
+import org.apache.lucene.index.IndexWriterConfig;
+import org.apache.lucene.index.LeafReaderContext;
+import org.apache.lucene.search.Query;
+import org.apache.lucene.store.ByteBuffersDirectory;
+import org.apache.lucene.store.Directory;
+import org.apache.lucene.util.NumericUtils;
+import org.elasticsearch.Version;
+import org.elasticsearch.cluster.metadata.IndexMetaData;
+import org.elasticsearch.common.breaker.CircuitBreaker;
+import org.elasticsearch.common.settings.Settings;
+import org.elasticsearch.common.util.BigArrays;
+import org.elasticsearch.common.xcontent.NamedXContentRegistry;
+import org.elasticsearch.index.IndexSettings;
+import org.elasticsearch.index.fielddata.IndexFieldDataCache;
+import org.elasticsearch.index.mapper.MappedFieldType;
+import org.elasticsearch.index.mapper.NumberFieldMapper;
+import org.elasticsearch.index.query.QueryShardContext;
+import org.elasticsearch.indices.breaker.CircuitBreakerService;
+import org.elasticsearch.indices.breaker.NoneCircuitBreakerService;
+import org.elasticsearch.search.aggregations.AbstractAggregationBuilder;
+import org.elasticsearch.search.aggregations.Aggregator;
+import org.elasticsearch.search.aggregations.InternalAggregation;
+import org.elasticsearch.search.aggregations.LeafBucketCollector;
+import org.elasticsearch.search.aggregations.metrics.AvgAggregationBuilder;
+import org.elasticsearch.search.aggregations.metrics.MaxAggregationBuilder;
+import org.elasticsearch.search.aggregations.metrics.MinAggregationBuilder;
+import org.elasticsearch.search.aggregations.metrics.StatsAggregationBuilder;
+import org.elasticsearch.search.aggregations.metrics.SumAggregationBuilder;
+import org.elasticsearch.search.internal.FilteredSearchContext;
+import org.elasticsearch.search.internal.SearchContext;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures how many documents per second the sum, avg, min, max and stats aggregators collect from a single valued numeric field,
+ * either document by document or in batches of documents, which is how the aggregation phase passes documents on to top level
+ * aggregators that don't need scores. The aggregators are built from their builders like in a search, over a search context that
+ * only provides what they need, and the matching documents of the query are passed straight to the collector of the segment.
+ * Throughput is reported in documents of the segment per second, whether they match or not.
+ */
+@Warmup(iterations = 5, time = 1, timeUnit = TimeUnit.SECONDS)
+@Measurement(iterations = 5, time = 1, timeUnit = TimeUnit.SECONDS)
+@Fork(1)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@OperationsPerInvocation(MetricAggregationBenchmark.NUM_DOCS)
+@State(Scope.Benchmark)
+public class MetricAggregationBenchmark {
+
+    static final int NUM_DOCS = 1_000_000;
+    // same as BatchingBucketCollector
+    private static final int BATCH_SIZE = 128;
+    private static final String FIELD = "field";
+
+    @Param({"long", "double"})
+    private String type;
+
+    // the ratio of documents that match the query
+    @Param({"1", "0.1"})
+    private double density;
+
+    private Directory directory;
+    private DirectoryReader reader;
+    private LeafReaderContext leaf;
+    private int[] matchingDocs;
+    private int[][] batches;
+    private SearchContext searchContext;
+
+    @Setup
+    public void setup() throws IOException {
+        final Random random = new Random(0);
+        directory = new ByteBuffersDirectory();
+        try (IndexWriter writer = new IndexWriter(directory, new IndexWriterConfig())) {
+            final Document document = new Document();
+            final SortedNumericDocValuesField field = new SortedNumericDocValuesField(FIELD, 0);
+            document.add(field);
+            for (int i = 0; i < NUM_DOCS; i++) {
+                final long value = random.nextInt(1_000_000);
+                field.setLongValue(type.equals("double") ? NumericUtils.doubleToSortableLong(value / 100d) : value);
+                writer.addDocument(document);
+            }
+            writer.forceMerge(1);
+        }
+        reader = DirectoryReader.open(directory);
+        leaf = reader.leaves().get(0);
+
+        matchingDocs = new int[NUM_DOCS];
+        int numMatchingDocs = 0;
+        for (int doc = 0; doc < NUM_DOCS; doc++) {
+            if (density >= 1 || random.nextDouble() < density) {
+                matchingDocs[numMatchingDocs++] = doc;
+            }
+        }
+        matchingDocs = Arrays.copyOf(matchingDocs, numMatchingDocs);
+        batches = new int[(numMatchingDocs + BATCH_SIZE - 1) / BATCH_SIZE][];
+        for (int i = 0; i < batches.length; i++) {
+            batches[i] = Arrays.copyOfRange(matchingDocs, i * BATCH_SIZE, Math.min((i + 1) * BATCH_SIZE, numMatchingDocs));
+        }
+
+        searchContext = createSearchContext();
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        reader.close();
+        directory.close();
+    }
+
+    private SearchContext createSearchContext() {
+        final IndexMetaData indexMetaData = IndexMetaData.builder("index")
+            .settings(Settings.builder().put(IndexMetaData.SETTING_VERSION_CREATED, Version.CURRENT))
+            .numberOfShards(1)
+            .numberOfReplicas(0)
+            .build();
+        final IndexSettings indexSettings = new IndexSettings(indexMetaData, Settings.EMPTY);
+        final CircuitBreakerService breakerService = new NoneCircuitBreakerService();
+        final BigArrays bigArrays = new BigArrays(null, breakerService, CircuitBreaker.REQUEST);
+
+        final NumberFieldMapper.NumberFieldType fieldType = new NumberFieldMapper.NumberFieldType(
+            type.equals("double") ? NumberFieldMapper.NumberType.DOUBLE : NumberFieldMapper.NumberType.LONG);
+        fieldType.setName(FIELD);
+        // the field only has doc values, so that min and max collect documents rather than reading the bounds of the points
+        fieldType.setIndexOptions(IndexOptions.NONE);
+        final QueryShardContext queryShardContext = new QueryShardContext(0, indexSettings, null,
+                (ft, index) -> ft.fielddataBuilder(index).build(indexSettings, ft, new IndexFieldDataCache.None(), breakerService, null),
+                null, null, null, NamedXContentRegistry.EMPTY, null, null, reader, () -> 0L, null) {
+            @Override
+            public MappedFieldType fieldMapper(String name) {
+                return FIELD.equals(name) ? fieldType : null;
+            }
+        };
+
+        return new FilteredSearchContext(null) {
+            @Override
+            public BigArrays bigArrays() {
+                return bigArrays;
+            }
+
+            @Override
+            public Query query() {
+                return null;
+            }
+
+            @Override
+            public QueryShardContext getQueryShardContext() {
+                return queryShardContext;
+            }
+        };
+    }
+
+    private Aggregator createAggregator(AbstractAggregationBuilder<?> builder) throws IOException {
+        final Aggregator aggregator = builder.build(searchContext, null).create(null, true);
+        aggregator.preCollection();
+        return aggregator;
+    }
+
+    private InternalAggregation buildAggregation(Aggregator aggregator) throws IOException {
+        aggregator.postCollection();
+        final InternalAggregation aggregation = aggregator.buildAggregation(0);
+        searchContext.clearReleasables(SearchContext.Lifetime.PHASE);
+        return aggregation;
+    }
+
+    private InternalAggregation collectPerDocument(AbstractAggregationBuilder<?> builder) throws IOException {
+        final Aggregator aggregator = createAggregator(builder);
+        final LeafBucketCollector collector = aggregator.getLeafCollector(leaf);
+        for (int doc : matchingDocs) {
+            collector.collect(doc, 0);
+        }
+        return buildAggregation(aggregator);
+    }
+
+    private InternalAggregation collectBatched(AbstractAggregationBuilder<?> builder) throws IOException {
+        final Aggregator aggregator = createAggregator(builder);
+        final LeafBucketCollector collector = aggregator.getLeafCollector(leaf);
+        for (int[] batch : batches) {
+            collector.collect(batch, batch.length, 0);
+        }
+        return buildAggregation(aggregator);
+    }
+
+    @Benchmark
+    public InternalAggregation sumPerDocument() throws IOException {
+        return collectPerDocument(new SumAggregationBuilder("sum").field(FIELD));
+    }
+
+    @Benchmark
+    public InternalAggregation sumBatched() throws IOException {
+        return collectBatched(new SumAggregationBuilder("sum").field(FIELD));
+    }
+
+    @Benchmark
+    public InternalAggregation avgPerDocument() throws IOException {
+        return collectPerDocument(new AvgAggregationBuilder("avg").field(FIELD));
+    }
+
+    @Benchmark
+    public InternalAggregation avgBatched() throws IOException {
+        return collectBatched(new AvgAggregationBuilder("avg").field(FIELD));
+    }
+
+    @Benchmark
+    public InternalAggregation minPerDocument() throws IOException {
+        return collectPerDocument(new MinAggregationBuilder("min").field(FIELD));
+    }
+
+    @Benchmark
+    public InternalAggregation minBatched() throws IOException {
+        return collectBatched(new MinAggregationBuilder("min").field(FIELD));
+    }
+
+    @Benchmark
+    public InternalAggregation maxPerDocument() throws IOException {
+        return collectPerDocument(new MaxAggregationBuilder("max").field(FIELD));
+    }
+
+    @Benchmark
+    public InternalAggregation maxBatched() throws IOException {
+        return collectBatched(new MaxAggregationBuilder("max").field(FIELD));
+    }
+
+    @Benchmark
+    public InternalAggregation statsPerDocument() throws IOException {
+        return collectPerDocument(new StatsAggregationBuilder("stats").field(FIELD));
+    }
+
+    @Benchmark
+    public InternalAggregation statsBatched() throws IOException {
+        return collectBatched(new StatsAggregationBuilder("stats").field(FIELD));
+    }
+}
@@ -0,0 +1,142 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.elasticsearch.benchmark.search.fetch;
+
+import org.apache.lucene.codecs.StoredFieldsReader;
+import org.apache.lucene.document.Document;
+import org.apache.lucene.document.StoredField;
+import org.apache.lucene.index.DirectoryReader;
+import org.apache.lucene.index.IndexWriter;
+import org.apache.lucene.index.IndexWriterConfig;
+import org.apache.lucene.store.Directory;
+import org.apache.lucene.store.FSDirectory;
+import org.apache.lucene.util.BytesRef;
+import org.elasticsearch.common.lucene.index.ElasticsearchDirectoryReader;
+import org.elasticsearch.common.lucene.index.ElasticsearchLeafReader;
+import org.elasticsearch.core.internal.io.IOUtils;
+import org.elasticsearch.index.fieldvisitor.FieldsVisitor;
+import org.elasticsearch.index.mapper.IdFieldMapper;
+import org.elasticsearch.index.mapper.SourceFieldMapper;
+import org.elasticsearch.index.mapper.Uid;
+import org.elasticsearch.index.shard.ShardId;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares loading the stored fields of a page of consecutive hits one document at a time, which is what the fetch phase
+ * does for scattered hits, with loading them through the sequential stored fields reader.
+ */
+@Warmup(iterations = 5, time = 1, timeUnit = TimeUnit.SECONDS)
+@Measurement(iterations = 5, time = 1, timeUnit = TimeUnit.SECONDS)
+@Fork(1)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Benchmark)
+public class StoredFieldsFetchBenchmark {
+
+    private static final int NUM_DOCS = 100_000;
+
+    @Param({"10", "100", "500"})
+    private int numHits;
+
+    @Param({"100", "1000"})
+    private int sourceSize;
+
+    private Path path;
+    private Directory directory;
+    private DirectoryReader reader;
+    private ElasticsearchLeafReader leafReader;
+    private int[] docIds;
+
+    @Setup
+    public void setup() throws IOException {
+        path = Files.createTempDirectory("fetch");
+        directory = FSDirectory.open(path);
+        Random random = new Random(0);
+        try (IndexWriter writer = new IndexWriter(directory, new IndexWriterConfig())) {
+            for (int i = 0; i < NUM_DOCS; i++) {
+                Document doc = new Document();
+                doc.add(new StoredField(IdFieldMapper.NAME, Uid.encodeId(Integer.toString(i))));
+                doc.add(new StoredField(SourceFieldMapper.NAME, new BytesRef(randomSource(random))));
+                writer.addDocument(doc);
+            }
+            writer.forceMerge(1);
+        }
+        reader = ElasticsearchDirectoryReader.wrap(DirectoryReader.open(directory), new ShardId("index", "_na_", 0));
+        leafReader = (ElasticsearchLeafReader) reader.leaves().get(0).reader();
+        int from = random.nextInt(NUM_DOCS - numHits);
+        docIds = new int[numHits];
+        for (int i = 0; i < numHits; i++) {
+            docIds[i] = from + i;
+        }
+    }
+
+    private byte[] randomSource(Random random) {
+        StringBuilder source = new StringBuilder("{\"body\":\"");
+        while (source.length() < sourceSize) {
+            source.append((char) ('a' + random.nextInt(26)));
+        }
+        return source.append("\"}").toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        IOUtils.close(reader, directory);
+        IOUtils.rm(path);
+    }
+
+    @Benchmark
+    public void perDocument(Blackhole bh) throws IOException {
+        FieldsVisitor visitor = new FieldsVisitor(true);
+        for (int docId : docIds) {
+            visitor.reset();
+            leafReader.document(docId, visitor);
+            bh.consume(visitor.source());
+        }
+    }
+
+    @Benchmark
+    public void sequential(Blackhole bh) throws IOException {
+        FieldsVisitor visitor = new FieldsVisitor(true);
+        StoredFieldsReader fieldsReader = leafReader.getSequentialStoredFieldsReader();
+        for (int docId : docIds) {
+            visitor.reset();
+            fieldsReader.visitDocument(docId, visitor);
+            bh.consume(visitor.source());
+        }
+    }
+}
@@ -0,0 +1,109 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.index.engine;
+
+import org.apache.lucene.util.BytesRef;
+import org.elasticsearch.common.UUIDs;
+import org.elasticsearch.common.lease.Releasable;
+import org.elasticsearch.common.util.BigArrays;
+import org.elasticsearch.index.translog.Translog;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the cost of the live version map of an update heavy workload: every operation looks up the version of its id and then
+ * puts the new version, and the map is refreshed every {@code docsPerRefresh} operations. Compares the heap backed maps with the
+ * compact maps. Run with {@code -prof gc} to compare the allocation rates. The benchmark lives in the engine package since the
+ * version map is package private.
+ */
+@Warmup(iterations = 5, time = 1, timeUnit = TimeUnit.SECONDS)
+@Measurement(iterations = 5, time = 1, timeUnit = TimeUnit.SECONDS)
+@Fork(1)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@State(Scope.Benchmark)
+public class LiveVersionMapBenchmark {
+
+    @Param({"heap", "compact"})
+    private String type;
+
+    @Param({"100000"})
+    private int numIds;
+
+    @Param({"1000", "100000"})
+    private int docsPerRefresh;
+
+    private BytesRef[] ids;
+    private Translog.Location location;
+    private LiveVersionMap versionMap;
+    private long version;
+
+    @Setup
+    public void setUp() {
+        ids = new BytesRef[numIds];
+        for (int i = 0; i < numIds; i++) {
+            ids[i] = new BytesRef(UUIDs.base64UUID());
+        }
+        location = new Translog.Location(1, 0, 100);
+        switch (type) {
+            case "heap":
+                versionMap = new LiveVersionMap();
+                break;
+            case "compact":
+                versionMap = new LiveVersionMap(BigArrays.NON_RECYCLING_INSTANCE);
+                break;
+            default:
+                throw new IllegalArgumentException("unknown version map type [" + type + "]");
+        }
+        versionMap.enforceSafeAccess();
+    }
+
+    @Benchmark
+    public long putGetRefresh() throws IOException {
+        long found = 0;
+        for (int i = 0; i < ids.length; i++) {
+            final BytesRef id = ids[i];
+            try (Releasable ignored = versionMap.acquireLock(id)) {
+                if (versionMap.getUnderLock(id) != null) {
+                    found++;
+                }
+                version++;
+                versionMap.putIndexUnderLock(id, new IndexVersionValue(location, version, version, 1));
+            }
+            if ((i + 1) % docsPerRefresh == 0) {
+                versionMap.beforeRefresh();
+                versionMap.afterRefresh(true);
+            }
+        }
+        return found + versionMap.ramBytesUsed();
+    }
+}
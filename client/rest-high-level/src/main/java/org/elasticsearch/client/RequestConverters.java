@@ -127,6 +127,11 @@ final class RequestConverters {
         parameters.withRefreshPolicy(bulkRequest.getRefreshPolicy());
         parameters.withPipeline(bulkRequest.pipeline());
         parameters.withRouting(bulkRequest.routing());
+        if (bulkRequest.lengthPrefixedFraming()) {
+            parameters.putParam("framing", "length_prefixed");
+            request.setEntity(lengthPrefixedBulkEntity(bulkRequest));
+            return request;
+        }
         // Bulk API only supports newline delimited JSON or Smile. Before executing
         // the bulk, we need to check that all requests have the same content-type
         // and this content-type is supported by the Bulk API.
@@ -160,66 +165,9 @@ final class RequestConverters {
         for (DocWriteRequest<?> action : bulkRequest.requests()) {
             DocWriteRequest.OpType opType = action.opType();
 
-            try (XContentBuilder metadata = XContentBuilder.builder(bulkContentType.xContent())) {
-                metadata.startObject();
-                {
-                    metadata.startObject(opType.getLowercase());
-                    if (Strings.hasLength(action.index())) {
-                        metadata.field("_index", action.index());
-                    }
-                    if (Strings.hasLength(action.type())) {
-                        if (MapperService.SINGLE_MAPPING_NAME.equals(action.type()) == false) {
-                            metadata.field("_type", action.type());
-                        }
-                    }
-                    if (Strings.hasLength(action.id())) {
-                        metadata.field("_id", action.id());
-                    }
-                    if (Strings.hasLength(action.routing())) {
-                        metadata.field("routing", action.routing());
-                    }
-                    if (action.version() != Versions.MATCH_ANY) {
-                        metadata.field("version", action.version());
-                    }
-
-                    VersionType versionType = action.versionType();
-                    if (versionType != VersionType.INTERNAL) {
-                        if (versionType == VersionType.EXTERNAL) {
-                            metadata.field("version_type", "external");
-                        } else if (versionType == VersionType.EXTERNAL_GTE) {
-                            metadata.field("version_type", "external_gte");
-                        } else if (versionType == VersionType.FORCE) {
-                            metadata.field("version_type", "force");
-                        }
-                    }
-
-                    if (action.ifSeqNo() != SequenceNumbers.UNASSIGNED_SEQ_NO) {
-                        metadata.field("if_seq_no", action.ifSeqNo());
-                        metadata.field("if_primary_term", action.ifPrimaryTerm());
-                    }
-
-                    if (opType == DocWriteRequest.OpType.INDEX || opType == DocWriteRequest.OpType.CREATE) {
-                        IndexRequest indexRequest = (IndexRequest) action;
-                        if (Strings.hasLength(indexRequest.getPipeline())) {
-                            metadata.field("pipeline", indexRequest.getPipeline());
-                        }
-                    } else if (opType == DocWriteRequest.OpType.UPDATE) {
-                        UpdateRequest updateRequest = (UpdateRequest) action;
-                        if (updateRequest.retryOnConflict() > 0) {
-                            metadata.field("retry_on_conflict", updateRequest.retryOnConflict());
-                        }
-                        if (updateRequest.fetchSource() != null) {
-                            metadata.field("_source", updateRequest.fetchSource());
-                        }
-                    }
-                    metadata.endObject();
-                }
-                metadata.endObject();
-
-                BytesRef metadataSource = BytesReference.bytes(metadata).toBytesRef();
-                content.write(metadataSource.bytes, metadataSource.offset, metadataSource.length);
-                content.write(separator);
-            }
+            BytesRef metadataSource = bulkActionMetaData(action, bulkContentType.xContent()).toBytesRef();
+            content.write(metadataSource.bytes, metadataSource.offset, metadataSource.length);
+            content.write(separator);
 
             BytesRef source = null;
             if (opType == DocWriteRequest.OpType.INDEX || opType == DocWriteRequest.OpType.CREATE) {
@@ -253,6 +201,110 @@ final class RequestConverters {
         return request;
     }
 
+    /**
+     * Writes the actions of a bulk request with the length-prefixed framing of the Bulk API. Action/metadata entries are encoded with
+     * SMILE. The server detects the content type of each source from its leading bytes, so JSON, SMILE and CBOR sources are sent as
+     * they are instead of being converted to a common content type.
+     */
+    private static HttpEntity lengthPrefixedBulkEntity(BulkRequest bulkRequest) throws IOException {
+        final XContentType metadataContentType = XContentType.SMILE;
+        ByteArrayOutputStream content = new ByteArrayOutputStream();
+        for (DocWriteRequest<?> action : bulkRequest.requests()) {
+            DocWriteRequest.OpType opType = action.opType();
+            writeLengthPrefixed(content, bulkActionMetaData(action, metadataContentType.xContent()));
+
+            if (opType == DocWriteRequest.OpType.INDEX || opType == DocWriteRequest.OpType.CREATE) {
+                IndexRequest indexRequest = (IndexRequest) action;
+                XContentType indexXContentType = indexRequest.getContentType();
+                if (indexXContentType == XContentType.JSON || indexXContentType == XContentType.SMILE
+                        || indexXContentType == XContentType.CBOR) {
+                    writeLengthPrefixed(content, indexRequest.source());
+                } else {
+                    // the content type of other sources can't always be detected from their leading bytes
+                    try (XContentParser parser = XContentHelper.createParser(NamedXContentRegistry.EMPTY,
+                            DeprecationHandler.THROW_UNSUPPORTED_OPERATION, indexRequest.source(), indexXContentType);
+                         XContentBuilder builder = XContentBuilder.builder(metadataContentType.xContent())) {
+                        builder.copyCurrentStructure(parser);
+                        writeLengthPrefixed(content, BytesReference.bytes(builder));
+                    }
+                }
+            } else if (opType == DocWriteRequest.OpType.UPDATE) {
+                writeLengthPrefixed(content, XContentHelper.toXContent((UpdateRequest) action, metadataContentType, false));
+            }
+        }
+        return new NByteArrayEntity(content.toByteArray(), 0, content.size(), createContentType(metadataContentType));
+    }
+
+    private static void writeLengthPrefixed(ByteArrayOutputStream content, BytesReference entry) throws IOException {
+        final int length = entry.length();
+        content.write(length >>> 24);
+        content.write(length >>> 16);
+        content.write(length >>> 8);
+        content.write(length);
+        entry.writeTo(content);
+    }
+
+    private static BytesReference bulkActionMetaData(DocWriteRequest<?> action, XContent xContent) throws IOException {
+        DocWriteRequest.OpType opType = action.opType();
+        try (XContentBuilder metadata = XContentBuilder.builder(xContent)) {
+            metadata.startObject();
+            {
+                metadata.startObject(opType.getLowercase());
+                if (Strings.hasLength(action.index())) {
+                    metadata.field("_index", action.index());
+                }
+                if (Strings.hasLength(action.type())) {
+                    if (MapperService.SINGLE_MAPPING_NAME.equals(action.type()) == false) {
+                        metadata.field("_type", action.type());
+                    }
+                }
+                if (Strings.hasLength(action.id())) {
+                    metadata.field("_id", action.id());
+                }
+                if (Strings.hasLength(action.routing())) {
+                    metadata.field("routing", action.routing());
+                }
+                if (action.version() != Versions.MATCH_ANY) {
+                    metadata.field("version", action.version());
+                }
+
+                VersionType versionType = action.versionType();
+                if (versionType != VersionType.INTERNAL) {
+                    if (versionType == VersionType.EXTERNAL) {
+                        metadata.field("version_type", "external");
+                    } else if (versionType == VersionType.EXTERNAL_GTE) {
+                        metadata.field("version_type", "external_gte");
+                    } else if (versionType == VersionType.FORCE) {
+                        metadata.field("version_type", "force");
+                    }
+                }
+
+                if (action.ifSeqNo() != SequenceNumbers.UNASSIGNED_SEQ_NO) {
+                    metadata.field("if_seq_no", action.ifSeqNo());
+                    metadata.field("if_primary_term", action.ifPrimaryTerm());
+                }
+
+                if (opType == DocWriteRequest.OpType.INDEX || opType == DocWriteRequest.OpType.CREATE) {
+                    IndexRequest indexRequest = (IndexRequest) action;
+                    if (Strings.hasLength(indexRequest.getPipeline())) {
+                        metadata.field("pipeline", indexRequest.getPipeline());
+                    }
+                } else if (opType == DocWriteRequest.OpType.UPDATE) {
+                    UpdateRequest updateRequest = (UpdateRequest) action;
+                    if (updateRequest.retryOnConflict() > 0) {
+                        metadata.field("retry_on_conflict", updateRequest.retryOnConflict());
+                    }
+                    if (updateRequest.fetchSource() != null) {
+                        metadata.field("_source", updateRequest.fetchSource());
+                    }
+                }
+                metadata.endObject();
+            }
+            metadata.endObject();
+            return BytesReference.bytes(metadata);
+        }
+    }
+
     static Request exists(GetRequest getRequest) {
         return getStyleRequest(HttpHead.METHOD_NAME, getRequest);
     }
@@ -441,6 +493,9 @@ final class RequestConverters {
         if (multiSearchRequest.maxConcurrentSearchRequests() != MultiSearchRequest.MAX_CONCURRENT_SEARCH_REQUESTS_DEFAULT) {
             params.putParam("max_concurrent_searches", Integer.toString(multiSearchRequest.maxConcurrentSearchRequests()));
         }
+        if (multiSearchRequest.batchedShardRequests()) {
+            params.putParam("batched_shard_requests", "true");
+        }
 
         XContent xContent = REQUEST_BODY_CONTENT_TYPE.xContent();
         byte[] source = MultiSearchRequest.writeMultiLineFormat(multiSearchRequest, xContent);
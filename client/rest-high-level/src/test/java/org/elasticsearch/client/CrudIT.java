@@ -781,9 +781,13 @@ public class CrudIT extends ESRestHighLevelClientTestCase {
         int nbItems = randomIntBetween(10, 100);
         boolean[] errors = new boolean[nbItems];
 
-        XContentType xContentType = randomFrom(XContentType.JSON, XContentType.SMILE);
+        // sources of any detectable content type can be mixed with the length-prefixed framing
+        boolean lengthPrefixedFraming = randomBoolean();
+        XContentType xContentType = lengthPrefixedFraming
+            ? randomFrom(XContentType.JSON, XContentType.SMILE, XContentType.CBOR)
+            : randomFrom(XContentType.JSON, XContentType.SMILE);
 
-        BulkRequest bulkRequest = new BulkRequest();
+        BulkRequest bulkRequest = new BulkRequest().lengthPrefixedFraming(lengthPrefixedFraming);
         for (int i = 0; i < nbItems; i++) {
             String id = String.valueOf(i);
             boolean erroneous = randomBoolean();
@@ -872,6 +876,7 @@ public class CrudIT extends ESRestHighLevelClientTestCase {
                 .setConcurrentRequests(0)
                 .setBulkSize(new ByteSizeValue(5, ByteSizeUnit.GB))
                 .setBulkActions(nbItems + 1)
+                .setLengthPrefixedFraming(randomBoolean())
                 .build()) {
             for (int i = 0; i < nbItems; i++) {
                 String id = String.valueOf(i);
@@ -966,6 +966,70 @@ public class RequestConvertersTests extends ESTestCase {
         }
     }
 
+    public void testBulkLengthPrefixed() throws IOException {
+        BulkRequest bulkRequest = new BulkRequest().lengthPrefixedFraming(true);
+        int nbItems = randomIntBetween(10, 100);
+        for (int i = 0; i < nbItems; i++) {
+            String index = randomAlphaOfLength(5);
+            String id = randomAlphaOfLength(5);
+            XContentType xContentType = randomFrom(XContentType.values());
+            BytesReference source = RandomObjects.randomSource(random(), xContentType);
+            switch (randomFrom(DocWriteRequest.OpType.values())) {
+                case INDEX:
+                    bulkRequest.add(new IndexRequest(index).id(id).source(source, xContentType));
+                    break;
+                case CREATE:
+                    bulkRequest.add(new IndexRequest(index).id(id).source(source, xContentType).create(true));
+                    break;
+                case UPDATE:
+                    bulkRequest.add(new UpdateRequest(index, id).doc(new IndexRequest().source(source, xContentType)));
+                    break;
+                case DELETE:
+                    bulkRequest.add(new DeleteRequest(index, id));
+                    break;
+            }
+        }
+
+        Request request = RequestConverters.bulk(bulkRequest);
+        assertEquals("/_bulk", request.getEndpoint());
+        assertEquals("length_prefixed", request.getParameters().get("framing"));
+        assertEquals(XContentType.SMILE.mediaTypeWithoutParameters(), request.getEntity().getContentType().getValue());
+        byte[] content = new byte[(int) request.getEntity().getContentLength()];
+        try (InputStream inputStream = request.getEntity().getContent()) {
+            Streams.readFully(inputStream, content);
+        }
+
+        BulkRequest parsedBulkRequest = new BulkRequest();
+        parsedBulkRequest.addLengthPrefixed(new BytesArray(content), null, XContentType.SMILE);
+        assertEquals(bulkRequest.numberOfActions(), parsedBulkRequest.numberOfActions());
+        for (int i = 0; i < bulkRequest.numberOfActions(); i++) {
+            DocWriteRequest<?> originalRequest = bulkRequest.requests().get(i);
+            DocWriteRequest<?> parsedRequest = parsedBulkRequest.requests().get(i);
+            assertEquals(originalRequest.opType(), parsedRequest.opType());
+            assertEquals(originalRequest.index(), parsedRequest.index());
+            assertEquals(originalRequest.id(), parsedRequest.id());
+
+            IndexRequest originalSource = null;
+            IndexRequest parsedSource = null;
+            if (originalRequest instanceof IndexRequest) {
+                originalSource = (IndexRequest) originalRequest;
+                parsedSource = (IndexRequest) parsedRequest;
+                if (originalSource.getContentType() != XContentType.YAML) {
+                    // JSON, SMILE and CBOR sources are sent as they are
+                    assertEquals(originalSource.getContentType(), parsedSource.getContentType());
+                    assertEquals(originalSource.source(), parsedSource.source());
+                }
+            } else if (originalRequest instanceof UpdateRequest) {
+                originalSource = ((UpdateRequest) originalRequest).doc();
+                parsedSource = ((UpdateRequest) parsedRequest).doc();
+            }
+            if (originalSource != null) {
+                assertEquals(XContentHelper.convertToMap(originalSource.source(), false, originalSource.getContentType()).v2(),
+                    XContentHelper.convertToMap(parsedSource.source(), false, parsedSource.getContentType()).v2());
+            }
+        }
+    }
+
     public void testBulkWithDifferentContentTypes() throws IOException {
         {
             BulkRequest bulkRequest = new BulkRequest();
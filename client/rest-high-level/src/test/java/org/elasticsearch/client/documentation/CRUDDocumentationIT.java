@@ -759,6 +759,10 @@ public class CRUDDocumentationIT extends ESRestHighLevelClientTestCase {
             request.routing("routingId"); // <1>
             // end::bulk-request-routing
 
+            // tag::bulk-request-length-prefixed
+            request.lengthPrefixedFraming(true); // <1>
+            // end::bulk-request-length-prefixed
+
             // tag::bulk-request-index-type
             BulkRequest defaulted = new BulkRequest("posts"); // <1>
             // end::bulk-request-index-type
@@ -1540,6 +1544,7 @@ public class CRUDDocumentationIT extends ESRestHighLevelClientTestCase {
             builder.setFlushInterval(TimeValue.timeValueSeconds(10L)); // <4>
             builder.setBackoffPolicy(BackoffPolicy
                     .constantBackoff(TimeValue.timeValueSeconds(1L), 3)); // <5>
+            builder.setLengthPrefixedFraming(true); // <6>
             // end::bulk-processor-options
         }
     }
@@ -41,6 +41,20 @@ public class OneMergeHelper {
         return Double.POSITIVE_INFINITY;
     }
 
+    /**
+     * Lowers the MB per second rate limit of the given merge thread to the given rate if it is currently higher.
+     **/
+    public static void capMbPerSec(Thread thread, double maxMbPerSec) {
+        if (thread instanceof ConcurrentMergeScheduler.MergeThread) {
+            final MergeRateLimiter rateLimiter = ((ConcurrentMergeScheduler.MergeThread) thread).rateLimiter;
+            if (rateLimiter.getMBPerSec() > maxMbPerSec) {
+                rateLimiter.setMBPerSec(maxMbPerSec);
+            }
+        } else {
+            assert false: "this is not merge thread";
+        }
+    }
+
     /**
      * Returns total bytes written by this merge.
      **/
@@ -19,6 +19,7 @@
 
 package org.apache.lucene.queries;
 
+import org.apache.lucene.index.IndexReader;
 import org.apache.lucene.index.LeafReaderContext;
 import org.apache.lucene.search.ConstantScoreScorer;
 import org.apache.lucene.search.ConstantScoreWeight;
@@ -75,14 +76,8 @@ public class SearchAfterSortedDocQuery extends Query {
         return new ConstantScoreWeight(this, 1.0f) {
             @Override
             public Scorer scorer(LeafReaderContext context) throws IOException {
-                Sort segmentSort = context.reader().getMetaData().getSort();
-                if (segmentSort == null || Lucene.canEarlyTerminate(sort, segmentSort) == false) {
-                    throw new IOException("search sort :[" + sort.getSort() + "] does not match the index sort:[" + segmentSort + "]");
-                }
-                final int afterDoc = after.doc - context.docBase;
-                TopComparator comparator = getTopComparator(fieldComparators, reverseMuls, context, afterDoc);
                 final int maxDoc = context.reader().maxDoc();
-                final int firstDoc = searchAfterDoc(comparator, 0, context.reader().maxDoc());
+                final int firstDoc = firstDoc(context);
                 if (firstDoc >= maxDoc) {
                     return null;
                 }
@@ -100,6 +95,31 @@ public class SearchAfterSortedDocQuery extends Query {
         };
     }
 
+    /**
+     * Returns the number of documents that this query skips in the provided <code>reader</code>,
+     * that is the documents that sort before the <code>after</code> doc in each segment.
+     */
+    public long skippedDocs(IndexReader reader) throws IOException {
+        long skipped = 0;
+        for (LeafReaderContext context : reader.leaves()) {
+            skipped += firstDoc(context);
+        }
+        return skipped;
+    }
+
+    /**
+     * Returns the first doc id of the segment that sorts after the <code>after</code> doc.
+     */
+    private int firstDoc(LeafReaderContext context) throws IOException {
+        Sort segmentSort = context.reader().getMetaData().getSort();
+        if (segmentSort == null || Lucene.canEarlyTerminate(sort, segmentSort) == false) {
+            throw new IOException("search sort :[" + sort.getSort() + "] does not match the index sort:[" + segmentSort + "]");
+        }
+        final int afterDoc = after.doc - context.docBase;
+        TopComparator comparator = getTopComparator(fieldComparators, reverseMuls, context, afterDoc);
+        return searchAfterDoc(comparator, 0, context.reader().maxDoc());
+    }
+
     @Override
     public String toString(String field) {
         return "SearchAfterSortedDocQuery(sort=" + sort  + ", afterDoc=" + after.toString() + ")";
@@ -25,6 +25,7 @@ import org.elasticsearch.action.delete.DeleteResponse;
 import org.elasticsearch.action.index.IndexResponse;
 import org.elasticsearch.action.support.replication.ReplicationResponse;
 import org.elasticsearch.action.support.replication.TransportWriteAction;
+import org.elasticsearch.common.Nullable;
 import org.elasticsearch.index.engine.Engine;
 import org.elasticsearch.index.shard.IndexShard;
 import org.elasticsearch.index.translog.Translog;
@@ -75,6 +76,7 @@ class BulkPrimaryExecutionContext {
     private DocWriteRequest requestToExecute;
     private BulkItemResponse executionResult;
     private int retryCounter;
+    private IndexShard.PreParsedDocument[] preParsedDocuments;
 
 
     BulkPrimaryExecutionContext(BulkShardRequest request, IndexShard primary) {
@@ -184,6 +186,29 @@ class BulkPrimaryExecutionContext {
         return request.items()[currentIndex];
     }
 
+    /**
+     * sets the documents that were parsed ahead of time, indexed by the position of their item in the
+     * {@link BulkShardRequest#items()} array
+     */
+    void setPreParsedDocuments(IndexShard.PreParsedDocument[] preParsedDocuments) {
+        assert preParsedDocuments.length == request.items().length;
+        this.preParsedDocuments = preParsedDocuments;
+    }
+
+    /**
+     * returns the document of the current item if it was parsed ahead of time, or null otherwise. A pre-parsed document
+     * is only ever returned once, retries need to parse the source again.
+     */
+    @Nullable
+    IndexShard.PreParsedDocument takePreParsedDocument() {
+        if (preParsedDocuments == null) {
+            return null;
+        }
+        final IndexShard.PreParsedDocument preParsed = preParsedDocuments[currentIndex];
+        preParsedDocuments[currentIndex] = null;
+        return preParsed;
+    }
+
     /** returns the primary shard */
     public IndexShard getPrimary() {
         return primary;
@@ -31,6 +31,7 @@ import org.elasticsearch.common.unit.ByteSizeUnit;
 import org.elasticsearch.common.unit.ByteSizeValue;
 import org.elasticsearch.common.unit.TimeValue;
 import org.elasticsearch.common.xcontent.XContentType;
+import org.elasticsearch.index.mapper.MapperService;
 import org.elasticsearch.threadpool.Scheduler;
 import org.elasticsearch.threadpool.ThreadPool;
 
@@ -93,6 +94,7 @@ public class BulkProcessor implements Closeable {
         private String globalType;
         private String globalRouting;
         private String globalPipeline;
+        private boolean lengthPrefixedFraming = false;
 
         private Builder(BiConsumer<BulkRequest, ActionListener<BulkResponse>> consumer, Listener listener,
                         Scheduler scheduler, Runnable onClose) {
@@ -161,6 +163,15 @@ public class BulkProcessor implements Closeable {
             return this;
         }
 
+        /**
+         * Sets whether REST clients send the bulk requests with the length-prefixed framing of the bulk API, see
+         * {@link BulkRequest#lengthPrefixedFraming(boolean)}. Defaults to {@code false}.
+         */
+        public Builder setLengthPrefixedFraming(boolean lengthPrefixedFraming) {
+            this.lengthPrefixedFraming = lengthPrefixedFraming;
+            return this;
+        }
+
         /**
          * Sets a custom backoff policy. The backoff policy defines how the bulk processor should handle retries of bulk requests internally
          * in case they have failed due to resource constraints (i.e. a thread pool was full).
@@ -188,7 +199,8 @@ public class BulkProcessor implements Closeable {
         private Supplier<BulkRequest> createBulkRequestWithGlobalDefaults() {
             return () -> new BulkRequest(globalIndex, globalType)
                 .pipeline(globalPipeline)
-                .routing(globalRouting);
+                .routing(globalRouting)
+                .lengthPrefixedFraming(lengthPrefixedFraming);
         }
     }
 
@@ -340,6 +352,19 @@ public class BulkProcessor implements Closeable {
         return this;
     }
 
+    /**
+     * Adds the data from the bytes in the length-prefixed binary format to be processed by the bulk processor, see
+     * {@link BulkRequestParser#parseLengthPrefixed}
+     */
+    public synchronized BulkProcessor addLengthPrefixed(BytesReference data, @Nullable String defaultIndex,
+                                                        @Nullable String defaultPipeline,
+                                                        XContentType xContentType) throws Exception {
+        bulkRequest.addLengthPrefixed(data, defaultIndex, MapperService.SINGLE_MAPPING_NAME, null, null, defaultPipeline, true,
+            xContentType);
+        executeIfNeeded();
+        return this;
+    }
+
     private Scheduler.Cancellable startFlushTask(TimeValue flushInterval, Scheduler scheduler) {
         if (flushInterval == null) {
             return new Scheduler.Cancellable() {
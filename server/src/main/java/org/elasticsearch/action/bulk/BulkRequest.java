@@ -75,6 +75,7 @@ public class BulkRequest extends ActionRequest implements CompositeIndicesReques
     private String globalRouting;
     private String globalIndex;
     private String globalType;
+    private boolean lengthPrefixedFraming = false;
 
     private long sizeInBytes = 0;
 
@@ -296,6 +297,27 @@ public class BulkRequest extends ActionRequest implements CompositeIndicesReques
         return this;
     }
 
+    /**
+     * Adds data in the length-prefixed binary format, see {@link BulkRequestParser#parseLengthPrefixed}
+     */
+    public BulkRequest addLengthPrefixed(BytesReference data, @Nullable String defaultIndex, XContentType xContentType) throws IOException {
+        return addLengthPrefixed(data, defaultIndex, MapperService.SINGLE_MAPPING_NAME, null, null, null, true, xContentType);
+    }
+
+    /**
+     * Adds data in the length-prefixed binary format, see {@link BulkRequestParser#parseLengthPrefixed}
+     */
+    public BulkRequest addLengthPrefixed(BytesReference data, @Nullable String defaultIndex, @Nullable String defaultType,
+                                         @Nullable String defaultRouting, @Nullable FetchSourceContext defaultFetchSourceContext,
+                                         @Nullable String defaultPipeline, boolean allowExplicitIndex,
+                                         XContentType xContentType) throws IOException {
+        String routing = valueOrDefault(defaultRouting, globalRouting);
+        String pipeline = valueOrDefault(defaultPipeline, globalPipeline);
+        new BulkRequestParser(true).parseLengthPrefixed(data, defaultIndex, defaultType, routing, defaultFetchSourceContext, pipeline,
+                allowExplicitIndex, xContentType, this::internalAdd, this::internalAdd, this::add);
+        return this;
+    }
+
     /**
      * Sets the number of shard copies that must be active before proceeding with the write.
      * See {@link ReplicationRequest#waitForActiveShards(ActiveShardCount)} for details.
@@ -346,6 +368,15 @@ public class BulkRequest extends ActionRequest implements CompositeIndicesReques
         this.globalRouting = globalRouting;
         return this;
     }
+
+    /**
+     * Sets whether REST clients send this request with the length-prefixed framing of the bulk API instead of newline delimited
+     * JSON or SMILE, see {@link BulkRequestParser#parseLengthPrefixed}. This option is not sent over the transport layer.
+     */
+    public final BulkRequest lengthPrefixedFraming(boolean lengthPrefixedFraming) {
+        this.lengthPrefixedFraming = lengthPrefixedFraming;
+        return this;
+    }
     /**
      * A timeout to wait if the index operation can't be performed immediately. Defaults to {@code 1m}.
      */
@@ -365,6 +396,10 @@ public class BulkRequest extends ActionRequest implements CompositeIndicesReques
         return globalRouting;
     }
 
+    public boolean lengthPrefixedFraming() {
+        return lengthPrefixedFraming;
+    }
+
     @Override
     public ActionRequestValidationException validate() {
         ActionRequestValidationException validationException = null;
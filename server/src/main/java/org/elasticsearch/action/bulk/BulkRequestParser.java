@@ -31,6 +31,7 @@ import org.elasticsearch.common.lucene.uid.Versions;
 import org.elasticsearch.common.xcontent.LoggingDeprecationHandler;
 import org.elasticsearch.common.xcontent.NamedXContentRegistry;
 import org.elasticsearch.common.xcontent.XContent;
+import org.elasticsearch.common.xcontent.XContentFactory;
 import org.elasticsearch.common.xcontent.XContentParser;
 import org.elasticsearch.common.xcontent.XContentType;
 import org.elasticsearch.index.VersionType;
@@ -39,7 +40,6 @@ import org.elasticsearch.rest.action.document.RestBulkAction;
 import org.elasticsearch.search.fetch.subphase.FetchSourceContext;
 
 import java.io.IOException;
-import java.io.InputStream;
 import java.util.function.Consumer;
 
 import static org.elasticsearch.index.seqno.SequenceNumbers.UNASSIGNED_PRIMARY_TERM;
@@ -64,7 +64,10 @@ public final class BulkRequestParser {
     private static final ParseField IF_SEQ_NO = new ParseField("if_seq_no");
     private static final ParseField IF_PRIMARY_TERM = new ParseField("if_primary_term");
 
+    private static final int GUESS_HEADER_LENGTH = 20;
+
     private final boolean warnOnTypeUsage;
+    private boolean typesDeprecationLogged = false;
 
     /**
      * Create a new parser.
@@ -138,7 +141,6 @@ public final class BulkRequestParser {
         int line = 0;
         int from = 0;
         byte marker = xContent.streamSeparator();
-        boolean typesDeprecationLogged = false;
         while (true) {
             int nextMarker = findNextMarker(marker, from, data);
             if (nextMarker == -1) {
@@ -147,162 +149,295 @@ public final class BulkRequestParser {
             line++;
 
             // now parse the action
-            // EMPTY is safe here because we never call namedObject
-            try (InputStream stream = data.slice(from, nextMarker - from).streamInput();
-                    XContentParser parser = xContent
-                            .createParser(NamedXContentRegistry.EMPTY, LoggingDeprecationHandler.INSTANCE, stream)) {
+            final ActionMetaData action;
+            try (XContentParser parser = createParser(xContent, data.slice(from, nextMarker - from))) {
                 // move pointers
                 from = nextMarker + 1;
+                action = parseActionMetaData(parser, line, defaultIndex, defaultType, defaultRouting, defaultFetchSourceContext,
+                    defaultPipeline, allowExplicitIndex);
+            }
+            if (action == null) {
+                continue;
+            }
 
-                // Move to START_OBJECT
-                XContentParser.Token token = parser.nextToken();
-                if (token == null) {
-                    continue;
-                }
-                if (token != XContentParser.Token.START_OBJECT) {
-                    throw new IllegalArgumentException("Malformed action/metadata line [" + line + "], expected "
-                            + XContentParser.Token.START_OBJECT + " but found [" + token + "]");
-                }
-                // Move to FIELD_NAME, that's the action
-                token = parser.nextToken();
-                if (token != XContentParser.Token.FIELD_NAME) {
-                    throw new IllegalArgumentException("Malformed action/metadata line [" + line + "], expected "
-                            + XContentParser.Token.FIELD_NAME + " but found [" + token + "]");
+            if ("delete".equals(action.action)) {
+                deleteRequestConsumer.accept(action.deleteRequest());
+            } else {
+                nextMarker = findNextMarker(marker, from, data);
+                if (nextMarker == -1) {
+                    break;
                 }
-                String action = parser.currentName();
-
-                String index = defaultIndex;
-                String type = defaultType;
-                String id = null;
-                String routing = defaultRouting;
-                FetchSourceContext fetchSourceContext = defaultFetchSourceContext;
-                String opType = null;
-                long version = Versions.MATCH_ANY;
-                VersionType versionType = VersionType.INTERNAL;
-                long ifSeqNo = SequenceNumbers.UNASSIGNED_SEQ_NO;
-                long ifPrimaryTerm = UNASSIGNED_PRIMARY_TERM;
-                int retryOnConflict = 0;
-                String pipeline = defaultPipeline;
-
-                // at this stage, next token can either be END_OBJECT (and use default index and type, with auto generated id)
-                // or START_OBJECT which will have another set of parameters
-                token = parser.nextToken();
-
-                if (token == XContentParser.Token.START_OBJECT) {
-                    String currentFieldName = null;
-                    while ((token = parser.nextToken()) != XContentParser.Token.END_OBJECT) {
-                        if (token == XContentParser.Token.FIELD_NAME) {
-                            currentFieldName = parser.currentName();
-                        } else if (token.isValue()) {
-                            if (INDEX.match(currentFieldName, parser.getDeprecationHandler())){
-                                if (!allowExplicitIndex) {
-                                    throw new IllegalArgumentException("explicit index in bulk is not allowed");
-                                }
-                                index = parser.text();
-                            } else if (TYPE.match(currentFieldName, parser.getDeprecationHandler())) {   
-                                if (warnOnTypeUsage && typesDeprecationLogged == false) {
-                                    deprecationLogger.deprecatedAndMaybeLog("bulk_with_types", RestBulkAction.TYPES_DEPRECATION_MESSAGE);
-                                    typesDeprecationLogged = true;
-                                }
-                                type = parser.text();
-                            } else if (ID.match(currentFieldName, parser.getDeprecationHandler())) {
-                                id = parser.text();
-                            } else if (ROUTING.match(currentFieldName, parser.getDeprecationHandler())) {
-                                routing = parser.text();
-                            } else if (OP_TYPE.match(currentFieldName, parser.getDeprecationHandler())) {
-                                opType = parser.text();
-                            } else if (VERSION.match(currentFieldName, parser.getDeprecationHandler())) {
-                                version = parser.longValue();
-                            } else if (VERSION_TYPE.match(currentFieldName, parser.getDeprecationHandler())) {
-                                versionType = VersionType.fromString(parser.text());
-                            } else if (IF_SEQ_NO.match(currentFieldName, parser.getDeprecationHandler())) {
-                                ifSeqNo = parser.longValue();
-                            } else if (IF_PRIMARY_TERM.match(currentFieldName, parser.getDeprecationHandler())) {
-                                ifPrimaryTerm = parser.longValue();
-                            } else if (RETRY_ON_CONFLICT.match(currentFieldName, parser.getDeprecationHandler())) {
-                                retryOnConflict = parser.intValue();
-                            } else if (PIPELINE.match(currentFieldName, parser.getDeprecationHandler())) {
-                                pipeline = parser.text();
-                            } else if (SOURCE.match(currentFieldName, parser.getDeprecationHandler())) {
-                                fetchSourceContext = FetchSourceContext.fromXContent(parser);
-                            } else {
-                                throw new IllegalArgumentException("Action/metadata line [" + line + "] contains an unknown parameter ["
-                                        + currentFieldName + "]");
-                            }
-                        } else if (token == XContentParser.Token.START_ARRAY) {
-                            throw new IllegalArgumentException("Malformed action/metadata line [" + line +
-                                    "], expected a simple value for field [" + currentFieldName + "] but found [" + token + "]");
-                        } else if (token == XContentParser.Token.START_OBJECT && SOURCE.match(currentFieldName,
-                                parser.getDeprecationHandler())) {
-                            fetchSourceContext = FetchSourceContext.fromXContent(parser);
-                        } else if (token != XContentParser.Token.VALUE_NULL) {
-                            throw new IllegalArgumentException("Malformed action/metadata line [" + line
-                                    + "], expected a simple value for field [" + currentFieldName + "] but found [" + token + "]");
-                        }
-                    }
-                } else if (token != XContentParser.Token.END_OBJECT) {
-                    throw new IllegalArgumentException("Malformed action/metadata line [" + line + "], expected "
-                            + XContentParser.Token.START_OBJECT + " or " + XContentParser.Token.END_OBJECT + " but found [" + token + "]");
+                line++;
+
+                addRequest(action, sliceTrimmingCarriageReturn(data, from, nextMarker, xContentType), xContentType, defaultPipeline,
+                    indexRequestConsumer, updateRequestConsumer);
+                // move pointers
+                from = nextMarker + 1;
+            }
+        }
+    }
+
+    /**
+     * Parse the provided length-prefixed {@code data} assuming the provided default values. Instead of being delimited by the stream
+     * separator of the content type, every action/metadata entry and every document source is preceded by its length in bytes as a
+     * four bytes big-endian integer, so that entries can be sliced without scanning the request:
+     * <pre>
+     * [length][action/metadata in the request's content type][length][document source]
+     * [length][delete action/metadata in the request's content type]
+     * </pre>
+     * The action/metadata entries are the same objects as the ones of the newline-delimited format and are typically encoded with a
+     * binary content type such as SMILE or CBOR. The content type of the document sources is detected from their leading bytes, and
+     * they are sliced from {@code data} without being copied. Index requests will be passed to the {@code indexRequestConsumer},
+     * update requests to the {@code updateRequestConsumer} and delete requests to the {@code deleteRequestConsumer}.
+     */
+    public void parseLengthPrefixed(
+            BytesReference data, @Nullable String defaultIndex, @Nullable String defaultType,
+            @Nullable String defaultRouting, @Nullable FetchSourceContext defaultFetchSourceContext,
+            @Nullable String defaultPipeline, boolean allowExplicitIndex,
+            XContentType xContentType,
+            Consumer<IndexRequest> indexRequestConsumer,
+            Consumer<UpdateRequest> updateRequestConsumer,
+            Consumer<DeleteRequest> deleteRequestConsumer) throws IOException {
+        XContent xContent = xContentType.xContent();
+        int line = 0;
+        int from = 0;
+        while (from < data.length()) {
+            line++;
+            final int length = readLength(data, from, line);
+            from += Integer.BYTES;
+
+            final ActionMetaData action;
+            try (XContentParser parser = createParser(xContent, data.slice(from, length))) {
+                from += length;
+                action = parseActionMetaData(parser, line, defaultIndex, defaultType, defaultRouting, defaultFetchSourceContext,
+                    defaultPipeline, allowExplicitIndex);
+            }
+            if (action == null) {
+                throw new IllegalArgumentException("Malformed action/metadata entry [" + line + "], expected "
+                    + XContentParser.Token.START_OBJECT + " but found an empty entry");
+            }
+
+            if ("delete".equals(action.action)) {
+                deleteRequestConsumer.accept(action.deleteRequest());
+            } else {
+                line++;
+                final int sourceLength = readLength(data, from, line);
+                from += Integer.BYTES;
+                final BytesReference source = data.slice(from, sourceLength);
+                from += sourceLength;
+                final XContentType sourceType = sourceContentType(source);
+                if (sourceType == null) {
+                    throw new IllegalArgumentException("Malformed source entry [" + line + "], unable to detect its content type");
                 }
+                addRequest(action, source, sourceType, defaultPipeline, indexRequestConsumer, updateRequestConsumer);
+            }
+        }
+    }
 
-                if ("delete".equals(action)) {
-                    deleteRequestConsumer.accept(new DeleteRequest(index, type, id).routing(routing)
-                            .version(version).versionType(versionType).setIfSeqNo(ifSeqNo).setIfPrimaryTerm(ifPrimaryTerm));
-                } else {
-                    nextMarker = findNextMarker(marker, from, data);
-                    if (nextMarker == -1) {
-                        break;
-                    }
-                    line++;
-
-                    // we use internalAdd so we don't fork here, this allows us not to copy over the big byte array to small chunks
-                    // of index request.
-                    if ("index".equals(action)) {
-                        if (opType == null) {
-                            indexRequestConsumer.accept(new IndexRequest(index, type, id).routing(routing)
-                                    .version(version).versionType(versionType)
-                                    .setPipeline(pipeline).setIfSeqNo(ifSeqNo).setIfPrimaryTerm(ifPrimaryTerm)
-                                    .source(sliceTrimmingCarriageReturn(data, from, nextMarker,xContentType), xContentType));
-                        } else {
-                            indexRequestConsumer.accept(new IndexRequest(index, type, id).routing(routing)
-                                    .version(version).versionType(versionType)
-                                    .create("create".equals(opType)).setPipeline(pipeline)
-                                    .setIfSeqNo(ifSeqNo).setIfPrimaryTerm(ifPrimaryTerm)
-                                    .source(sliceTrimmingCarriageReturn(data, from, nextMarker, xContentType), xContentType));
-                        }
-                    } else if ("create".equals(action)) {
-                        indexRequestConsumer.accept(new IndexRequest(index, type, id).routing(routing)
-                                .version(version).versionType(versionType)
-                                .create(true).setPipeline(pipeline).setIfSeqNo(ifSeqNo).setIfPrimaryTerm(ifPrimaryTerm)
-                                .source(sliceTrimmingCarriageReturn(data, from, nextMarker, xContentType), xContentType));
-                    } else if ("update".equals(action)) {
-                        if (version != Versions.MATCH_ANY || versionType != VersionType.INTERNAL) {
-                            throw new IllegalArgumentException("Update requests do not support versioning. " +
-                                    "Please use `if_seq_no` and `if_primary_term` instead");
-                        }
-                        UpdateRequest updateRequest = new UpdateRequest(index, type, id).routing(routing).retryOnConflict(retryOnConflict)
-                                .setIfSeqNo(ifSeqNo).setIfPrimaryTerm(ifPrimaryTerm)
-                                .routing(routing);
-                        // EMPTY is safe here because we never call namedObject
-                        try (InputStream dataStream = sliceTrimmingCarriageReturn(data, from, nextMarker, xContentType).streamInput();
-                                XContentParser sliceParser = xContent.createParser(NamedXContentRegistry.EMPTY,
-                                        LoggingDeprecationHandler.INSTANCE, dataStream)) {
-                            updateRequest.fromXContent(sliceParser);
-                        }
-                        if (fetchSourceContext != null) {
-                            updateRequest.fetchSource(fetchSourceContext);
+    /**
+     * Reads the four bytes big-endian length of the entry that starts at {@code from} and checks that the entry fits in {@code data}.
+     */
+    private static int readLength(BytesReference data, int from, int line) {
+        if (from + Integer.BYTES > data.length()) {
+            throw new IllegalArgumentException("Malformed length-prefixed bulk request, entry [" + line + "] is truncated");
+        }
+        final int length = ((data.get(from) & 0xFF) << 24) | ((data.get(from + 1) & 0xFF) << 16)
+            | ((data.get(from + 2) & 0xFF) << 8) | (data.get(from + 3) & 0xFF);
+        if (length < 0 || length > data.length() - from - Integer.BYTES) {
+            throw new IllegalArgumentException("Malformed length-prefixed bulk request, entry [" + line + "] has a length of ["
+                + length + "] but only [" + (data.length() - from - Integer.BYTES) + "] bytes are left");
+        }
+        return length;
+    }
+
+    /**
+     * Detects the content type of a document source from its leading bytes without copying the whole source.
+     */
+    @Nullable
+    private static XContentType sourceContentType(BytesReference source) {
+        final byte[] header = new byte[Math.min(source.length(), GUESS_HEADER_LENGTH)];
+        for (int i = 0; i < header.length; i++) {
+            header[i] = source.get(i);
+        }
+        return XContentFactory.xContentType(header, 0, header.length);
+    }
+
+    private static XContentParser createParser(XContent xContent, BytesReference bytes) throws IOException {
+        // EMPTY is safe here because we never call namedObject
+        return xContent.createParser(NamedXContentRegistry.EMPTY, LoggingDeprecationHandler.INSTANCE, bytes.streamInput());
+    }
+
+    /**
+     * Parses an action/metadata entry, returns {@code null} if the entry is empty.
+     */
+    @Nullable
+    private ActionMetaData parseActionMetaData(XContentParser parser, int line, @Nullable String defaultIndex,
+                                               @Nullable String defaultType, @Nullable String defaultRouting,
+                                               @Nullable FetchSourceContext defaultFetchSourceContext, @Nullable String defaultPipeline,
+                                               boolean allowExplicitIndex) throws IOException {
+        // Move to START_OBJECT
+        XContentParser.Token token = parser.nextToken();
+        if (token == null) {
+            return null;
+        }
+        if (token != XContentParser.Token.START_OBJECT) {
+            throw new IllegalArgumentException("Malformed action/metadata line [" + line + "], expected "
+                    + XContentParser.Token.START_OBJECT + " but found [" + token + "]");
+        }
+        // Move to FIELD_NAME, that's the action
+        token = parser.nextToken();
+        if (token != XContentParser.Token.FIELD_NAME) {
+            throw new IllegalArgumentException("Malformed action/metadata line [" + line + "], expected "
+                    + XContentParser.Token.FIELD_NAME + " but found [" + token + "]");
+        }
+        final ActionMetaData action = new ActionMetaData(parser.currentName(), defaultIndex, defaultType, defaultRouting,
+            defaultFetchSourceContext, defaultPipeline);
+
+        // at this stage, next token can either be END_OBJECT (and use default index and type, with auto generated id)
+        // or START_OBJECT which will have another set of parameters
+        token = parser.nextToken();
+
+        if (token == XContentParser.Token.START_OBJECT) {
+            String currentFieldName = null;
+            while ((token = parser.nextToken()) != XContentParser.Token.END_OBJECT) {
+                if (token == XContentParser.Token.FIELD_NAME) {
+                    currentFieldName = parser.currentName();
+                } else if (token.isValue()) {
+                    if (INDEX.match(currentFieldName, parser.getDeprecationHandler())){
+                        if (!allowExplicitIndex) {
+                            throw new IllegalArgumentException("explicit index in bulk is not allowed");
                         }
-                        IndexRequest upsertRequest = updateRequest.upsertRequest();
-                        if (upsertRequest != null) {
-                            upsertRequest.setPipeline(defaultPipeline);
+                        action.index = parser.text();
+                    } else if (TYPE.match(currentFieldName, parser.getDeprecationHandler())) {
+                        if (warnOnTypeUsage && typesDeprecationLogged == false) {
+                            deprecationLogger.deprecatedAndMaybeLog("bulk_with_types", RestBulkAction.TYPES_DEPRECATION_MESSAGE);
+                            typesDeprecationLogged = true;
                         }
-
-                        updateRequestConsumer.accept(updateRequest);
+                        action.type = parser.text();
+                    } else if (ID.match(currentFieldName, parser.getDeprecationHandler())) {
+                        action.id = parser.text();
+                    } else if (ROUTING.match(currentFieldName, parser.getDeprecationHandler())) {
+                        action.routing = parser.text();
+                    } else if (OP_TYPE.match(currentFieldName, parser.getDeprecationHandler())) {
+                        action.opType = parser.text();
+                    } else if (VERSION.match(currentFieldName, parser.getDeprecationHandler())) {
+                        action.version = parser.longValue();
+                    } else if (VERSION_TYPE.match(currentFieldName, parser.getDeprecationHandler())) {
+                        action.versionType = VersionType.fromString(parser.text());
+                    } else if (IF_SEQ_NO.match(currentFieldName, parser.getDeprecationHandler())) {
+                        action.ifSeqNo = parser.longValue();
+                    } else if (IF_PRIMARY_TERM.match(currentFieldName, parser.getDeprecationHandler())) {
+                        action.ifPrimaryTerm = parser.longValue();
+                    } else if (RETRY_ON_CONFLICT.match(currentFieldName, parser.getDeprecationHandler())) {
+                        action.retryOnConflict = parser.intValue();
+                    } else if (PIPELINE.match(currentFieldName, parser.getDeprecationHandler())) {
+                        action.pipeline = parser.text();
+                    } else if (SOURCE.match(currentFieldName, parser.getDeprecationHandler())) {
+                        action.fetchSourceContext = FetchSourceContext.fromXContent(parser);
+                    } else {
+                        throw new IllegalArgumentException("Action/metadata line [" + line + "] contains an unknown parameter ["
+                                + currentFieldName + "]");
                     }
-                    // move pointers
-                    from = nextMarker + 1;
+                } else if (token == XContentParser.Token.START_ARRAY) {
+                    throw new IllegalArgumentException("Malformed action/metadata line [" + line +
+                            "], expected a simple value for field [" + currentFieldName + "] but found [" + token + "]");
+                } else if (token == XContentParser.Token.START_OBJECT && SOURCE.match(currentFieldName,
+                        parser.getDeprecationHandler())) {
+                    action.fetchSourceContext = FetchSourceContext.fromXContent(parser);
+                } else if (token != XContentParser.Token.VALUE_NULL) {
+                    throw new IllegalArgumentException("Malformed action/metadata line [" + line
+                            + "], expected a simple value for field [" + currentFieldName + "] but found [" + token + "]");
                 }
             }
+        } else if (token != XContentParser.Token.END_OBJECT) {
+            throw new IllegalArgumentException("Malformed action/metadata line [" + line + "], expected "
+                    + XContentParser.Token.START_OBJECT + " or " + XContentParser.Token.END_OBJECT + " but found [" + token + "]");
+        }
+        return action;
+    }
+
+    /**
+     * Creates the index or update request of an action that is followed by a document source. Unknown actions are ignored.
+     */
+    private static void addRequest(ActionMetaData action, BytesReference source, XContentType sourceType,
+                                   @Nullable String defaultPipeline,
+                                   Consumer<IndexRequest> indexRequestConsumer,
+                                   Consumer<UpdateRequest> updateRequestConsumer) throws IOException {
+        // we use internalAdd so we don't fork here, this allows us not to copy over the big byte array to small chunks
+        // of index request.
+        if ("index".equals(action.action)) {
+            if (action.opType == null) {
+                indexRequestConsumer.accept(new IndexRequest(action.index, action.type, action.id).routing(action.routing)
+                        .version(action.version).versionType(action.versionType)
+                        .setPipeline(action.pipeline).setIfSeqNo(action.ifSeqNo).setIfPrimaryTerm(action.ifPrimaryTerm)
+                        .source(source, sourceType));
+            } else {
+                indexRequestConsumer.accept(new IndexRequest(action.index, action.type, action.id).routing(action.routing)
+                        .version(action.version).versionType(action.versionType)
+                        .create("create".equals(action.opType)).setPipeline(action.pipeline)
+                        .setIfSeqNo(action.ifSeqNo).setIfPrimaryTerm(action.ifPrimaryTerm)
+                        .source(source, sourceType));
+            }
+        } else if ("create".equals(action.action)) {
+            indexRequestConsumer.accept(new IndexRequest(action.index, action.type, action.id).routing(action.routing)
+                    .version(action.version).versionType(action.versionType)
+                    .create(true).setPipeline(action.pipeline).setIfSeqNo(action.ifSeqNo).setIfPrimaryTerm(action.ifPrimaryTerm)
+                    .source(source, sourceType));
+        } else if ("update".equals(action.action)) {
+            if (action.version != Versions.MATCH_ANY || action.versionType != VersionType.INTERNAL) {
+                throw new IllegalArgumentException("Update requests do not support versioning. " +
+                        "Please use `if_seq_no` and `if_primary_term` instead");
+            }
+            UpdateRequest updateRequest = new UpdateRequest(action.index, action.type, action.id).routing(action.routing)
+                    .retryOnConflict(action.retryOnConflict)
+                    .setIfSeqNo(action.ifSeqNo).setIfPrimaryTerm(action.ifPrimaryTerm)
+                    .routing(action.routing);
+            try (XContentParser sliceParser = createParser(sourceType.xContent(), source)) {
+                updateRequest.fromXContent(sliceParser);
+            }
+            if (action.fetchSourceContext != null) {
+                updateRequest.fetchSource(action.fetchSourceContext);
+            }
+            IndexRequest upsertRequest = updateRequest.upsertRequest();
+            if (upsertRequest != null) {
+                upsertRequest.setPipeline(defaultPipeline);
+            }
+
+            updateRequestConsumer.accept(updateRequest);
+        }
+    }
+
+    /**
+     * The action and the parameters of an action/metadata entry.
+     */
+    private static final class ActionMetaData {
+        final String action;
+        String index;
+        String type;
+        String id;
+        String routing;
+        FetchSourceContext fetchSourceContext;
+        String opType;
+        long version = Versions.MATCH_ANY;
+        VersionType versionType = VersionType.INTERNAL;
+        long ifSeqNo = SequenceNumbers.UNASSIGNED_SEQ_NO;
+        long ifPrimaryTerm = UNASSIGNED_PRIMARY_TERM;
+        int retryOnConflict = 0;
+        String pipeline;
+
+        ActionMetaData(String action, String index, String type, String routing, FetchSourceContext fetchSourceContext,
+                       String pipeline) {
+            this.action = action;
+            this.index = index;
+            this.type = type;
+            this.routing = routing;
+            this.fetchSourceContext = fetchSourceContext;
+            this.pipeline = pipeline;
+        }
+
+        DeleteRequest deleteRequest() {
+            return new DeleteRequest(index, type, id).routing(routing)
+                    .version(version).versionType(versionType).setIfSeqNo(ifSeqNo).setIfPrimaryTerm(ifPrimaryTerm);
         }
     }
 
@@ -136,7 +136,7 @@ public class Retry {
         }
 
         private BulkRequest createBulkRequestForRetry(BulkResponse bulkItemResponses) {
-            BulkRequest requestToReissue = new BulkRequest();
+            BulkRequest requestToReissue = new BulkRequest().lengthPrefixedFraming(currentBulkRequest.lengthPrefixedFraming());
             int index = 0;
             for (BulkItemResponse bulkItemResponse : bulkItemResponses.getItems()) {
                 if (bulkItemResponse.isFailed()) {
@@ -46,6 +46,7 @@ import org.elasticsearch.cluster.metadata.MappingMetaData;
 import org.elasticsearch.cluster.service.ClusterService;
 import org.elasticsearch.common.CheckedRunnable;
 import org.elasticsearch.common.CheckedSupplier;
+import org.elasticsearch.common.Nullable;
 import org.elasticsearch.common.bytes.BytesReference;
 import org.elasticsearch.common.collect.Tuple;
 import org.elasticsearch.common.inject.Inject;
@@ -71,9 +72,15 @@ import org.elasticsearch.transport.TransportService;
 
 import java.io.IOException;
 import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.function.Consumer;
 import java.util.function.Function;
 import java.util.function.LongSupplier;
+import java.util.stream.IntStream;
 
 /** Performs shard-level bulk (index, delete or update) operations */
 public class TransportShardBulkAction extends TransportWriteAction<BulkShardRequest, BulkShardRequest, BulkShardResponse> {
@@ -138,8 +145,18 @@ public class TransportShardBulkAction extends TransportWriteAction<BulkShardRequ
             });
             waitingFuture.get();
         };
+        final Executor parsingExecutor;
+        final int parsingParallelism;
+        if (primary.indexSettings().isBulkParallelParsing()) {
+            parsingExecutor = threadPool.executor(ThreadPool.Names.WRITE);
+            // only borrow the write threads that are idle, so that parsing never queues up behind or ahead of other write requests
+            parsingParallelism = 1 + idleThreads(parsingExecutor);
+        } else {
+            parsingExecutor = null;
+            parsingParallelism = 1;
+        }
         return performOnPrimary(request, primary, updateHelper, threadPool::absoluteTimeInMillis,
-            new ConcreteMappingUpdatePerformer(), waitForMappingUpdate);
+            new ConcreteMappingUpdatePerformer(), waitForMappingUpdate, parsingExecutor, parsingParallelism);
     }
 
     public static WritePrimaryResult<BulkShardRequest, BulkShardResponse> performOnPrimary(
@@ -149,10 +166,107 @@ public class TransportShardBulkAction extends TransportWriteAction<BulkShardRequ
         LongSupplier nowInMillisSupplier,
         MappingUpdatePerformer mappingUpdater,
         CheckedRunnable<Exception> waitForMappingUpdate) throws Exception {
+        return performOnPrimary(request, primary, updateHelper, nowInMillisSupplier, mappingUpdater, waitForMappingUpdate, null, 1);
+    }
+
+    /**
+     * Same as {@link #performOnPrimary(BulkShardRequest, IndexShard, UpdateHelper, LongSupplier, MappingUpdatePerformer,
+     * CheckedRunnable)} but parses the index requests of the bulk request with up to {@code parsingParallelism} threads of the
+     * given executor before they are applied in order. A {@code null} executor parses every request on the calling thread.
+     */
+    public static WritePrimaryResult<BulkShardRequest, BulkShardResponse> performOnPrimary(
+        BulkShardRequest request,
+        IndexShard primary,
+        UpdateHelper updateHelper,
+        LongSupplier nowInMillisSupplier,
+        MappingUpdatePerformer mappingUpdater,
+        CheckedRunnable<Exception> waitForMappingUpdate,
+        @Nullable Executor parsingExecutor,
+        int parsingParallelism) throws Exception {
         BulkPrimaryExecutionContext context = new BulkPrimaryExecutionContext(request, primary);
+        if (parsingExecutor != null && parsingParallelism > 1) {
+            preParseIndexRequests(context, parsingExecutor, parsingParallelism);
+        }
         return performOnPrimary(context, updateHelper, nowInMillisSupplier, mappingUpdater, waitForMappingUpdate);
     }
 
+    /**
+     * Returns the number of threads of the given executor that are idle, or <code>0</code> if tasks are already waiting in its queue.
+     * This is only a snapshot, tasks that are forked based on it may still have to wait for a thread.
+     */
+    static int idleThreads(Executor executor) {
+        if (executor instanceof ThreadPoolExecutor == false) {
+            return 0;
+        }
+        final ThreadPoolExecutor threadPoolExecutor = (ThreadPoolExecutor) executor;
+        if (threadPoolExecutor.getQueue().isEmpty() == false) {
+            return 0;
+        }
+        return Math.max(0, threadPoolExecutor.getMaximumPoolSize() - threadPoolExecutor.getActiveCount());
+    }
+
+    /**
+     * Parses the documents of the index requests of the bulk request concurrently. Parsing doesn't depend on the order in which
+     * the operations are applied to the engine, so it can happen ahead of time while the operations are still applied in order
+     * by {@link #executeBulkItemRequest}. Documents that require a dynamic mapping update, or that were parsed with a mapping
+     * that changed in the meantime, are parsed again when they are applied. The calling thread takes part in the parsing so
+     * that it never waits for tasks that are queued behind other write requests.
+     */
+    static void preParseIndexRequests(BulkPrimaryExecutionContext context, Executor executor, int parallelism) {
+        final BulkItemRequest[] items = context.getBulkShardRequest().items();
+        final int[] toParse = IntStream.range(0, items.length).filter(i -> canBePreParsed(items[i])).toArray();
+        if (toParse.length < 2) {
+            return;
+        }
+        final IndexShard primary = context.getPrimary();
+        final IndexShard.PreParsedDocument[] preParsed = new IndexShard.PreParsedDocument[items.length];
+        final AtomicInteger nextToParse = new AtomicInteger();
+        final CountDownLatch parsed = new CountDownLatch(toParse.length);
+        final Runnable parser = () -> {
+            for (int i = nextToParse.getAndIncrement(); i < toParse.length; i = nextToParse.getAndIncrement()) {
+                final int item = toParse[i];
+                try {
+                    preParsed[item] = primary.preParseIndexOperation(sourceToParse(items[item].request()));
+                } finally {
+                    parsed.countDown();
+                }
+            }
+        };
+        final int numForks = Math.min(parallelism, toParse.length) - 1;
+        for (int i = 0; i < numForks; i++) {
+            try {
+                executor.execute(parser);
+            } catch (RejectedExecutionException e) {
+                // the calling thread parses the remaining documents
+                break;
+            }
+        }
+        parser.run();
+        try {
+            // every document has been claimed at this point, wait for the ones that other threads are still parsing
+            parsed.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return;
+        }
+        context.setPreParsedDocuments(preParsed);
+    }
+
+    private static boolean canBePreParsed(BulkItemRequest item) {
+        final BulkItemResponse response = item.getPrimaryResponse();
+        if (response != null && response.isFailed() && response.getFailure().isAborted()) {
+            return false;
+        }
+        final DocWriteRequest.OpType opType = item.request().opType();
+        return opType == DocWriteRequest.OpType.INDEX || opType == DocWriteRequest.OpType.CREATE;
+    }
+
+    private static SourceToParse sourceToParse(DocWriteRequest<?> docWriteRequest) {
+        final IndexRequest request = (IndexRequest) docWriteRequest;
+        return new SourceToParse(request.index(), request.type(), request.id(), request.source(), request.getContentType(),
+            request.routing());
+    }
+
     private static WritePrimaryResult<BulkShardRequest, BulkShardResponse> performOnPrimary(
         BulkPrimaryExecutionContext context, UpdateHelper updateHelper, LongSupplier nowInMillisSupplier,
         MappingUpdatePerformer mappingUpdater, CheckedRunnable<Exception> waitForMappingUpdate) throws Exception {
@@ -445,12 +559,12 @@ public class TransportShardBulkAction extends TransportWriteAction<BulkShardRequ
                                              MappingUpdatePerformer mappingUpdater) throws Exception {
         final IndexRequest request = context.getRequestToExecute();
         final IndexShard primary = context.getPrimary();
-        final SourceToParse sourceToParse =
-            new SourceToParse(request.index(), request.type(), request.id(), request.source(), request.getContentType(), request.routing());
+        final SourceToParse sourceToParse = sourceToParse(request);
+        final IndexShard.PreParsedDocument preParsed = context.takePreParsedDocument();
         executeOnPrimaryWhileHandlingMappingUpdates(context,
             () ->
                 primary.applyIndexOperationOnPrimary(request.version(), request.versionType(), sourceToParse,
-                    request.ifSeqNo(), request.ifPrimaryTerm(), request.getAutoGeneratedTimestamp(), request.isRetry()),
+                    request.ifSeqNo(), request.ifPrimaryTerm(), request.getAutoGeneratedTimestamp(), request.isRetry(), preParsed),
             e -> primary.getFailedIndexResult(e, request.version()),
             context::markOperationAsExecuted,
             mapping -> mappingUpdater.updateMappings(mapping, primary.shardId(), request.type()));
@@ -25,10 +25,14 @@ import org.elasticsearch.action.support.TransportActions;
 import org.elasticsearch.cluster.routing.GroupShardsIterator;
 import org.elasticsearch.cluster.routing.ShardRouting;
 import org.elasticsearch.common.Nullable;
+import org.elasticsearch.common.lease.Releasable;
+import org.elasticsearch.common.unit.TimeValue;
 import org.elasticsearch.common.util.concurrent.AbstractRunnable;
 import org.elasticsearch.common.util.concurrent.AtomicArray;
 import org.elasticsearch.search.SearchPhaseResult;
 import org.elasticsearch.search.SearchShardTarget;
+import org.elasticsearch.threadpool.Scheduler;
+import org.elasticsearch.threadpool.ThreadPool;
 
 import java.util.ArrayDeque;
 import java.util.ArrayList;
@@ -37,6 +41,7 @@ import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.Executor;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BiFunction;
 import java.util.stream.Stream;
 
 /**
@@ -57,7 +62,9 @@ abstract class InitialSearchPhase<FirstResult extends SearchPhaseResult> extends
     private final int maxConcurrentRequestsPerNode;
     private final Executor executor;
     private final Map<String, PendingExecutions> pendingExecutionsPerNode = new ConcurrentHashMap<>();
-    private final boolean throttleConcurrentRequests;
+    private boolean throttleConcurrentRequests;
+    private ThreadPool hedgeThreadPool;
+    private BiFunction<SearchShardIterator, ShardRouting, TimeValue> hedgeDelay;
 
     InitialSearchPhase(String name, SearchRequest request, GroupShardsIterator<SearchShardIterator> shardsIts, Logger logger,
                        int maxConcurrentRequestsPerNode, Executor executor) {
@@ -125,6 +132,20 @@ abstract class InitialSearchPhase<FirstResult extends SearchPhaseResult> extends
         }
     }
 
+    /**
+     * Enables hedged requests for this phase: if a shard copy didn't answer after the delay returned by {@code hedgeDelay},
+     * the request is also sent to the next copy of the shard and the first answer is used. The answer of the other copy
+     * is discarded with {@link #onShardResultDiscarded(SearchPhaseResult)}. {@code hedgeDelay} returns {@code null} if the
+     * request to the given shard copy should not be hedged. Hedged requests count against the maximum number of concurrent
+     * requests per node like any other shard request. Must be called before the phase is started.
+     */
+    final void enableHedgedRequests(ThreadPool threadPool, BiFunction<SearchShardIterator, ShardRouting, TimeValue> hedgeDelay) {
+        this.hedgeThreadPool = threadPool;
+        this.hedgeDelay = hedgeDelay;
+        // every shard may have a hedged request in flight on top of its regular request
+        this.throttleConcurrentRequests = maxConcurrentRequestsPerNode < 2 * shardsIts.size();
+    }
+
     @Override
     public final void run() {
         for (final SearchShardIterator iterator : toSkipShardsIts) {
@@ -250,18 +271,21 @@ abstract class InitialSearchPhase<FirstResult extends SearchPhaseResult> extends
         if (shard == null) {
             fork(() -> onShardFailure(shardIndex, null, null, shardIt, new NoShardAvailableActionException(shardIt.shardId())));
         } else {
-            final PendingExecutions pendingExecutions = throttleConcurrentRequests ?
-                pendingExecutionsPerNode.computeIfAbsent(shard.currentNodeId(), n -> new PendingExecutions(maxConcurrentRequestsPerNode))
-                : null;
+            final PendingExecutions pendingExecutions = pendingExecutions(shard);
             Runnable r = () -> {
                 final Thread thread = Thread.currentThread();
+                final HedgedShardExecution hedgedExecution = newHedgedShardExecution(shardIndex, shardIt, shard);
                 try {
                     executePhaseOnShard(shardIt, shard,
                         new SearchActionListener<FirstResult>(shardIt.newSearchShardTarget(shard.currentNodeId()), shardIndex) {
                             @Override
                             public void innerOnResponse(FirstResult result) {
                                 try {
-                                    onShardResult(result, shardIt);
+                                    if (hedgedExecution == null) {
+                                        onShardResult(result, shardIt);
+                                    } else {
+                                        hedgedExecution.onCopyResponse(result);
+                                    }
                                 } finally {
                                     executeNext(pendingExecutions, thread);
                                 }
@@ -270,7 +294,9 @@ abstract class InitialSearchPhase<FirstResult extends SearchPhaseResult> extends
                             @Override
                             public void onFailure(Exception t) {
                                 try {
-                                    onShardFailure(shardIndex, shard, shard.currentNodeId(), shardIt, t);
+                                    if (hedgedExecution == null || hedgedExecution.onCopyFailure(shard, t)) {
+                                        onShardFailure(shardIndex, shard, shard.currentNodeId(), shardIt, t);
+                                    }
                                 } finally {
                                     executeNext(pendingExecutions, thread);
                                 }
@@ -282,7 +308,9 @@ abstract class InitialSearchPhase<FirstResult extends SearchPhaseResult> extends
                          * It is possible to run into connection exceptions here because we are getting the connection early and might
                          * run into nodes that are not connected. In this case, on shard failure will move us to the next shard copy.
                          */
-                        fork(() -> onShardFailure(shardIndex, shard, shard.currentNodeId(), shardIt, e));
+                        if (hedgedExecution == null || hedgedExecution.onCopyFailure(shard, e)) {
+                            fork(() -> onShardFailure(shardIndex, shard, shard.currentNodeId(), shardIt, e));
+                        }
                     } finally {
                         executeNext(pendingExecutions, thread);
                     }
@@ -296,7 +324,169 @@ abstract class InitialSearchPhase<FirstResult extends SearchPhaseResult> extends
         }
     }
 
+    @Nullable
+    private PendingExecutions pendingExecutions(ShardRouting shard) {
+        return throttleConcurrentRequests ?
+            pendingExecutionsPerNode.computeIfAbsent(shard.currentNodeId(), n -> new PendingExecutions(maxConcurrentRequestsPerNode))
+            : null;
+    }
+
+    private HedgedShardExecution newHedgedShardExecution(int shardIndex, SearchShardIterator shardIt, ShardRouting shard) {
+        if (hedgeDelay == null || shardIt.remaining() == 0) {
+            return null;
+        }
+        final TimeValue delay = hedgeDelay.apply(shardIt, shard);
+        if (delay == null) {
+            return null;
+        }
+        final HedgedShardExecution execution = new HedgedShardExecution(shardIndex, shardIt);
+        execution.scheduleHedge(delay);
+        return execution;
+    }
+
+    /**
+     * Tracks the requests sent to the copies of a shard when hedged requests are enabled. Once the delay elapsed the request is
+     * sent to the next copy of the shard, the first successful response is used and the other one is discarded. Since both
+     * copies were consumed from the shard iterator, the operation of the copy that is still in flight is accounted as soon as
+     * the first response is received so that the phase doesn't wait for the slowest copy. The hedged request waits for a free
+     * slot on its node when concurrent requests are throttled, and isn't sent at all if the shard answered in the meantime.
+     */
+    private final class HedgedShardExecution {
+        private final int shardIndex;
+        private final SearchShardIterator shardIt;
+        private int inFlight = 1;
+        private boolean hedged;
+        private boolean done;
+        private Scheduler.Cancellable scheduledHedge;
+
+        HedgedShardExecution(int shardIndex, SearchShardIterator shardIt) {
+            this.shardIndex = shardIndex;
+            this.shardIt = shardIt;
+        }
+
+        synchronized void scheduleHedge(TimeValue delay) {
+            scheduledHedge = hedgeThreadPool.schedule(this::hedge, delay, ThreadPool.Names.SEARCH);
+        }
+
+        private void hedge() {
+            final ShardRouting next;
+            synchronized (this) {
+                if (done || hedged || inFlight == 0) {
+                    return;
+                }
+                hedged = true;
+                next = shardIt.nextOrNull();
+                if (next == null) {
+                    return;
+                }
+                inFlight++;
+            }
+            final PendingExecutions pendingExecutions = pendingExecutions(next);
+            final Runnable r = () -> executeHedge(next, pendingExecutions);
+            if (throttleConcurrentRequests) {
+                pendingExecutions.tryRun(r);
+            } else {
+                r.run();
+            }
+        }
+
+        private void executeHedge(ShardRouting next, PendingExecutions pendingExecutions) {
+            final Thread thread = Thread.currentThread();
+            synchronized (this) {
+                if (done) {
+                    // the shard answered while the hedged request was waiting for a free slot, its operation is accounted already
+                    inFlight--;
+                    executeNext(pendingExecutions, thread);
+                    return;
+                }
+            }
+            logger.trace("{}: hedging request to [{}]", shardIt.shardId(), next.currentNodeId());
+            try {
+                executePhaseOnShard(shardIt, next,
+                    new SearchActionListener<FirstResult>(shardIt.newSearchShardTarget(next.currentNodeId()), shardIndex) {
+                        @Override
+                        public void innerOnResponse(FirstResult result) {
+                            try {
+                                onCopyResponse(result);
+                            } finally {
+                                executeNext(pendingExecutions, thread);
+                            }
+                        }
+
+                        @Override
+                        public void onFailure(Exception e) {
+                            try {
+                                if (onCopyFailure(next, e)) {
+                                    onShardFailure(shardIndex, next, next.currentNodeId(), shardIt, e);
+                                }
+                            } finally {
+                                executeNext(pendingExecutions, thread);
+                            }
+                        }
+                    });
+            } catch (final Exception e) {
+                try {
+                    if (onCopyFailure(next, e)) {
+                        fork(() -> onShardFailure(shardIndex, next, next.currentNodeId(), shardIt, e));
+                    }
+                } finally {
+                    executeNext(pendingExecutions, thread);
+                }
+            }
+        }
+
+        void onCopyResponse(FirstResult result) {
+            final boolean first;
+            final int otherOps;
+            synchronized (this) {
+                inFlight--;
+                first = done == false;
+                done = true;
+                otherOps = inFlight;
+                if (scheduledHedge != null) {
+                    scheduledHedge.cancel();
+                }
+            }
+            if (first) {
+                onShardResult(result, shardIt, otherOps);
+            } else {
+                onShardResultDiscarded(result);
+            }
+        }
+
+        /**
+         * Returns <code>true</code> if the failure must be handled as a regular shard failure, that is if no other copy
+         * of the shard is still in flight and no copy answered successfully.
+         */
+        boolean onCopyFailure(ShardRouting shard, Exception e) {
+            synchronized (this) {
+                inFlight--;
+                if (done) {
+                    // the other copy answered already
+                    return false;
+                }
+                if (inFlight == 0) {
+                    done = true;
+                    if (scheduledHedge != null) {
+                        scheduledHedge.cancel();
+                    }
+                    return true;
+                }
+            }
+            // the other copy is still in flight, record the failure that is cleared if that copy succeeds
+            logger.trace(() -> new ParameterizedMessage("{}: failed to execute [{}] on hedged copy", shard.shortSummary(), request), e);
+            onShardFailure(shardIndex, shardIt.newSearchShardTarget(shard.currentNodeId()), e);
+            final int xTotalOps = totalOps.incrementAndGet();
+            assert xTotalOps < expectedTotalOps : "the copy in flight must account for at least one operation";
+            return false;
+        }
+    }
+
     private void onShardResult(FirstResult result, SearchShardIterator shardIt) {
+        onShardResult(result, shardIt, 0);
+    }
+
+    private void onShardResult(FirstResult result, SearchShardIterator shardIt, int otherOps) {
         assert result.getShardIndex() != -1 : "shard index is not set";
         assert result.getSearchShardTarget() != null : "search shard target must not be null";
         onShardSuccess(result);
@@ -305,15 +495,19 @@ abstract class InitialSearchPhase<FirstResult extends SearchPhaseResult> extends
         // cause the successor to read a wrong value from successfulOps if second phase is very fast ie. count etc.
         // increment all the "future" shards to update the total ops since we some may work and some may not...
         // and when that happens, we break on total ops, so we must maintain them
-        successfulShardExecution(shardIt);
+        successfulShardExecution(shardIt, otherOps);
     }
 
     private void successfulShardExecution(SearchShardIterator shardsIt) {
+        successfulShardExecution(shardsIt, 0);
+    }
+
+    private void successfulShardExecution(SearchShardIterator shardsIt, int otherOps) {
         final int remainingOpsOnIterator;
         if (shardsIt.skip()) {
             remainingOpsOnIterator = shardsIt.remaining();
         } else {
-            remainingOpsOnIterator = shardsIt.remaining() + 1;
+            remainingOpsOnIterator = shardsIt.remaining() + 1 + otherOps;
         }
         final int xTotalOps = totalOps.addAndGet(remainingOpsOnIterator);
         if (xTotalOps == expectedTotalOps) {
@@ -348,6 +542,13 @@ abstract class InitialSearchPhase<FirstResult extends SearchPhaseResult> extends
      */
     abstract void onShardSuccess(FirstResult result);
 
+    /**
+     * Executed for the successful responses of hedged requests that are received after the response of another copy of the
+     * same shard was used. The resources that are held by the discarded result should be released.
+     * @param result the discarded result
+     */
+    void onShardResultDiscarded(FirstResult result) {}
+
     /**
      * Sends the request to the actual shard.
      * @param shardIt the shards iterator
@@ -360,7 +561,7 @@ abstract class InitialSearchPhase<FirstResult extends SearchPhaseResult> extends
     /**
      * This class acts as a basic result collection that can be extended to do on-the-fly reduction or result processing
      */
-    abstract static class SearchPhaseResults<Result extends SearchPhaseResult> {
+    abstract static class SearchPhaseResults<Result extends SearchPhaseResult> implements Releasable {
         private final int numShards;
 
         SearchPhaseResults(int numShards) {
@@ -401,6 +602,12 @@ abstract class InitialSearchPhase<FirstResult extends SearchPhaseResult> extends
         SearchPhaseController.ReducedQueryPhase reduce() {
             throw new UnsupportedOperationException("reduce is not supported");
         }
+
+        /**
+         * Releases any resources, like circuit breaker reservations, held on behalf of results that were consumed but not reduced.
+         */
+        @Override
+        public void close() {}
     }
 
     /**
@@ -19,6 +19,7 @@
 
 package org.elasticsearch.action.search;
 
+import org.elasticsearch.Version;
 import org.elasticsearch.action.ActionRequest;
 import org.elasticsearch.action.ActionRequestValidationException;
 import org.elasticsearch.action.CompositeIndicesRequest;
@@ -56,6 +57,7 @@ public class MultiSearchRequest extends ActionRequest implements CompositeIndice
     public static final int MAX_CONCURRENT_SEARCH_REQUESTS_DEFAULT = 0;
 
     private int maxConcurrentSearchRequests = 0;
+    private boolean batchedShardRequests = false;
     private List<SearchRequest> requests = new ArrayList<>();
 
     private IndicesOptions indicesOptions = IndicesOptions.strictExpandOpenAndForbidClosedIgnoreThrottled();
@@ -97,6 +99,23 @@ public class MultiSearchRequest extends ActionRequest implements CompositeIndice
         return this;
     }
 
+    /**
+     * Returns whether the query phase requests of the search requests that target the same shard are sent in a single request.
+     */
+    public boolean batchedShardRequests() {
+        return batchedShardRequests;
+    }
+
+    /**
+     * Sets whether the query phase requests of the search requests that target the same shard should be sent in a single request
+     * that shares the searcher of the shard. Defaults to <code>false</code>. When enabled, the search requests that are started
+     * together, up to {@link #maxConcurrentSearchRequests()}, are batched, and only the ones that are cheap to execute.
+     */
+    public MultiSearchRequest batchedShardRequests(boolean batchedShardRequests) {
+        this.batchedShardRequests = batchedShardRequests;
+        return this;
+    }
+
     public List<SearchRequest> requests() {
         return this.requests;
     }
@@ -138,6 +157,9 @@ public class MultiSearchRequest extends ActionRequest implements CompositeIndice
             SearchRequest request = new SearchRequest(in);
             requests.add(request);
         }
+        if (in.getVersion().onOrAfter(Version.V_8_0_0)) {
+            batchedShardRequests = in.readBoolean();
+        }
     }
 
     @Override
@@ -148,6 +170,9 @@ public class MultiSearchRequest extends ActionRequest implements CompositeIndice
         for (SearchRequest request : requests) {
             request.writeTo(out);
         }
+        if (out.getVersion().onOrAfter(Version.V_8_0_0)) {
+            out.writeBoolean(batchedShardRequests);
+        }
     }
 
     @Override
@@ -156,13 +181,14 @@ public class MultiSearchRequest extends ActionRequest implements CompositeIndice
         if (o == null || getClass() != o.getClass()) return false;
         MultiSearchRequest that = (MultiSearchRequest) o;
         return maxConcurrentSearchRequests == that.maxConcurrentSearchRequests &&
+                batchedShardRequests == that.batchedShardRequests &&
                 Objects.equals(requests, that.requests) &&
                 Objects.equals(indicesOptions, that.indicesOptions);
     }
 
     @Override
     public int hashCode() {
-        return Objects.hash(maxConcurrentSearchRequests, requests, indicesOptions);
+        return Objects.hash(maxConcurrentSearchRequests, batchedShardRequests, requests, indicesOptions);
     }
 
     public static void readMultiLineFormat(BytesReference data,
@@ -82,4 +82,12 @@ public class MultiSearchRequestBuilder extends ActionRequestBuilder<MultiSearchR
         request().maxConcurrentSearchRequests(maxConcurrentSearchRequests);
         return this;
     }
+
+    /**
+     * Sets whether the query phase requests of the search requests that target the same shard should be sent in a single request.
+     */
+    public MultiSearchRequestBuilder setBatchedShardRequests(boolean batchedShardRequests) {
+        request().batchedShardRequests(batchedShardRequests);
+        return this;
+    }
 }
@@ -0,0 +1,110 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.action.search;
+
+import org.elasticsearch.Version;
+import org.elasticsearch.common.bytes.BytesReference;
+import org.elasticsearch.common.io.stream.BytesStreamOutput;
+import org.elasticsearch.common.io.stream.StreamInput;
+import org.elasticsearch.index.shard.ShardId;
+
+import java.io.IOException;
+import java.util.Base64;
+import java.util.Collections;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+/**
+ * The id of a point in time, which records for every shard the node that holds the pinned searcher and the id of the point in
+ * time on this node. It is opaque to users and encoded as a url-safe base64 string.
+ */
+public final class PointInTimeId {
+
+    private final Map<ShardId, ScrollIdForNode> shards;
+
+    PointInTimeId(Map<ShardId, ScrollIdForNode> shards) {
+        this.shards = Collections.unmodifiableMap(new TreeMap<>(shards));
+    }
+
+    Map<ShardId, ScrollIdForNode> shards() {
+        return shards;
+    }
+
+    /**
+     * Returns the names of the indices that the point in time was opened against.
+     */
+    public String[] indices() {
+        Set<String> indices = new TreeSet<>();
+        for (ShardId shardId : shards.keySet()) {
+            indices.add(shardId.getIndexName());
+        }
+        return indices.toArray(new String[0]);
+    }
+
+    /**
+     * Returns the id of the point in time that pins the given shard on the node that holds it.
+     */
+    public long contextId(ShardId shardId) {
+        ScrollIdForNode target = shards.get(shardId);
+        if (target == null) {
+            throw new IllegalArgumentException("shard " + shardId + " is not part of the point in time");
+        }
+        return target.getScrollId();
+    }
+
+    String encode() {
+        try (BytesStreamOutput out = new BytesStreamOutput()) {
+            out.setVersion(Version.CURRENT);
+            Version.writeVersion(Version.CURRENT, out);
+            out.writeVInt(shards.size());
+            for (Map.Entry<ShardId, ScrollIdForNode> entry : shards.entrySet()) {
+                entry.getKey().writeTo(out);
+                out.writeString(entry.getValue().getNode());
+                out.writeLong(entry.getValue().getScrollId());
+            }
+            return Base64.getUrlEncoder().encodeToString(BytesReference.toBytes(out.bytes()));
+        } catch (IOException e) {
+            throw new AssertionError("in-memory streams should not throw", e);
+        }
+    }
+
+    public static PointInTimeId decode(String id) {
+        try {
+            byte[] bytes = Base64.getUrlDecoder().decode(id);
+            try (StreamInput in = StreamInput.wrap(bytes)) {
+                in.setVersion(Version.readVersion(in));
+                final int numShards = in.readVInt();
+                Map<ShardId, ScrollIdForNode> shards = new TreeMap<>();
+                for (int i = 0; i < numShards; i++) {
+                    ShardId shardId = ShardId.readShardId(in);
+                    shards.put(shardId, new ScrollIdForNode(null, in.readString(), in.readLong()));
+                }
+                if (in.available() != 0) {
+                    throw new IllegalArgumentException("Not all bytes were read");
+                }
+                return new PointInTimeId(shards);
+            }
+        } catch (Exception e) {
+            throw new IllegalArgumentException("Cannot parse point in time id", e);
+        }
+    }
+}
@@ -0,0 +1,162 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.action.search;
+
+import org.elasticsearch.Version;
+import org.elasticsearch.common.collect.Tuple;
+import org.elasticsearch.index.shard.ShardId;
+import org.elasticsearch.search.SearchPhaseResult;
+import org.elasticsearch.search.SearchService;
+import org.elasticsearch.search.builder.SearchSourceBuilder;
+import org.elasticsearch.search.internal.ShardSearchTransportRequest;
+import org.elasticsearch.tasks.Task;
+import org.elasticsearch.transport.Transport;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Buffers the initial query phase requests of the items of a multi search request and sends the requests that target the same shard
+ * copy in a single {@link SearchTransportService#QUERY_BATCH_ACTION_NAME} request, so that the shard only rewrites the requests
+ * and acquires its searcher once for all the items.
+ *
+ * Requests are buffered while some of the items that were started have not dispatched their initial shard requests yet, so the
+ * items that are started together, up to {@code max_concurrent_searches}, are batched together. Requests that are sent while no
+ * started item is dispatching, like retries on other shard copies or the requests that were throttled by
+ * {@code max_concurrent_shard_requests}, are sent individually. The shard responds to a batch once all of its requests are
+ * executed, one after the other, so only cheap requests are batched, see {@link #isBatchable(ShardSearchTransportRequest)}.
+ * Scroll requests and requests to remote clusters are never batched.
+ */
+final class QueryPhaseBatcher {
+
+    /**
+     * The maximum number of hits that a request can return to be batched, which is also the default size of a search.
+     */
+    static final int MAX_BATCHED_HITS = SearchService.DEFAULT_SIZE;
+
+    private final SearchTransportService searchTransportService;
+    private final Task parentTask;
+    private final Set<SearchRequest> pendingItems = Collections.newSetFromMap(new IdentityHashMap<>());
+    private final Map<Tuple<String, ShardId>, List<PendingQuery>> pendingQueries = new LinkedHashMap<>();
+
+    QueryPhaseBatcher(SearchTransportService searchTransportService, Task parentTask) {
+        this.searchTransportService = searchTransportService;
+        this.parentTask = parentTask;
+    }
+
+    /**
+     * Notifies that the given item is about to be started. The requests that are buffered afterwards are not sent before this
+     * item is dispatched.
+     */
+    synchronized void onItemStarted(SearchRequest item) {
+        pendingItems.add(item);
+    }
+
+    /**
+     * Buffers the given query phase request if it can be batched with the requests of other items.
+     *
+     * @return <code>true</code> if the request was buffered, <code>false</code> if the caller must send it
+     */
+    boolean add(Transport.Connection connection, ShardSearchTransportRequest request, SearchTask task,
+                SearchActionListener<SearchPhaseResult> listener) {
+        if (request.scroll() != null || request.getClusterAlias() != null || connection.getVersion().before(Version.V_8_0_0)
+                || isBatchable(request) == false) {
+            return false;
+        }
+        synchronized (this) {
+            if (pendingItems.isEmpty()) {
+                return false;
+            }
+            final Tuple<String, ShardId> key = Tuple.tuple(connection.getNode().getId(), request.shardId());
+            pendingQueries.computeIfAbsent(key, k -> new ArrayList<>()).add(new PendingQuery(connection, request, task, listener));
+            return true;
+        }
+    }
+
+    /**
+     * Returns whether the given request is cheap enough to wait for the other requests of a batch: it must neither aggregate,
+     * suggest, rescore nor be profiled, and it must not return more than {@link #MAX_BATCHED_HITS} hits.
+     */
+    static boolean isBatchable(ShardSearchTransportRequest request) {
+        final SearchSourceBuilder source = request.source();
+        if (source == null) {
+            return true;
+        }
+        final int from = source.from() == -1 ? 0 : source.from();
+        final int size = source.size() == -1 ? SearchService.DEFAULT_SIZE : source.size();
+        return source.aggregations() == null
+            && source.suggest() == null
+            && (source.rescores() == null || source.rescores().isEmpty())
+            && source.profile() == false
+            && from + size <= MAX_BATCHED_HITS;
+    }
+
+    /**
+     * Notifies that the given item won't send more initial query phase requests, either because they have all been dispatched
+     * or because the item completed. The buffered requests are sent once all the items that were started have been notified.
+     */
+    void onItemDispatched(SearchRequest item) {
+        final Collection<List<PendingQuery>> toSend;
+        synchronized (this) {
+            if (pendingItems.remove(item) == false || pendingItems.isEmpty() == false) {
+                return;
+            }
+            toSend = new ArrayList<>(pendingQueries.values());
+            pendingQueries.clear();
+        }
+        for (List<PendingQuery> queries : toSend) {
+            final PendingQuery first = queries.get(0);
+            if (queries.size() == 1) {
+                searchTransportService.doSendExecuteQuery(first.connection, first.request, first.task, first.listener);
+            } else {
+                final List<ShardSearchTransportRequest> requests = new ArrayList<>(queries.size());
+                final List<SearchTask> tasks = new ArrayList<>(queries.size());
+                final List<SearchActionListener<SearchPhaseResult>> listeners = new ArrayList<>(queries.size());
+                for (PendingQuery query : queries) {
+                    requests.add(query.request);
+                    tasks.add(query.task);
+                    listeners.add(query.listener);
+                }
+                searchTransportService.sendExecuteQueryBatch(first.connection, requests, tasks, parentTask, listeners);
+            }
+        }
+    }
+
+    private static final class PendingQuery {
+        private final Transport.Connection connection;
+        private final ShardSearchTransportRequest request;
+        private final SearchTask task;
+        private final SearchActionListener<SearchPhaseResult> listener;
+
+        PendingQuery(Transport.Connection connection, ShardSearchTransportRequest request, SearchTask task,
+                     SearchActionListener<SearchPhaseResult> listener) {
+            this.connection = connection;
+            this.request = request;
+            this.task = task;
+            this.listener = listener;
+        }
+    }
+}
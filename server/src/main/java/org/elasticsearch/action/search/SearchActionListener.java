@@ -45,6 +45,22 @@ abstract class SearchActionListener<T extends SearchPhaseResult> implements Acti
         innerOnResponse(response);
     }
 
+    SearchShardTarget getSearchShardTarget() {
+        return searchShardTarget;
+    }
+
+    int getRequestIndex() {
+        return requestIndex;
+    }
+
+    /**
+     * Returns the number of shard requests, including this one, that were sent together in a single transport request and
+     * therefore share its round-trip time.
+     */
+    int getBatchSize() {
+        return 1;
+    }
+
     protected void setSearchShardTarget(T response) { // some impls need to override this
         response.setSearchShardTarget(searchShardTarget);
     }
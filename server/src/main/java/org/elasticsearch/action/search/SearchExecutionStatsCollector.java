@@ -20,6 +20,7 @@
 package org.elasticsearch.action.search;
 
 import org.elasticsearch.action.ActionListener;
+import org.elasticsearch.index.shard.ShardId;
 import org.elasticsearch.node.ResponseCollectorService;
 import org.elasticsearch.search.SearchPhaseResult;
 import org.elasticsearch.search.query.QuerySearchResult;
@@ -31,26 +32,38 @@ import java.util.function.BiFunction;
 /**
  * A wrapper of search action listeners (search results) that unwraps the query
  * result to get the piggybacked queue size and service time EWMA, adding those
- * values to the coordinating nodes' {@code ResponseCollectorService}.
+ * values to the coordinating nodes' {@code ResponseCollectorService}. The response
+ * time and the service time reported by the shard are also recorded for the shard
+ * copy that executed the request. When the request was sent as part of a batch, the
+ * round-trip time of the batch is split evenly across its requests.
  */
 public final class SearchExecutionStatsCollector implements ActionListener<SearchPhaseResult> {
 
     private final ActionListener<SearchPhaseResult> listener;
     private final String nodeId;
+    private final ShardId shardId;
     private final ResponseCollectorService collector;
+    private final int batchSize;
     private final long startNanos;
 
     SearchExecutionStatsCollector(ActionListener<SearchPhaseResult> listener,
                                   ResponseCollectorService collector,
-                                  String nodeId) {
+                                  String nodeId,
+                                  ShardId shardId,
+                                  int batchSize) {
+        assert batchSize > 0 : "batch size must be positive";
         this.listener = Objects.requireNonNull(listener, "listener cannot be null");
         this.collector = Objects.requireNonNull(collector, "response collector cannot be null");
         this.startNanos = System.nanoTime();
         this.nodeId = nodeId;
+        this.shardId = shardId;
+        this.batchSize = batchSize;
     }
 
     public static BiFunction<Transport.Connection, SearchActionListener, ActionListener> makeWrapper(ResponseCollectorService service) {
-        return (connection, originalListener) -> new SearchExecutionStatsCollector(originalListener, service, connection.getNode().getId());
+        return (connection, originalListener) -> new SearchExecutionStatsCollector(originalListener, service, connection.getNode().getId(),
+            originalListener.getSearchShardTarget() == null ? null : originalListener.getSearchShardTarget().getShardId(),
+            originalListener.getBatchSize());
     }
 
     @Override
@@ -59,11 +72,15 @@ public final class SearchExecutionStatsCollector implements ActionListener<Searc
         if (nodeId != null && queryResult != null) {
             final long serviceTimeEWMA = queryResult.serviceTimeEWMA();
             final int queueSize = queryResult.nodeQueueSize();
-            final long responseDuration = System.nanoTime() - startNanos;
+            // batched requests share a single round-trip, so each of them only accounts for its share of it
+            final long responseDuration = (System.nanoTime() - startNanos) / batchSize;
             // EWMA/queue size may be -1 if the query node doesn't support capturing it
             if (serviceTimeEWMA > 0 && queueSize >= 0) {
                 collector.addNodeStatistics(nodeId, queueSize, responseDuration, serviceTimeEWMA);
             }
+            if (shardId != null) {
+                collector.addShardCopyStatistics(nodeId, shardId, responseDuration, queryResult.shardServiceTimeNanos());
+            }
         }
         listener.onResponse(response);
     }
@@ -33,8 +33,18 @@ import org.apache.lucene.search.TopFieldDocs;
 import org.apache.lucene.search.TotalHits;
 import org.apache.lucene.search.TotalHits.Relation;
 import org.apache.lucene.search.grouping.CollapseTopFieldDocs;
+import org.elasticsearch.common.breaker.CircuitBreaker;
+import org.elasticsearch.common.breaker.CircuitBreakingException;
 import org.elasticsearch.common.collect.HppcMaps;
+import org.elasticsearch.common.io.stream.CountingStreamOutput;
 import org.elasticsearch.common.lucene.search.TopDocsAndMaxScore;
+import org.elasticsearch.common.settings.ClusterSettings;
+import org.elasticsearch.common.settings.Setting;
+import org.elasticsearch.common.settings.Setting.Property;
+import org.elasticsearch.common.settings.Settings;
+import org.elasticsearch.common.unit.ByteSizeValue;
+import org.elasticsearch.indices.breaker.CircuitBreakerService;
+import org.elasticsearch.indices.breaker.NoneCircuitBreakerService;
 import org.elasticsearch.search.DocValueFormat;
 import org.elasticsearch.search.SearchHit;
 import org.elasticsearch.search.SearchHits;
@@ -55,6 +65,8 @@ import org.elasticsearch.search.suggest.Suggest;
 import org.elasticsearch.search.suggest.Suggest.Suggestion;
 import org.elasticsearch.search.suggest.completion.CompletionSuggestion;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
@@ -69,7 +81,17 @@ public final class SearchPhaseController {
 
     private static final ScoreDoc[] EMPTY_DOCS = new ScoreDoc[0];
 
+    /**
+     * The maximum number of bytes of shard aggregation results that the coordinating node buffers per search request before
+     * it partially reduces them, regardless of the request's <code>batched_reduce_size</code>. A value of <code>0</code>
+     * disables the byte based partial reduce.
+     */
+    public static final Setting<ByteSizeValue> MAX_REDUCE_BUFFER_SIZE_SETTING =
+        Setting.memorySizeSetting("search.max_reduce_buffer_size", "1%", Property.Dynamic, Property.NodeScope);
+
     private final Function<Boolean, ReduceContext> reduceContextFunction;
+    private final CircuitBreakerService circuitBreakerService;
+    private volatile long maxReduceBufferBytes;
 
     /**
      * Constructor.
@@ -77,6 +99,25 @@ public final class SearchPhaseController {
      */
     public SearchPhaseController(Function<Boolean, ReduceContext> reduceContextFunction) {
         this.reduceContextFunction = reduceContextFunction;
+        this.circuitBreakerService = new NoneCircuitBreakerService();
+        this.maxReduceBufferBytes = 0;
+    }
+
+    /**
+     * Constructor.
+     * @param reduceContextFunction A function that builds a context for the reduce of an {@link InternalAggregation}
+     * @param circuitBreakerService the service providing the request circuit breaker that buffered aggregation results are accounted on
+     */
+    public SearchPhaseController(Function<Boolean, ReduceContext> reduceContextFunction, CircuitBreakerService circuitBreakerService,
+                                 Settings settings, ClusterSettings clusterSettings) {
+        this.reduceContextFunction = reduceContextFunction;
+        this.circuitBreakerService = circuitBreakerService;
+        this.maxReduceBufferBytes = MAX_REDUCE_BUFFER_SIZE_SETTING.get(settings).getBytes();
+        clusterSettings.addSettingsUpdateConsumer(MAX_REDUCE_BUFFER_SIZE_SETTING, this::setMaxReduceBufferSize);
+    }
+
+    private void setMaxReduceBufferSize(ByteSizeValue maxReduceBufferSize) {
+        this.maxReduceBufferBytes = maxReduceBufferSize.getBytes();
     }
 
     public AggregatedDfs aggregateDfs(Collection<DfsSearchResult> results) {
@@ -401,7 +442,7 @@ public final class SearchPhaseController {
     public ReducedQueryPhase reducedQueryPhase(Collection<? extends SearchPhaseResult> queryResults,
                                                boolean isScrollRequest, int trackTotalHitsUpTo, boolean performFinalReduce) {
         return reducedQueryPhase(queryResults, null, new ArrayList<>(), new TopDocsStats(trackTotalHitsUpTo),
-            0, isScrollRequest, performFinalReduce);
+            0, 0, isScrollRequest, performFinalReduce);
     }
 
     /**
@@ -412,19 +453,20 @@ public final class SearchPhaseController {
      * @param bufferedTopDocs a list of pre-collected / buffered top docs. if this list is non-null all top docs have been consumed
      *                    from all non-null query results.
      * @param numReducePhases the number of non-final reduce phases applied to the query results.
+     * @param peakBufferedBytes the peak number of bytes of buffered aggregations between non-final reduce phases.
      * @see QuerySearchResult#consumeAggs()
      * @see QuerySearchResult#consumeProfileResult()
      */
     private ReducedQueryPhase reducedQueryPhase(Collection<? extends SearchPhaseResult> queryResults,
                                                 List<InternalAggregations> bufferedAggs, List<TopDocs> bufferedTopDocs,
-                                                TopDocsStats topDocsStats, int numReducePhases, boolean isScrollRequest,
-                                                boolean performFinalReduce) {
+                                                TopDocsStats topDocsStats, int numReducePhases, long peakBufferedBytes,
+                                                boolean isScrollRequest, boolean performFinalReduce) {
         assert numReducePhases >= 0 : "num reduce phases must be >= 0 but was: " + numReducePhases;
         numReducePhases++; // increment for this phase
         if (queryResults.isEmpty()) { // early terminate we have nothing to reduce
             final TotalHits totalHits = topDocsStats.getTotalHits();
             return new ReducedQueryPhase(totalHits, topDocsStats.fetchHits, topDocsStats.getMaxScore(),
-                false, null, null, null, null, SortedTopDocs.EMPTY, null, numReducePhases, 0, 0, true);
+                false, null, null, null, null, SortedTopDocs.EMPTY, null, numReducePhases, peakBufferedBytes, 0, 0, true);
         }
         final QuerySearchResult firstResult = queryResults.stream().findFirst().get().queryResult();
         final boolean hasSuggest = firstResult.suggest() != null;
@@ -493,7 +535,7 @@ public final class SearchPhaseController {
         final TotalHits totalHits = topDocsStats.getTotalHits();
         return new ReducedQueryPhase(totalHits, topDocsStats.fetchHits, topDocsStats.getMaxScore(),
             topDocsStats.timedOut, topDocsStats.terminatedEarly, reducedSuggest, aggregations, shardResults, sortedTopDocs,
-            firstResult.sortValueFormats(), numReducePhases, size, from, false);
+            firstResult.sortValueFormats(), numReducePhases, peakBufferedBytes, size, from, false);
     }
 
     public static final class ReducedQueryPhase {
@@ -515,6 +557,8 @@ public final class SearchPhaseController {
         final SearchProfileShardResults shardResults;
         // the number of reduces phases
         final int numReducePhases;
+        // the peak number of bytes of aggregations buffered between partial reduces or 0 if not tracked
+        final long peakBufferedBytes;
         //encloses info about the merged top docs, the sort fields used to sort the score docs etc.
         final SortedTopDocs sortedTopDocs;
         // the size of the top hits to return
@@ -528,7 +572,8 @@ public final class SearchPhaseController {
 
         ReducedQueryPhase(TotalHits totalHits, long fetchHits, float maxScore, boolean timedOut, Boolean terminatedEarly, Suggest suggest,
                           InternalAggregations aggregations, SearchProfileShardResults shardResults, SortedTopDocs sortedTopDocs,
-                          DocValueFormat[] sortValueFormats, int numReducePhases, int size, int from, boolean isEmptyResult) {
+                          DocValueFormat[] sortValueFormats, int numReducePhases, long peakBufferedBytes, int size, int from,
+                          boolean isEmptyResult) {
             if (numReducePhases <= 0) {
                 throw new IllegalArgumentException("at least one reduce phase must have been applied but was: " + numReducePhases);
             }
@@ -541,6 +586,7 @@ public final class SearchPhaseController {
             this.aggregations = aggregations;
             this.shardResults = shardResults;
             this.numReducePhases = numReducePhases;
+            this.peakBufferedBytes = peakBufferedBytes;
             this.sortedTopDocs = sortedTopDocs;
             this.size = size;
             this.from = from;
@@ -553,7 +599,8 @@ public final class SearchPhaseController {
          * @see #merge(boolean, ReducedQueryPhase, Collection, IntFunction)
          */
         public InternalSearchResponse buildResponse(SearchHits hits) {
-            return new InternalSearchResponse(hits, aggregations, suggest, shardResults, timedOut, terminatedEarly, numReducePhases);
+            return new InternalSearchResponse(hits, aggregations, suggest, shardResults, timedOut, terminatedEarly, numReducePhases,
+                peakBufferedBytes);
         }
     }
 
@@ -561,7 +608,9 @@ public final class SearchPhaseController {
      * A {@link InitialSearchPhase.ArraySearchPhaseResults} implementation
      * that incrementally reduces aggregation results as shard results are consumed.
      * This implementation can be configured to batch up a certain amount of results and only reduce them
-     * iff the buffer is exhausted.
+     * iff the buffer is exhausted or, if a maximum reduce buffer size is configured, once the estimated size of the
+     * buffered aggregations would exceed it. Buffered aggregations are accounted on the request circuit breaker in the
+     * latter case, with the size of the shard responses on the wire when they come from remote nodes.
      */
     static final class QueryPhaseResultConsumer extends InitialSearchPhase.ArraySearchPhaseResults<SearchPhaseResult> {
         private final InternalAggregations[] aggsBuffer;
@@ -574,6 +623,12 @@ public final class SearchPhaseController {
         private int numReducePhases = 0;
         private final TopDocsStats topDocsStats;
         private final boolean performFinalReduce;
+        private final CircuitBreaker circuitBreaker;
+        private final long maxBufferedBytes;
+        private long bufferedBytes;
+        private long peakBufferedBytes;
+        private volatile CircuitBreakingException failure;
+        private boolean closed;
 
         /**
          * Creates a new {@link QueryPhaseResultConsumer}
@@ -581,16 +636,22 @@ public final class SearchPhaseController {
          * @param expectedResultSize the expected number of query results. Corresponds to the number of shards queried
          * @param bufferSize the size of the reduce buffer. if the buffer size is smaller than the number of expected results
          *                   the buffer is used to incrementally reduce aggregation results before all shards responded.
+         * @param maxBufferedBytes the maximum estimated size of the buffered aggregations before they are incrementally reduced,
+         *                         or <code>0</code> to only reduce once the buffer is exhausted.
          */
         private QueryPhaseResultConsumer(SearchPhaseController controller, int expectedResultSize, int bufferSize,
-                                         boolean hasTopDocs, boolean hasAggs, int trackTotalHitsUpTo, boolean performFinalReduce) {
+                                         boolean hasTopDocs, boolean hasAggs, int trackTotalHitsUpTo, boolean performFinalReduce,
+                                         long maxBufferedBytes) {
             super(expectedResultSize);
             if (expectedResultSize != 1 && bufferSize < 2) {
                 throw new IllegalArgumentException("buffer size must be >= 2 if there is more than one expected result");
             }
-            if (expectedResultSize <= bufferSize) {
+            if (maxBufferedBytes <= 0 && expectedResultSize <= bufferSize) {
                 throw new IllegalArgumentException("buffer size must be less than the expected result size");
             }
+            if (expectedResultSize < bufferSize) {
+                throw new IllegalArgumentException("buffer size must be less than or equal to the expected result size");
+            }
             if (hasAggs == false && hasTopDocs == false) {
                 throw new IllegalArgumentException("either aggs or top docs must be present");
             }
@@ -603,36 +664,46 @@ public final class SearchPhaseController {
             this.bufferSize = bufferSize;
             this.topDocsStats = new TopDocsStats(trackTotalHitsUpTo);
             this.performFinalReduce = performFinalReduce;
+            this.maxBufferedBytes = hasAggs ? Math.max(0, maxBufferedBytes) : 0;
+            this.circuitBreaker = controller.circuitBreakerService.getBreaker(CircuitBreaker.REQUEST);
         }
 
         @Override
         public void consumeResult(SearchPhaseResult result) {
             super.consumeResult(result);
             QuerySearchResult queryResult = result.queryResult();
-            consumeInternal(queryResult);
-        }
-
-        private synchronized void consumeInternal(QuerySearchResult querySearchResult) {
-            if (index == bufferSize) {
-                if (hasAggs) {
-                    ReduceContext reduceContext = controller.reduceContextFunction.apply(false);
-                    InternalAggregations reducedAggs = InternalAggregations.reduce(Arrays.asList(aggsBuffer), reduceContext);
-                    Arrays.fill(aggsBuffer, null);
-                    aggsBuffer[0] = reducedAggs;
+            consumeInternal(queryResult, result.serializedSize());
+        }
+
+        private synchronized void consumeInternal(QuerySearchResult querySearchResult, int serializedSize) {
+            InternalAggregations aggs = hasAggs ? (InternalAggregations) querySearchResult.consumeAggs() : null;
+            long aggsSize = 0;
+            if (maxBufferedBytes > 0) {
+                // the size of the shard response on the wire is free and bounds the size of its aggregations, only the results of
+                // local shards, which never went through the transport layer, need to be measured
+                aggsSize = aggs == null ? 0 : serializedSize >= 0 ? serializedSize : estimateSize(aggs);
+                if (index == bufferSize || (index > 1 && bufferedBytes + aggsSize > maxBufferedBytes)) {
+                    partialReduce(querySearchResult);
                 }
-                if (hasTopDocs) {
-                    TopDocs reducedTopDocs = mergeTopDocs(Arrays.asList(topDocsBuffer),
-                        // we have to merge here in the same way we collect on a shard
-                        querySearchResult.from() + querySearchResult.size(), 0);
-                    Arrays.fill(topDocsBuffer, null);
-                    topDocsBuffer[0] = reducedTopDocs;
+                if (failure == null && closed == false) {
+                    try {
+                        circuitBreaker.addEstimateBytesAndMaybeBreak(aggsSize, "<reduce_aggs>");
+                        bufferedBytes += aggsSize;
+                        peakBufferedBytes = Math.max(peakBufferedBytes, bufferedBytes);
+                    } catch (CircuitBreakingException e) {
+                        // we fail the search on the final reduce, there is no point in holding on to any more aggregations
+                        failure = e;
+                    }
+                }
+                if (failure != null) {
+                    aggs = null;
                 }
-                numReducePhases++;
-                index = 1;
+            } else if (index == bufferSize) {
+                partialReduce(querySearchResult);
             }
             final int i = index++;
             if (hasAggs) {
-                aggsBuffer[i] = (InternalAggregations) querySearchResult.consumeAggs();
+                aggsBuffer[i] = aggs;
             }
             if (hasTopDocs) {
                 final TopDocsAndMaxScore topDocs = querySearchResult.consumeTopDocs(); // can't be null
@@ -642,6 +713,48 @@ public final class SearchPhaseController {
             }
         }
 
+        private void partialReduce(QuerySearchResult querySearchResult) {
+            if (hasAggs) {
+                if (failure == null) {
+                    ReduceContext reduceContext = controller.reduceContextFunction.apply(false);
+                    InternalAggregations reducedAggs = InternalAggregations.reduce(Arrays.asList(aggsBuffer).subList(0, index),
+                        reduceContext);
+                    Arrays.fill(aggsBuffer, null);
+                    aggsBuffer[0] = reducedAggs;
+                    if (maxBufferedBytes > 0 && closed == false) {
+                        // the reduced aggregations replace the buffered ones so we only keep the former accounted, measuring them
+                        // once per partial reduce costs less than the reduce itself
+                        long reducedSize = estimateSize(reducedAggs);
+                        circuitBreaker.addWithoutBreaking(reducedSize - bufferedBytes);
+                        bufferedBytes = reducedSize;
+                    }
+                } else {
+                    Arrays.fill(aggsBuffer, null);
+                }
+            }
+            if (hasTopDocs) {
+                TopDocs reducedTopDocs = mergeTopDocs(Arrays.asList(topDocsBuffer).subList(0, index),
+                    // we have to merge here in the same way we collect on a shard
+                    querySearchResult.from() + querySearchResult.size(), 0);
+                Arrays.fill(topDocsBuffer, null);
+                topDocsBuffer[0] = reducedTopDocs;
+            }
+            numReducePhases++;
+            index = 1;
+        }
+
+        private static long estimateSize(InternalAggregations aggregations) {
+            if (aggregations == null) {
+                return 0;
+            }
+            try (CountingStreamOutput out = new CountingStreamOutput()) {
+                aggregations.writeTo(out);
+                return out.size();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+
         private synchronized List<InternalAggregations> getRemainingAggs() {
             return hasAggs ? Arrays.asList(aggsBuffer).subList(0, index) : null;
         }
@@ -652,8 +765,24 @@ public final class SearchPhaseController {
 
         @Override
         public ReducedQueryPhase reduce() {
-            return controller.reducedQueryPhase(results.asList(), getRemainingAggs(), getRemainingTopDocs(), topDocsStats,
-                numReducePhases, false, performFinalReduce);
+            try {
+                if (failure != null) {
+                    throw failure;
+                }
+                return controller.reducedQueryPhase(results.asList(), getRemainingAggs(), getRemainingTopDocs(), topDocsStats,
+                    numReducePhases, peakBufferedBytes, false, performFinalReduce);
+            } finally {
+                close();
+            }
+        }
+
+        @Override
+        public synchronized void close() {
+            closed = true;
+            if (bufferedBytes != 0) {
+                circuitBreaker.addWithoutBreaking(-bufferedBytes);
+                bufferedBytes = 0;
+            }
         }
 
         /**
@@ -664,6 +793,14 @@ public final class SearchPhaseController {
         }
 
         int getNumReducePhases() { return numReducePhases; }
+
+        synchronized long getBufferedBytes() {
+            return bufferedBytes;
+        }
+
+        synchronized long getPeakBufferedBytes() {
+            return peakBufferedBytes;
+        }
     }
 
     private int resolveTrackTotalHits(SearchRequest request) {
@@ -684,12 +821,17 @@ public final class SearchPhaseController {
         final boolean hasAggs = source != null && source.aggregations() != null;
         final boolean hasTopDocs = source == null || source.size() != 0;
         final int trackTotalHitsUpTo = resolveTrackTotalHits(request);
+        final long maxBufferedBytes = maxReduceBufferBytes;
         if (isScrollRequest == false && (hasAggs || hasTopDocs)) {
             // no incremental reduce if scroll is used - we only hit a single shard or sometimes more...
             if (request.getBatchedReduceSize() < numShards) {
                 // only use this if there are aggs and if there are more shards than we should reduce at once
                 return new QueryPhaseResultConsumer(this, numShards, request.getBatchedReduceSize(), hasTopDocs, hasAggs,
-                    trackTotalHitsUpTo, request.isFinalReduce());
+                    trackTotalHitsUpTo, request.isFinalReduce(), maxBufferedBytes);
+            } else if (hasAggs && numShards > 1 && maxBufferedBytes > 0) {
+                // all results fit into the buffer but we might still need to reduce early if the aggregations get too large
+                return new QueryPhaseResultConsumer(this, numShards, numShards, hasTopDocs, hasAggs,
+                    trackTotalHitsUpTo, request.isFinalReduce(), maxBufferedBytes);
             }
         }
         return new InitialSearchPhase.ArraySearchPhaseResults<SearchPhaseResult>(numShards) {
@@ -261,6 +261,18 @@ public final class SearchRequest extends ActionRequest implements IndicesRequest
                     addValidationError("[request_cache] cannot be used in a scroll context", validationException);
             }
         }
+        if (source != null && source.pointInTimeBuilder() != null) {
+            if (scroll) {
+                validationException =
+                    addValidationError("using [point in time] is not allowed in a scroll context", validationException);
+            }
+            if (indices.length > 0) {
+                validationException = addValidationError("[indices] cannot be used with point in time", validationException);
+            }
+            if (routing != null) {
+                validationException = addValidationError("[routing] cannot be used with point in time", validationException);
+            }
+        }
         return validationException;
     }
 
@@ -65,6 +65,7 @@ public class SearchResponse extends ActionResponse implements StatusToXContentOb
     private static final ParseField TIMED_OUT = new ParseField("timed_out");
     private static final ParseField TERMINATED_EARLY = new ParseField("terminated_early");
     private static final ParseField NUM_REDUCE_PHASES = new ParseField("num_reduce_phases");
+    private static final ParseField PEAK_REDUCE_BUFFER_SIZE_IN_BYTES = new ParseField("peak_reduce_buffer_size_in_bytes");
 
     private SearchResponseSections internalResponse;
 
@@ -140,6 +141,14 @@ public class SearchResponse extends ActionResponse implements StatusToXContentOb
         return internalResponse.getNumReducePhases();
     }
 
+    /**
+     * Returns the peak number of bytes of shard aggregation results buffered on the coordinating node between
+     * partial reduces, or <code>0</code> if no byte accounting took place.
+     */
+    public long getPeakReduceBufferBytes() {
+        return internalResponse.getPeakReduceBufferBytes();
+    }
+
     /**
      * How long the search took.
      */
@@ -236,6 +245,9 @@ public class SearchResponse extends ActionResponse implements StatusToXContentOb
         }
         if (getNumReducePhases() != 1) {
             builder.field(NUM_REDUCE_PHASES.getPreferredName(), getNumReducePhases());
+            if (getPeakReduceBufferBytes() > 0) {
+                builder.field(PEAK_REDUCE_BUFFER_SIZE_IN_BYTES.getPreferredName(), getPeakReduceBufferBytes());
+            }
         }
         RestActions.buildBroadcastShardsHeader(builder, params, getTotalShards(), getSuccessfulShards(), getSkippedShards(),
             getFailedShards(), getShardFailures());
@@ -260,6 +272,7 @@ public class SearchResponse extends ActionResponse implements StatusToXContentOb
         boolean timedOut = false;
         Boolean terminatedEarly = null;
         int numReducePhases = 1;
+        long peakReduceBufferBytes = 0;
         long tookInMillis = -1;
         int successfulShards = -1;
         int totalShards = -1;
@@ -281,6 +294,8 @@ public class SearchResponse extends ActionResponse implements StatusToXContentOb
                     terminatedEarly = parser.booleanValue();
                 } else if (NUM_REDUCE_PHASES.match(currentFieldName, parser.getDeprecationHandler())) {
                     numReducePhases = parser.intValue();
+                } else if (PEAK_REDUCE_BUFFER_SIZE_IN_BYTES.match(currentFieldName, parser.getDeprecationHandler())) {
+                    peakReduceBufferBytes = parser.longValue();
                 } else {
                     parser.skipChildren();
                 }
@@ -349,7 +364,7 @@ public class SearchResponse extends ActionResponse implements StatusToXContentOb
             }
         }
         SearchResponseSections searchResponseSections = new SearchResponseSections(hits, aggs, suggest, timedOut, terminatedEarly,
-                profile, numReducePhases);
+                profile, numReducePhases, peakReduceBufferBytes);
         return new SearchResponse(searchResponseSections, scrollId, totalShards, successfulShards, skippedShards, tookInMillis,
                 failures.toArray(ShardSearchFailure.EMPTY_ARRAY), clusters);
     }
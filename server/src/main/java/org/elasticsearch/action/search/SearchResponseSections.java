@@ -49,9 +49,15 @@ public class SearchResponseSections implements ToXContentFragment {
     protected final boolean timedOut;
     protected final Boolean terminatedEarly;
     protected final int numReducePhases;
+    protected final long peakReduceBufferBytes;
 
     public SearchResponseSections(SearchHits hits, Aggregations aggregations, Suggest suggest, boolean timedOut, Boolean terminatedEarly,
                                   SearchProfileShardResults profileResults,  int numReducePhases) {
+        this(hits, aggregations, suggest, timedOut, terminatedEarly, profileResults, numReducePhases, 0);
+    }
+
+    public SearchResponseSections(SearchHits hits, Aggregations aggregations, Suggest suggest, boolean timedOut, Boolean terminatedEarly,
+                                  SearchProfileShardResults profileResults, int numReducePhases, long peakReduceBufferBytes) {
         this.hits = hits;
         this.aggregations = aggregations;
         this.suggest = suggest;
@@ -59,6 +65,7 @@ public class SearchResponseSections implements ToXContentFragment {
         this.timedOut = timedOut;
         this.terminatedEarly = terminatedEarly;
         this.numReducePhases = numReducePhases;
+        this.peakReduceBufferBytes = peakReduceBufferBytes;
     }
 
     public final boolean timedOut() {
@@ -88,6 +95,14 @@ public class SearchResponseSections implements ToXContentFragment {
         return numReducePhases;
     }
 
+    /**
+     * Returns the peak number of bytes of shard aggregation results that were buffered on the coordinating node
+     * while partially reducing this search response, or <code>0</code> if it wasn't tracked.
+     */
+    public final long getPeakReduceBufferBytes() {
+        return peakReduceBufferBytes;
+    }
+
     /**
      * Returns the profile results for this search response (including all shards).
      * An empty map is returned if profiling was not enabled
@@ -30,7 +30,10 @@ import org.elasticsearch.common.Nullable;
 import org.elasticsearch.common.io.stream.StreamInput;
 import org.elasticsearch.common.io.stream.StreamOutput;
 import org.elasticsearch.common.io.stream.Writeable;
+import org.elasticsearch.common.unit.TimeValue;
 import org.elasticsearch.common.util.concurrent.ConcurrentCollections;
+import org.elasticsearch.common.util.concurrent.CountDown;
+import org.elasticsearch.index.shard.ShardId;
 import org.elasticsearch.search.SearchPhaseResult;
 import org.elasticsearch.search.SearchService;
 import org.elasticsearch.search.dfs.DfsSearchResult;
@@ -45,6 +48,9 @@ import org.elasticsearch.search.internal.ShardSearchTransportRequest;
 import org.elasticsearch.search.query.QuerySearchRequest;
 import org.elasticsearch.search.query.QuerySearchResult;
 import org.elasticsearch.search.query.ScrollQuerySearchResult;
+import org.elasticsearch.tasks.Task;
+import org.elasticsearch.tasks.TaskId;
+import org.elasticsearch.tasks.TaskManager;
 import org.elasticsearch.threadpool.ThreadPool;
 import org.elasticsearch.transport.RemoteClusterService;
 import org.elasticsearch.transport.Transport;
@@ -57,8 +63,12 @@ import org.elasticsearch.transport.TransportService;
 
 import java.io.IOException;
 import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.Objects;
 import java.util.function.BiFunction;
 
 /**
@@ -72,16 +82,20 @@ public class SearchTransportService {
     public static final String CLEAR_SCROLL_CONTEXTS_ACTION_NAME = "indices:data/read/search[clear_scroll_contexts]";
     public static final String DFS_ACTION_NAME = "indices:data/read/search[phase/dfs]";
     public static final String QUERY_ACTION_NAME = "indices:data/read/search[phase/query]";
+    public static final String QUERY_BATCH_ACTION_NAME = "indices:data/read/search[phase/query/batch]";
     public static final String QUERY_ID_ACTION_NAME = "indices:data/read/search[phase/query/id]";
     public static final String QUERY_SCROLL_ACTION_NAME = "indices:data/read/search[phase/query/scroll]";
     public static final String QUERY_FETCH_SCROLL_ACTION_NAME = "indices:data/read/search[phase/query+fetch/scroll]";
     public static final String FETCH_ID_SCROLL_ACTION_NAME = "indices:data/read/search[phase/fetch/id/scroll]";
     public static final String FETCH_ID_ACTION_NAME = "indices:data/read/search[phase/fetch/id]";
     public static final String QUERY_CAN_MATCH_NAME = "indices:data/read/search[can_match]";
+    public static final String OPEN_POINT_IN_TIME_ACTION_NAME = "indices:data/read/search[open_point_in_time]";
+    public static final String FREE_POINT_IN_TIME_ACTION_NAME = "indices:data/read/search[free_point_in_time]";
 
     private final TransportService transportService;
     private final BiFunction<Transport.Connection, SearchActionListener, ActionListener> responseWrapper;
     private final Map<String, Long> clientConnections = ConcurrentCollections.newConcurrentMapWithAggressiveConcurrency();
+    private final Map<TaskId, QueryPhaseBatcher> queryPhaseBatchers = ConcurrentCollections.newConcurrentMap();
 
     public SearchTransportService(TransportService transportService,
                                   BiFunction<Transport.Connection, SearchActionListener, ActionListener> responseWrapper) {
@@ -109,6 +123,18 @@ public class SearchTransportService {
             TransportRequestOptions.EMPTY, new ActionListenerResponseHandler<>(listener, SearchFreeContextResponse::new));
     }
 
+    public void sendOpenPointInTime(Transport.Connection connection, ShardOpenPointInTimeRequest request,
+                                    ActionListener<ShardOpenPointInTimeResponse> listener) {
+        transportService.sendRequest(connection, OPEN_POINT_IN_TIME_ACTION_NAME, request, TransportRequestOptions.EMPTY,
+            new ActionListenerResponseHandler<>(listener, ShardOpenPointInTimeResponse::new));
+    }
+
+    public void sendFreePointInTime(Transport.Connection connection, long pointInTimeId,
+                                    ActionListener<SearchFreeContextResponse> listener) {
+        transportService.sendRequest(connection, FREE_POINT_IN_TIME_ACTION_NAME, new ScrollFreeContextRequest(pointInTimeId),
+            TransportRequestOptions.EMPTY, new ActionListenerResponseHandler<>(listener, SearchFreeContextResponse::new));
+    }
+
     public void sendCanMatch(Transport.Connection connection, final ShardSearchTransportRequest request, SearchTask task, final
                             ActionListener<SearchService.CanMatchResponse> listener) {
         transportService.sendChildRequest(connection, QUERY_CAN_MATCH_NAME, request, task,
@@ -128,6 +154,15 @@ public class SearchTransportService {
 
     public void sendExecuteQuery(Transport.Connection connection, final ShardSearchTransportRequest request, SearchTask task,
                                  final SearchActionListener<SearchPhaseResult> listener) {
+        final QueryPhaseBatcher batcher = task.getParentTaskId().isSet() ? queryPhaseBatchers.get(task.getParentTaskId()) : null;
+        if (batcher != null && batcher.add(connection, request, task, listener)) {
+            return;
+        }
+        doSendExecuteQuery(connection, request, task, listener);
+    }
+
+    void doSendExecuteQuery(Transport.Connection connection, final ShardSearchTransportRequest request, SearchTask task,
+                            final SearchActionListener<SearchPhaseResult> listener) {
         // we optimize this and expect a QueryFetchSearchResult if we only have a single shard in the search request
         // this used to be the QUERY_AND_FETCH which doesn't exist anymore.
         final boolean fetchDocuments = request.numberOfShards() == 1;
@@ -138,6 +173,45 @@ public class SearchTransportService {
                 new ConnectionCountingHandler<>(handler, reader, clientConnections, connection.getNode().getId()));
     }
 
+    /**
+     * Sends the query phase of several search requests that target the same shard copy in a single request. The listener at position
+     * {@code i} is notified with the result of the request at position {@code i}, or with the failure of the whole batch. Each request
+     * is executed as a child of the search task at the same position, so that cancelling a search also cancels its batched request.
+     */
+    void sendExecuteQueryBatch(Transport.Connection connection, List<ShardSearchTransportRequest> requests, List<SearchTask> tasks,
+                               Task parentTask, List<SearchActionListener<SearchPhaseResult>> listeners) {
+        final String localNodeId = transportService.getLocalNode().getId();
+        for (int i = 0; i < requests.size(); i++) {
+            requests.get(i).setParentTask(localNodeId, tasks.get(i).getId());
+        }
+        final List<ActionListener<SearchPhaseResult>> handlers = new ArrayList<>(listeners.size());
+        for (SearchActionListener<SearchPhaseResult> listener : listeners) {
+            @SuppressWarnings("unchecked")
+            final ActionListener<SearchPhaseResult> handler =
+                responseWrapper.apply(connection, new BatchedSearchActionListener<>(listener, listeners.size()));
+            handlers.add(handler);
+        }
+        transportService.sendChildRequest(connection, QUERY_BATCH_ACTION_NAME, new ShardQueryBatchRequest(requests), parentTask,
+            new ConnectionCountingHandler<>(new ActionListener<ShardQueryBatchResponse>() {
+                @Override
+                public void onResponse(ShardQueryBatchResponse response) {
+                    for (int i = 0; i < handlers.size(); i++) {
+                        final Exception failure = response.getFailure(i);
+                        if (failure != null) {
+                            handlers.get(i).onFailure(failure);
+                        } else {
+                            handlers.get(i).onResponse(response.getResult(i));
+                        }
+                    }
+                }
+
+                @Override
+                public void onFailure(Exception e) {
+                    handlers.forEach(handler -> handler.onFailure(e));
+                }
+            }, ShardQueryBatchResponse::new, clientConnections, connection.getNode().getId()));
+    }
+
     public void sendExecuteQuery(Transport.Connection connection, final QuerySearchRequest request, SearchTask task,
                                  final SearchActionListener<QuerySearchResult> listener) {
         transportService.sendChildRequest(connection, QUERY_ID_ACTION_NAME, request, task,
@@ -183,6 +257,30 @@ public class SearchTransportService {
                 new ConnectionCountingHandler<>(listener, MultiSearchResponse::new, clientConnections, connection.getNode().getId()));
     }
 
+    /**
+     * Registers a batcher that buffers the initial query phase requests of the searches whose parent task is {@code parentTaskId}.
+     */
+    void registerQueryPhaseBatcher(TaskId parentTaskId, QueryPhaseBatcher batcher) {
+        final QueryPhaseBatcher previous = queryPhaseBatchers.put(parentTaskId, batcher);
+        assert previous == null : "a batcher is already registered for " + parentTaskId;
+    }
+
+    void unregisterQueryPhaseBatcher(TaskId parentTaskId) {
+        queryPhaseBatchers.remove(parentTaskId);
+    }
+
+    /**
+     * Notifies the batcher of the parent task of the given search, if any, that the search won't send more initial query phase requests.
+     */
+    void onQueryPhaseDispatched(Task task, SearchRequest request) {
+        if (task.getParentTaskId().isSet()) {
+            final QueryPhaseBatcher batcher = queryPhaseBatchers.get(task.getParentTaskId());
+            if (batcher != null) {
+                batcher.onItemDispatched(request);
+            }
+        }
+    }
+
     public RemoteClusterService getRemoteClusterService() {
         return transportService.getRemoteClusterService();
     }
@@ -302,6 +400,242 @@ public class SearchTransportService {
         }
     }
 
+    static class ShardOpenPointInTimeRequest extends TransportRequest implements IndicesRequest {
+        private final ShardId shardId;
+        private final OriginalIndices originalIndices;
+        private final TimeValue keepAlive;
+
+        ShardOpenPointInTimeRequest(ShardId shardId, OriginalIndices originalIndices, TimeValue keepAlive) {
+            this.shardId = shardId;
+            this.originalIndices = originalIndices;
+            this.keepAlive = keepAlive;
+        }
+
+        ShardOpenPointInTimeRequest(StreamInput in) throws IOException {
+            super(in);
+            shardId = ShardId.readShardId(in);
+            originalIndices = OriginalIndices.readOriginalIndices(in);
+            keepAlive = in.readTimeValue();
+        }
+
+        @Override
+        public void writeTo(StreamOutput out) throws IOException {
+            super.writeTo(out);
+            shardId.writeTo(out);
+            OriginalIndices.writeOriginalIndices(originalIndices, out);
+            out.writeTimeValue(keepAlive);
+        }
+
+        public ShardId shardId() {
+            return shardId;
+        }
+
+        public TimeValue keepAlive() {
+            return keepAlive;
+        }
+
+        @Override
+        public String[] indices() {
+            return originalIndices.indices();
+        }
+
+        @Override
+        public IndicesOptions indicesOptions() {
+            return originalIndices.indicesOptions();
+        }
+
+        @Override
+        public void readFrom(StreamInput in) throws IOException {
+            throw new UnsupportedOperationException("usage of Streamable is to be replaced by Writeable");
+        }
+    }
+
+    static class ShardOpenPointInTimeResponse extends TransportResponse {
+        private final long pointInTimeId;
+
+        ShardOpenPointInTimeResponse(long pointInTimeId) {
+            this.pointInTimeId = pointInTimeId;
+        }
+
+        ShardOpenPointInTimeResponse(StreamInput in) throws IOException {
+            super(in);
+            pointInTimeId = in.readLong();
+        }
+
+        long getPointInTimeId() {
+            return pointInTimeId;
+        }
+
+        @Override
+        public void writeTo(StreamOutput out) throws IOException {
+            super.writeTo(out);
+            out.writeLong(pointInTimeId);
+        }
+
+        @Override
+        public void readFrom(StreamInput in) throws IOException {
+            throw new UnsupportedOperationException("usage of Streamable is to be replaced by Writeable");
+        }
+    }
+
+    static class ShardQueryBatchRequest extends TransportRequest implements IndicesRequest {
+        private final List<ShardSearchTransportRequest> requests;
+
+        ShardQueryBatchRequest(List<ShardSearchTransportRequest> requests) {
+            assert requests.isEmpty() == false;
+            this.requests = requests;
+        }
+
+        ShardQueryBatchRequest(StreamInput in) throws IOException {
+            super(in);
+            requests = in.readList(ShardSearchTransportRequest::new);
+        }
+
+        @Override
+        public void writeTo(StreamOutput out) throws IOException {
+            super.writeTo(out);
+            out.writeList(requests);
+        }
+
+        List<ShardSearchTransportRequest> requests() {
+            return requests;
+        }
+
+        @Override
+        public String[] indices() {
+            return requests.stream().map(ShardSearchTransportRequest::indices).filter(Objects::nonNull)
+                .flatMap(Arrays::stream).distinct().toArray(String[]::new);
+        }
+
+        @Override
+        public IndicesOptions indicesOptions() {
+            return requests.get(0).indicesOptions();
+        }
+
+        @Override
+        public Task createTask(long id, String type, String action, TaskId parentTaskId, Map<String, String> headers) {
+            return new SearchTask(id, type, action, getDescription(), parentTaskId, headers);
+        }
+
+        @Override
+        public String getDescription() {
+            return "shardId[" + requests.get(0).shardId() + "], requests[" + requests.size() + "]";
+        }
+
+        @Override
+        public void readFrom(StreamInput in) throws IOException {
+            throw new UnsupportedOperationException("usage of Streamable is to be replaced by Writeable");
+        }
+    }
+
+    static class ShardQueryBatchResponse extends TransportResponse {
+        private static final byte FAILURE = 0;
+        private static final byte QUERY_RESULT = 1;
+        private static final byte QUERY_FETCH_RESULT = 2;
+
+        private final SearchPhaseResult[] results;
+        private final Exception[] failures;
+
+        ShardQueryBatchResponse(int size) {
+            this.results = new SearchPhaseResult[size];
+            this.failures = new Exception[size];
+        }
+
+        ShardQueryBatchResponse(StreamInput in) throws IOException {
+            super(in);
+            final int size = in.readVInt();
+            results = new SearchPhaseResult[size];
+            failures = new Exception[size];
+            for (int i = 0; i < size; i++) {
+                final byte type = in.readByte();
+                switch (type) {
+                    case FAILURE:
+                        failures[i] = in.readException();
+                        break;
+                    case QUERY_RESULT:
+                        results[i] = new QuerySearchResult(in);
+                        break;
+                    case QUERY_FETCH_RESULT:
+                        results[i] = new QueryFetchSearchResult(in);
+                        break;
+                    default:
+                        throw new IllegalStateException("unknown result type [" + type + "]");
+                }
+            }
+        }
+
+        @Override
+        public void writeTo(StreamOutput out) throws IOException {
+            super.writeTo(out);
+            out.writeVInt(results.length);
+            for (int i = 0; i < results.length; i++) {
+                if (failures[i] != null) {
+                    out.writeByte(FAILURE);
+                    out.writeException(failures[i]);
+                } else {
+                    out.writeByte(results[i] instanceof QueryFetchSearchResult ? QUERY_FETCH_RESULT : QUERY_RESULT);
+                    results[i].writeTo(out);
+                }
+            }
+        }
+
+        void setResult(int index, SearchPhaseResult result) {
+            results[index] = result;
+        }
+
+        void setFailure(int index, Exception failure) {
+            failures[index] = failure;
+        }
+
+        SearchPhaseResult getResult(int index) {
+            return results[index];
+        }
+
+        Exception getFailure(int index) {
+            return failures[index];
+        }
+
+        @Override
+        public void readFrom(StreamInput in) throws IOException {
+            throw new UnsupportedOperationException("usage of Streamable is to be replaced by Writeable");
+        }
+    }
+
+    /**
+     * A listener for a shard request that is sent as part of a batch. It delegates to the listener of the request and reports the
+     * size of the batch, so that response collectors do not attribute the round-trip time of the whole batch to each request.
+     */
+    static final class BatchedSearchActionListener<T extends SearchPhaseResult> extends SearchActionListener<T> {
+        private final SearchActionListener<T> delegate;
+        private final int batchSize;
+
+        BatchedSearchActionListener(SearchActionListener<T> delegate, int batchSize) {
+            super(delegate.getSearchShardTarget(), delegate.getRequestIndex());
+            this.delegate = delegate;
+            this.batchSize = batchSize;
+        }
+
+        @Override
+        protected void setSearchShardTarget(T response) {
+            // the delegate sets the shard target
+        }
+
+        @Override
+        protected void innerOnResponse(T response) {
+            delegate.onResponse(response);
+        }
+
+        @Override
+        public void onFailure(Exception e) {
+            delegate.onFailure(e);
+        }
+
+        @Override
+        int getBatchSize() {
+            return batchSize;
+        }
+    }
+
     public static void registerRequestHandler(TransportService transportService, SearchService searchService) {
         transportService.registerRequestHandler(FREE_CONTEXT_SCROLL_ACTION_NAME, ThreadPool.Names.SAME, ScrollFreeContextRequest::new,
             (request, channel, task) -> {
@@ -355,6 +689,57 @@ public class SearchTransportService {
         TransportActionProxy.registerProxyActionWithDynamicResponseType(transportService, QUERY_ACTION_NAME,
             (request) -> ((ShardSearchRequest)request).numberOfShards() == 1 ? QueryFetchSearchResult::new : QuerySearchResult::new);
 
+        transportService.registerRequestHandler(QUERY_BATCH_ACTION_NAME, ThreadPool.Names.SAME, ShardQueryBatchRequest::new,
+            (request, channel, task) -> {
+                final ActionListener<ShardQueryBatchResponse> channelListener =
+                    new ChannelActionListener<>(channel, QUERY_BATCH_ACTION_NAME, request);
+                final TaskManager taskManager = transportService.getTaskManager();
+                final int size = request.requests().size();
+                final ShardQueryBatchResponse response = new ShardQueryBatchResponse(size);
+                final CountDown countDown = new CountDown(size);
+                final List<ShardSearchTransportRequest> requests = new ArrayList<>(size);
+                final List<SearchTask> tasks = new ArrayList<>(size);
+                final List<ActionListener<SearchPhaseResult>> listeners = new ArrayList<>(size);
+                for (int i = 0; i < size; i++) {
+                    final int index = i;
+                    final ActionListener<SearchPhaseResult> listener = new ActionListener<SearchPhaseResult>() {
+                        @Override
+                        public void onResponse(SearchPhaseResult result) {
+                            response.setResult(index, result);
+                            onItemResponse();
+                        }
+
+                        @Override
+                        public void onFailure(Exception e) {
+                            response.setFailure(index, e);
+                            onItemResponse();
+                        }
+
+                        private void onItemResponse() {
+                            if (countDown.countDown()) {
+                                channelListener.onResponse(response);
+                            }
+                        }
+                    };
+                    // each request runs under its own task, a child of the search it belongs to, so that it can be cancelled alone
+                    final ShardSearchTransportRequest itemRequest = request.requests().get(i);
+                    final SearchTask itemTask;
+                    try {
+                        itemTask = (SearchTask) taskManager.register("transport", QUERY_ACTION_NAME, itemRequest);
+                    } catch (Exception e) {
+                        listener.onFailure(e);
+                        continue;
+                    }
+                    requests.add(itemRequest);
+                    tasks.add(itemTask);
+                    listeners.add(ActionListener.runAfter(listener, () -> taskManager.unregister(itemTask)));
+                }
+                if (requests.isEmpty() == false) {
+                    searchService.executeQueryPhase(requests, tasks, listeners);
+                }
+            });
+        TransportActionProxy.registerProxyAction(transportService, QUERY_BATCH_ACTION_NAME, ShardQueryBatchResponse::new);
+
         transportService.registerRequestHandler(QUERY_ID_ACTION_NAME, ThreadPool.Names.SAME, QuerySearchRequest::new,
             (request, channel, task) -> {
                 searchService.executeQueryPhase(request, (SearchTask)task, new ChannelActionListener<>(channel, QUERY_ID_ACTION_NAME,
@@ -396,6 +781,17 @@ public class SearchTransportService {
                 searchService.canMatch(request, new ChannelActionListener<>(channel, QUERY_CAN_MATCH_NAME, request));
             });
         TransportActionProxy.registerProxyAction(transportService, QUERY_CAN_MATCH_NAME, SearchService.CanMatchResponse::new);
+
+        transportService.registerRequestHandler(OPEN_POINT_IN_TIME_ACTION_NAME, ThreadPool.Names.SEARCH, ShardOpenPointInTimeRequest::new,
+            (request, channel, task) -> {
+                long pointInTimeId = searchService.openPointInTime(request.shardId(), request.keepAlive());
+                channel.sendResponse(new ShardOpenPointInTimeResponse(pointInTimeId));
+            });
+        transportService.registerRequestHandler(FREE_POINT_IN_TIME_ACTION_NAME, ThreadPool.Names.SAME, ScrollFreeContextRequest::new,
+            (request, channel, task) -> {
+                boolean freed = searchService.freePointInTime(request.id(), request);
+                channel.sendResponse(new SearchFreeContextResponse(freed));
+            });
     }
 
 
@@ -0,0 +1,104 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.action.search;
+
+import org.apache.logging.log4j.message.ParameterizedMessage;
+import org.elasticsearch.action.ActionListener;
+import org.elasticsearch.action.support.ActionFilters;
+import org.elasticsearch.action.support.HandledTransportAction;
+import org.elasticsearch.cluster.node.DiscoveryNode;
+import org.elasticsearch.cluster.node.DiscoveryNodes;
+import org.elasticsearch.cluster.service.ClusterService;
+import org.elasticsearch.common.inject.Inject;
+import org.elasticsearch.common.util.concurrent.CountDown;
+import org.elasticsearch.tasks.Task;
+import org.elasticsearch.transport.TransportService;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * Releases the searchers that a point in time pins on every shard.
+ */
+public class TransportClosePointInTimeAction extends HandledTransportAction<ClosePointInTimeRequest, ClearScrollResponse> {
+
+    private final ClusterService clusterService;
+    private final SearchTransportService searchTransportService;
+
+    @Inject
+    public TransportClosePointInTimeAction(TransportService transportService, ClusterService clusterService, ActionFilters actionFilters,
+                                           SearchTransportService searchTransportService) {
+        super(ClosePointInTimeAction.NAME, transportService, actionFilters,
+            (Supplier<ClosePointInTimeRequest>) ClosePointInTimeRequest::new);
+        this.clusterService = clusterService;
+        this.searchTransportService = searchTransportService;
+    }
+
+    @Override
+    protected void doExecute(Task task, ClosePointInTimeRequest request, ActionListener<ClearScrollResponse> listener) {
+        final PointInTimeId pointInTimeId;
+        try {
+            pointInTimeId = PointInTimeId.decode(request.getId());
+        } catch (IllegalArgumentException e) {
+            listener.onFailure(e);
+            return;
+        }
+        if (pointInTimeId.shards().isEmpty()) {
+            listener.onResponse(new ClearScrollResponse(true, 0));
+            return;
+        }
+        final DiscoveryNodes nodes = clusterService.state().nodes();
+        final CountDown countDown = new CountDown(pointInTimeId.shards().size());
+        final AtomicInteger numFreed = new AtomicInteger();
+        final AtomicBoolean hasFailed = new AtomicBoolean();
+        for (ScrollIdForNode target : pointInTimeId.shards().values()) {
+            final DiscoveryNode node = nodes.get(target.getNode());
+            final ActionListener<SearchTransportService.SearchFreeContextResponse> freeListener = ActionListener.wrap(
+                response -> {
+                    if (response.isFreed()) {
+                        numFreed.incrementAndGet();
+                    }
+                    if (countDown.countDown()) {
+                        listener.onResponse(new ClearScrollResponse(hasFailed.get() == false, numFreed.get()));
+                    }
+                },
+                e -> {
+                    logger.warn(() -> new ParameterizedMessage("failed to free point in time on node [{}]", target.getNode()), e);
+                    // set the failure marker before counting down so that the last response sees it
+                    hasFailed.set(true);
+                    if (countDown.countDown()) {
+                        listener.onResponse(new ClearScrollResponse(false, numFreed.get()));
+                    }
+                });
+            if (node == null) {
+                // the node left the cluster, and with it the point in time
+                freeListener.onResponse(new SearchTransportService.SearchFreeContextResponse(false));
+                continue;
+            }
+            try {
+                searchTransportService.sendFreePointInTime(searchTransportService.getConnection(null, node), target.getScrollId(),
+                    freeListener);
+            } catch (Exception e) {
+                freeListener.onFailure(e);
+            }
+        }
+    }
+}
@@ -26,11 +26,13 @@ import org.elasticsearch.client.node.NodeClient;
 import org.elasticsearch.cluster.ClusterState;
 import org.elasticsearch.cluster.block.ClusterBlockLevel;
 import org.elasticsearch.cluster.service.ClusterService;
+import org.elasticsearch.common.Nullable;
 import org.elasticsearch.common.inject.Inject;
 import org.elasticsearch.common.settings.Settings;
 import org.elasticsearch.common.util.concurrent.AtomicArray;
 import org.elasticsearch.common.util.concurrent.EsExecutors;
 import org.elasticsearch.tasks.Task;
+import org.elasticsearch.tasks.TaskId;
 import org.elasticsearch.threadpool.ThreadPool;
 import org.elasticsearch.transport.TransportService;
 
@@ -47,27 +49,31 @@ public class TransportMultiSearchAction extends HandledTransportAction<MultiSear
     private final ClusterService clusterService;
     private final LongSupplier relativeTimeProvider;
     private final NodeClient client;
+    private final SearchTransportService searchTransportService;
 
     @Inject
     public TransportMultiSearchAction(Settings settings, ThreadPool threadPool, TransportService transportService,
-                                      ClusterService clusterService, ActionFilters actionFilters, NodeClient client) {
+                                      ClusterService clusterService, ActionFilters actionFilters, NodeClient client,
+                                      SearchTransportService searchTransportService) {
         super(MultiSearchAction.NAME, transportService, actionFilters, MultiSearchRequest::new);
         this.threadPool = threadPool;
         this.clusterService = clusterService;
         this.availableProcessors = EsExecutors.numberOfProcessors(settings);
         this.relativeTimeProvider = System::nanoTime;
         this.client = client;
+        this.searchTransportService = searchTransportService;
     }
 
     TransportMultiSearchAction(ThreadPool threadPool, ActionFilters actionFilters, TransportService transportService,
                                ClusterService clusterService, int availableProcessors,
-                               LongSupplier relativeTimeProvider, NodeClient client) {
+                               LongSupplier relativeTimeProvider, NodeClient client, SearchTransportService searchTransportService) {
         super(MultiSearchAction.NAME, transportService, actionFilters, MultiSearchRequest::new);
         this.threadPool = threadPool;
         this.clusterService = clusterService;
         this.availableProcessors = availableProcessors;
         this.relativeTimeProvider = relativeTimeProvider;
         this.client = client;
+        this.searchTransportService = searchTransportService;
     }
 
     @Override
@@ -92,8 +98,32 @@ public class TransportMultiSearchAction extends HandledTransportAction<MultiSear
         final AtomicArray<MultiSearchResponse.Item> responses = new AtomicArray<>(numRequests);
         final AtomicInteger responseCounter = new AtomicInteger(numRequests);
         int numConcurrentSearches = Math.min(numRequests, maxConcurrentSearches);
+        final QueryPhaseBatcher batcher;
+        final ActionListener<MultiSearchResponse> finalListener;
+        if (request.batchedShardRequests()) {
+            // the searches are executed as children of the multi search task so that their initial query phase requests can be
+            // buffered by the batcher and sent in a single request per shard copy
+            final TaskId parentTaskId = new TaskId(clusterService.localNode().getId(), task.getId());
+            for (SearchRequestSlot slot : searchRequestSlots) {
+                slot.request.setParentTask(parentTaskId);
+            }
+            batcher = new QueryPhaseBatcher(searchTransportService, task);
+            searchTransportService.registerQueryPhaseBatcher(parentTaskId, batcher);
+            finalListener = ActionListener.runAfter(listener, () -> searchTransportService.unregisterQueryPhaseBatcher(parentTaskId));
+            // the searches that are started at once are batched together
+            int i = 0;
+            for (SearchRequestSlot slot : searchRequestSlots) {
+                if (i++ == numConcurrentSearches) {
+                    break;
+                }
+                batcher.onItemStarted(slot.request);
+            }
+        } else {
+            batcher = null;
+            finalListener = listener;
+        }
         for (int i = 0; i < numConcurrentSearches; i++) {
-            executeSearch(searchRequestSlots, responses, responseCounter, listener, relativeStartTime);
+            executeSearch(searchRequestSlots, responses, responseCounter, finalListener, relativeStartTime, batcher);
         }
     }
 
@@ -125,6 +155,16 @@ public class TransportMultiSearchAction extends HandledTransportAction<MultiSear
             final AtomicInteger responseCounter,
             final ActionListener<MultiSearchResponse> listener,
             final long relativeStartTime) {
+        executeSearch(requests, responses, responseCounter, listener, relativeStartTime, null);
+    }
+
+    private void executeSearch(
+            final Queue<SearchRequestSlot> requests,
+            final AtomicArray<MultiSearchResponse.Item> responses,
+            final AtomicInteger responseCounter,
+            final ActionListener<MultiSearchResponse> listener,
+            final long relativeStartTime,
+            @Nullable final QueryPhaseBatcher batcher) {
         SearchRequestSlot request = requests.poll();
         if (request == null) {
             /*
@@ -145,6 +185,9 @@ public class TransportMultiSearchAction extends HandledTransportAction<MultiSear
          * when we handle the response rather than going recursive, we fork to another thread, otherwise we recurse.
          */
         final Thread thread = Thread.currentThread();
+        if (batcher != null) {
+            batcher.onItemStarted(request.request);
+        }
         client.search(request.request, new ActionListener<SearchResponse>() {
             @Override
             public void onResponse(final SearchResponse searchResponse) {
@@ -157,6 +200,10 @@ public class TransportMultiSearchAction extends HandledTransportAction<MultiSear
             }
 
             private void handleResponse(final int responseSlot, final MultiSearchResponse.Item item) {
+                if (batcher != null) {
+                    // the search may have failed before it could dispatch its shard requests
+                    batcher.onItemDispatched(request.request);
+                }
                 responses.set(responseSlot, item);
                 if (responseCounter.decrementAndGet() == 0) {
                     assert requests.isEmpty();
@@ -165,10 +212,10 @@ public class TransportMultiSearchAction extends HandledTransportAction<MultiSear
                     if (thread == Thread.currentThread()) {
                         // we are on the same thread, we need to fork to another thread to avoid recursive stack overflow on a single thread
                         threadPool.generic()
-                                .execute(() -> executeSearch(requests, responses, responseCounter, listener, relativeStartTime));
+                                .execute(() -> executeSearch(requests, responses, responseCounter, listener, relativeStartTime, batcher));
                     } else {
                         // we are on a different thread (we went asynchronous), it's safe to recurse
-                        executeSearch(requests, responses, responseCounter, listener, relativeStartTime);
+                        executeSearch(requests, responses, responseCounter, listener, relativeStartTime, batcher);
                     }
                 }
             }
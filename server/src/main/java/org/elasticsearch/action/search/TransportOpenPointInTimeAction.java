@@ -0,0 +1,153 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.action.search;
+
+import org.apache.logging.log4j.message.ParameterizedMessage;
+import org.elasticsearch.action.ActionListener;
+import org.elasticsearch.action.NoShardAvailableActionException;
+import org.elasticsearch.action.OriginalIndices;
+import org.elasticsearch.action.search.SearchTransportService.ShardOpenPointInTimeRequest;
+import org.elasticsearch.action.search.SearchTransportService.ShardOpenPointInTimeResponse;
+import org.elasticsearch.action.support.ActionFilters;
+import org.elasticsearch.action.support.HandledTransportAction;
+import org.elasticsearch.cluster.ClusterState;
+import org.elasticsearch.cluster.block.ClusterBlockLevel;
+import org.elasticsearch.cluster.metadata.IndexNameExpressionResolver;
+import org.elasticsearch.cluster.node.DiscoveryNode;
+import org.elasticsearch.cluster.routing.GroupShardsIterator;
+import org.elasticsearch.cluster.routing.ShardIterator;
+import org.elasticsearch.cluster.routing.ShardRouting;
+import org.elasticsearch.cluster.service.ClusterService;
+import org.elasticsearch.common.inject.Inject;
+import org.elasticsearch.common.util.concurrent.CountDown;
+import org.elasticsearch.index.shard.ShardId;
+import org.elasticsearch.tasks.Task;
+import org.elasticsearch.transport.TransportService;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Supplier;
+
+/**
+ * Opens a point in time by pinning the current searcher of one copy of every shard of the requested indices. If a copy fails
+ * to open the point in time, the next copy of the shard is tried. If all copies of a shard fail, the searchers that were already
+ * pinned on the other shards are released and the request fails.
+ */
+public class TransportOpenPointInTimeAction extends HandledTransportAction<OpenPointInTimeRequest, OpenPointInTimeResponse> {
+
+    private final ClusterService clusterService;
+    private final SearchTransportService searchTransportService;
+    private final IndexNameExpressionResolver indexNameExpressionResolver;
+
+    @Inject
+    public TransportOpenPointInTimeAction(TransportService transportService, ClusterService clusterService, ActionFilters actionFilters,
+                                          SearchTransportService searchTransportService,
+                                          IndexNameExpressionResolver indexNameExpressionResolver) {
+        super(OpenPointInTimeAction.NAME, transportService, actionFilters,
+            (Supplier<OpenPointInTimeRequest>) OpenPointInTimeRequest::new);
+        this.clusterService = clusterService;
+        this.searchTransportService = searchTransportService;
+        this.indexNameExpressionResolver = indexNameExpressionResolver;
+    }
+
+    @Override
+    protected void doExecute(Task task, OpenPointInTimeRequest request, ActionListener<OpenPointInTimeResponse> listener) {
+        final ClusterState clusterState = clusterService.state();
+        clusterState.blocks().globalBlockedRaiseException(ClusterBlockLevel.READ);
+        final String[] concreteIndices = indexNameExpressionResolver.concreteIndexNames(clusterState, request);
+        final Map<String, Set<String>> routingMap = indexNameExpressionResolver.resolveSearchRouting(clusterState, request.routing(),
+            request.indices());
+        final GroupShardsIterator<ShardIterator> shardIterators = clusterService.operationRouting().searchShards(clusterState,
+            concreteIndices, routingMap, request.preference());
+        if (shardIterators.size() == 0) {
+            listener.onResponse(new OpenPointInTimeResponse(new PointInTimeId(Collections.emptyMap()).encode()));
+            return;
+        }
+        final OriginalIndices originalIndices = new OriginalIndices(request.indices(), request.indicesOptions());
+        final Map<ShardId, ScrollIdForNode> pinned = new ConcurrentHashMap<>();
+        final AtomicReference<Exception> failure = new AtomicReference<>();
+        final CountDown countDown = new CountDown(shardIterators.size());
+        final Runnable onShardDone = () -> {
+            if (countDown.countDown()) {
+                if (failure.get() == null) {
+                    listener.onResponse(new OpenPointInTimeResponse(new PointInTimeId(pinned).encode()));
+                } else {
+                    releasePinnedShards(pinned, clusterState);
+                    listener.onFailure(failure.get());
+                }
+            }
+        };
+        for (ShardIterator shardIterator : shardIterators) {
+            openOnNextCopy(shardIterator, null, clusterState, originalIndices, request, pinned, failure, onShardDone);
+        }
+    }
+
+    private void openOnNextCopy(ShardIterator shardIterator, Exception lastFailure, ClusterState clusterState,
+                                OriginalIndices originalIndices, OpenPointInTimeRequest request, Map<ShardId, ScrollIdForNode> pinned,
+                                AtomicReference<Exception> failure, Runnable onShardDone) {
+        final ShardRouting shardRouting = shardIterator.nextOrNull();
+        if (shardRouting == null) {
+            final Exception e = lastFailure != null ? lastFailure
+                : new NoShardAvailableActionException(shardIterator.shardId(), "no active copy to open the point in time on");
+            if (failure.compareAndSet(null, e) == false) {
+                failure.get().addSuppressed(e);
+            }
+            onShardDone.run();
+            return;
+        }
+        final ActionListener<ShardOpenPointInTimeResponse> shardListener = ActionListener.wrap(
+            response -> {
+                pinned.put(shardRouting.shardId(),
+                    new ScrollIdForNode(null, shardRouting.currentNodeId(), response.getPointInTimeId()));
+                onShardDone.run();
+            },
+            e -> {
+                logger.debug(() -> new ParameterizedMessage("{}: failed to open point in time on [{}]", shardRouting.shardId(),
+                    shardRouting.currentNodeId()), e);
+                openOnNextCopy(shardIterator, e, clusterState, originalIndices, request, pinned, failure, onShardDone);
+            });
+        try {
+            final DiscoveryNode node = clusterState.nodes().get(shardRouting.currentNodeId());
+            searchTransportService.sendOpenPointInTime(searchTransportService.getConnection(null, node),
+                new ShardOpenPointInTimeRequest(shardRouting.shardId(), originalIndices, request.keepAlive()), shardListener);
+        } catch (Exception e) {
+            shardListener.onFailure(e);
+        }
+    }
+
+    private void releasePinnedShards(Map<ShardId, ScrollIdForNode> pinned, ClusterState clusterState) {
+        for (Map.Entry<ShardId, ScrollIdForNode> entry : pinned.entrySet()) {
+            final DiscoveryNode node = clusterState.nodes().get(entry.getValue().getNode());
+            if (node == null) {
+                continue;
+            }
+            try {
+                searchTransportService.sendFreePointInTime(searchTransportService.getConnection(null, node),
+                    entry.getValue().getScrollId(), ActionListener.wrap(r -> {}, e -> logger.debug(() -> new ParameterizedMessage(
+                        "{}: failed to release point in time on [{}]", entry.getKey(), node), e)));
+            } catch (Exception e) {
+                logger.debug(() -> new ParameterizedMessage("{}: failed to release point in time on [{}]", entry.getKey(), node), e);
+            }
+        }
+    }
+}
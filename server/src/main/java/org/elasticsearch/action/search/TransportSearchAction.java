@@ -20,6 +20,7 @@
 package org.elasticsearch.action.search;
 
 import org.elasticsearch.action.ActionListener;
+import org.elasticsearch.action.ActionRequestValidationException;
 import org.elasticsearch.action.OriginalIndices;
 import org.elasticsearch.action.admin.cluster.shards.ClusterSearchShardsGroup;
 import org.elasticsearch.action.admin.cluster.shards.ClusterSearchShardsRequest;
@@ -34,17 +35,21 @@ import org.elasticsearch.cluster.metadata.IndexNameExpressionResolver;
 import org.elasticsearch.cluster.node.DiscoveryNode;
 import org.elasticsearch.cluster.node.DiscoveryNodes;
 import org.elasticsearch.cluster.routing.GroupShardsIterator;
+import org.elasticsearch.cluster.routing.IndexRoutingTable;
 import org.elasticsearch.cluster.routing.ShardIterator;
+import org.elasticsearch.cluster.routing.ShardRouting;
 import org.elasticsearch.cluster.service.ClusterService;
 import org.elasticsearch.common.Nullable;
 import org.elasticsearch.common.inject.Inject;
 import org.elasticsearch.common.io.stream.Writeable;
 import org.elasticsearch.common.settings.Setting;
 import org.elasticsearch.common.settings.Setting.Property;
+import org.elasticsearch.common.unit.TimeValue;
 import org.elasticsearch.common.util.concurrent.CountDown;
 import org.elasticsearch.index.Index;
 import org.elasticsearch.index.query.Rewriteable;
 import org.elasticsearch.index.shard.ShardId;
+import org.elasticsearch.node.ResponseCollectorService;
 import org.elasticsearch.search.SearchPhaseResult;
 import org.elasticsearch.search.SearchService;
 import org.elasticsearch.search.aggregations.InternalAggregation;
@@ -80,6 +85,7 @@ import java.util.function.BiFunction;
 import java.util.function.Function;
 import java.util.function.LongSupplier;
 
+import static org.elasticsearch.action.ValidateActions.addValidationError;
 import static org.elasticsearch.action.search.SearchType.DFS_QUERY_THEN_FETCH;
 import static org.elasticsearch.action.search.SearchType.QUERY_THEN_FETCH;
 
@@ -89,6 +95,18 @@ public class TransportSearchAction extends HandledTransportAction<SearchRequest,
     public static final Setting<Long> SHARD_COUNT_LIMIT_SETTING = Setting.longSetting(
             "action.search.shard_count.limit", Long.MAX_VALUE, 1L, Property.Dynamic, Property.NodeScope);
 
+    /**
+     * Whether the query phase sends a hedged request to another copy of a shard if the first copy didn't answer after the
+     * estimated 95th percentile of its response time.
+     */
+    public static final Setting<Boolean> HEDGED_REQUESTS_ENABLED_SETTING = Setting.boolSetting(
+            "action.search.hedged_requests.enabled", false, Property.Dynamic, Property.NodeScope);
+
+    /** The minimum delay before a hedged request is sent to another copy of a shard. */
+    public static final Setting<TimeValue> HEDGED_REQUESTS_MIN_DELAY_SETTING = Setting.timeSetting(
+            "action.search.hedged_requests.min_delay", TimeValue.timeValueMillis(10), TimeValue.timeValueMillis(1),
+            Property.Dynamic, Property.NodeScope);
+
     private final ThreadPool threadPool;
     private final ClusterService clusterService;
     private final SearchTransportService searchTransportService;
@@ -194,6 +212,11 @@ public class TransportSearchAction extends HandledTransportAction<SearchRequest,
 
     @Override
     protected void doExecute(Task task, SearchRequest searchRequest, ActionListener<SearchResponse> listener) {
+        final ActionRequestValidationException pointInTimeValidation = validatePointInTime(searchRequest);
+        if (pointInTimeValidation != null) {
+            listener.onFailure(pointInTimeValidation);
+            return;
+        }
         final long relativeStartNanos = System.nanoTime();
         final SearchTimeProvider timeProvider =
             new SearchTimeProvider(searchRequest.getOrCreateAbsoluteStartMillis(), relativeStartNanos, System::nanoTime);
@@ -210,6 +233,8 @@ public class TransportSearchAction extends HandledTransportAction<SearchRequest,
             if (remoteClusterIndices.isEmpty()) {
                 executeLocalSearch(task, timeProvider, searchRequest, localIndices, clusterState, listener);
             } else {
+                // don't hold the batched shard requests of a multi search while the remote clusters are queried
+                searchTransportService.onQueryPhaseDispatched(task, searchRequest);
                 if (shouldMinimizeRoundtrips(searchRequest)) {
                     ccsRemoteReduce(searchRequest, localIndices, remoteClusterIndices, timeProvider, searchService::createReduceContext,
                         remoteClusterService, threadPool, listener,
@@ -457,6 +482,19 @@ public class TransportSearchAction extends HandledTransportAction<SearchRequest,
             timeProvider.getAbsoluteStartMillis(), localIndices.indices());
     }
 
+    /**
+     * Checks that a search on a point in time doesn't also set the indices to search. Requests are validated before the
+     * action filters run, which may set the indices of the request, so this is checked again once the search executes
+     * instead of silently searching the indices of the point in time.
+     */
+    static ActionRequestValidationException validatePointInTime(SearchRequest searchRequest) {
+        if (searchRequest.source() != null && searchRequest.source().pointInTimeBuilder() != null
+            && searchRequest.indices().length > 0) {
+            return addValidationError("[indices] cannot be used with point in time", null);
+        }
+        return null;
+    }
+
     private void executeSearch(SearchTask task, SearchTimeProvider timeProvider, SearchRequest searchRequest,
                                OriginalIndices localIndices, List<SearchShardIterator> remoteShardIterators,
                                BiFunction<String, String, DiscoveryNode> remoteConnections, ClusterState clusterState,
@@ -467,7 +505,16 @@ public class TransportSearchAction extends HandledTransportAction<SearchRequest,
         // TODO: I think startTime() should become part of ActionRequest and that should be used both for index name
         // date math expressions and $now in scripts. This way all apis will deal with now in the same way instead
         // of just for the _search api
-        final Index[] indices = resolveLocalIndices(localIndices, searchRequest.indicesOptions(), clusterState, timeProvider);
+        final PointInTimeId pointInTimeId = searchRequest.source() == null || searchRequest.source().pointInTimeBuilder() == null
+            ? null : PointInTimeId.decode(searchRequest.source().pointInTimeBuilder().getId());
+        final Index[] indices;
+        if (pointInTimeId != null) {
+            // the indices and shard copies to search are fixed by the point in time, the request can't set any indices
+            indices = pointInTimeId.shards().keySet().stream().map(ShardId::getIndex).distinct().toArray(Index[]::new);
+            localIndices = new OriginalIndices(pointInTimeId.indices(), searchRequest.indicesOptions());
+        } else {
+            indices = resolveLocalIndices(localIndices, searchRequest.indicesOptions(), clusterState, timeProvider);
+        }
         Map<String, AliasFilter> aliasFilter = buildPerIndexAliasFilter(searchRequest, clusterState, indices, remoteAliasMap);
         Map<String, Set<String>> routingMap = indexNameExpressionResolver.resolveSearchRouting(clusterState, searchRequest.routing(),
             searchRequest.indices());
@@ -477,10 +524,15 @@ public class TransportSearchAction extends HandledTransportAction<SearchRequest,
             concreteIndices[i] = indices[i].getName();
         }
         Map<String, Long> nodeSearchCounts = searchTransportService.getPendingSearchRequests();
-        GroupShardsIterator<ShardIterator> localShardsIterator = clusterService.operationRouting().searchShards(clusterState,
+        final GroupShardsIterator<SearchShardIterator> shardIterators;
+        if (pointInTimeId != null) {
+            shardIterators = pointInTimeShardsIterators(pointInTimeId, clusterState, localIndices);
+        } else {
+            GroupShardsIterator<ShardIterator> localShardsIterator = clusterService.operationRouting().searchShards(clusterState,
                 concreteIndices, routingMap, searchRequest.preference(), searchService.getResponseCollectorService(), nodeSearchCounts);
-        GroupShardsIterator<SearchShardIterator> shardIterators = mergeShardsIterators(localShardsIterator, localIndices,
-            searchRequest.getLocalClusterAlias(), remoteShardIterators);
+            shardIterators = mergeShardsIterators(localShardsIterator, localIndices, searchRequest.getLocalClusterAlias(),
+                remoteShardIterators);
+        }
 
         failIfOverShardCountLimit(clusterService, shardIterators.size());
 
@@ -512,6 +564,7 @@ public class TransportSearchAction extends HandledTransportAction<SearchRequest,
         boolean preFilterSearchShards = shouldPreFilterSearchShards(searchRequest, shardIterators);
         searchAsyncAction(task, searchRequest, shardIterators, timeProvider, connectionLookup, clusterState.version(),
             Collections.unmodifiableMap(aliasFilter), concreteIndexBoosts, routingMap, listener, preFilterSearchShards, clusters).start();
+        searchTransportService.onQueryPhaseDispatched(task, searchRequest);
     }
 
     static BiFunction<String, String, Transport.Connection> buildConnectionLookup(String requestClusterAlias,
@@ -555,6 +608,30 @@ public class TransportSearchAction extends HandledTransportAction<SearchRequest,
         return new GroupShardsIterator<>(shards);
     }
 
+    /**
+     * Builds the shard iterators of a search that is executed against a point in time: each shard can only be searched on the node
+     * that holds its pinned searcher, so shards whose copy was relocated or lost are reported as failed.
+     */
+    static GroupShardsIterator<SearchShardIterator> pointInTimeShardsIterators(PointInTimeId pointInTimeId, ClusterState clusterState,
+                                                                               OriginalIndices originalIndices) {
+        List<SearchShardIterator> shards = new ArrayList<>();
+        for (Map.Entry<ShardId, ScrollIdForNode> entry : pointInTimeId.shards().entrySet()) {
+            final ShardId shardId = entry.getKey();
+            List<ShardRouting> routings = Collections.emptyList();
+            IndexRoutingTable indexRoutingTable = clusterState.routingTable().index(shardId.getIndex());
+            if (indexRoutingTable != null && indexRoutingTable.getIndex().equals(shardId.getIndex())) {
+                for (ShardRouting shardRouting : indexRoutingTable.shard(shardId.id()).activeShards()) {
+                    if (shardRouting.currentNodeId().equals(entry.getValue().getNode())) {
+                        routings = Collections.singletonList(shardRouting);
+                        break;
+                    }
+                }
+            }
+            shards.add(new SearchShardIterator(null, shardId, routings, originalIndices));
+        }
+        return new GroupShardsIterator<>(shards);
+    }
+
     private AbstractSearchAsyncAction searchAsyncAction(SearchTask task, SearchRequest searchRequest,
                                                         GroupShardsIterator<SearchShardIterator> shardIterators,
                                                         SearchTimeProvider timeProvider,
@@ -592,6 +669,9 @@ public class TransportSearchAction extends HandledTransportAction<SearchRequest,
                     searchAsyncAction = new SearchQueryThenFetchAsyncAction(logger, searchTransportService, connectionLookup,
                         aliasFilter, concreteIndexBoosts, indexRoutings, searchPhaseController, executor, searchRequest, listener,
                         shardIterators, timeProvider, clusterStateVersion, task, clusters);
+                    if (searchRequest.scroll() == null && clusterService.getClusterSettings().get(HEDGED_REQUESTS_ENABLED_SETTING)) {
+                        searchAsyncAction.enableHedgedRequests(threadPool, hedgeDelay(clusterService, searchService));
+                    }
                     break;
                 default:
                     throw new IllegalStateException("Unknown search type: [" + searchRequest.searchType() + "]");
@@ -600,6 +680,19 @@ public class TransportSearchAction extends HandledTransportAction<SearchRequest,
         }
     }
 
+    /**
+     * Returns the delay after which a hedged request is sent to another copy of a shard: the estimated 95th percentile of the
+     * response time of the shard copy that is queried first, if it is known.
+     */
+    static BiFunction<SearchShardIterator, ShardRouting, TimeValue> hedgeDelay(ClusterService clusterService,
+                                                                                SearchService searchService) {
+        final long minDelayNanos = clusterService.getClusterSettings().get(HEDGED_REQUESTS_MIN_DELAY_SETTING).nanos();
+        final ResponseCollectorService collector = searchService.getResponseCollectorService();
+        return (shardIt, shard) -> collector.getShardCopyStatistics(shard.currentNodeId(), shardIt.shardId())
+            .map(stats -> TimeValue.timeValueNanos(Math.max(minDelayNanos, (long) stats.p95ResponseTime)))
+            .orElse(null);
+    }
+
     private static void failIfOverShardCountLimit(ClusterService clusterService, int shardCount) {
         final long shardCountLimit = clusterService.getClusterSettings().get(SHARD_COUNT_LIMIT_SETTING);
         if (shardCount > shardCountLimit) {
@@ -256,22 +256,24 @@ public class IndexShardRoutingTable implements Iterable<ShardRouting> {
     /**
      * Returns an iterator over active and initializing shards, ordered by the adaptive replica
      * selection formula. Making sure though that its random within the active shards of the same
-     * (or missing) rank, and initializing shards are the last to iterate through.
+     * (or missing) rank, and initializing shards are the last to iterate through. The response time
+     * of each copy of this shard is used in the formula when it is known, otherwise the response
+     * time of the node holding the copy is used.
      */
     public ShardIterator activeInitializingShardsRankedIt(@Nullable ResponseCollectorService collector,
                                                           @Nullable Map<String, Long> nodeSearchCounts) {
         final int seed = shuffler.nextSeed();
         if (allInitializingShards.isEmpty()) {
             return new PlainShardIterator(shardId,
-                    rankShardsAndUpdateStats(shuffler.shuffle(activeShards, seed), collector, nodeSearchCounts));
+                    rankShardsAndUpdateStats(shardId, shuffler.shuffle(activeShards, seed), collector, nodeSearchCounts));
         }
 
         ArrayList<ShardRouting> ordered = new ArrayList<>(activeShards.size() + allInitializingShards.size());
         List<ShardRouting> rankedActiveShards =
-                rankShardsAndUpdateStats(shuffler.shuffle(activeShards, seed), collector, nodeSearchCounts);
+                rankShardsAndUpdateStats(shardId, shuffler.shuffle(activeShards, seed), collector, nodeSearchCounts);
         ordered.addAll(rankedActiveShards);
         List<ShardRouting> rankedInitializingShards =
-                rankShardsAndUpdateStats(allInitializingShards, collector, nodeSearchCounts);
+                rankShardsAndUpdateStats(shardId, allInitializingShards, collector, nodeSearchCounts);
         ordered.addAll(rankedInitializingShards);
         return new PlainShardIterator(shardId, ordered);
     }
@@ -294,14 +296,32 @@ public class IndexShardRoutingTable implements Iterable<ShardRouting> {
         return nodeStats;
     }
 
-    private static Map<String, Double> rankNodes(final Map<String, Optional<ResponseCollectorService.ComputedNodeStats>> nodeStats,
-                                                 final Map<String, Long> nodeSearchCounts) {
+    private static Map<String, Optional<ResponseCollectorService.ComputedShardCopyStats>>
+        getShardCopyStats(final Set<String> nodeIds, final ShardId shardId, final ResponseCollectorService collector) {
+
+        final Map<String, Optional<ResponseCollectorService.ComputedShardCopyStats>> shardCopyStats = new HashMap<>(nodeIds.size());
+        for (String nodeId : nodeIds) {
+            shardCopyStats.put(nodeId, collector.getShardCopyStatistics(nodeId, shardId));
+        }
+        return shardCopyStats;
+    }
+
+    private static Map<String, Double> rankNodes(
+            final Map<String, Optional<ResponseCollectorService.ComputedNodeStats>> nodeStats,
+            final Map<String, Optional<ResponseCollectorService.ComputedShardCopyStats>> shardCopyStats,
+            final Map<String, Long> nodeSearchCounts) {
         final Map<String, Double> nodeRanks = new HashMap<>(nodeStats.size());
         for (Map.Entry<String, Optional<ResponseCollectorService.ComputedNodeStats>> entry : nodeStats.entrySet()) {
             Optional<ResponseCollectorService.ComputedNodeStats> maybeStats = entry.getValue();
             maybeStats.ifPresent(stats -> {
                 final String nodeId = entry.getKey();
-                nodeRanks.put(nodeId, stats.rank(nodeSearchCounts.getOrDefault(nodeId, 1L)));
+                final long searchCount = nodeSearchCounts.getOrDefault(nodeId, 1L);
+                final Optional<ResponseCollectorService.ComputedShardCopyStats> maybeShardCopyStats = shardCopyStats.get(nodeId);
+                if (maybeShardCopyStats.isPresent()) {
+                    nodeRanks.put(nodeId, stats.rank(searchCount, maybeShardCopyStats.get()));
+                } else {
+                    nodeRanks.put(nodeId, stats.rank(searchCount));
+                }
             });
         }
         return nodeRanks;
@@ -317,9 +337,12 @@ public class IndexShardRoutingTable implements Iterable<ShardRouting> {
      * This adjustment takes the "winning" node's statistics and adds the average of those statistics with each non-winning node. Let's say
      * the winning node had a queue size of 10 and a non-winning node had a queue of 18. The average queue size is (10 + 18) / 2 = 14 so the
      * non-winning node will have statistics added for a queue size of 14. This is repeated for the response time and service times as well.
+     * The response and service times of the non-winning copies of the shard are adjusted the same way with those of the winning copy.
      */
     private static void adjustStats(final ResponseCollectorService collector,
+                                    final ShardId shardId,
                                     final Map<String, Optional<ResponseCollectorService.ComputedNodeStats>> nodeStats,
+                                    final Map<String, Optional<ResponseCollectorService.ComputedShardCopyStats>> shardCopyStats,
                                     final String minNodeId,
                                     final ResponseCollectorService.ComputedNodeStats minStats) {
         if (minNodeId != null) {
@@ -334,10 +357,27 @@ public class IndexShardRoutingTable implements Iterable<ShardRouting> {
                     collector.addNodeStatistics(nodeId, updatedQueue, updatedResponse, updatedService);
                 }
             }
+            final Optional<ResponseCollectorService.ComputedShardCopyStats> maybeMinShardCopyStats = shardCopyStats.get(minNodeId);
+            if (maybeMinShardCopyStats.isPresent()) {
+                final ResponseCollectorService.ComputedShardCopyStats minShardCopyStats = maybeMinShardCopyStats.get();
+                for (Map.Entry<String, Optional<ResponseCollectorService.ComputedShardCopyStats>> entry : shardCopyStats.entrySet()) {
+                    final String nodeId = entry.getKey();
+                    final Optional<ResponseCollectorService.ComputedShardCopyStats> maybeStats = entry.getValue();
+                    if (nodeId.equals(minNodeId) == false && maybeStats.isPresent()) {
+                        final ResponseCollectorService.ComputedShardCopyStats stats = maybeStats.get();
+                        final long updatedResponse = (long) (minShardCopyStats.responseTime + stats.responseTime) / 2;
+                        // a service time that isn't known yet (-1) must not be averaged
+                        final long updatedService = minShardCopyStats.serviceTime < 0 || stats.serviceTime < 0 ? -1
+                            : (long) (minShardCopyStats.serviceTime + stats.serviceTime) / 2;
+                        collector.addShardCopyStatistics(nodeId, shardId, updatedResponse, updatedService);
+                    }
+                }
+            }
         }
     }
 
-    private static List<ShardRouting> rankShardsAndUpdateStats(List<ShardRouting> shards, final ResponseCollectorService collector,
+    private static List<ShardRouting> rankShardsAndUpdateStats(final ShardId shardId, List<ShardRouting> shards,
+                                                               final ResponseCollectorService collector,
                                                                final Map<String, Long> nodeSearchCounts) {
         if (collector == null || nodeSearchCounts == null || shards.size() <= 1) {
             return shards;
@@ -346,9 +386,11 @@ public class IndexShardRoutingTable implements Iterable<ShardRouting> {
         // Retrieve which nodes we can potentially send the query to
         final Set<String> nodeIds = getAllNodeIds(shards);
         final Map<String, Optional<ResponseCollectorService.ComputedNodeStats>> nodeStats = getNodeStats(nodeIds, collector);
+        final Map<String, Optional<ResponseCollectorService.ComputedShardCopyStats>> shardCopyStats =
+            getShardCopyStats(nodeIds, shardId, collector);
 
         // Retrieve all the nodes the shards exist on
-        final Map<String, Double> nodeRanks = rankNodes(nodeStats, nodeSearchCounts);
+        final Map<String, Double> nodeRanks = rankNodes(nodeStats, shardCopyStats, nodeSearchCounts);
 
         // sort all shards based on the shard rank
         ArrayList<ShardRouting> sortedShards = new ArrayList<>(shards);
@@ -363,7 +405,7 @@ public class IndexShardRoutingTable implements Iterable<ShardRouting> {
                 String minNodeId = minShard.currentNodeId();
                 Optional<ResponseCollectorService.ComputedNodeStats> maybeMinStats = nodeStats.get(minNodeId);
                 if (maybeMinStats.isPresent()) {
-                    adjustStats(collector, nodeStats, minNodeId, maybeMinStats.get());
+                    adjustStats(collector, shardId, nodeStats, shardCopyStats, minNodeId, maybeMinStats.get());
                     // Increase the number of searches for the "winning" node by one.
                     // Note that this doesn't actually affect the "real" counts, instead
                     // it only affects the captured node search counts, which is
@@ -29,6 +29,8 @@ import java.util.Map;
 import java.util.Objects;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReferenceArray;
 import java.util.concurrent.atomic.LongAdder;
 import java.util.concurrent.locks.ReadWriteLock;
 import java.util.concurrent.locks.ReentrantLock;
@@ -61,6 +63,11 @@ import java.util.function.ToLongBiFunction;
  * <li>Locks on the list could be taken per node being modified instead of globally.</li>
  * </ol>
  * <p>
+ * The {@link EvictionPolicy#TINY_LFU} eviction policy avoids taking this lock on reads: reads are recorded in lossy striped
+ * buffers that are drained into the LRU lists in batches by the thread that fills a buffer, if the lock is free. This policy
+ * also uses the access frequency of the keys, estimated with a {@link FrequencySketch}, to decide whether new entries that
+ * overflow a small LRU admission window should replace the least recently used entry of the main LRU list.
+ * <p>
  * Evictions only occur after a mutation to the cache (meaning an entry promotion, a cache insertion, or a manual
  * invalidation) or an explicit call to {@link #refresh()}.
  *
@@ -97,6 +104,15 @@ public class Cache<K, V> {
     private RemovalListener<K, V> removalListener = notification -> {
     };
 
+    // the policy selecting the entries to evict
+    private EvictionPolicy evictionPolicy = EvictionPolicy.LRU;
+
+    // the estimated access frequency of the keys, only used by the TINY_LFU eviction policy
+    private FrequencySketch frequencySketch;
+
+    // the buffers recording reads, only used by the TINY_LFU eviction policy
+    private ReadBuffer<K, V>[] readBuffers;
+
     // use CacheBuilder to construct
     Cache() {
     }
@@ -144,6 +160,43 @@ public class Cache<K, V> {
         this.removalListener = removalListener;
     }
 
+    @SuppressWarnings("unchecked")
+    void setEvictionPolicy(EvictionPolicy evictionPolicy) {
+        Objects.requireNonNull(evictionPolicy);
+        this.evictionPolicy = evictionPolicy;
+        if (evictionPolicy == EvictionPolicy.TINY_LFU) {
+            frequencySketch = new FrequencySketch();
+            frequencySketch.ensureCapacity(FrequencySketch.MIN_CAPACITY);
+            int numberOfBuffers = Integer.highestOneBit(Math.min(4 * Runtime.getRuntime().availableProcessors(), MAX_READ_BUFFERS));
+            readBuffers = new ReadBuffer[Math.max(1, numberOfBuffers)];
+            for (int i = 0; i < readBuffers.length; i++) {
+                readBuffers[i] = new ReadBuffer<>();
+            }
+        } else {
+            frequencySketch = null;
+            readBuffers = null;
+        }
+    }
+
+    /**
+     * The policy used to select the entries to evict when the cache exceeds its maximum weight.
+     */
+    public enum EvictionPolicy {
+        /**
+         * Evicts the least recently used entries. Every read promotes the entry in the LRU list under a lock that
+         * serializes all reads and writes.
+         */
+        LRU,
+        /**
+         * A W-TinyLFU style policy. Reads are recorded in buffers that are drained in batches instead of being applied
+         * one by one under the lock. New entries are admitted in a small LRU window, holding one percent of the maximum
+         * weight, and when they overflow the window they replace the least recently used entry of the main LRU list only
+         * if their key was accessed more frequently. This protects frequently used entries from scans of entries that are
+         * used once.
+         */
+        TINY_LFU
+    }
+
     /**
      * The relative time used to track time-based evictions.
      *
@@ -167,6 +220,7 @@ public class Cache<K, V> {
         volatile long accessTime;
         Entry<K, V> before;
         Entry<K, V> after;
+        LruList<K, V> list;
         State state = State.NEW;
 
         Entry(K key, V value, long writeTime) {
@@ -176,6 +230,98 @@ public class Cache<K, V> {
         }
     }
 
+    /**
+     * A doubly-linked list of entries, from the most recently used at the head to the least recently used at the tail.
+     */
+    static final class LruList<K, V> {
+        Entry<K, V> head;
+        Entry<K, V> tail;
+        // the weight of the entries in this list
+        long weight;
+
+        void unlink(Entry<K, V> entry) {
+            final Entry<K, V> before = entry.before;
+            final Entry<K, V> after = entry.after;
+
+            if (before == null) {
+                // removing the head
+                assert head == entry;
+                head = after;
+                if (head != null) {
+                    head.before = null;
+                }
+            } else {
+                // removing inner element
+                before.after = after;
+                entry.before = null;
+            }
+
+            if (after == null) {
+                // removing tail
+                assert tail == entry;
+                tail = before;
+                if (tail != null) {
+                    tail.after = null;
+                }
+            } else {
+                // removing inner element
+                after.before = before;
+                entry.after = null;
+            }
+        }
+
+        void linkAtHead(Entry<K, V> entry) {
+            Entry<K, V> h = head;
+            entry.before = null;
+            entry.after = head;
+            head = entry;
+            if (h == null) {
+                tail = entry;
+            } else {
+                h.before = entry;
+            }
+        }
+
+        void clear() {
+            head = tail = null;
+            weight = 0;
+        }
+    }
+
+    /**
+     * A lossy buffer of the entries that were read since it was last drained. Recording a read is a single atomic
+     * increment and a write to a slot of the buffer that might overwrite a read that was not drained yet.
+     */
+    static final class ReadBuffer<K, V> {
+        static final int SIZE = 16; // must be a power of two
+
+        private final AtomicReferenceArray<Entry<K, V>> entries = new AtomicReferenceArray<>(SIZE);
+        private final AtomicInteger writes = new AtomicInteger();
+        // the number of writes that were drained, only accessed under the LRU lock
+        private int drained;
+
+        /**
+         * Records a read and returns true if the buffer is full and should be drained.
+         */
+        boolean offer(Entry<K, V> entry) {
+            final int index = writes.getAndIncrement() & (SIZE - 1);
+            entries.lazySet(index, entry);
+            return index == SIZE - 1;
+        }
+
+        void drainTo(Consumer<Entry<K, V>> consumer) {
+            final int writeCount = writes.get();
+            final int pending = Math.min(writeCount - drained, SIZE);
+            for (int i = pending; i > 0; i--) {
+                final Entry<K, V> entry = entries.getAndSet((writeCount - i) & (SIZE - 1), null);
+                if (entry != null) {
+                    consumer.accept(entry);
+                }
+            }
+            drained = writeCount;
+        }
+    }
+
     /**
      * A cache segment.
      * <p>
@@ -344,10 +490,15 @@ public class Cache<K, V> {
         }
     }
 
-    Entry<K, V> head;
-    Entry<K, V> tail;
+    private static final int MAX_READ_BUFFERS = 64;
+
+    // the LRU list of the entries, or of the entries that were admitted in the main space with the TINY_LFU eviction policy
+    final LruList<K, V> lru = new LruList<>();
+
+    // the LRU list of the admission window of the TINY_LFU eviction policy
+    final LruList<K, V> window = new LruList<>();
 
-    // lock protecting mutations to the LRU list
+    // lock protecting mutations to the LRU lists
     private final ReleasableLock lruLock = new ReleasableLock(new ReentrantLock());
 
     /**
@@ -366,11 +517,27 @@ public class Cache<K, V> {
         if (entry == null) {
             return null;
         } else {
-            promote(entry, now);
+            if (readBuffers != null) {
+                recordRead(entry, now);
+            } else {
+                promote(entry, now);
+            }
             return entry.value;
         }
     }
 
+    private void recordRead(Entry<K, V> entry, long now) {
+        final ReadBuffer<K, V> buffer = readBuffers[(int) Thread.currentThread().getId() & (readBuffers.length - 1)];
+        if (buffer.offer(entry)) {
+            // the buffer is full, apply the recorded reads unless another thread is already mutating the LRU lists
+            try (ReleasableLock lock = lruLock.tryAcquire()) {
+                if (lock != null) {
+                    evict(now);
+                }
+            }
+        }
+    }
+
     /**
      * If the specified key is not already associated with a value (or is mapped to null), attempts to compute its
      * value using the given mapping function and enters it into this map unless null. The load method for a given key
@@ -532,6 +699,7 @@ public class Cache<K, V> {
      * {@link org.elasticsearch.common.cache.RemovalNotification.RemovalReason} INVALIDATED.
      */
     public void invalidateAll() {
+        Entry<K, V> windowHead;
         Entry<K, V> h;
 
         boolean[] haveSegmentLock = new boolean[NUMBER_OF_SEGMENTS];
@@ -541,14 +709,16 @@ public class Cache<K, V> {
                 haveSegmentLock[i] = true;
             }
             try (ReleasableLock ignored = lruLock.acquire()) {
-                h = head;
+                windowHead = window.head;
+                h = lru.head;
                 Arrays.stream(segments).forEach(segment -> segment.map = new HashMap<>());
-                Entry<K, V> current = head;
+                Entry<K, V> current = firstEntry();
                 while (current != null) {
                     current.state = State.DELETED;
-                    current = current.after;
+                    current = nextEntry(current);
                 }
-                head = tail = null;
+                lru.clear();
+                window.clear();
                 count = 0;
                 weight = 0;
             }
@@ -559,6 +729,11 @@ public class Cache<K, V> {
                 }
             }
         }
+        while (windowHead != null) {
+            removalListener.onRemoval(new RemovalNotification<>(windowHead.key, windowHead.value,
+                RemovalNotification.RemovalReason.INVALIDATED));
+            windowHead = windowHead.after;
+        }
         while (h != null) {
             removalListener.onRemoval(new RemovalNotification<>(h.key, h.value, RemovalNotification.RemovalReason.INVALIDATED));
             h = h.after;
@@ -596,13 +771,13 @@ public class Cache<K, V> {
     /**
      * An LRU sequencing of the keys in the cache that supports removal. This sequence is not protected from mutations
      * to the cache (except for {@link Iterator#remove()}. The result of iteration under any other mutation is
-     * undefined.
+     * undefined. With the {@link EvictionPolicy#TINY_LFU} eviction policy the keys of the admission window come first.
      *
      * @return an LRU-ordered {@link Iterable} over the keys in the cache
      */
     public Iterable<K> keys() {
         return () -> new Iterator<K>() {
-            private CacheIterator iterator = new CacheIterator(head);
+            private CacheIterator iterator = new CacheIterator();
 
             @Override
             public boolean hasNext() {
@@ -630,7 +805,7 @@ public class Cache<K, V> {
      */
     public Iterable<V> values() {
         return () -> new Iterator<V>() {
-            private CacheIterator iterator = new CacheIterator(head);
+            private CacheIterator iterator = new CacheIterator();
 
             @Override
             public boolean hasNext() {
@@ -653,9 +828,9 @@ public class Cache<K, V> {
         private Entry<K, V> current;
         private Entry<K, V> next;
 
-        CacheIterator(Entry<K, V> head) {
+        CacheIterator() {
             current = null;
-            next = head;
+            next = firstEntry();
         }
 
         @Override
@@ -666,7 +841,7 @@ public class Cache<K, V> {
         @Override
         public Entry<K, V> next() {
             current = next;
-            next = next.after;
+            next = nextEntry(next);
             return current;
         }
 
@@ -684,6 +859,14 @@ public class Cache<K, V> {
         }
     }
 
+    private Entry<K, V> firstEntry() {
+        return window.head != null ? window.head : lru.head;
+    }
+
+    private Entry<K, V> nextEntry(Entry<K, V> entry) {
+        return entry.after == null && entry.list == window ? lru.head : entry.after;
+    }
+
     /**
      * The cache statistics tracking hits, misses and evictions. These are taken on a best-effort basis meaning that
      * they could be out-of-date mid-flight.
@@ -750,8 +933,57 @@ public class Cache<K, V> {
     private void evict(long now) {
         assert lruLock.isHeldByCurrentThread();
 
-        while (tail != null && shouldPrune(tail, now)) {
-            evictEntry(tail);
+        if (evictionPolicy == EvictionPolicy.TINY_LFU) {
+            drainReadBuffers();
+            evictTinyLfu(now);
+        } else {
+            while (lru.tail != null && shouldPrune(lru.tail, now)) {
+                evictEntry(lru.tail);
+            }
+        }
+    }
+
+    private void drainReadBuffers() {
+        assert lruLock.isHeldByCurrentThread();
+
+        for (ReadBuffer<K, V> readBuffer : readBuffers) {
+            readBuffer.drainTo(entry -> {
+                if (entry.state == State.EXISTING) {
+                    frequencySketch.increment(entry.key.hashCode());
+                    relinkAtHead(entry);
+                }
+            });
+        }
+    }
+
+    private void evictTinyLfu(long now) {
+        assert lruLock.isHeldByCurrentThread();
+
+        while (window.tail != null && isExpired(window.tail, now)) {
+            evictEntry(window.tail);
+        }
+        while (lru.tail != null && isExpired(lru.tail, now)) {
+            evictEntry(lru.tail);
+        }
+        final long maximumWindowWeight = maximumWeight == -1 ? Long.MAX_VALUE : Math.max(1, maximumWeight / 100);
+        while (window.weight > maximumWindowWeight) {
+            // the least recently used entry of the window moves to the main space where it competes for admission
+            // with the least recently used entry of the main space
+            final Entry<K, V> candidate = window.tail;
+            unlink(candidate);
+            linkAtHead(candidate, lru);
+            if (exceedsWeight()) {
+                final Entry<K, V> victim = lru.tail;
+                if (victim != candidate
+                        && frequencySketch.frequency(candidate.key.hashCode()) > frequencySketch.frequency(victim.key.hashCode())) {
+                    evictEntry(victim);
+                } else {
+                    evictEntry(candidate);
+                }
+            }
+        }
+        while (exceedsWeight()) {
+            evictEntry(lru.tail != null ? lru.tail : window.tail);
         }
     }
 
@@ -790,37 +1022,11 @@ public class Cache<K, V> {
         assert lruLock.isHeldByCurrentThread();
 
         if (entry.state == State.EXISTING) {
-            final Entry<K, V> before = entry.before;
-            final Entry<K, V> after = entry.after;
-
-            if (before == null) {
-                // removing the head
-                assert head == entry;
-                head = after;
-                if (head != null) {
-                    head.before = null;
-                }
-            } else {
-                // removing inner element
-                before.after = after;
-                entry.before = null;
-            }
-
-            if (after == null) {
-                // removing tail
-                assert tail == entry;
-                tail = before;
-                if (tail != null) {
-                    tail.after = null;
-                }
-            } else {
-                // removing inner element
-                after.before = before;
-                entry.after = null;
-            }
-
+            final long entryWeight = weigher.applyAsLong(entry.key, entry.value);
+            entry.list.unlink(entry);
+            entry.list.weight -= entryWeight;
             count--;
-            weight -= weigher.applyAsLong(entry.key, entry.value);
+            weight -= entryWeight;
             entry.state = State.DELETED;
             return true;
         } else {
@@ -828,30 +1034,38 @@ public class Cache<K, V> {
         }
     }
 
+    private void linkAtHead(Entry<K, V> entry, LruList<K, V> list) {
+        assert lruLock.isHeldByCurrentThread();
+
+        final long entryWeight = weigher.applyAsLong(entry.key, entry.value);
+        list.linkAtHead(entry);
+        list.weight += entryWeight;
+        entry.list = list;
+        count++;
+        weight += entryWeight;
+        entry.state = State.EXISTING;
+    }
+
     private void linkAtHead(Entry<K, V> entry) {
         assert lruLock.isHeldByCurrentThread();
 
-        Entry<K, V> h = head;
-        entry.before = null;
-        entry.after = head;
-        head = entry;
-        if (h == null) {
-            tail = entry;
+        if (evictionPolicy == EvictionPolicy.TINY_LFU) {
+            // new entries are admitted in the window
+            linkAtHead(entry, window);
+            frequencySketch.ensureCapacity(count);
+            frequencySketch.increment(entry.key.hashCode());
         } else {
-            h.before = entry;
+            linkAtHead(entry, lru);
         }
-
-        count++;
-        weight += weigher.applyAsLong(entry.key, entry.value);
-        entry.state = State.EXISTING;
     }
 
     private void relinkAtHead(Entry<K, V> entry) {
         assert lruLock.isHeldByCurrentThread();
 
-        if (head != entry) {
+        final LruList<K, V> list = entry.list;
+        if (list.head != entry) {
             unlink(entry);
-            linkAtHead(entry);
+            linkAtHead(entry, list);
         }
     }
 
@@ -0,0 +1,126 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.common.cache;
+
+/**
+ * A probabilistic estimate of the access frequency of keys, used by the {@link Cache.EvictionPolicy#TINY_LFU} eviction
+ * policy of the {@link Cache} to decide whether an entry should be admitted in the cache.
+ * <p>
+ * This is a count-min sketch of 4-bit counters: each key increments the smallest of its four counters and its
+ * frequency is estimated by the minimum of the four. The counters saturate at 15. Once the number of increments reaches
+ * ten times the capacity of the sketch, all counters are halved so that the estimates favor recent accesses.
+ * <p>
+ * This class is not thread-safe, the cache only accesses it under its LRU lock.
+ */
+final class FrequencySketch {
+
+    static final int MIN_CAPACITY = 16;
+    static final int MAX_COUNT = 15;
+
+    private static final long[] SEEDS = new long[] {
+        0xc3a5c85c97cb3127L, 0xb492b66fbe98f273L, 0x9ae16a3b2f90404fL, 0xcbf29ce484222325L };
+    private static final long RESET_MASK = 0x7777777777777777L;
+    private static final long ONE_MASK = 0x1111111111111111L;
+    private static final int MAX_TABLE_SIZE = 1 << 24;
+
+    // each long holds sixteen 4-bit counters
+    private long[] table = new long[0];
+    private int tableMask;
+    private int sampleSize;
+    private int size;
+
+    /**
+     * Resizes the sketch so that it can estimate the frequency of at least the given number of keys accurately. The
+     * estimates are reset when the sketch grows.
+     */
+    void ensureCapacity(long capacity) {
+        final int maximum = (int) Math.min(Math.max(capacity, MIN_CAPACITY), MAX_TABLE_SIZE);
+        if (table.length >= maximum) {
+            return;
+        }
+        table = new long[Integer.highestOneBit(maximum - 1) << 1];
+        tableMask = table.length - 1;
+        sampleSize = 10 * table.length;
+        size = 0;
+    }
+
+    /**
+     * Returns the estimated number of accesses of the key with the given hash, up to {@link #MAX_COUNT}.
+     */
+    int frequency(int hashCode) {
+        final int hash = spread(hashCode);
+        final int start = (hash & 3) << 2;
+        int frequency = Integer.MAX_VALUE;
+        for (int i = 0; i < 4; i++) {
+            final int index = indexOf(hash, i);
+            final int count = (int) ((table[index] >>> ((start + i) << 2)) & 0xfL);
+            frequency = Math.min(frequency, count);
+        }
+        return frequency;
+    }
+
+    /**
+     * Records an access of the key with the given hash.
+     */
+    void increment(int hashCode) {
+        final int hash = spread(hashCode);
+        final int start = (hash & 3) << 2;
+        // only increment the smallest counters to reduce the over-estimation caused by collisions
+        final int frequency = frequency(hashCode);
+        boolean added = false;
+        for (int i = 0; i < 4; i++) {
+            final int index = indexOf(hash, i);
+            final int offset = (start + i) << 2;
+            if (((table[index] >>> offset) & 0xfL) == frequency && frequency < MAX_COUNT) {
+                table[index] += 1L << offset;
+                added = true;
+            }
+        }
+        if (added && ++size == sampleSize) {
+            reset();
+        }
+    }
+
+    /**
+     * Halves all counters, which ages the estimated frequencies.
+     */
+    private void reset() {
+        int count = 0;
+        for (int i = 0; i < table.length; i++) {
+            count += Long.bitCount(table[i] & ONE_MASK);
+            table[i] = (table[i] >>> 1) & RESET_MASK;
+        }
+        // counters that were odd lost half an increment
+        size = (size >>> 1) - (count >>> 2);
+    }
+
+    private int indexOf(int hash, int i) {
+        long h = (hash + SEEDS[i]) * SEEDS[i];
+        h += h >>> 32;
+        return ((int) h) & tableMask;
+    }
+
+    // applies a supplemental hash function to defend against poor quality hash codes
+    private static int spread(int x) {
+        x = ((x >>> 16) ^ x) * 0x45d9f3b;
+        x = ((x >>> 16) ^ x) * 0x45d9f3b;
+        return (x >>> 16) ^ x;
+    }
+}
@@ -79,8 +79,16 @@ public final class CompressedXContent {
      * Create a {@link CompressedXContent} out of a {@link ToXContent} instance.
      */
     public CompressedXContent(ToXContent xcontent, XContentType type, ToXContent.Params params) throws IOException {
+        this(xcontent, type, params, CompressorFactory.COMPRESSOR);
+    }
+
+    /**
+     * Create a {@link CompressedXContent} out of a {@link ToXContent} instance using the given {@link Compressor}.
+     */
+    public CompressedXContent(ToXContent xcontent, XContentType type, ToXContent.Params params,
+                              Compressor compressor) throws IOException {
         BytesStreamOutput bStream = new BytesStreamOutput();
-        OutputStream compressedStream = CompressorFactory.COMPRESSOR.streamOutput(bStream);
+        OutputStream compressedStream = compressor.streamOutput(bStream);
         CRC32 crc32 = new CRC32();
         OutputStream checkedStream = new CheckedOutputStream(compressedStream, crc32);
         try (XContentBuilder builder = XContentFactory.contentBuilder(type, checkedStream)) {
@@ -98,14 +106,22 @@ public final class CompressedXContent {
      * that may already be compressed.
      */
     public CompressedXContent(BytesReference data) throws IOException {
-        Compressor compressor = CompressorFactory.compressor(data);
-        if (compressor != null) {
+        this(data, CompressorFactory.COMPRESSOR);
+    }
+
+    /**
+     * Create a {@link CompressedXContent} out of a serialized {@link ToXContent}
+     * that may already be compressed. Uncompressed data is compressed with the
+     * given {@link Compressor}, compressed data is kept as is.
+     */
+    public CompressedXContent(BytesReference data, Compressor compressor) throws IOException {
+        if (CompressorFactory.compressor(data) != null) {
             // already compressed...
             this.bytes = BytesReference.toBytes(data);
             this.crc32 = crc32(new BytesArray(uncompressed()));
         } else {
             BytesStreamOutput out = new BytesStreamOutput();
-            try (OutputStream compressedOutput = CompressorFactory.COMPRESSOR.streamOutput(out)) {
+            try (OutputStream compressedOutput = compressor.streamOutput(out)) {
                 data.writeTo(compressedOutput);
             }
             this.bytes = BytesReference.toBytes(out.bytes());
@@ -34,19 +34,25 @@ public class CompressorFactory {
 
     public static final Compressor COMPRESSOR = new DeflateCompressor();
 
+    public static final Compressor LZ4_COMPRESSOR = new Lz4Compressor();
+
+    private static final Compressor[] COMPRESSORS = new Compressor[] { COMPRESSOR, LZ4_COMPRESSOR };
+
     public static boolean isCompressed(BytesReference bytes) {
         return compressor(bytes) != null;
     }
 
     @Nullable
     public static Compressor compressor(BytesReference bytes) {
-            if (COMPRESSOR.isCompressed(bytes)) {
+        for (Compressor compressor : COMPRESSORS) {
+            if (compressor.isCompressed(bytes)) {
                 // bytes should be either detected as compressed or as xcontent,
                 // if we have bytes that can be either detected as compressed or
                 // as a xcontent, we have a problem
                 assert XContentHelper.xContentType(bytes) == null;
-                return COMPRESSOR;
+                return compressor;
             }
+        }
 
         XContentType contentType = XContentHelper.xContentType(bytes);
         if (contentType == null) {
@@ -59,6 +65,20 @@ public class CompressorFactory {
         return null;
     }
 
+    /**
+     * Returns the compressor with the given name, either {@code deflate} or {@code lz4}.
+     */
+    public static Compressor forName(String name) {
+        switch (name) {
+            case "deflate":
+                return COMPRESSOR;
+            case "lz4":
+                return LZ4_COMPRESSOR;
+            default:
+                throw new IllegalArgumentException("unknown compressor [" + name + "], expected [deflate] or [lz4]");
+        }
+    }
+
     /** true if the bytes were compressed with LZF: only used before elasticsearch 2.0 */
     private static boolean isAncient(BytesReference bytes) {
         return bytes.length() >= 3 &&
@@ -0,0 +1,452 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.common.compress;
+
+import org.apache.lucene.util.ArrayUtil;
+import org.elasticsearch.common.bytes.BytesReference;
+import org.elasticsearch.common.io.stream.InputStreamStreamInput;
+import org.elasticsearch.common.io.stream.OutputStreamStreamOutput;
+import org.elasticsearch.common.io.stream.StreamInput;
+import org.elasticsearch.common.io.stream.StreamOutput;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Arrays;
+
+/**
+ * {@link Compressor} implementation based on the LZ4 block format. It compresses less than {@link DeflateCompressor} but is
+ * several times faster, which makes it a better fit for transport compression on fast links.
+ * <p>
+ * The compressed stream starts with a header and is followed by blocks of up to {@link #BLOCK_SIZE} bytes, each block is written
+ * as its decompressed length, its compressed length and the compressed bytes. Blocks that don't compress are stored as they are,
+ * which is signaled by a compressed length equal to the decompressed length. The stream ends with a block of length 0.
+ */
+public class Lz4Compressor implements Compressor {
+
+    // An arbitrary header that we use to identify compressed streams
+    // It needs to be different from other compressors and to not be specific
+    // enough so that no stream starting with these bytes could be detected as
+    // a XContent
+    private static final byte[] HEADER = new byte[]{'L', 'Z', '4', '\0'};
+    static final int BLOCK_SIZE = 1 << 16;
+
+    private static final int MIN_MATCH = 4;
+    // the last match must start at least 12 bytes before the end of the block
+    private static final int MF_LIMIT = 12;
+    // the last 5 bytes of a block are always literals
+    private static final int LAST_LITERALS = 5;
+    private static final int MAX_DISTANCE = (1 << 16) - 1;
+    private static final int HASH_LOG = 12;
+    private static final int ML_MASK = 0x0F;
+    private static final int RUN_MASK = 0x0F;
+
+    @Override
+    public boolean isCompressed(BytesReference bytes) {
+        if (bytes.length() < HEADER.length) {
+            return false;
+        }
+        for (int i = 0; i < HEADER.length; ++i) {
+            if (bytes.get(i) != HEADER[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public StreamInput streamInput(StreamInput in) throws IOException {
+        final byte[] headerBytes = new byte[HEADER.length];
+        int len = 0;
+        while (len < headerBytes.length) {
+            final int read = in.read(headerBytes, len, headerBytes.length - len);
+            if (read == -1) {
+                break;
+            }
+            len += read;
+        }
+        if (len != HEADER.length || Arrays.equals(headerBytes, HEADER) == false) {
+            throw new IllegalArgumentException("Input stream is not compressed with LZ4!");
+        }
+        return new InputStreamStreamInput(new Lz4InputStream(in));
+    }
+
+    @Override
+    public StreamOutput streamOutput(StreamOutput out) throws IOException {
+        out.writeBytes(HEADER);
+        return new OutputStreamStreamOutput(new Lz4OutputStream(out));
+    }
+
+    /**
+     * Returns the maximum number of bytes that compressing {@code length} bytes can produce.
+     */
+    static int maxCompressedLength(int length) {
+        return length + length / 255 + 16;
+    }
+
+    /**
+     * Compresses {@code length} bytes of {@code src} starting at {@code offset} into {@code dest}, which must be at least
+     * {@link #maxCompressedLength(int)} bytes long, and returns the number of bytes written. The hash table is used as scratch
+     * space and is reset on every call.
+     */
+    static int compress(byte[] src, int offset, int length, byte[] dest, int[] hashTable) {
+        Arrays.fill(hashTable, -1);
+        final int end = offset + length;
+        int sOff = offset;
+        int anchor = offset;
+        int dOff = 0;
+        if (length > MF_LIMIT) {
+            final int limit = end - MF_LIMIT;
+            final int matchLimit = end - LAST_LITERALS;
+            while (sOff < limit) {
+                final int value = readInt(src, sOff);
+                final int hash = hash(value);
+                int ref = hashTable[hash];
+                hashTable[hash] = sOff;
+                if (ref < 0 || sOff - ref > MAX_DISTANCE || readInt(src, ref) != value) {
+                    ++sOff;
+                    continue;
+                }
+                // extend the match backwards over the pending literals
+                while (sOff > anchor && ref > offset && src[sOff - 1] == src[ref - 1]) {
+                    --sOff;
+                    --ref;
+                }
+                int matchLength = MIN_MATCH;
+                while (sOff + matchLength < matchLimit && src[ref + matchLength] == src[sOff + matchLength]) {
+                    ++matchLength;
+                }
+                dOff = writeSequence(src, anchor, sOff - anchor, sOff - ref, matchLength, dest, dOff);
+                sOff += matchLength;
+                anchor = sOff;
+            }
+        }
+        // the remaining bytes are written as literals
+        final int literalLength = end - anchor;
+        dOff = writeLength(literalLength, RUN_MASK, 4, dest, dOff);
+        System.arraycopy(src, anchor, dest, dOff, literalLength);
+        return dOff + literalLength;
+    }
+
+    /**
+     * Decompresses {@code length} bytes of {@code src} starting at {@code offset} into {@code dest}, which must receive exactly
+     * {@code decompressedLength} bytes.
+     */
+    static void decompress(byte[] src, int offset, int length, byte[] dest, int decompressedLength) throws IOException {
+        final int end = offset + length;
+        int sOff = offset;
+        int dOff = 0;
+        while (true) {
+            if (sOff >= end) {
+                throw new IOException("Corrupted LZ4 block: missing token");
+            }
+            final int token = src[sOff++] & 0xFF;
+
+            int literalLength = token >>> 4;
+            if (literalLength == RUN_MASK) {
+                int b;
+                do {
+                    if (sOff >= end) {
+                        throw new IOException("Corrupted LZ4 block: truncated literal length");
+                    }
+                    b = src[sOff++] & 0xFF;
+                    literalLength += b;
+                } while (b == 0xFF);
+            }
+            if (literalLength > end - sOff || literalLength > decompressedLength - dOff) {
+                throw new IOException("Corrupted LZ4 block: literals out of bounds");
+            }
+            System.arraycopy(src, sOff, dest, dOff, literalLength);
+            sOff += literalLength;
+            dOff += literalLength;
+            if (sOff == end) {
+                // the last sequence has no match
+                break;
+            }
+
+            if (end - sOff < 2) {
+                throw new IOException("Corrupted LZ4 block: truncated match offset");
+            }
+            final int matchOffset = (src[sOff++] & 0xFF) | ((src[sOff++] & 0xFF) << 8);
+            int matchLength = token & ML_MASK;
+            if (matchLength == ML_MASK) {
+                int b;
+                do {
+                    if (sOff >= end) {
+                        throw new IOException("Corrupted LZ4 block: truncated match length");
+                    }
+                    b = src[sOff++] & 0xFF;
+                    matchLength += b;
+                } while (b == 0xFF);
+            }
+            matchLength += MIN_MATCH;
+            final int ref = dOff - matchOffset;
+            if (matchOffset == 0 || ref < 0 || matchLength > decompressedLength - dOff) {
+                throw new IOException("Corrupted LZ4 block: match out of bounds");
+            }
+            if (matchOffset >= matchLength) {
+                System.arraycopy(dest, ref, dest, dOff, matchLength);
+            } else {
+                // overlapping match, bytes need to be copied one by one
+                for (int i = 0; i < matchLength; ++i) {
+                    dest[dOff + i] = dest[ref + i];
+                }
+            }
+            dOff += matchLength;
+        }
+        if (dOff != decompressedLength) {
+            throw new IOException("Corrupted LZ4 block: expected [" + decompressedLength + "] bytes but got [" + dOff + "]");
+        }
+    }
+
+    private static int writeSequence(byte[] src, int literalOffset, int literalLength, int matchOffset, int matchLength,
+                                     byte[] dest, int dOff) {
+        final int tokenOff = dOff;
+        dOff = writeLength(literalLength, RUN_MASK, 4, dest, dOff);
+        System.arraycopy(src, literalOffset, dest, dOff, literalLength);
+        dOff += literalLength;
+        dest[dOff++] = (byte) matchOffset;
+        dest[dOff++] = (byte) (matchOffset >>> 8);
+        final int length = matchLength - MIN_MATCH;
+        if (length >= ML_MASK) {
+            dest[tokenOff] |= ML_MASK;
+            dOff = writeLengthBytes(length - ML_MASK, dest, dOff);
+        } else {
+            dest[tokenOff] |= length;
+        }
+        return dOff;
+    }
+
+    /**
+     * Writes the token that holds the given length in the bits at {@code shift}, followed by the extra length bytes if needed.
+     */
+    private static int writeLength(int length, int mask, int shift, byte[] dest, int dOff) {
+        if (length >= mask) {
+            dest[dOff++] = (byte) (mask << shift);
+            return writeLengthBytes(length - mask, dest, dOff);
+        } else {
+            dest[dOff++] = (byte) (length << shift);
+            return dOff;
+        }
+    }
+
+    private static int writeLengthBytes(int length, byte[] dest, int dOff) {
+        while (length >= 0xFF) {
+            dest[dOff++] = (byte) 0xFF;
+            length -= 0xFF;
+        }
+        dest[dOff++] = (byte) length;
+        return dOff;
+    }
+
+    private static int readInt(byte[] bytes, int offset) {
+        return ((bytes[offset] & 0xFF) << 24) | ((bytes[offset + 1] & 0xFF) << 16)
+            | ((bytes[offset + 2] & 0xFF) << 8) | (bytes[offset + 3] & 0xFF);
+    }
+
+    private static int hash(int value) {
+        return (value * -1640531535) >>> (32 - HASH_LOG);
+    }
+
+    private static final class Lz4OutputStream extends OutputStream {
+
+        private final StreamOutput out;
+        private byte[] buffer = new byte[0];
+        private int bufferLength = 0;
+        private byte[] compressed;
+        private int[] hashTable;
+        private boolean closed = false;
+
+        Lz4OutputStream(StreamOutput out) {
+            this.out = out;
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            if (bufferLength == BLOCK_SIZE) {
+                writeBlock();
+            }
+            ensureCapacity(1);
+            buffer[bufferLength++] = (byte) b;
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            while (len > 0) {
+                if (bufferLength == BLOCK_SIZE) {
+                    writeBlock();
+                }
+                final int toCopy = Math.min(len, BLOCK_SIZE - bufferLength);
+                ensureCapacity(toCopy);
+                System.arraycopy(b, off, buffer, bufferLength, toCopy);
+                bufferLength += toCopy;
+                off += toCopy;
+                len -= toCopy;
+            }
+        }
+
+        /**
+         * Grows the buffer so that it can hold {@code length} more bytes, which must not exceed the size of a block.
+         */
+        private void ensureCapacity(int length) {
+            if (bufferLength + length > buffer.length) {
+                // the buffer grows lazily so that small messages don't allocate full blocks
+                buffer = Arrays.copyOf(buffer, Math.min(BLOCK_SIZE, ArrayUtil.oversize(bufferLength + length, Byte.BYTES)));
+            }
+        }
+
+        private void writeBlock() throws IOException {
+            if (bufferLength == 0) {
+                return;
+            }
+            if (compressed == null || compressed.length < maxCompressedLength(bufferLength)) {
+                compressed = new byte[maxCompressedLength(buffer.length)];
+            }
+            if (hashTable == null) {
+                hashTable = new int[1 << HASH_LOG];
+            }
+            final int compressedLength = compress(buffer, 0, bufferLength, compressed, hashTable);
+            out.writeVInt(bufferLength);
+            if (compressedLength < bufferLength) {
+                out.writeVInt(compressedLength);
+                out.writeBytes(compressed, 0, compressedLength);
+            } else {
+                // store the block as it is
+                out.writeVInt(bufferLength);
+                out.writeBytes(buffer, 0, bufferLength);
+            }
+            bufferLength = 0;
+        }
+
+        @Override
+        public void flush() throws IOException {
+            writeBlock();
+            out.flush();
+        }
+
+        @Override
+        public void close() throws IOException {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            try {
+                writeBlock();
+                // end of stream marker
+                out.writeVInt(0);
+            } finally {
+                out.close();
+            }
+        }
+    }
+
+    private static final class Lz4InputStream extends InputStream {
+
+        private final StreamInput in;
+        private byte[] buffer = new byte[0];
+        private byte[] compressed = new byte[0];
+        private int bufferOffset = 0;
+        private int bufferLength = 0;
+        private boolean eos = false;
+
+        Lz4InputStream(StreamInput in) {
+            this.in = in;
+        }
+
+        @Override
+        public int read() throws IOException {
+            if (ensureAvailable() == false) {
+                return -1;
+            }
+            return buffer[bufferOffset++] & 0xFF;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            if (len == 0) {
+                return 0;
+            }
+            if (ensureAvailable() == false) {
+                return -1;
+            }
+            final int toCopy = Math.min(len, bufferLength - bufferOffset);
+            System.arraycopy(buffer, bufferOffset, b, off, toCopy);
+            bufferOffset += toCopy;
+            return toCopy;
+        }
+
+        @Override
+        public int available() throws IOException {
+            return bufferLength - bufferOffset;
+        }
+
+        /**
+         * Reads the next block if the current one has been consumed, returns false once the end of the stream is reached.
+         */
+        private boolean ensureAvailable() throws IOException {
+            while (bufferOffset == bufferLength) {
+                if (eos) {
+                    return false;
+                }
+                readBlock();
+            }
+            return true;
+        }
+
+        private void readBlock() throws IOException {
+            final int decompressedLength;
+            try {
+                decompressedLength = in.readVInt();
+            } catch (EOFException e) {
+                throw new EOFException("Unexpected end of LZ4 stream");
+            }
+            if (decompressedLength == 0) {
+                eos = true;
+                return;
+            }
+            final int compressedLength = in.readVInt();
+            if (decompressedLength < 0 || decompressedLength > BLOCK_SIZE
+                || compressedLength < 0 || compressedLength > maxCompressedLength(BLOCK_SIZE)) {
+                throw new IOException("Corrupted LZ4 stream: invalid block lengths [" + decompressedLength + "]["
+                    + compressedLength + "]");
+            }
+            if (buffer.length < decompressedLength) {
+                buffer = new byte[ArrayUtil.oversize(decompressedLength, Byte.BYTES)];
+            }
+            if (compressedLength == decompressedLength) {
+                in.readBytes(buffer, 0, decompressedLength);
+            } else {
+                if (compressed.length < compressedLength) {
+                    compressed = new byte[ArrayUtil.oversize(compressedLength, Byte.BYTES)];
+                }
+                in.readBytes(compressed, 0, compressedLength);
+                decompress(compressed, 0, compressedLength, buffer, decompressedLength);
+            }
+            bufferOffset = 0;
+            bufferLength = decompressedLength;
+        }
+
+        @Override
+        public void close() throws IOException {
+            in.close();
+        }
+    }
+}
@@ -18,10 +18,14 @@
  */
 package org.elasticsearch.common.lucene.index;
 
+import org.apache.lucene.codecs.StoredFieldsReader;
+import org.apache.lucene.index.CodecReader;
 import org.apache.lucene.index.FilterLeafReader;
 import org.apache.lucene.index.LeafReader;
 import org.elasticsearch.index.shard.ShardId;
 
+import java.io.IOException;
+
 /**
  * A {@link org.apache.lucene.index.FilterLeafReader} that exposes
  * Elasticsearch internal per shard / index information like the shard ID.
@@ -48,6 +52,18 @@ public final class ElasticsearchLeafReader extends FilterLeafReader {
         return this.shardId;
     }
 
+    /**
+     * Returns a {@link StoredFieldsReader} that is optimized for visiting documents in increasing doc id order, or
+     * <code>null</code> if the wrapped reader doesn't provide one. The returned reader keeps decompressed blocks around
+     * between calls and must not be shared between threads.
+     */
+    public StoredFieldsReader getSequentialStoredFieldsReader() throws IOException {
+        if (in instanceof CodecReader) {
+            return ((CodecReader) in).getFieldsReader().getMergeInstance();
+        }
+        return null;
+    }
+
     @Override
     public CacheHelper getCoreCacheHelper() {
         return in.getCoreCacheHelper();
@@ -66,6 +66,13 @@ public final class IndexSettings {
     public static final Setting<TimeValue> INDEX_SEARCH_IDLE_AFTER =
         Setting.timeSetting("index.search.idle.after", TimeValue.timeValueSeconds(30),
             TimeValue.timeValueMinutes(0), Property.IndexScope, Property.Dynamic);
+    /**
+     * How often a search idle shard with pending changes is still refreshed in the background. Defaults to {@code -1} which skips
+     * background refreshes of search idle shards until they receive a search request.
+     */
+    public static final Setting<TimeValue> INDEX_SEARCH_IDLE_REFRESH_INTERVAL =
+        Setting.timeSetting("index.search.idle.refresh_interval", TimeValue.MINUS_ONE, TimeValue.MINUS_ONE,
+            Property.IndexScope, Property.Dynamic);
     public static final Setting<Translog.Durability> INDEX_TRANSLOG_DURABILITY_SETTING =
         new Setting<>("index.translog.durability", Translog.Durability.REQUEST.name(),
             (value) -> Translog.Durability.valueOf(value.toUpperCase(Locale.ROOT)), Property.Dynamic, Property.IndexScope);
@@ -195,6 +202,13 @@ public final class IndexSettings {
             new ByteSizeValue(Long.MAX_VALUE, ByteSizeUnit.BYTES),
             Property.Dynamic, Property.IndexScope);
 
+    /**
+     * The number of threads that replay translog operations when a shard recovers from its local store. Operations on the
+     * same document are always replayed by the same thread in translog order.
+     */
+    public static final Setting<Integer> INDEX_TRANSLOG_RECOVERY_PARALLELISM_SETTING =
+        Setting.intSetting("index.translog.recovery_parallelism", 1, 1, 32, Property.Dynamic, Property.IndexScope);
+
     /**
      * Controls how long translog files that are no longer needed for persistence reasons
      * will be kept around before being deleted. A longer retention policy is useful to increase
@@ -301,6 +315,20 @@ public final class IndexSettings {
     public static final Setting<Boolean> INDEX_SEARCH_THROTTLED = Setting.boolSetting("index.search.throttled", false,
         Property.IndexScope, Property.PrivateIndex, Property.Dynamic);
 
+    /**
+     * Enables searching slices of a shard concurrently on the
+     * {@link org.elasticsearch.threadpool.ThreadPool.Names#SEARCH_WORKER} thread-pool for queries that support it
+     */
+    public static final Setting<Boolean> INDEX_CONCURRENT_SEGMENT_SEARCH_SETTING =
+        Setting.boolSetting("index.search.concurrent_segment_search.enabled", false, Property.IndexScope, Property.Dynamic);
+
+    /**
+     * Enables parsing the index requests of a shard level bulk request concurrently on the
+     * {@link org.elasticsearch.threadpool.ThreadPool.Names#WRITE} thread-pool before they are applied in order on the primary
+     */
+    public static final Setting<Boolean> INDEX_BULK_PARALLEL_PARSING_SETTING =
+        Setting.boolSetting("index.bulk.parallel_parsing.enabled", false, Property.IndexScope, Property.Dynamic);
+
     private final Index index;
     private final Version version;
     private final Logger logger;
@@ -320,6 +348,7 @@ public final class IndexSettings {
     private volatile TimeValue refreshInterval;
     private volatile ByteSizeValue flushThresholdSize;
     private volatile TimeValue translogRetentionAge;
+    private volatile int translogRecoveryParallelism;
     private volatile ByteSizeValue translogRetentionSize;
     private volatile ByteSizeValue generationThresholdSize;
     private final MergeSchedulerConfig mergeSchedulerConfig;
@@ -356,10 +385,13 @@ public final class IndexSettings {
     private volatile int maxNgramDiff;
     private volatile int maxShingleDiff;
     private volatile TimeValue searchIdleAfter;
+    private volatile TimeValue searchIdleRefreshInterval;
     private volatile int maxAnalyzedOffset;
     private volatile int maxTermsCount;
     private volatile String defaultPipeline;
     private volatile boolean searchThrottled;
+    private volatile boolean concurrentSegmentSearch;
+    private volatile boolean bulkParallelParsing;
 
     /**
      * The maximum number of refresh listeners allows on this shard.
@@ -444,6 +476,8 @@ public final class IndexSettings {
         numberOfShards = settings.getAsInt(IndexMetaData.SETTING_NUMBER_OF_SHARDS, null);
 
         this.searchThrottled = INDEX_SEARCH_THROTTLED.get(settings);
+        this.concurrentSegmentSearch = scopedSettings.get(INDEX_CONCURRENT_SEGMENT_SEARCH_SETTING);
+        this.bulkParallelParsing = scopedSettings.get(INDEX_BULK_PARALLEL_PARSING_SETTING);
         this.queryStringLenient = QUERY_STRING_LENIENT_SETTING.get(settings);
         this.queryStringAnalyzeWildcard = QUERY_STRING_ANALYZE_WILDCARD.get(nodeSettings);
         this.queryStringAllowLeadingWildcard = QUERY_STRING_ALLOW_LEADING_WILDCARD.get(nodeSettings);
@@ -454,6 +488,7 @@ public final class IndexSettings {
         refreshInterval = scopedSettings.get(INDEX_REFRESH_INTERVAL_SETTING);
         flushThresholdSize = scopedSettings.get(INDEX_TRANSLOG_FLUSH_THRESHOLD_SIZE_SETTING);
         translogRetentionAge = scopedSettings.get(INDEX_TRANSLOG_RETENTION_AGE_SETTING);
+        translogRecoveryParallelism = scopedSettings.get(INDEX_TRANSLOG_RECOVERY_PARALLELISM_SETTING);
         translogRetentionSize = scopedSettings.get(INDEX_TRANSLOG_RETENTION_SIZE_SETTING);
         generationThresholdSize = scopedSettings.get(INDEX_TRANSLOG_GENERATION_THRESHOLD_SIZE_SETTING);
         mergeSchedulerConfig = new MergeSchedulerConfig(this);
@@ -479,6 +514,7 @@ public final class IndexSettings {
         this.mergePolicyConfig = new MergePolicyConfig(logger, this);
         this.indexSortConfig = new IndexSortConfig(this);
         searchIdleAfter = scopedSettings.get(INDEX_SEARCH_IDLE_AFTER);
+        searchIdleRefreshInterval = scopedSettings.get(INDEX_SEARCH_IDLE_REFRESH_INTERVAL);
         defaultPipeline = scopedSettings.get(DEFAULT_PIPELINE);
 
         scopedSettings.addSettingsUpdateConsumer(MergePolicyConfig.INDEX_COMPOUND_FORMAT_SETTING, mergePolicyConfig::setNoCFSRatio);
@@ -496,6 +532,8 @@ public final class IndexSettings {
             mergePolicyConfig::setMaxMergedSegment);
         scopedSettings.addSettingsUpdateConsumer(MergePolicyConfig.INDEX_MERGE_POLICY_SEGMENTS_PER_TIER_SETTING,
             mergePolicyConfig::setSegmentsPerTier);
+        scopedSettings.addSettingsUpdateConsumer(MergePolicyConfig.INDEX_MERGE_POLICY_MAX_MERGE_AGE_SETTING,
+            mergePolicyConfig::setMaxMergeAge);
 
         scopedSettings.addSettingsUpdateConsumer(MergeSchedulerConfig.MAX_THREAD_COUNT_SETTING,
             MergeSchedulerConfig.MAX_MERGE_COUNT_SETTING, mergeSchedulerConfig::setMaxThreadAndMergeCount);
@@ -518,6 +556,7 @@ public final class IndexSettings {
                 INDEX_TRANSLOG_GENERATION_THRESHOLD_SIZE_SETTING,
                 this::setGenerationThresholdSize);
         scopedSettings.addSettingsUpdateConsumer(INDEX_TRANSLOG_RETENTION_AGE_SETTING, this::setTranslogRetentionAge);
+        scopedSettings.addSettingsUpdateConsumer(INDEX_TRANSLOG_RECOVERY_PARALLELISM_SETTING, this::setTranslogRecoveryParallelism);
         scopedSettings.addSettingsUpdateConsumer(INDEX_TRANSLOG_RETENTION_SIZE_SETTING, this::setTranslogRetentionSize);
         scopedSettings.addSettingsUpdateConsumer(INDEX_REFRESH_INTERVAL_SETTING, this::setRefreshInterval);
         scopedSettings.addSettingsUpdateConsumer(MAX_REFRESH_LISTENERS_PER_SHARD, this::setMaxRefreshListeners);
@@ -526,15 +565,22 @@ public final class IndexSettings {
         scopedSettings.addSettingsUpdateConsumer(MAX_SLICES_PER_SCROLL, this::setMaxSlicesPerScroll);
         scopedSettings.addSettingsUpdateConsumer(DEFAULT_FIELD_SETTING, this::setDefaultFields);
         scopedSettings.addSettingsUpdateConsumer(INDEX_SEARCH_IDLE_AFTER, this::setSearchIdleAfter);
+        scopedSettings.addSettingsUpdateConsumer(INDEX_SEARCH_IDLE_REFRESH_INTERVAL, this::setSearchIdleRefreshInterval);
         scopedSettings.addSettingsUpdateConsumer(MAX_REGEX_LENGTH_SETTING, this::setMaxRegexLength);
         scopedSettings.addSettingsUpdateConsumer(DEFAULT_PIPELINE, this::setDefaultPipeline);
         scopedSettings.addSettingsUpdateConsumer(INDEX_SOFT_DELETES_RETENTION_OPERATIONS_SETTING, this::setSoftDeleteRetentionOperations);
         scopedSettings.addSettingsUpdateConsumer(INDEX_SEARCH_THROTTLED, this::setSearchThrottled);
+        scopedSettings.addSettingsUpdateConsumer(INDEX_CONCURRENT_SEGMENT_SEARCH_SETTING, this::setConcurrentSegmentSearch);
+        scopedSettings.addSettingsUpdateConsumer(INDEX_BULK_PARALLEL_PARSING_SETTING, this::setBulkParallelParsing);
         scopedSettings.addSettingsUpdateConsumer(INDEX_SOFT_DELETES_RETENTION_LEASE_PERIOD_SETTING, this::setRetentionLeaseMillis);
     }
 
     private void setSearchIdleAfter(TimeValue searchIdleAfter) { this.searchIdleAfter = searchIdleAfter; }
 
+    private void setSearchIdleRefreshInterval(TimeValue searchIdleRefreshInterval) {
+        this.searchIdleRefreshInterval = searchIdleRefreshInterval;
+    }
+
     private void setTranslogFlushThresholdSize(ByteSizeValue byteSizeValue) {
         this.flushThresholdSize = byteSizeValue;
     }
@@ -547,6 +593,10 @@ public final class IndexSettings {
         this.translogRetentionAge = age;
     }
 
+    private void setTranslogRecoveryParallelism(int translogRecoveryParallelism) {
+        this.translogRecoveryParallelism = translogRecoveryParallelism;
+    }
+
     private void setGenerationThresholdSize(final ByteSizeValue generationThresholdSize) {
         this.generationThresholdSize = generationThresholdSize;
     }
@@ -729,6 +779,11 @@ public final class IndexSettings {
      */
     public TimeValue getTranslogRetentionAge() { return translogRetentionAge; }
 
+    /**
+     * Returns the number of threads that replay translog operations when a shard recovers from its local store
+     */
+    public int getTranslogRecoveryParallelism() { return translogRecoveryParallelism; }
+
     /**
      * Returns the generation threshold size. As sequence numbers can cause multiple generations to
      * be preserved for rollback purposes, we want to keep the size of individual generations from
@@ -925,6 +980,11 @@ public final class IndexSettings {
      */
     public TimeValue getSearchIdleAfter() { return searchIdleAfter; }
 
+    /**
+     * Returns how often a search idle shard is refreshed in the background, a negative value disables these refreshes
+     */
+    public TimeValue getSearchIdleRefreshInterval() { return searchIdleRefreshInterval; }
+
     public String getDefaultPipeline() {
         return defaultPipeline;
     }
@@ -962,4 +1022,28 @@ public final class IndexSettings {
     private void setSearchThrottled(boolean searchThrottled) {
         this.searchThrottled = searchThrottled;
     }
+
+    /**
+     * Returns true if slices of this index's shards may be searched concurrently using the
+     * {@link org.elasticsearch.threadpool.ThreadPool.Names#SEARCH_WORKER} thread-pool
+     */
+    public boolean isConcurrentSegmentSearch() {
+        return concurrentSegmentSearch;
+    }
+
+    private void setConcurrentSegmentSearch(boolean concurrentSegmentSearch) {
+        this.concurrentSegmentSearch = concurrentSegmentSearch;
+    }
+
+    /**
+     * Returns true if the index requests of shard level bulk requests may be parsed concurrently using the idle threads of the
+     * {@link org.elasticsearch.threadpool.ThreadPool.Names#WRITE} thread-pool
+     */
+    public boolean isBulkParallelParsing() {
+        return bulkParallelParsing;
+    }
+
+    private void setBulkParallelParsing(boolean bulkParallelParsing) {
+        this.bulkParallelParsing = bulkParallelParsing;
+    }
 }
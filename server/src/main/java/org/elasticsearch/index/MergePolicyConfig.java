@@ -27,6 +27,7 @@ import org.elasticsearch.common.settings.Setting;
 import org.elasticsearch.common.settings.Setting.Property;
 import org.elasticsearch.common.unit.ByteSizeUnit;
 import org.elasticsearch.common.unit.ByteSizeValue;
+import org.elasticsearch.common.unit.TimeValue;
 
 /**
  * A shard in elasticsearch is a Lucene index, and a Lucene index is broken
@@ -88,9 +89,22 @@ import org.elasticsearch.common.unit.ByteSizeValue;
  *     the index. Lower values make the index more space efficient at the
  *     expense of increased CPU and I/O activity. Values must be between <code>20</code> and
  *     <code>50</code>. Default value is <code>33</code>.
+ *
+ * <li><code>index.merge.policy.max_merge_age</code>:
+ *
+ *     Only applies if a <code>index.merge.policy.timestamp_field</code> is set. Segments
+ *     whose newest timestamp is older than this are not merged anymore, except by force
+ *     merges. Default is <code>-1</code> which means that segments are merged regardless of
+ *     their age.
  * </ul>
  *
  * <p>
+ * If the <b>static</b> <code>index.merge.policy.timestamp_field</code> setting names a
+ * <code>date</code> field, the {@link TimeBasedMergePolicy} is used instead: it orders
+ * segments by the range of the timestamps they contain and only merges segments that are
+ * adjacent in this order, so that the time ranges of the segments stay disjoint.
+ *
+ * <p>
  * For normal merging, the policy first computes a "budget" of how many
  * segments are allowed to be in the index. If the index is over-budget,
  * then the policy sorts segments by decreasing size (proportionally considering percent
@@ -117,6 +131,7 @@ import org.elasticsearch.common.unit.ByteSizeValue;
 
 public final class MergePolicyConfig {
     private final EsTieredMergePolicy mergePolicy = new EsTieredMergePolicy();
+    private final TimeBasedMergePolicy timeBasedMergePolicy;
     private final Logger logger;
     private final boolean mergesEnabled;
 
@@ -156,6 +171,11 @@ public final class MergePolicyConfig {
     public static final Setting<Double> INDEX_MERGE_POLICY_DELETES_PCT_ALLOWED_SETTING =
         Setting.doubleSetting("index.merge.policy.deletes_pct_allowed", DEFAULT_DELETES_PCT_ALLOWED, 20.0d, 50.0d,
             Property.Dynamic, Property.IndexScope);
+    public static final Setting<String> INDEX_MERGE_POLICY_TIMESTAMP_FIELD_SETTING =
+        Setting.simpleString("index.merge.policy.timestamp_field", Property.IndexScope);
+    public static final Setting<TimeValue> INDEX_MERGE_POLICY_MAX_MERGE_AGE_SETTING =
+        Setting.timeSetting("index.merge.policy.max_merge_age", TimeValue.MINUS_ONE, TimeValue.MINUS_ONE,
+            Property.Dynamic, Property.IndexScope);
     // don't convert to Setting<> and register... we only set this in tests and register via a plugin
     public static final String INDEX_MERGE_ENABLED = "index.merge.enabled";
 
@@ -185,12 +205,23 @@ public final class MergePolicyConfig {
         mergePolicy.setMaxMergedSegmentMB(maxMergedSegment.getMbFrac());
         mergePolicy.setSegmentsPerTier(segmentsPerTier);
         mergePolicy.setDeletesPctAllowed(deletesPctAllowed);
+        final String timestampField = indexSettings.getValue(INDEX_MERGE_POLICY_TIMESTAMP_FIELD_SETTING);
+        if (timestampField.isEmpty()) {
+            timeBasedMergePolicy = null;
+        } else {
+            timeBasedMergePolicy = new TimeBasedMergePolicy(mergePolicy, timestampField,
+                indexSettings.getValue(INDEX_MERGE_POLICY_MAX_MERGE_AGE_SETTING), System::currentTimeMillis);
+        }
         if (logger.isTraceEnabled()) {
             logger.trace("using [tiered] merge mergePolicy with expunge_deletes_allowed[{}], floor_segment[{}]," +
                     " max_merge_at_once[{}], max_merge_at_once_explicit[{}], max_merged_segment[{}], segments_per_tier[{}]," +
                     " deletes_pct_allowed[{}]",
                 forceMergeDeletesPctAllowed, floorSegment, maxMergeAtOnce, maxMergeAtOnceExplicit, maxMergedSegment, segmentsPerTier,
                 deletesPctAllowed);
+            if (timeBasedMergePolicy != null) {
+                logger.trace("merging adjacent segments of timestamp_field[{}], max_merge_age[{}]", timestampField,
+                    indexSettings.getValue(INDEX_MERGE_POLICY_MAX_MERGE_AGE_SETTING));
+            }
         }
     }
 
@@ -226,6 +257,12 @@ public final class MergePolicyConfig {
         mergePolicy.setDeletesPctAllowed(deletesPctAllowed);
     }
 
+    void setMaxMergeAge(TimeValue maxMergeAge) {
+        if (timeBasedMergePolicy != null) {
+            timeBasedMergePolicy.setMaxMergeAge(maxMergeAge);
+        }
+    }
+
     private int adjustMaxMergeAtOnceIfNeeded(int maxMergeAtOnce, double segmentsPerTier) {
         // fixing maxMergeAtOnce, see TieredMergePolicy#setMaxMergeAtOnce
         if (!(segmentsPerTier >= maxMergeAtOnce)) {
@@ -243,7 +280,10 @@ public final class MergePolicyConfig {
     }
 
     MergePolicy getMergePolicy() {
-        return mergesEnabled ? mergePolicy : NoMergePolicy.INSTANCE;
+        if (mergesEnabled == false) {
+            return NoMergePolicy.INSTANCE;
+        }
+        return timeBasedMergePolicy != null ? timeBasedMergePolicy : mergePolicy;
     }
 
     private static double parseNoCFSRatio(String noCFSRatio) {
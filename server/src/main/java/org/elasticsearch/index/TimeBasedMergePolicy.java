@@ -0,0 +1,274 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.index;
+
+import org.apache.lucene.codecs.Codec;
+import org.apache.lucene.codecs.PointsReader;
+import org.apache.lucene.document.LongPoint;
+import org.apache.lucene.index.FieldInfo;
+import org.apache.lucene.index.FieldInfos;
+import org.apache.lucene.index.FilterMergePolicy;
+import org.apache.lucene.index.MergeTrigger;
+import org.apache.lucene.index.PointValues;
+import org.apache.lucene.index.SegmentCommitInfo;
+import org.apache.lucene.index.SegmentInfo;
+import org.apache.lucene.index.SegmentInfos;
+import org.apache.lucene.index.SegmentReadState;
+import org.apache.lucene.store.Directory;
+import org.apache.lucene.store.IOContext;
+import org.elasticsearch.common.unit.TimeValue;
+import org.elasticsearch.core.internal.io.IOUtils;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.LongSupplier;
+
+/**
+ * A merge policy for append-mostly time-series indices. Segments are ordered by the range of values of a timestamp field, which is
+ * read from the points of the field, and only segments that are adjacent in this order are merged together. This keeps the time
+ * ranges of the segments disjoint, so that range queries on the timestamp can skip whole segments. How many segments are allowed
+ * and how large merged segments may get is computed like {@link org.apache.lucene.index.TieredMergePolicy} does, with the settings
+ * of the wrapped {@link EsTieredMergePolicy}. Segments whose newest timestamp is older than the configured maximum merge age are
+ * not merged anymore, so that old data isn't rewritten over and over again. Forced merges and expunge deletes are delegated to the
+ * wrapped policy.
+ */
+final class TimeBasedMergePolicy extends FilterMergePolicy {
+
+    private static final TimestampRange UNKNOWN = new TimestampRange(Long.MAX_VALUE, Long.MAX_VALUE);
+
+    private static final Comparator<Segment> TIME_ORDER = Comparator.<Segment>comparingLong(s -> s.range.min)
+        .thenComparingLong(s -> s.range.max)
+        .thenComparing(s -> s.info.info.name);
+
+    private final EsTieredMergePolicy tieredMergePolicy;
+    private final String timestampField;
+    private final LongSupplier currentTimeMillisSupplier;
+    private final Map<String, TimestampRange> ranges = new ConcurrentHashMap<>();
+    private volatile TimeValue maxMergeAge;
+
+    TimeBasedMergePolicy(EsTieredMergePolicy in, String timestampField, TimeValue maxMergeAge, LongSupplier currentTimeMillisSupplier) {
+        super(in);
+        this.tieredMergePolicy = in;
+        this.timestampField = timestampField;
+        this.currentTimeMillisSupplier = currentTimeMillisSupplier;
+        setMaxMergeAge(maxMergeAge);
+    }
+
+    void setMaxMergeAge(TimeValue maxMergeAge) {
+        this.maxMergeAge = maxMergeAge;
+    }
+
+    TimeValue getMaxMergeAge() {
+        return maxMergeAge;
+    }
+
+    String getTimestampField() {
+        return timestampField;
+    }
+
+    EsTieredMergePolicy getTieredMergePolicy() {
+        return tieredMergePolicy;
+    }
+
+    @Override
+    public MergeSpecification findMerges(MergeTrigger mergeTrigger, SegmentInfos infos, MergeContext mergeContext) throws IOException {
+        final long maxMergedSegmentBytes = (long) (tieredMergePolicy.getMaxMergedSegmentMB() * 1024 * 1024);
+        final long floorSegmentBytes = (long) (tieredMergePolicy.getFloorSegmentMB() * 1024 * 1024);
+        final int maxMergeAtOnce = tieredMergePolicy.getMaxMergeAtOnce();
+        final double segmentsPerTier = tieredMergePolicy.getSegmentsPerTier();
+        final long maxMergeAgeMillis = maxMergeAge.millis();
+        final long oldestMergedTimestamp =
+            maxMergeAgeMillis < 0 ? Long.MIN_VALUE : currentTimeMillisSupplier.getAsLong() - maxMergeAgeMillis;
+        final Set<SegmentCommitInfo> merging = mergeContext.getMergingSegments();
+
+        final Set<String> segmentNames = new HashSet<>();
+        final List<Segment> segments = new ArrayList<>();
+        long totalBytes = 0;
+        long minSegmentBytes = Long.MAX_VALUE;
+        int numEligible = 0;
+        for (SegmentCommitInfo info : infos) {
+            segmentNames.add(info.info.name);
+            final TimestampRange range = timestampRange(info.info);
+            if (range != UNKNOWN && range.max < oldestMergedTimestamp) {
+                // too old to be merged again
+                continue;
+            }
+            final long bytes = size(info, mergeContext);
+            final boolean tooLarge = bytes > maxMergedSegmentBytes / 2;
+            final Segment segment = new Segment(info, range, bytes, merging.contains(info) || tooLarge);
+            segments.add(segment);
+            if (tooLarge == false) {
+                totalBytes += bytes;
+                minSegmentBytes = Math.min(minSegmentBytes, bytes);
+            }
+            if (segment.excluded == false) {
+                numEligible++;
+            }
+        }
+        // forget about segments that have been merged away
+        ranges.keySet().retainAll(segmentNames);
+        if (numEligible < 2) {
+            return null;
+        }
+
+        // compute the number of allowed segments like TieredMergePolicy does
+        final int mergeFactor = Math.min(maxMergeAtOnce, (int) segmentsPerTier);
+        long levelSize = Math.max(1, Math.max(minSegmentBytes, floorSegmentBytes));
+        long bytesLeft = totalBytes;
+        double allowedSegmentCount = 0;
+        while (true) {
+            final double segmentCountLevel = bytesLeft / (double) levelSize;
+            if (segmentCountLevel < segmentsPerTier || levelSize >= maxMergedSegmentBytes) {
+                allowedSegmentCount += Math.ceil(segmentCountLevel);
+                break;
+            }
+            allowedSegmentCount += segmentsPerTier;
+            bytesLeft -= segmentsPerTier * levelSize;
+            levelSize = Math.min(maxMergedSegmentBytes, levelSize * mergeFactor);
+        }
+        allowedSegmentCount = Math.max(allowedSegmentCount, segmentsPerTier);
+
+        segments.sort(TIME_ORDER);
+        MergeSpecification spec = null;
+        while (numEligible > allowedSegmentCount) {
+            // find the cheapest run of adjacent segments, segments that can't be merged break runs
+            int bestStart = -1;
+            int bestEnd = -1;
+            double bestScore = Double.POSITIVE_INFINITY;
+            for (int start = 0; start < segments.size(); start++) {
+                long mergeBytes = 0;
+                long mergeBytesFloored = 0;
+                long bytesBeforeDeletes = 0;
+                long largestBytesFloored = 0;
+                for (int end = start; end < segments.size() && end - start < maxMergeAtOnce; end++) {
+                    final Segment segment = segments.get(end);
+                    if (segment.excluded || mergeBytes + segment.bytes > maxMergedSegmentBytes) {
+                        break;
+                    }
+                    final long segmentBytesFloored = Math.max(floorSegmentBytes, segment.bytes);
+                    mergeBytes += segment.bytes;
+                    mergeBytesFloored += segmentBytesFloored;
+                    bytesBeforeDeletes += segment.info.sizeInBytes();
+                    largestBytesFloored = Math.max(largestBytesFloored, segmentBytesFloored);
+                    if (end > start) {
+                        // favor merges of many segments of similar sizes, that are small and reclaim deletes
+                        final double skew = (double) largestBytesFloored / mergeBytesFloored;
+                        final double nonDeletedRatio = bytesBeforeDeletes == 0 ? 1.0 : (double) mergeBytes / bytesBeforeDeletes;
+                        final double score = skew * Math.pow(mergeBytes, 0.05) * nonDeletedRatio * nonDeletedRatio;
+                        if (score < bestScore) {
+                            bestScore = score;
+                            bestStart = start;
+                            bestEnd = end;
+                        }
+                    }
+                }
+            }
+            if (bestStart == -1) {
+                break;
+            }
+            final List<SegmentCommitInfo> toMerge = new ArrayList<>();
+            for (int i = bestStart; i <= bestEnd; i++) {
+                final Segment segment = segments.get(i);
+                segment.excluded = true;
+                toMerge.add(segment.info);
+            }
+            if (spec == null) {
+                spec = new MergeSpecification();
+            }
+            spec.add(new OneMerge(toMerge));
+            numEligible -= toMerge.size();
+        }
+        return spec;
+    }
+
+    private TimestampRange timestampRange(SegmentInfo segmentInfo) throws IOException {
+        TimestampRange range = ranges.get(segmentInfo.name);
+        if (range == null) {
+            // segments are immutable, the points of a segment never change
+            range = readTimestampRange(segmentInfo, timestampField);
+            ranges.put(segmentInfo.name, range);
+        }
+        return range;
+    }
+
+    /**
+     * Reads the minimum and maximum value of the given long point field from the points index of a segment, without opening a
+     * reader on the whole segment.
+     */
+    static TimestampRange readTimestampRange(SegmentInfo segmentInfo, String field) throws IOException {
+        final Codec codec = segmentInfo.getCodec();
+        Directory compoundDirectory = null;
+        try {
+            final Directory directory;
+            if (segmentInfo.getUseCompoundFile()) {
+                compoundDirectory = codec.compoundFormat().getCompoundReader(segmentInfo.dir, segmentInfo, IOContext.READ);
+                directory = compoundDirectory;
+            } else {
+                directory = segmentInfo.dir;
+            }
+            final FieldInfos fieldInfos = codec.fieldInfosFormat().read(directory, segmentInfo, "", IOContext.READ);
+            final FieldInfo fieldInfo = fieldInfos.fieldInfo(field);
+            if (fieldInfo == null || fieldInfo.getPointDataDimensionCount() != 1 || fieldInfo.getPointNumBytes() != Long.BYTES) {
+                return UNKNOWN;
+            }
+            try (PointsReader pointsReader = codec.pointsFormat().fieldsReader(
+                    new SegmentReadState(directory, segmentInfo, fieldInfos, IOContext.READ))) {
+                final PointValues values = pointsReader.getValues(field);
+                if (values == null || values.size() == 0) {
+                    return UNKNOWN;
+                }
+                return new TimestampRange(LongPoint.decodeDimension(values.getMinPackedValue(), 0),
+                    LongPoint.decodeDimension(values.getMaxPackedValue(), 0));
+            }
+        } finally {
+            IOUtils.close(compoundDirectory);
+        }
+    }
+
+    static final class TimestampRange {
+        final long min;
+        final long max;
+
+        TimestampRange(long min, long max) {
+            this.min = min;
+            this.max = max;
+        }
+    }
+
+    private static final class Segment {
+        final SegmentCommitInfo info;
+        final TimestampRange range;
+        final long bytes;
+        boolean excluded;
+
+        Segment(SegmentCommitInfo info, TimestampRange range, long bytes, boolean excluded) {
+            this.info = info;
+            this.range = range;
+            this.bytes = bytes;
+            this.excluded = excluded;
+        }
+    }
+}
@@ -0,0 +1,408 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.index.codec;
+
+import org.apache.lucene.codecs.CodecUtil;
+import org.apache.lucene.codecs.FieldsConsumer;
+import org.apache.lucene.codecs.FieldsProducer;
+import org.apache.lucene.codecs.NormsProducer;
+import org.apache.lucene.codecs.PostingsFormat;
+import org.apache.lucene.codecs.lucene50.Lucene50PostingsFormat;
+import org.apache.lucene.index.CorruptIndexException;
+import org.apache.lucene.index.FieldInfo;
+import org.apache.lucene.index.Fields;
+import org.apache.lucene.index.FilterLeafReader;
+import org.apache.lucene.index.IndexFileNames;
+import org.apache.lucene.index.PostingsEnum;
+import org.apache.lucene.index.SegmentReadState;
+import org.apache.lucene.index.SegmentWriteState;
+import org.apache.lucene.index.Terms;
+import org.apache.lucene.index.TermsEnum;
+import org.apache.lucene.search.DocIdSetIterator;
+import org.apache.lucene.store.ChecksumIndexInput;
+import org.apache.lucene.store.DataInput;
+import org.apache.lucene.store.DataOutput;
+import org.apache.lucene.store.IndexOutput;
+import org.apache.lucene.util.Accountable;
+import org.apache.lucene.util.Accountables;
+import org.apache.lucene.util.BytesRef;
+import org.apache.lucene.util.IOUtils;
+import org.apache.lucene.util.RamUsageEstimator;
+import org.apache.lucene.util.automaton.CompiledAutomaton;
+import org.elasticsearch.common.hash.MurmurHash3;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A {@link PostingsFormat} that writes the postings with the {@link Lucene50PostingsFormat} and additionally stores a bloom
+ * filter of the terms of every field. {@link TermsEnum#seekExact(BytesRef)} consults the bloom filter first and returns
+ * {@code false} without seeking the terms dictionary if the term can't be part of the segment. This makes looking up an
+ * {@code _id} cheap on segments that don't contain it. The bloom filters are loaded on heap when a segment is opened.
+ */
+public final class BloomFilterPostingsFormat extends PostingsFormat {
+
+    public static final String NAME = "ESBloomFilter50";
+
+    static final String BLOOM_CODEC_NAME = "ESBloomFilter";
+    static final int VERSION_START = 0;
+    static final int VERSION_CURRENT = VERSION_START;
+    static final String BLOOM_EXTENSION = "blm";
+
+    private final PostingsFormat delegatePostingsFormat = new Lucene50PostingsFormat();
+
+    public BloomFilterPostingsFormat() {
+        super(NAME);
+    }
+
+    @Override
+    public FieldsConsumer fieldsConsumer(SegmentWriteState state) throws IOException {
+        return new BloomFilterFieldsConsumer(delegatePostingsFormat.fieldsConsumer(state), state);
+    }
+
+    @Override
+    public FieldsProducer fieldsProducer(SegmentReadState state) throws IOException {
+        final FieldsProducer delegate = delegatePostingsFormat.fieldsProducer(state);
+        boolean success = false;
+        try {
+            final FieldsProducer producer = new BloomFilterFieldsProducer(delegate, state);
+            success = true;
+            return producer;
+        } finally {
+            if (success == false) {
+                IOUtils.closeWhileHandlingException(delegate);
+            }
+        }
+    }
+
+    /**
+     * Returns the number of bytes the bloom filters of the given postings take on heap.
+     */
+    public static long bloomFilterRamBytesUsed(Fields postings) throws IOException {
+        long bytes = 0;
+        for (String field : postings) {
+            final Terms terms = postings.terms(field);
+            if (terms instanceof BloomFilteredTerms) {
+                bytes += ((BloomFilteredTerms) terms).filter.ramBytesUsed();
+            }
+        }
+        return bytes;
+    }
+
+    private static String bloomFileName(String segmentName, String segmentSuffix) {
+        return IndexFileNames.segmentFileName(segmentName, segmentSuffix, BLOOM_EXTENSION);
+    }
+
+    private static final class BloomFilterFieldsConsumer extends FieldsConsumer {
+        private final FieldsConsumer delegate;
+        private final SegmentWriteState state;
+        private final Map<FieldInfo, BloomFilter> filters = new LinkedHashMap<>();
+        private boolean closed;
+
+        BloomFilterFieldsConsumer(FieldsConsumer delegate, SegmentWriteState state) {
+            this.delegate = delegate;
+            this.state = state;
+        }
+
+        @Override
+        public void write(Fields fields, NormsProducer norms) throws IOException {
+            delegate.write(fields, norms);
+            final MurmurHash3.Hash128 hash = new MurmurHash3.Hash128();
+            PostingsEnum postings = null;
+            for (String field : fields) {
+                final Terms terms = fields.terms(field);
+                if (terms == null) {
+                    continue;
+                }
+                final BloomFilter filter = BloomFilter.create(Math.max(state.segmentInfo.maxDoc(), terms.size()));
+                final TermsEnum termsEnum = terms.iterator();
+                long numTerms = 0;
+                BytesRef term;
+                while ((term = termsEnum.next()) != null) {
+                    // merged segments may still enumerate terms whose documents are all deleted
+                    postings = termsEnum.postings(postings, PostingsEnum.NONE);
+                    if (postings.nextDoc() != DocIdSetIterator.NO_MORE_DOCS) {
+                        filter.add(term, hash);
+                        numTerms++;
+                    }
+                }
+                filters.put(state.fieldInfos.fieldInfo(field), filter.downsize(numTerms));
+            }
+        }
+
+        @Override
+        public void close() throws IOException {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            boolean success = false;
+            try (IndexOutput out = state.directory.createOutput(bloomFileName(state.segmentInfo.name, state.segmentSuffix),
+                state.context)) {
+                CodecUtil.writeIndexHeader(out, BLOOM_CODEC_NAME, VERSION_CURRENT, state.segmentInfo.getId(), state.segmentSuffix);
+                out.writeVInt(filters.size());
+                for (Map.Entry<FieldInfo, BloomFilter> entry : filters.entrySet()) {
+                    out.writeVInt(entry.getKey().number);
+                    entry.getValue().writeTo(out);
+                }
+                CodecUtil.writeFooter(out);
+                success = true;
+            } finally {
+                if (success) {
+                    IOUtils.close(delegate);
+                } else {
+                    IOUtils.closeWhileHandlingException(delegate);
+                }
+            }
+        }
+    }
+
+    private static final class BloomFilterFieldsProducer extends FieldsProducer {
+        private final FieldsProducer delegate;
+        private final Map<String, BloomFilter> filters;
+
+        BloomFilterFieldsProducer(FieldsProducer delegate, SegmentReadState state) throws IOException {
+            this.delegate = delegate;
+            final Map<String, BloomFilter> filters = new HashMap<>();
+            try (ChecksumIndexInput in = state.directory.openChecksumInput(
+                bloomFileName(state.segmentInfo.name, state.segmentSuffix), state.context)) {
+                Throwable priorException = null;
+                try {
+                    CodecUtil.checkIndexHeader(in, BLOOM_CODEC_NAME, VERSION_START, VERSION_CURRENT, state.segmentInfo.getId(),
+                        state.segmentSuffix);
+                    final int numFields = in.readVInt();
+                    for (int i = 0; i < numFields; i++) {
+                        final FieldInfo fieldInfo = state.fieldInfos.fieldInfo(in.readVInt());
+                        filters.put(fieldInfo.name, BloomFilter.readFrom(in));
+                    }
+                } catch (Throwable t) {
+                    priorException = t;
+                } finally {
+                    CodecUtil.checkFooter(in, priorException);
+                }
+            }
+            this.filters = Collections.unmodifiableMap(filters);
+        }
+
+        @Override
+        public Iterator<String> iterator() {
+            return delegate.iterator();
+        }
+
+        @Override
+        public Terms terms(String field) throws IOException {
+            final Terms terms = delegate.terms(field);
+            final BloomFilter filter = filters.get(field);
+            if (terms == null || filter == null) {
+                return terms;
+            }
+            return new BloomFilteredTerms(terms, filter);
+        }
+
+        @Override
+        public int size() {
+            return delegate.size();
+        }
+
+        @Override
+        public void close() throws IOException {
+            delegate.close();
+        }
+
+        @Override
+        public void checkIntegrity() throws IOException {
+            // the bloom filters were fully verified when they were loaded
+            delegate.checkIntegrity();
+        }
+
+        @Override
+        public long ramBytesUsed() {
+            long bytes = delegate.ramBytesUsed();
+            for (BloomFilter filter : filters.values()) {
+                bytes += filter.ramBytesUsed();
+            }
+            return bytes;
+        }
+
+        @Override
+        public Collection<Accountable> getChildResources() {
+            final List<Accountable> resources = new ArrayList<>();
+            resources.add(Accountables.namedAccountable("delegate", delegate));
+            resources.addAll(Accountables.namedAccountables("bloom filter", filters));
+            return Collections.unmodifiableList(resources);
+        }
+
+        @Override
+        public String toString() {
+            return getClass().getSimpleName() + "(delegate=" + delegate + ", fields=" + filters.keySet() + ")";
+        }
+    }
+
+    private static final class BloomFilteredTerms extends FilterLeafReader.FilterTerms {
+        private final BloomFilter filter;
+
+        BloomFilteredTerms(Terms in, BloomFilter filter) {
+            super(in);
+            this.filter = filter;
+        }
+
+        @Override
+        public TermsEnum iterator() throws IOException {
+            return new BloomFilteredTermsEnum(in.iterator(), filter);
+        }
+
+        @Override
+        public TermsEnum intersect(CompiledAutomaton compiled, BytesRef startTerm) throws IOException {
+            return in.intersect(compiled, startTerm);
+        }
+
+        @Override
+        public BytesRef getMin() throws IOException {
+            return in.getMin();
+        }
+
+        @Override
+        public BytesRef getMax() throws IOException {
+            return in.getMax();
+        }
+    }
+
+    private static final class BloomFilteredTermsEnum extends FilterLeafReader.FilterTermsEnum {
+        private final BloomFilter filter;
+        private final MurmurHash3.Hash128 hash = new MurmurHash3.Hash128();
+
+        BloomFilteredTermsEnum(TermsEnum in, BloomFilter filter) {
+            super(in);
+            this.filter = filter;
+        }
+
+        @Override
+        public boolean seekExact(BytesRef text) throws IOException {
+            if (filter.mightContain(text, hash) == false) {
+                return false;
+            }
+            return in.seekExact(text);
+        }
+    }
+
+    /**
+     * A bloom filter over a power of two number of bits. The bit positions of a term are derived from its 128 bits murmur3 hash
+     * by double hashing. As long as the number of bits is a power of two, the filter can be shrunk by folding its upper half
+     * onto its lower half, which allows to size it for the number of documents of a segment first and to shrink it once the
+     * actual number of terms is known.
+     */
+    static final class BloomFilter implements Accountable {
+        static final int BITS_PER_TERM = 10;
+        static final int NUM_HASH_FUNCTIONS = 5;
+        static final int MAX_WORDS = 1 << 25; // 2^31 bits, 256MB
+
+        private static final long BASE_RAM_BYTES_USED = RamUsageEstimator.shallowSizeOfInstance(BloomFilter.class);
+
+        private final long[] words;
+        private final long mask;
+
+        private BloomFilter(long[] words) {
+            assert Integer.bitCount(words.length) == 1 : "number of words must be a power of two but was " + words.length;
+            this.words = words;
+            this.mask = ((long) words.length << 6) - 1;
+        }
+
+        static BloomFilter create(long expectedTerms) {
+            final long words = Math.max(1, (expectedTerms * BITS_PER_TERM + 63) >>> 6);
+            // round up to the next power of two
+            final long roundedWords = Long.bitCount(words) == 1 ? words : Long.highestOneBit(words) << 1;
+            return new BloomFilter(new long[(int) Math.min(MAX_WORDS, roundedWords)]);
+        }
+
+        void add(BytesRef term, MurmurHash3.Hash128 scratch) {
+            final MurmurHash3.Hash128 hash = MurmurHash3.hash128(term.bytes, term.offset, term.length, 0, scratch);
+            for (int i = 0; i < NUM_HASH_FUNCTIONS; i++) {
+                final long bit = (hash.h1 + i * hash.h2) & mask;
+                words[(int) (bit >>> 6)] |= 1L << bit;
+            }
+        }
+
+        boolean mightContain(BytesRef term, MurmurHash3.Hash128 scratch) {
+            final MurmurHash3.Hash128 hash = MurmurHash3.hash128(term.bytes, term.offset, term.length, 0, scratch);
+            for (int i = 0; i < NUM_HASH_FUNCTIONS; i++) {
+                final long bit = (hash.h1 + i * hash.h2) & mask;
+                if ((words[(int) (bit >>> 6)] & (1L << bit)) == 0) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        /**
+         * Folds this filter in halves for as long as it keeps at least {@link #BITS_PER_TERM} bits per term.
+         */
+        BloomFilter downsize(long numTerms) {
+            int length = words.length;
+            while (length > 1 && (length >>> 1) * 64L >= numTerms * BITS_PER_TERM) {
+                length >>>= 1;
+                for (int i = 0; i < length; i++) {
+                    words[i] |= words[i + length];
+                }
+            }
+            return length == words.length ? this : new BloomFilter(Arrays.copyOf(words, length));
+        }
+
+        long numBits() {
+            return (long) words.length << 6;
+        }
+
+        void writeTo(DataOutput out) throws IOException {
+            out.writeVInt(words.length);
+            for (long word : words) {
+                out.writeLong(word);
+            }
+        }
+
+        static BloomFilter readFrom(DataInput in) throws IOException {
+            final int length = in.readVInt();
+            if (length <= 0 || length > MAX_WORDS || Integer.bitCount(length) != 1) {
+                throw new CorruptIndexException("invalid number of bloom filter words [" + length + "]", in);
+            }
+            final long[] words = new long[length];
+            for (int i = 0; i < length; i++) {
+                words[i] = in.readLong();
+            }
+            return new BloomFilter(words);
+        }
+
+        @Override
+        public long ramBytesUsed() {
+            return BASE_RAM_BYTES_USED + RamUsageEstimator.sizeOf(words);
+        }
+
+        @Override
+        public String toString() {
+            return "BloomFilter(bits=" + numBits() + ")";
+        }
+    }
+}
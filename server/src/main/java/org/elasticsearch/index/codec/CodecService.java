@@ -25,6 +25,7 @@ import org.apache.lucene.codecs.lucene50.Lucene50StoredFieldsFormat.Mode;
 import org.apache.lucene.codecs.lucene80.Lucene80Codec;
 import org.elasticsearch.common.Nullable;
 import org.elasticsearch.common.collect.MapBuilder;
+import org.elasticsearch.index.engine.EngineConfig;
 import org.elasticsearch.index.mapper.MapperService;
 
 import java.util.Map;
@@ -50,10 +51,11 @@ public class CodecService {
             codecs.put(DEFAULT_CODEC, new Lucene80Codec());
             codecs.put(BEST_COMPRESSION_CODEC, new Lucene80Codec(Mode.BEST_COMPRESSION));
         } else {
+            final boolean idBloomFilter = mapperService.getIndexSettings().getValue(EngineConfig.INDEX_CODEC_ID_BLOOM_FILTER_SETTING);
             codecs.put(DEFAULT_CODEC,
-                    new PerFieldMappingPostingFormatCodec(Mode.BEST_SPEED, mapperService, logger));
+                    new PerFieldMappingPostingFormatCodec(Mode.BEST_SPEED, mapperService, logger, idBloomFilter));
             codecs.put(BEST_COMPRESSION_CODEC,
-                    new PerFieldMappingPostingFormatCodec(Mode.BEST_COMPRESSION, mapperService, logger));
+                    new PerFieldMappingPostingFormatCodec(Mode.BEST_COMPRESSION, mapperService, logger, idBloomFilter));
         }
         codecs.put(LUCENE_DEFAULT_CODEC, Codec.getDefault());
         for (String codec : Codec.availableCodecs()) {
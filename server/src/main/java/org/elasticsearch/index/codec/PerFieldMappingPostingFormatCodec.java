@@ -26,6 +26,7 @@ import org.apache.lucene.codecs.lucene50.Lucene50StoredFieldsFormat;
 import org.apache.lucene.codecs.lucene80.Lucene80Codec;
 import org.elasticsearch.common.lucene.Lucene;
 import org.elasticsearch.index.mapper.CompletionFieldMapper;
+import org.elasticsearch.index.mapper.IdFieldMapper;
 import org.elasticsearch.index.mapper.MappedFieldType;
 import org.elasticsearch.index.mapper.MapperService;
 
@@ -38,8 +39,11 @@ import org.elasticsearch.index.mapper.MapperService;
  * configured for a specific field the default postings format is used.
  */
 public class PerFieldMappingPostingFormatCodec extends Lucene80Codec {
+    private static final PostingsFormat ID_BLOOM_FILTER_POSTINGS_FORMAT = new BloomFilterPostingsFormat();
+
     private final Logger logger;
     private final MapperService mapperService;
+    private final boolean idBloomFilter;
 
     static {
         assert Codec.forName(Lucene.LATEST_CODEC).getClass().isAssignableFrom(PerFieldMappingPostingFormatCodec.class) :
@@ -47,13 +51,25 @@ public class PerFieldMappingPostingFormatCodec extends Lucene80Codec {
     }
 
     public PerFieldMappingPostingFormatCodec(Lucene50StoredFieldsFormat.Mode compressionMode, MapperService mapperService, Logger logger) {
+        this(compressionMode, mapperService, logger, false);
+    }
+
+    /**
+     * @param idBloomFilter whether the {@code _id} field is written with the {@link BloomFilterPostingsFormat}
+     */
+    public PerFieldMappingPostingFormatCodec(Lucene50StoredFieldsFormat.Mode compressionMode, MapperService mapperService, Logger logger,
+                                             boolean idBloomFilter) {
         super(compressionMode);
         this.mapperService = mapperService;
         this.logger = logger;
+        this.idBloomFilter = idBloomFilter;
     }
 
     @Override
     public PostingsFormat getPostingsFormatForField(String field) {
+        if (idBloomFilter && IdFieldMapper.NAME.equals(field)) {
+            return ID_BLOOM_FILTER_POSTINGS_FORMAT;
+        }
         final MappedFieldType fieldType = mapperService.fullName(field);
         if (fieldType == null) {
             logger.warn("no index mapper found for field: [{}] returning default postings format", field);
@@ -0,0 +1,238 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.index.engine;
+
+import com.carrotsearch.hppc.BitMixer;
+import org.apache.lucene.util.BytesRef;
+import org.elasticsearch.common.lease.Releasable;
+import org.elasticsearch.common.lease.Releasables;
+import org.elasticsearch.common.util.BigArrays;
+import org.elasticsearch.common.util.BytesRefHash;
+import org.elasticsearch.common.util.LongArray;
+import org.elasticsearch.index.translog.Translog;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * A compact alternative to the hash maps that hold the live versions of a {@link LiveVersionMap} between two refreshes. The _uid
+ * keys are stored in the paged byte storage of open-addressing {@link BytesRefHash}es and the values in parallel {@link LongArray}s
+ * so that indexing a document doesn't allocate any key, value or entry object. All arrays are allocated through the given
+ * {@link BigArrays} and are thus accounted against its circuit breaker.
+ * <p>
+ * The map is split into segments that are locked independently so that indexing threads that index different documents rarely
+ * contend. Since a map is only filled until the next refresh and then dropped as a whole, removing an entry only marks its values
+ * as removed and doesn't reclaim the space of its key. Operations that race with the refresh that closes the map are ignored,
+ * the documents they refer to are visible through the refreshed reader.
+ */
+final class CompactVersionMap implements Releasable {
+
+    private static final int SEGMENT_BITS = 4;
+    private static final int MIN_SEGMENT_CAPACITY = 16;
+
+    // the longs that are stored per entry
+    private static final int VERSION = 0;
+    private static final int SEQ_NO = 1;
+    private static final int TERM = 2;
+    private static final int TRANSLOG_GENERATION = 3;
+    private static final int TRANSLOG_LOCATION = 4;
+    private static final int TRANSLOG_SIZE = 5;
+    private static final int LONGS_PER_ENTRY = 6;
+
+    // marker values of the translog size of an entry
+    private static final long NO_TRANSLOG_LOCATION = -1;
+    private static final long REMOVED = -2;
+
+    private final Segment[] segments;
+
+    CompactVersionMap(BigArrays bigArrays, long expectedSize) {
+        segments = new Segment[1 << SEGMENT_BITS];
+        final long segmentCapacity = Math.max(MIN_SEGMENT_CAPACITY, expectedSize >> SEGMENT_BITS);
+        for (int i = 0; i < segments.length; i++) {
+            segments[i] = new Segment(bigArrays, segmentCapacity);
+        }
+    }
+
+    private Segment segment(int hash) {
+        // the hash tables use the low bits of the mixed hash to pick slots, we use the high bits to pick segments
+        return segments[BitMixer.mix32(hash) >>> (Integer.SIZE - SEGMENT_BITS)];
+    }
+
+    IndexVersionValue get(BytesRef uid) {
+        final int hash = uid.hashCode();
+        return segment(hash).get(uid, hash);
+    }
+
+    void put(BytesRef uid, IndexVersionValue value) {
+        final int hash = uid.hashCode();
+        segment(hash).put(uid, hash, value);
+    }
+
+    void remove(BytesRef uid) {
+        final int hash = uid.hashCode();
+        segment(hash).remove(uid, hash);
+    }
+
+    /**
+     * Returns the number of entries that have not been removed.
+     */
+    long size() {
+        long size = 0;
+        for (Segment segment : segments) {
+            size += segment.size();
+        }
+        return size;
+    }
+
+    /**
+     * Returns the bytes used by the keys and values of this map, including the ones of removed entries.
+     */
+    long ramBytesUsed() {
+        long ramBytesUsed = 0;
+        for (Segment segment : segments) {
+            ramBytesUsed += segment.ramBytesUsed();
+        }
+        return ramBytesUsed;
+    }
+
+    /**
+     * Returns a point in time copy of the entries of this map.
+     */
+    Map<BytesRef, VersionValue> toMap() {
+        final Map<BytesRef, VersionValue> map = new HashMap<>();
+        for (Segment segment : segments) {
+            segment.copyTo(map);
+        }
+        return map;
+    }
+
+    @Override
+    public void close() {
+        Releasables.close(segments);
+    }
+
+    private static final class Segment implements Releasable {
+        private final BigArrays bigArrays;
+        private final BytesRefHash keys;
+        private LongArray values;
+        private long size;
+        private boolean closed;
+
+        Segment(BigArrays bigArrays, long capacity) {
+            this.bigArrays = bigArrays;
+            boolean success = false;
+            this.keys = new BytesRefHash(capacity, bigArrays);
+            try {
+                this.values = bigArrays.newLongArray(capacity * LONGS_PER_ENTRY, false);
+                success = true;
+            } finally {
+                if (success == false) {
+                    keys.close();
+                }
+            }
+        }
+
+        synchronized IndexVersionValue get(BytesRef uid, int hash) {
+            if (closed) {
+                return null;
+            }
+            final long id = keys.find(uid, hash);
+            return id < 0 ? null : valueAt(id);
+        }
+
+        synchronized void put(BytesRef uid, int hash, IndexVersionValue value) {
+            if (closed) {
+                // the map has been dropped by a concurrent refresh, the operation is visible through the new reader
+                return;
+            }
+            long id = keys.add(uid, hash);
+            if (id < 0) {
+                id = -1 - id;
+                if (values.get(id * LONGS_PER_ENTRY + TRANSLOG_SIZE) == REMOVED) {
+                    size++;
+                }
+            } else {
+                values = bigArrays.grow(values, (id + 1) * LONGS_PER_ENTRY);
+                size++;
+            }
+            final long offset = id * LONGS_PER_ENTRY;
+            values.set(offset + VERSION, value.version);
+            values.set(offset + SEQ_NO, value.seqNo);
+            values.set(offset + TERM, value.term);
+            final Translog.Location location = value.getLocation();
+            if (location == null) {
+                values.set(offset + TRANSLOG_SIZE, NO_TRANSLOG_LOCATION);
+            } else {
+                values.set(offset + TRANSLOG_GENERATION, location.generation);
+                values.set(offset + TRANSLOG_LOCATION, location.translogLocation);
+                values.set(offset + TRANSLOG_SIZE, location.size);
+            }
+        }
+
+        synchronized void remove(BytesRef uid, int hash) {
+            if (closed) {
+                return;
+            }
+            final long id = keys.find(uid, hash);
+            if (id >= 0 && values.set(id * LONGS_PER_ENTRY + TRANSLOG_SIZE, REMOVED) != REMOVED) {
+                size--;
+            }
+        }
+
+        synchronized long size() {
+            return size;
+        }
+
+        synchronized long ramBytesUsed() {
+            return closed ? 0 : keys.ramBytesUsed() + values.ramBytesUsed();
+        }
+
+        synchronized void copyTo(Map<BytesRef, VersionValue> map) {
+            if (closed) {
+                return;
+            }
+            for (long id = 0; id < keys.size(); id++) {
+                final IndexVersionValue value = valueAt(id);
+                if (value != null) {
+                    map.put(BytesRef.deepCopyOf(keys.get(id, new BytesRef())), value);
+                }
+            }
+        }
+
+        private IndexVersionValue valueAt(long id) {
+            final long offset = id * LONGS_PER_ENTRY;
+            final long translogSize = values.get(offset + TRANSLOG_SIZE);
+            if (translogSize == REMOVED) {
+                return null;
+            }
+            final Translog.Location location = translogSize == NO_TRANSLOG_LOCATION ? null :
+                new Translog.Location(values.get(offset + TRANSLOG_GENERATION), values.get(offset + TRANSLOG_LOCATION), (int) translogSize);
+            return new IndexVersionValue(location, values.get(offset + VERSION), values.get(offset + SEQ_NO), values.get(offset + TERM));
+        }
+
+        @Override
+        public synchronized void close() {
+            if (closed == false) {
+                closed = true;
+                Releasables.close(keys, values);
+            }
+        }
+    }
+}
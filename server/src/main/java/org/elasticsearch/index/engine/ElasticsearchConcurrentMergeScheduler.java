@@ -25,6 +25,9 @@ import org.apache.lucene.index.IndexWriter;
 import org.apache.lucene.index.MergePolicy;
 import org.apache.lucene.index.MergeScheduler;
 import org.apache.lucene.index.OneMergeHelper;
+import org.apache.lucene.util.ThreadInterruptedException;
+import org.elasticsearch.common.Nullable;
+import org.elasticsearch.common.lease.Releasable;
 import org.elasticsearch.common.logging.Loggers;
 import org.elasticsearch.common.metrics.CounterMetric;
 import org.elasticsearch.common.metrics.MeanMetric;
@@ -35,18 +38,25 @@ import org.elasticsearch.common.util.concurrent.ConcurrentCollections;
 import org.elasticsearch.common.util.concurrent.EsExecutors;
 import org.elasticsearch.index.IndexSettings;
 import org.elasticsearch.index.MergeSchedulerConfig;
+import org.elasticsearch.index.merge.MergeCoordinator;
 import org.elasticsearch.index.merge.MergeStats;
 import org.elasticsearch.index.merge.OnGoingMerge;
 import org.elasticsearch.index.shard.ShardId;
 
 import java.io.IOException;
+import java.util.ArrayList;
 import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
 import java.util.Locale;
 import java.util.Set;
 
 /**
  * An extension to the {@link ConcurrentMergeScheduler} that provides tracking on merge times, total
- * and current merges.
+ * and current merges. If a {@link MergeCoordinator.ShardBudget} is given, every merge waits for a permit
+ * of the node level merge budget of the shard's data path before it starts, and its IO rate is capped to
+ * its share of the IO budget of the data path. Merges that wait for a permit are not taken into account when
+ * Lucene decides which merges to pause, so that they can't pause the merge whose permit they wait for.
  */
 class ElasticsearchConcurrentMergeScheduler extends ConcurrentMergeScheduler {
 
@@ -62,17 +72,29 @@ class ElasticsearchConcurrentMergeScheduler extends ConcurrentMergeScheduler {
     private final CounterMetric currentMergesSizeInBytes = new CounterMetric();
     private final CounterMetric totalMergeStoppedTime = new CounterMetric();
     private final CounterMetric totalMergeThrottledTime = new CounterMetric();
+    private final CounterMetric queuedMerges = new CounterMetric();
+    private final CounterMetric queuedMergesSizeInBytes = new CounterMetric();
 
     private final Set<OnGoingMerge> onGoingMerges = ConcurrentCollections.newConcurrentSet();
+    // the merge threads that wait for a permit of the merge budget
+    private final Set<Thread> queuedMergeThreads = ConcurrentCollections.newConcurrentSet();
     private final Set<OnGoingMerge> readOnlyOnGoingMerges = Collections.unmodifiableSet(onGoingMerges);
     private final MergeSchedulerConfig config;
+    @Nullable
+    private final MergeCoordinator.ShardBudget mergeBudget;
+    private final Runnable mergeBudgetListener = this::updateMergeThreads;
 
-    ElasticsearchConcurrentMergeScheduler(ShardId shardId, IndexSettings indexSettings) {
+    ElasticsearchConcurrentMergeScheduler(ShardId shardId, IndexSettings indexSettings,
+                                          @Nullable MergeCoordinator.ShardBudget mergeBudget) {
         this.config = indexSettings.getMergeSchedulerConfig();
         this.shardId = shardId;
         this.indexSettings = indexSettings.getSettings();
         this.logger = Loggers.getLogger(getClass(), shardId);
+        this.mergeBudget = mergeBudget;
         refreshConfig();
+        if (mergeBudget != null) {
+            mergeBudget.addListener(mergeBudgetListener);
+        }
     }
 
     public Set<OnGoingMerge> onGoingMerges() {
@@ -81,6 +103,45 @@ class ElasticsearchConcurrentMergeScheduler extends ConcurrentMergeScheduler {
 
     @Override
     protected void doMerge(IndexWriter writer, MergePolicy.OneMerge merge) throws IOException {
+        OnGoingMerge onGoingMerge = new OnGoingMerge(merge);
+        onGoingMerges.add(onGoingMerge);
+        try {
+            // queued merges count as in flight, so that indexing gets throttled if merges can't keep up because of the budget
+            beforeMerge(onGoingMerge);
+            try (Releasable ignored = acquireMergePermit(merge)) {
+                runMerge(writer, merge);
+            }
+        } finally {
+            onGoingMerges.remove(onGoingMerge);
+            afterMerge(onGoingMerge);
+        }
+    }
+
+    private Releasable acquireMergePermit(MergePolicy.OneMerge merge) {
+        if (mergeBudget == null) {
+            return () -> {};
+        }
+        final long estimatedMergeBytes = merge.estimatedMergeBytes;
+        final Thread thread = Thread.currentThread();
+        queuedMerges.inc();
+        queuedMergesSizeInBytes.inc(estimatedMergeBytes);
+        // a queued merge must not count as running, otherwise Lucene may pause the running merge that holds the permit it waits for
+        queuedMergeThreads.add(thread);
+        updateMergeThreads();
+        try {
+            return mergeBudget.acquire(estimatedMergeBytes, merge::isAborted);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new ThreadInterruptedException(e);
+        } finally {
+            queuedMergeThreads.remove(thread);
+            queuedMerges.dec();
+            queuedMergesSizeInBytes.dec(estimatedMergeBytes);
+            updateMergeThreads();
+        }
+    }
+
+    private void runMerge(IndexWriter writer, MergePolicy.OneMerge merge) throws IOException {
         int totalNumDocs = merge.totalNumDocs();
         long totalSizeInBytes = merge.totalBytesSize();
         long timeNS = System.nanoTime();
@@ -88,23 +149,16 @@ class ElasticsearchConcurrentMergeScheduler extends ConcurrentMergeScheduler {
         currentMergesNumDocs.inc(totalNumDocs);
         currentMergesSizeInBytes.inc(totalSizeInBytes);
 
-        OnGoingMerge onGoingMerge = new OnGoingMerge(merge);
-        onGoingMerges.add(onGoingMerge);
-
         if (logger.isTraceEnabled()) {
             logger.trace("merge [{}] starting..., merging [{}] segments, [{}] docs, [{}] size, into [{}] estimated_size",
                 OneMergeHelper.getSegmentName(merge), merge.segments.size(), totalNumDocs, new ByteSizeValue(totalSizeInBytes),
                 new ByteSizeValue(merge.estimatedMergeBytes));
         }
         try {
-            beforeMerge(onGoingMerge);
             super.doMerge(writer, merge);
         } finally {
             long tookMS = TimeValue.nsecToMSec(System.nanoTime() - timeNS);
 
-            onGoingMerges.remove(onGoingMerge);
-            afterMerge(onGoingMerge);
-
             currentMerges.dec();
             currentMergesNumDocs.dec(totalNumDocs);
             currentMergesSizeInBytes.dec(totalSizeInBytes);
@@ -161,6 +215,44 @@ class ElasticsearchConcurrentMergeScheduler extends ConcurrentMergeScheduler {
         return this;
     }
 
+    @Override
+    protected synchronized void updateMergeThreads() {
+        if (queuedMergeThreads.isEmpty()) {
+            super.updateMergeThreads();
+        } else {
+            // only the merges that run are considered when Lucene decides which merges to pause
+            final List<MergeThread> queued = new ArrayList<>();
+            for (Iterator<MergeThread> it = mergeThreads.iterator(); it.hasNext(); ) {
+                final MergeThread mergeThread = it.next();
+                if (queuedMergeThreads.contains(mergeThread)) {
+                    queued.add(mergeThread);
+                    it.remove();
+                }
+            }
+            try {
+                super.updateMergeThreads();
+            } finally {
+                mergeThreads.addAll(queued);
+            }
+        }
+        if (mergeBudget != null) {
+            final double maxMbPerSec = mergeBudget.maxMbPerSecPerMerge();
+            if (maxMbPerSec != Double.POSITIVE_INFINITY) {
+                for (MergeThread mergeThread : mergeThreads) {
+                    OneMergeHelper.capMbPerSec(mergeThread, maxMbPerSec);
+                }
+            }
+        }
+    }
+
+    @Override
+    public void close() {
+        super.close();
+        if (mergeBudget != null) {
+            mergeBudget.removeListener(mergeBudgetListener);
+        }
+    }
+
     @Override
     protected boolean maybeStall(IndexWriter writer) {
         // Don't stall here, because we do our own index throttling (in InternalEngine.IndexThrottle) when merges can't keep up
@@ -182,6 +274,7 @@ class ElasticsearchConcurrentMergeScheduler extends ConcurrentMergeScheduler {
                 totalMergeStoppedTime.count(),
                 totalMergeThrottledTime.count(),
                 config.isAutoThrottle() ? getIORateLimitMBPerSec() : Double.POSITIVE_INFINITY);
+        mergeStats.addQueued(queuedMerges.count(), queuedMergesSizeInBytes.count());
         return mergeStats;
     }
 
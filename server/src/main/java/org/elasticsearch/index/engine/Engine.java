@@ -22,6 +22,7 @@ package org.elasticsearch.index.engine;
 import com.carrotsearch.hppc.ObjectLongHashMap;
 import org.apache.logging.log4j.Logger;
 import org.apache.logging.log4j.message.ParameterizedMessage;
+import org.apache.lucene.codecs.FieldsProducer;
 import org.apache.lucene.index.DirectoryReader;
 import org.apache.lucene.index.FieldInfo;
 import org.apache.lucene.index.IndexCommit;
@@ -66,6 +67,7 @@ import org.elasticsearch.common.regex.Regex;
 import org.elasticsearch.common.unit.TimeValue;
 import org.elasticsearch.common.util.concurrent.ReleasableLock;
 import org.elasticsearch.index.VersionType;
+import org.elasticsearch.index.codec.BloomFilterPostingsFormat;
 import org.elasticsearch.index.mapper.MapperService;
 import org.elasticsearch.index.mapper.Mapping;
 import org.elasticsearch.index.mapper.ParseContext.Document;
@@ -853,6 +855,7 @@ public abstract class Engine implements Closeable {
         stats.addNormsMemoryInBytes(guardedRamBytesUsed(segmentReader.getNormsReader()));
         stats.addPointsMemoryInBytes(guardedRamBytesUsed(segmentReader.getPointsReader()));
         stats.addDocValuesMemoryInBytes(guardedRamBytesUsed(segmentReader.getDocValuesReader()));
+        stats.addBloomFilterMemoryInBytes(getBloomFilterRamBytesUsed(segmentReader));
 
         if (includeSegmentFileSizes) {
             // TODO: consider moving this to StoreStats
@@ -860,6 +863,20 @@ public abstract class Engine implements Closeable {
         }
     }
 
+    private long getBloomFilterRamBytesUsed(SegmentReader segmentReader) {
+        final FieldsProducer postingsReader = segmentReader.getPostingsReader();
+        if (postingsReader == null) {
+            return 0;
+        }
+        try {
+            return BloomFilterPostingsFormat.bloomFilterRamBytesUsed(postingsReader);
+        } catch (IOException e) {
+            logger.warn(() -> new ParameterizedMessage("Couldn't compute the bloom filter memory of segment [{}]",
+                segmentReader.getSegmentName()), e);
+            return 0;
+        }
+    }
+
     private ImmutableOpenMap<String, Long> getSegmentFileSizes(SegmentReader segmentReader) {
         Directory directory = null;
         SegmentCommitInfo segmentCommitInfo = segmentReader.getSegmentInfo();
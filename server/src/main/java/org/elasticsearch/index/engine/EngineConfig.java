@@ -35,6 +35,7 @@ import org.elasticsearch.common.unit.TimeValue;
 import org.elasticsearch.index.IndexSettings;
 import org.elasticsearch.index.codec.CodecService;
 import org.elasticsearch.index.mapper.ParsedDocument;
+import org.elasticsearch.index.merge.MergeCoordinator;
 import org.elasticsearch.index.seqno.RetentionLeases;
 import org.elasticsearch.index.shard.ShardId;
 import org.elasticsearch.index.store.Store;
@@ -94,6 +95,8 @@ public final class EngineConfig {
 
     private final LongSupplier primaryTermSupplier;
     private final TombstoneDocSupplier tombstoneDocSupplier;
+    @Nullable
+    private final MergeCoordinator.ShardBudget mergeBudget;
 
     /**
      * Index setting to change the low level lucene codec used for writing new segments.
@@ -116,6 +119,23 @@ public final class EngineConfig {
         }
     }, Property.IndexScope, Property.NodeScope);
 
+    /**
+     * Index setting to store a bloom filter of the {@code _id} terms of every segment so that looking up an id, as realtime gets,
+     * updates and versioned index operations do, can skip segments that don't contain it without seeking their terms dictionary.
+     * The bloom filters are loaded on heap. This setting is <b>not</b> realtime updateable, it applies to all segments that are
+     * written after the index was opened with it.
+     */
+    public static final Setting<Boolean> INDEX_CODEC_ID_BLOOM_FILTER_SETTING =
+        Setting.boolSetting("index.codec.id_bloom_filter", false, Property.IndexScope);
+
+    /**
+     * Index setting to hold the versions of the documents that were indexed since the last refresh in compact maps whose memory is
+     * accounted against the accounting circuit breaker rather than in hash maps of objects on the heap.
+     * This setting is <b>not</b> realtime updateable.
+     */
+    public static final Setting<Boolean> INDEX_COMPACT_VERSION_MAP_SETTING =
+        Setting.boolSetting("index.version_map.compact", false, Property.IndexScope);
+
     private final TranslogConfig translogConfig;
 
     /**
@@ -133,6 +153,29 @@ public final class EngineConfig {
                         Supplier<RetentionLeases> retentionLeasesSupplier,
                         LongSupplier primaryTermSupplier,
                         TombstoneDocSupplier tombstoneDocSupplier) {
+        this(shardId, allocationId, threadPool, indexSettings, warmer, store, mergePolicy, analyzer, similarity, codecService,
+            eventListener, queryCache, queryCachingPolicy, translogConfig, flushMergesAfter, externalRefreshListener,
+            internalRefreshListener, indexSort, circuitBreakerService, globalCheckpointSupplier, retentionLeasesSupplier,
+            primaryTermSupplier, tombstoneDocSupplier, null);
+    }
+
+    /**
+     * Creates a new {@link org.elasticsearch.index.engine.EngineConfig} whose merges are scheduled within the given node level
+     * merge budget.
+     */
+    public EngineConfig(ShardId shardId, String allocationId, ThreadPool threadPool,
+                        IndexSettings indexSettings, Engine.Warmer warmer, Store store,
+                        MergePolicy mergePolicy, Analyzer analyzer,
+                        Similarity similarity, CodecService codecService, Engine.EventListener eventListener,
+                        QueryCache queryCache, QueryCachingPolicy queryCachingPolicy,
+                        TranslogConfig translogConfig, TimeValue flushMergesAfter,
+                        List<ReferenceManager.RefreshListener> externalRefreshListener,
+                        List<ReferenceManager.RefreshListener> internalRefreshListener, Sort indexSort,
+                        CircuitBreakerService circuitBreakerService, LongSupplier globalCheckpointSupplier,
+                        Supplier<RetentionLeases> retentionLeasesSupplier,
+                        LongSupplier primaryTermSupplier,
+                        TombstoneDocSupplier tombstoneDocSupplier,
+                        @Nullable MergeCoordinator.ShardBudget mergeBudget) {
         this.shardId = shardId;
         this.allocationId = allocationId;
         this.indexSettings = indexSettings;
@@ -171,6 +214,7 @@ public final class EngineConfig {
         this.retentionLeasesSupplier = Objects.requireNonNull(retentionLeasesSupplier);
         this.primaryTermSupplier = primaryTermSupplier;
         this.tombstoneDocSupplier = tombstoneDocSupplier;
+        this.mergeBudget = mergeBudget;
     }
 
     /**
@@ -381,4 +425,13 @@ public final class EngineConfig {
     public TombstoneDocSupplier getTombstoneDocSupplier() {
         return tombstoneDocSupplier;
     }
+
+    /**
+     * Returns the share of the node level merge budget of the data path this shard lives on, or <code>null</code> if merges
+     * are not coordinated across shards.
+     */
+    @Nullable
+    public MergeCoordinator.ShardBudget getMergeBudget() {
+        return mergeBudget;
+    }
 }
@@ -20,6 +20,7 @@
 package org.elasticsearch.index.engine;
 
 import com.carrotsearch.hppc.cursors.ObjectObjectCursor;
+import org.elasticsearch.Version;
 import org.elasticsearch.common.collect.ImmutableOpenMap;
 import org.elasticsearch.common.io.stream.StreamInput;
 import org.elasticsearch.common.io.stream.StreamOutput;
@@ -46,6 +47,7 @@ public class SegmentsStats implements Streamable, Writeable, ToXContentFragment
     private long versionMapMemoryInBytes;
     private long maxUnsafeAutoIdTimestamp = Long.MIN_VALUE;
     private long bitsetMemoryInBytes;
+    private long bloomFilterMemoryInBytes;
     private ImmutableOpenMap<String, Long> fileSizes = ImmutableOpenMap.of();
 
     /*
@@ -74,6 +76,7 @@ public class SegmentsStats implements Streamable, Writeable, ToXContentFragment
             .fPut("tvd", "Term Vector Documents")
             .fPut("tvf", "Term Vector Fields")
             .fPut("liv", "Live Documents")
+            .fPut("blm", "Bloom Filter")
             .build();
 
     public SegmentsStats() {}
@@ -91,6 +94,9 @@ public class SegmentsStats implements Streamable, Writeable, ToXContentFragment
         versionMapMemoryInBytes = in.readLong();
         bitsetMemoryInBytes = in.readLong();
         maxUnsafeAutoIdTimestamp = in.readLong();
+        if (in.getVersion().onOrAfter(Version.V_8_0_0)) {
+            bloomFilterMemoryInBytes = in.readLong();
+        }
 
         int size = in.readVInt();
         ImmutableOpenMap.Builder<String, Long> map = ImmutableOpenMap.builder(size);
@@ -147,6 +153,10 @@ public class SegmentsStats implements Streamable, Writeable, ToXContentFragment
         this.bitsetMemoryInBytes += bitsetMemoryInBytes;
     }
 
+    public void addBloomFilterMemoryInBytes(long bloomFilterMemoryInBytes) {
+        this.bloomFilterMemoryInBytes += bloomFilterMemoryInBytes;
+    }
+
     public void addFileSizes(ImmutableOpenMap<String, Long> fileSizes) {
         ImmutableOpenMap.Builder<String, Long> map = ImmutableOpenMap.builder(this.fileSizes);
 
@@ -178,6 +188,7 @@ public class SegmentsStats implements Streamable, Writeable, ToXContentFragment
         addIndexWriterMemoryInBytes(mergeStats.indexWriterMemoryInBytes);
         addVersionMapMemoryInBytes(mergeStats.versionMapMemoryInBytes);
         addBitsetMemoryInBytes(mergeStats.bitsetMemoryInBytes);
+        addBloomFilterMemoryInBytes(mergeStats.bloomFilterMemoryInBytes);
         addFileSizes(mergeStats.fileSizes);
     }
 
@@ -298,6 +309,17 @@ public class SegmentsStats implements Streamable, Writeable, ToXContentFragment
         return new ByteSizeValue(bitsetMemoryInBytes);
     }
 
+    /**
+     * Estimation of the memory usage of the {@code _id} bloom filters, which is included in the terms memory.
+     */
+    public long getBloomFilterMemoryInBytes() {
+        return bloomFilterMemoryInBytes;
+    }
+
+    public ByteSizeValue getBloomFilterMemory() {
+        return new ByteSizeValue(bloomFilterMemoryInBytes);
+    }
+
     public ImmutableOpenMap<String, Long> getFileSizes() {
         return fileSizes;
     }
@@ -324,6 +346,7 @@ public class SegmentsStats implements Streamable, Writeable, ToXContentFragment
         builder.humanReadableField(Fields.INDEX_WRITER_MEMORY_IN_BYTES, Fields.INDEX_WRITER_MEMORY, getIndexWriterMemory());
         builder.humanReadableField(Fields.VERSION_MAP_MEMORY_IN_BYTES, Fields.VERSION_MAP_MEMORY, getVersionMapMemory());
         builder.humanReadableField(Fields.FIXED_BIT_SET_MEMORY_IN_BYTES, Fields.FIXED_BIT_SET, getBitsetMemory());
+        builder.humanReadableField(Fields.BLOOM_FILTER_MEMORY_IN_BYTES, Fields.BLOOM_FILTER_MEMORY, getBloomFilterMemory());
         builder.field(Fields.MAX_UNSAFE_AUTO_ID_TIMESTAMP, maxUnsafeAutoIdTimestamp);
         builder.startObject(Fields.FILE_SIZES);
         for (Iterator<ObjectObjectCursor<String, Long>> it = fileSizes.iterator(); it.hasNext();) {
@@ -362,6 +385,8 @@ public class SegmentsStats implements Streamable, Writeable, ToXContentFragment
         static final String MAX_UNSAFE_AUTO_ID_TIMESTAMP = "max_unsafe_auto_id_timestamp";
         static final String FIXED_BIT_SET = "fixed_bit_set";
         static final String FIXED_BIT_SET_MEMORY_IN_BYTES = "fixed_bit_set_memory_in_bytes";
+        static final String BLOOM_FILTER_MEMORY = "bloom_filter_memory";
+        static final String BLOOM_FILTER_MEMORY_IN_BYTES = "bloom_filter_memory_in_bytes";
         static final String FILE_SIZES = "file_sizes";
         static final String SIZE = "size";
         static final String SIZE_IN_BYTES = "size_in_bytes";
@@ -387,6 +412,9 @@ public class SegmentsStats implements Streamable, Writeable, ToXContentFragment
         out.writeLong(versionMapMemoryInBytes);
         out.writeLong(bitsetMemoryInBytes);
         out.writeLong(maxUnsafeAutoIdTimestamp);
+        if (out.getVersion().onOrAfter(Version.V_8_0_0)) {
+            out.writeLong(bloomFilterMemoryInBytes);
+        }
 
         out.writeVInt(fileSizes.size());
         for (ObjectObjectCursor<String, Long> entry : fileSizes) {
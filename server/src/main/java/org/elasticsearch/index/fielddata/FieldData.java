@@ -446,6 +446,17 @@ public enum FieldData {
             return values.advanceExact(doc);
         }
 
+        @Override
+        public int readValues(int[] docs, int count, double[] doubles) throws IOException {
+            int numValues = 0;
+            for (int i = 0; i < count; i++) {
+                if (values.advanceExact(docs[i])) {
+                    doubles[numValues++] = values.longValue();
+                }
+            }
+            return numValues;
+        }
+
     }
 
     private static class SortedDoubleCastedValues extends SortedNumericDoubleValues {
@@ -32,7 +32,23 @@ public abstract class NumericDoubleValues extends DoubleValues {
   /** Sole constructor. (For invocation by subclass
    * constructors, typically implicit.) */
   protected NumericDoubleValues() {}
-  
+
+  /**
+   * Reads the values of <code>count</code> documents, which must be given in increasing order, into <code>values</code>.
+   * Documents that don't have a value are skipped, so the number of values that have been read, which is returned, may be less
+   * than <code>count</code>. Implementations that wrap doc values override this to read from them directly, rather than through
+   * two virtual calls per document.
+   */
+  public int readValues(int[] docs, int count, double[] values) throws IOException {
+      int numValues = 0;
+      for (int i = 0; i < count; i++) {
+          if (advanceExact(docs[i])) {
+              values[numValues++] = doubleValue();
+          }
+      }
+      return numValues;
+  }
+
   // TODO: this interaction with sort comparators is really ugly...
   /** Returns numeric docvalues view of raw double bits */
   public NumericDocValues getRawDoubleValues() {
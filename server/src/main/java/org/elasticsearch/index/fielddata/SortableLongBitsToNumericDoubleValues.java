@@ -47,6 +47,17 @@ final class SortableLongBitsToNumericDoubleValues extends NumericDoubleValues {
         return values.advanceExact(doc);
     }
 
+    @Override
+    public int readValues(int[] docs, int count, double[] doubles) throws IOException {
+        int numValues = 0;
+        for (int i = 0; i < count; i++) {
+            if (values.advanceExact(docs[i])) {
+                doubles[numValues++] = NumericUtils.sortableLongToDouble(values.longValue());
+            }
+        }
+        return numValues;
+    }
+
     /** Return the wrapped values. */
     public NumericDocValues getLongValues() {
         return values;
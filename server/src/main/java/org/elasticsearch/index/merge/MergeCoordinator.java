@@ -0,0 +1,315 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.index.merge;
+
+import org.elasticsearch.common.lease.Releasable;
+import org.elasticsearch.common.settings.Setting;
+import org.elasticsearch.common.settings.Setting.Property;
+import org.elasticsearch.common.settings.Settings;
+import org.elasticsearch.common.unit.ByteSizeUnit;
+import org.elasticsearch.common.unit.ByteSizeValue;
+import org.elasticsearch.common.unit.TimeValue;
+import org.elasticsearch.common.util.concurrent.EsExecutors;
+
+import java.io.Closeable;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.BooleanSupplier;
+
+/**
+ * A node level coordinator that shares a budget of concurrent merges and merge IO across all shards of a data path. Every merge
+ * of a shard has to acquire one of the {@link #MAX_MERGES_PER_PATH_SETTING} permits of the data path the shard lives on before
+ * it starts, merges that can't get one are queued. When a permit is released it goes to the queued merge with the highest
+ * priority: merges that have been queued for longer than {@link #MAX_QUEUE_TIME_SETTING} go first so that large merges can't be
+ * starved, then merges of shards that are actively searched, then the merges with the smallest estimated size. If
+ * {@link #MAX_BYTES_PER_SEC_PER_PATH_SETTING} is set, the merge IO rate of the data path is split evenly across its running merges.
+ */
+public final class MergeCoordinator implements Closeable {
+
+    public static final Setting<Boolean> ENABLED_SETTING =
+        Setting.boolSetting("indices.merge.coordinator.enabled", false, Property.NodeScope);
+
+    public static final Setting<Integer> MAX_MERGES_PER_PATH_SETTING =
+        new Setting<>("indices.merge.coordinator.max_merges_per_path",
+            s -> Integer.toString(Math.max(1, Math.min(4, EsExecutors.numberOfProcessors(s) / 2))),
+            s -> Setting.parseInt(s, 1, "indices.merge.coordinator.max_merges_per_path"), Property.NodeScope);
+
+    public static final Setting<ByteSizeValue> MAX_BYTES_PER_SEC_PER_PATH_SETTING =
+        Setting.byteSizeSetting("indices.merge.coordinator.max_bytes_per_sec_per_path", new ByteSizeValue(0), Property.NodeScope);
+
+    public static final Setting<TimeValue> MAX_QUEUE_TIME_SETTING =
+        Setting.timeSetting("indices.merge.coordinator.max_queue_time", TimeValue.timeValueMinutes(1), TimeValue.ZERO,
+            Property.NodeScope);
+
+    private static final long WAIT_INTERVAL_MILLIS = 100;
+
+    private final int maxMergesPerPath;
+    private final double maxMbPerSecPerPath;
+    private final long maxQueueTimeInNanos;
+    private final Map<Path, PathBudget> budgets = new HashMap<>();
+    private boolean closed;
+
+    public MergeCoordinator(Settings settings) {
+        this.maxMergesPerPath = MAX_MERGES_PER_PATH_SETTING.get(settings);
+        final long maxBytesPerSec = MAX_BYTES_PER_SEC_PER_PATH_SETTING.get(settings).getBytes();
+        this.maxMbPerSecPerPath = maxBytesPerSec <= 0 ? Double.POSITIVE_INFINITY : (double) maxBytesPerSec / ByteSizeUnit.MB.toBytes(1);
+        this.maxQueueTimeInNanos = MAX_QUEUE_TIME_SETTING.get(settings).nanos();
+    }
+
+    /**
+     * Returns a new coordinator if merge coordination is enabled in the given settings, otherwise <code>null</code>.
+     */
+    public static MergeCoordinator create(Settings settings) {
+        return ENABLED_SETTING.get(settings) ? new MergeCoordinator(settings) : null;
+    }
+
+    /**
+     * Returns the budget of a shard that lives on the given data path.
+     *
+     * @param dataPath     the data path of the shard, all shards of a data path share the same budget
+     * @param searchActive whether the shard is currently searched, merges of such shards are preferred
+     */
+    public ShardBudget newShardBudget(Path dataPath, BooleanSupplier searchActive) {
+        final PathBudget pathBudget;
+        synchronized (this) {
+            pathBudget = budgets.computeIfAbsent(dataPath, path -> new PathBudget());
+            if (closed) {
+                pathBudget.close();
+            }
+        }
+        return new ShardBudget(pathBudget, searchActive);
+    }
+
+    @Override
+    public void close() {
+        final List<PathBudget> toClose;
+        synchronized (this) {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            toClose = new ArrayList<>(budgets.values());
+        }
+        for (PathBudget pathBudget : toClose) {
+            pathBudget.close();
+        }
+    }
+
+    /**
+     * The share of a shard of the merge budget of its data path.
+     */
+    public static final class ShardBudget {
+
+        private final PathBudget pathBudget;
+        private final BooleanSupplier searchActive;
+
+        private ShardBudget(PathBudget pathBudget, BooleanSupplier searchActive) {
+            this.pathBudget = pathBudget;
+            this.searchActive = searchActive;
+        }
+
+        /**
+         * Blocks until the data path has room for another merge. Returns a permit that must be released once the merge is done.
+         * If the merge gets aborted while waiting, this method returns without taking a permit.
+         *
+         * @param estimatedMergeBytes the estimated size of the merged segment
+         * @param aborted             whether the merge was aborted in the meantime
+         */
+        public Releasable acquire(long estimatedMergeBytes, BooleanSupplier aborted) throws InterruptedException {
+            return pathBudget.acquire(new QueuedMerge(estimatedMergeBytes, searchActive, System.nanoTime()), aborted);
+        }
+
+        /**
+         * The maximum rate in MB per second that each running merge of the data path may write at.
+         */
+        public double maxMbPerSecPerMerge() {
+            return pathBudget.maxMbPerSecPerMerge();
+        }
+
+        /**
+         * Adds a listener that is notified whenever a merge starts or completes on the data path, and thus the IO rate that each
+         * merge of the data path may write at changes.
+         */
+        public void addListener(Runnable listener) {
+            pathBudget.listeners.add(listener);
+        }
+
+        public void removeListener(Runnable listener) {
+            pathBudget.listeners.remove(listener);
+        }
+
+        /**
+         * The number of merges that currently run on the data path.
+         */
+        public int runningMerges() {
+            return pathBudget.running();
+        }
+
+        /**
+         * The number of merges that currently wait for a permit on the data path.
+         */
+        public int queuedMerges() {
+            return pathBudget.queued();
+        }
+    }
+
+    private static final class QueuedMerge {
+        private final long estimatedMergeBytes;
+        private final BooleanSupplier searchActive;
+        private final long queuedAtNanos;
+        private boolean granted;
+
+        private QueuedMerge(long estimatedMergeBytes, BooleanSupplier searchActive, long queuedAtNanos) {
+            this.estimatedMergeBytes = estimatedMergeBytes;
+            this.searchActive = searchActive;
+            this.queuedAtNanos = queuedAtNanos;
+        }
+    }
+
+    private final class PathBudget {
+
+        private final List<QueuedMerge> queue = new ArrayList<>();
+        private final List<Runnable> listeners = new CopyOnWriteArrayList<>();
+        private int running;
+        private boolean closed;
+
+        Releasable acquire(QueuedMerge merge, BooleanSupplier aborted) throws InterruptedException {
+            synchronized (this) {
+                if (closed || (running < maxMergesPerPath && queue.isEmpty())) {
+                    running++;
+                } else {
+                    queue.add(merge);
+                    try {
+                        while (merge.granted == false) {
+                            if (aborted.getAsBoolean()) {
+                                queue.remove(merge);
+                                return () -> {};
+                            }
+                            wait(WAIT_INTERVAL_MILLIS);
+                        }
+                    } catch (InterruptedException e) {
+                        if (merge.granted) {
+                            release();
+                        } else {
+                            queue.remove(merge);
+                        }
+                        throw e;
+                    }
+                }
+            }
+            notifyListeners();
+            final AtomicBoolean released = new AtomicBoolean();
+            return () -> {
+                if (released.compareAndSet(false, true)) {
+                    synchronized (this) {
+                        release();
+                    }
+                    notifyListeners();
+                }
+            };
+        }
+
+        private void release() {
+            assert Thread.holdsLock(this);
+            running--;
+            assert running >= 0 : "released more merges than were acquired";
+            grantQueued();
+        }
+
+        private void grantQueued() {
+            assert Thread.holdsLock(this);
+            final long now = System.nanoTime();
+            while (queue.isEmpty() == false && (closed || running < maxMergesPerPath)) {
+                final QueuedMerge next = next(now);
+                queue.remove(next);
+                next.granted = true;
+                running++;
+            }
+            notifyAll();
+        }
+
+        /**
+         * Picks the queued merge with the highest priority. The queue is short, a linear scan lets us re-evaluate whether a shard
+         * is searched and how long a merge has been waiting every time a permit becomes free.
+         */
+        private QueuedMerge next(long now) {
+            QueuedMerge best = null;
+            boolean bestStarving = false;
+            boolean bestSearchActive = false;
+            for (QueuedMerge merge : queue) {
+                final boolean starving = now - merge.queuedAtNanos >= maxQueueTimeInNanos;
+                final boolean searchActive = merge.searchActive.getAsBoolean();
+                final boolean better;
+                if (best == null) {
+                    better = true;
+                } else if (starving != bestStarving) {
+                    better = starving;
+                } else if (starving) {
+                    better = merge.queuedAtNanos < best.queuedAtNanos;
+                } else if (searchActive != bestSearchActive) {
+                    better = searchActive;
+                } else {
+                    better = merge.estimatedMergeBytes < best.estimatedMergeBytes;
+                }
+                if (better) {
+                    best = merge;
+                    bestStarving = starving;
+                    bestSearchActive = searchActive;
+                }
+            }
+            return best;
+        }
+
+        synchronized double maxMbPerSecPerMerge() {
+            return maxMbPerSecPerPath / Math.max(1, running);
+        }
+
+        synchronized int running() {
+            return running;
+        }
+
+        synchronized int queued() {
+            return queue.size();
+        }
+
+        void close() {
+            synchronized (this) {
+                if (closed) {
+                    return;
+                }
+                closed = true;
+                // let all queued merges go, the node is shutting down and the shards abort their merges anyway
+                grantQueued();
+            }
+            notifyListeners();
+        }
+
+        private void notifyListeners() {
+            for (Runnable listener : listeners) {
+                listener.run();
+            }
+        }
+    }
+}
@@ -19,6 +19,7 @@
 
 package org.elasticsearch.index.merge;
 
+import org.elasticsearch.Version;
 import org.elasticsearch.common.io.stream.StreamInput;
 import org.elasticsearch.common.io.stream.StreamOutput;
 import org.elasticsearch.common.io.stream.Streamable;
@@ -48,6 +49,10 @@ public class MergeStats implements Streamable, Writeable, ToXContentFragment {
 
     private long totalBytesPerSecAutoThrottle;
 
+    /** Merges that wait for a permit of the node level {@link MergeCoordinator}. */
+    private long queued;
+    private long queuedSizeInBytes;
+
     public MergeStats() {
 
     }
@@ -64,6 +69,10 @@ public class MergeStats implements Streamable, Writeable, ToXContentFragment {
         totalStoppedTimeInMillis = in.readVLong();
         totalThrottledTimeInMillis = in.readVLong();
         totalBytesPerSecAutoThrottle = in.readVLong();
+        if (in.getVersion().onOrAfter(Version.V_8_0_0)) {
+            queued = in.readVLong();
+            queuedSizeInBytes = in.readVLong();
+        }
     }
 
     public void add(long totalMerges, long totalMergeTime, long totalNumDocs, long totalSizeInBytes,
@@ -86,6 +95,11 @@ public class MergeStats implements Streamable, Writeable, ToXContentFragment {
         }
     }
 
+    public void addQueued(long queuedMerges, long queuedSizeInBytes) {
+        this.queued += queuedMerges;
+        this.queuedSizeInBytes += queuedSizeInBytes;
+    }
+
     public void add(MergeStats mergeStats) {
         if (mergeStats == null) {
             return;
@@ -93,6 +107,8 @@ public class MergeStats implements Streamable, Writeable, ToXContentFragment {
         this.current += mergeStats.current;
         this.currentNumDocs += mergeStats.currentNumDocs;
         this.currentSizeInBytes += mergeStats.currentSizeInBytes;
+        this.queued += mergeStats.queued;
+        this.queuedSizeInBytes += mergeStats.queuedSizeInBytes;
 
         addTotals(mergeStats);
     }
@@ -198,12 +214,32 @@ public class MergeStats implements Streamable, Writeable, ToXContentFragment {
         return new ByteSizeValue(currentSizeInBytes);
     }
 
+    /**
+     * The current number of merges that wait for the merge budget of their data path.
+     */
+    public long getQueued() {
+        return this.queued;
+    }
+
+    /**
+     * The estimated size of the segments that the queued merges will write.
+     */
+    public long getQueuedEstimatedSizeInBytes() {
+        return this.queuedSizeInBytes;
+    }
+
+    public ByteSizeValue getQueuedEstimatedSize() {
+        return new ByteSizeValue(queuedSizeInBytes);
+    }
+
     @Override
     public XContentBuilder toXContent(XContentBuilder builder, Params params) throws IOException {
         builder.startObject(Fields.MERGES);
         builder.field(Fields.CURRENT, current);
         builder.field(Fields.CURRENT_DOCS, currentNumDocs);
         builder.humanReadableField(Fields.CURRENT_SIZE_IN_BYTES, Fields.CURRENT_SIZE, getCurrentSize());
+        builder.field(Fields.QUEUED, queued);
+        builder.humanReadableField(Fields.QUEUED_ESTIMATED_SIZE_IN_BYTES, Fields.QUEUED_ESTIMATED_SIZE, getQueuedEstimatedSize());
         builder.field(Fields.TOTAL, total);
         builder.humanReadableField(Fields.TOTAL_TIME_IN_MILLIS, Fields.TOTAL_TIME, getTotalTime());
         builder.field(Fields.TOTAL_DOCS, totalNumDocs);
@@ -224,6 +260,9 @@ public class MergeStats implements Streamable, Writeable, ToXContentFragment {
         static final String CURRENT_DOCS = "current_docs";
         static final String CURRENT_SIZE = "current_size";
         static final String CURRENT_SIZE_IN_BYTES = "current_size_in_bytes";
+        static final String QUEUED = "queued";
+        static final String QUEUED_ESTIMATED_SIZE = "queued_estimated_size";
+        static final String QUEUED_ESTIMATED_SIZE_IN_BYTES = "queued_estimated_size_in_bytes";
         static final String TOTAL = "total";
         static final String TOTAL_TIME = "total_time";
         static final String TOTAL_TIME_IN_MILLIS = "total_time_in_millis";
@@ -256,5 +295,9 @@ public class MergeStats implements Streamable, Writeable, ToXContentFragment {
         out.writeVLong(totalStoppedTimeInMillis);
         out.writeVLong(totalThrottledTimeInMillis);
         out.writeVLong(totalBytesPerSecAutoThrottle);
+        if (out.getVersion().onOrAfter(Version.V_8_0_0)) {
+            out.writeVLong(queued);
+            out.writeVLong(queuedSizeInBytes);
+        }
     }
 }
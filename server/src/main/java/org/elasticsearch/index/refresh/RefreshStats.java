@@ -41,6 +41,31 @@ public class RefreshStats implements Streamable, Writeable, ToXContentFragment {
 
     private long externalTotalTimeInMillis;
 
+    /**
+     * Number of refreshes executed by the refresh scheduler because the refresh interval elapsed.
+     */
+    private long scheduledTotal;
+
+    /**
+     * Number of scheduled refreshes that were skipped because the shard was search idle.
+     */
+    private long searchIdleSkippedTotal;
+
+    /**
+     * Number of refreshes a search idle shard received because {@code index.search.idle.refresh_interval} elapsed.
+     */
+    private long searchIdleTotal;
+
+    /**
+     * Number of refreshes triggered by the first search after a shard was search idle.
+     */
+    private long searchWakeupTotal;
+
+    /**
+     * Number of times the indexing buffer was written to disk because the node ran short of indexing buffer.
+     */
+    private long indexingBufferTotal;
+
     /**
      * Number of waiting refresh listeners.
      */
@@ -57,6 +82,13 @@ public class RefreshStats implements Streamable, Writeable, ToXContentFragment {
             externalTotalTimeInMillis = in.readVLong();
         }
         listeners = in.readVInt();
+        if (in.getVersion().onOrAfter(Version.V_8_0_0)) {
+            scheduledTotal = in.readVLong();
+            searchIdleSkippedTotal = in.readVLong();
+            searchIdleTotal = in.readVLong();
+            searchWakeupTotal = in.readVLong();
+            indexingBufferTotal = in.readVLong();
+        }
     }
 
     @Override
@@ -68,14 +100,32 @@ public class RefreshStats implements Streamable, Writeable, ToXContentFragment {
             out.writeVLong(externalTotalTimeInMillis);
         }
         out.writeVInt(listeners);
+        if (out.getVersion().onOrAfter(Version.V_8_0_0)) {
+            out.writeVLong(scheduledTotal);
+            out.writeVLong(searchIdleSkippedTotal);
+            out.writeVLong(searchIdleTotal);
+            out.writeVLong(searchWakeupTotal);
+            out.writeVLong(indexingBufferTotal);
+        }
     }
 
     public RefreshStats(long total, long totalTimeInMillis, long externalTotal, long externalTotalTimeInMillis, int listeners) {
+        this(total, totalTimeInMillis, externalTotal, externalTotalTimeInMillis, listeners, 0, 0, 0, 0, 0);
+    }
+
+    public RefreshStats(long total, long totalTimeInMillis, long externalTotal, long externalTotalTimeInMillis, int listeners,
+                        long scheduledTotal, long searchIdleSkippedTotal, long searchIdleTotal, long searchWakeupTotal,
+                        long indexingBufferTotal) {
         this.total = total;
         this.totalTimeInMillis = totalTimeInMillis;
         this.externalTotal = externalTotal;
         this.externalTotalTimeInMillis = externalTotalTimeInMillis;
         this.listeners = listeners;
+        this.scheduledTotal = scheduledTotal;
+        this.searchIdleSkippedTotal = searchIdleSkippedTotal;
+        this.searchIdleTotal = searchIdleTotal;
+        this.searchWakeupTotal = searchWakeupTotal;
+        this.indexingBufferTotal = indexingBufferTotal;
     }
 
     public void add(RefreshStats refreshStats) {
@@ -91,6 +141,11 @@ public class RefreshStats implements Streamable, Writeable, ToXContentFragment {
         this.externalTotal += refreshStats.externalTotal;
         this.externalTotalTimeInMillis += refreshStats.externalTotalTimeInMillis;
         this.listeners += refreshStats.listeners;
+        this.scheduledTotal += refreshStats.scheduledTotal;
+        this.searchIdleSkippedTotal += refreshStats.searchIdleSkippedTotal;
+        this.searchIdleTotal += refreshStats.searchIdleTotal;
+        this.searchWakeupTotal += refreshStats.searchWakeupTotal;
+        this.indexingBufferTotal += refreshStats.indexingBufferTotal;
     }
 
     /**
@@ -139,6 +194,41 @@ public class RefreshStats implements Streamable, Writeable, ToXContentFragment {
         return listeners;
     }
 
+    /**
+     * The number of refreshes executed by the refresh scheduler because the refresh interval elapsed.
+     */
+    public long getScheduledTotal() {
+        return scheduledTotal;
+    }
+
+    /**
+     * The number of scheduled refreshes that were skipped because the shard was search idle.
+     */
+    public long getSearchIdleSkippedTotal() {
+        return searchIdleSkippedTotal;
+    }
+
+    /**
+     * The number of refreshes search idle shards received because {@code index.search.idle.refresh_interval} elapsed.
+     */
+    public long getSearchIdleTotal() {
+        return searchIdleTotal;
+    }
+
+    /**
+     * The number of refreshes triggered by the first search after a shard was search idle.
+     */
+    public long getSearchWakeupTotal() {
+        return searchWakeupTotal;
+    }
+
+    /**
+     * The number of times the indexing buffer was written to disk because the node ran short of indexing buffer.
+     */
+    public long getIndexingBufferTotal() {
+        return indexingBufferTotal;
+    }
+
     @Override
     public XContentBuilder toXContent(XContentBuilder builder, Params params) throws IOException {
         builder.startObject("refresh");
@@ -147,6 +237,13 @@ public class RefreshStats implements Streamable, Writeable, ToXContentFragment {
         builder.field("external_total", externalTotal);
         builder.humanReadableField("external_total_time_in_millis", "external_total_time", getExternalTotalTime());
         builder.field("listeners", listeners);
+        builder.startObject("reasons");
+        builder.field("scheduled", scheduledTotal);
+        builder.field("search_idle_skipped", searchIdleSkippedTotal);
+        builder.field("search_idle", searchIdleTotal);
+        builder.field("search_wakeup", searchWakeupTotal);
+        builder.field("indexing_buffer", indexingBufferTotal);
+        builder.endObject();
         builder.endObject();
         return builder;
     }
@@ -166,11 +263,17 @@ public class RefreshStats implements Streamable, Writeable, ToXContentFragment {
                 && totalTimeInMillis == rhs.totalTimeInMillis
                 && externalTotal == rhs.externalTotal
                 && externalTotalTimeInMillis == rhs.externalTotalTimeInMillis
-                && listeners == rhs.listeners;
+                && listeners == rhs.listeners
+                && scheduledTotal == rhs.scheduledTotal
+                && searchIdleSkippedTotal == rhs.searchIdleSkippedTotal
+                && searchIdleTotal == rhs.searchIdleTotal
+                && searchWakeupTotal == rhs.searchWakeupTotal
+                && indexingBufferTotal == rhs.indexingBufferTotal;
     }
 
     @Override
     public int hashCode() {
-        return Objects.hash(total, totalTimeInMillis, externalTotal, externalTotalTimeInMillis, listeners);
+        return Objects.hash(total, totalTimeInMillis, externalTotal, externalTotalTimeInMillis, listeners, scheduledTotal,
+            searchIdleSkippedTotal, searchIdleTotal, searchWakeupTotal, indexingBufferTotal);
     }
 }
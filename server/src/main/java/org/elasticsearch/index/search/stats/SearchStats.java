@@ -19,11 +19,13 @@
 
 package org.elasticsearch.index.search.stats;
 
+import org.elasticsearch.Version;
 import org.elasticsearch.common.Nullable;
 import org.elasticsearch.common.Strings;
 import org.elasticsearch.common.io.stream.StreamInput;
 import org.elasticsearch.common.io.stream.StreamOutput;
 import org.elasticsearch.common.io.stream.Writeable;
+import org.elasticsearch.common.unit.ByteSizeValue;
 import org.elasticsearch.common.unit.TimeValue;
 import org.elasticsearch.common.xcontent.ToXContent;
 import org.elasticsearch.common.xcontent.ToXContentFragment;
@@ -54,6 +56,10 @@ public class SearchStats implements Writeable, ToXContentFragment {
         private long suggestTimeInMillis;
         private long suggestCurrent;
 
+        private long pointInTimeCount;
+        private long pointInTimeTimeInMillis;
+        private long pointInTimeCurrent;
+
         private Stats() {
             // for internal use, initializes all counts to 0
         }
@@ -63,6 +69,17 @@ public class SearchStats implements Writeable, ToXContentFragment {
                 long fetchCount, long fetchTimeInMillis, long fetchCurrent,
                 long scrollCount, long scrollTimeInMillis, long scrollCurrent,
                 long suggestCount, long suggestTimeInMillis, long suggestCurrent
+        ) {
+            this(queryCount, queryTimeInMillis, queryCurrent, fetchCount, fetchTimeInMillis, fetchCurrent,
+                scrollCount, scrollTimeInMillis, scrollCurrent, suggestCount, suggestTimeInMillis, suggestCurrent, 0, 0, 0);
+        }
+
+        public Stats(
+                long queryCount, long queryTimeInMillis, long queryCurrent,
+                long fetchCount, long fetchTimeInMillis, long fetchCurrent,
+                long scrollCount, long scrollTimeInMillis, long scrollCurrent,
+                long suggestCount, long suggestTimeInMillis, long suggestCurrent,
+                long pointInTimeCount, long pointInTimeTimeInMillis, long pointInTimeCurrent
         ) {
             this.queryCount = queryCount;
             this.queryTimeInMillis = queryTimeInMillis;
@@ -79,6 +96,10 @@ public class SearchStats implements Writeable, ToXContentFragment {
             this.suggestCount = suggestCount;
             this.suggestTimeInMillis = suggestTimeInMillis;
             this.suggestCurrent = suggestCurrent;
+
+            this.pointInTimeCount = pointInTimeCount;
+            this.pointInTimeTimeInMillis = pointInTimeTimeInMillis;
+            this.pointInTimeCurrent = pointInTimeCurrent;
         }
 
         private Stats(StreamInput in) throws IOException {
@@ -97,6 +118,12 @@ public class SearchStats implements Writeable, ToXContentFragment {
             suggestCount = in.readVLong();
             suggestTimeInMillis = in.readVLong();
             suggestCurrent = in.readVLong();
+
+            if (in.getVersion().onOrAfter(Version.V_8_0_0)) {
+                pointInTimeCount = in.readVLong();
+                pointInTimeTimeInMillis = in.readVLong();
+                pointInTimeCurrent = in.readVLong();
+            }
         }
 
         public void add(Stats stats) {
@@ -115,6 +142,10 @@ public class SearchStats implements Writeable, ToXContentFragment {
             suggestCount += stats.suggestCount;
             suggestTimeInMillis += stats.suggestTimeInMillis;
             suggestCurrent += stats.suggestCurrent;
+
+            pointInTimeCount += stats.pointInTimeCount;
+            pointInTimeTimeInMillis += stats.pointInTimeTimeInMillis;
+            pointInTimeCurrent += stats.pointInTimeCurrent;
         }
 
         public long getQueryCount() {
@@ -181,6 +212,22 @@ public class SearchStats implements Writeable, ToXContentFragment {
             return suggestCurrent;
         }
 
+        public long getPointInTimeCount() {
+            return pointInTimeCount;
+        }
+
+        public TimeValue getPointInTimeTime() {
+            return new TimeValue(pointInTimeTimeInMillis);
+        }
+
+        public long getPointInTimeTimeInMillis() {
+            return pointInTimeTimeInMillis;
+        }
+
+        public long getPointInTimeCurrent() {
+            return pointInTimeCurrent;
+        }
+
         public static Stats readStats(StreamInput in) throws IOException {
             return new Stats(in);
         }
@@ -202,6 +249,12 @@ public class SearchStats implements Writeable, ToXContentFragment {
             out.writeVLong(suggestCount);
             out.writeVLong(suggestTimeInMillis);
             out.writeVLong(suggestCurrent);
+
+            if (out.getVersion().onOrAfter(Version.V_8_0_0)) {
+                out.writeVLong(pointInTimeCount);
+                out.writeVLong(pointInTimeTimeInMillis);
+                out.writeVLong(pointInTimeCurrent);
+            }
         }
 
         @Override
@@ -222,12 +275,17 @@ public class SearchStats implements Writeable, ToXContentFragment {
             builder.humanReadableField(Fields.SUGGEST_TIME_IN_MILLIS, Fields.SUGGEST_TIME, getSuggestTime());
             builder.field(Fields.SUGGEST_CURRENT, suggestCurrent);
 
+            builder.field(Fields.POINT_IN_TIME_TOTAL, pointInTimeCount);
+            builder.humanReadableField(Fields.POINT_IN_TIME_TIME_IN_MILLIS, Fields.POINT_IN_TIME_TIME, getPointInTimeTime());
+            builder.field(Fields.POINT_IN_TIME_CURRENT, pointInTimeCurrent);
+
             return builder;
         }
     }
 
     private final Stats totalStats;
     private long openContexts;
+    private long pointInTimeSegmentsSizeInBytes;
 
     @Nullable
     private Map<String, Stats> groupStats;
@@ -242,9 +300,18 @@ public class SearchStats implements Writeable, ToXContentFragment {
         this.groupStats = groupStats;
     }
 
+    public SearchStats(Stats totalStats, long openContexts, long pointInTimeSegmentsSizeInBytes,
+                       @Nullable Map<String, Stats> groupStats) {
+        this(totalStats, openContexts, groupStats);
+        this.pointInTimeSegmentsSizeInBytes = pointInTimeSegmentsSizeInBytes;
+    }
+
     public SearchStats(StreamInput in) throws IOException {
         totalStats = Stats.readStats(in);
         openContexts = in.readVLong();
+        if (in.getVersion().onOrAfter(Version.V_8_0_0)) {
+            pointInTimeSegmentsSizeInBytes = in.readVLong();
+        }
         if (in.readBoolean()) {
             groupStats = in.readMap(StreamInput::readString, Stats::readStats);
         }
@@ -256,6 +323,7 @@ public class SearchStats implements Writeable, ToXContentFragment {
         }
         addTotals(searchStats);
         openContexts += searchStats.openContexts;
+        pointInTimeSegmentsSizeInBytes += searchStats.pointInTimeSegmentsSizeInBytes;
         if (searchStats.groupStats != null && !searchStats.groupStats.isEmpty()) {
             if (groupStats == null) {
                 groupStats = new HashMap<>(searchStats.groupStats.size());
@@ -282,6 +350,17 @@ public class SearchStats implements Writeable, ToXContentFragment {
         return this.openContexts;
     }
 
+    /**
+     * Returns the size on disk of the segments that are kept alive by open point in times.
+     */
+    public ByteSizeValue getPointInTimeSegmentsSize() {
+        return new ByteSizeValue(pointInTimeSegmentsSizeInBytes);
+    }
+
+    public long getPointInTimeSegmentsSizeInBytes() {
+        return this.pointInTimeSegmentsSizeInBytes;
+    }
+
     @Nullable
     public Map<String, Stats> getGroupStats() {
         return this.groupStats != null ? Collections.unmodifiableMap(this.groupStats) : null;
@@ -291,6 +370,8 @@ public class SearchStats implements Writeable, ToXContentFragment {
     public XContentBuilder toXContent(XContentBuilder builder, ToXContent.Params params) throws IOException {
         builder.startObject(Fields.SEARCH);
         builder.field(Fields.OPEN_CONTEXTS, openContexts);
+        builder.humanReadableField(Fields.POINT_IN_TIME_SEGMENTS_SIZE_IN_BYTES, Fields.POINT_IN_TIME_SEGMENTS_SIZE,
+            getPointInTimeSegmentsSize());
         totalStats.toXContent(builder, params);
         if (groupStats != null && !groupStats.isEmpty()) {
             builder.startObject(Fields.GROUPS);
@@ -330,12 +411,21 @@ public class SearchStats implements Writeable, ToXContentFragment {
         static final String SUGGEST_TIME = "suggest_time";
         static final String SUGGEST_TIME_IN_MILLIS = "suggest_time_in_millis";
         static final String SUGGEST_CURRENT = "suggest_current";
+        static final String POINT_IN_TIME_TOTAL = "point_in_time_total";
+        static final String POINT_IN_TIME_TIME = "point_in_time_time";
+        static final String POINT_IN_TIME_TIME_IN_MILLIS = "point_in_time_time_in_millis";
+        static final String POINT_IN_TIME_CURRENT = "point_in_time_current";
+        static final String POINT_IN_TIME_SEGMENTS_SIZE = "point_in_time_segments_size";
+        static final String POINT_IN_TIME_SEGMENTS_SIZE_IN_BYTES = "point_in_time_segments_size_in_bytes";
     }
 
     @Override
     public void writeTo(StreamOutput out) throws IOException {
         totalStats.writeTo(out);
         out.writeVLong(openContexts);
+        if (out.getVersion().onOrAfter(Version.V_8_0_0)) {
+            out.writeVLong(pointInTimeSegmentsSizeInBytes);
+        }
         if (groupStats == null || groupStats.isEmpty()) {
             out.writeBoolean(false);
         } else {
@@ -24,6 +24,7 @@ import org.elasticsearch.common.metrics.CounterMetric;
 import org.elasticsearch.common.metrics.MeanMetric;
 import org.elasticsearch.common.regex.Regex;
 import org.elasticsearch.index.shard.SearchOperationListener;
+import org.elasticsearch.search.internal.PointInTimeContext;
 import org.elasticsearch.search.internal.SearchContext;
 
 import java.util.HashMap;
@@ -37,6 +38,7 @@ public final class ShardSearchStats implements SearchOperationListener {
 
     private final StatsHolder totalStats = new StatsHolder();
     private final CounterMetric openContexts = new CounterMetric();
+    private final CounterMetric pointInTimeSegmentsSizeInBytes = new CounterMetric();
     private volatile Map<String, StatsHolder> groupsStats = emptyMap();
 
     /**
@@ -61,7 +63,7 @@ public final class ShardSearchStats implements SearchOperationListener {
                 }
             }
         }
-        return new SearchStats(total, openContexts.count(), groupsSt);
+        return new SearchStats(total, openContexts.count(), pointInTimeSegmentsSizeInBytes.count(), groupsSt);
     }
 
     @Override
@@ -167,6 +169,21 @@ public final class ShardSearchStats implements SearchOperationListener {
         totalStats.scrollMetric.inc(TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - context.getOriginNanoTime()));
     }
 
+    @Override
+    public void onNewPointInTime(PointInTimeContext context) {
+        totalStats.pointInTimeCurrent.inc();
+        pointInTimeSegmentsSizeInBytes.inc(context.segmentsSizeInBytes());
+    }
+
+    @Override
+    public void onFreePointInTime(PointInTimeContext context) {
+        totalStats.pointInTimeCurrent.dec();
+        assert totalStats.pointInTimeCurrent.count() >= 0;
+        pointInTimeSegmentsSizeInBytes.dec(context.segmentsSizeInBytes());
+        assert pointInTimeSegmentsSizeInBytes.count() >= 0;
+        totalStats.pointInTimeMetric.inc(TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - context.getOriginNanoTime()));
+    }
+
     static final class StatsHolder {
         final MeanMetric queryMetric = new MeanMetric();
         final MeanMetric fetchMetric = new MeanMetric();
@@ -179,17 +196,21 @@ public final class ShardSearchStats implements SearchOperationListener {
          */
         final MeanMetric scrollMetric = new MeanMetric();
         final MeanMetric suggestMetric = new MeanMetric();
+        // stored in microseconds for the same reason as the scroll statistics
+        final MeanMetric pointInTimeMetric = new MeanMetric();
         final CounterMetric queryCurrent = new CounterMetric();
         final CounterMetric fetchCurrent = new CounterMetric();
         final CounterMetric scrollCurrent = new CounterMetric();
         final CounterMetric suggestCurrent = new CounterMetric();
+        final CounterMetric pointInTimeCurrent = new CounterMetric();
 
         SearchStats.Stats stats() {
             return new SearchStats.Stats(
                     queryMetric.count(), TimeUnit.NANOSECONDS.toMillis(queryMetric.sum()), queryCurrent.count(),
                     fetchMetric.count(), TimeUnit.NANOSECONDS.toMillis(fetchMetric.sum()), fetchCurrent.count(),
                     scrollMetric.count(), TimeUnit.MICROSECONDS.toMillis(scrollMetric.sum()), scrollCurrent.count(),
-                    suggestMetric.count(), TimeUnit.NANOSECONDS.toMillis(suggestMetric.sum()), suggestCurrent.count()
+                    suggestMetric.count(), TimeUnit.NANOSECONDS.toMillis(suggestMetric.sum()), suggestCurrent.count(),
+                    pointInTimeMetric.count(), TimeUnit.MICROSECONDS.toMillis(pointInTimeMetric.sum()), pointInTimeCurrent.count()
             );
         }
     }
@@ -103,6 +103,7 @@ import org.elasticsearch.index.mapper.ParsedDocument;
 import org.elasticsearch.index.mapper.RootObjectMapper;
 import org.elasticsearch.index.mapper.SourceToParse;
 import org.elasticsearch.index.mapper.Uid;
+import org.elasticsearch.index.merge.MergeCoordinator;
 import org.elasticsearch.index.merge.MergeStats;
 import org.elasticsearch.index.recovery.RecoveryStats;
 import org.elasticsearch.index.refresh.RefreshStats;
@@ -124,6 +125,7 @@ import org.elasticsearch.index.store.StoreStats;
 import org.elasticsearch.index.translog.Translog;
 import org.elasticsearch.index.translog.TranslogConfig;
 import org.elasticsearch.index.translog.TranslogStats;
+import org.elasticsearch.index.translog.TranslogSyncScheduler;
 import org.elasticsearch.index.warmer.ShardIndexWarmerService;
 import org.elasticsearch.index.warmer.WarmerStats;
 import org.elasticsearch.indices.IndexingMemoryController;
@@ -155,11 +157,14 @@ import java.util.Locale;
 import java.util.Map;
 import java.util.Objects;
 import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicLong;
 import java.util.concurrent.atomic.AtomicReference;
 import java.util.function.BiConsumer;
@@ -167,6 +172,7 @@ import java.util.function.Consumer;
 import java.util.function.Function;
 import java.util.function.Supplier;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 import java.util.stream.StreamSupport;
 
 import static org.elasticsearch.index.seqno.RetentionLeaseActions.RETAIN_ALL;
@@ -196,6 +202,10 @@ public class IndexShard extends AbstractIndexShardComponent implements IndicesCl
     private final Supplier<Sort> indexSortSupplier;
     // Package visible for testing
     final CircuitBreakerService circuitBreakerService;
+    @Nullable
+    private final TranslogSyncScheduler translogSyncScheduler;
+    @Nullable
+    private final MergeCoordinator mergeCoordinator;
 
     private final SearchOperationListener searchOperationListener;
 
@@ -223,6 +233,11 @@ public class IndexShard extends AbstractIndexShardComponent implements IndicesCl
     private final RecoveryStats recoveryStats = new RecoveryStats();
     private final MeanMetric refreshMetric = new MeanMetric();
     private final MeanMetric externalRefreshMetric = new MeanMetric();
+    private final CounterMetric scheduledRefreshMetric = new CounterMetric();
+    private final CounterMetric searchIdleSkippedRefreshMetric = new CounterMetric();
+    private final CounterMetric searchIdleRefreshMetric = new CounterMetric();
+    private final CounterMetric searchWakeupRefreshMetric = new CounterMetric();
+    private final CounterMetric indexingBufferRefreshMetric = new CounterMetric();
     private final MeanMetric flushMetric = new MeanMetric();
     private final CounterMetric periodicFlushMetric = new CounterMetric();
 
@@ -255,6 +270,7 @@ public class IndexShard extends AbstractIndexShardComponent implements IndicesCl
     private final RefreshListeners refreshListeners;
 
     private final AtomicLong lastSearcherAccess = new AtomicLong();
+    private final AtomicLong lastBackgroundRefresh = new AtomicLong();
     private final AtomicReference<Translog.Location> pendingRefreshLocation = new AtomicReference<>();
 
     public IndexShard(
@@ -276,7 +292,9 @@ public class IndexShard extends AbstractIndexShardComponent implements IndicesCl
             final List<IndexingOperationListener> listeners,
             final Runnable globalCheckpointSyncer,
             final RetentionLeaseSyncer retentionLeaseSyncer,
-            final CircuitBreakerService circuitBreakerService) throws IOException {
+            final CircuitBreakerService circuitBreakerService,
+            final @Nullable TranslogSyncScheduler translogSyncScheduler,
+            final @Nullable MergeCoordinator mergeCoordinator) throws IOException {
         super(shardRouting.shardId(), indexSettings);
         assert shardRouting.initializing();
         this.shardRouting = shardRouting;
@@ -309,6 +327,8 @@ public class IndexShard extends AbstractIndexShardComponent implements IndicesCl
         state = IndexShardState.CREATED;
         this.path = path;
         this.circuitBreakerService = circuitBreakerService;
+        this.translogSyncScheduler = translogSyncScheduler;
+        this.mergeCoordinator = mergeCoordinator;
         /* create engine config */
         logger.debug("state: [CREATED]");
 
@@ -351,6 +371,7 @@ public class IndexShard extends AbstractIndexShardComponent implements IndicesCl
         searcherWrapper = indexSearcherWrapper;
         refreshListeners = buildRefreshListeners();
         lastSearcherAccess.set(threadPool.relativeTimeInMillis());
+        lastBackgroundRefresh.set(threadPool.relativeTimeInMillis());
         persistMetadata(path, indexSettings, shardRouting, null, logger);
     }
 
@@ -716,37 +737,55 @@ public class IndexShard extends AbstractIndexShardComponent implements IndicesCl
                                                            long ifSeqNo, long ifPrimaryTerm, long autoGeneratedTimestamp,
                                                            boolean isRetry)
         throws IOException {
+        return applyIndexOperationOnPrimary(version, versionType, sourceToParse, ifSeqNo, ifPrimaryTerm, autoGeneratedTimestamp,
+            isRetry, null);
+    }
+
+    /**
+     * Same as {@link #applyIndexOperationOnPrimary(long, VersionType, SourceToParse, long, long, long, boolean)} but reuses the
+     * given document that was parsed ahead of time by {@link #preParseIndexOperation(SourceToParse)} if the mapping of the shard
+     * hasn't changed since then. The source is parsed again otherwise.
+     */
+    public Engine.IndexResult applyIndexOperationOnPrimary(long version, VersionType versionType, SourceToParse sourceToParse,
+                                                           long ifSeqNo, long ifPrimaryTerm, long autoGeneratedTimestamp,
+                                                           boolean isRetry, @Nullable PreParsedDocument preParsed)
+        throws IOException {
         assert versionType.validateVersionForWrites(version);
         return applyIndexOperation(getEngine(), UNASSIGNED_SEQ_NO, getOperationPrimaryTerm(), version, versionType, ifSeqNo,
-            ifPrimaryTerm, autoGeneratedTimestamp, isRetry, Engine.Operation.Origin.PRIMARY, sourceToParse);
+            ifPrimaryTerm, autoGeneratedTimestamp, isRetry, Engine.Operation.Origin.PRIMARY, sourceToParse, preParsed);
     }
 
     public Engine.IndexResult applyIndexOperationOnReplica(long seqNo, long version, long autoGeneratedTimeStamp,
                                                            boolean isRetry, SourceToParse sourceToParse)
         throws IOException {
         return applyIndexOperation(getEngine(), seqNo, getOperationPrimaryTerm(), version, null, UNASSIGNED_SEQ_NO, 0,
-            autoGeneratedTimeStamp, isRetry, Engine.Operation.Origin.REPLICA, sourceToParse);
+            autoGeneratedTimeStamp, isRetry, Engine.Operation.Origin.REPLICA, sourceToParse, null);
     }
 
     private Engine.IndexResult applyIndexOperation(Engine engine, long seqNo, long opPrimaryTerm, long version,
                                                    @Nullable VersionType versionType, long ifSeqNo, long ifPrimaryTerm,
                                                    long autoGeneratedTimeStamp, boolean isRetry, Engine.Operation.Origin origin,
-                                                   SourceToParse sourceToParse) throws IOException {
+                                                   SourceToParse sourceToParse, @Nullable PreParsedDocument preParsed)
+        throws IOException {
         assert opPrimaryTerm <= getOperationPrimaryTerm()
                 : "op term [ " + opPrimaryTerm + " ] > shard term [" + getOperationPrimaryTerm() + "]";
         ensureWriteAllowed(origin);
         Engine.Index operation;
         try {
             final String resolvedType = mapperService.resolveDocumentType(sourceToParse.type());
-            final SourceToParse sourceWithResolvedType;
-            if (resolvedType.equals(sourceToParse.type())) {
-                sourceWithResolvedType = sourceToParse;
+            final DocumentMapperForType docMapper = docMapper(resolvedType);
+            if (preParsed != null && preParsed.canBeUsedWith(docMapper, sourceToParse)) {
+                final ParsedDocument doc = preParsed.doc;
+                final Term uid = new Term(IdFieldMapper.NAME, Uid.encodeId(doc.id()));
+                // account for the time spent parsing the document ahead of time
+                final long startTime = System.nanoTime() - preParsed.parseTimeInNanos;
+                operation = new Engine.Index(uid, doc, seqNo, opPrimaryTerm, version, versionType, origin, startTime,
+                    autoGeneratedTimeStamp, isRetry, ifSeqNo, ifPrimaryTerm);
             } else {
-                sourceWithResolvedType = new SourceToParse(sourceToParse.index(), resolvedType, sourceToParse.id(),
-                    sourceToParse.source(), sourceToParse.getXContentType(), sourceToParse.routing());
+                operation = prepareIndex(docMapper, indexSettings.getIndexVersionCreated(),
+                    withResolvedType(sourceToParse, resolvedType), seqNo, opPrimaryTerm, version, versionType, origin,
+                    autoGeneratedTimeStamp, isRetry, ifSeqNo, ifPrimaryTerm);
             }
-            operation = prepareIndex(docMapper(resolvedType), indexSettings.getIndexVersionCreated(), sourceWithResolvedType,
-                seqNo, opPrimaryTerm, version, versionType, origin, autoGeneratedTimeStamp, isRetry, ifSeqNo, ifPrimaryTerm);
             Mapping update = operation.parsedDoc().dynamicMappingsUpdate();
             if (update != null) {
                 return new Engine.IndexResult(update);
@@ -763,6 +802,70 @@ public class IndexShard extends AbstractIndexShardComponent implements IndicesCl
         return index(engine, operation);
     }
 
+    private static SourceToParse withResolvedType(SourceToParse sourceToParse, String resolvedType) {
+        if (resolvedType.equals(sourceToParse.type())) {
+            return sourceToParse;
+        }
+        return new SourceToParse(sourceToParse.index(), resolvedType, sourceToParse.id(), sourceToParse.source(),
+            sourceToParse.getXContentType(), sourceToParse.routing());
+    }
+
+    /**
+     * Parses the source of an index operation against the current mapping of the shard without executing it, so that the
+     * parsing of several operations can happen concurrently while they are still applied in order. Returns {@code null} if the
+     * document requires a dynamic mapping update or can't be parsed, in which case it is parsed again when the operation is
+     * applied so that mapping updates and failures are handled as usual.
+     */
+    @Nullable
+    public PreParsedDocument preParseIndexOperation(SourceToParse sourceToParse) {
+        final long startTime = System.nanoTime();
+        try {
+            final String resolvedType = mapperService.resolveDocumentType(sourceToParse.type());
+            final DocumentMapperForType docMapper = docMapper(resolvedType);
+            if (docMapper.getMapping() != null) {
+                // the type doesn't exist yet
+                return null;
+            }
+            final DocumentMapper mapper = docMapper.getDocumentMapper();
+            final ParsedDocument doc = mapper.parse(withResolvedType(sourceToParse, resolvedType));
+            if (doc.dynamicMappingsUpdate() != null) {
+                return null;
+            }
+            return new PreParsedDocument(mapper, sourceToParse, doc, System.nanoTime() - startTime);
+        } catch (Exception e) {
+            logger.trace(() -> new ParameterizedMessage("failed to pre-parse [{}][{}]", sourceToParse.type(), sourceToParse.id()), e);
+            return null;
+        }
+    }
+
+    /**
+     * A document that was parsed ahead of the execution of its index operation, see
+     * {@link #preParseIndexOperation(SourceToParse)}.
+     */
+    public static final class PreParsedDocument {
+        private final DocumentMapper mapper;
+        private final SourceToParse source;
+        private final ParsedDocument doc;
+        private final long parseTimeInNanos;
+
+        private PreParsedDocument(DocumentMapper mapper, SourceToParse source, ParsedDocument doc, long parseTimeInNanos) {
+            this.mapper = mapper;
+            this.source = source;
+            this.doc = doc;
+            this.parseTimeInNanos = parseTimeInNanos;
+        }
+
+        /**
+         * Returns true if this document has been parsed from the same source and with the same mapper as the given ones.
+         */
+        boolean canBeUsedWith(DocumentMapperForType docMapper, SourceToParse sourceToParse) {
+            return docMapper.getMapping() == null && docMapper.getDocumentMapper() == mapper
+                && source.source() == sourceToParse.source()
+                && source.type().equals(sourceToParse.type())
+                && Objects.equals(source.id(), sourceToParse.id());
+        }
+    }
+
     public static Engine.Index prepareIndex(DocumentMapperForType docMapper, Version indexCreatedVersion, SourceToParse source, long seqNo,
                                             long primaryTerm, long version, VersionType versionType, Engine.Operation.Origin origin,
                                             long autoGeneratedIdTimestamp, boolean isRetry,
@@ -938,7 +1041,12 @@ public class IndexShard extends AbstractIndexShardComponent implements IndicesCl
             TimeUnit.NANOSECONDS.toMillis(refreshMetric.sum()),
             externalRefreshMetric.count(),
             TimeUnit.NANOSECONDS.toMillis(externalRefreshMetric.sum()),
-            listeners);
+            listeners,
+            scheduledRefreshMetric.count(),
+            searchIdleSkippedRefreshMetric.count(),
+            searchIdleRefreshMetric.count(),
+            searchWakeupRefreshMetric.count(),
+            indexingBufferRefreshMetric.count());
     }
 
     public FlushStats flushStats() {
@@ -1328,7 +1436,7 @@ public class IndexShard extends AbstractIndexShardComponent implements IndicesCl
                 result = applyIndexOperation(engine, index.seqNo(), index.primaryTerm(), index.version(),
                     versionType, UNASSIGNED_SEQ_NO, 0, index.getAutoGeneratedIdTimestamp(), true, origin,
                     new SourceToParse(shardId.getIndexName(), index.type(), index.id(), index.source(),
-                        XContentHelper.xContentType(index.source()), index.routing()));
+                        XContentHelper.xContentType(index.source()), index.routing()), null);
                 break;
             case DELETE:
                 final Translog.Delete delete = (Translog.Delete) operation;
@@ -1354,32 +1462,177 @@ public class IndexShard extends AbstractIndexShardComponent implements IndicesCl
         int opsRecovered = 0;
         Translog.Operation operation;
         while ((operation = snapshot.next()) != null) {
+            if (recoverTranslogOperation(engine, operation, origin)) {
+                opsRecovered++;
+                onOperationRecovered.run();
+            }
+        }
+        return opsRecovered;
+    }
+
+    /**
+     * Like {@link #runTranslogRecovery(Engine, Translog.Snapshot, Engine.Operation.Origin, Runnable)} but replays the operations
+     * with {@code parallelism} threads of the generic thread pool. The calling thread reads the snapshot ahead and hands every
+     * operation to the thread that owns its document id, such that operations on the same document are replayed in translog order.
+     */
+    int runTranslogRecovery(Engine engine, Translog.Snapshot snapshot, Engine.Operation.Origin origin,
+                            Runnable onOperationRecovered, int parallelism) throws IOException {
+        if (parallelism <= 1) {
+            return runTranslogRecovery(engine, snapshot, origin, onOperationRecovered);
+        }
+        final AtomicInteger opsRecovered = new AtomicInteger();
+        final AtomicReference<Exception> failure = new AtomicReference<>();
+        final CountDownLatch replayersDone = new CountDownLatch(parallelism);
+        final List<TranslogReplayer> replayers = new ArrayList<>(parallelism);
+        try {
+            for (int i = 0; i < parallelism; i++) {
+                final TranslogReplayer replayer = new TranslogReplayer(engine, origin, () -> {
+                    opsRecovered.incrementAndGet();
+                    onOperationRecovered.run();
+                }, failure, replayersDone);
+                replayers.add(replayer);
+                threadPool.generic().execute(replayer);
+            }
+            Translog.Operation operation;
+            while (failure.get() == null && (operation = snapshot.next()) != null) {
+                replayers.get(translogReplayPartition(operation, parallelism)).enqueue(operation);
+            }
+        } finally {
+            for (TranslogReplayer replayer : replayers) {
+                replayer.enqueue(END_OF_TRANSLOG_REPLAY);
+            }
+            for (int i = replayers.size(); i < parallelism; i++) {
+                replayersDone.countDown();
+            }
             try {
-                logger.trace("[translog] recover op {}", operation);
-                Engine.Result result = applyTranslogOperation(engine, operation, origin);
-                switch (result.getResultType()) {
-                    case FAILURE:
-                        throw result.getFailure();
-                    case MAPPING_UPDATE_REQUIRED:
-                        throw new IllegalArgumentException("unexpected mapping update: " + result.getRequiredMappingUpdate());
-                    case SUCCESS:
-                        break;
-                    default:
-                        throw new AssertionError("Unknown result type [" + result.getResultType() + "]");
+                replayersDone.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("interrupted while waiting for translog replay", e);
+            }
+        }
+        if (failure.get() != null) {
+            throw ExceptionsHelper.convertToRuntime(failure.get());
+        }
+        return opsRecovered.get();
+    }
+
+    private static final int TRANSLOG_REPLAY_QUEUE_SIZE = 1024;
+    private static final Translog.Operation END_OF_TRANSLOG_REPLAY = new Translog.NoOp(0, 0, "end of translog replay");
+
+    /**
+     * Replays the translog operations of a single partition of document ids in the order they are enqueued.
+     */
+    private final class TranslogReplayer extends AbstractRunnable {
+        private final BlockingQueue<Translog.Operation> queue = new ArrayBlockingQueue<>(TRANSLOG_REPLAY_QUEUE_SIZE);
+        private final Engine engine;
+        private final Engine.Operation.Origin origin;
+        private final Runnable onOperationRecovered;
+        private final AtomicReference<Exception> failure;
+        private final CountDownLatch done;
+        private volatile boolean stopped;
+
+        TranslogReplayer(Engine engine, Engine.Operation.Origin origin, Runnable onOperationRecovered,
+                         AtomicReference<Exception> failure, CountDownLatch done) {
+            this.engine = engine;
+            this.origin = origin;
+            this.onOperationRecovered = onOperationRecovered;
+            this.failure = failure;
+            this.done = done;
+        }
+
+        /**
+         * Blocks until the operation is enqueued. Operations are dropped once this replayer stopped, in which case the failure
+         * that stopped it is reported.
+         */
+        void enqueue(Translog.Operation operation) {
+            try {
+                boolean enqueued = false;
+                while (enqueued == false && stopped == false) {
+                    enqueued = queue.offer(operation, 100, TimeUnit.MILLISECONDS);
                 }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                failure.compareAndSet(null, e);
+            }
+        }
 
-                opsRecovered++;
-                onOperationRecovered.run();
-            } catch (Exception e) {
-                if (ExceptionsHelper.status(e) == RestStatus.BAD_REQUEST) {
-                    // mainly for MapperParsingException and Failure to detect xcontent
-                    logger.info("ignoring recovery of a corrupt translog entry", e);
-                } else {
-                    throw ExceptionsHelper.convertToRuntime(e);
+        @Override
+        protected void doRun() throws InterruptedException {
+            Translog.Operation operation;
+            while ((operation = queue.take()) != END_OF_TRANSLOG_REPLAY) {
+                // keep draining the queue after a failure so that the reading thread never blocks
+                if (failure.get() == null) {
+                    try {
+                        if (recoverTranslogOperation(engine, operation, origin)) {
+                            onOperationRecovered.run();
+                        }
+                    } catch (Exception e) {
+                        failure.compareAndSet(null, e);
+                    }
                 }
             }
         }
-        return opsRecovered;
+
+        @Override
+        public void onFailure(Exception e) {
+            failure.compareAndSet(null, e);
+        }
+
+        @Override
+        public void onAfter() {
+            stopped = true;
+            done.countDown();
+        }
+    }
+
+    /**
+     * Returns the replay thread of the given operation. Operations on the same document id always go to the same thread.
+     */
+    static int translogReplayPartition(Translog.Operation operation, int parallelism) {
+        final String id;
+        switch (operation.opType()) {
+            case CREATE:
+            case INDEX:
+                id = ((Translog.Index) operation).id();
+                break;
+            case DELETE:
+                id = ((Translog.Delete) operation).id();
+                break;
+            default:
+                // no-ops don't belong to a document
+                return Math.floorMod(Long.hashCode(operation.seqNo()), parallelism);
+        }
+        return Math.floorMod(id.hashCode(), parallelism);
+    }
+
+    /**
+     * Replays a single translog operation. Returns {@code false} if the operation was ignored because it is corrupted.
+     */
+    private boolean recoverTranslogOperation(Engine engine, Translog.Operation operation, Engine.Operation.Origin origin) {
+        try {
+            logger.trace("[translog] recover op {}", operation);
+            Engine.Result result = applyTranslogOperation(engine, operation, origin);
+            switch (result.getResultType()) {
+                case FAILURE:
+                    throw result.getFailure();
+                case MAPPING_UPDATE_REQUIRED:
+                    throw new IllegalArgumentException("unexpected mapping update: " + result.getRequiredMappingUpdate());
+                case SUCCESS:
+                    break;
+                default:
+                    throw new AssertionError("Unknown result type [" + result.getResultType() + "]");
+            }
+            return true;
+        } catch (Exception e) {
+            if (ExceptionsHelper.status(e) == RestStatus.BAD_REQUEST) {
+                // mainly for MapperParsingException and Failure to detect xcontent
+                logger.info("ignoring recovery of a corrupt translog entry", e);
+                return false;
+            } else {
+                throw ExceptionsHelper.convertToRuntime(e);
+            }
+        }
     }
 
     /**
@@ -1392,7 +1645,7 @@ public class IndexShard extends AbstractIndexShardComponent implements IndicesCl
             translogRecoveryStats.totalOperations(snapshot.totalOperations());
             translogRecoveryStats.totalOperationsOnStart(snapshot.totalOperations());
             return runTranslogRecovery(engine, snapshot, Engine.Operation.Origin.LOCAL_TRANSLOG_RECOVERY,
-                translogRecoveryStats::incrementRecoveredOperations);
+                translogRecoveryStats::incrementRecoveredOperations, indexSettings.getTranslogRecoveryParallelism());
         };
         innerOpenEngineAndTranslog();
         final Engine engine = getEngine();
@@ -1854,6 +2107,7 @@ public class IndexShard extends AbstractIndexShardComponent implements IndicesCl
         try {
             Engine engine = getEngine();
             engine.writeIndexingBuffer();
+            indexingBufferRefreshMetric.inc();
         } catch (Exception e) {
             handleRefreshException(e);
         }
@@ -2494,7 +2748,8 @@ public class IndexShard extends AbstractIndexShardComponent implements IndicesCl
                 Collections.singletonList(refreshListeners),
                 Collections.singletonList(new RefreshMetricUpdater(refreshMetric)),
                 indexSort, circuitBreakerService, replicationTracker, replicationTracker::getRetentionLeases,
-                () -> getOperationPrimaryTerm(), tombstoneDocSupplier());
+                () -> getOperationPrimaryTerm(), tombstoneDocSupplier(),
+                mergeCoordinator == null ? null : mergeCoordinator.newShardBudget(path.getRootDataPath(), () -> isSearchIdle() == false));
     }
 
     /**
@@ -2778,30 +3033,42 @@ public class IndexShard extends AbstractIndexShardComponent implements IndicesCl
     private final AsyncIOProcessor<Translog.Location> translogSyncProcessor = new AsyncIOProcessor<Translog.Location>(logger, 1024) {
         @Override
         protected void write(List<Tuple<Translog.Location, Consumer<Exception>>> candidates) throws IOException {
-            try {
-                getEngine().ensureTranslogSynced(candidates.stream().map(Tuple::v1));
-            } catch (AlreadyClosedException ex) {
-                // that's fine since we already synced everything on engine close - this also is conform with the methods
-                // documentation
-            } catch (IOException ex) { // if this fails we are in deep shit - fail the request
-                logger.debug("failed to sync translog", ex);
-                throw ex;
-            }
+            ensureTranslogSynced(candidates.stream().map(Tuple::v1));
         }
     };
 
+    private final TranslogSyncScheduler.SyncTarget translogSyncTarget = locations -> ensureTranslogSynced(locations.stream());
+
+    private void ensureTranslogSynced(Stream<Translog.Location> locations) throws IOException {
+        try {
+            getEngine().ensureTranslogSynced(locations);
+        } catch (AlreadyClosedException ex) {
+            // that's fine since we already synced everything on engine close - this also is conform with the methods
+            // documentation
+        } catch (IOException ex) { // if this fails we are in deep shit - fail the request
+            logger.debug("failed to sync translog", ex);
+            throw ex;
+        }
+    }
+
     /**
      * Syncs the given location with the underlying storage unless already synced. This method might return immediately without
      * actually fsyncing the location until the sync listener is called. Yet, unless there is already another thread fsyncing
      * the transaction log the caller thread will be hijacked to run the fsync for all pending fsync operations.
      * This method allows indexing threads to continue indexing without blocking on fsync calls. We ensure that there is only
      * one thread blocking on the sync an all others can continue indexing.
+     * If translog group commit is enabled on this node, the fsync is instead handed over to the {@link TranslogSyncScheduler} which
+     * groups it with the other sync requests of the data path of this shard and fsyncs each shard of the group once, concurrently.
      * NOTE: if the syncListener throws an exception when it's processed the exception will only be logged. Users should make sure that the
      * listener handles all exception cases internally.
      */
     public final void sync(Translog.Location location, Consumer<Exception> syncListener) {
         verifyNotClosed();
-        translogSyncProcessor.put(location, syncListener);
+        if (translogSyncScheduler != null) {
+            translogSyncScheduler.sync(path.getRootDataPath(), translogSyncTarget, location, syncListener);
+        } else {
+            translogSyncProcessor.put(location, syncListener);
+        }
     }
 
     public void sync() throws IOException {
@@ -2945,18 +3212,27 @@ public class IndexShard extends AbstractIndexShardComponent implements IndicesCl
                 && isSearchIdle()
                 && indexSettings.isExplicitRefresh() == false
                 && active.get()) { // it must be active otherwise we might not free up segment memory once the shard became inactive
-                // lets skip this refresh since we are search idle and
-                // don't necessarily need to refresh. the next searcher access will register a refreshListener and that will
-                // cause the next schedule to refresh.
                 final Engine engine = getEngine();
+                if (isSearchIdleRefreshDue()) {
+                    // search idle shards are still refreshed once in a while if configured so that changes become visible
+                    // eventually without producing a tiny segment every refresh interval
+                    if (logger.isTraceEnabled()) {
+                        logger.trace("refresh with source [search_idle]");
+                    }
+                    return maybeBackgroundRefresh(engine, "search_idle", searchIdleRefreshMetric);
+                }
+                // lets skip this refresh since we are search idle and
+                // don't necessarily need to refresh. the next searcher access will register a refreshListener and trigger
+                // a refresh right away.
                 engine.maybePruneDeletes(); // try to prune the deletes in the engine if we accumulated some
                 setRefreshPending(engine);
+                searchIdleSkippedRefreshMetric.inc();
                 return false;
             } else {
                 if (logger.isTraceEnabled()) {
                     logger.trace("refresh with source [schedule]");
                 }
-                return getEngine().maybeRefresh("schedule");
+                return maybeBackgroundRefresh(getEngine(), "schedule", scheduledRefreshMetric);
             }
         }
         final Engine engine = getEngine();
@@ -2964,6 +3240,24 @@ public class IndexShard extends AbstractIndexShardComponent implements IndicesCl
         return false;
     }
 
+    private boolean maybeBackgroundRefresh(Engine engine, String source, CounterMetric metric) {
+        final boolean refreshed = engine.maybeRefresh(source);
+        if (refreshed) {
+            metric.inc();
+            lastBackgroundRefresh.set(threadPool.relativeTimeInMillis());
+        }
+        return refreshed;
+    }
+
+    /**
+     * Returns true if this shard is search idle and wasn't refreshed in the background for at least
+     * {@link IndexSettings#getSearchIdleRefreshInterval()}
+     */
+    final boolean isSearchIdleRefreshDue() {
+        final long interval = indexSettings.getSearchIdleRefreshInterval().millis();
+        return interval >= 0 && (threadPool.relativeTimeInMillis() - lastBackgroundRefresh.get()) >= interval;
+    }
+
     /**
      * Returns true if this shards is search idle
      */
@@ -2997,7 +3291,8 @@ public class IndexShard extends AbstractIndexShardComponent implements IndicesCl
      *                 <code>true</code> if the listener was registered to wait for a refresh.
      */
     public final void awaitShardSearchActive(Consumer<Boolean> listener) {
-        if (isSearchIdle()) {
+        final boolean wasSearchIdle = isSearchIdle();
+        if (wasSearchIdle) {
             markSearcherAccessed(); // move the shard into non-search idle
         }
         final Translog.Location location = pendingRefreshLocation.get();
@@ -3006,6 +3301,25 @@ public class IndexShard extends AbstractIndexShardComponent implements IndicesCl
                 pendingRefreshLocation.compareAndSet(location, null);
                 listener.accept(true);
             });
+            if (wasSearchIdle && refreshListeners.refreshNeeded()) {
+                // the first search after the shard was search idle refreshes right away instead of waiting for the next schedule
+                threadPool.executor(ThreadPool.Names.REFRESH).execute(new AbstractRunnable() {
+                    @Override
+                    public void onFailure(Exception e) {
+                        handleRefreshException(e);
+                    }
+
+                    @Override
+                    protected void doRun() {
+                        if (refreshListeners.refreshNeeded()) {
+                            if (logger.isTraceEnabled()) {
+                                logger.trace("refresh with source [search_wakeup]");
+                            }
+                            maybeBackgroundRefresh(getEngine(), "search_wakeup", searchWakeupRefreshMetric);
+                        }
+                    }
+                });
+            }
         } else {
             listener.accept(false);
         }
@@ -21,6 +21,7 @@ package org.elasticsearch.index.shard;
 import org.apache.logging.log4j.Logger;
 import org.apache.logging.log4j.message.ParameterizedMessage;
 import org.elasticsearch.ExceptionsHelper;
+import org.elasticsearch.search.internal.PointInTimeContext;
 import org.elasticsearch.search.internal.SearchContext;
 import org.elasticsearch.transport.TransportRequest;
 
@@ -105,6 +106,20 @@ public interface SearchOperationListener {
      */
     default void onFreeScrollContext(SearchContext context) {}
 
+    /**
+     * Executed when a new {@link PointInTimeContext} was opened
+     * @param context the opened point in time
+     */
+    default void onNewPointInTime(PointInTimeContext context) {}
+
+    /**
+     * Executed when a {@link PointInTimeContext} is freed.
+     * This happens either when the point in time is explicitly closed or
+     * when its keep alive expired.
+     * @param context the freed point in time
+     */
+    default void onFreePointInTime(PointInTimeContext context) {}
+
     /**
      * Executed prior to using a {@link SearchContext} that has been retrieved
      * from the active contexts. If the context is deemed invalid a runtime
@@ -114,6 +129,15 @@ public interface SearchOperationListener {
      */
     default void validateSearchContext(SearchContext context, TransportRequest transportRequest) {}
 
+    /**
+     * Executed prior to searching or freeing a {@link PointInTimeContext} that has been
+     * retrieved from the active points in time. If the point in time is deemed invalid a
+     * runtime exception can be thrown, which will prevent it from being used.
+     * @param context the point in time retrieved from the active points in time
+     * @param transportRequest the request that is going to use the point in time
+     */
+    default void validatePointInTime(PointInTimeContext context, TransportRequest transportRequest) {}
+
     /**
      * A Composite listener that multiplexes calls to each of the listeners methods.
      */
@@ -236,6 +260,28 @@ public interface SearchOperationListener {
             }
         }
 
+        @Override
+        public void onNewPointInTime(PointInTimeContext context) {
+            for (SearchOperationListener listener : listeners) {
+                try {
+                    listener.onNewPointInTime(context);
+                } catch (Exception e) {
+                    logger.warn(() -> new ParameterizedMessage("onNewPointInTime listener [{}] failed", listener), e);
+                }
+            }
+        }
+
+        @Override
+        public void onFreePointInTime(PointInTimeContext context) {
+            for (SearchOperationListener listener : listeners) {
+                try {
+                    listener.onFreePointInTime(context);
+                } catch (Exception e) {
+                    logger.warn(() -> new ParameterizedMessage("onFreePointInTime listener [{}] failed", listener), e);
+                }
+            }
+        }
+
         @Override
         public void validateSearchContext(SearchContext context, TransportRequest request) {
             Exception exception = null;
@@ -248,5 +294,18 @@ public interface SearchOperationListener {
             }
             ExceptionsHelper.reThrowIfNotNull(exception);
         }
+
+        @Override
+        public void validatePointInTime(PointInTimeContext context, TransportRequest request) {
+            Exception exception = null;
+            for (SearchOperationListener listener : listeners) {
+                try {
+                    listener.validatePointInTime(context, request);
+                } catch (Exception e) {
+                    exception = ExceptionsHelper.useOrSuppress(exception, e);
+                }
+            }
+            ExceptionsHelper.reThrowIfNotNull(exception);
+        }
     }
 }
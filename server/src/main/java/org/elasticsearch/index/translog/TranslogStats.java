@@ -18,16 +18,20 @@
  */
 package org.elasticsearch.index.translog;
 
+import org.elasticsearch.Version;
 import org.elasticsearch.common.Strings;
 import org.elasticsearch.common.io.stream.StreamInput;
 import org.elasticsearch.common.io.stream.StreamOutput;
 import org.elasticsearch.common.io.stream.Streamable;
 import org.elasticsearch.common.io.stream.Writeable;
 import org.elasticsearch.common.unit.ByteSizeValue;
+import org.elasticsearch.common.unit.TimeValue;
 import org.elasticsearch.common.xcontent.ToXContentFragment;
 import org.elasticsearch.common.xcontent.XContentBuilder;
 
 import java.io.IOException;
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
 
 public class TranslogStats implements Streamable, Writeable, ToXContentFragment {
 
@@ -36,6 +40,7 @@ public class TranslogStats implements Streamable, Writeable, ToXContentFragment
     private long uncommittedSizeInBytes;
     private int  uncommittedOperations;
     private long earliestLastModifiedAge;
+    private SyncStats syncStats = new SyncStats();
 
     public TranslogStats() {
     }
@@ -46,10 +51,19 @@ public class TranslogStats implements Streamable, Writeable, ToXContentFragment
         uncommittedOperations = in.readVInt();
         uncommittedSizeInBytes = in.readVLong();
         earliestLastModifiedAge = in.readVLong();
+        if (in.getVersion().onOrAfter(Version.V_8_0_0)) {
+            syncStats = new SyncStats(in);
+        }
     }
 
     public TranslogStats(int numberOfOperations, long translogSizeInBytes, int uncommittedOperations, long uncommittedSizeInBytes,
                          long earliestLastModifiedAge) {
+        this(numberOfOperations, translogSizeInBytes, uncommittedOperations, uncommittedSizeInBytes, earliestLastModifiedAge,
+            new SyncStats());
+    }
+
+    public TranslogStats(int numberOfOperations, long translogSizeInBytes, int uncommittedOperations, long uncommittedSizeInBytes,
+                         long earliestLastModifiedAge, SyncStats syncStats) {
         if (numberOfOperations < 0) {
             throw new IllegalArgumentException("numberOfOperations must be >= 0");
         }
@@ -70,6 +84,7 @@ public class TranslogStats implements Streamable, Writeable, ToXContentFragment
         this.uncommittedSizeInBytes = uncommittedSizeInBytes;
         this.uncommittedOperations = uncommittedOperations;
         this.earliestLastModifiedAge = earliestLastModifiedAge;
+        this.syncStats = syncStats;
     }
 
     public void add(TranslogStats translogStats) {
@@ -83,6 +98,7 @@ public class TranslogStats implements Streamable, Writeable, ToXContentFragment
         this.uncommittedSizeInBytes += translogStats.uncommittedSizeInBytes;
         this.earliestLastModifiedAge =
             Math.min(this.earliestLastModifiedAge, translogStats.earliestLastModifiedAge);
+        this.syncStats = this.syncStats.add(translogStats.syncStats);
     }
 
     public long getTranslogSizeInBytes() {
@@ -105,6 +121,11 @@ public class TranslogStats implements Streamable, Writeable, ToXContentFragment
 
     public long getEarliestLastModifiedAge() { return earliestLastModifiedAge; }
 
+    /** the number and latency of the fsyncs of the translog */
+    public SyncStats getSyncStats() {
+        return syncStats;
+    }
+
     @Override
     public XContentBuilder toXContent(XContentBuilder builder, Params params) throws IOException {
         builder.startObject("translog");
@@ -113,6 +134,7 @@ public class TranslogStats implements Streamable, Writeable, ToXContentFragment
         builder.field("uncommitted_operations", uncommittedOperations);
         builder.humanReadableField("uncommitted_size_in_bytes", "uncommitted_size", new ByteSizeValue(uncommittedSizeInBytes));
         builder.field("earliest_last_modified_age", earliestLastModifiedAge);
+        syncStats.toXContent(builder, params);
         builder.endObject();
         return builder;
     }
@@ -134,5 +156,110 @@ public class TranslogStats implements Streamable, Writeable, ToXContentFragment
         out.writeVInt(uncommittedOperations);
         out.writeVLong(uncommittedSizeInBytes);
         out.writeVLong(earliestLastModifiedAge);
+        if (out.getVersion().onOrAfter(Version.V_8_0_0)) {
+            syncStats.writeTo(out);
+        }
+    }
+
+    /**
+     * The number of fsyncs of the translog, the total time spent in them and a histogram of their latency. The histogram has
+     * one bucket per upper bound in {@link #LATENCY_BUCKETS_MILLIS} plus a last bucket for the fsyncs that took longer than that.
+     */
+    public static class SyncStats implements Writeable, ToXContentFragment {
+
+        static final long[] LATENCY_BUCKETS_MILLIS = new long[] { 1, 2, 5, 10, 20, 50, 100, 200, 500, 1000 };
+
+        private final long count;
+        private final long totalTimeInNanos;
+        private final long[] latencyHistogram;
+
+        public SyncStats() {
+            this(0, 0, new long[LATENCY_BUCKETS_MILLIS.length + 1]);
+        }
+
+        public SyncStats(long count, long totalTimeInNanos, long[] latencyHistogram) {
+            if (latencyHistogram.length != LATENCY_BUCKETS_MILLIS.length + 1) {
+                throw new IllegalArgumentException("latencyHistogram must have [" + (LATENCY_BUCKETS_MILLIS.length + 1) + "] buckets");
+            }
+            this.count = count;
+            this.totalTimeInNanos = totalTimeInNanos;
+            this.latencyHistogram = latencyHistogram;
+        }
+
+        public SyncStats(StreamInput in) throws IOException {
+            count = in.readVLong();
+            totalTimeInNanos = in.readVLong();
+            latencyHistogram = new long[LATENCY_BUCKETS_MILLIS.length + 1];
+            for (int i = 0; i < latencyHistogram.length; i++) {
+                latencyHistogram[i] = in.readVLong();
+            }
+        }
+
+        /**
+         * Returns the index of the histogram bucket that the given fsync latency falls into.
+         */
+        static int bucket(long tookInNanos) {
+            final long tookInMillis = TimeUnit.NANOSECONDS.toMillis(tookInNanos);
+            for (int i = 0; i < LATENCY_BUCKETS_MILLIS.length; i++) {
+                if (tookInMillis < LATENCY_BUCKETS_MILLIS[i]) {
+                    return i;
+                }
+            }
+            return LATENCY_BUCKETS_MILLIS.length;
+        }
+
+        SyncStats add(SyncStats other) {
+            final long[] histogram = Arrays.copyOf(latencyHistogram, latencyHistogram.length);
+            for (int i = 0; i < histogram.length; i++) {
+                histogram[i] += other.latencyHistogram[i];
+            }
+            return new SyncStats(count + other.count, totalTimeInNanos + other.totalTimeInNanos, histogram);
+        }
+
+        /** the total number of fsyncs */
+        public long getCount() {
+            return count;
+        }
+
+        /** the total time spent in fsyncs */
+        public TimeValue getTotalTime() {
+            return new TimeValue(totalTimeInNanos, TimeUnit.NANOSECONDS);
+        }
+
+        /** the number of fsyncs per latency bucket */
+        public long[] getLatencyHistogram() {
+            return latencyHistogram;
+        }
+
+        @Override
+        public XContentBuilder toXContent(XContentBuilder builder, Params params) throws IOException {
+            builder.startObject("sync");
+            builder.field("total", count);
+            builder.humanReadableField("total_time_in_millis", "total_time", getTotalTime());
+            builder.startArray("latency_histogram");
+            for (int i = 0; i < latencyHistogram.length; i++) {
+                builder.startObject();
+                if (i > 0) {
+                    builder.field("from_millis", LATENCY_BUCKETS_MILLIS[i - 1]);
+                }
+                if (i < LATENCY_BUCKETS_MILLIS.length) {
+                    builder.field("to_millis", LATENCY_BUCKETS_MILLIS[i]);
+                }
+                builder.field("count", latencyHistogram[i]);
+                builder.endObject();
+            }
+            builder.endArray();
+            builder.endObject();
+            return builder;
+        }
+
+        @Override
+        public void writeTo(StreamOutput out) throws IOException {
+            out.writeVLong(count);
+            out.writeVLong(totalTimeInNanos);
+            for (long bucketCount : latencyHistogram) {
+                out.writeVLong(bucketCount);
+            }
+        }
     }
 }
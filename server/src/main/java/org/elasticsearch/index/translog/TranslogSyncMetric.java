@@ -0,0 +1,54 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.index.translog;
+
+import org.elasticsearch.common.metrics.CounterMetric;
+
+/**
+ * Records the number and latency of the fsyncs of a translog across all its generations.
+ */
+public class TranslogSyncMetric {
+    private final CounterMetric count = new CounterMetric();
+    private final CounterMetric totalTimeInNanos = new CounterMetric();
+    private final CounterMetric[] latencyHistogram = new CounterMetric[TranslogStats.SyncStats.LATENCY_BUCKETS_MILLIS.length + 1];
+
+    public TranslogSyncMetric() {
+        for (int i = 0; i < latencyHistogram.length; i++) {
+            latencyHistogram[i] = new CounterMetric();
+        }
+    }
+
+    /**
+     * Records an fsync of the translog that took the given number of nanoseconds
+     */
+    public void onSync(long tookInNanos) {
+        count.inc();
+        totalTimeInNanos.inc(tookInNanos);
+        latencyHistogram[TranslogStats.SyncStats.bucket(tookInNanos)].inc();
+    }
+
+    public TranslogStats.SyncStats stats() {
+        final long[] histogram = new long[latencyHistogram.length];
+        for (int i = 0; i < histogram.length; i++) {
+            histogram[i] = latencyHistogram[i].count();
+        }
+        return new TranslogStats.SyncStats(count.count(), totalTimeInNanos.count(), histogram);
+    }
+}
@@ -0,0 +1,297 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.index.translog;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.elasticsearch.common.settings.Setting;
+import org.elasticsearch.common.settings.Setting.Property;
+import org.elasticsearch.common.settings.Settings;
+import org.elasticsearch.common.unit.TimeValue;
+import org.elasticsearch.common.util.concurrent.AbstractRunnable;
+import org.elasticsearch.common.util.concurrent.EsExecutors;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * A node level scheduler that group commits translog fsyncs. Instead of hijacking one of their indexing threads to fsync their
+ * translog, shards that use {@link org.elasticsearch.index.translog.Translog.Durability#REQUEST} durability hand the locations that
+ * must be synced to a dedicated collector thread of the data path their translog lives on. The collector thread collects the
+ * requests that arrive within {@link #MAX_WAIT_SETTING} of the first pending one, as well as all requests that arrive while the
+ * previous group is being synced, and then syncs every shard of the group once, up to the highest location that was requested for
+ * this shard. The shards of a group are synced concurrently on the given executor, which also notifies the listeners of each shard
+ * once its fsync is done, so that many indexing requests of many shards share the same fsyncs without serializing the fsyncs of
+ * different shards.
+ */
+public final class TranslogSyncScheduler implements Closeable {
+
+    private static final Logger logger = LogManager.getLogger(TranslogSyncScheduler.class);
+
+    public static final Setting<Boolean> ENABLED_SETTING =
+        Setting.boolSetting("indices.translog.group_commit.enabled", false, Property.NodeScope);
+
+    public static final Setting<TimeValue> MAX_WAIT_SETTING =
+        Setting.timeSetting("indices.translog.group_commit.max_wait", TimeValue.timeValueMillis(1), TimeValue.ZERO, Property.NodeScope);
+
+    /**
+     * Syncs the translog of a shard.
+     */
+    @FunctionalInterface
+    public interface SyncTarget {
+
+        /**
+         * Ensures that all the given locations have been synced to the underlying storage.
+         */
+        void sync(List<Translog.Location> locations) throws IOException;
+    }
+
+    private final ThreadFactory threadFactory;
+    private final Executor executor;
+    private final long maxWaitInNanos;
+    private final Map<Path, SyncWorker> workers = new HashMap<>();
+    private boolean closed;
+
+    /**
+     * @param executor the executor that syncs the shards of a group and notifies their listeners
+     */
+    public TranslogSyncScheduler(Settings settings, Executor executor) {
+        this.threadFactory = EsExecutors.daemonThreadFactory(settings, "translog_sync");
+        this.executor = executor;
+        this.maxWaitInNanos = MAX_WAIT_SETTING.get(settings).nanos();
+    }
+
+    /**
+     * Returns a new scheduler if group commit is enabled in the given settings, otherwise <code>null</code>.
+     */
+    public static TranslogSyncScheduler create(Settings settings, Executor executor) {
+        return ENABLED_SETTING.get(settings) ? new TranslogSyncScheduler(settings, executor) : null;
+    }
+
+    /**
+     * Schedules a sync of the given location. The listener is notified with <code>null</code> once the location has been
+     * synced, or with the exception that prevented the sync.
+     *
+     * @param dataPath the data path the translog of the target lives on, the requests of all targets of a data path are collected
+     *                 by the same thread
+     * @param target   the target to sync, requests of the same target are coalesced into a single sync
+     */
+    public void sync(Path dataPath, SyncTarget target, Translog.Location location, Consumer<Exception> listener) {
+        final PendingSync pendingSync = new PendingSync(target, location, listener);
+        final SyncWorker worker;
+        synchronized (this) {
+            if (closed == false) {
+                worker = workers.computeIfAbsent(dataPath, path -> {
+                    final SyncWorker newWorker = new SyncWorker();
+                    final Thread thread = threadFactory.newThread(newWorker);
+                    thread.start();
+                    return newWorker;
+                });
+                // enqueue under the lock so that close() cannot miss this request
+                worker.queue.add(pendingSync);
+            } else {
+                worker = null;
+            }
+        }
+        if (worker == null) {
+            // the node is shutting down, there is no sync thread anymore so we sync on the caller thread
+            sync(pendingSync.target, Collections.singletonList(pendingSync));
+        }
+    }
+
+    @Override
+    public void close() {
+        synchronized (this) {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            for (SyncWorker worker : workers.values()) {
+                worker.queue.add(CLOSE);
+            }
+        }
+    }
+
+    /**
+     * Syncs each target of the given group once, concurrently. The listeners of each target are notified on the executor once the
+     * target is synced.
+     *
+     * @return a latch that is released once all targets of the group are synced, before their listeners are notified
+     */
+    CountDownLatch process(List<PendingSync> group) {
+        final Map<SyncTarget, List<PendingSync>> byTarget = new IdentityHashMap<>();
+        for (PendingSync pendingSync : group) {
+            byTarget.computeIfAbsent(pendingSync.target, target -> new ArrayList<>()).add(pendingSync);
+        }
+        final CountDownLatch synced = new CountDownLatch(byTarget.size());
+        for (Map.Entry<SyncTarget, List<PendingSync>> entry : byTarget.entrySet()) {
+            executor.execute(new AbstractRunnable() {
+                @Override
+                public void onFailure(Exception e) {
+                    assert false : e;
+                    logger.warn("failed to sync translog", e);
+                }
+
+                @Override
+                public void onRejection(Exception e) {
+                    // the executor is shutting down, we sync on the collector thread so that no request is lost
+                    doRun();
+                }
+
+                @Override
+                protected void doRun() {
+                    sync(entry.getKey(), entry.getValue(), synced);
+                }
+            });
+        }
+        return synced;
+    }
+
+    private static void sync(SyncTarget target, List<PendingSync> pendingSyncs) {
+        sync(target, pendingSyncs, new CountDownLatch(1));
+    }
+
+    /**
+     * Syncs the given target up to the locations of the given pending syncs, counts down the given latch and then notifies the
+     * listeners of the pending syncs.
+     */
+    private static void sync(SyncTarget target, List<PendingSync> pendingSyncs, CountDownLatch synced) {
+        final List<Translog.Location> locations = new ArrayList<>(pendingSyncs.size());
+        for (PendingSync pendingSync : pendingSyncs) {
+            locations.add(pendingSync.location);
+        }
+        Exception exception = null;
+        try {
+            target.sync(locations);
+        } catch (Exception ex) {
+            logger.debug("failed to sync translog", ex);
+            exception = ex;
+        } finally {
+            synced.countDown();
+        }
+        for (PendingSync pendingSync : pendingSyncs) {
+            try {
+                pendingSync.listener.accept(exception);
+            } catch (Exception ex) {
+                logger.warn("failed to notify callback", ex);
+            }
+        }
+    }
+
+    private static final PendingSync CLOSE = new PendingSync(null, null, null);
+
+    private static final class PendingSync {
+        private final SyncTarget target;
+        private final Translog.Location location;
+        private final Consumer<Exception> listener;
+
+        private PendingSync(SyncTarget target, Translog.Location location, Consumer<Exception> listener) {
+            this.target = target;
+            this.location = location;
+            this.listener = listener;
+        }
+    }
+
+    private final class SyncWorker implements Runnable {
+        private final BlockingQueue<PendingSync> queue = new LinkedBlockingQueue<>();
+
+        @Override
+        public void run() {
+            final List<PendingSync> group = new ArrayList<>();
+            boolean closing = false;
+            while (closing == false) {
+                try {
+                    closing = collect(group);
+                } catch (InterruptedException e) {
+                    // we are never interrupted on purpose and must not propagate the interrupt since it would close the
+                    // translog channels, we sync what we collected so far and keep on running
+                    logger.debug("translog sync thread was interrupted", e);
+                }
+                final CountDownLatch synced = process(group);
+                group.clear();
+                // the requests that arrive while the group is synced are collected into the next group
+                boolean done = false;
+                while (done == false) {
+                    try {
+                        synced.await();
+                        done = true;
+                    } catch (InterruptedException e) {
+                        logger.debug("translog sync thread was interrupted", e);
+                    }
+                }
+            }
+        }
+
+        /**
+         * Blocks until a sync is pending and then collects the syncs that are pending or arrive within the max wait.
+         *
+         * @return <code>true</code> if the scheduler is closed and this worker must exit after syncing the group
+         */
+        private boolean collect(List<PendingSync> group) throws InterruptedException {
+            PendingSync pendingSync = queue.take();
+            if (pendingSync == CLOSE) {
+                drain(group);
+                return true;
+            }
+            group.add(pendingSync);
+            final long deadline = System.nanoTime() + maxWaitInNanos;
+            long remaining;
+            while ((remaining = deadline - System.nanoTime()) > 0) {
+                pendingSync = queue.poll(remaining, TimeUnit.NANOSECONDS);
+                if (pendingSync == null) {
+                    break;
+                } else if (pendingSync == CLOSE) {
+                    drain(group);
+                    return true;
+                }
+                group.add(pendingSync);
+            }
+            return drain(group);
+        }
+
+        private boolean drain(List<PendingSync> group) {
+            final List<PendingSync> drained = new ArrayList<>();
+            queue.drainTo(drained);
+            boolean closing = false;
+            for (PendingSync pendingSync : drained) {
+                if (pendingSync == CLOSE) {
+                    closing = true;
+                } else {
+                    group.add(pendingSync);
+                }
+            }
+            return closing;
+        }
+    }
+}
@@ -91,6 +91,7 @@ import org.elasticsearch.index.fielddata.IndexFieldDataCache;
 import org.elasticsearch.index.flush.FlushStats;
 import org.elasticsearch.index.get.GetStats;
 import org.elasticsearch.index.mapper.MapperService;
+import org.elasticsearch.index.merge.MergeCoordinator;
 import org.elasticsearch.index.merge.MergeStats;
 import org.elasticsearch.index.query.QueryBuilder;
 import org.elasticsearch.index.query.QueryRewriteContext;
@@ -108,6 +109,7 @@ import org.elasticsearch.index.shard.IndexingOperationListener;
 import org.elasticsearch.index.shard.IndexingStats;
 import org.elasticsearch.index.shard.ShardId;
 import org.elasticsearch.index.store.IndexStore;
+import org.elasticsearch.index.translog.TranslogSyncScheduler;
 import org.elasticsearch.indices.breaker.CircuitBreakerService;
 import org.elasticsearch.indices.cluster.IndicesClusterStateService;
 import org.elasticsearch.indices.fielddata.cache.IndicesFieldDataCache;
@@ -193,8 +195,13 @@ public class IndicesService extends AbstractLifecycleComponent
     private final MapperRegistry mapperRegistry;
     private final NamedWriteableRegistry namedWriteableRegistry;
     private final IndexingMemoryController indexingMemoryController;
+    @Nullable
+    private final TranslogSyncScheduler translogSyncScheduler;
+    @Nullable
+    private final MergeCoordinator mergeCoordinator;
     private final TimeValue cleanInterval;
     final IndicesRequestCache indicesRequestCache; // pkg-private for testing
+    final IndicesTopDocsCache indicesTopDocsCache; // pkg-private for testing
     private final IndicesQueryCache indicesQueryCache;
     private final MetaStateService metaStateService;
     private final Collection<Function<IndexSettings, Optional<EngineFactory>>> engineFactoryProviders;
@@ -223,12 +230,15 @@ public class IndicesService extends AbstractLifecycleComponent
         this.analysisRegistry = analysisRegistry;
         this.indexNameExpressionResolver = indexNameExpressionResolver;
         this.indicesRequestCache = new IndicesRequestCache(settings);
+        this.indicesTopDocsCache = new IndicesTopDocsCache(settings);
         this.indicesQueryCache = new IndicesQueryCache(settings);
         this.mapperRegistry = mapperRegistry;
         this.namedWriteableRegistry = namedWriteableRegistry;
         indexingMemoryController = new IndexingMemoryController(settings, threadPool,
                                                                 // ensure we pull an iter with new shards - flatten makes a copy
                                                                 () -> Iterables.flatten(this).iterator());
+        this.translogSyncScheduler = TranslogSyncScheduler.create(settings, threadPool.generic());
+        this.mergeCoordinator = MergeCoordinator.create(settings);
         this.indexScopedSettings = indexScopedSettings;
         this.circuitBreakerService = circuitBreakerService;
         this.bigArrays = bigArrays;
@@ -243,7 +253,8 @@ public class IndicesService extends AbstractLifecycleComponent
             }
         });
         this.cleanInterval = INDICES_CACHE_CLEAN_INTERVAL_SETTING.get(settings);
-        this.cacheCleaner = new CacheCleaner(indicesFieldDataCache, indicesRequestCache,  logger, threadPool, this.cleanInterval);
+        this.cacheCleaner = new CacheCleaner(indicesFieldDataCache, indicesRequestCache, indicesTopDocsCache, logger, threadPool,
+            this.cleanInterval);
         this.metaStateService = metaStateService;
         this.engineFactoryProviders = engineFactoryProviders;
 
@@ -267,9 +278,12 @@ public class IndicesService extends AbstractLifecycleComponent
                     IOUtils.close(
                             analysisRegistry,
                             indexingMemoryController,
+                            translogSyncScheduler,
+                            mergeCoordinator,
                             indicesFieldDataCache,
                             cacheCleaner,
                             indicesRequestCache,
+                            indicesTopDocsCache,
                             indicesQueryCache);
                 } catch (IOException e) {
                     throw new UncheckedIOException(e);
@@ -551,7 +565,9 @@ public class IndicesService extends AbstractLifecycleComponent
                 indicesQueryCache,
                 mapperRegistry,
                 indicesFieldDataCache,
-                namedWriteableRegistry
+                namedWriteableRegistry,
+                translogSyncScheduler,
+                mergeCoordinator
         );
     }
 
@@ -1167,14 +1183,17 @@ public class IndicesService extends AbstractLifecycleComponent
         private final TimeValue interval;
         private final AtomicBoolean closed = new AtomicBoolean(false);
         private final IndicesRequestCache requestCache;
+        private final IndicesTopDocsCache topDocsCache;
 
         CacheCleaner(IndicesFieldDataCache cache,
                      IndicesRequestCache requestCache,
+                     IndicesTopDocsCache topDocsCache,
                      Logger logger,
                      ThreadPool threadPool,
                      TimeValue interval) {
             this.cache = cache;
             this.requestCache = requestCache;
+            this.topDocsCache = topDocsCache;
             this.logger = logger;
             this.threadPool = threadPool;
             this.interval = interval;
@@ -1201,6 +1220,12 @@ public class IndicesService extends AbstractLifecycleComponent
             } catch (Exception e) {
                 logger.warn("Exception during periodic request cache cleanup:", e);
             }
+
+            try {
+                this.topDocsCache.cleanCache();
+            } catch (Exception e) {
+                logger.warn("Exception during periodic top docs cache cleanup:", e);
+            }
             // Reschedule itself to run again if not closed
             if (closed.get() == false) {
                 threadPool.schedule(this, interval, ThreadPool.Names.SAME);
@@ -1258,6 +1283,34 @@ public class IndicesService extends AbstractLifecycleComponent
 
     }
 
+    /**
+     * Can the top docs of the shard request be cached per segment? This is checked for requests that can't use the
+     * {@link #canCache(ShardSearchRequest, SearchContext) request cache}, the query phase decides whether the sort of the
+     * request makes the top docs of a segment independent from the other segments.
+     */
+    public boolean canCacheTopDocs(ShardSearchRequest request, SearchContext context) {
+        // Same as the request cache: scroll contexts are modified during their execution and DFS
+        // overrides the statistics that might be used to compute the sort values
+        if (request.scroll() != null || SearchType.QUERY_THEN_FETCH != context.searchType()) {
+            return false;
+        }
+        if (context.indexShard().indexSettings().getValue(IndicesTopDocsCache.INDEX_TOP_DOCS_CACHE_ENABLED_SETTING) == false) {
+            return false;
+        }
+        if (request.requestCache() != null && request.requestCache() == false) {
+            return false;
+        }
+        return context.getQueryShardContext().isCacheable();
+    }
+
+    /**
+     * Sets up the {@link SearchContext#topDocsCache() per segment top docs cache} of the given context.
+     */
+    public void setTopDocsCache(ShardSearchRequest request, SearchContext context) throws IOException {
+        assert canCacheTopDocs(request, context);
+        context.topDocsCache(indicesTopDocsCache.forRequest(context.indexShard(), request.cacheKey()));
+    }
+
 
     /**
      * Loads the cache result, computing it if needed by executing the query phase and otherwise deserializing the cached
@@ -1411,6 +1464,7 @@ public class IndicesService extends AbstractLifecycleComponent
             final boolean clearedAtLeastOne = service.clearCaches(queryCache, fieldDataCache, fields);
             if ((requestCache || (clearedAtLeastOne == false && fields.length == 0)) && shard != null) {
                 indicesRequestCache.clear(new IndexShardCacheEntity(shard));
+                indicesTopDocsCache.clear(shard);
             }
         }
     }
@@ -0,0 +1,302 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.elasticsearch.indices;
+
+import org.apache.lucene.index.IndexReader;
+import org.apache.lucene.index.LeafReaderContext;
+import org.apache.lucene.search.FieldDoc;
+import org.apache.lucene.search.ScoreDoc;
+import org.apache.lucene.search.TopDocs;
+import org.apache.lucene.search.TopFieldDocs;
+import org.apache.lucene.util.Accountable;
+import org.apache.lucene.util.BytesRef;
+import org.apache.lucene.util.RamUsageEstimator;
+import org.elasticsearch.common.CheckedSupplier;
+import org.elasticsearch.common.bytes.BytesReference;
+import org.elasticsearch.common.cache.Cache;
+import org.elasticsearch.common.cache.CacheBuilder;
+import org.elasticsearch.common.lucene.index.ElasticsearchLeafReader;
+import org.elasticsearch.common.settings.Setting;
+import org.elasticsearch.common.settings.Setting.Property;
+import org.elasticsearch.common.settings.Settings;
+import org.elasticsearch.common.unit.ByteSizeValue;
+import org.elasticsearch.common.util.concurrent.ConcurrentCollections;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+
+/**
+ * A node level cache of the top docs that a shard level search request returned for each segment of a shard. Unlike the
+ * {@link IndicesRequestCache} that is keyed by the top level reader, entries are keyed by the reader cache key of each
+ * segment so that a refresh only invalidates the entries of segments that changed. The query phase recombines the cached
+ * top docs of unchanged segments with the top docs it computes for new segments.
+ * <p>
+ * Cached top docs are only valid for requests whose results don't depend on statistics of other segments, which is why
+ * the query phase only uses this cache for sorts that don't need scores. Entries are removed once their segment is closed,
+ * the periodic cleaner takes care of removing them from the cache.
+ */
+public final class IndicesTopDocsCache implements Closeable {
+
+    /**
+     * A setting to enable or disable the per segment top docs cache on an index level.
+     */
+    public static final Setting<Boolean> INDEX_TOP_DOCS_CACHE_ENABLED_SETTING =
+        Setting.boolSetting("index.requests.top_docs_cache.enable", false, Property.Dynamic, Property.IndexScope);
+    public static final Setting<ByteSizeValue> INDICES_TOP_DOCS_CACHE_SIZE =
+        Setting.memorySizeSetting("indices.requests.top_docs_cache.size", "1%", Property.NodeScope);
+
+    private final ConcurrentMap<IndexReader.CacheKey, Boolean> registeredClosedListeners = ConcurrentCollections.newConcurrentMap();
+    private final Set<IndexReader.CacheKey> keysToClean = ConcurrentCollections.newConcurrentSet();
+    private final Set<Object> identitiesToClean = ConcurrentCollections.newConcurrentSet();
+    private final Cache<Key, Value> cache;
+
+    IndicesTopDocsCache(Settings settings) {
+        long sizeInBytes = INDICES_TOP_DOCS_CACHE_SIZE.get(settings).getBytes();
+        cache = CacheBuilder.<Key, Value>builder()
+            .setMaximumWeight(sizeInBytes).weigher((k, v) -> k.ramBytesUsed() + v.ramBytesUsed()).build();
+    }
+
+    @Override
+    public void close() {
+        cache.invalidateAll();
+    }
+
+    /**
+     * Returns whether the top docs of the given segment can be cached. Segments that are wrapped by another reader, for
+     * instance to filter documents, are not cached since the wrapper might hide documents depending on the caller.
+     */
+    public static boolean isCacheable(LeafReaderContext leaf) {
+        return leaf.reader() instanceof ElasticsearchLeafReader && leaf.reader().getReaderCacheHelper() != null;
+    }
+
+    /**
+     * Returns a view on this cache for the given shard and request.
+     * @param cacheIdentity the identity of the shard the request is executed on
+     * @param requestKey the cache key of the shard level request
+     */
+    public ShardRequestCache forRequest(Object cacheIdentity, BytesReference requestKey) {
+        return new ShardRequestCache(cacheIdentity, requestKey);
+    }
+
+    /**
+     * Removes all entries of the given shard.
+     */
+    void clear(Object cacheIdentity) {
+        identitiesToClean.add(cacheIdentity);
+        cleanCache();
+    }
+
+    synchronized void cleanCache() {
+        final Set<IndexReader.CacheKey> currentKeysToClean = new HashSet<>();
+        final Set<Object> currentIdentitiesToClean = new HashSet<>();
+        for (Iterator<IndexReader.CacheKey> iterator = keysToClean.iterator(); iterator.hasNext(); ) {
+            currentKeysToClean.add(iterator.next());
+            iterator.remove();
+        }
+        for (Iterator<Object> iterator = identitiesToClean.iterator(); iterator.hasNext(); ) {
+            currentIdentitiesToClean.add(iterator.next());
+            iterator.remove();
+        }
+        if (currentKeysToClean.isEmpty() == false || currentIdentitiesToClean.isEmpty() == false) {
+            for (Iterator<Key> iterator = cache.keys().iterator(); iterator.hasNext(); ) {
+                Key key = iterator.next();
+                if (currentKeysToClean.contains(key.readerCacheKey) || currentIdentitiesToClean.contains(key.cacheIdentity)) {
+                    iterator.remove();
+                }
+            }
+        }
+        cache.refresh();
+    }
+
+    /**
+     * Returns the current number of entries in the cache
+     */
+    int count() {
+        return cache.count();
+    }
+
+    int numRegisteredCloseListeners() { // for testing
+        return registeredClosedListeners.size();
+    }
+
+    /**
+     * The cached top docs of a single shard level request.
+     */
+    public final class ShardRequestCache {
+        private final Object cacheIdentity;
+        private final BytesReference requestKey;
+
+        private ShardRequestCache(Object cacheIdentity, BytesReference requestKey) {
+            this.cacheIdentity = Objects.requireNonNull(cacheIdentity);
+            this.requestKey = Objects.requireNonNull(requestKey);
+        }
+
+        /**
+         * Returns the top docs of the given segment, computing them with the given loader if they are not cached yet.
+         * The loader must return the top docs of this segment only, with doc ids relative to the top level reader. The
+         * returned top docs are a copy that may be modified by the caller.
+         */
+        public TopDocs getOrCompute(LeafReaderContext leaf, CheckedSupplier<TopDocs, IOException> loader) throws IOException {
+            assert isCacheable(leaf);
+            final IndexReader.CacheHelper cacheHelper = leaf.reader().getReaderCacheHelper();
+            final Key key = new Key(cacheIdentity, cacheHelper.getKey(), requestKey);
+            final Value value;
+            try {
+                value = cache.computeIfAbsent(key, k -> {
+                    final Value loaded = new Value(loader.get(), leaf.docBase);
+                    // make sure that the entries of this segment get cleaned once the segment is closed
+                    if (registeredClosedListeners.putIfAbsent(k.readerCacheKey, Boolean.TRUE) == null) {
+                        cacheHelper.addClosedListener(closedKey -> {
+                            if (registeredClosedListeners.remove(closedKey) != null) {
+                                keysToClean.add(closedKey);
+                            }
+                        });
+                    }
+                    return loaded;
+                });
+            } catch (ExecutionException e) {
+                if (e.getCause() instanceof IOException) {
+                    throw (IOException) e.getCause();
+                } else if (e.getCause() instanceof RuntimeException) {
+                    throw (RuntimeException) e.getCause();
+                }
+                throw new IllegalStateException(e.getCause());
+            }
+            return value.toTopDocs(leaf.docBase);
+        }
+    }
+
+    private static final class Key implements Accountable {
+        private static final long BASE_RAM_BYTES_USED = RamUsageEstimator.shallowSizeOfInstance(Key.class);
+
+        final Object cacheIdentity; // use as identity equality
+        final IndexReader.CacheKey readerCacheKey;
+        final BytesReference requestKey;
+
+        Key(Object cacheIdentity, IndexReader.CacheKey readerCacheKey, BytesReference requestKey) {
+            this.cacheIdentity = cacheIdentity;
+            this.readerCacheKey = Objects.requireNonNull(readerCacheKey);
+            this.requestKey = requestKey;
+        }
+
+        @Override
+        public long ramBytesUsed() {
+            return BASE_RAM_BYTES_USED + requestKey.length();
+        }
+
+        @Override
+        public Collection<Accountable> getChildResources() {
+            return Collections.emptyList();
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (o == null || getClass() != o.getClass()) return false;
+            Key key = (Key) o;
+            return cacheIdentity == key.cacheIdentity && readerCacheKey.equals(key.readerCacheKey) && requestKey.equals(key.requestKey);
+        }
+
+        @Override
+        public int hashCode() {
+            int result = System.identityHashCode(cacheIdentity);
+            result = 31 * result + readerCacheKey.hashCode();
+            result = 31 * result + requestKey.hashCode();
+            return result;
+        }
+    }
+
+    /**
+     * Top docs of a segment with doc ids relative to the segment, so that they remain valid if the doc base of the
+     * segment changes after a refresh.
+     */
+    private static final class Value implements Accountable {
+        private static final long BASE_RAM_BYTES_USED = RamUsageEstimator.shallowSizeOfInstance(Value.class);
+
+        private final TopDocs topDocs;
+        private final long ramBytesUsed;
+
+        Value(TopDocs topDocs, int docBase) {
+            long ramBytesUsed = BASE_RAM_BYTES_USED + RamUsageEstimator.shallowSizeOf(topDocs.scoreDocs);
+            final ScoreDoc[] scoreDocs = new ScoreDoc[topDocs.scoreDocs.length];
+            for (int i = 0; i < scoreDocs.length; i++) {
+                scoreDocs[i] = copy(topDocs.scoreDocs[i], -docBase);
+                ramBytesUsed += ramBytesUsed(scoreDocs[i]);
+            }
+            if (topDocs instanceof TopFieldDocs) {
+                this.topDocs = new TopFieldDocs(topDocs.totalHits, scoreDocs, ((TopFieldDocs) topDocs).fields);
+            } else {
+                this.topDocs = new TopDocs(topDocs.totalHits, scoreDocs);
+            }
+            this.ramBytesUsed = ramBytesUsed;
+        }
+
+        TopDocs toTopDocs(int docBase) {
+            final ScoreDoc[] scoreDocs = new ScoreDoc[topDocs.scoreDocs.length];
+            for (int i = 0; i < scoreDocs.length; i++) {
+                scoreDocs[i] = copy(topDocs.scoreDocs[i], docBase);
+            }
+            if (topDocs instanceof TopFieldDocs) {
+                return new TopFieldDocs(topDocs.totalHits, scoreDocs, ((TopFieldDocs) topDocs).fields);
+            }
+            return new TopDocs(topDocs.totalHits, scoreDocs);
+        }
+
+        private static ScoreDoc copy(ScoreDoc scoreDoc, int docDelta) {
+            if (scoreDoc instanceof FieldDoc) {
+                final FieldDoc fieldDoc = (FieldDoc) scoreDoc;
+                return new FieldDoc(fieldDoc.doc + docDelta, fieldDoc.score, fieldDoc.fields.clone(), fieldDoc.shardIndex);
+            }
+            return new ScoreDoc(scoreDoc.doc + docDelta, scoreDoc.score, scoreDoc.shardIndex);
+        }
+
+        private static long ramBytesUsed(ScoreDoc scoreDoc) {
+            long size = RamUsageEstimator.shallowSizeOf(scoreDoc);
+            if (scoreDoc instanceof FieldDoc) {
+                final Object[] fields = ((FieldDoc) scoreDoc).fields;
+                size += RamUsageEstimator.shallowSizeOf(fields);
+                for (Object field : fields) {
+                    if (field instanceof BytesRef) {
+                        size += RamUsageEstimator.NUM_BYTES_OBJECT_HEADER + ((BytesRef) field).length;
+                    }
+                    size += RamUsageEstimator.NUM_BYTES_OBJECT_HEADER + Long.BYTES;
+                }
+            }
+            return size;
+        }
+
+        @Override
+        public long ramBytesUsed() {
+            return ramBytesUsed;
+        }
+
+        @Override
+        public Collection<Accountable> getChildResources() {
+            return Collections.emptyList();
+        }
+    }
+}
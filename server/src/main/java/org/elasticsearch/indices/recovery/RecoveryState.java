@@ -330,6 +330,8 @@ public class RecoveryState implements ToXContentFragment, Streamable, Writeable
         static final String INDEX = "index";
         static final String TRANSLOG = "translog";
         static final String TOTAL_ON_START = "total_on_start";
+        static final String REMAINING = "remaining";
+        static final String OPERATIONS_PER_SECOND = "operations_per_second";
         static final String VERIFY_INDEX = "verify_index";
         static final String RECOVERED = "recovered";
         static final String RECOVERED_IN_BYTES = "recovered_in_bytes";
@@ -551,6 +553,28 @@ public class RecoveryState implements ToXContentFragment, Streamable, Writeable
             this.totalOnStart = total;
         }
 
+        /**
+         * returns the number of translog operations that still need to be recovered, or {@link RecoveryState.Translog#UNKNOWN} if the
+         * total number of operations is unknown
+         */
+        public synchronized int remainingOperations() {
+            if (total == UNKNOWN) {
+                return UNKNOWN;
+            }
+            return Math.max(0, total - recovered);
+        }
+
+        /**
+         * returns the average number of translog operations recovered per second since the translog stage started
+         */
+        public synchronized double recoveredOperationsPerSecond() {
+            final long time = time();
+            if (time == 0) {
+                return 0;
+            }
+            return recovered * 1000.0 / time;
+        }
+
         public synchronized float recoveredPercent() {
             if (total == UNKNOWN) {
                 return -1.f;
@@ -567,6 +591,8 @@ public class RecoveryState implements ToXContentFragment, Streamable, Writeable
             builder.field(Fields.TOTAL, total);
             builder.field(Fields.PERCENT, String.format(Locale.ROOT, "%1.1f%%", recoveredPercent()));
             builder.field(Fields.TOTAL_ON_START, totalOnStart);
+            builder.field(Fields.REMAINING, remainingOperations());
+            builder.field(Fields.OPERATIONS_PER_SECOND, recoveredOperationsPerSecond());
             builder.humanReadableField(Fields.TOTAL_TIME_IN_MILLIS, Fields.TOTAL_TIME, new TimeValue(time()));
             return builder;
         }
@@ -19,6 +19,7 @@
 
 package org.elasticsearch.node;
 
+import org.elasticsearch.Version;
 import org.elasticsearch.common.io.stream.StreamInput;
 import org.elasticsearch.common.io.stream.StreamOutput;
 import org.elasticsearch.common.io.stream.Writeable;
@@ -29,6 +30,8 @@ import org.elasticsearch.common.xcontent.ToXContentFragment;
 import org.elasticsearch.common.xcontent.XContentBuilder;
 
 import java.io.IOException;
+import java.util.Collections;
+import java.util.List;
 import java.util.Locale;
 import java.util.Map;
 import java.util.Set;
@@ -38,28 +41,46 @@ import java.util.stream.Collectors;
 /**
  * Class representing statistics about adaptive replica selection. This includes
  * EWMA of queue size, service time, and response time, as well as outgoing
- * searches to each node and the "rank" based on the ARS formula.
+ * searches to each node and the "rank" based on the ARS formula. The response
+ * time and rank of each shard copy of a node are also reported.
  */
 public class AdaptiveSelectionStats implements Writeable, ToXContentFragment {
 
     private final Map<String, Long> clientOutgoingConnections;
     private final Map<String, ResponseCollectorService.ComputedNodeStats> nodeComputedStats;
+    private final Map<String, List<ResponseCollectorService.ComputedShardCopyStats>> shardCopyComputedStats;
 
     public AdaptiveSelectionStats(Map<String, Long> clientConnections,
                                   Map<String, ResponseCollectorService.ComputedNodeStats> nodeComputedStats) {
+        this(clientConnections, nodeComputedStats, Collections.emptyMap());
+    }
+
+    public AdaptiveSelectionStats(Map<String, Long> clientConnections,
+                                  Map<String, ResponseCollectorService.ComputedNodeStats> nodeComputedStats,
+                                  Map<String, List<ResponseCollectorService.ComputedShardCopyStats>> shardCopyComputedStats) {
         this.clientOutgoingConnections = clientConnections;
         this.nodeComputedStats = nodeComputedStats;
+        this.shardCopyComputedStats = shardCopyComputedStats;
     }
 
     public AdaptiveSelectionStats(StreamInput in) throws IOException {
         this.clientOutgoingConnections = in.readMap(StreamInput::readString, StreamInput::readLong);
         this.nodeComputedStats = in.readMap(StreamInput::readString, ResponseCollectorService.ComputedNodeStats::new);
+        if (in.getVersion().onOrAfter(Version.V_8_0_0)) {
+            this.shardCopyComputedStats =
+                in.readMapOfLists(StreamInput::readString, ResponseCollectorService.ComputedShardCopyStats::new);
+        } else {
+            this.shardCopyComputedStats = Collections.emptyMap();
+        }
     }
 
     @Override
     public void writeTo(StreamOutput out) throws IOException {
         out.writeMap(this.clientOutgoingConnections, StreamOutput::writeString, StreamOutput::writeLong);
         out.writeMap(this.nodeComputedStats, StreamOutput::writeString, (stream, stats) -> stats.writeTo(stream));
+        if (out.getVersion().onOrAfter(Version.V_8_0_0)) {
+            out.writeMapOfLists(this.shardCopyComputedStats, StreamOutput::writeString, (stream, stats) -> stats.writeTo(stream));
+        }
     }
 
     @Override
@@ -82,6 +103,33 @@ public class AdaptiveSelectionStats implements Writeable, ToXContentFragment {
                 }
                 builder.field("avg_response_time_ns", (long) stats.responseTime);
                 builder.field("rank", String.format(Locale.ROOT, "%.1f", stats.rank(outgoingSearches)));
+                List<ResponseCollectorService.ComputedShardCopyStats> shardCopies = shardCopyComputedStats.get(nodeId);
+                if (shardCopies != null) {
+                    builder.startObject("shards");
+                    for (ResponseCollectorService.ComputedShardCopyStats shardCopy : shardCopies) {
+                        builder.startObject(shardCopy.shardId.toString());
+                        if (builder.humanReadable()) {
+                            builder.field("avg_response_time",
+                                new TimeValue((long) shardCopy.responseTime, TimeUnit.NANOSECONDS).toString());
+                        }
+                        builder.field("avg_response_time_ns", (long) shardCopy.responseTime);
+                        if (builder.humanReadable()) {
+                            builder.field("p95_response_time",
+                                new TimeValue((long) shardCopy.p95ResponseTime, TimeUnit.NANOSECONDS).toString());
+                        }
+                        builder.field("p95_response_time_ns", (long) shardCopy.p95ResponseTime);
+                        if (shardCopy.serviceTime >= 0) {
+                            if (builder.humanReadable()) {
+                                builder.field("avg_service_time",
+                                    new TimeValue((long) shardCopy.serviceTime, TimeUnit.NANOSECONDS).toString());
+                            }
+                            builder.field("avg_service_time_ns", (long) shardCopy.serviceTime);
+                        }
+                        builder.field("rank", String.format(Locale.ROOT, "%.1f", stats.rank(outgoingSearches, shardCopy)));
+                        builder.endObject();
+                    }
+                    builder.endObject();
+                }
             }
             builder.endObject();
         }
@@ -103,6 +151,13 @@ public class AdaptiveSelectionStats implements Writeable, ToXContentFragment {
         return nodeComputedStats;
     }
 
+    /**
+     * Returns a map of node id to the computed stats of the shard copies of that node
+     */
+    public Map<String, List<ResponseCollectorService.ComputedShardCopyStats>> getShardCopyComputedStats() {
+        return shardCopyComputedStats;
+    }
+
     /**
      * Returns a map of node id to the ranking of the nodes based on the adaptive replica formula
      */
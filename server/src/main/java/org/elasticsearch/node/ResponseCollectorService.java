@@ -28,9 +28,13 @@ import org.elasticsearch.common.io.stream.StreamInput;
 import org.elasticsearch.common.io.stream.StreamOutput;
 import org.elasticsearch.common.io.stream.Writeable;
 import org.elasticsearch.common.util.concurrent.ConcurrentCollections;
+import org.elasticsearch.index.Index;
+import org.elasticsearch.index.shard.ShardId;
 
 import java.io.IOException;
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Locale;
 import java.util.Map;
 import java.util.Optional;
@@ -39,13 +43,23 @@ import java.util.concurrent.ConcurrentMap;
 /**
  * Collects statistics about queue size, response time, and service time of
  * tasks executed on each node, making the EWMA of the values available to the
- * coordinating node.
+ * coordinating node. The response time and the service time are also tracked for
+ * each copy of a shard since copies of the same shard can be much more expensive
+ * to search on some nodes than on others (e.g. because of slower disks).
  */
 public final class ResponseCollectorService implements ClusterStateListener {
 
     private static final double ALPHA = 0.3;
 
+    /**
+     * The z-score of the 95th percentile of a normal distribution, used to estimate the 95th percentile of the response
+     * time of a shard copy from the EWMA of its mean and variance.
+     */
+    private static final double P95_Z_SCORE = 1.645;
+
     private final ConcurrentMap<String, NodeStatistics> nodeIdToStats = ConcurrentCollections.newConcurrentMap();
+    private final ConcurrentMap<String, ConcurrentMap<ShardId, ShardCopyStatistics>> nodeIdToShardCopyStats =
+        ConcurrentCollections.newConcurrentMap();
 
     public ResponseCollectorService(ClusterService clusterService) {
         clusterService.addListener(this);
@@ -58,10 +72,16 @@ public final class ResponseCollectorService implements ClusterStateListener {
                 removeNode(removedNode.getId());
             }
         }
+        for (Index index : event.indicesDeleted()) {
+            for (ConcurrentMap<ShardId, ShardCopyStatistics> shardCopyStats : nodeIdToShardCopyStats.values()) {
+                shardCopyStats.keySet().removeIf(shardId -> shardId.getIndex().equals(index));
+            }
+        }
     }
 
     void removeNode(String nodeId) {
         nodeIdToStats.remove(nodeId);
+        nodeIdToShardCopyStats.remove(nodeId);
     }
 
     public void addNodeStatistics(String nodeId, int queueSize, long responseTimeNanos, long avgServiceTimeNanos) {
@@ -79,6 +99,16 @@ public final class ResponseCollectorService implements ClusterStateListener {
         });
     }
 
+    /**
+     * Records the response time of a request to a copy of a shard, and the time it took to execute on the shard, or
+     * <code>-1</code> if the shard didn't report it.
+     */
+    public void addShardCopyStatistics(String nodeId, ShardId shardId, long responseTimeNanos, long serviceTimeNanos) {
+        nodeIdToShardCopyStats.computeIfAbsent(nodeId, id -> ConcurrentCollections.newConcurrentMap())
+            .computeIfAbsent(shardId, id -> new ShardCopyStatistics(responseTimeNanos))
+            .addValue(responseTimeNanos, serviceTimeNanos);
+    }
+
     public Map<String, ComputedNodeStats> getAllNodeStatistics() {
         final int clientNum = nodeIdToStats.size();
         // Transform the mutable object internally used for accounting into the computed version
@@ -89,8 +119,23 @@ public final class ResponseCollectorService implements ClusterStateListener {
         return nodeStats;
     }
 
+    /**
+     * Returns the statistics of all the shard copies, grouped by node id.
+     */
+    public Map<String, List<ComputedShardCopyStats>> getAllShardCopyStatistics() {
+        Map<String, List<ComputedShardCopyStats>> shardCopyStats = new HashMap<>(nodeIdToShardCopyStats.size());
+        nodeIdToShardCopyStats.forEach((nodeId, stats) -> {
+            List<ComputedShardCopyStats> computed = new ArrayList<>(stats.size());
+            stats.forEach((shardId, copyStats) -> computed.add(copyStats.compute(nodeId, shardId)));
+            if (computed.isEmpty() == false) {
+                shardCopyStats.put(nodeId, computed);
+            }
+        });
+        return shardCopyStats;
+    }
+
     public AdaptiveSelectionStats getAdaptiveStats(Map<String, Long> clientSearchConnections) {
-        return new AdaptiveSelectionStats(clientSearchConnections, getAllNodeStatistics());
+        return new AdaptiveSelectionStats(clientSearchConnections, getAllNodeStatistics(), getAllShardCopyStatistics());
     }
 
     /**
@@ -103,6 +148,19 @@ public final class ResponseCollectorService implements ClusterStateListener {
         return Optional.ofNullable(nodeIdToStats.get(nodeId)).map(ns -> new ComputedNodeStats(clientNum, ns));
     }
 
+    /**
+     * Optionally return a {@code ComputedShardCopyStats} for the copy of the given
+     * shard that is allocated on the given node, if response information exists
+     * for this copy. Returns an empty {@code Optional} otherwise.
+     */
+    public Optional<ComputedShardCopyStats> getShardCopyStatistics(final String nodeId, final ShardId shardId) {
+        final Map<ShardId, ShardCopyStatistics> shardCopyStats = nodeIdToShardCopyStats.get(nodeId);
+        if (shardCopyStats == null) {
+            return Optional.empty();
+        }
+        return Optional.ofNullable(shardCopyStats.get(shardId)).map(stats -> stats.compute(nodeId, shardId));
+    }
+
     /**
      * Struct-like class encapsulating a point-in-time snapshot of a particular
      * node's statistics. This includes the EWMA of queue size, response time,
@@ -156,7 +214,7 @@ public final class ResponseCollectorService implements ClusterStateListener {
          * Rank this copy of the data, according to the adaptive replica selection formula from the C3 paper
          * https://www.usenix.org/system/files/conference/nsdi15/nsdi15-paper-suresh.pdf
          */
-        private double innerRank(long outstandingRequests) {
+        private double innerRank(long outstandingRequests, double responseTime, double serviceTime) {
             // the concurrency compensation is defined as the number of
             // outstanding requests from the client to the node times the number
             // of clients in the system
@@ -182,11 +240,22 @@ public final class ResponseCollectorService implements ClusterStateListener {
 
         public double rank(long outstandingRequests) {
             if (cachedRank == 0) {
-                cachedRank = innerRank(outstandingRequests);
+                cachedRank = innerRank(outstandingRequests, responseTime, serviceTime);
             }
             return cachedRank;
         }
 
+        /**
+         * Rank a copy of a shard that is allocated on this node, using the response time and the service time of the shard copy
+         * rather than those of the node so that expensive copies are ranked lower than cheap copies on similarly loaded nodes.
+         * The service time of the node is used until the shard copy reported its own.
+         */
+        public double rank(long outstandingRequests, ComputedShardCopyStats shardCopyStats) {
+            assert nodeId.equals(shardCopyStats.nodeId) : "shard copy of node [" + shardCopyStats.nodeId + "] ranked on [" + nodeId + "]";
+            final double copyServiceTime = shardCopyStats.serviceTime > 0 ? shardCopyStats.serviceTime : serviceTime;
+            return innerRank(outstandingRequests, shardCopyStats.responseTime, copyServiceTime);
+        }
+
         @Override
         public String toString() {
             StringBuilder sb = new StringBuilder("ComputedNodeStats[");
@@ -201,6 +270,89 @@ public final class ResponseCollectorService implements ClusterStateListener {
         }
     }
 
+    /**
+     * Struct-like class encapsulating a point-in-time snapshot of the statistics
+     * of a copy of a shard. This includes the EWMA of the response time, an
+     * estimation of its 95th percentile and the EWMA of the service time.
+     */
+    public static class ComputedShardCopyStats implements Writeable {
+        public final String nodeId;
+        public final ShardId shardId;
+        public final double responseTime;
+        public final double p95ResponseTime;
+        /**
+         * The EWMA of the time it took to execute requests on the shard copy, or <code>-1</code> if unknown
+         */
+        public final double serviceTime;
+
+        public ComputedShardCopyStats(String nodeId, ShardId shardId, double responseTime, double p95ResponseTime, double serviceTime) {
+            this.nodeId = nodeId;
+            this.shardId = shardId;
+            this.responseTime = responseTime;
+            this.p95ResponseTime = p95ResponseTime;
+            this.serviceTime = serviceTime;
+        }
+
+        ComputedShardCopyStats(StreamInput in) throws IOException {
+            this.nodeId = in.readString();
+            this.shardId = ShardId.readShardId(in);
+            this.responseTime = in.readDouble();
+            this.p95ResponseTime = in.readDouble();
+            this.serviceTime = in.readDouble();
+        }
+
+        @Override
+        public void writeTo(StreamOutput out) throws IOException {
+            out.writeString(nodeId);
+            shardId.writeTo(out);
+            out.writeDouble(responseTime);
+            out.writeDouble(p95ResponseTime);
+            out.writeDouble(serviceTime);
+        }
+
+        @Override
+        public String toString() {
+            StringBuilder sb = new StringBuilder("ComputedShardCopyStats[");
+            sb.append(nodeId).append("]").append(shardId).append("(");
+            sb.append("response time: ").append(String.format(Locale.ROOT, "%.1f", responseTime));
+            sb.append(", p95 response time: ").append(String.format(Locale.ROOT, "%.1f", p95ResponseTime));
+            sb.append(", service time: ").append(String.format(Locale.ROOT, "%.1f", serviceTime));
+            sb.append(")");
+            return sb.toString();
+        }
+    }
+
+    /**
+     * Class encapsulating the exponentially weighted mean and variance of the
+     * response time of a shard copy and the exponentially weighted mean of its
+     * service time, only intended to be used for the internal accounting of
+     * {@code ResponseCollectorService}.
+     */
+    private static class ShardCopyStatistics {
+        private double responseTime;
+        private double variance;
+        private double serviceTime = -1;
+
+        ShardCopyStatistics(double initialResponseTime) {
+            this.responseTime = initialResponseTime;
+        }
+
+        synchronized void addValue(double responseTimeValue, double serviceTimeValue) {
+            final double diff = responseTimeValue - responseTime;
+            final double increment = ALPHA * diff;
+            responseTime += increment;
+            variance = (1 - ALPHA) * (variance + diff * increment);
+            if (serviceTimeValue >= 0) {
+                serviceTime = serviceTime < 0 ? serviceTimeValue : serviceTime + ALPHA * (serviceTimeValue - serviceTime);
+            }
+        }
+
+        synchronized ComputedShardCopyStats compute(String nodeId, ShardId shardId) {
+            return new ComputedShardCopyStats(nodeId, shardId, responseTime, responseTime + P95_Z_SCORE * Math.sqrt(variance),
+                serviceTime);
+        }
+    }
+
     /**
      * Class encapsulating a node's exponentially weighted queue size, response
      * time, and service time, however, this class is private and intended only
@@ -67,6 +67,11 @@ public class DeprecationRestHandler implements RestHandler {
         return handler.supportsContentStream();
     }
 
+    @Override
+    public boolean supportsStreamContentType(RestRequest request) {
+        return handler.supportsStreamContentType(request);
+    }
+
     /**
      * This does a very basic pass at validating that a header's value contains only expected characters according to RFC-5987, and those
      * that it references.
@@ -219,8 +219,8 @@ public class RestController implements HttpServerTransport.Dispatcher {
         if (contentLength > 0 && mHandler.map(h -> hasContentType(request, h) == false).orElse(false)) {
             sendContentTypeErrorMessage(request, channel);
             requestHandled = true;
-        } else if (contentLength > 0 && mHandler.map(h -> h.supportsContentStream()).orElse(false) &&
-            request.getXContentType() != XContentType.JSON && request.getXContentType() != XContentType.SMILE) {
+        } else if (contentLength > 0 &&
+            mHandler.map(h -> h.supportsContentStream() && h.supportsStreamContentType(request) == false).orElse(false)) {
             channel.sendResponse(BytesRestResponse.createSimpleErrorResponse(channel,
                 RestStatus.NOT_ACCEPTABLE, "Content-Type [" + request.getXContentType() +
                     "] does not support stream parsing. Use JSON or SMILE instead"));
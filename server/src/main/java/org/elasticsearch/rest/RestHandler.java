@@ -21,6 +21,7 @@ package org.elasticsearch.rest;
 
 import org.elasticsearch.client.node.NodeClient;
 import org.elasticsearch.common.xcontent.XContent;
+import org.elasticsearch.common.xcontent.XContentType;
 
 /**
  * Handler for REST requests
@@ -47,4 +48,13 @@ public interface RestHandler {
     default boolean supportsContentStream() {
         return false;
     }
+
+    /**
+     * Indicates if the content of the given request can be parsed as a stream, assuming that this handler
+     * {@link #supportsContentStream() supports content streams}. Only JSON and SMILE have a {@link XContent#streamSeparator()} that
+     * can delineate the objects of a stream, handlers that delineate them differently may accept other content types.
+     */
+    default boolean supportsStreamContentType(RestRequest request) {
+        return request.getXContentType() == XContentType.JSON || request.getXContentType() == XContentType.SMILE;
+    }
 }
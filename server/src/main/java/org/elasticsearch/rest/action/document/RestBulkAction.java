@@ -94,8 +94,16 @@ public class RestBulkAction extends BaseRestHandler {
         }
         bulkRequest.timeout(request.paramAsTime("timeout", BulkShardRequest.DEFAULT_TIMEOUT));
         bulkRequest.setRefreshPolicy(request.param("refresh"));
-        bulkRequest.add(request.requiredContent(), defaultIndex, defaultType, defaultRouting,
-            defaultFetchSourceContext, defaultPipeline, allowExplicitIndex, request.getXContentType());
+        String framing = request.param("framing", "newline");
+        if ("length_prefixed".equals(framing)) {
+            bulkRequest.addLengthPrefixed(request.requiredContent(), defaultIndex, defaultType, defaultRouting,
+                defaultFetchSourceContext, defaultPipeline, allowExplicitIndex, request.getXContentType());
+        } else if ("newline".equals(framing)) {
+            bulkRequest.add(request.requiredContent(), defaultIndex, defaultType, defaultRouting,
+                defaultFetchSourceContext, defaultPipeline, allowExplicitIndex, request.getXContentType());
+        } else {
+            throw new IllegalArgumentException("unknown framing [" + framing + "], expected [newline] or [length_prefixed]");
+        }
 
         return channel -> client.bulk(bulkRequest, new RestStatusToXContentListener<>(channel));
     }
@@ -104,4 +112,10 @@ public class RestBulkAction extends BaseRestHandler {
     public boolean supportsContentStream() {
         return true;
     }
+
+    @Override
+    public boolean supportsStreamContentType(RestRequest request) {
+        // length-prefixed entries don't need a stream separator, so any content type can be used for the action/metadata entries
+        return "length_prefixed".equals(request.param("framing")) || super.supportsStreamContentType(request);
+    }
 }
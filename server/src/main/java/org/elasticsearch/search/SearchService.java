@@ -26,22 +26,27 @@ import org.apache.lucene.search.TopDocs;
 import org.elasticsearch.ElasticsearchException;
 import org.elasticsearch.action.ActionListener;
 import org.elasticsearch.action.OriginalIndices;
+import org.elasticsearch.action.search.PointInTimeId;
 import org.elasticsearch.action.search.SearchTask;
 import org.elasticsearch.action.search.SearchType;
 import org.elasticsearch.cluster.ClusterState;
 import org.elasticsearch.cluster.service.ClusterService;
+import org.elasticsearch.common.Nullable;
 import org.elasticsearch.common.component.AbstractLifecycleComponent;
 import org.elasticsearch.common.io.stream.StreamInput;
 import org.elasticsearch.common.io.stream.StreamOutput;
+import org.elasticsearch.common.lease.Releasable;
 import org.elasticsearch.common.lucene.Lucene;
 import org.elasticsearch.common.settings.Setting;
 import org.elasticsearch.common.settings.Setting.Property;
 import org.elasticsearch.common.settings.Settings;
 import org.elasticsearch.common.unit.TimeValue;
 import org.elasticsearch.common.util.BigArrays;
+import org.elasticsearch.common.util.concurrent.AbstractRefCounted;
 import org.elasticsearch.common.util.concurrent.AbstractRunnable;
 import org.elasticsearch.common.util.concurrent.ConcurrentCollections;
 import org.elasticsearch.common.util.concurrent.ConcurrentMapLong;
+import org.elasticsearch.common.util.concurrent.CountDown;
 import org.elasticsearch.core.internal.io.IOUtils;
 import org.elasticsearch.index.Index;
 import org.elasticsearch.index.IndexService;
@@ -57,6 +62,7 @@ import org.elasticsearch.index.query.Rewriteable;
 import org.elasticsearch.index.shard.IndexEventListener;
 import org.elasticsearch.index.shard.IndexShard;
 import org.elasticsearch.index.shard.SearchOperationListener;
+import org.elasticsearch.index.shard.ShardId;
 import org.elasticsearch.indices.IndicesService;
 import org.elasticsearch.indices.cluster.IndicesClusterStateService.AllocatedIndices.IndexRemovalReason;
 import org.elasticsearch.node.ResponseCollectorService;
@@ -67,6 +73,7 @@ import org.elasticsearch.search.aggregations.AggregatorFactories;
 import org.elasticsearch.search.aggregations.InternalAggregation;
 import org.elasticsearch.search.aggregations.MultiBucketConsumerService;
 import org.elasticsearch.search.aggregations.SearchContextAggregations;
+import org.elasticsearch.search.builder.PointInTimeBuilder;
 import org.elasticsearch.search.builder.SearchSourceBuilder;
 import org.elasticsearch.search.collapse.CollapseContext;
 import org.elasticsearch.search.dfs.DfsPhase;
@@ -81,6 +88,7 @@ import org.elasticsearch.search.fetch.subphase.ScriptFieldsContext.ScriptField;
 import org.elasticsearch.search.fetch.subphase.highlight.HighlightBuilder;
 import org.elasticsearch.search.internal.AliasFilter;
 import org.elasticsearch.search.internal.InternalScrollSearchRequest;
+import org.elasticsearch.search.internal.PointInTimeContext;
 import org.elasticsearch.search.internal.ScrollContext;
 import org.elasticsearch.search.internal.SearchContext;
 import org.elasticsearch.search.internal.SearchContext.Lifetime;
@@ -92,10 +100,12 @@ import org.elasticsearch.search.query.QuerySearchResult;
 import org.elasticsearch.search.query.ScrollQuerySearchResult;
 import org.elasticsearch.search.rescore.RescorerBuilder;
 import org.elasticsearch.search.searchafter.SearchAfterBuilder;
+import org.elasticsearch.search.slice.SliceBuilder;
 import org.elasticsearch.search.sort.SortAndFormats;
 import org.elasticsearch.search.sort.SortBuilder;
 import org.elasticsearch.search.suggest.Suggest;
 import org.elasticsearch.search.suggest.completion.CompletionSuggestion;
+import org.elasticsearch.tasks.TaskCancelledException;
 import org.elasticsearch.threadpool.Scheduler.Cancellable;
 import org.elasticsearch.threadpool.ThreadPool;
 import org.elasticsearch.threadpool.ThreadPool.Names;
@@ -188,6 +198,9 @@ public class SearchService extends AbstractLifecycleComponent implements IndexEv
 
     private final ConcurrentMapLong<SearchContext> activeContexts = ConcurrentCollections.newConcurrentMapLongWithAggressiveConcurrency();
 
+    private final ConcurrentMapLong<PointInTimeContext> activePointInTimes =
+        ConcurrentCollections.newConcurrentMapLongWithAggressiveConcurrency();
+
     private final MultiBucketConsumerService multiBucketConsumerService;
 
     private final AtomicInteger openScrollContexts = new AtomicInteger();
@@ -293,6 +306,9 @@ public class SearchService extends AbstractLifecycleComponent implements IndexEv
         for (final SearchContext context : activeContexts.values()) {
             freeContext(context.id());
         }
+        for (final PointInTimeContext pointInTime : activePointInTimes.values()) {
+            freePointInTime(pointInTime.id());
+        }
     }
 
     @Override
@@ -346,6 +362,9 @@ public class SearchService extends AbstractLifecycleComponent implements IndexEv
         if (canCache) {
             indicesService.loadIntoContext(request, context, queryPhase);
         } else {
+            if (indicesService.canCacheTopDocs(request, context)) {
+                indicesService.setTopDocsCache(request, context);
+            }
             queryPhase.execute(context);
         }
     }
@@ -382,8 +401,88 @@ public class SearchService extends AbstractLifecycleComponent implements IndexEv
         });
     }
 
+    /**
+     * Executes the query phase of several requests that target the same shard, typically the items of a multi search request that
+     * were batched by the coordinating node. The requests are rewritten in a single round, the shard is awaited once and the queries
+     * are executed one after the other on a single search thread against the same searcher, which is why the coordinating node only
+     * batches cheap requests. The request at position {@code i} is executed under the task at position {@code i}, and the listener
+     * at that position is notified with its result.
+     */
+    public void executeQueryPhase(List<? extends ShardSearchRequest> requests, List<SearchTask> tasks,
+                                  List<? extends ActionListener<SearchPhaseResult>> listeners) {
+        assert requests.size() == listeners.size() && requests.size() == tasks.size() && requests.isEmpty() == false;
+        final ShardId shardId = requests.get(0).shardId();
+        final IndexShard shard;
+        try {
+            shard = indicesService.indexServiceSafe(shardId.getIndex()).getShard(shardId.id());
+        } catch (Exception e) {
+            listeners.forEach(listener -> listener.onFailure(e));
+            return;
+        }
+        final Exception[] rewriteFailures = new Exception[requests.size()];
+        final CountDown countDown = new CountDown(requests.size());
+        final Runnable onRewritten = () -> {
+            if (countDown.countDown()) {
+                shard.awaitShardSearchActive(b -> getExecutor(shard).execute(new AbstractRunnable() {
+                    @Override
+                    public void onFailure(Exception e) {
+                        listeners.forEach(listener -> listener.onFailure(e));
+                    }
+
+                    @Override
+                    protected void doRun() {
+                        executeQueryPhase(shard, requests, rewriteFailures, tasks, listeners);
+                    }
+                }));
+            }
+        };
+        for (int i = 0; i < requests.size(); i++) {
+            final ShardSearchRequest request = requests.get(i);
+            assert shardId.equals(request.shardId()) : "expected a request on " + shardId + " but got " + request.shardId();
+            final int index = i;
+            Rewriteable.rewriteAndFetch(request.getRewriteable(), indicesService.getRewriteContext(request::nowInMillis),
+                ActionListener.wrap(r -> onRewritten.run(), e -> {
+                    rewriteFailures[index] = e;
+                    onRewritten.run();
+                }));
+        }
+    }
+
+    private void executeQueryPhase(IndexShard shard, List<? extends ShardSearchRequest> requests, Exception[] rewriteFailures,
+                                   List<SearchTask> tasks, List<? extends ActionListener<SearchPhaseResult>> listeners) {
+        try (SharedSearcher searcher = new SharedSearcher(shard.acquireSearcher("search"))) {
+            for (int i = 0; i < requests.size(); i++) {
+                final ActionListener<SearchPhaseResult> listener = listeners.get(i);
+                if (rewriteFailures[i] != null) {
+                    listener.onFailure(rewriteFailures[i]);
+                    continue;
+                }
+                final SearchTask task = tasks.get(i);
+                if (task.isCancelled()) {
+                    // the search this request belongs to was cancelled while the previous requests of the batch were executed
+                    listener.onFailure(new TaskCancelledException("cancelled"));
+                    continue;
+                }
+                final SearchPhaseResult result;
+                try {
+                    result = executeQueryPhase(requests.get(i), task, searcher);
+                } catch (Exception e) {
+                    listener.onFailure(e);
+                    continue;
+                }
+                listener.onResponse(result);
+            }
+        }
+    }
+
     private SearchPhaseResult executeQueryPhase(ShardSearchRequest request, SearchTask task) throws Exception {
-        final SearchContext context = createAndPutContext(request);
+        return executeQueryPhase(request, task, (SharedSearcher) null);
+    }
+
+    private SearchPhaseResult executeQueryPhase(ShardSearchRequest request, SearchTask task,
+                                                @Nullable SharedSearcher sharedSearcher) throws Exception {
+        final long startTime = System.nanoTime();
+        final SearchContext context = createAndPutContext(request, sharedSearcher);
         context.incRef();
         try {
             context.setTask(task);
@@ -391,6 +490,8 @@ public class SearchService extends AbstractLifecycleComponent implements IndexEv
             try (SearchOperationListenerExecutor executor = new SearchOperationListenerExecutor(context)) {
                 contextProcessing(context);
                 loadOrExecuteQueryPhase(request, context);
+                // reported to the coordinating node to rank the copies of this shard by their own service time
+                context.queryResult().shardServiceTimeNanos(System.nanoTime() - startTime);
                 if (context.queryResult().hasSearchContext() == false && context.scrollContext() == null) {
                     freeContext(context.id());
                 } else {
@@ -573,6 +674,10 @@ public class SearchService extends AbstractLifecycleComponent implements IndexEv
     }
 
     final SearchContext createAndPutContext(ShardSearchRequest request) throws IOException {
+        return createAndPutContext(request, null);
+    }
+
+    private SearchContext createAndPutContext(ShardSearchRequest request, @Nullable SharedSearcher sharedSearcher) throws IOException {
         if (request.scroll() != null && openScrollContexts.get() >= maxOpenScrollContext) {
             throw new ElasticsearchException(
                 "Trying to create too many scroll contexts. Must be less than or equal to: [" +
@@ -580,7 +685,7 @@ public class SearchService extends AbstractLifecycleComponent implements IndexEv
                     + MAX_OPEN_SCROLL_CONTEXT.getKey() + "] setting.");
         }
 
-        SearchContext context = createContext(request);
+        SearchContext context = createContext(request, sharedSearcher);
         boolean success = false;
         try {
             putContext(context);
@@ -599,7 +704,11 @@ public class SearchService extends AbstractLifecycleComponent implements IndexEv
     }
 
     final SearchContext createContext(ShardSearchRequest request) throws IOException {
-        final DefaultSearchContext context = createSearchContext(request, defaultSearchTimeout);
+        return createContext(request, null);
+    }
+
+    private SearchContext createContext(ShardSearchRequest request, @Nullable SharedSearcher sharedSearcher) throws IOException {
+        final DefaultSearchContext context = createSearchContext(request, defaultSearchTimeout, true, "search", sharedSearcher);
         try {
             if (request.scroll() != null) {
                 context.scrollContext(new ScrollContext());
@@ -636,17 +745,27 @@ public class SearchService extends AbstractLifecycleComponent implements IndexEv
     }
 
     public DefaultSearchContext createSearchContext(ShardSearchRequest request, TimeValue timeout) throws IOException {
-        return createSearchContext(request, timeout, true, "search");
+        return createSearchContext(request, timeout, true, "search", null);
     }
 
     private DefaultSearchContext createSearchContext(ShardSearchRequest request, TimeValue timeout,
-                                                     boolean assertAsyncActions, String source)
+                                                     boolean assertAsyncActions, String source,
+                                                     @Nullable SharedSearcher sharedSearcher)
             throws IOException {
         IndexService indexService = indicesService.indexServiceSafe(request.shardId().getIndex());
         IndexShard indexShard = indexService.getShard(request.shardId().getId());
         SearchShardTarget shardTarget = new SearchShardTarget(clusterService.localNode().getId(),
                 indexShard.shardId(), request.getClusterAlias(), OriginalIndices.NONE);
-        Engine.Searcher engineSearcher = indexShard.acquireSearcher(source);
+        final Engine.Searcher engineSearcher;
+        final PointInTimeBuilder pointInTime = request.source() == null ? null : request.source().pointInTimeBuilder();
+        if (pointInTime != null) {
+            // only search requests can target a point in time, and they are always received as shard transport requests
+            engineSearcher = acquirePointInTimeSearcher(pointInTime, indexShard.shardId(), source, (TransportRequest) request);
+        } else if (sharedSearcher != null) {
+            engineSearcher = sharedSearcher.acquireSearcher(source);
+        } else {
+            engineSearcher = indexShard.acquireSearcher(source);
+        }
 
         final DefaultSearchContext searchContext = new DefaultSearchContext(idGenerator.incrementAndGet(), request, shardTarget,
             engineSearcher, clusterService, indexService, indexShard, bigArrays, threadPool::relativeTimeInMillis, timeout,
@@ -675,6 +794,91 @@ public class SearchService extends AbstractLifecycleComponent implements IndexEv
                 freeContext(ctx.id());
             }
         }
+        for (PointInTimeContext pointInTime : activePointInTimes.values()) {
+            if (index.equals(pointInTime.shardId().getIndex())) {
+                freePointInTime(pointInTime.id());
+            }
+        }
+    }
+
+    /**
+     * Opens a point in time on the given shard: the current searcher of the shard is kept open until the point in time is freed
+     * or was not used for longer than the provided keep alive, and can be used by any number of search requests in the meantime.
+     *
+     * @return the id of the point in time on this node
+     */
+    public long openPointInTime(ShardId shardId, TimeValue keepAlive) throws IOException {
+        checkPointInTimeKeepAlive(keepAlive.millis());
+        IndexShard indexShard = indicesService.indexServiceSafe(shardId.getIndex()).getShard(shardId.id());
+        Engine.Searcher searcher = indexShard.acquireSearcher("point_in_time");
+        boolean success = false;
+        try {
+            PointInTimeContext pointInTime = new PointInTimeContext(idGenerator.incrementAndGet(), indexShard, searcher,
+                keepAlive.millis(), threadPool.relativeTimeInMillis());
+            final PointInTimeContext previous = activePointInTimes.put(pointInTime.id(), pointInTime);
+            assert previous == null;
+            success = true;
+            indexShard.getSearchOperationListener().onNewPointInTime(pointInTime);
+            return pointInTime.id();
+        } finally {
+            if (success == false) {
+                searcher.close();
+            }
+        }
+    }
+
+    /**
+     * Frees the point in time with the given id on behalf of the provided request, after checking that the request
+     * is allowed to use it.
+     *
+     * @return <code>true</code> if the point in time was found and freed
+     */
+    public boolean freePointInTime(long id, TransportRequest request) {
+        final PointInTimeContext pointInTime = activePointInTimes.get(id);
+        if (pointInTime == null) {
+            return false;
+        }
+        pointInTime.indexShard().getSearchOperationListener().validatePointInTime(pointInTime, request);
+        return freePointInTime(id);
+    }
+
+    public boolean freePointInTime(long id) {
+        PointInTimeContext pointInTime = activePointInTimes.remove(id);
+        if (pointInTime == null) {
+            return false;
+        }
+        try {
+            pointInTime.indexShard().getSearchOperationListener().onFreePointInTime(pointInTime);
+        } finally {
+            // searches that are still running on this point in time keep the reader open until they complete
+            pointInTime.decRef();
+        }
+        return true;
+    }
+
+    private Engine.Searcher acquirePointInTimeSearcher(PointInTimeBuilder builder, ShardId shardId, String source,
+                                                       TransportRequest request) {
+        final long id = PointInTimeId.decode(builder.getId()).contextId(shardId);
+        final PointInTimeContext pointInTime = activePointInTimes.get(id);
+        if (pointInTime == null || shardId.equals(pointInTime.shardId()) == false) {
+            throw new SearchContextMissingException(id);
+        }
+        pointInTime.indexShard().getSearchOperationListener().validatePointInTime(pointInTime, request);
+        if (builder.getKeepAlive() != null) {
+            checkPointInTimeKeepAlive(builder.getKeepAlive().millis());
+            pointInTime.keepAlive(builder.getKeepAlive().millis());
+        }
+        pointInTime.accessed(threadPool.relativeTimeInMillis());
+        return pointInTime.acquireSearcher(source);
+    }
+
+    private void checkPointInTimeKeepAlive(long keepAlive) {
+        if (keepAlive > maxKeepAlive) {
+            throw new IllegalArgumentException(
+                "Keep alive for point in time (" + TimeValue.timeValueMillis(keepAlive) + ") is too large. " +
+                    "It must be less than (" + TimeValue.timeValueMillis(maxKeepAlive) + "). " +
+                    "This limit can be set by changing the [" + MAX_KEEPALIVE_SETTING.getKey() + "] cluster level setting.");
+        }
     }
 
 
@@ -893,8 +1097,13 @@ public class SearchService extends AbstractLifecycleComponent implements IndexEv
         }
 
         if (source.slice() != null) {
-            if (context.scrollContext() == null) {
-                throw new SearchContextException(context, "`slice` cannot be used outside of a scroll context");
+            if (context.scrollContext() == null && source.pointInTimeBuilder() == null) {
+                throw new SearchContextException(context, "`slice` cannot be used outside of a scroll context or a point in time");
+            }
+            if (SliceBuilder.DOC_FIELD_NAME.equals(source.slice().getField()) && source.pointInTimeBuilder() == null) {
+                // each sliced scroll request opens its own reader so the doc id ranges of the slices could overlap
+                throw new SearchContextException(context, "`slice` on the [" + SliceBuilder.DOC_FIELD_NAME
+                    + "] field can only be used with a point in time");
             }
             context.sliceBuilder(source.slice());
         }
@@ -981,6 +1190,13 @@ public class SearchService extends AbstractLifecycleComponent implements IndexEv
         return this.activeContexts.size();
     }
 
+    /**
+     * Returns the number of point in times that are currently open on this node.
+     */
+    public int getActivePointInTimes() {
+        return this.activePointInTimes.size();
+    }
+
     public ResponseCollectorService getResponseCollectorService() {
         return this.responseCollectorService;
     }
@@ -1002,6 +1218,13 @@ public class SearchService extends AbstractLifecycleComponent implements IndexEv
                     freeContext(context.id());
                 }
             }
+            for (PointInTimeContext pointInTime : activePointInTimes.values()) {
+                if (time - pointInTime.lastAccessTime() > pointInTime.keepAlive()) {
+                    logger.debug("freeing point in time [{}], time [{}], lastAccessTime [{}], keepAlive [{}]", pointInTime.id(), time,
+                        pointInTime.lastAccessTime(), pointInTime.keepAlive());
+                    freePointInTime(pointInTime.id());
+                }
+            }
         }
     }
 
@@ -1016,7 +1239,7 @@ public class SearchService extends AbstractLifecycleComponent implements IndexEv
      */
     public boolean canMatch(ShardSearchRequest request) throws IOException {
         assert request.searchType() == SearchType.QUERY_THEN_FETCH : "unexpected search type: " + request.searchType();
-        try (DefaultSearchContext context = createSearchContext(request, defaultSearchTimeout, false, "can_match")) {
+        try (DefaultSearchContext context = createSearchContext(request, defaultSearchTimeout, false, "can_match", null)) {
             SearchSourceBuilder source = context.request().source();
             if (canRewriteToMatchNone(source)) {
                 QueryBuilder queryBuilder = source.query();
@@ -1120,6 +1343,35 @@ public class SearchService extends AbstractLifecycleComponent implements IndexEv
         }
     }
 
+    /**
+     * A searcher that is acquired once and shared by the search contexts of a batch of requests on the same shard. The underlying
+     * searcher is released once the batch has been executed and all the contexts that still use it, e.g. for the fetch phase,
+     * have been freed.
+     */
+    private static final class SharedSearcher extends AbstractRefCounted implements Releasable {
+        private final Engine.Searcher searcher;
+
+        SharedSearcher(Engine.Searcher searcher) {
+            super("shared_searcher");
+            this.searcher = searcher;
+        }
+
+        Engine.Searcher acquireSearcher(String source) {
+            incRef();
+            return new Engine.Searcher(source, searcher.searcher(), this::decRef);
+        }
+
+        @Override
+        public void close() {
+            decRef();
+        }
+
+        @Override
+        protected void closeInternal() {
+            searcher.close();
+        }
+    }
+
     /**
      * This helper class ensures we only execute either the success or the failure path for {@link SearchOperationListener}.
      * This is crucial for some implementations like {@link org.elasticsearch.index.search.stats.ShardSearchStats}.
@@ -60,8 +60,16 @@ public class AggregationPhase implements SearchPhase {
                 }
                 context.aggregations().aggregators(aggregators);
                 if (!collectors.isEmpty()) {
-                    Collector collector = MultiBucketCollector.wrap(collectors);
-                    ((BucketCollector)collector).preCollection();
+                    BucketCollector bucketCollector = MultiBucketCollector.wrap(collectors);
+                    if (bucketCollector.scoreMode().needsScores() == false) {
+                        // let top level metric aggregators aggregate the values of many documents at once, the sub aggregators
+                        // of bucket aggregators still collect document by document
+                        BatchingBucketCollector batchingCollector = new BatchingBucketCollector(bucketCollector);
+                        context.aggregations().batchingCollector(batchingCollector);
+                        bucketCollector = batchingCollector;
+                    }
+                    bucketCollector.preCollection();
+                    Collector collector = bucketCollector;
                     if (context.getProfilers() != null) {
                         collector = new InternalProfileCollector(collector, CollectorResult.REASON_AGGREGATION,
                                 // TODO: report on child aggs as well
@@ -87,6 +95,16 @@ public class AggregationPhase implements SearchPhase {
             return;
         }
 
+        // pass the documents that are still buffered on to the aggregators
+        BatchingBucketCollector batchingCollector = context.aggregations().batchingCollector();
+        if (batchingCollector != null) {
+            try {
+                batchingCollector.flush();
+            } catch (IOException e) {
+                throw new AggregationExecutionException("Failed to collect aggregations", e);
+            }
+        }
+
         Aggregator[] aggregators = context.aggregations().aggregators();
         List<Aggregator> globals = new ArrayList<>();
         for (int i = 0; i < aggregators.length; i++) {
@@ -31,6 +31,7 @@ import org.elasticsearch.search.aggregations.bucket.BucketsAggregator;
 import org.elasticsearch.search.internal.SearchContext;
 
 import java.io.IOException;
+import java.util.function.BiConsumer;
 
 /**
  * An Aggregator.
@@ -101,6 +102,13 @@ public abstract class Aggregator extends BucketCollector implements Releasable {
      */
     public abstract InternalAggregation buildEmptyAggregation();
 
+    /**
+     * Adds extra information about how this aggregator was executed, like the collection strategy it picked, to the debug
+     * section of its profile result. This is called once collection is done, the default implementation adds nothing.
+     */
+    public void collectDebugInfo(BiConsumer<String, Long> add) {
+    }
+
     /** Aggregation mode for sub aggregations. */
     public enum SubAggCollectionMode implements Writeable {
 
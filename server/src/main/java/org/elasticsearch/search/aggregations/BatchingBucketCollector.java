@@ -0,0 +1,119 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.search.aggregations;
+
+import org.apache.lucene.index.LeafReaderContext;
+import org.apache.lucene.search.CollectionTerminatedException;
+import org.apache.lucene.search.Scorable;
+import org.apache.lucene.search.ScoreMode;
+
+import java.io.IOException;
+
+/**
+ * A {@link BucketCollector} that buffers the documents that top level aggregators collect and passes them on in batches, through
+ * {@link LeafBucketCollector#collect(int[], int, long)}, so that aggregators can read the doc values of many documents at once and
+ * aggregate them in a tight loop. Documents are buffered across calls to {@link LeafBucketCollector#collect(int, long)}, so this
+ * can only be used if the wrapped collector doesn't need scores. The documents that are still buffered when the search moves to
+ * the next segment are flushed before the wrapped collector is asked for the collector of the next segment, and the last ones must
+ * be flushed with {@link #flush()} or {@link #postCollection()} once the search is done.
+ * <p>
+ * Only the top level aggregators get batches: bucket aggregators still pass the documents of their buckets on to their sub
+ * aggregators one at a time, through {@link LeafBucketCollector#collect(int, long)}, since the documents of a batch may fall in
+ * different buckets. Metric aggregators under a bucket aggregator therefore collect document by document.
+ */
+final class BatchingBucketCollector extends BucketCollector {
+
+    static final int BATCH_SIZE = 128;
+
+    private final BucketCollector delegate;
+    private final int[] docs = new int[BATCH_SIZE];
+    private int count;
+    private LeafBucketCollector leafCollector;
+
+    BatchingBucketCollector(BucketCollector delegate) {
+        assert delegate.scoreMode().needsScores() == false;
+        this.delegate = delegate;
+    }
+
+    @Override
+    public ScoreMode scoreMode() {
+        return delegate.scoreMode();
+    }
+
+    @Override
+    public void preCollection() throws IOException {
+        delegate.preCollection();
+    }
+
+    @Override
+    public LeafBucketCollector getLeafCollector(LeafReaderContext ctx) throws IOException {
+        // deferring collectors expect all documents of a segment before the next segment starts
+        flush();
+        final LeafBucketCollector leaf = delegate.getLeafCollector(ctx);
+        if (leaf == LeafBucketCollector.NO_OP_COLLECTOR) {
+            return leaf;
+        }
+        leafCollector = leaf;
+        return new LeafBucketCollector() {
+            @Override
+            public void setScorer(Scorable scorer) throws IOException {
+                leaf.setScorer(scorer);
+            }
+
+            @Override
+            public void collect(int doc, long bucket) throws IOException {
+                assert bucket == 0;
+                docs[count++] = doc;
+                if (count == BATCH_SIZE) {
+                    count = 0;
+                    leaf.collect(docs, BATCH_SIZE, 0);
+                }
+            }
+        };
+    }
+
+    /**
+     * Passes the documents that are still buffered on to the collector of the segment they belong to.
+     */
+    void flush() throws IOException {
+        final LeafBucketCollector leaf = leafCollector;
+        final int numDocs = count;
+        leafCollector = null;
+        count = 0;
+        if (leaf != null && numDocs > 0) {
+            try {
+                leaf.collect(docs, numDocs, 0);
+            } catch (CollectionTerminatedException e) {
+                // the collector doesn't need the rest of its segment, which is what the searcher would do too
+            }
+        }
+    }
+
+    @Override
+    public void postCollection() throws IOException {
+        flush();
+        delegate.postCollection();
+    }
+
+    @Override
+    public String toString() {
+        return delegate.toString();
+    }
+}
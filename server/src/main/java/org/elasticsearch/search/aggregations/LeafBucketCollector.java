@@ -68,6 +68,13 @@ public abstract class LeafBucketCollector implements LeafCollector {
                     }
                 }
 
+                @Override
+                public void collect(int[] docs, int count, long bucket) throws IOException {
+                    for (LeafBucketCollector c : colls) {
+                        c.collect(docs, count, bucket);
+                    }
+                }
+
             };
         }
     }
@@ -77,6 +84,18 @@ public abstract class LeafBucketCollector implements LeafCollector {
      */
     public abstract void collect(int doc, long bucket) throws IOException;
 
+    /**
+     * Collect the first <code>count</code> docs of <code>docs</code>, which are in increasing order, in the given bucket. This is
+     * equivalent to calling {@link #collect(int, long)} for every doc, which is what the default implementation does, but allows
+     * implementations to read the doc values of all docs at once and to aggregate them in a tight loop. Only top level
+     * aggregators are called with batches, see {@code BatchingBucketCollector}, sub aggregators are called doc by doc.
+     */
+    public void collect(int[] docs, int count, long bucket) throws IOException {
+        for (int i = 0; i < count; i++) {
+            collect(docs[i], bucket);
+        }
+    }
+
     @Override
     public final void collect(int doc) throws IOException {
         collect(doc, 0);
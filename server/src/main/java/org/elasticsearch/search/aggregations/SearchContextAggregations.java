@@ -28,6 +28,7 @@ public class SearchContextAggregations {
     private final AggregatorFactories factories;
     private final MultiBucketConsumer multiBucketConsumer;
     private Aggregator[] aggregators;
+    private BatchingBucketCollector batchingCollector;
 
     /**
      * Creates a new aggregation context with the parsed aggregator factories
@@ -62,6 +63,18 @@ public class SearchContextAggregations {
         return multiBucketConsumer;
     }
 
+    /**
+     * Returns the collector that buffers the documents of the top level aggregators, if any, which must be flushed before the
+     * aggregators are built.
+     */
+    BatchingBucketCollector batchingCollector() {
+        return batchingCollector;
+    }
+
+    void batchingCollector(BatchingBucketCollector batchingCollector) {
+        this.batchingCollector = batchingCollector;
+    }
+
     void resetBucketMultiConsumer() {
         multiBucketConsumer.reset();
     }
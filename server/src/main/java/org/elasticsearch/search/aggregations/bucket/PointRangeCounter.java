@@ -0,0 +1,186 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.search.aggregations.bucket;
+
+import org.apache.lucene.index.LeafReader;
+import org.apache.lucene.index.PointValues;
+import org.apache.lucene.search.BooleanClause;
+import org.apache.lucene.search.BooleanQuery;
+import org.apache.lucene.search.BoostQuery;
+import org.apache.lucene.search.ConstantScoreQuery;
+import org.apache.lucene.search.IndexOrDocValuesQuery;
+import org.apache.lucene.search.MatchAllDocsQuery;
+import org.apache.lucene.search.PointRangeQuery;
+import org.apache.lucene.search.Query;
+import org.apache.lucene.util.FutureArrays;
+import org.elasticsearch.common.Nullable;
+
+import java.io.IOException;
+import java.util.Arrays;
+
+/**
+ * Counts documents from the points index of a single dimension field rather than by collecting every matching document. This
+ * only gives the same counts as collecting when the top level query matches all documents that have a value in a range of the
+ * field, see {@link #queryBounds}, when segments have no deleted documents and when every document has at most one value, see
+ * {@link #getPointValuesOrNull}.
+ */
+public final class PointRangeCounter {
+
+    private PointRangeCounter() {}
+
+    /**
+     * Returns the encoded lower and upper bounds (both inclusive) of the values of <code>field</code> that the documents which
+     * match the given top level query have, or <code>null</code> if the query matches documents based on anything else than
+     * the values of this field. Only {@link MatchAllDocsQuery} and {@link PointRangeQuery} on the field, also wrapped in a
+     * conjunction, are supported.
+     */
+    @Nullable
+    public static byte[][] queryBounds(@Nullable Query query, String field, int bytesPerDim) {
+        final byte[] lower = new byte[bytesPerDim];
+        final byte[] upper = new byte[bytesPerDim];
+        Arrays.fill(upper, (byte) 0xFF);
+        final byte[][] bounds = new byte[][] { lower, upper };
+        if (query != null && intersectBounds(query, field, bytesPerDim, bounds) == false) {
+            return null;
+        }
+        return bounds;
+    }
+
+    private static boolean intersectBounds(Query query, String field, int bytesPerDim, byte[][] bounds) {
+        if (query instanceof MatchAllDocsQuery) {
+            return true;
+        } else if (query instanceof ConstantScoreQuery) {
+            return intersectBounds(((ConstantScoreQuery) query).getQuery(), field, bytesPerDim, bounds);
+        } else if (query instanceof BoostQuery) {
+            return intersectBounds(((BoostQuery) query).getQuery(), field, bytesPerDim, bounds);
+        } else if (query instanceof IndexOrDocValuesQuery) {
+            return intersectBounds(((IndexOrDocValuesQuery) query).getIndexQuery(), field, bytesPerDim, bounds);
+        } else if (query instanceof BooleanQuery) {
+            final BooleanQuery booleanQuery = (BooleanQuery) query;
+            if (booleanQuery.clauses().isEmpty() || booleanQuery.getMinimumNumberShouldMatch() > 0) {
+                return false;
+            }
+            for (BooleanClause clause : booleanQuery.clauses()) {
+                if (clause.isRequired() == false || clause.isProhibited()) {
+                    return false;
+                }
+                if (intersectBounds(clause.getQuery(), field, bytesPerDim, bounds) == false) {
+                    return false;
+                }
+            }
+            return true;
+        } else if (query instanceof PointRangeQuery) {
+            final PointRangeQuery rangeQuery = (PointRangeQuery) query;
+            if (rangeQuery.getField().equals(field) == false || rangeQuery.getNumDims() != 1
+                    || rangeQuery.getBytesPerDim() != bytesPerDim) {
+                return false;
+            }
+            if (compare(rangeQuery.getLowerPoint(), bounds[0]) > 0) {
+                bounds[0] = rangeQuery.getLowerPoint();
+            }
+            if (compare(rangeQuery.getUpperPoint(), bounds[1]) < 0) {
+                bounds[1] = rangeQuery.getUpperPoint();
+            }
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Returns the points of <code>field</code> in the given segment if documents of this segment can be counted from them, or
+     * <code>null</code> if the segment has deleted documents, documents with more than one value or no points for the field.
+     */
+    @Nullable
+    public static PointValues getPointValuesOrNull(LeafReader reader, String field) throws IOException {
+        if (reader.getLiveDocs() != null) {
+            return null;
+        }
+        final PointValues values = reader.getPointValues(field);
+        if (values == null || values.getNumDataDimensions() != 1 || values.size() != values.getDocCount()) {
+            return null;
+        }
+        return values;
+    }
+
+    /**
+     * Returns the number of points with a value between <code>lower</code> and <code>upper</code>, both inclusive.
+     */
+    public static long count(PointValues values, byte[] lower, byte[] upper) throws IOException {
+        if (intersects(values, lower, upper) == false) {
+            return 0;
+        }
+        if (compare(values.getMinPackedValue(), lower) >= 0 && compare(values.getMaxPackedValue(), upper) <= 0) {
+            return values.size();
+        }
+        final long[] count = new long[1];
+        values.intersect(new PointValues.IntersectVisitor() {
+            @Override
+            public void visit(int docID) {
+                count[0]++;
+            }
+
+            @Override
+            public void visit(int docID, byte[] packedValue) {
+                if (PointRangeCounter.compare(packedValue, lower) >= 0 && PointRangeCounter.compare(packedValue, upper) <= 0) {
+                    count[0]++;
+                }
+            }
+
+            @Override
+            public PointValues.Relation compare(byte[] minPackedValue, byte[] maxPackedValue) {
+                if (PointRangeCounter.compare(maxPackedValue, lower) < 0 || PointRangeCounter.compare(minPackedValue, upper) > 0) {
+                    return PointValues.Relation.CELL_OUTSIDE_QUERY;
+                }
+                if (PointRangeCounter.compare(minPackedValue, lower) >= 0 && PointRangeCounter.compare(maxPackedValue, upper) <= 0) {
+                    return PointValues.Relation.CELL_INSIDE_QUERY;
+                }
+                return PointValues.Relation.CELL_CROSSES_QUERY;
+            }
+        });
+        return count[0];
+    }
+
+    /**
+     * Returns whether any point has a value between <code>lower</code> and <code>upper</code>, judging from the minimum and
+     * maximum value of the points only.
+     */
+    public static boolean intersects(PointValues values, byte[] lower, byte[] upper) throws IOException {
+        return compare(lower, upper) <= 0 && compare(values.getMaxPackedValue(), lower) >= 0
+            && compare(values.getMinPackedValue(), upper) <= 0;
+    }
+
+    /**
+     * Returns the larger of two encoded values.
+     */
+    public static byte[] max(byte[] a, byte[] b) {
+        return compare(a, b) >= 0 ? a : b;
+    }
+
+    /**
+     * Returns the smaller of two encoded values.
+     */
+    public static byte[] min(byte[] a, byte[] b) {
+        return compare(a, b) <= 0 ? a : b;
+    }
+
+    private static int compare(byte[] a, byte[] b) {
+        return FutureArrays.compareUnsigned(a, 0, a.length, b, 0, b.length);
+    }
+}
@@ -18,13 +18,17 @@
  */
 package org.elasticsearch.search.aggregations.bucket.histogram;
 
+import org.apache.lucene.document.LongPoint;
 import org.apache.lucene.index.LeafReaderContext;
+import org.apache.lucene.index.PointValues;
 import org.apache.lucene.index.SortedNumericDocValues;
+import org.apache.lucene.search.CollectionTerminatedException;
 import org.apache.lucene.search.ScoreMode;
 import org.apache.lucene.util.CollectionUtil;
 import org.elasticsearch.common.Nullable;
 import org.elasticsearch.common.Rounding;
 import org.elasticsearch.common.lease.Releasables;
+import org.elasticsearch.common.util.LongArray;
 import org.elasticsearch.common.util.LongHash;
 import org.elasticsearch.search.DocValueFormat;
 import org.elasticsearch.search.aggregations.Aggregator;
@@ -35,6 +39,7 @@ import org.elasticsearch.search.aggregations.InternalOrder;
 import org.elasticsearch.search.aggregations.LeafBucketCollector;
 import org.elasticsearch.search.aggregations.LeafBucketCollectorBase;
 import org.elasticsearch.search.aggregations.bucket.BucketsAggregator;
+import org.elasticsearch.search.aggregations.bucket.PointRangeCounter;
 import org.elasticsearch.search.aggregations.pipeline.PipelineAggregator;
 import org.elasticsearch.search.aggregations.support.ValuesSource;
 import org.elasticsearch.search.internal.SearchContext;
@@ -44,15 +49,36 @@ import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
 import java.util.Map;
+import java.util.function.BiConsumer;
 
 /**
  * An aggregator for date values. Every date is rounded down using a configured
  * {@link Rounding}.
  *
+ * If the factory determined that the documents of the buckets can be counted from the
+ * points of the field (a <code>pointField</code> is set), segments are not collected
+ * at all. Instead the bucket boundaries between the minimum and the maximum date of the
+ * segment are computed with the rounding and the points in every bucket are counted,
+ * which is much cheaper than rounding the date of every document as long as the segment
+ * has few buckets, see {@link #MAX_POINT_BUCKETS} and {@link #MIN_POINTS_PER_BUCKET}.
+ * Segments that can't be counted this way, see {@link PointRangeCounter#getPointValuesOrNull},
+ * or that have too many buckets are collected as usual.
+ *
  * @see Rounding
  */
 class DateHistogramAggregator extends BucketsAggregator {
 
+    /**
+     * The maximum number of buckets of a segment that are counted from points. Counting a bucket may visit the two leaves of the
+     * points tree that hold its bounds, so counting only beats collecting if there are few buckets with many documents each.
+     */
+    static final int MAX_POINT_BUCKETS = 1024;
+
+    /**
+     * The minimum average number of points per bucket of a segment that is counted from points.
+     */
+    static final int MIN_POINTS_PER_BUCKET = 128;
+
     private final ValuesSource.Numeric valuesSource;
     private final DocValueFormat formatter;
     private final Rounding rounding;
@@ -66,10 +92,15 @@ class DateHistogramAggregator extends BucketsAggregator {
     private final LongHash bucketOrds;
     private long offset;
 
+    private final String pointField;
+    private final long[] pointBounds;
+    private long segmentsCountedFromPoints;
+    private long segmentsCollected;
+
     DateHistogramAggregator(String name, AggregatorFactories factories, Rounding rounding, Rounding shardRounding,
             long offset, BucketOrder order, boolean keyed,
             long minDocCount, @Nullable ExtendedBounds extendedBounds, @Nullable ValuesSource.Numeric valuesSource,
-            DocValueFormat formatter, SearchContext aggregationContext,
+            @Nullable String pointField, @Nullable long[] pointBounds, DocValueFormat formatter, SearchContext aggregationContext,
             Aggregator parent, List<PipelineAggregator> pipelineAggregators, Map<String, Object> metaData) throws IOException {
 
         super(name, factories, aggregationContext, parent, pipelineAggregators, metaData);
@@ -82,6 +113,8 @@ class DateHistogramAggregator extends BucketsAggregator {
         this.extendedBounds = extendedBounds;
         this.valuesSource = valuesSource;
         this.formatter = formatter;
+        this.pointField = pointField;
+        this.pointBounds = pointBounds;
 
         bucketOrds = new LongHash(1, aggregationContext.bigArrays());
     }
@@ -100,6 +133,12 @@ class DateHistogramAggregator extends BucketsAggregator {
         if (valuesSource == null) {
             return LeafBucketCollector.NO_OP_COLLECTOR;
         }
+        if (pointField != null && countFromPoints(ctx)) {
+            segmentsCountedFromPoints++;
+            // the buckets have been counted, we don't need to collect hits on this segment.
+            throw new CollectionTerminatedException();
+        }
+        segmentsCollected++;
         final SortedNumericDocValues values = valuesSource.longValues(ctx);
         return new LeafBucketCollectorBase(sub, values) {
             @Override
@@ -132,6 +171,63 @@ class DateHistogramAggregator extends BucketsAggregator {
         };
     }
 
+    /**
+     * Counts the documents of every bucket of the segment from the points of the field. Returns <code>false</code> if the
+     * segment has to be collected instead.
+     */
+    private boolean countFromPoints(LeafReaderContext ctx) throws IOException {
+        final PointValues pointValues = PointRangeCounter.getPointValuesOrNull(ctx.reader(), pointField);
+        if (pointValues == null) {
+            return false;
+        }
+        final long from = Math.max(pointBounds[0], LongPoint.decodeDimension(pointValues.getMinPackedValue(), 0));
+        final long to = Math.min(pointBounds[1], LongPoint.decodeDimension(pointValues.getMaxPackedValue(), 0));
+        if (from > to) {
+            // no value of this segment matches the query
+            return true;
+        }
+        // computing the buckets first lets us fall back to collecting if there are too many buckets
+        final long maxBuckets = Math.max(1, Math.min(MAX_POINT_BUCKETS, pointValues.size() / MIN_POINTS_PER_BUCKET));
+        try (LongArray keys = context.bigArrays().newLongArray(maxBuckets, false)) {
+            long numKeys = 0;
+            long key = shardRounding.round(from - offset) + offset;
+            while (key <= to) {
+                if (numKeys >= maxBuckets) {
+                    return false;
+                }
+                keys.set(numKeys++, key);
+                final long next = shardRounding.nextRoundingValue(key - offset) + offset;
+                if (next <= key) {
+                    return false;
+                }
+                key = next;
+            }
+            final byte[] lower = new byte[Long.BYTES];
+            final byte[] upper = new byte[Long.BYTES];
+            for (long i = 0; i < numKeys; i++) {
+                final long bucketKey = keys.get(i);
+                final long bucketEnd = i + 1 < numKeys ? keys.get(i + 1) - 1 : to;
+                LongPoint.encodeDimension(Math.max(from, bucketKey), lower, 0);
+                LongPoint.encodeDimension(Math.min(to, bucketEnd), upper, 0);
+                final long count = PointRangeCounter.count(pointValues, lower, upper);
+                if (count > 0) {
+                    long bucketOrd = bucketOrds.add(bucketKey);
+                    if (bucketOrd < 0) { // already seen
+                        bucketOrd = -1 - bucketOrd;
+                    }
+                    incrementBucketDocCount(bucketOrd, Math.toIntExact(count));
+                }
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public void collectDebugInfo(BiConsumer<String, Long> add) {
+        add.accept("segments_counted_from_points", segmentsCountedFromPoints);
+        add.accept("segments_collected", segmentsCollected);
+    }
+
     @Override
     public InternalAggregation buildAggregation(long owningBucketOrdinal) throws IOException {
         assert owningBucketOrdinal == 0;
@@ -19,10 +19,15 @@
 
 package org.elasticsearch.search.aggregations.bucket.histogram;
 
+import org.apache.lucene.document.LongPoint;
+import org.apache.lucene.index.IndexOptions;
 import org.elasticsearch.common.Rounding;
+import org.elasticsearch.index.mapper.DateFieldMapper;
+import org.elasticsearch.index.mapper.MappedFieldType;
 import org.elasticsearch.search.aggregations.Aggregator;
 import org.elasticsearch.search.aggregations.AggregatorFactories;
 import org.elasticsearch.search.aggregations.AggregatorFactory;
+import org.elasticsearch.search.aggregations.bucket.PointRangeCounter;
 import org.elasticsearch.search.aggregations.pipeline.PipelineAggregator;
 import org.elasticsearch.search.aggregations.BucketOrder;
 import org.elasticsearch.search.aggregations.support.ValuesSource;
@@ -76,8 +81,40 @@ public final class DateHistogramAggregatorFactory
 
     private Aggregator createAggregator(ValuesSource.Numeric valuesSource, Aggregator parent, List<PipelineAggregator> pipelineAggregators,
             Map<String, Object> metaData) throws IOException {
+        final long[] pointBounds = valuesSource == null ? null : pointBoundsOrNull(parent);
         return new DateHistogramAggregator(name, factories, rounding, shardRounding, offset, order, keyed, minDocCount, extendedBounds,
-                valuesSource, config.format(), context, parent, pipelineAggregators, metaData);
+                valuesSource, pointBounds == null ? null : config.fieldContext().field(), pointBounds, config.format(), context, parent,
+                pipelineAggregators, metaData);
+    }
+
+    /**
+     * Returns the range of dates that the query restricts the field to if the buckets can be counted from the points of the field
+     * instead of by rounding the date of every matching document, or <code>null</code> otherwise. This is only the case for top
+     * level histograms without sub-aggregations on a date field that is indexed, when the query is a match_all query or a range
+     * query on the same field.
+     */
+    private long[] pointBoundsOrNull(Aggregator parent) {
+        if (parent != null || factories.countAggregators() > 0) {
+            return null;
+        }
+        if (config.fieldContext() == null || config.script() != null || config.missing() != null) {
+            return null;
+        }
+        final MappedFieldType fieldType = config.fieldContext().fieldType();
+        if (fieldType == null || fieldType.getClass() != DateFieldMapper.DateFieldType.class
+                || ((DateFieldMapper.DateFieldType) fieldType).resolution() != DateFieldMapper.Resolution.MILLISECONDS
+                || fieldType.indexOptions() == IndexOptions.NONE) {
+            return null;
+        }
+        // these filter the documents that are collected beyond what the query matches
+        if (context.minimumScore() != null || context.terminateAfter() != SearchContext.DEFAULT_TERMINATE_AFTER) {
+            return null;
+        }
+        final byte[][] bounds = PointRangeCounter.queryBounds(context.query(), config.fieldContext().field(), Long.BYTES);
+        if (bounds == null) {
+            return null;
+        }
+        return new long[] { LongPoint.decodeDimension(bounds[0], 0), LongPoint.decodeDimension(bounds[1], 0) };
     }
 
     @Override
@@ -60,8 +60,9 @@ public class AbstractRangeAggregatorFactory<AF extends AbstractRangeAggregatorFa
     @Override
     protected Aggregator doCreateInternal(ValuesSource.Numeric valuesSource, Aggregator parent, boolean collectsFromSingleBucket,
             List<PipelineAggregator> pipelineAggregators, Map<String, Object> metaData) throws IOException {
-        return new RangeAggregator(name, factories, valuesSource, config.format(), rangeFactory, ranges, keyed, context, parent,
-                pipelineAggregators, metaData);
+        final PointRanges pointRanges = PointRanges.forNumericRanges(config, ranges, context, parent, factories);
+        return new RangeAggregator(name, factories, valuesSource, config.format(), rangeFactory, ranges, keyed, pointRanges, context,
+                parent, pipelineAggregators, metaData);
     }
 
 
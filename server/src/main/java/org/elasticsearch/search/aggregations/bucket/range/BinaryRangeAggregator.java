@@ -20,8 +20,10 @@ package org.elasticsearch.search.aggregations.bucket.range;
 
 import org.apache.lucene.index.LeafReaderContext;
 import org.apache.lucene.index.SortedSetDocValues;
+import org.apache.lucene.search.CollectionTerminatedException;
 import org.apache.lucene.search.ScoreMode;
 import org.apache.lucene.util.BytesRef;
+import org.elasticsearch.common.Nullable;
 import org.elasticsearch.index.fielddata.SortedBinaryDocValues;
 import org.elasticsearch.search.DocValueFormat;
 import org.elasticsearch.search.aggregations.Aggregator;
@@ -40,6 +42,7 @@ import java.util.Arrays;
 import java.util.Comparator;
 import java.util.List;
 import java.util.Map;
+import java.util.function.BiConsumer;
 
 import static java.util.Collections.emptyList;
 
@@ -76,19 +79,33 @@ public final class BinaryRangeAggregator extends BucketsAggregator {
     final DocValueFormat format;
     final boolean keyed;
     final Range[] ranges;
+    @Nullable
+    private final PointRanges pointRanges;
 
     public BinaryRangeAggregator(String name, AggregatorFactories factories,
             ValuesSource.Bytes valuesSource, DocValueFormat format,
             List<Range> ranges, boolean keyed, SearchContext context,
             Aggregator parent, List<PipelineAggregator> pipelineAggregators,
             Map<String, Object> metaData) throws IOException {
+        this(name, factories, valuesSource, format, ranges, keyed, null, context, parent, pipelineAggregators, metaData);
+    }
+
+    /**
+     * @param pointRanges the ranges as bounds of the points of the field, must be built from the ranges sorted with
+     *                    {@link #RANGE_COMPARATOR} since the aggregator uses this order for its buckets
+     */
+    BinaryRangeAggregator(String name, AggregatorFactories factories,
+            ValuesSource.Bytes valuesSource, DocValueFormat format,
+            List<Range> ranges, boolean keyed, @Nullable PointRanges pointRanges, SearchContext context,
+            Aggregator parent, List<PipelineAggregator> pipelineAggregators,
+            Map<String, Object> metaData) throws IOException {
         super(name, factories, context, parent, pipelineAggregators, metaData);
         this.valuesSource = valuesSource;
         this.format = format;
         this.keyed = keyed;
         this.ranges = ranges.toArray(new Range[0]);
         Arrays.sort(this.ranges, RANGE_COMPARATOR);
-
+        this.pointRanges = pointRanges;
     }
 
     @Override
@@ -104,6 +121,15 @@ public final class BinaryRangeAggregator extends BucketsAggregator {
         if (valuesSource == null) {
             return LeafBucketCollector.NO_OP_COLLECTOR;
         }
+        if (pointRanges != null && pointRanges.aggregateFromPoints(ctx.reader(),
+                (range, docCount) -> incrementBucketDocCount(range, Math.toIntExact(docCount)))) {
+            if (parent == null) {
+                // we don't need to collect hits on this segment.
+                throw new CollectionTerminatedException();
+            }
+            // terminating would also terminate the collection of the parent aggregator
+            return LeafBucketCollector.NO_OP_COLLECTOR;
+        }
         if (valuesSource instanceof ValuesSource.Bytes.WithOrdinals) {
             SortedSetDocValues values = ((ValuesSource.Bytes.WithOrdinals) valuesSource).ordinalsValues(ctx);
             return new SortedSetRangeLeafCollector(values, ranges, sub) {
@@ -327,6 +353,13 @@ public final class BinaryRangeAggregator extends BucketsAggregator {
         protected abstract void doCollect(LeafBucketCollector sub, int doc, long bucket) throws IOException;
     }
 
+    @Override
+    public void collectDebugInfo(BiConsumer<String, Long> add) {
+        if (pointRanges != null) {
+            pointRanges.collectDebugInfo(add);
+        }
+    }
+
     @Override
     public InternalAggregation buildAggregation(long bucket) throws IOException {
         consumeBucketsAndMaybeBreak(ranges.length);
@@ -28,6 +28,7 @@ import org.elasticsearch.search.aggregations.support.ValuesSourceConfig;
 import org.elasticsearch.search.internal.SearchContext;
 
 import java.io.IOException;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
 
@@ -62,8 +63,12 @@ public class BinaryRangeAggregatorFactory
             boolean collectsFromSingleBucket,
             List<PipelineAggregator> pipelineAggregators,
             Map<String, Object> metaData) throws IOException {
+        // the aggregator sorts its ranges, the bounds of the points must be in the same order
+        final List<BinaryRangeAggregator.Range> sortedRanges = new ArrayList<>(ranges);
+        sortedRanges.sort(BinaryRangeAggregator.RANGE_COMPARATOR);
+        final PointRanges pointRanges = PointRanges.forBinaryRanges(config, sortedRanges, context, parent, factories);
         return new BinaryRangeAggregator(name, factories, valuesSource, config.format(),
-                ranges, keyed, context, parent, pipelineAggregators, metaData);
+                sortedRanges, keyed, pointRanges, context, parent, pipelineAggregators, metaData);
     }
 
 }
@@ -0,0 +1,295 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.search.aggregations.bucket.range;
+
+import org.apache.lucene.document.DoublePoint;
+import org.apache.lucene.document.InetAddressPoint;
+import org.apache.lucene.document.IntPoint;
+import org.apache.lucene.document.LongPoint;
+import org.apache.lucene.index.IndexOptions;
+import org.apache.lucene.index.LeafReader;
+import org.apache.lucene.index.PointValues;
+import org.apache.lucene.util.BytesRef;
+import org.elasticsearch.common.Nullable;
+import org.elasticsearch.index.mapper.DateFieldMapper;
+import org.elasticsearch.index.mapper.IpFieldMapper;
+import org.elasticsearch.index.mapper.MappedFieldType;
+import org.elasticsearch.index.mapper.NumberFieldMapper;
+import org.elasticsearch.search.aggregations.Aggregator;
+import org.elasticsearch.search.aggregations.AggregatorFactories;
+import org.elasticsearch.search.aggregations.bucket.PointRangeCounter;
+import org.elasticsearch.search.aggregations.support.ValuesSource;
+import org.elasticsearch.search.aggregations.support.ValuesSourceConfig;
+import org.elasticsearch.search.internal.SearchContext;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.BiConsumer;
+
+/**
+ * The ranges of a range aggregator expressed as inclusive bounds of the points of its field. Segments whose values are all
+ * outside of the ranges are skipped without being collected. The documents of top level range aggregators without
+ * sub-aggregations are also counted from the points rather than by collecting every document, if the query is a match_all
+ * query or a range query on the same field, see {@link PointRangeCounter}.
+ */
+final class PointRanges {
+
+    private static final double MAX_EXACT_LONG = 1L << 53;
+
+    private final String field;
+    // the inclusive bounds of every range, null for ranges that can't match any value
+    private final byte[][] lowers;
+    private final byte[][] uppers;
+    @Nullable
+    private final byte[][] queryBounds;
+
+    private long segmentsSkipped;
+    private long segmentsCountedFromPoints;
+    private long segmentsCollected;
+
+    private PointRanges(String field, byte[][] lowers, byte[][] uppers, @Nullable byte[][] queryBounds) {
+        this.field = field;
+        this.lowers = lowers;
+        this.uppers = uppers;
+        this.queryBounds = queryBounds;
+    }
+
+    /**
+     * Returns the points ranges of a numeric range aggregator, or <code>null</code> if its field doesn't have points that
+     * match the doc values that the aggregator collects.
+     */
+    @Nullable
+    static PointRanges forNumericRanges(ValuesSourceConfig<ValuesSource.Numeric> config, RangeAggregator.Range[] ranges,
+                                        SearchContext context, Aggregator parent, AggregatorFactories factories) {
+        final MappedFieldType fieldType = pointFieldType(config);
+        if (fieldType == null) {
+            return null;
+        }
+        final boolean isDouble;
+        final long minValue;
+        final long maxValue;
+        if ((fieldType.getClass() == DateFieldMapper.DateFieldType.class
+                && ((DateFieldMapper.DateFieldType) fieldType).resolution() == DateFieldMapper.Resolution.MILLISECONDS)
+                || isNumberType(fieldType, NumberFieldMapper.NumberType.LONG)) {
+            isDouble = false;
+            minValue = Long.MIN_VALUE;
+            maxValue = Long.MAX_VALUE;
+        } else if (isNumberType(fieldType, NumberFieldMapper.NumberType.INTEGER)
+                || isNumberType(fieldType, NumberFieldMapper.NumberType.SHORT)
+                || isNumberType(fieldType, NumberFieldMapper.NumberType.BYTE)) {
+            isDouble = false;
+            minValue = Integer.MIN_VALUE;
+            maxValue = Integer.MAX_VALUE;
+        } else if (isNumberType(fieldType, NumberFieldMapper.NumberType.DOUBLE)) {
+            isDouble = true;
+            minValue = maxValue = 0;
+        } else {
+            return null;
+        }
+        final int bytesPerDim = isDouble || maxValue == Long.MAX_VALUE ? Long.BYTES : Integer.BYTES;
+        final byte[][] lowers = new byte[ranges.length][];
+        final byte[][] uppers = new byte[ranges.length][];
+        for (int i = 0; i < ranges.length; i++) {
+            // the aggregator compares values as doubles: from <= value < to
+            final double from = ranges[i].from;
+            final double to = ranges[i].to;
+            if ((from < to) == false) {
+                continue;
+            }
+            if (isDouble) {
+                lowers[i] = new byte[bytesPerDim];
+                uppers[i] = new byte[bytesPerDim];
+                // -0.0 is sorted before 0.0 in points but equal to it as a double
+                DoublePoint.encodeDimension(from == 0 ? -0.0 : from, lowers[i], 0);
+                DoublePoint.encodeDimension(Math.nextDown(to), uppers[i], 0);
+                continue;
+            }
+            if (maxValue == Long.MAX_VALUE && (isInexact(from) || isInexact(to))) {
+                // longs that are converted to doubles lose precision, the doc values could be in different ranges than the points
+                return null;
+            }
+            final double lower = Math.max(Math.ceil(from), minValue);
+            final double upper = Math.min(Math.ceil(to) - 1, maxValue);
+            if (lower > upper) {
+                continue;
+            }
+            lowers[i] = new byte[bytesPerDim];
+            uppers[i] = new byte[bytesPerDim];
+            if (bytesPerDim == Long.BYTES) {
+                LongPoint.encodeDimension((long) lower, lowers[i], 0);
+                LongPoint.encodeDimension((long) upper, uppers[i], 0);
+            } else {
+                IntPoint.encodeDimension((int) lower, lowers[i], 0);
+                IntPoint.encodeDimension((int) upper, uppers[i], 0);
+            }
+        }
+        return new PointRanges(config.fieldContext().field(), lowers, uppers,
+            queryBounds(config, bytesPerDim, context, parent, factories));
+    }
+
+    /**
+     * Returns the points ranges of an ip range aggregator, or <code>null</code> if its field doesn't have points that match
+     * the doc values that the aggregator collects.
+     */
+    @Nullable
+    static PointRanges forBinaryRanges(ValuesSourceConfig<ValuesSource.Bytes> config, List<BinaryRangeAggregator.Range> ranges,
+                                       SearchContext context, Aggregator parent, AggregatorFactories factories) {
+        final MappedFieldType fieldType = pointFieldType(config);
+        if (fieldType == null || fieldType.getClass() != IpFieldMapper.IpFieldType.class) {
+            return null;
+        }
+        final int bytesPerDim = InetAddressPoint.BYTES;
+        final byte[][] lowers = new byte[ranges.size()][];
+        final byte[][] uppers = new byte[ranges.size()][];
+        for (int i = 0; i < ranges.size(); i++) {
+            final BinaryRangeAggregator.Range range = ranges.get(i);
+            final byte[] lower = range.from == null ? new byte[bytesPerDim] : bytes(range.from);
+            final byte[] upper;
+            if (range.to == null) {
+                upper = new byte[bytesPerDim];
+                Arrays.fill(upper, (byte) 0xFF);
+            } else {
+                upper = bytes(range.to);
+            }
+            if (lower == null || upper == null) {
+                return null;
+            }
+            // the upper bound is exclusive
+            if (range.to != null && decrement(upper) == false) {
+                continue;
+            }
+            lowers[i] = lower;
+            uppers[i] = upper;
+        }
+        return new PointRanges(config.fieldContext().field(), lowers, uppers,
+            queryBounds(config, bytesPerDim, context, parent, factories));
+    }
+
+    private static MappedFieldType pointFieldType(ValuesSourceConfig<?> config) {
+        if (config.fieldContext() == null || config.script() != null || config.missing() != null) {
+            return null;
+        }
+        final MappedFieldType fieldType = config.fieldContext().fieldType();
+        if (fieldType == null || fieldType.indexOptions() == IndexOptions.NONE) {
+            return null;
+        }
+        return fieldType;
+    }
+
+    private static boolean isNumberType(MappedFieldType fieldType, NumberFieldMapper.NumberType type) {
+        return fieldType instanceof NumberFieldMapper.NumberFieldType && fieldType.typeName().equals(type.typeName());
+    }
+
+    private static boolean isInexact(double value) {
+        return Double.isInfinite(value) == false && Math.abs(value) > MAX_EXACT_LONG;
+    }
+
+    private static byte[] bytes(BytesRef bytesRef) {
+        if (bytesRef.length != InetAddressPoint.BYTES) {
+            return null;
+        }
+        return Arrays.copyOfRange(bytesRef.bytes, bytesRef.offset, bytesRef.offset + bytesRef.length);
+    }
+
+    /**
+     * Decrements the given unsigned value, returns <code>false</code> if it is already the smallest value.
+     */
+    private static boolean decrement(byte[] value) {
+        for (int i = value.length - 1; i >= 0; i--) {
+            if (value[i] != 0) {
+                value[i]--;
+                Arrays.fill(value, i + 1, value.length, (byte) 0xFF);
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * The documents of the ranges can only be counted from the points if the aggregator collects every document that matches the
+     * query exactly once, and if the query selects documents based on the values of the field only.
+     */
+    @Nullable
+    private static byte[][] queryBounds(ValuesSourceConfig<?> config, int bytesPerDim, SearchContext context, Aggregator parent,
+                                        AggregatorFactories factories) {
+        if (parent != null || factories.countAggregators() > 0) {
+            return null;
+        }
+        if (context.minimumScore() != null || context.terminateAfter() != SearchContext.DEFAULT_TERMINATE_AFTER) {
+            return null;
+        }
+        return PointRangeCounter.queryBounds(context.query(), config.fieldContext().field(), bytesPerDim);
+    }
+
+    /**
+     * Aggregates the segment from the points of the field if possible.
+     *
+     * @param counts receives the number of documents of every range if they were counted from the points
+     * @return <code>true</code> if the segment doesn't need to be collected, either because none of its values is in a range or
+     *         because the documents of the ranges have been counted
+     */
+    boolean aggregateFromPoints(LeafReader reader, RangeCounts counts) throws IOException {
+        final PointValues values = reader.getPointValues(field);
+        if (values == null) {
+            if (reader.getFieldInfos().fieldInfo(field) == null) {
+                // no document of this segment has a value for the field
+                segmentsSkipped++;
+                return true;
+            }
+            segmentsCollected++;
+            return false;
+        }
+        boolean intersects = false;
+        for (int i = 0; i < lowers.length && intersects == false; i++) {
+            intersects = lowers[i] != null && PointRangeCounter.intersects(values, lowers[i], uppers[i]);
+        }
+        if (intersects == false) {
+            segmentsSkipped++;
+            return true;
+        }
+        if (queryBounds != null && PointRangeCounter.getPointValuesOrNull(reader, field) != null) {
+            for (int i = 0; i < lowers.length; i++) {
+                if (lowers[i] != null) {
+                    final long count = PointRangeCounter.count(values, PointRangeCounter.max(lowers[i], queryBounds[0]),
+                        PointRangeCounter.min(uppers[i], queryBounds[1]));
+                    if (count > 0) {
+                        counts.add(i, count);
+                    }
+                }
+            }
+            segmentsCountedFromPoints++;
+            return true;
+        }
+        segmentsCollected++;
+        return false;
+    }
+
+    void collectDebugInfo(BiConsumer<String, Long> add) {
+        add.accept("segments_skipped", segmentsSkipped);
+        add.accept("segments_counted_from_points", segmentsCountedFromPoints);
+        add.accept("segments_collected", segmentsCollected);
+    }
+
+    @FunctionalInterface
+    interface RangeCounts {
+        void add(int range, long docCount);
+    }
+}
@@ -19,7 +19,9 @@
 package org.elasticsearch.search.aggregations.bucket.range;
 
 import org.apache.lucene.index.LeafReaderContext;
+import org.apache.lucene.search.CollectionTerminatedException;
 import org.apache.lucene.search.ScoreMode;
+import org.elasticsearch.common.Nullable;
 import org.elasticsearch.common.ParseField;
 import org.elasticsearch.common.io.stream.StreamInput;
 import org.elasticsearch.common.io.stream.StreamOutput;
@@ -47,6 +49,7 @@ import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
+import java.util.function.BiConsumer;
 
 public class RangeAggregator extends BucketsAggregator {
 
@@ -225,9 +228,18 @@ public class RangeAggregator extends BucketsAggregator {
 
     final double[] maxTo;
 
+    @Nullable
+    private final PointRanges pointRanges;
+
     public RangeAggregator(String name, AggregatorFactories factories, ValuesSource.Numeric valuesSource, DocValueFormat format,
             InternalRange.Factory rangeFactory, Range[] ranges, boolean keyed, SearchContext context,
             Aggregator parent, List<PipelineAggregator> pipelineAggregators, Map<String, Object> metaData) throws IOException {
+        this(name, factories, valuesSource, format, rangeFactory, ranges, keyed, null, context, parent, pipelineAggregators, metaData);
+    }
+
+    RangeAggregator(String name, AggregatorFactories factories, ValuesSource.Numeric valuesSource, DocValueFormat format,
+            InternalRange.Factory rangeFactory, Range[] ranges, boolean keyed, @Nullable PointRanges pointRanges, SearchContext context,
+            Aggregator parent, List<PipelineAggregator> pipelineAggregators, Map<String, Object> metaData) throws IOException {
 
         super(name, factories, context, parent, pipelineAggregators, metaData);
         assert valuesSource != null;
@@ -235,6 +247,7 @@ public class RangeAggregator extends BucketsAggregator {
         this.format = format;
         this.keyed = keyed;
         this.rangeFactory = rangeFactory;
+        this.pointRanges = pointRanges;
 
         this.ranges = ranges;
 
@@ -257,6 +270,15 @@ public class RangeAggregator extends BucketsAggregator {
     @Override
     public LeafBucketCollector getLeafCollector(LeafReaderContext ctx,
             final LeafBucketCollector sub) throws IOException {
+        if (pointRanges != null && pointRanges.aggregateFromPoints(ctx.reader(),
+                (range, docCount) -> incrementBucketDocCount(range, Math.toIntExact(docCount)))) {
+            if (parent == null) {
+                // we don't need to collect hits on this segment.
+                throw new CollectionTerminatedException();
+            }
+            // terminating would also terminate the collection of the parent aggregator
+            return LeafBucketCollector.NO_OP_COLLECTOR;
+        }
         final SortedNumericDoubleValues values = valuesSource.doubleValues(ctx);
         return new LeafBucketCollectorBase(sub, values) {
             @Override
@@ -321,6 +343,13 @@ public class RangeAggregator extends BucketsAggregator {
         };
     }
 
+    @Override
+    public void collectDebugInfo(BiConsumer<String, Long> add) {
+        if (pointRanges != null) {
+            pointRanges.collectDebugInfo(add);
+        }
+    }
+
     private long subBucketOrdinal(long owningBucketOrdinal, int rangeOrd) {
         return owningBucketOrdinal * ranges.length + rangeOrd;
     }
@@ -49,6 +49,7 @@ import java.io.IOException;
 import java.util.Arrays;
 import java.util.List;
 import java.util.Map;
+import java.util.function.BiConsumer;
 import java.util.function.LongUnaryOperator;
 
 import static org.apache.lucene.index.SortedSetDocValues.NO_MORE_ORDS;
@@ -121,7 +122,7 @@ public class GlobalOrdinalsStringTermsAggregator extends AbstractStringTermsAggr
         }
     }
 
-    private SortedSetDocValues getGlobalOrds(LeafReaderContext ctx) throws IOException {
+    protected SortedSetDocValues getGlobalOrds(LeafReaderContext ctx) throws IOException {
         return acceptedGlobalOrdinals == null ?
             valuesSource.globalOrdinalsValues(ctx) : new FilteredOrdinals(valuesSource.globalOrdinalsValues(ctx), acceptedGlobalOrdinals);
     }
@@ -185,12 +186,13 @@ public class GlobalOrdinalsStringTermsAggregator extends AbstractStringTermsAggr
         BucketPriorityQueue<OrdBucket> ordered = new BucketPriorityQueue<>(size, order.comparator(this));
         OrdBucket spare = new OrdBucket(-1, 0, null, showTermDocCountError, 0);
         final boolean needsFullScan = bucketOrds == null || bucketCountThresholds.getMinDocCount() == 0;
+        final long bucketOrdOffset = bucketOrdOffset(owningBucketOrdinal);
         final long maxId = needsFullScan ? valueCount : bucketOrds.size();
         for (long ord = 0; ord < maxId; ord++) {
             final long globalOrd;
             final long bucketOrd;
             if (needsFullScan) {
-                bucketOrd = bucketOrds == null ? ord : bucketOrds.find(ord);
+                bucketOrd = bucketOrds == null ? bucketOrdOffset + ord : bucketOrds.find(ord);
                 globalOrd = ord;
             } else {
                 assert bucketOrds != null;
@@ -244,6 +246,23 @@ public class GlobalOrdinalsStringTermsAggregator extends AbstractStringTermsAggr
                 otherDocCount, Arrays.asList(list), 0);
     }
 
+    /**
+     * Returns the bucket ordinal of the first global ordinal of the given owning bucket, if global ordinals are used as bucket
+     * ordinals directly.
+     */
+    protected long bucketOrdOffset(long owningBucketOrdinal) {
+        assert owningBucketOrdinal == 0;
+        return 0;
+    }
+
+    @Override
+    public void collectDebugInfo(BiConsumer<String, Long> add) {
+        add.accept("global_ords_value_count", valueCount);
+        add.accept("remap_global_ords", remapGlobalOrds() ? 1L : 0L);
+        add.accept("segment_ords", 0L);
+        add.accept("dense_ords", 0L);
+    }
+
     /**
      * This is used internally only, just for compare using global ordinal instead of term bytes in the PQ
      */
@@ -375,6 +394,12 @@ public class GlobalOrdinalsStringTermsAggregator extends AbstractStringTermsAggr
             Releasables.close(segmentDocCounts);
         }
 
+        @Override
+        public void collectDebugInfo(BiConsumer<String, Long> add) {
+            super.collectDebugInfo(add);
+            add.accept("segment_ords", 1L);
+        }
+
         private void mapSegmentCountsToGlobalCounts(LongUnaryOperator mapping) throws IOException {
             for (long i = 1; i < segmentDocCounts.size(); i++) {
                 // We use set(...) here, because we need to reset the slow to 0.
@@ -391,6 +416,73 @@ public class GlobalOrdinalsStringTermsAggregator extends AbstractStringTermsAggr
         }
     }
 
+    /**
+     * Variant of {@link GlobalOrdinalsStringTermsAggregator} that collects from several owning buckets without creating one
+     * aggregator per owning bucket. Documents are counted in a dense array of <code>owning buckets * global ordinals</code>
+     * counts, so collecting a value is an array increment rather than a hash lookup of the global ordinal. The array grows with
+     * the number of owning buckets, so this is only used for low cardinality fields and without sub-aggregators.
+     */
+    static class DenseOrds extends GlobalOrdinalsStringTermsAggregator {
+
+        DenseOrds(String name,
+                  AggregatorFactories factories,
+                  ValuesSource.Bytes.WithOrdinals valuesSource,
+                  BucketOrder order,
+                  DocValueFormat format,
+                  BucketCountThresholds bucketCountThresholds,
+                  IncludeExclude.OrdinalsFilter includeExclude,
+                  SearchContext context,
+                  Aggregator parent,
+                  SubAggCollectionMode collectionMode,
+                  boolean showTermDocCountError,
+                  List<PipelineAggregator> pipelineAggregators,
+                  Map<String, Object> metaData) throws IOException {
+            super(name, factories, valuesSource, order, format, bucketCountThresholds, includeExclude,
+                context, parent, false, collectionMode, showTermDocCountError, pipelineAggregators, metaData);
+            assert factories == null || factories.countAggregators() == 0;
+        }
+
+        @Override
+        public LeafBucketCollector getLeafCollector(LeafReaderContext ctx, final LeafBucketCollector sub) throws IOException {
+            final SortedSetDocValues globalOrds = getGlobalOrds(ctx);
+            assert sub == LeafBucketCollector.NO_OP_COLLECTOR;
+            final SortedDocValues singleValues = DocValues.unwrapSingleton(globalOrds);
+            if (singleValues != null) {
+                return new LeafBucketCollectorBase(sub, globalOrds) {
+                    @Override
+                    public void collect(int doc, long bucket) throws IOException {
+                        if (singleValues.advanceExact(doc)) {
+                            collectBucket(sub, doc, bucketOrdOffset(bucket) + singleValues.ordValue());
+                        }
+                    }
+                };
+            } else {
+                return new LeafBucketCollectorBase(sub, globalOrds) {
+                    @Override
+                    public void collect(int doc, long bucket) throws IOException {
+                        if (globalOrds.advanceExact(doc)) {
+                            final long bucketOrdOffset = bucketOrdOffset(bucket);
+                            for (long globalOrd = globalOrds.nextOrd(); globalOrd != NO_MORE_ORDS; globalOrd = globalOrds.nextOrd()) {
+                                collectBucket(sub, doc, bucketOrdOffset + globalOrd);
+                            }
+                        }
+                    }
+                };
+            }
+        }
+
+        @Override
+        protected long bucketOrdOffset(long owningBucketOrdinal) {
+            return owningBucketOrdinal * valueCount;
+        }
+
+        @Override
+        public void collectDebugInfo(BiConsumer<String, Long> add) {
+            super.collectDebugInfo(add);
+            add.accept("dense_ords", 1L);
+        }
+    }
+
     private static final class FilteredOrdinals extends AbstractSortedSetDocValues {
 
         private final SortedSetDocValues inner;
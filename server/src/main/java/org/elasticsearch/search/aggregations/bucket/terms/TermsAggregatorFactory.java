@@ -49,7 +49,13 @@ import java.util.Map;
 public class TermsAggregatorFactory extends ValuesSourceAggregatorFactory<ValuesSource, TermsAggregatorFactory> {
     private static final DeprecationLogger deprecationLogger = new DeprecationLogger(LogManager.getLogger(TermsAggregatorFactory.class));
 
-    static Boolean REMAP_GLOBAL_ORDS, COLLECT_SEGMENT_ORDS;
+    static Boolean REMAP_GLOBAL_ORDS, COLLECT_SEGMENT_ORDS, DENSE_ORDS;
+
+    /**
+     * The maximum number of global ordinals of fields that are aggregated in a dense array of counts per owning bucket, see
+     * {@link GlobalOrdinalsStringTermsAggregator.DenseOrds}. This costs 4KB of counts per owning bucket at most.
+     */
+    static final long DENSE_ORDS_MAX_ORD = 1024;
 
     private final BucketOrder order;
     private final IncludeExclude includeExclude;
@@ -112,7 +118,8 @@ public class TermsAggregatorFactory extends ValuesSourceAggregatorFactory<Values
     @Override
     protected Aggregator doCreateInternal(ValuesSource valuesSource, Aggregator parent, boolean collectsFromSingleBucket,
             List<PipelineAggregator> pipelineAggregators, Map<String, Object> metaData) throws IOException {
-        if (collectsFromSingleBucket == false) {
+        final boolean denseOrds = collectsFromSingleBucket == false && useDenseOrds(valuesSource);
+        if (collectsFromSingleBucket == false && denseOrds == false) {
             return asMultiBucketAggregator(this, context, parent);
         }
         BucketCountThresholds bucketCountThresholds = new BucketCountThresholds(this.bucketCountThresholds);
@@ -152,6 +159,12 @@ public class TermsAggregatorFactory extends ValuesSourceAggregatorFactory<Values
                         + "include/exclude clauses");
             }
 
+            if (denseOrds) {
+                final IncludeExclude.OrdinalsFilter filter = includeExclude == null ? null : includeExclude.convertToOrdinalsFilter(format);
+                return new GlobalOrdinalsStringTermsAggregator.DenseOrds(name, factories, (ValuesSource.Bytes.WithOrdinals) valuesSource,
+                        order, format, bucketCountThresholds, filter, context, parent, cm, showTermDocCountError, pipelineAggregators,
+                        metaData);
+            }
             return execution.create(name, factories, valuesSource, order, format, bucketCountThresholds, includeExclude, context, parent,
                     cm, showTermDocCountError, pipelineAggregators, metaData);
         }
@@ -192,6 +205,23 @@ public class TermsAggregatorFactory extends ValuesSourceAggregatorFactory<Values
                 + "]. It can only be applied to numeric or string fields.");
     }
 
+    /**
+     * Whether an aggregator that collects from several owning buckets should count documents in a dense array of global ordinals
+     * per owning bucket, rather than being wrapped in one aggregator per owning bucket that each remap global ordinals to buckets.
+     */
+    private boolean useDenseOrds(ValuesSource valuesSource) throws IOException {
+        if (valuesSource instanceof ValuesSource.Bytes.WithOrdinals == false
+                || (executionHint != null && ExecutionMode.fromString(executionHint, deprecationLogger) != ExecutionMode.GLOBAL_ORDINALS)
+                || factories != AggregatorFactories.EMPTY) {
+            return false;
+        }
+        if (DENSE_ORDS != null) {
+            // we use the static DENSE_ORDS to allow tests to force specific optimizations
+            return DENSE_ORDS.booleanValue();
+        }
+        return getMaxOrd(valuesSource, context.searcher()) <= DENSE_ORDS_MAX_ORD;
+    }
+
     // return the SubAggCollectionMode that this aggregation should use based on the expected size
     // and the cardinality of the field
     static SubAggCollectionMode subAggCollectionMode(int expectedSize, long maxOrd) {
@@ -19,21 +19,22 @@
 
 package org.elasticsearch.search.aggregations.metrics;
 
-import org.apache.lucene.util.BytesRef;
+import com.carrotsearch.hppc.BitMixer;
+import org.apache.lucene.util.BitUtil;
 import org.apache.lucene.util.LongBitSet;
 import org.apache.lucene.util.packed.PackedInts;
+import org.elasticsearch.Version;
 import org.elasticsearch.common.io.stream.StreamInput;
 import org.elasticsearch.common.io.stream.StreamOutput;
 import org.elasticsearch.common.lease.Releasable;
 import org.elasticsearch.common.lease.Releasables;
 import org.elasticsearch.common.util.BigArrays;
 import org.elasticsearch.common.util.ByteArray;
-import org.elasticsearch.common.util.ByteUtils;
 import org.elasticsearch.common.util.IntArray;
+import org.elasticsearch.common.util.ObjectArray;
 
 import java.io.IOException;
-import java.nio.ByteBuffer;
-import java.nio.ByteOrder;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Map;
@@ -45,8 +46,12 @@ import java.util.Set;
  * http://static.googleusercontent.com/media/research.google.com/fr//pubs/archive/40671.pdf and its appendix
  * https://docs.google.com/document/d/1gyjfMHy43U9OWBXxfaeG-3MjGzejW1dlpyMwEYAAWEI/view?fullscreen
  *
- * This implementation is different from the original implementation in that it uses a hash table instead of a sorted list for linear
- * counting. Although this requires more space and makes hyperloglog (which is less accurate) used sooner, this is also considerably faster.
+ * Like in the original implementation, buckets start with a sparse representation for linear counting: a sorted list of encoded
+ * hashes that are delta encoded as variable length integers. New hashes are buffered in a small hash table before they are merged
+ * into the list, which makes collection considerably faster. Buckets are upgraded to hyperloglog, and only then allocate registers,
+ * once they hold as many hashes as a hash table that would fit into the registers could hold. This makes hyperloglog (which is less
+ * accurate) used sooner than in the original implementation, but bounds the memory usage of linear counting by the size of the
+ * registers.
  *
  * Trying to understand what this class does without having read the paper is considered adventurous.
  */
@@ -60,6 +65,7 @@ public final class HyperLogLogPlusPlus implements Releasable {
     private static final float MAX_LOAD_FACTOR = 0.75f;
     private static final int P2 = 25;
     private static final int BIAS_K = 6;
+    private static final int MIN_BUFFER_CAPACITY = 4;
 
     /**
      * Compute the required precision so that <code>count</code> distinct entries would be counted with linear counting.
@@ -753,8 +759,12 @@ public final class HyperLogLogPlusPlus implements Releasable {
 
     private final BigArrays bigArrays;
     private final OpenBitSet algorithm;
+    // the registers of the buckets that use hyperloglog, they are only allocated when a bucket is upgraded from linear counting
     private ByteArray runLens;
-    private final Hashset hashSet;
+    // 1 + the slot of the registers of every bucket in runLens, or 0 if the bucket doesn't have registers
+    private IntArray runLensSlots;
+    private int numRunLensSlots;
+    private final SparseSet sparseSet;
     private final int p, m;
     private final double alphaMM;
 
@@ -769,8 +779,9 @@ public final class HyperLogLogPlusPlus implements Releasable {
         m = 1 << p;
         this.bigArrays = bigArrays;
         algorithm = new OpenBitSet();
-        runLens = bigArrays.newByteArray(initialBucketCount << p);
-        hashSet = new Hashset(initialBucketCount);
+        runLens = bigArrays.newByteArray(0);
+        runLensSlots = bigArrays.newIntArray(initialBucketCount);
+        sparseSet = new SparseSet(initialBucketCount);
         final double alpha;
         switch (p) {
         case 4:
@@ -791,11 +802,29 @@ public final class HyperLogLogPlusPlus implements Releasable {
     }
 
     public long maxBucket() {
-        return runLens.size() >>> p;
+        return runLensSlots.size();
     }
 
     private void ensureCapacity(long numBuckets) {
-        runLens = bigArrays.grow(runLens, numBuckets << p);
+        runLensSlots = bigArrays.grow(runLensSlots, numBuckets);
+        sparseSet.ensureCapacity(numBuckets);
+    }
+
+    /**
+     * Return the index of the first register of a bucket that uses hyperloglog.
+     */
+    private long runLensStart(long bucket) {
+        final int slot = runLensSlots.get(bucket);
+        assert slot > 0 : "bucket [" + bucket + "] doesn't use hyperloglog";
+        return ((long) slot - 1) << p;
+    }
+
+    private void allocateRunLens(long bucket) {
+        assert runLensSlots.get(bucket) == 0;
+        final long start = (long) numRunLensSlots << p;
+        runLens = bigArrays.grow(runLens, start + m);
+        runLens.fill(start, start + m, (byte) 0);
+        runLensSlots.set(bucket, ++numRunLensSlots);
     }
 
     public void merge(long thisBucket, HyperLogLogPlusPlus other, long otherBucket) {
@@ -804,7 +833,7 @@ public final class HyperLogLogPlusPlus implements Releasable {
         }
         ensureCapacity(thisBucket + 1);
         if (other.algorithm.get(otherBucket) == LINEAR_COUNTING) {
-            final IntArray values = other.hashSet.values(otherBucket);
+            final IntArray values = other.sparseSet.values(otherBucket);
             try {
                 for (long i = 0; i < values.size(); ++i) {
                     final int encoded = values.get(i);
@@ -821,8 +850,8 @@ public final class HyperLogLogPlusPlus implements Releasable {
             if (algorithm.get(thisBucket) != HYPERLOGLOG) {
                 upgradeToHll(thisBucket);
             }
-            final long thisStart = thisBucket << p;
-            final long otherStart = otherBucket << p;
+            final long thisStart = runLensStart(thisBucket);
+            final long otherStart = other.runLensStart(otherBucket);
             for (int i = 0; i < m; ++i) {
                 runLens.set(thisStart + i, (byte) Math.max(runLens.get(thisStart + i), other.runLens.get(otherStart + i)));
             }
@@ -844,8 +873,9 @@ public final class HyperLogLogPlusPlus implements Releasable {
     }
 
     private void collectLcEncoded(long bucket, int encoded) {
-        final int newSize = hashSet.add(bucket, encoded);
-        if (newSize > hashSet.threshold) {
+        final int newSize = sparseSet.add(bucket, encoded);
+        // the returned size is an upper bound, flush the buffered hashes to know the actual size
+        if (newSize > sparseSet.threshold && sparseSet.flush(bucket) > sparseSet.threshold) {
             upgradeToHll(bucket);
         }
     }
@@ -863,7 +893,7 @@ public final class HyperLogLogPlusPlus implements Releasable {
     }
 
     private void collectHll(long bucket, long index, int runLen) {
-        final long bucketIndex = (bucket << p) + index;
+        final long bucketIndex = runLensStart(bucket) + index;
         runLens.set(bucketIndex, (byte) Math.max(runLen, runLens.get(bucketIndex)));
     }
 
@@ -877,14 +907,14 @@ public final class HyperLogLogPlusPlus implements Releasable {
 
     private long cardinalityLc(long bucket) {
         final long m = 1 << P2;
-        final long v = m - hashSet.size(bucket);
+        final long v = m - sparseSet.size(bucket);
         return linearCounting(m, v);
     }
 
     private long cardinalityHll(long bucket) {
         double inverseSum = 0;
         int zeros = 0;
-        for (long i = bucket << p, end = i + m; i < end; ++i) {
+        for (long i = runLensStart(bucket), end = i + m; i < end; ++i) {
             final int runLen = runLens.get(i);
             inverseSum += 1. / (1L << runLen);
             if (runLen == 0) {
@@ -907,15 +937,17 @@ public final class HyperLogLogPlusPlus implements Releasable {
     }
 
     void upgradeToHll(long bucket) {
+        assert algorithm.get(bucket) == LINEAR_COUNTING;
         ensureCapacity(bucket + 1);
-        final IntArray values = hashSet.values(bucket);
+        final IntArray values = sparseSet.values(bucket);
         try {
-            runLens.fill(bucket << p, (bucket << p) + m, (byte) 0);
+            allocateRunLens(bucket);
             for (long i = 0; i < values.size(); ++i) {
                 final int encoded = values.get(i);
                 collectHllEncoded(bucket, encoded);
             }
             algorithm.set(bucket);
+            sparseSet.clear(bucket);
         } finally {
             Releasables.close(values);
         }
@@ -1011,28 +1043,30 @@ public final class HyperLogLogPlusPlus implements Releasable {
         return RAW_ESTIMATE_DATA[p - 4];
     }
 
+
     private long threshold() {
         return THRESHOLDS[p - 4];
     }
 
     @Override
     public void close() {
-        Releasables.close(runLens, hashSet.sizes);
+        Releasables.close(runLens, runLensSlots, sparseSet);
     }
 
     private Object getComparableData(long bucket) {
         if (algorithm.get(bucket) == LINEAR_COUNTING) {
             Set<Integer> values = new HashSet<>();
-            try (IntArray hashSetValues = hashSet.values(bucket)) {
-                for (long i = 0; i < hashSetValues.size(); i++) {
-                    values.add(hashSetValues.get(i));
+            try (IntArray sparseSetValues = sparseSet.values(bucket)) {
+                for (long i = 0; i < sparseSetValues.size(); i++) {
+                    values.add(sparseSetValues.get(i));
                 }
             }
             return values;
         } else {
             Map<Byte, Integer> values = new HashMap<>();
-            for (long i = 0; i < runLens.size(); i++) {
-                byte runLength = runLens.get((bucket << p) + i);
+            final long start = runLensStart(bucket);
+            for (long i = 0; i < m; i++) {
+                byte runLength = runLens.get(start + i);
                 Integer numOccurances = values.get(runLength);
                 if (numOccurances == null) {
                     values.put(runLength, 1);
@@ -1055,112 +1089,276 @@ public final class HyperLogLogPlusPlus implements Releasable {
     }
 
     /**
-     * We are actually using HyperLogLog's runLens array but interpreting it as a hash set for linear counting.
+     * The sets of encoded hashes of the buckets that use linear counting. The hashes of a bucket are stored sorted and delta encoded
+     * as variable length integers, so that the memory usage of a bucket grows with the number of distinct hashes it holds rather
+     * than being the size of the hyperloglog registers from the start. New hashes are first buffered in a small hash table per
+     * bucket, and merged into the sorted list when the buffer gets full so that adding a hash doesn't rewrite the list every time.
      */
-    private class Hashset {
+    private class SparseSet implements Releasable {
 
-        private final int capacity;
+        // the number of hashes above which a bucket is upgraded to hyperloglog, the same number of hashes as the hash table that
+        // would fit into the hyperloglog registers of the bucket can hold
         private final int threshold;
-        private final int mask;
+        // the number of hashes in the sorted list and the number of bytes that the list uses
         private IntArray sizes;
-        private final BytesRef readSpare;
-        private final ByteBuffer writeSpare;
+        private IntArray lengths;
+        private ObjectArray<ByteArray> lists;
+        // the number of hashes in the buffer and the buffer itself, an open addressing hash table
+        private IntArray bufferSizes;
+        private ObjectArray<IntArray> buffers;
 
-        Hashset(long initialBucketCount) {
-            capacity = m / 4; // because ints take 4 bytes
+        SparseSet(long initialBucketCount) {
+            final int capacity = m / 4; // because ints take 4 bytes
             threshold = (int) (capacity * MAX_LOAD_FACTOR);
-            mask = capacity - 1;
             sizes = bigArrays.newIntArray(initialBucketCount);
-            readSpare = new BytesRef();
-            writeSpare = ByteBuffer.allocate(4).order(ByteOrder.LITTLE_ENDIAN);
-        }
-
-        private long index(long bucket, int index) {
-            return (bucket << p) + (index << 2);
+            lengths = bigArrays.newIntArray(initialBucketCount);
+            lists = bigArrays.newObjectArray(initialBucketCount);
+            bufferSizes = bigArrays.newIntArray(initialBucketCount);
+            buffers = bigArrays.newObjectArray(initialBucketCount);
         }
 
-        private int get(long bucket, int index) {
-            runLens.get(index(bucket, index), 4, readSpare);
-            return ByteUtils.readIntLE(readSpare.bytes, readSpare.offset);
+        void ensureCapacity(long numBuckets) {
+            sizes = bigArrays.grow(sizes, numBuckets);
+            lengths = bigArrays.grow(lengths, numBuckets);
+            lists = bigArrays.grow(lists, numBuckets);
+            bufferSizes = bigArrays.grow(bufferSizes, numBuckets);
+            buffers = bigArrays.grow(buffers, numBuckets);
         }
 
-        private void set(long bucket, int index, int value) {
-            writeSpare.putInt(0, value);
-            runLens.set(index(bucket, index), writeSpare.array(), 0, 4);
+        /**
+         * Add <code>k</code> to the set associated with <code>bucket</code>. Return {@code -1} if the value was already in the set, or an
+         * upper bound of the size of the set otherwise since the value might already be in the sorted list. Once the bound reaches
+         * the threshold, new values are looked up in the sorted list before they are buffered, so that the bound becomes exact
+         * after the next flush and values that are already in the list don't cause the list to be rewritten again and again.
+         */
+        int add(long bucket, int k) {
+            assert k != 0;
+            IntArray buffer = buffers.get(bucket);
+            if (buffer == null) {
+                buffer = bigArrays.newIntArray(MIN_BUFFER_CAPACITY);
+                buffers.set(bucket, buffer);
+            }
+            final int mask = (int) buffer.size() - 1;
+            int slot = BitMixer.mix32(k) & mask;
+            for (;; slot = (slot + 1) & mask) {
+                final int v = buffer.get(slot);
+                if (v == 0) {
+                    // means unused
+                    break;
+                } else if (v == k) {
+                    // k is already in the buffer
+                    return -1;
+                }
+            }
+            if (sizes.get(bucket) + bufferSizes.get(bucket) >= threshold && listContains(bucket, k)) {
+                return -1;
+            }
+            buffer.set(slot, k);
+            final int bufferSize = bufferSizes.increment(bucket, 1);
+            if (bufferSize > buffer.size() * MAX_LOAD_FACTOR) {
+                return flush(bucket);
+            }
+            return sizes.get(bucket) + bufferSize;
         }
 
-        private int recomputedSize(long bucket) {
-            int size = 0;
-            for (int i = 0; i <= mask; ++i) {
-                final int v = get(bucket, i);
-                if (v != 0) {
-                    ++size;
+        /**
+         * Return whether <code>k</code> is in the sorted list of <code>bucket</code>, ignoring the buffered hashes.
+         */
+        private boolean listContains(long bucket, int k) {
+            final long target = Integer.toUnsignedLong(k);
+            final SortedHashesReader reader = new SortedHashesReader(lists.get(bucket), sizes.get(bucket));
+            while (reader.next()) {
+                if (reader.value() >= target) {
+                    return reader.value() == target;
                 }
             }
-            return size;
+            return false;
         }
 
-        public int size(long bucket) {
+        /**
+         * Merge the buffered hashes of <code>bucket</code> into its sorted list and return the size of the set.
+         */
+        int flush(long bucket) {
             if (bucket >= sizes.size()) {
                 return 0;
             }
-            final int size = sizes.get(bucket);
-            assert size == recomputedSize(bucket);
+            final int bufferSize = bufferSizes.get(bucket);
+            if (bufferSize == 0) {
+                return sizes.get(bucket);
+            }
+            final IntArray buffer = buffers.get(bucket);
+            final int[] buffered = new int[bufferSize];
+            int numBuffered = 0;
+            for (long i = 0; i < buffer.size(); ++i) {
+                final int k = buffer.get(i);
+                if (k != 0) {
+                    // flip the sign bit so that hashes sort as unsigned integers
+                    buffered[numBuffered++] = k ^ Integer.MIN_VALUE;
+                }
+            }
+            assert numBuffered == bufferSize;
+            Arrays.sort(buffered);
+
+            final SortedHashesReader reader = new SortedHashesReader(lists.get(bucket), sizes.get(bucket));
+            final ByteArray merged = bigArrays.newByteArray(lengths.get(bucket) + 5L * bufferSize, false);
+            boolean hasListValue = reader.next();
+            int i = 0;
+            int size = 0;
+            long length = 0;
+            long previous = 0;
+            while (hasListValue || i < numBuffered) {
+                final long value;
+                final long bufferedValue = i < numBuffered ? Integer.toUnsignedLong(buffered[i] ^ Integer.MIN_VALUE) : -1;
+                if (hasListValue && (bufferedValue == -1 || reader.value() <= bufferedValue)) {
+                    value = reader.value();
+                    if (value == bufferedValue) {
+                        ++i;
+                    }
+                    hasListValue = reader.next();
+                } else {
+                    value = bufferedValue;
+                    ++i;
+                }
+                length = writeVInt(merged, length, (int) (value - previous));
+                previous = value;
+                ++size;
+            }
+            Releasables.close(lists.set(bucket, bigArrays.resize(merged, length)));
+            sizes.set(bucket, size);
+            lengths.set(bucket, (int) length);
+
+            // the buffer grows with the set, so that the list is rewritten less often as it gets larger
+            final int capacity = Math.max(MIN_BUFFER_CAPACITY, BitUtil.nextHighestPowerOfTwo(size / 4));
+            if (capacity == buffer.size()) {
+                buffer.fill(0, capacity, 0);
+            } else {
+                Releasables.close(buffers.set(bucket, bigArrays.newIntArray(capacity)));
+            }
+            bufferSizes.set(bucket, 0);
             return size;
         }
 
         /**
-         * Add <code>k</code> to the hash table associated with <code>bucket</code>. Return {@code -1} if the value was already in the set
-         * or the new set size if it was added.
+         * Return the size of the set associated with <code>bucket</code>.
          */
-        public int add(long bucket, int k) {
-            sizes = bigArrays.grow(sizes, bucket + 1);
-            assert k != 0;
-            for (int i = (k & mask);; i = (i + 1) & mask) {
-                final int v = get(bucket, i);
-                if (v == 0) {
-                    // means unused, take it!
-                    set(bucket, i, k);
-                    return sizes.increment(bucket, 1);
-                } else if (v == k) {
-                    // k is already in the set
-                    return -1;
-                }
-            }
+        int size(long bucket) {
+            // flushing doesn't change the content of the set
+            return flush(bucket);
         }
 
-        public IntArray values(final long bucket) {
+        /**
+         * Return the values of the set associated with <code>bucket</code>, in unsigned order.
+         */
+        IntArray values(long bucket) {
             final int size = size(bucket);
             final IntArray values = bigArrays.newIntArray(size);
             if (size == 0) {
                 return values;
             }
+            final SortedHashesReader reader = new SortedHashesReader(lists.get(bucket), size);
             int i = 0;
-            for (int j = 0; j < capacity; ++j) {
-                final int k = get(bucket, j);
-                if (k != 0) {
-                    values.set(i++, k);
-                }
+            while (reader.next()) {
+                values.set(i++, (int) reader.value());
             }
             assert i == values.size();
             return values;
         }
 
+        /**
+         * Release the memory of the set associated with <code>bucket</code> and empty it.
+         */
+        void clear(long bucket) {
+            Releasables.close(lists.set(bucket, null), buffers.set(bucket, null));
+            sizes.set(bucket, 0);
+            lengths.set(bucket, 0);
+            bufferSizes.set(bucket, 0);
+        }
+
+        @Override
+        public void close() {
+            for (long i = 0; i < lists.size(); ++i) {
+                Releasables.close(lists.get(i), buffers.get(i));
+            }
+            Releasables.close(sizes, lengths, lists, bufferSizes, buffers);
+        }
+    }
+
+    private static long writeVInt(ByteArray bytes, long offset, int i) {
+        while ((i & ~0x7F) != 0) {
+            bytes.set(offset++, (byte) ((i & 0x7f) | 0x80));
+            i >>>= 7;
+        }
+        bytes.set(offset++, (byte) i);
+        return offset;
+    }
+
+    /**
+     * Iterates over the sorted and delta encoded hashes of a bucket that uses linear counting.
+     */
+    private static final class SortedHashesReader {
+
+        private final ByteArray list;
+        private int remaining;
+        private long offset;
+        private long value;
+
+        SortedHashesReader(ByteArray list, int size) {
+            assert size == 0 || list != null;
+            this.list = list;
+            this.remaining = size;
+        }
+
+        /**
+         * Move to the next hash, return <code>false</code> if there are no more hashes.
+         */
+        boolean next() {
+            if (remaining == 0) {
+                return false;
+            }
+            --remaining;
+            int delta = 0;
+            for (int shift = 0;; shift += 7) {
+                final byte b = list.get(offset++);
+                delta |= (b & 0x7F) << shift;
+                if (b >= 0) {
+                    break;
+                }
+            }
+            value += Integer.toUnsignedLong(delta);
+            return true;
+        }
+
+        /**
+         * The current hash, as an unsigned integer.
+         */
+        long value() {
+            return value;
+        }
     }
 
     public void writeTo(long bucket, StreamOutput out) throws IOException {
         out.writeVInt(p);
         if (algorithm.get(bucket) == LINEAR_COUNTING) {
             out.writeBoolean(LINEAR_COUNTING);
-            try (IntArray hashes = hashSet.values(bucket)) {
+            try (IntArray hashes = sparseSet.values(bucket)) {
                 out.writeVLong(hashes.size());
-                for (long i = 0; i < hashes.size(); ++i) {
-                    out.writeInt(hashes.get(i));
+                if (out.getVersion().onOrAfter(Version.V_8_0_0)) {
+                    // hashes are sorted, so deltas are small
+                    int previous = 0;
+                    for (long i = 0; i < hashes.size(); ++i) {
+                        final int hash = hashes.get(i);
+                        out.writeVInt(hash - previous);
+                        previous = hash;
+                    }
+                } else {
+                    for (long i = 0; i < hashes.size(); ++i) {
+                        out.writeInt(hashes.get(i));
+                    }
                 }
             }
         } else {
             out.writeBoolean(HYPERLOGLOG);
-            for (long i = bucket << p, end = i + m; i < end; ++i) {
+            for (long i = runLensStart(bucket), end = i + m; i < end; ++i) {
                 out.writeByte(runLens.get(i));
             }
         }
@@ -1173,12 +1371,21 @@ public final class HyperLogLogPlusPlus implements Releasable {
         if (algorithm == LINEAR_COUNTING) {
             counts.algorithm.clear(0);
             final long size = in.readVLong();
+            final boolean deltaEncoded = in.getVersion().onOrAfter(Version.V_8_0_0);
+            int previous = 0;
             for (long i = 0; i < size; ++i) {
-                final int encoded = in.readInt();
-                counts.hashSet.add(0, encoded);
+                final int encoded;
+                if (deltaEncoded) {
+                    encoded = previous + in.readVInt();
+                    previous = encoded;
+                } else {
+                    encoded = in.readInt();
+                }
+                counts.sparseSet.add(0, encoded);
             }
         } else {
             counts.algorithm.set(0);
+            counts.allocateRunLens(0);
             for (int i = 0; i < counts.m; ++i) {
                 counts.runLens.set(i, in.readByte());
             }
@@ -22,12 +22,14 @@ import org.apache.lucene.index.LeafReader;
 import org.apache.lucene.index.LeafReaderContext;
 import org.apache.lucene.index.PointValues;
 import org.apache.lucene.search.CollectionTerminatedException;
+import org.apache.lucene.util.ArrayUtil;
 import org.apache.lucene.util.Bits;
 import org.apache.lucene.util.FutureArrays;
 import org.apache.lucene.search.ScoreMode;
 import org.elasticsearch.common.lease.Releasables;
 import org.elasticsearch.common.util.BigArrays;
 import org.elasticsearch.common.util.DoubleArray;
+import org.elasticsearch.index.fielddata.FieldData;
 import org.elasticsearch.index.fielddata.NumericDoubleValues;
 import org.elasticsearch.index.fielddata.SortedNumericDoubleValues;
 import org.elasticsearch.search.DocValueFormat;
@@ -57,6 +59,8 @@ class MaxAggregator extends NumericMetricsAggregator.SingleValue {
     final Function<byte[], Number> pointConverter;
 
     DoubleArray maxes;
+    // the values of a batch of documents, see LeafBucketCollector#collect(int[], int, long)
+    private double[] batchValues = new double[0];
 
     MaxAggregator(String name,
                     ValuesSourceConfig<ValuesSource.Numeric> config,
@@ -113,6 +117,7 @@ class MaxAggregator extends NumericMetricsAggregator.SingleValue {
         final BigArrays bigArrays = context.bigArrays();
         final SortedNumericDoubleValues allValues = valuesSource.doubleValues(ctx);
         final NumericDoubleValues values = MultiValueMode.MAX.select(allValues);
+        final NumericDoubleValues singleton = FieldData.unwrapSingleton(allValues);
         return new LeafBucketCollectorBase(sub, allValues) {
 
             @Override
@@ -130,6 +135,27 @@ class MaxAggregator extends NumericMetricsAggregator.SingleValue {
                 }
             }
 
+            @Override
+            public void collect(int[] docs, int count, long bucket) throws IOException {
+                if (singleton == null) {
+                    super.collect(docs, count, bucket);
+                    return;
+                }
+                if (bucket >= maxes.size()) {
+                    long from = maxes.size();
+                    maxes = bigArrays.grow(maxes, bucket + 1);
+                    maxes.fill(from, maxes.size(), Double.NEGATIVE_INFINITY);
+                }
+                batchValues = ArrayUtil.grow(batchValues, count);
+                final double[] batch = batchValues;
+                final int numValues = singleton.readValues(docs, count, batch);
+                double max = maxes.get(bucket);
+                for (int i = 0; i < numValues; i++) {
+                    max = Math.max(max, batch[i]);
+                }
+                maxes.set(bucket, max);
+            }
+
         };
     }
 
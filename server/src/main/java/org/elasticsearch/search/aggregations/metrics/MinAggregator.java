@@ -25,11 +25,13 @@ import org.apache.lucene.index.LeafReaderContext;
 import org.apache.lucene.index.PointValues;
 import org.apache.lucene.search.CollectionTerminatedException;
 import org.apache.lucene.search.MatchAllDocsQuery;
+import org.apache.lucene.util.ArrayUtil;
 import org.apache.lucene.util.Bits;
 import org.apache.lucene.search.ScoreMode;
 import org.elasticsearch.common.lease.Releasables;
 import org.elasticsearch.common.util.BigArrays;
 import org.elasticsearch.common.util.DoubleArray;
+import org.elasticsearch.index.fielddata.FieldData;
 import org.elasticsearch.index.fielddata.NumericDoubleValues;
 import org.elasticsearch.index.fielddata.SortedNumericDoubleValues;
 import org.elasticsearch.index.mapper.DateFieldMapper;
@@ -60,6 +62,8 @@ class MinAggregator extends NumericMetricsAggregator.SingleValue {
     final Function<byte[], Number> pointConverter;
 
     DoubleArray mins;
+    // the values of a batch of documents, see LeafBucketCollector#collect(int[], int, long)
+    private double[] batchValues = new double[0];
 
     MinAggregator(String name,
                     ValuesSourceConfig<ValuesSource.Numeric> config,
@@ -116,6 +120,7 @@ class MinAggregator extends NumericMetricsAggregator.SingleValue {
         final BigArrays bigArrays = context.bigArrays();
         final SortedNumericDoubleValues allValues = valuesSource.doubleValues(ctx);
         final NumericDoubleValues values = MultiValueMode.MIN.select(allValues);
+        final NumericDoubleValues singleton = FieldData.unwrapSingleton(allValues);
         return new LeafBucketCollectorBase(sub, allValues) {
 
             @Override
@@ -133,6 +138,27 @@ class MinAggregator extends NumericMetricsAggregator.SingleValue {
                 }
             }
 
+            @Override
+            public void collect(int[] docs, int count, long bucket) throws IOException {
+                if (singleton == null) {
+                    super.collect(docs, count, bucket);
+                    return;
+                }
+                if (bucket >= mins.size()) {
+                    long from = mins.size();
+                    mins = bigArrays.grow(mins, bucket + 1);
+                    mins.fill(from, mins.size(), Double.POSITIVE_INFINITY);
+                }
+                batchValues = ArrayUtil.grow(batchValues, count);
+                final double[] batch = batchValues;
+                final int numValues = singleton.readValues(docs, count, batch);
+                double min = mins.get(bucket);
+                for (int i = 0; i < numValues; i++) {
+                    min = Math.min(min, batch[i]);
+                }
+                mins.set(bucket, min);
+            }
+
         };
     }
 
@@ -21,8 +21,10 @@ package org.elasticsearch.search.fetch;
 
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
+import org.apache.lucene.codecs.StoredFieldsReader;
 import org.apache.lucene.index.LeafReaderContext;
 import org.apache.lucene.index.ReaderUtil;
+import org.apache.lucene.index.StoredFieldVisitor;
 import org.apache.lucene.search.DocIdSetIterator;
 import org.apache.lucene.search.Query;
 import org.apache.lucene.search.ScoreMode;
@@ -32,9 +34,11 @@ import org.apache.lucene.search.Weight;
 import org.apache.lucene.util.BitSet;
 import org.elasticsearch.ExceptionsHelper;
 import org.elasticsearch.Version;
+import org.elasticsearch.common.CheckedBiConsumer;
 import org.elasticsearch.common.bytes.BytesReference;
 import org.elasticsearch.common.collect.Tuple;
 import org.elasticsearch.common.document.DocumentField;
+import org.elasticsearch.common.lucene.index.ElasticsearchLeafReader;
 import org.elasticsearch.common.lucene.search.Queries;
 import org.elasticsearch.common.text.Text;
 import org.elasticsearch.common.xcontent.XContentHelper;
@@ -60,6 +64,7 @@ import org.elasticsearch.search.lookup.SourceLookup;
 import org.elasticsearch.tasks.TaskCancelledException;
 
 import java.io.IOException;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
@@ -76,6 +81,11 @@ import java.util.Set;
 public class FetchPhase implements SearchPhase {
     private static final Logger LOGGER = LogManager.getLogger(FetchPhase.class);
 
+    /**
+     * The minimum number of consecutive hits in a segment for stored fields to be read with a sequential reader.
+     */
+    static final int SEQUENTIAL_ACCESS_MIN_DOCS = 10;
+
     private final FetchSubPhase[] fetchSubPhases;
 
     public FetchPhase(List<FetchSubPhase> fetchSubPhases) {
@@ -142,29 +152,46 @@ public class FetchPhase implements SearchPhase {
         }
 
         try {
+            // visit the hits in doc id order so that stored fields are read sequentially, hits are put back in their
+            // original order afterwards
+            DocIdToIndex[] docs = new DocIdToIndex[context.docIdsToLoadSize()];
+            for (int index = 0; index < context.docIdsToLoadSize(); index++) {
+                docs[index] = new DocIdToIndex(context.docIdsToLoad()[context.docIdsToLoadFrom() + index], index);
+            }
+            Arrays.sort(docs);
+
             SearchHit[] hits = new SearchHit[context.docIdsToLoadSize()];
             FetchSubPhase.HitContext hitContext = new FetchSubPhase.HitContext();
-            for (int index = 0; index < context.docIdsToLoadSize(); index++) {
+            List<LeafReaderContext> leaves = context.searcher().getIndexReader().leaves();
+            int currentReaderIndex = -1;
+            LeafReaderContext currentReaderContext = null;
+            CheckedBiConsumer<Integer, StoredFieldVisitor, IOException> fieldReader = null;
+            for (int index = 0; index < docs.length; index++) {
                 if (context.isCancelled()) {
                     throw new TaskCancelledException("cancelled");
                 }
-                int docId = context.docIdsToLoad()[context.docIdsToLoadFrom() + index];
-                int readerIndex = ReaderUtil.subIndex(docId, context.searcher().getIndexReader().leaves());
-                LeafReaderContext subReaderContext = context.searcher().getIndexReader().leaves().get(readerIndex);
-                int subDocId = docId - subReaderContext.docBase;
+                int docId = docs[index].docId;
+                int readerIndex = ReaderUtil.subIndex(docId, leaves);
+                if (currentReaderIndex != readerIndex) {
+                    currentReaderContext = leaves.get(readerIndex);
+                    currentReaderIndex = readerIndex;
+                    fieldReader = storedFieldsReader(currentReaderContext, docs, index);
+                }
+                assert currentReaderContext != null;
+                int subDocId = docId - currentReaderContext.docBase;
 
                 final SearchHit searchHit;
-                int rootDocId = findRootDocumentIfNested(context, subReaderContext, subDocId);
+                int rootDocId = findRootDocumentIfNested(context, currentReaderContext, subDocId);
                 if (rootDocId != -1) {
                     searchHit = createNestedSearchHit(context, docId, subDocId, rootDocId,
-                        storedToRequestedFields, subReaderContext);
+                        storedToRequestedFields, currentReaderContext, fieldReader);
                 } else {
                     searchHit = createSearchHit(context, fieldsVisitor, docId, subDocId,
-                        storedToRequestedFields, subReaderContext);
+                        storedToRequestedFields, currentReaderContext, fieldReader);
                 }
 
-                hits[index] = searchHit;
-                hitContext.reset(searchHit, subReaderContext, subDocId, context.searcher());
+                hits[docs[index].index] = searchHit;
+                hitContext.reset(searchHit, currentReaderContext, subDocId, context.searcher());
                 for (FetchSubPhase fetchSubPhase : fetchSubPhases) {
                     fetchSubPhase.hitExecute(context, hitContext);
                 }
@@ -187,6 +214,31 @@ public class FetchPhase implements SearchPhase {
         }
     }
 
+    /**
+     * Returns how stored fields of the hits in the given leaf are read. If the hits starting at <code>from</code> that fall into
+     * this leaf form a long enough run of consecutive doc ids, a stored fields reader that is optimized for sequential access is
+     * used so that compressed blocks are decompressed once rather than once per hit.
+     */
+    private static CheckedBiConsumer<Integer, StoredFieldVisitor, IOException> storedFieldsReader(LeafReaderContext readerContext,
+                                                                                                DocIdToIndex[] docs,
+                                                                                                int from) throws IOException {
+        if (readerContext.reader() instanceof ElasticsearchLeafReader) {
+            final int maxDoc = readerContext.docBase + readerContext.reader().maxDoc();
+            int to = from;
+            while (to < docs.length && docs[to].docId < maxDoc) {
+                to++;
+            }
+            final int numDocs = to - from;
+            if (numDocs >= SEQUENTIAL_ACCESS_MIN_DOCS && docs[to - 1].docId - docs[from].docId == numDocs - 1) {
+                StoredFieldsReader sequentialReader = ((ElasticsearchLeafReader) readerContext.reader()).getSequentialStoredFieldsReader();
+                if (sequentialReader != null) {
+                    return sequentialReader::visitDocument;
+                }
+            }
+        }
+        return readerContext.reader()::document;
+    }
+
     private int findRootDocumentIfNested(SearchContext context, LeafReaderContext subReaderContext, int subDocId) throws IOException {
         if (context.mapperService().hasNested()) {
             BitSet bits = context.bitsetFilterCache()
@@ -204,7 +256,8 @@ public class FetchPhase implements SearchPhase {
                                       int docId,
                                       int subDocId,
                                       Map<String, Set<String>> storedToRequestedFields,
-                                      LeafReaderContext subReaderContext) {
+                                      LeafReaderContext subReaderContext,
+                                      CheckedBiConsumer<Integer, StoredFieldVisitor, IOException> fieldReader) {
         DocumentMapper documentMapper = context.mapperService().documentMapper();
         Text typeText = documentMapper.typeText();
         if (fieldsVisitor == null) {
@@ -212,7 +265,7 @@ public class FetchPhase implements SearchPhase {
         }
 
         Map<String, DocumentField> searchFields = getSearchFields(context, fieldsVisitor, subDocId,
-            storedToRequestedFields, subReaderContext);
+            storedToRequestedFields, fieldReader);
 
         SearchHit searchHit = new SearchHit(docId, fieldsVisitor.uid().id(), typeText, searchFields);
         // Set _source if requested.
@@ -228,8 +281,8 @@ public class FetchPhase implements SearchPhase {
                                                        FieldsVisitor fieldsVisitor,
                                                        int subDocId,
                                                        Map<String, Set<String>> storedToRequestedFields,
-                                                       LeafReaderContext subReaderContext) {
-        loadStoredFields(context, subReaderContext, fieldsVisitor, subDocId);
+                                                       CheckedBiConsumer<Integer, StoredFieldVisitor, IOException> fieldReader) {
+        loadStoredFields(context, fieldReader, fieldsVisitor, subDocId);
         fieldsVisitor.postProcess(context.mapperService());
 
         if (fieldsVisitor.fields().isEmpty()) {
@@ -257,7 +310,8 @@ public class FetchPhase implements SearchPhase {
                                             int nestedSubDocId,
                                             int rootSubDocId,
                                             Map<String, Set<String>> storedToRequestedFields,
-                                            LeafReaderContext subReaderContext) throws IOException {
+                                            LeafReaderContext subReaderContext,
+                                            CheckedBiConsumer<Integer, StoredFieldVisitor, IOException> fieldReader) throws IOException {
         // Also if highlighting is requested on nested documents we need to fetch the _source from the root document,
         // otherwise highlighting will attempt to fetch the _source from the nested doc, which will fail,
         // because the entire _source is only stored with the root document.
@@ -266,7 +320,7 @@ public class FetchPhase implements SearchPhase {
         final boolean needSource = context.sourceRequested() || context.highlight() != null;
         if (needSource || (context instanceof InnerHitsContext.InnerHitSubContext == false)) {
             FieldsVisitor rootFieldsVisitor = new FieldsVisitor(needSource);
-            loadStoredFields(context, subReaderContext, rootFieldsVisitor, rootSubDocId);
+            loadStoredFields(context, fieldReader, rootFieldsVisitor, rootSubDocId);
             rootFieldsVisitor.postProcess(context.mapperService());
             uid = rootFieldsVisitor.uid();
             source = rootFieldsVisitor.source();
@@ -280,7 +334,7 @@ public class FetchPhase implements SearchPhase {
         if (context.hasStoredFields() && !context.storedFieldsContext().fieldNames().isEmpty()) {
             FieldsVisitor nestedFieldsVisitor = new CustomFieldsVisitor(storedToRequestedFields.keySet(), false);
             searchFields = getSearchFields(context, nestedFieldsVisitor, nestedSubDocId,
-                storedToRequestedFields, subReaderContext);
+                storedToRequestedFields, fieldReader);
         }
 
         DocumentMapper documentMapper = context.mapperService().documentMapper();
@@ -419,12 +473,28 @@ public class FetchPhase implements SearchPhase {
         return nestedIdentity;
     }
 
-    private void loadStoredFields(SearchContext searchContext, LeafReaderContext readerContext, FieldsVisitor fieldVisitor, int docId) {
+    private void loadStoredFields(SearchContext searchContext, CheckedBiConsumer<Integer, StoredFieldVisitor, IOException> fieldReader,
+                                  FieldsVisitor fieldVisitor, int docId) {
         fieldVisitor.reset();
         try {
-            readerContext.reader().document(docId, fieldVisitor);
+            fieldReader.accept(docId, fieldVisitor);
         } catch (IOException e) {
             throw new FetchPhaseExecutionException(searchContext, "Failed to fetch doc id [" + docId + "]", e);
         }
     }
+
+    private static final class DocIdToIndex implements Comparable<DocIdToIndex> {
+        final int docId;
+        final int index;
+
+        DocIdToIndex(int docId, int index) {
+            this.docId = docId;
+            this.index = index;
+        }
+
+        @Override
+        public int compareTo(DocIdToIndex o) {
+            return Integer.compare(docId, o.docId);
+        }
+    }
 }
@@ -23,11 +23,16 @@ import org.apache.lucene.index.DirectoryReader;
 import org.apache.lucene.index.LeafReaderContext;
 import org.apache.lucene.index.Term;
 import org.apache.lucene.index.TermStates;
+import org.apache.lucene.queries.SearchAfterSortedDocQuery;
 import org.apache.lucene.search.BulkScorer;
 import org.apache.lucene.search.CollectionStatistics;
+import org.apache.lucene.search.CollectionTerminatedException;
 import org.apache.lucene.search.Collector;
+import org.apache.lucene.search.CollectorManager;
+import org.apache.lucene.search.DocIdSetIterator;
 import org.apache.lucene.search.Explanation;
 import org.apache.lucene.search.IndexSearcher;
+import org.apache.lucene.search.LeafCollector;
 import org.apache.lucene.search.Query;
 import org.apache.lucene.search.QueryCache;
 import org.apache.lucene.search.QueryCachingPolicy;
@@ -36,7 +41,9 @@ import org.apache.lucene.search.Scorer;
 import org.apache.lucene.search.TermStatistics;
 import org.apache.lucene.search.Weight;
 import org.apache.lucene.search.XIndexSearcher;
+import org.elasticsearch.common.Nullable;
 import org.elasticsearch.common.lease.Releasable;
+import org.elasticsearch.common.util.concurrent.EsRejectedExecutionException;
 import org.elasticsearch.index.engine.Engine;
 import org.elasticsearch.search.dfs.AggregatedDfs;
 import org.elasticsearch.search.profile.Timer;
@@ -46,14 +53,23 @@ import org.elasticsearch.search.profile.query.QueryProfiler;
 import org.elasticsearch.search.profile.query.QueryTimingType;
 
 import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.FutureTask;
 
 /**
  * Context-aware extension of {@link IndexSearcher}.
  */
 public class ContextIndexSearcher extends IndexSearcher implements Releasable {
 
+    /** The profile debug key of the number of documents that a search_after request skipped. */
+    public static final String SKIPPED_DOCS = "skipped_docs";
+
     /** The wrapped {@link IndexSearcher}. The reason why we sometimes prefer delegating to this searcher instead of {@code super} is that
      *  this instance may have more assertions, for example if it comes from MockInternalEngine which wraps the IndexSearcher into an
      *  AssertingIndexSearcher. */
@@ -68,8 +84,29 @@ public class ContextIndexSearcher extends IndexSearcher implements Releasable {
 
     private Runnable checkCancelled;
 
+    /** The executor used to search slices of the reader concurrently, or <code>null</code> if slices are searched sequentially. */
+    private final Executor executor;
+
+    private final int maxSlices;
+
+    private int minDocsPerSlice = MIN_DOCS_PER_SLICE;
+
     public ContextIndexSearcher(Engine.Searcher searcher, QueryCache queryCache, QueryCachingPolicy queryCachingPolicy) {
+        this(searcher, queryCache, queryCachingPolicy, null, 1);
+    }
+
+    /**
+     * Creates a searcher that can search up to <code>maxSlices</code> slices of the reader concurrently on the provided
+     * <code>executor</code>, see {@link #searchConcurrently(Query, CollectorManager)}.
+     */
+    public ContextIndexSearcher(Engine.Searcher searcher, QueryCache queryCache, QueryCachingPolicy queryCachingPolicy,
+                                @Nullable Executor executor, int maxSlices) {
         super(searcher.reader());
+        if (maxSlices < 1) {
+            throw new IllegalArgumentException("maxSlices must be >= 1 but was [" + maxSlices + "]");
+        }
+        this.executor = executor;
+        this.maxSlices = maxSlices;
         engineSearcher = searcher;
         in = new XIndexSearcher(searcher.searcher());
         setSimilarity(searcher.searcher().getSimilarity());
@@ -128,6 +165,17 @@ public class ContextIndexSearcher extends IndexSearcher implements Releasable {
                 timer.stop();
                 profiler.pollLastElement();
             }
+            if (query instanceof SearchAfterSortedDocQuery) {
+                // report how many documents are skipped by seeking directly to the search_after cursor of each segment
+                final SearchAfterSortedDocQuery searchAfterQuery = (SearchAfterSortedDocQuery) query;
+                profile.addDebugInfo(SKIPPED_DOCS, () -> {
+                    try {
+                        return searchAfterQuery.skippedDocs(getIndexReader());
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                });
+            }
             return new ProfileWeight(query, weight, profile);
         } else {
             // needs to be 'super', not 'in' in order to use aggregated DFS
@@ -177,6 +225,188 @@ public class ContextIndexSearcher extends IndexSearcher implements Releasable {
         in.search(leaves, cancellableWeight, collector);
     }
 
+    /**
+     * Collects the matches of the given weight in a single leaf of the reader of this searcher.
+     */
+    public void searchLeaf(LeafReaderContext leaf, Weight weight, Collector collector) throws IOException {
+        search(Collections.singletonList(leaf), weight, collector);
+    }
+
+    /**
+     * Returns <code>true</code> if this searcher can search slices of the reader concurrently.
+     */
+    public boolean isConcurrent() {
+        return executor != null && maxSlices > 1;
+    }
+
+    /**
+     * Searches the provided query by splitting the reader into contiguous slices of doc ids that are collected
+     * concurrently, each with its own collector created by the <code>collectorManager</code>. The first slice is
+     * collected on the calling thread and the other ones on the executor of this searcher, or on the calling thread
+     * too if the executor rejects them. Cancellation and timeouts set via {@link #setCheckCancelled(Runnable)}
+     * are checked by every slice.
+     */
+    public <C extends Collector, T> T searchConcurrently(Query query, CollectorManager<C, T> collectorManager) throws IOException {
+        final List<List<LeafPartition>> slices = computeSlices(getIndexReader().leaves(), executor == null ? 1 : maxSlices,
+            minDocsPerSlice);
+        final List<C> collectors = new ArrayList<>(slices.size());
+        ScoreMode scoreMode = null;
+        for (int i = 0; i < Math.max(1, slices.size()); i++) {
+            final C collector = collectorManager.newCollector();
+            collectors.add(collector);
+            if (scoreMode == null) {
+                scoreMode = collector.scoreMode();
+            } else if (scoreMode != collector.scoreMode()) {
+                throw new IllegalStateException("CollectorManager does not always produce collectors with the same score mode");
+            }
+        }
+        final Weight weight = createWeight(rewrite(query), scoreMode, 1);
+        if (slices.size() <= 1) {
+            searchPartitions(slices.isEmpty() ? Collections.emptyList() : slices.get(0), weight, collectors.get(0));
+            return collectorManager.reduce(collectors);
+        }
+        final List<FutureTask<C>> tasks = new ArrayList<>(slices.size() - 1);
+        for (int i = 1; i < slices.size(); i++) {
+            final List<LeafPartition> partitions = slices.get(i);
+            final C collector = collectors.get(i);
+            final FutureTask<C> task = new FutureTask<>(() -> {
+                searchPartitions(partitions, weight, collector);
+                return collector;
+            });
+            tasks.add(task);
+            try {
+                executor.execute(task);
+            } catch (EsRejectedExecutionException e) {
+                // the worker pool is saturated, collect this slice on the calling thread instead
+                task.run();
+            }
+        }
+        Exception failure = null;
+        try {
+            searchPartitions(slices.get(0), weight, collectors.get(0));
+        } catch (Exception e) {
+            failure = e;
+        }
+        // wait for all slices to complete, even on failure, since the caller releases the reader when we return
+        for (FutureTask<C> task : tasks) {
+            try {
+                task.get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                failure = addSuppressed(failure, e);
+            } catch (ExecutionException e) {
+                failure = addSuppressed(failure, e.getCause() instanceof Exception ? (Exception) e.getCause() : e);
+            }
+        }
+        if (failure != null) {
+            if (failure instanceof IOException) {
+                throw (IOException) failure;
+            } else if (failure instanceof RuntimeException) {
+                throw (RuntimeException) failure;
+            }
+            throw new RuntimeException(failure);
+        }
+        return collectorManager.reduce(collectors);
+    }
+
+    private static Exception addSuppressed(Exception first, Exception e) {
+        if (first == null) {
+            return e;
+        }
+        first.addSuppressed(e);
+        return first;
+    }
+
+    private void searchPartitions(List<LeafPartition> partitions, Weight weight, Collector collector) throws IOException {
+        for (LeafPartition partition : partitions) {
+            final LeafCollector leafCollector;
+            try {
+                leafCollector = collector.getLeafCollector(partition.ctx);
+            } catch (CollectionTerminatedException e) {
+                // there is no doc of interest in this reader context
+                continue;
+            }
+            BulkScorer scorer = weight.bulkScorer(partition.ctx);
+            if (scorer != null) {
+                if (checkCancelled != null) {
+                    scorer = new CancellableBulkScorer(scorer, checkCancelled);
+                }
+                try {
+                    scorer.score(leafCollector, partition.ctx.reader().getLiveDocs(), partition.minDoc, partition.maxDoc);
+                } catch (CollectionTerminatedException e) {
+                    // collection was terminated prematurely, continue with the following leaf
+                }
+            }
+        }
+    }
+
+    /**
+     * The minimum number of documents a slice should contain, splitting smaller readers would cost more in
+     * thread hand-offs than what is saved by collecting concurrently.
+     */
+    static final int MIN_DOCS_PER_SLICE = 1 << 16;
+
+    // pkg-private for testing
+    void setMinDocsPerSlice(int minDocsPerSlice) {
+        this.minDocsPerSlice = minDocsPerSlice;
+    }
+
+    /**
+     * A contiguous range of doc ids <code>[minDoc, maxDoc)</code> of a leaf.
+     */
+    static final class LeafPartition {
+        final LeafReaderContext ctx;
+        final int minDoc;
+        final int maxDoc;
+
+        LeafPartition(LeafReaderContext ctx, int minDoc, int maxDoc) {
+            this.ctx = ctx;
+            this.minDoc = minDoc;
+            this.maxDoc = maxDoc;
+        }
+    }
+
+    /**
+     * Splits the provided leaves into at most <code>maxSlices</code> slices of contiguous doc ids that contain
+     * roughly the same number of documents. Large leaves are split into multiple partitions so that readers that
+     * have been force-merged to few segments can still be searched concurrently. Slices are returned in doc id
+     * order so that merging their top docs tie-breaks on doc ids like a sequential search would.
+     */
+    static List<List<LeafPartition>> computeSlices(List<LeafReaderContext> leaves, int maxSlices, int minDocsPerSlice) {
+        long totalDocs = 0;
+        for (LeafReaderContext ctx : leaves) {
+            totalDocs += ctx.reader().maxDoc();
+        }
+        if (totalDocs == 0) {
+            return Collections.emptyList();
+        }
+        final int numSlices = (int) Math.max(1, Math.min(maxSlices, totalDocs / minDocsPerSlice));
+        final long docsPerSlice = (totalDocs + numSlices - 1) / numSlices;
+        final List<List<LeafPartition>> slices = new ArrayList<>(numSlices);
+        List<LeafPartition> current = new ArrayList<>();
+        long currentDocs = 0;
+        for (LeafReaderContext ctx : leaves) {
+            final int maxDoc = ctx.reader().maxDoc();
+            int minDoc = 0;
+            while (minDoc < maxDoc) {
+                final int upTo = (int) Math.min(maxDoc, minDoc + (docsPerSlice - currentDocs));
+                // the last partition of a leaf is open-ended so that the scorer can exhaust its iterator
+                current.add(new LeafPartition(ctx, minDoc, upTo == maxDoc ? DocIdSetIterator.NO_MORE_DOCS : upTo));
+                currentDocs += upTo - minDoc;
+                minDoc = upTo;
+                if (currentDocs >= docsPerSlice) {
+                    slices.add(current);
+                    current = new ArrayList<>();
+                    currentDocs = 0;
+                }
+            }
+        }
+        if (current.isEmpty() == false) {
+            slices.add(current);
+        }
+        return slices;
+    }
+
     @Override
     public Explanation explain(Query query, int doc) throws IOException {
         if (aggregatedDfs != null) {
@@ -19,6 +19,7 @@
 
 package org.elasticsearch.search.internal;
 
+import org.elasticsearch.Version;
 import org.elasticsearch.action.search.SearchResponseSections;
 import org.elasticsearch.common.io.stream.StreamInput;
 import org.elasticsearch.common.io.stream.StreamOutput;
@@ -46,7 +47,13 @@ public class InternalSearchResponse extends SearchResponseSections implements Wr
     public InternalSearchResponse(SearchHits hits, InternalAggregations aggregations, Suggest suggest,
                                   SearchProfileShardResults profileResults, boolean timedOut, Boolean terminatedEarly,
                                   int numReducePhases) {
-        super(hits, aggregations, suggest, timedOut, terminatedEarly, profileResults, numReducePhases);
+        this(hits, aggregations, suggest, profileResults, timedOut, terminatedEarly, numReducePhases, 0);
+    }
+
+    public InternalSearchResponse(SearchHits hits, InternalAggregations aggregations, Suggest suggest,
+                                  SearchProfileShardResults profileResults, boolean timedOut, Boolean terminatedEarly,
+                                  int numReducePhases, long peakReduceBufferBytes) {
+        super(hits, aggregations, suggest, timedOut, terminatedEarly, profileResults, numReducePhases, peakReduceBufferBytes);
     }
 
     public InternalSearchResponse(StreamInput in) throws IOException {
@@ -57,7 +64,8 @@ public class InternalSearchResponse extends SearchResponseSections implements Wr
                 in.readBoolean(),
                 in.readOptionalBoolean(),
                 in.readOptionalWriteable(SearchProfileShardResults::new),
-                in.readVInt()
+                in.readVInt(),
+                in.getVersion().onOrAfter(Version.V_8_0_0) ? in.readVLong() : 0
         );
     }
 
@@ -70,5 +78,8 @@ public class InternalSearchResponse extends SearchResponseSections implements Wr
         out.writeOptionalBoolean(terminatedEarly);
         out.writeOptionalWriteable(profileResults);
         out.writeVInt(numReducePhases);
+        if (out.getVersion().onOrAfter(Version.V_8_0_0)) {
+            out.writeVLong(peakReduceBufferBytes);
+        }
     }
 }
@@ -0,0 +1,137 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.search.internal;
+
+import org.apache.lucene.index.LeafReaderContext;
+import org.elasticsearch.common.lucene.Lucene;
+import org.elasticsearch.common.util.concurrent.AbstractRefCounted;
+import org.elasticsearch.index.engine.Engine;
+import org.elasticsearch.index.shard.IndexShard;
+import org.elasticsearch.index.shard.ShardId;
+import org.elasticsearch.search.SearchContextMissingException;
+
+import java.io.IOException;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * A point in time of a shard: an {@link Engine.Searcher} that is kept open until it is released or its keep alive
+ * expires so that any number of search requests can be executed against the same view of the shard, possibly in
+ * parallel. Unlike a scroll, it doesn't hold a {@link SearchContext} and is not bound to the parameters of a request.
+ */
+public final class PointInTimeContext extends AbstractRefCounted {
+
+    private final long id;
+    private final IndexShard indexShard;
+    private final Engine.Searcher searcher;
+    private final long segmentsSizeInBytes;
+    private final long originNanoTime = System.nanoTime();
+    private final Map<String, Object> context = new ConcurrentHashMap<>();
+    private volatile long keepAlive;
+    private volatile long lastAccessTime;
+
+    public PointInTimeContext(long id, IndexShard indexShard, Engine.Searcher searcher, long keepAlive,
+                              long lastAccessTime) throws IOException {
+        super("point_in_time");
+        this.id = id;
+        this.indexShard = indexShard;
+        this.searcher = searcher;
+        this.keepAlive = keepAlive;
+        this.lastAccessTime = lastAccessTime;
+        long size = 0;
+        for (LeafReaderContext leaf : searcher.reader().leaves()) {
+            size += Lucene.segmentReader(leaf.reader()).getSegmentInfo().sizeInBytes();
+        }
+        this.segmentsSizeInBytes = size;
+    }
+
+    public long id() {
+        return id;
+    }
+
+    public IndexShard indexShard() {
+        return indexShard;
+    }
+
+    public ShardId shardId() {
+        return indexShard.shardId();
+    }
+
+    /**
+     * Returns the size on disk of the segments that this point in time prevents from being deleted.
+     */
+    public long segmentsSizeInBytes() {
+        return segmentsSizeInBytes;
+    }
+
+    public long getOriginNanoTime() {
+        return originNanoTime;
+    }
+
+    public long keepAlive() {
+        return keepAlive;
+    }
+
+    public void keepAlive(long keepAlive) {
+        this.keepAlive = keepAlive;
+    }
+
+    public long lastAccessTime() {
+        return lastAccessTime;
+    }
+
+    public void accessed(long accessTime) {
+        this.lastAccessTime = accessTime;
+    }
+
+    /**
+     * Returns the object or <code>null</code> if the given key does not have a
+     * value in the context
+     */
+    @SuppressWarnings("unchecked") // (T)object
+    public <T> T getFromContext(String key) {
+        return (T) context.get(key);
+    }
+
+    /**
+     * Puts the object into the context
+     */
+    public void putInContext(String key, Object value) {
+        context.put(key, value);
+    }
+
+    /**
+     * Returns a new {@link Engine.Searcher} over the pinned reader that must be closed once the caller is done with it.
+     * The pinned reader is only released when all the searchers have been closed and the point in time has been freed.
+     *
+     * @throws SearchContextMissingException if the point in time has been freed already
+     */
+    public Engine.Searcher acquireSearcher(String source) {
+        if (tryIncRef() == false) {
+            throw new SearchContextMissingException(id);
+        }
+        return new Engine.Searcher(source, searcher.searcher(), this::decRef);
+    }
+
+    @Override
+    protected void closeInternal() {
+        searcher.close();
+    }
+}
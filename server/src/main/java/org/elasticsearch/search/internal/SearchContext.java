@@ -41,6 +41,7 @@ import org.elasticsearch.index.query.ParsedQuery;
 import org.elasticsearch.index.query.QueryShardContext;
 import org.elasticsearch.index.shard.IndexShard;
 import org.elasticsearch.index.similarity.SimilarityService;
+import org.elasticsearch.indices.IndicesTopDocsCache;
 import org.elasticsearch.search.SearchExtBuilder;
 import org.elasticsearch.search.SearchShardTarget;
 import org.elasticsearch.search.aggregations.SearchContextAggregations;
@@ -88,6 +89,7 @@ public abstract class SearchContext extends AbstractRefCounted implements Releas
     private Map<Lifetime, List<Releasable>> clearables = null;
     private final AtomicBoolean closed = new AtomicBoolean(false);
     private InnerHitsContext innerHitsContext;
+    private IndicesTopDocsCache.ShardRequestCache topDocsCache;
 
     protected SearchContext() {
         super("search_context");
@@ -171,6 +173,19 @@ public abstract class SearchContext extends AbstractRefCounted implements Releas
         return innerHitsContext;
     }
 
+    /**
+     * The per segment cache of the top docs of this request, or <code>null</code> if the top docs of this request
+     * can't be cached.
+     */
+    @Nullable
+    public IndicesTopDocsCache.ShardRequestCache topDocsCache() {
+        return topDocsCache;
+    }
+
+    public void topDocsCache(IndicesTopDocsCache.ShardRequestCache topDocsCache) {
+        this.topDocsCache = topDocsCache;
+    }
+
     public abstract SuggestionSearchContext suggest();
 
     public abstract void suggest(SuggestionSearchContext suggest);
@@ -62,4 +62,9 @@ public abstract class AbstractProfileBreakdown<T extends Enum<T>> {
         }
         return Collections.unmodifiableMap(map);
     }
+
+    /** Extra information about the execution of this node that is not a timing, empty by default. */
+    public Map<String, Long> toDebugMap() {
+        return Collections.emptyMap();
+    }
 }
@@ -21,10 +21,27 @@ package org.elasticsearch.search.profile.aggregation;
 
 import org.elasticsearch.search.profile.AbstractProfileBreakdown;
 
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
 public class AggregationProfileBreakdown extends AbstractProfileBreakdown<AggregationTimingType> {
 
+    private final Map<String, Long> debugInfo = new HashMap<>();
+
     public AggregationProfileBreakdown() {
         super(AggregationTimingType.class);
     }
 
+    /**
+     * Adds extra information about the execution of the aggregator, like the collection strategy that it picked.
+     */
+    public void addDebugInfo(String key, long value) {
+        debugInfo.put(key, value);
+    }
+
+    @Override
+    public Map<String, Long> toDebugMap() {
+        return Collections.unmodifiableMap(new HashMap<>(debugInfo));
+    }
 }
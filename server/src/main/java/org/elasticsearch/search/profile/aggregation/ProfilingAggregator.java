@@ -28,6 +28,7 @@ import org.elasticsearch.search.internal.SearchContext;
 import org.elasticsearch.search.profile.Timer;
 
 import java.io.IOException;
+import java.util.function.BiConsumer;
 
 public class ProfilingAggregator extends Aggregator {
 
@@ -109,6 +110,12 @@ public class ProfilingAggregator extends Aggregator {
     @Override
     public void postCollection() throws IOException {
         delegate.postCollection();
+        delegate.collectDebugInfo(profileBreakdown::addDebugInfo);
+    }
+
+    @Override
+    public void collectDebugInfo(BiConsumer<String, Long> add) {
+        delegate.collectDebugInfo(add);
     }
 
     @Override
@@ -21,6 +21,12 @@ package org.elasticsearch.search.profile.query;
 
 import org.elasticsearch.search.profile.AbstractProfileBreakdown;
 
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.LongSupplier;
+
 /**
  * A record of timings for the various operations that may happen during query execution.
  * A node's time may be composed of several internal attributes (rewriting, weighting,
@@ -28,8 +34,30 @@ import org.elasticsearch.search.profile.AbstractProfileBreakdown;
  */
 public final class QueryProfileBreakdown extends AbstractProfileBreakdown<QueryTimingType> {
 
+    private final Map<String, LongSupplier> debugInfo = new ConcurrentHashMap<>();
+
     /** Sole constructor. */
     public QueryProfileBreakdown() {
         super(QueryTimingType.class);
     }
+
+    /**
+     * Registers extra information about the execution of this query that is read
+     * when the profile results are built, ie. once the query is done executing.
+     */
+    public void addDebugInfo(String key, LongSupplier value) {
+        debugInfo.put(key, value);
+    }
+
+    @Override
+    public Map<String, Long> toDebugMap() {
+        if (debugInfo.isEmpty()) {
+            return Collections.emptyMap();
+        }
+        Map<String, Long> map = new HashMap<>();
+        for (Map.Entry<String, LongSupplier> entry : debugInfo.entrySet()) {
+            map.put(entry.getKey(), entry.getValue().getAsLong());
+        }
+        return Collections.unmodifiableMap(map);
+    }
 }
@@ -28,6 +28,7 @@ import org.apache.lucene.queries.SearchAfterSortedDocQuery;
 import org.apache.lucene.search.BooleanClause;
 import org.apache.lucene.search.BooleanQuery;
 import org.apache.lucene.search.Collector;
+import org.apache.lucene.search.CollectorManager;
 import org.apache.lucene.search.ConstantScoreQuery;
 import org.apache.lucene.search.FieldDoc;
 import org.apache.lucene.search.IndexSearcher;
@@ -36,11 +37,15 @@ import org.apache.lucene.search.Query;
 import org.apache.lucene.search.ScoreDoc;
 import org.apache.lucene.search.Sort;
 import org.apache.lucene.search.TopDocs;
+import org.apache.lucene.search.TopDocsCollector;
 import org.apache.lucene.search.TotalHits;
+import org.apache.lucene.search.Weight;
 import org.elasticsearch.action.search.SearchTask;
+import org.elasticsearch.common.CheckedSupplier;
 import org.elasticsearch.common.lucene.Lucene;
 import org.elasticsearch.common.lucene.search.TopDocsAndMaxScore;
 import org.elasticsearch.common.util.concurrent.QueueResizingEsThreadPoolExecutor;
+import org.elasticsearch.indices.IndicesTopDocsCache;
 import org.elasticsearch.search.DocValueFormat;
 import org.elasticsearch.search.SearchPhase;
 import org.elasticsearch.search.SearchService;
@@ -57,7 +62,11 @@ import org.elasticsearch.search.suggest.SuggestPhase;
 import org.elasticsearch.tasks.TaskCancelledException;
 import org.elasticsearch.threadpool.ThreadPool;
 
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.LinkedList;
+import java.util.List;
 import java.util.concurrent.ExecutorService;
 import java.util.function.Consumer;
 
@@ -175,6 +184,14 @@ public class QueryPhase implements SearchPhase {
                         }
                     }
                 }
+            } else if (canSeekToSearchAfter(searchContext, reader)) {
+                // the search sort is a prefix of the index sort so each segment can directly skip to the first doc
+                // after the search_after cursor instead of visiting all the docs that sort before it
+                query = new BooleanQuery.Builder()
+                    .add(query, BooleanClause.Occur.MUST)
+                    .add(new SearchAfterSortedDocQuery(searchContext.sort().sort, (FieldDoc) searchContext.searchAfter()),
+                        BooleanClause.Occur.FILTER)
+                    .build();
             }
 
             final LinkedList<QueryCollectorContext> collectors = new LinkedList<>();
@@ -267,8 +284,25 @@ public class QueryPhase implements SearchPhase {
                queryCollector = QueryCollectorContext.createQueryCollector(collectors);
             }
 
+            // collectors that filter documents, aggregations and profiling are not thread-safe and their results aren't reduced
+            // across slices, so they require a sequential search
+            final boolean concurrent = searcher instanceof ContextIndexSearcher && ((ContextIndexSearcher) searcher).isConcurrent()
+                && hasFilterCollector == false && searchContext.queryCollectors().isEmpty() && doProfile == false;
+            final CollectorManager<Collector, Void> collectorManager = concurrent ? topDocsFactory.createCollectorManager() : null;
+            // the top docs of each segment can be cached if they are the only thing that is collected
+            final IndicesTopDocsCache.ShardRequestCache topDocsCache = searchContext.topDocsCache();
+            final boolean cacheSegmentTopDocs = topDocsCache != null && searcher instanceof ContextIndexSearcher
+                && hasFilterCollector == false && searchContext.queryCollectors().isEmpty() && doProfile == false
+                && topDocsFactory instanceof TopDocsCollectorContext.SegmentTopDocsCollectorContext;
             try {
-                searcher.search(query, queryCollector);
+                if (cacheSegmentTopDocs) {
+                    searchSegments((ContextIndexSearcher) searcher, query,
+                        (TopDocsCollectorContext.SegmentTopDocsCollectorContext) topDocsFactory, topDocsCache, searchContext.getTask());
+                } else if (collectorManager != null) {
+                    searchConcurrently((ContextIndexSearcher) searcher, query, collectorManager, searchContext.getTask());
+                } else {
+                    searcher.search(query, queryCollector);
+                }
             } catch (EarlyTerminatingCollector.EarlyTerminationException e) {
                 queryResult.terminatedEarly(true);
             } catch (TimeExceededException e) {
@@ -338,5 +372,98 @@ public class QueryPhase implements SearchPhase {
         return true;
     }
 
+    /**
+     * Returns whether the docs that sort before the <code>search_after</code> cursor of the provided <code>searchContext</code>
+     * can be skipped rather than collected. This is the case when the search sort is a prefix of the index sort and nothing
+     * but the top hits is computed from the matching docs. The skipped docs wouldn't be counted, so the optimization is only
+     * enabled if the request doesn't track the total hits or if the total hit count can be computed without collecting the
+     * matching docs, otherwise totals below the <code>track_total_hits</code> threshold would no longer be accurate.
+     */
+    static boolean canSeekToSearchAfter(SearchContext searchContext, IndexReader reader) throws IOException {
+        if (searchContext.searchAfter() == null
+                || searchContext.scrollContext() != null
+                || searchContext.collapse() != null
+                || searchContext.size() == 0
+                || searchContext.terminateAfter() != SearchContext.DEFAULT_TERMINATE_AFTER
+                || searchContext.queryCollectors().isEmpty() == false
+                || canEarlyTerminate(reader, searchContext.sort()) == false) {
+            return false;
+        }
+        if (searchContext.trackTotalHitsUpTo() == SearchContext.TRACK_TOTAL_HITS_DISABLED) {
+            return true;
+        }
+        // the total hit count is computed upfront if no collector filters the matching docs
+        return searchContext.parsedPostFilter() == null
+            && searchContext.minimumScore() == null
+            && TopDocsCollectorContext.shortcutTotalHitCount(reader, searchContext.query()) != -1;
+    }
+
+    /**
+     * Collects the top docs of each segment with its own collector, reusing the top docs that are cached for
+     * the segments that didn't change since they were cached, and merges them into the result of the
+     * <code>topDocsFactory</code>. If the search times out, the top docs of the segments that were collected
+     * until then are merged anyway, like the sequential search does, but the segment that timed out isn't cached.
+     */
+    private static void searchSegments(ContextIndexSearcher searcher, Query query,
+                                       TopDocsCollectorContext.SegmentTopDocsCollectorContext topDocsFactory,
+                                       IndicesTopDocsCache.ShardRequestCache topDocsCache, SearchTask task) throws IOException {
+        final List<LeafReaderContext> leaves = searcher.getIndexReader().leaves();
+        final List<TopDocs> topDocs = new ArrayList<>(leaves.size());
+        // the weight is only needed by the segments that are not cached yet
+        final Weight[] weight = new Weight[1];
+        // the collector of the segment that is being collected
+        final List<TopDocsCollector<?>> current = new ArrayList<>(1);
+        try {
+            for (LeafReaderContext leaf : leaves) {
+                final CheckedSupplier<TopDocs, IOException> loader = () -> {
+                    final TopDocsCollector<?> collector = topDocsFactory.createSegmentCollector();
+                    current.add(collector);
+                    if (weight[0] == null) {
+                        weight[0] = searcher.createWeight(searcher.rewrite(query), collector.scoreMode(), 1f);
+                    }
+                    searcher.searchLeaf(leaf, weight[0], new CancellableCollector(task::isCancelled, collector));
+                    current.clear();
+                    return collector.topDocs();
+                };
+                topDocs.add(IndicesTopDocsCache.isCacheable(leaf) ? topDocsCache.getOrCompute(leaf, loader) : loader.get());
+            }
+        } catch (TimeExceededException e) {
+            for (TopDocsCollector<?> collector : current) {
+                topDocs.add(collector.topDocs());
+            }
+            topDocsFactory.reduceSegmentTopDocs(topDocs.toArray(new TopDocs[0]));
+            throw e;
+        }
+        topDocsFactory.reduceSegmentTopDocs(topDocs.toArray(new TopDocs[0]));
+    }
+
+    /**
+     * Collects the slices of a concurrent search into the given collector manager. If the search times out, the slices are reduced
+     * anyway so that the documents that were collected before the timeout are returned, like the sequential search does.
+     */
+    private static void searchConcurrently(ContextIndexSearcher searcher, Query query, CollectorManager<Collector, Void> collectorManager,
+                                           SearchTask task) throws IOException {
+        final List<Collector> sliceCollectors = new ArrayList<>();
+        try {
+            searcher.searchConcurrently(query, new CollectorManager<Collector, Void>() {
+                @Override
+                public Collector newCollector() throws IOException {
+                    final Collector collector = collectorManager.newCollector();
+                    sliceCollectors.add(collector);
+                    return new CancellableCollector(task::isCancelled, collector);
+                }
+
+                @Override
+                public Void reduce(Collection<Collector> collectors) throws IOException {
+                    return collectorManager.reduce(sliceCollectors);
+                }
+            });
+        } catch (TimeExceededException e) {
+            // all slices are done when the exception is rethrown, their collectors hold what was collected until the timeout
+            collectorManager.reduce(sliceCollectors);
+            throw e;
+        }
+    }
+
     private static class TimeExceededException extends RuntimeException {}
 }
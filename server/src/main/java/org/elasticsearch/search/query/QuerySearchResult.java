@@ -62,6 +62,7 @@ public final class QuerySearchResult extends SearchPhaseResult {
     private boolean hasProfileResults;
     private long serviceTimeEWMA = -1;
     private int nodeQueueSize = -1;
+    private long shardServiceTimeNanos = -1;
 
     public QuerySearchResult() {
     }
@@ -245,6 +246,18 @@ public final class QuerySearchResult extends SearchPhaseResult {
         return this;
     }
 
+    /**
+     * Returns the time it took to execute the query phase on the shard, in nanoseconds, or <code>-1</code> if unknown.
+     */
+    public long shardServiceTimeNanos() {
+        return this.shardServiceTimeNanos;
+    }
+
+    public QuerySearchResult shardServiceTimeNanos(long shardServiceTimeNanos) {
+        this.shardServiceTimeNanos = shardServiceTimeNanos;
+        return this;
+    }
+
     /**
      * Returns <code>true</code> if this result has any suggest score docs
      */
@@ -307,6 +320,9 @@ public final class QuerySearchResult extends SearchPhaseResult {
         hasProfileResults = profileShardResults != null;
         serviceTimeEWMA = in.readZLong();
         nodeQueueSize = in.readInt();
+        if (in.getVersion().onOrAfter(Version.V_8_0_0)) {
+            shardServiceTimeNanos = in.readZLong();
+        }
     }
 
     @Override
@@ -355,6 +371,9 @@ public final class QuerySearchResult extends SearchPhaseResult {
         out.writeOptionalWriteable(profileShardResults);
         out.writeZLong(serviceTimeEWMA);
         out.writeInt(nodeQueueSize);
+        if (out.getVersion().onOrAfter(Version.V_8_0_0)) {
+            out.writeZLong(shardServiceTimeNanos);
+        }
     }
 
     public TotalHits getTotalHits() {
@@ -29,6 +29,7 @@ import org.apache.lucene.index.Term;
 import org.apache.lucene.index.Terms;
 import org.apache.lucene.search.BoostQuery;
 import org.apache.lucene.search.Collector;
+import org.apache.lucene.search.CollectorManager;
 import org.apache.lucene.search.ConstantScoreQuery;
 import org.apache.lucene.search.DocValuesFieldExistsQuery;
 import org.apache.lucene.search.FieldDoc;
@@ -37,6 +38,7 @@ import org.apache.lucene.search.MultiCollector;
 import org.apache.lucene.search.Query;
 import org.apache.lucene.search.ScoreDoc;
 import org.apache.lucene.search.Sort;
+import org.apache.lucene.search.SortField;
 import org.apache.lucene.search.TermQuery;
 import org.apache.lucene.search.TopDocs;
 import org.apache.lucene.search.TopDocsCollector;
@@ -60,6 +62,9 @@ import org.elasticsearch.search.rescore.RescoreContext;
 import org.elasticsearch.search.sort.SortAndFormats;
 
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
 import java.util.Objects;
 import java.util.function.Supplier;
 
@@ -91,6 +96,14 @@ abstract class TopDocsCollectorContext extends QueryCollectorContext {
         return false;
     }
 
+    /**
+     * Returns a {@link CollectorManager} that collects the slices of a concurrent search and reduces them into
+     * the result of this context, or <code>null</code> if this context can only be collected sequentially.
+     */
+    CollectorManager<Collector, Void> createCollectorManager() {
+        return null;
+    }
+
     static class EmptyTopDocsCollectorContext extends TopDocsCollectorContext {
         private final Collector collector;
         private final Supplier<TotalHits> hitCountSupplier;
@@ -201,10 +214,16 @@ abstract class TopDocsCollectorContext extends QueryCollectorContext {
         }
 
         protected final @Nullable SortAndFormats sortAndFormats;
+        private final @Nullable ScoreDoc searchAfter;
+        private final int hitCountThreshold;
+        private final boolean trackMaxScore;
         private final Collector collector;
         private final Supplier<TotalHits> totalHitsSupplier;
         private final Supplier<TopDocs> topDocsSupplier;
         private final Supplier<Float> maxScoreSupplier;
+        // the top docs and max score merged from the slices of a concurrent search, if any
+        private TopDocs mergedTopDocs;
+        private float mergedMaxScore = Float.NaN;
 
         /**
          * Ctr
@@ -227,24 +246,29 @@ abstract class TopDocsCollectorContext extends QueryCollectorContext {
                                               boolean hasFilterCollector) throws IOException {
             super(REASON_SEARCH_TOP_HITS, numHits);
             this.sortAndFormats = sortAndFormats;
+            this.searchAfter = searchAfter;
+            this.trackMaxScore = trackMaxScore;
 
             final TopDocsCollector<?> topDocsCollector;
             if (trackTotalHitsUpTo == SearchContext.TRACK_TOTAL_HITS_DISABLED) {
                 // don't compute hit counts via the collector
-                topDocsCollector = createCollector(sortAndFormats, numHits, searchAfter, 1);
-                topDocsSupplier = new CachedSupplier<>(topDocsCollector::topDocs);
+                hitCountThreshold = 1;
+                topDocsCollector = createCollector(sortAndFormats, numHits, searchAfter, hitCountThreshold);
+                topDocsSupplier = new CachedSupplier<>(() -> mergedTopDocs != null ? mergedTopDocs : topDocsCollector.topDocs());
                 totalHitsSupplier = () -> new TotalHits(0, TotalHits.Relation.GREATER_THAN_OR_EQUAL_TO);
             } else {
                 // implicit total hit counts are valid only when there is no filter collector in the chain
                 final int hitCount = hasFilterCollector ? -1 : shortcutTotalHitCount(reader, query);
                 if (hitCount == -1) {
-                    topDocsCollector = createCollector(sortAndFormats, numHits, searchAfter, trackTotalHitsUpTo);
-                    topDocsSupplier = new CachedSupplier<>(topDocsCollector::topDocs);
+                    hitCountThreshold = trackTotalHitsUpTo;
+                    topDocsCollector = createCollector(sortAndFormats, numHits, searchAfter, hitCountThreshold);
+                    topDocsSupplier = new CachedSupplier<>(() -> mergedTopDocs != null ? mergedTopDocs : topDocsCollector.topDocs());
                     totalHitsSupplier = () -> topDocsSupplier.get().totalHits;
                 } else {
                     // don't compute hit counts via the collector
-                    topDocsCollector = createCollector(sortAndFormats, numHits, searchAfter, 1);
-                    topDocsSupplier = new CachedSupplier<>(topDocsCollector::topDocs);
+                    hitCountThreshold = 1;
+                    topDocsCollector = createCollector(sortAndFormats, numHits, searchAfter, hitCountThreshold);
+                    topDocsSupplier = new CachedSupplier<>(() -> mergedTopDocs != null ? mergedTopDocs : topDocsCollector.topDocs());
                     totalHitsSupplier = () -> new TotalHits(hitCount, TotalHits.Relation.EQUAL_TO);
                 }
             }
@@ -259,14 +283,84 @@ abstract class TopDocsCollectorContext extends QueryCollectorContext {
                     }
                 };
             } else if (trackMaxScore) {
-                maxScoreCollector = new MaxScoreCollector();
-                maxScoreSupplier = maxScoreCollector::getMaxScore;
+                final MaxScoreCollector sequentialMaxScoreCollector = new MaxScoreCollector();
+                maxScoreCollector = sequentialMaxScoreCollector;
+                maxScoreSupplier = () -> mergedTopDocs != null ? mergedMaxScore : sequentialMaxScoreCollector.getMaxScore();
             } else {
                 maxScoreSupplier = () -> Float.NaN;
             }
             this.collector = MultiCollector.wrap(topDocsCollector, maxScoreCollector);
         }
 
+        /**
+         * Returns a {@link CollectorManager} that collects the top docs of each slice of a concurrent search
+         * with its own collector and merges them into the result of this context.
+         */
+        @Override
+        CollectorManager<Collector, Void> createCollectorManager() {
+            return new CollectorManager<Collector, Void>() {
+                private final List<TopDocsCollector<?>> topDocsCollectors = new ArrayList<>();
+                private final List<MaxScoreCollector> maxScoreCollectors = new ArrayList<>();
+
+                @Override
+                public Collector newCollector() {
+                    final TopDocsCollector<?> topDocsCollector = newTopDocsCollector();
+                    topDocsCollectors.add(topDocsCollector);
+                    MaxScoreCollector maxScoreCollector = null;
+                    if (sortAndFormats != null && trackMaxScore) {
+                        maxScoreCollector = new MaxScoreCollector();
+                        maxScoreCollectors.add(maxScoreCollector);
+                    }
+                    return MultiCollector.wrap(topDocsCollector, maxScoreCollector);
+                }
+
+                @Override
+                public Void reduce(Collection<Collector> collectors) {
+                    final TopDocs[] topDocs = new TopDocs[topDocsCollectors.size()];
+                    for (int i = 0; i < topDocs.length; i++) {
+                        topDocs[i] = topDocsCollectors.get(i).topDocs();
+                    }
+                    float maxScore = Float.NaN;
+                    for (MaxScoreCollector maxScoreCollector : maxScoreCollectors) {
+                        final float score = maxScoreCollector.getMaxScore();
+                        if (Float.isNaN(maxScore) || score > maxScore) {
+                            maxScore = score;
+                        }
+                    }
+                    merge(topDocs, maxScore);
+                    return null;
+                }
+            };
+        }
+
+        /**
+         * Returns a new collector for the top docs of a slice or a segment, that is merged into the result of this context
+         * with {@link #merge(TopDocs[], float)}.
+         */
+        final TopDocsCollector<?> newTopDocsCollector() {
+            return createCollector(sortAndFormats, numHits, searchAfter, hitCountThreshold);
+        }
+
+        final void merge(TopDocs[] topDocs, float maxScore) {
+            final TopDocs merged;
+            if (sortAndFormats == null) {
+                merged = TopDocs.merge(0, numHits, topDocs, true);
+            } else {
+                final TopFieldDocs[] topFieldDocs = new TopFieldDocs[topDocs.length];
+                for (int i = 0; i < topDocs.length; i++) {
+                    topFieldDocs[i] = (TopFieldDocs) topDocs[i];
+                }
+                merged = TopDocs.merge(sortAndFormats.sort, 0, numHits, topFieldDocs, true);
+            }
+            // slices and segments are in doc id order so tie-breaking on their index is equivalent to tie-breaking
+            // on the doc id, the shard index is set by the coordinating node
+            for (ScoreDoc scoreDoc : merged.scoreDocs) {
+                scoreDoc.shardIndex = -1;
+            }
+            mergedMaxScore = maxScore;
+            mergedTopDocs = merged;
+        }
+
         @Override
         Collector create(Collector in) {
             assert in == null;
@@ -312,6 +406,12 @@ abstract class TopDocsCollectorContext extends QueryCollectorContext {
             this.numberOfShards = numberOfShards;
         }
 
+        @Override
+        CollectorManager<Collector, Void> createCollectorManager() {
+            // scroll contexts keep track of the last emitted doc which requires a sequential collection
+            return null;
+        }
+
         @Override
         void postProcess(QuerySearchResult result) throws IOException {
             final TopDocsAndMaxScore topDocs = newTopDocs();
@@ -336,6 +436,56 @@ abstract class TopDocsCollectorContext extends QueryCollectorContext {
         }
     }
 
+    /**
+     * A {@link SimpleTopDocsCollectorContext} whose top docs only depend on the content of each segment, so that they can
+     * be collected segment by segment with {@link #createSegmentCollector()} and cached per segment.
+     */
+    static final class SegmentTopDocsCollectorContext extends SimpleTopDocsCollectorContext {
+
+        private SegmentTopDocsCollectorContext(IndexReader reader,
+                                               Query query,
+                                               SortAndFormats sortAndFormats,
+                                               @Nullable ScoreDoc searchAfter,
+                                               int numHits,
+                                               int trackTotalHitsUpTo,
+                                               boolean hasFilterCollector) throws IOException {
+            super(reader, query, sortAndFormats, searchAfter, numHits, false, trackTotalHitsUpTo, hasFilterCollector);
+            assert canCacheSegmentTopDocs(sortAndFormats, false);
+        }
+
+        /**
+         * Returns a collector for the top docs of a single segment.
+         */
+        TopDocsCollector<?> createSegmentCollector() {
+            return newTopDocsCollector();
+        }
+
+        /**
+         * Merges the top docs of the provided segments, in doc id order, into the result of this context.
+         */
+        void reduceSegmentTopDocs(TopDocs[] topDocs) {
+            merge(topDocs, Float.NaN);
+        }
+
+        /**
+         * Returns true if the top docs of a segment only depend on the content of that segment when they are sorted
+         * by <code>sortAndFormats</code>.
+         */
+        static boolean canCacheSegmentTopDocs(@Nullable SortAndFormats sortAndFormats, boolean trackScores) {
+            // scores depend on the statistics of the whole shard
+            if (sortAndFormats == null || sortAndFormats.sort.needsScores() || trackScores) {
+                return false;
+            }
+            for (SortField sortField : sortAndFormats.sort.getSort()) {
+                if (sortField.getType() == SortField.Type.DOC) {
+                    // the sort values are top level doc ids that change with every refresh
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+
     /**
      * Returns query total hit count if the <code>query</code> is a {@link MatchAllDocsQuery}
      * or a {@link TermQuery} and the <code>reader</code> has no deletions,
@@ -428,6 +578,11 @@ abstract class TopDocsCollectorContext extends QueryCollectorContext {
                     numDocs = Math.max(numDocs, rescoreContext.getWindowSize());
                 }
             }
+            if (rescore == false && SegmentTopDocsCollectorContext.canCacheSegmentTopDocs(searchContext.sort(),
+                    searchContext.trackScores())) {
+                return new SegmentTopDocsCollectorContext(reader, query, searchContext.sort(), searchContext.searchAfter(), numDocs,
+                    searchContext.trackTotalHitsUpTo(), hasFilterCollector);
+            }
             return new SimpleTopDocsCollectorContext(reader, query, searchContext.sort(), searchContext.searchAfter(), numDocs,
                 searchContext.trackScores(), searchContext.trackTotalHitsUpTo(), hasFilterCollector) {
                 @Override
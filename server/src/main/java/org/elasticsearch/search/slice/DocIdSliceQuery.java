@@ -0,0 +1,79 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.search.slice;
+
+import org.apache.lucene.index.LeafReaderContext;
+import org.apache.lucene.search.ConstantScoreScorer;
+import org.apache.lucene.search.ConstantScoreWeight;
+import org.apache.lucene.search.DocIdSetIterator;
+import org.apache.lucene.search.IndexSearcher;
+import org.apache.lucene.search.ScoreMode;
+import org.apache.lucene.search.Scorer;
+import org.apache.lucene.search.Weight;
+
+import java.io.IOException;
+
+/**
+ * A {@link SliceQuery} that partitions the documents of a reader in contiguous ranges of doc ids.
+ * The doc id space of the top level reader is split in {@code max} ranges of (almost) equal size so each slice
+ * only visits its own part of the segments, sequentially, instead of checking every document of the shard
+ * against a hash function.
+ *
+ * <b>NOTE</b>: Doc ids are only stable for a given reader so all the slices must be executed against the same
+ * reader (e.g. a scroll).
+ */
+public final class DocIdSliceQuery extends SliceQuery {
+    public DocIdSliceQuery(int id, int max) {
+        super(SliceBuilder.DOC_FIELD_NAME, id, max);
+    }
+
+    @Override
+    public Weight createWeight(IndexSearcher searcher, ScoreMode scoreMode, float boost) throws IOException {
+        final int maxDoc = searcher.getIndexReader().maxDoc();
+        final int minDoc = sliceBoundary(getId(), getMax(), maxDoc);
+        final int maxDocExclusive = sliceBoundary(getId() + 1, getMax(), maxDoc);
+        return new ConstantScoreWeight(this, boost) {
+
+            @Override
+            public Scorer scorer(LeafReaderContext context) throws IOException {
+                final int leafMin = Math.max(minDoc - context.docBase, 0);
+                final int leafMax = Math.min(maxDocExclusive - context.docBase, context.reader().maxDoc());
+                if (leafMin >= leafMax) {
+                    return null;
+                }
+                return new ConstantScoreScorer(this, score(), scoreMode, DocIdSetIterator.range(leafMin, leafMax));
+            }
+
+            @Override
+            public boolean isCacheable(LeafReaderContext ctx) {
+                // the range depends on the top level reader, not only on the segment
+                return false;
+            }
+        };
+    }
+
+    /**
+     * Returns the first doc id (inclusive) of the slice {@code slice} when {@code maxDoc} documents are split in
+     * {@code numSlices} slices.
+     */
+    static int sliceBoundary(int slice, int numSlices, int maxDoc) {
+        return (int) ((long) slice * maxDoc / numSlices);
+    }
+}
@@ -60,6 +60,8 @@ import java.util.Set;
  *  then the slices 0 and 2 are assigned to the first shard and the slices 1 and 3 are assigned to the second shard.
  *  This way the total number of bitsets that we need to build on each shard is bounded by the number of slices
  *  (instead of {@code numShards*numSlices}).
+ *  If the provided field is "_doc", which requires a point in time, a {@link org.elasticsearch.search.slice.DocIdSliceQuery}
+ *  is used to split the shard in contiguous ranges of doc ids so that each slice only scans its own part of the segments.
  *  Otherwise the provided field must be a numeric and doc_values must be enabled. In that case a
  *  {@link org.elasticsearch.search.slice.DocValuesSliceQuery} is used to filter the results.
  */
@@ -67,6 +69,9 @@ public class SliceBuilder implements Writeable, ToXContentObject {
 
     private static final DeprecationLogger DEPRECATION_LOG = new DeprecationLogger(LogManager.getLogger(SliceBuilder.class));
 
+    /** Pseudo field name used to slice a point in time on contiguous ranges of doc ids */
+    public static final String DOC_FIELD_NAME = "_doc";
+
     public static final ParseField FIELD_FIELD = new ParseField("field");
     public static final ParseField ID_FIELD = new ParseField("id");
     public static final ParseField MAX_FIELD = new ParseField("max");
@@ -218,8 +223,8 @@ public class SliceBuilder implements Writeable, ToXContentObject {
      * @param context Additional information needed to build the query
      */
     public Query toFilter(ClusterService clusterService, ShardSearchRequest request, QueryShardContext context, Version minNodeVersion) {
-        final MappedFieldType type = context.fieldMapper(field);
-        if (type == null) {
+        final MappedFieldType type = DOC_FIELD_NAME.equals(field) ? null : context.fieldMapper(field);
+        if (type == null && DOC_FIELD_NAME.equals(field) == false) {
             throw new IllegalArgumentException("field " + field + " not found");
         }
 
@@ -267,6 +272,11 @@ public class SliceBuilder implements Writeable, ToXContentObject {
             useTermQuery = true;
         } else if (IdFieldMapper.NAME.equals(field)) {
             useTermQuery = true;
+        } else if (DOC_FIELD_NAME.equals(field)) {
+            // doc ids are only stable for a given reader, which only the slices of a point in time share
+            if (request.source() == null || request.source().pointInTimeBuilder() == null) {
+                throw new IllegalArgumentException("Computing slices on the [" + DOC_FIELD_NAME + "] field requires a point in time");
+            }
         } else if (type.hasDocValues() == false) {
             throw new IllegalArgumentException("cannot load numeric doc values on " + field);
         } else {
@@ -277,8 +287,7 @@ public class SliceBuilder implements Writeable, ToXContentObject {
         }
 
         if (numShards == 1) {
-            return useTermQuery ? new TermsSliceQuery(field, id, max) :
-                new DocValuesSliceQuery(field, id, max);
+            return createSliceQuery(field, useTermQuery, id, max);
         }
         if (max >= numShards) {
             // the number of slices is greater than the number of shards
@@ -304,9 +313,7 @@ public class SliceBuilder implements Writeable, ToXContentObject {
             // get the new slice id for this shard
             int shardSlice = id / numShards;
 
-            return useTermQuery ?
-                new TermsSliceQuery(field, shardSlice, numSlicesInShard) :
-                new DocValuesSliceQuery(field, shardSlice, numSlicesInShard);
+            return createSliceQuery(field, useTermQuery, shardSlice, numSlicesInShard);
         }
         // the number of shards is greater than the number of slices
 
@@ -319,6 +326,16 @@ public class SliceBuilder implements Writeable, ToXContentObject {
         return new MatchAllDocsQuery();
     }
 
+    private static SliceQuery createSliceQuery(String field, boolean useTermQuery, int id, int max) {
+        if (useTermQuery) {
+            return new TermsSliceQuery(field, id, max);
+        } else if (DOC_FIELD_NAME.equals(field)) {
+            return new DocIdSliceQuery(id, max);
+        } else {
+            return new DocValuesSliceQuery(field, id, max);
+        }
+    }
+
     /**
      * Returns the {@link GroupShardsIterator} for the provided <code>request</code>.
      */
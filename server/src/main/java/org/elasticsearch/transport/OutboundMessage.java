@@ -19,9 +19,12 @@
 package org.elasticsearch.transport;
 
 import org.elasticsearch.Version;
+import org.elasticsearch.common.Nullable;
 import org.elasticsearch.common.bytes.BytesArray;
 import org.elasticsearch.common.bytes.BytesReference;
 import org.elasticsearch.common.bytes.CompositeBytesReference;
+import org.elasticsearch.common.compress.Compressor;
+import org.elasticsearch.common.compress.CompressorFactory;
 import org.elasticsearch.common.io.stream.BytesStreamOutput;
 import org.elasticsearch.common.io.stream.StreamOutput;
 import org.elasticsearch.common.io.stream.Writeable;
@@ -33,10 +36,13 @@ import java.util.Set;
 abstract class OutboundMessage extends NetworkMessage implements Writeable {
 
     private final Writeable message;
+    private final Compressor compressor;
 
-    OutboundMessage(ThreadContext threadContext, Version version, byte status, long requestId, Writeable message) {
+    OutboundMessage(ThreadContext threadContext, Version version, byte status, long requestId, Writeable message,
+                    @Nullable Compressor compressor) {
         super(threadContext, version, status, requestId);
         this.message = message;
+        this.compressor = compressor;
     }
 
     BytesReference serialize(BytesStreamOutput bytesStream) throws IOException {
@@ -46,7 +52,8 @@ abstract class OutboundMessage extends NetworkMessage implements Writeable {
 
         // The compressible bytes stream will not close the underlying bytes stream
         BytesReference reference;
-        try (CompressibleBytesOutputStream stream = new CompressibleBytesOutputStream(bytesStream, TransportStatus.isCompress(status))) {
+        try (CompressibleBytesOutputStream stream = new CompressibleBytesOutputStream(bytesStream,
+                TransportStatus.isCompress(status) ? compressor : null)) {
             stream.setVersion(version);
             threadContext.writeTo(stream);
             writeTo(stream);
@@ -90,7 +97,12 @@ abstract class OutboundMessage extends NetworkMessage implements Writeable {
 
         Request(ThreadContext threadContext, String[] features, Writeable message, Version version, String action, long requestId,
                 boolean isHandshake, boolean compress) {
-            super(threadContext, version, setStatus(compress, isHandshake, message), requestId, message);
+            this(threadContext, features, message, version, action, requestId, isHandshake, compress ? CompressorFactory.COMPRESSOR : null);
+        }
+
+        Request(ThreadContext threadContext, String[] features, Writeable message, Version version, String action, long requestId,
+                boolean isHandshake, @Nullable Compressor compressor) {
+            super(threadContext, version, setStatus(compressor != null, isHandshake, message), requestId, message, compressor);
             this.features = features;
             this.action = action;
         }
@@ -121,7 +133,12 @@ abstract class OutboundMessage extends NetworkMessage implements Writeable {
 
         Response(ThreadContext threadContext, Set<String> features, Writeable message, Version version, long requestId,
                  boolean isHandshake, boolean compress) {
-            super(threadContext, version, setStatus(compress, isHandshake, message), requestId, message);
+            this(threadContext, features, message, version, requestId, isHandshake, compress ? CompressorFactory.COMPRESSOR : null);
+        }
+
+        Response(ThreadContext threadContext, Set<String> features, Writeable message, Version version, long requestId,
+                 boolean isHandshake, @Nullable Compressor compressor) {
+            super(threadContext, version, setStatus(compressor != null, isHandshake, message), requestId, message, compressor);
             this.features = features;
         }
 
@@ -20,7 +20,9 @@
 package org.elasticsearch.transport;
 
 import org.elasticsearch.Version;
+import org.elasticsearch.common.Nullable;
 import org.elasticsearch.common.breaker.CircuitBreaker;
+import org.elasticsearch.common.compress.Compressor;
 import org.elasticsearch.indices.breaker.CircuitBreakerService;
 
 import java.io.IOException;
@@ -38,10 +40,11 @@ public final class TcpTransportChannel implements TransportChannel {
     private final Set<String> features;
     private final CircuitBreakerService breakerService;
     private final long reservedBytes;
-    private final boolean compressResponse;
+    private final Compressor responseCompressor;
 
     TcpTransportChannel(OutboundHandler outboundHandler, TcpChannel channel, String action, long requestId, Version version,
-                        Set<String> features, CircuitBreakerService breakerService, long reservedBytes, boolean compressResponse) {
+                        Set<String> features, CircuitBreakerService breakerService, long reservedBytes,
+                        @Nullable Compressor responseCompressor) {
         this.version = version;
         this.features = features;
         this.channel = channel;
@@ -50,7 +53,7 @@ public final class TcpTransportChannel implements TransportChannel {
         this.requestId = requestId;
         this.breakerService = breakerService;
         this.reservedBytes = reservedBytes;
-        this.compressResponse = compressResponse;
+        this.responseCompressor = responseCompressor;
     }
 
     @Override
@@ -61,7 +64,7 @@ public final class TcpTransportChannel implements TransportChannel {
     @Override
     public void sendResponse(TransportResponse response) throws IOException {
         try {
-            outboundHandler.sendResponse(version, features, channel, requestId, action, response, compressResponse, false);
+            outboundHandler.sendResponse(version, features, channel, requestId, action, response, responseCompressor, false);
         } finally {
             release(false);
         }
@@ -25,6 +25,8 @@ import java.io.IOException;
 
 public abstract class TransportResponse extends TransportMessage {
 
+    private int serializedSize = -1;
+
     /**
      * Constructs a new empty transport response
      */
@@ -40,6 +42,20 @@ public abstract class TransportResponse extends TransportMessage {
         super(in);
     }
 
+    /**
+     * Sets the number of bytes that this response took on the wire.
+     */
+    public void serializedSize(int serializedSize) {
+        this.serializedSize = serializedSize;
+    }
+
+    /**
+     * Returns the number of bytes that this response took on the wire, or <code>-1</code> if it wasn't received from a remote node.
+     */
+    public int serializedSize() {
+        return serializedSize;
+    }
+
     public static class Empty extends TransportResponse {
         public static final Empty INSTANCE = new Empty();
 
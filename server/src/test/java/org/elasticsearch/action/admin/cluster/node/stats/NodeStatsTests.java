@@ -26,6 +26,7 @@ import org.elasticsearch.discovery.DiscoveryStats;
 import org.elasticsearch.cluster.coordination.PendingClusterStateStats;
 import org.elasticsearch.cluster.coordination.PublishClusterStateStats;
 import org.elasticsearch.http.HttpStats;
+import org.elasticsearch.index.shard.ShardId;
 import org.elasticsearch.indices.breaker.AllCircuitBreakerStats;
 import org.elasticsearch.indices.breaker.CircuitBreakerStats;
 import org.elasticsearch.ingest.IngestStats;
@@ -310,6 +311,20 @@ public class NodeStatsTests extends ESTestCase {
                         assertEquals(aStats.serviceTime, bStats.serviceTime, 0.01);
                         assertEquals(aStats.responseTime, bStats.responseTime, 0.01);
                     });
+                    assertEquals(adaptiveStats.getShardCopyComputedStats().keySet(),
+                        deserializedAdaptiveStats.getShardCopyComputedStats().keySet());
+                    adaptiveStats.getShardCopyComputedStats().forEach((k, v) -> {
+                        List<ResponseCollectorService.ComputedShardCopyStats> bStats =
+                            deserializedAdaptiveStats.getShardCopyComputedStats().get(k);
+                        assertEquals(v.size(), bStats.size());
+                        for (int i = 0; i < v.size(); i++) {
+                            assertEquals(v.get(i).nodeId, bStats.get(i).nodeId);
+                            assertEquals(v.get(i).shardId, bStats.get(i).shardId);
+                            assertEquals(v.get(i).responseTime, bStats.get(i).responseTime, 0.01);
+                            assertEquals(v.get(i).p95ResponseTime, bStats.get(i).p95ResponseTime, 0.01);
+                            assertEquals(v.get(i).serviceTime, bStats.get(i).serviceTime, 0.01);
+                        }
+                    });
                 }
             }
         }
@@ -467,6 +482,7 @@ public class NodeStatsTests extends ESTestCase {
             int numNodes = randomIntBetween(0,10);
             Map<String, Long> nodeConnections = new HashMap<>();
             Map<String, ResponseCollectorService.ComputedNodeStats> nodeStats = new HashMap<>();
+            Map<String, List<ResponseCollectorService.ComputedShardCopyStats>> shardCopyStats = new HashMap<>();
             for (int i = 0; i < numNodes; i++) {
                 String nodeId = randomAlphaOfLengthBetween(3, 10);
                 // add outgoing connection info
@@ -481,8 +497,20 @@ public class NodeStatsTests extends ESTestCase {
                             randomDoubleBetween(1.0, 10000000.0, true));
                     nodeStats.put(nodeId, stats);
                 }
+                // add shard copy calculations
+                if (randomBoolean()) {
+                    List<ResponseCollectorService.ComputedShardCopyStats> copies = new ArrayList<>();
+                    int numShards = randomIntBetween(1, 5);
+                    for (int shard = 0; shard < numShards; shard++) {
+                        double responseTime = randomDoubleBetween(1.0, 10000000.0, true);
+                        copies.add(new ResponseCollectorService.ComputedShardCopyStats(nodeId, new ShardId("index", "_na_", shard),
+                            responseTime, responseTime + randomDoubleBetween(0.0, 10000000.0, true),
+                            randomBoolean() ? -1 : randomDoubleBetween(1.0, responseTime, true)));
+                    }
+                    shardCopyStats.put(nodeId, copies);
+                }
             }
-            adaptiveSelectionStats = new AdaptiveSelectionStats(nodeConnections, nodeStats);
+            adaptiveSelectionStats = new AdaptiveSelectionStats(nodeConnections, nodeStats, shardCopyStats);
         }
         //TODO NodeIndicesStats are not tested here, way too complicated to create, also they need to be migrated to Writeable yet
         return new NodeStats(node, randomNonNegativeLong(), null, osStats, processStats, jvmStats, threadPoolStats,
@@ -20,11 +20,18 @@
 package org.elasticsearch.action.bulk;
 
 import org.elasticsearch.common.bytes.BytesArray;
+import org.elasticsearch.common.bytes.BytesReference;
+import org.elasticsearch.common.io.stream.BytesStreamOutput;
+import org.elasticsearch.common.xcontent.XContentBuilder;
+import org.elasticsearch.common.xcontent.XContentFactory;
 import org.elasticsearch.common.xcontent.XContentType;
 import org.elasticsearch.rest.action.document.RestBulkAction;
 import org.elasticsearch.test.ESTestCase;
 
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
 import java.util.concurrent.atomic.AtomicBoolean;
 
 public class BulkRequestParserTests extends ESTestCase {
@@ -111,4 +118,67 @@ public class BulkRequestParserTests extends ESTestCase {
         assertWarnings(RestBulkAction.TYPES_DEPRECATION_MESSAGE);
     }
 
+    public void testLengthPrefixed() throws IOException {
+        XContentType headerType = randomFrom(XContentType.SMILE, XContentType.CBOR, XContentType.JSON);
+        BytesReference source = BytesReference.bytes(XContentFactory.contentBuilder(XContentType.JSON).startObject()
+            .field("field", "value").endObject());
+        BytesStreamOutput out = new BytesStreamOutput();
+        writeEntry(out, BytesReference.bytes(XContentFactory.contentBuilder(headerType).startObject()
+            .startObject("index").field("_id", "1").field("routing", "r").endObject().endObject()));
+        writeEntry(out, source);
+        writeEntry(out, BytesReference.bytes(XContentFactory.contentBuilder(headerType).startObject()
+            .startObject("delete").field("_id", "2").endObject().endObject()));
+        writeEntry(out, BytesReference.bytes(XContentFactory.contentBuilder(headerType).startObject()
+            .startObject("update").field("_id", "3").endObject().endObject()));
+        writeEntry(out, BytesReference.bytes(XContentFactory.contentBuilder(XContentType.SMILE).startObject()
+            .startObject("doc").field("field", "value").endObject().endObject()));
+        BytesReference request = out.bytes();
+
+        BulkRequestParser parser = new BulkRequestParser(randomBoolean());
+        List<String> parsed = new ArrayList<>();
+        parser.parseLengthPrefixed(request, "foo", null, null, null, null, false, headerType,
+                indexRequest -> {
+                    assertEquals("foo", indexRequest.index());
+                    assertEquals("1", indexRequest.id());
+                    assertEquals("r", indexRequest.routing());
+                    assertEquals(XContentType.JSON, indexRequest.getContentType());
+                    assertEquals(source, indexRequest.source());
+                    parsed.add("index");
+                },
+                updateRequest -> {
+                    assertEquals("3", updateRequest.id());
+                    assertEquals("value", updateRequest.doc().sourceAsMap().get("field"));
+                    parsed.add("update");
+                },
+                deleteRequest -> {
+                    assertEquals("2", deleteRequest.id());
+                    parsed.add("delete");
+                });
+        assertEquals(Arrays.asList("index", "delete", "update"), parsed);
+    }
+
+    public void testLengthPrefixedTruncated() throws IOException {
+        BytesStreamOutput out = new BytesStreamOutput();
+        writeEntry(out, BytesReference.bytes(XContentFactory.contentBuilder(XContentType.SMILE).startObject()
+            .startObject("index").field("_id", "1").endObject().endObject()));
+        out.writeInt(42);
+        out.writeByte((byte) '{');
+        BulkRequestParser parser = new BulkRequestParser(randomBoolean());
+        IllegalArgumentException e = expectThrows(IllegalArgumentException.class,
+                () -> parser.parseLengthPrefixed(out.bytes(), "foo", null, null, null, null, false, XContentType.SMILE,
+                        req -> fail(), req -> fail(), req -> fail()));
+        assertEquals("Malformed length-prefixed bulk request, entry [2] has a length of [42] but only [1] bytes are left", e.getMessage());
+
+        BytesReference truncatedLength = new BytesArray(new byte[] { 0, 0 });
+        e = expectThrows(IllegalArgumentException.class,
+                () -> parser.parseLengthPrefixed(truncatedLength, "foo", null, null, null, null, false, XContentType.SMILE,
+                        req -> fail(), req -> fail(), req -> fail()));
+        assertEquals("Malformed length-prefixed bulk request, entry [1] is truncated", e.getMessage());
+    }
+
+    private static void writeEntry(BytesStreamOutput out, BytesReference entry) throws IOException {
+        out.writeInt(entry.length());
+        entry.writeTo(out);
+    }
+
 }
@@ -38,10 +38,13 @@ import org.elasticsearch.client.Requests;
 import org.elasticsearch.cluster.metadata.IndexMetaData;
 import org.elasticsearch.common.lucene.uid.Versions;
 import org.elasticsearch.common.settings.Settings;
+import org.elasticsearch.common.util.concurrent.EsExecutors;
+import org.elasticsearch.common.xcontent.XContentType;
 import org.elasticsearch.index.IndexSettings;
 import org.elasticsearch.index.VersionType;
 import org.elasticsearch.index.engine.Engine;
 import org.elasticsearch.index.engine.VersionConflictEngineException;
+import org.elasticsearch.index.mapper.MapperParsingException;
 import org.elasticsearch.index.mapper.Mapping;
 import org.elasticsearch.index.mapper.MetadataFieldMapper;
 import org.elasticsearch.index.seqno.SequenceNumbers;
@@ -50,10 +53,15 @@ import org.elasticsearch.index.shard.IndexShardTestCase;
 import org.elasticsearch.index.shard.ShardId;
 import org.elasticsearch.index.translog.Translog;
 import org.elasticsearch.rest.RestStatus;
+import org.elasticsearch.threadpool.ThreadPool;
 
 import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
 import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.atomic.AtomicInteger;
 
 import static org.elasticsearch.action.bulk.TransportShardBulkAction.replicaItemExecutionMode;
@@ -62,6 +70,7 @@ import static org.hamcrest.CoreMatchers.not;
 import static org.hamcrest.CoreMatchers.notNullValue;
 import static org.hamcrest.Matchers.arrayWithSize;
 import static org.hamcrest.Matchers.containsString;
+import static org.hamcrest.Matchers.instanceOf;
 import static org.hamcrest.Matchers.nullValue;
 import static org.mockito.Matchers.any;
 import static org.mockito.Matchers.anyBoolean;
@@ -272,7 +281,7 @@ public class TransportShardBulkActionTests extends IndexShardTestCase {
         Engine.IndexResult success = new FakeIndexResult(1, 1, 13, true, resultLocation);
 
         IndexShard shard = mock(IndexShard.class);
-        when(shard.applyIndexOperationOnPrimary(anyLong(), any(), any(), anyLong(), anyLong(), anyLong(), anyBoolean()))
+        when(shard.applyIndexOperationOnPrimary(anyLong(), any(), any(), anyLong(), anyLong(), anyLong(), anyBoolean(), any()))
             .thenReturn(mappingUpdate);
 
         randomlySetIgnoredPrimaryResponse(items[0]);
@@ -292,9 +301,9 @@ public class TransportShardBulkActionTests extends IndexShardTestCase {
         assertThat("mappings were \"updated\" once", updateCalled.get(), equalTo(1));
 
         // Verify that the shard "executed" the operation once
-        verify(shard, times(1)).applyIndexOperationOnPrimary(anyLong(), any(), any(), anyLong(), anyLong(), anyLong(), anyBoolean());
+        verify(shard, times(1)).applyIndexOperationOnPrimary(anyLong(), any(), any(), anyLong(), anyLong(), anyLong(), anyBoolean(), any());
 
-        when(shard.applyIndexOperationOnPrimary(anyLong(), any(), any(), anyLong(), anyLong(), anyLong(), anyBoolean()))
+        when(shard.applyIndexOperationOnPrimary(anyLong(), any(), any(), anyLong(), anyLong(), anyLong(), anyBoolean(), any()))
             .thenReturn(success);
 
         TransportShardBulkAction.executeBulkItemRequest(context, null, threadPool::absoluteTimeInMillis,
@@ -303,7 +312,7 @@ public class TransportShardBulkActionTests extends IndexShardTestCase {
 
         // Verify that the shard "executed" the operation only once (1 for previous invocations plus
         // 1 for this execution)
-        verify(shard, times(2)).applyIndexOperationOnPrimary(anyLong(), any(), any(), anyLong(), anyLong(), anyLong(), anyBoolean());
+        verify(shard, times(2)).applyIndexOperationOnPrimary(anyLong(), any(), any(), anyLong(), anyLong(), anyLong(), anyBoolean(), any());
 
 
         BulkItemResponse primaryResponse = bulkShardRequest.items()[0].getPrimaryResponse();
@@ -504,7 +513,7 @@ public class TransportShardBulkActionTests extends IndexShardTestCase {
         Exception err = new ElasticsearchException("I'm dead <(x.x)>");
         Engine.IndexResult indexResult = new Engine.IndexResult(err, 0, 0, 0);
         IndexShard shard = mock(IndexShard.class);
-        when(shard.applyIndexOperationOnPrimary(anyLong(), any(), any(), anyLong(), anyLong(), anyLong(), anyBoolean()))
+        when(shard.applyIndexOperationOnPrimary(anyLong(), any(), any(), anyLong(), anyLong(), anyLong(), anyBoolean(), any()))
             .thenReturn(indexResult);
         when(shard.indexSettings()).thenReturn(indexSettings);
 
@@ -554,7 +563,7 @@ public class TransportShardBulkActionTests extends IndexShardTestCase {
             "I'm conflicted <(;_;)>");
         Engine.IndexResult indexResult = new Engine.IndexResult(err, 0, 0, 0);
         IndexShard shard = mock(IndexShard.class);
-        when(shard.applyIndexOperationOnPrimary(anyLong(), any(), any(), anyLong(), anyLong(), anyLong(), anyBoolean()))
+        when(shard.applyIndexOperationOnPrimary(anyLong(), any(), any(), anyLong(), anyLong(), anyLong(), anyBoolean(), any()))
             .thenReturn(indexResult);
         when(shard.indexSettings()).thenReturn(indexSettings);
 
@@ -601,7 +610,7 @@ public class TransportShardBulkActionTests extends IndexShardTestCase {
         Translog.Location resultLocation = new Translog.Location(42, 42, 42);
         Engine.IndexResult indexResult = new FakeIndexResult(1, 1, 13, created, resultLocation);
         IndexShard shard = mock(IndexShard.class);
-        when(shard.applyIndexOperationOnPrimary(anyLong(), any(), any(), anyLong(), anyLong(), anyLong(), anyBoolean()))
+        when(shard.applyIndexOperationOnPrimary(anyLong(), any(), any(), anyLong(), anyLong(), anyLong(), anyBoolean(), any()))
             .thenReturn(indexResult);
         when(shard.indexSettings()).thenReturn(indexSettings);
 
@@ -793,16 +802,17 @@ public class TransportShardBulkActionTests extends IndexShardTestCase {
         Engine.IndexResult success = new FakeIndexResult(1, 1, 13, true, resultLocation);
 
         IndexShard shard = mock(IndexShard.class);
-        when(shard.applyIndexOperationOnPrimary(anyLong(), any(), any(), anyLong(), anyLong(), anyLong(), anyBoolean())).thenAnswer(ir -> {
-            if (randomBoolean()) {
-                return conflictedResult;
-            }
-            if (randomBoolean()) {
-                return mappingUpdate;
-            } else {
-                return success;
-            }
-        });
+        when(shard.applyIndexOperationOnPrimary(anyLong(), any(), any(), anyLong(), anyLong(), anyLong(), anyBoolean(), any()))
+            .thenAnswer(ir -> {
+                if (randomBoolean()) {
+                    return conflictedResult;
+                }
+                if (randomBoolean()) {
+                    return mappingUpdate;
+                } else {
+                    return success;
+                }
+            });
         when(shard.indexSettings()).thenReturn(indexSettings);
 
         UpdateHelper updateHelper = mock(UpdateHelper.class);
@@ -828,6 +838,105 @@ public class TransportShardBulkActionTests extends IndexShardTestCase {
         assertThat(response.getSeqNo(), equalTo(13L));
     }
 
+    public void testParallelParsing() throws Exception {
+        IndexShard shard = newStartedShard(true);
+        indexDoc(shard, "_doc", "existing", "{\"foo\":\"bar\"}");
+
+        final int numItems = randomIntBetween(2, 64);
+        final BulkItemRequest[] items = new BulkItemRequest[numItems];
+        final boolean[] expectFailure = new boolean[numItems];
+        final Set<String> expectedIds = new HashSet<>(Collections.singleton("existing"));
+        for (int i = 0; i < numItems; i++) {
+            final String id = "id_" + i;
+            final DocWriteRequest<?> request;
+            switch (expectedIds.isEmpty() ? 3 : randomIntBetween(0, 9)) {
+                case 0:
+                    // requires a dynamic mapping update
+                    request = new IndexRequest("index", "_doc", id).source(Requests.INDEX_CONTENT_TYPE, "field_" + i, "value");
+                    expectedIds.add(id);
+                    break;
+                case 1:
+                    request = new IndexRequest("index", "_doc", id).source("{\"foo\":", XContentType.JSON);
+                    expectFailure[i] = true;
+                    break;
+                case 2:
+                    final String toDelete = randomFrom(expectedIds);
+                    request = new DeleteRequest("index", "_doc", toDelete);
+                    expectedIds.remove(toDelete);
+                    break;
+                default:
+                    request = new IndexRequest("index", "_doc", id).source(Requests.INDEX_CONTENT_TYPE, "foo", randomAlphaOfLength(5))
+                        .create(randomBoolean());
+                    expectedIds.add(id);
+                    break;
+            }
+            items[i] = new BulkItemRequest(i, request);
+        }
+        BulkShardRequest bulkShardRequest = new BulkShardRequest(shardId, RefreshPolicy.NONE, items);
+
+        WritePrimaryResult<BulkShardRequest, BulkShardResponse> result = TransportShardBulkAction.performOnPrimary(
+            bulkShardRequest, shard, null, threadPool::absoluteTimeInMillis,
+            (update, shardId, type) -> {
+                try {
+                    updateMappings(shard, IndexMetaData.builder(shard.indexSettings().getIndexMetaData())
+                        .putMapping(type, update.toString()).build());
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            },
+            () -> {}, threadPool.executor(ThreadPool.Names.WRITE), randomIntBetween(2, 8));
+
+        BulkItemResponse[] responses = result.finalResponseIfSuccessful.getResponses();
+        assertThat(responses, arrayWithSize(numItems));
+        for (int i = 0; i < numItems; i++) {
+            assertThat(responses[i].getItemId(), equalTo(i));
+            assertThat(responses[i].toString(), responses[i].isFailed(), equalTo(expectFailure[i]));
+            if (responses[i].isFailed()) {
+                assertThat(responses[i].getFailure().getCause(), instanceOf(MapperParsingException.class));
+            }
+        }
+        shard.refresh("test");
+        assertDocCount(shard, expectedIds.size());
+        closeShards(shard);
+    }
+
+    public void testIdleThreads() throws Exception {
+        final int numThreads = randomIntBetween(1, 8);
+        final ThreadPoolExecutor executor = EsExecutors.newFixed("test", numThreads, 10,
+            EsExecutors.daemonThreadFactory("test"), threadPool.getThreadContext());
+        final CountDownLatch release = new CountDownLatch(1);
+        try {
+            assertThat(TransportShardBulkAction.idleThreads(executor), equalTo(numThreads));
+            assertThat(TransportShardBulkAction.idleThreads(Runnable::run), equalTo(0));
+
+            final int numBusy = randomIntBetween(1, numThreads);
+            final CountDownLatch started = new CountDownLatch(numThreads);
+            final Runnable blockingTask = () -> {
+                started.countDown();
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    throw new AssertionError(e);
+                }
+            };
+            for (int i = 0; i < numBusy; i++) {
+                executor.execute(blockingTask);
+            }
+            assertBusy(() -> assertThat(TransportShardBulkAction.idleThreads(executor), equalTo(numThreads - numBusy)));
+
+            for (int i = numBusy; i < numThreads; i++) {
+                executor.execute(blockingTask);
+            }
+            started.await();
+            executor.execute(() -> {});
+            assertThat(executor.getQueue().size(), equalTo(1));
+            assertThat(TransportShardBulkAction.idleThreads(executor), equalTo(0));
+        } finally {
+            release.countDown();
+            terminate(executor);
+        }
+    }
+
     private void randomlySetIgnoredPrimaryResponse(BulkItemRequest primaryRequest) {
         if (randomBoolean()) {
             // add a response to the request and thereby check that it is ignored for the primary.
@@ -25,6 +25,8 @@ import org.elasticsearch.common.CheckedRunnable;
 import org.elasticsearch.common.ParseField;
 import org.elasticsearch.common.Strings;
 import org.elasticsearch.common.bytes.BytesArray;
+import org.elasticsearch.common.io.stream.BytesStreamOutput;
+import org.elasticsearch.common.io.stream.StreamInput;
 import org.elasticsearch.common.xcontent.NamedXContentRegistry;
 import org.elasticsearch.common.xcontent.XContentParser;
 import org.elasticsearch.common.xcontent.XContentType;
@@ -268,7 +270,23 @@ public class MultiSearchRequestTests extends ESTestCase {
     }
 
     public void testEqualsAndHashcode() {
-        checkEqualsAndHashCode(createMultiSearchRequest(), MultiSearchRequestTests::copyRequest, MultiSearchRequestTests::mutate);
+        MultiSearchRequest request = createMultiSearchRequest();
+        request.batchedShardRequests(randomBoolean());
+        checkEqualsAndHashCode(request, MultiSearchRequestTests::copyRequest, MultiSearchRequestTests::mutate);
+    }
+
+    public void testSerialization() throws IOException {
+        MultiSearchRequest request = createMultiSearchRequest();
+        request.batchedShardRequests(randomBoolean());
+        try (BytesStreamOutput out = new BytesStreamOutput()) {
+            request.writeTo(out);
+            try (StreamInput in = out.bytes().streamInput()) {
+                MultiSearchRequest deserialized = new MultiSearchRequest();
+                deserialized.readFrom(in);
+                assertEquals(request.batchedShardRequests(), deserialized.batchedShardRequests());
+                assertEquals(request.requests(), deserialized.requests());
+            }
+        }
     }
 
     private static MultiSearchRequest mutate(MultiSearchRequest searchRequest) throws IOException {
@@ -277,6 +295,7 @@ public class MultiSearchRequestTests extends ESTestCase {
         mutators.add(() -> mutation.indicesOptions(randomValueOtherThan(searchRequest.indicesOptions(),
                 () -> IndicesOptions.fromOptions(randomBoolean(), randomBoolean(), randomBoolean(), randomBoolean()))));
         mutators.add(() -> mutation.maxConcurrentSearchRequests(randomIntBetween(1, 32)));
+        mutators.add(() -> mutation.batchedShardRequests(searchRequest.batchedShardRequests() == false));
         mutators.add(() -> mutation.add(createSimpleSearchRequest()));
         randomFrom(mutators).run();
         return mutation;
@@ -288,6 +307,7 @@ public class MultiSearchRequestTests extends ESTestCase {
             copy.maxConcurrentSearchRequests(request.maxConcurrentSearchRequests());
         }
         copy.indicesOptions(request.indicesOptions());
+        copy.batchedShardRequests(request.batchedShardRequests());
         for (SearchRequest searchRequest : request.requests()) {
             copy.add(searchRequest);
         }
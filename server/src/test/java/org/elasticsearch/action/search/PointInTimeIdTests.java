@@ -0,0 +1,67 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.action.search;
+
+import org.elasticsearch.index.shard.ShardId;
+import org.elasticsearch.test.ESTestCase;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.hamcrest.Matchers.arrayContaining;
+import static org.hamcrest.Matchers.equalTo;
+
+public class PointInTimeIdTests extends ESTestCase {
+
+    public void testEncodeDecode() {
+        Map<ShardId, ScrollIdForNode> shards = new HashMap<>();
+        final int numShards = randomIntBetween(0, 20);
+        for (int i = 0; i < numShards; i++) {
+            ShardId shardId = new ShardId(randomFrom("idx", "idy"), randomFrom("uuid1", "uuid2"), randomIntBetween(0, 10));
+            shards.put(shardId, new ScrollIdForNode(null, randomAlphaOfLength(8), randomNonNegativeLong()));
+        }
+        PointInTimeId decoded = PointInTimeId.decode(new PointInTimeId(shards).encode());
+        assertThat(decoded.shards().size(), equalTo(shards.size()));
+        for (Map.Entry<ShardId, ScrollIdForNode> entry : shards.entrySet()) {
+            ScrollIdForNode target = decoded.shards().get(entry.getKey());
+            assertThat(target.getNode(), equalTo(entry.getValue().getNode()));
+            assertThat(target.getScrollId(), equalTo(entry.getValue().getScrollId()));
+            assertThat(decoded.contextId(entry.getKey()), equalTo(entry.getValue().getScrollId()));
+        }
+    }
+
+    public void testIndices() {
+        Map<ShardId, ScrollIdForNode> shards = new HashMap<>();
+        shards.put(new ShardId("idy", "uuid2", 1), new ScrollIdForNode(null, "node_1", 3));
+        shards.put(new ShardId("idx", "uuid1", 0), new ScrollIdForNode(null, "node_1", 1));
+        shards.put(new ShardId("idx", "uuid1", 1), new ScrollIdForNode(null, "node_2", 2));
+        PointInTimeId pointInTimeId = PointInTimeId.decode(new PointInTimeId(shards).encode());
+        assertThat(pointInTimeId.indices(), arrayContaining("idx", "idy"));
+        IllegalArgumentException e = expectThrows(IllegalArgumentException.class,
+            () -> pointInTimeId.contextId(new ShardId("idy", "uuid2", 0)));
+        assertThat(e.getMessage(), equalTo("shard [idy][0] is not part of the point in time"));
+    }
+
+    public void testDecodeInvalidId() {
+        IllegalArgumentException e = expectThrows(IllegalArgumentException.class,
+            () -> PointInTimeId.decode(randomAlphaOfLengthBetween(1, 20)));
+        assertThat(e.getMessage(), equalTo("Cannot parse point in time id"));
+    }
+}
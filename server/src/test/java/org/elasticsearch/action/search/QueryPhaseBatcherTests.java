@@ -0,0 +1,211 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.action.search;
+
+import org.elasticsearch.Version;
+import org.elasticsearch.action.OriginalIndices;
+import org.elasticsearch.cluster.node.DiscoveryNode;
+import org.elasticsearch.common.Strings;
+import org.elasticsearch.index.shard.ShardId;
+import org.elasticsearch.search.Scroll;
+import org.elasticsearch.search.SearchPhaseResult;
+import org.elasticsearch.search.aggregations.AggregationBuilders;
+import org.elasticsearch.search.builder.SearchSourceBuilder;
+import org.elasticsearch.search.internal.AliasFilter;
+import org.elasticsearch.search.internal.ShardSearchTransportRequest;
+import org.elasticsearch.tasks.Task;
+import org.elasticsearch.tasks.TaskId;
+import org.elasticsearch.test.ESTestCase;
+import org.elasticsearch.transport.Transport;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import static org.elasticsearch.common.unit.TimeValue.timeValueMinutes;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.sameInstance;
+
+public class QueryPhaseBatcherTests extends ESTestCase {
+
+    private final List<ShardSearchTransportRequest> sentRequests = new ArrayList<>();
+    private final List<List<ShardSearchTransportRequest>> sentBatches = new ArrayList<>();
+    private final SearchTransportService searchTransportService = new SearchTransportService(null, null) {
+        @Override
+        void doSendExecuteQuery(Transport.Connection connection, ShardSearchTransportRequest request, SearchTask task,
+                                SearchActionListener<SearchPhaseResult> listener) {
+            sentRequests.add(request);
+        }
+
+        @Override
+        void sendExecuteQueryBatch(Transport.Connection connection, List<ShardSearchTransportRequest> requests, List<SearchTask> tasks,
+                                   Task parentTask, List<SearchActionListener<SearchPhaseResult>> listeners) {
+            assertThat(requests.size(), equalTo(tasks.size()));
+            assertThat(requests.size(), equalTo(listeners.size()));
+            for (ShardSearchTransportRequest request : requests) {
+                assertThat(request.shardId(), equalTo(requests.get(0).shardId()));
+            }
+            sentBatches.add(requests);
+        }
+    };
+
+    private final DiscoveryNode node1 = new DiscoveryNode("node_1", buildNewFakeTransportAddress(), Version.CURRENT);
+    private final DiscoveryNode node2 = new DiscoveryNode("node_2", buildNewFakeTransportAddress(), Version.CURRENT);
+    private final Task parentTask = new Task(1, "transport", MultiSearchAction.NAME, "", TaskId.EMPTY_TASK_ID, Collections.emptyMap());
+    private final TaskId parentTaskId = new TaskId("node_1", parentTask.getId());
+
+    public void testBatchesRequestsPerShardCopy() throws IOException {
+        final ShardId shard0 = new ShardId("index", "_na_", 0);
+        final ShardId shard1 = new ShardId("index", "_na_", 1);
+        final int numItems = randomIntBetween(2, 10);
+        final List<SearchRequest> items = new ArrayList<>();
+        for (int i = 0; i < numItems; i++) {
+            items.add(new SearchRequest("index").allowPartialSearchResults(true));
+        }
+        final QueryPhaseBatcher batcher = new QueryPhaseBatcher(searchTransportService, parentTask);
+        items.forEach(batcher::onItemStarted);
+        searchTransportService.registerQueryPhaseBatcher(parentTaskId, batcher);
+        try {
+            for (int i = 0; i < numItems; i++) {
+                final SearchTask task = new SearchTask(i + 2, "transport", SearchAction.NAME, "", parentTaskId, Collections.emptyMap());
+                searchTransportService.sendExecuteQuery(new SearchAsyncActionTests.MockConnection(node1),
+                    shardRequest(items.get(i), shard0), task, listener());
+                searchTransportService.sendExecuteQuery(new SearchAsyncActionTests.MockConnection(node2),
+                    shardRequest(items.get(i), shard1), task, listener());
+                assertTrue(sentRequests.isEmpty());
+                assertTrue(sentBatches.isEmpty());
+                searchTransportService.onQueryPhaseDispatched(task, items.get(i));
+                // notifying twice is a noop
+                batcher.onItemDispatched(items.get(i));
+            }
+            assertTrue(sentRequests.isEmpty());
+            assertThat(sentBatches.size(), equalTo(2));
+            for (List<ShardSearchTransportRequest> batch : sentBatches) {
+                assertThat(batch.size(), equalTo(numItems));
+            }
+            assertThat(sentBatches.get(0).get(0).shardId(), equalTo(shard0));
+            assertThat(sentBatches.get(1).get(0).shardId(), equalTo(shard1));
+
+            // requests that are sent after the batches are flushed, e.g. retries, are sent individually
+            final SearchTask task = new SearchTask(100, "transport", SearchAction.NAME, "", parentTaskId, Collections.emptyMap());
+            ShardSearchTransportRequest retry = shardRequest(items.get(0), shard0);
+            searchTransportService.sendExecuteQuery(new SearchAsyncActionTests.MockConnection(node2), retry, task, listener());
+            assertThat(sentRequests, equalTo(Collections.singletonList(retry)));
+        } finally {
+            searchTransportService.unregisterQueryPhaseBatcher(parentTaskId);
+        }
+    }
+
+    public void testSingleRequestIsNotBatched() throws IOException {
+        final SearchRequest item = new SearchRequest("index").allowPartialSearchResults(true);
+        final SearchRequest other = new SearchRequest("other").allowPartialSearchResults(true);
+        final QueryPhaseBatcher batcher = new QueryPhaseBatcher(searchTransportService, parentTask);
+        batcher.onItemStarted(item);
+        batcher.onItemStarted(other);
+        final ShardSearchTransportRequest request = shardRequest(item, new ShardId("index", "_na_", 0));
+        assertTrue(batcher.add(new SearchAsyncActionTests.MockConnection(node1), request, null, listener()));
+        batcher.onItemDispatched(item);
+        assertTrue(sentRequests.isEmpty());
+        // the other item completed without sending any request
+        batcher.onItemDispatched(other);
+        assertThat(sentRequests.size(), equalTo(1));
+        assertThat(sentRequests.get(0), sameInstance(request));
+        assertTrue(sentBatches.isEmpty());
+    }
+
+    public void testScrollAndRemoteRequestsAreNotBatched() throws IOException {
+        final SearchRequest item = new SearchRequest("index").allowPartialSearchResults(true);
+        final QueryPhaseBatcher batcher = new QueryPhaseBatcher(searchTransportService, parentTask);
+        batcher.onItemStarted(item);
+        final ShardId shardId = new ShardId("index", "_na_", 0);
+
+        final SearchRequest scrollRequest = new SearchRequest("index").allowPartialSearchResults(true)
+            .scroll(new Scroll(timeValueMinutes(1)));
+        assertFalse(batcher.add(new SearchAsyncActionTests.MockConnection(node1), shardRequest(scrollRequest, shardId), null, listener()));
+
+        final ShardSearchTransportRequest remoteRequest = new ShardSearchTransportRequest(OriginalIndices.NONE, item, shardId, 2,
+            new AliasFilter(null, Strings.EMPTY_ARRAY), 1.0f, 0, "remote", null);
+        assertFalse(batcher.add(new SearchAsyncActionTests.MockConnection(node1), remoteRequest, null, listener()));
+
+        final DiscoveryNode oldNode = new DiscoveryNode("old_node", buildNewFakeTransportAddress(),
+            Version.CURRENT.minimumCompatibilityVersion());
+        assertFalse(batcher.add(new SearchAsyncActionTests.MockConnection(oldNode), shardRequest(item, shardId), null, listener()));
+
+        assertTrue(batcher.add(new SearchAsyncActionTests.MockConnection(node1), shardRequest(item, shardId), null, listener()));
+    }
+
+    public void testExpensiveRequestsAreNotBatched() throws IOException {
+        final SearchRequest item = new SearchRequest("index").allowPartialSearchResults(true);
+        final QueryPhaseBatcher batcher = new QueryPhaseBatcher(searchTransportService, parentTask);
+        batcher.onItemStarted(item);
+        final ShardId shardId = new ShardId("index", "_na_", 0);
+
+        final SearchRequest aggsRequest = new SearchRequest("index").allowPartialSearchResults(true)
+            .source(new SearchSourceBuilder().size(0).aggregation(AggregationBuilders.terms("terms").field("field")));
+        assertFalse(batcher.add(new SearchAsyncActionTests.MockConnection(node1), shardRequest(aggsRequest, shardId), null, listener()));
+
+        final SearchRequest largeRequest = new SearchRequest("index").allowPartialSearchResults(true)
+            .source(new SearchSourceBuilder().from(randomIntBetween(0, 10)).size(QueryPhaseBatcher.MAX_BATCHED_HITS + 1));
+        assertFalse(batcher.add(new SearchAsyncActionTests.MockConnection(node1), shardRequest(largeRequest, shardId), null, listener()));
+
+        final SearchRequest pagedRequest = new SearchRequest("index").allowPartialSearchResults(true)
+            .source(new SearchSourceBuilder().from(QueryPhaseBatcher.MAX_BATCHED_HITS));
+        assertFalse(batcher.add(new SearchAsyncActionTests.MockConnection(node1), shardRequest(pagedRequest, shardId), null, listener()));
+
+        final SearchRequest smallRequest = new SearchRequest("index").allowPartialSearchResults(true)
+            .source(new SearchSourceBuilder().from(randomIntBetween(0, 5)).size(randomIntBetween(0, 5)));
+        assertTrue(batcher.add(new SearchAsyncActionTests.MockConnection(node1), shardRequest(smallRequest, shardId), null, listener()));
+    }
+
+    public void testRequestsAreNotBufferedWithoutStartedItems() throws IOException {
+        final SearchRequest item = new SearchRequest("index").allowPartialSearchResults(true);
+        final QueryPhaseBatcher batcher = new QueryPhaseBatcher(searchTransportService, parentTask);
+        final ShardId shardId = new ShardId("index", "_na_", 0);
+        assertFalse(batcher.add(new SearchAsyncActionTests.MockConnection(node1), shardRequest(item, shardId), null, listener()));
+
+        // an item that is started once the previous ones are dispatched starts a new batch
+        batcher.onItemStarted(item);
+        assertTrue(batcher.add(new SearchAsyncActionTests.MockConnection(node1), shardRequest(item, shardId), null, listener()));
+        assertTrue(batcher.add(new SearchAsyncActionTests.MockConnection(node1), shardRequest(item, shardId), null, listener()));
+        batcher.onItemDispatched(item);
+        assertTrue(sentRequests.isEmpty());
+        assertThat(sentBatches.size(), equalTo(1));
+        assertThat(sentBatches.get(0).size(), equalTo(2));
+        assertFalse(batcher.add(new SearchAsyncActionTests.MockConnection(node1), shardRequest(item, shardId), null, listener()));
+    }
+
+    private static ShardSearchTransportRequest shardRequest(SearchRequest searchRequest, ShardId shardId) throws IOException {
+        return new ShardSearchTransportRequest(OriginalIndices.NONE, searchRequest, shardId, 2,
+            new AliasFilter(null, Strings.EMPTY_ARRAY), 1.0f, 0, null, null);
+    }
+
+    private static SearchActionListener<SearchPhaseResult> listener() {
+        return new SearchActionListener<SearchPhaseResult>(null, 0) {
+            @Override
+            protected void innerOnResponse(SearchPhaseResult response) {
+            }
+
+            @Override
+            public void onFailure(Exception e) {
+            }
+        };
+    }
+}
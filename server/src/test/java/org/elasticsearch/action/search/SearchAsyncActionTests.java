@@ -29,11 +29,14 @@ import org.elasticsearch.cluster.routing.UnassignedInfo;
 import org.elasticsearch.common.Strings;
 import org.elasticsearch.common.io.stream.StreamInput;
 import org.elasticsearch.common.io.stream.StreamOutput;
+import org.elasticsearch.common.unit.TimeValue;
 import org.elasticsearch.index.Index;
 import org.elasticsearch.index.shard.ShardId;
 import org.elasticsearch.search.SearchPhaseResult;
 import org.elasticsearch.search.internal.AliasFilter;
 import org.elasticsearch.test.ESTestCase;
+import org.elasticsearch.threadpool.TestThreadPool;
+import org.elasticsearch.threadpool.ThreadPool;
 import org.elasticsearch.transport.Transport;
 import org.elasticsearch.transport.TransportException;
 import org.elasticsearch.transport.TransportRequest;
@@ -44,12 +47,17 @@ import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicReference;
@@ -371,6 +379,224 @@ public class SearchAsyncActionTests extends ESTestCase {
         executor.shutdown();
     }
 
+    public void testHedgedRequests() throws InterruptedException {
+        SearchRequest request = new SearchRequest();
+        request.allowPartialSearchResults(true);
+        // don't throttle the requests, the slow copies would hold the permits of their node until the end of the test
+        request.setMaxConcurrentShardRequests(100);
+        ActionListener<SearchResponse> responseListener = ActionListener.wrap(response -> {},
+            (e) -> { throw new AssertionError("unexpected", e);});
+        DiscoveryNode slowNode = new DiscoveryNode("node_1", buildNewFakeTransportAddress(), Version.CURRENT);
+        DiscoveryNode fastNode = new DiscoveryNode("node_2", buildNewFakeTransportAddress(), Version.CURRENT);
+
+        AtomicInteger contextIdGenerator = new AtomicInteger(0);
+        int numShards = randomIntBetween(1, 10);
+        GroupShardsIterator<SearchShardIterator> shardsIter = getShardsIter("idx",
+            new OriginalIndices(new String[]{"idx"}, SearchRequest.DEFAULT_INDICES_OPTIONS),
+            numShards, true, slowNode, fastNode);
+        AtomicInteger numFreedContext = new AtomicInteger();
+        SearchTransportService transportService = new SearchTransportService(null, null) {
+            @Override
+            public void sendFreeContext(Transport.Connection connection, long contextId, OriginalIndices originalIndices) {
+                assertEquals(slowNode, connection.getNode());
+                numFreedContext.incrementAndGet();
+            }
+        };
+        Map<String, Transport.Connection> lookup = new HashMap<>();
+        lookup.put(slowNode.getId(), new MockConnection(slowNode));
+        lookup.put(fastNode.getId(), new MockConnection(fastNode));
+        Map<String, AliasFilter> aliasFilters = Collections.singletonMap("_na_", new AliasFilter(null, Strings.EMPTY_ARRAY));
+        List<Runnable> slowResponses = new CopyOnWriteArrayList<>();
+        CountDownLatch latch = new CountDownLatch(1);
+        ThreadPool threadPool = new TestThreadPool(getTestName());
+        try {
+            AbstractSearchAsyncAction<TestSearchPhaseResult> asyncAction =
+                new AbstractSearchAsyncAction<TestSearchPhaseResult>(
+                    "test",
+                    logger,
+                    transportService,
+                    (cluster, node) -> {
+                        assert cluster == null : "cluster was not null: " + cluster;
+                        return lookup.get(node); },
+                    aliasFilters,
+                    Collections.emptyMap(),
+                    Collections.emptyMap(),
+                    threadPool.executor(ThreadPool.Names.SEARCH),
+                    request,
+                    responseListener,
+                    shardsIter,
+                    new TransportSearchAction.SearchTimeProvider(0, 0, () -> 0),
+                    0,
+                    null,
+                    new InitialSearchPhase.ArraySearchPhaseResults<>(shardsIter.size()),
+                    request.getMaxConcurrentShardRequests(),
+                    SearchResponse.Clusters.EMPTY) {
+
+                    @Override
+                    protected void executePhaseOnShard(SearchShardIterator shardIt, ShardRouting shard,
+                                                       SearchActionListener<TestSearchPhaseResult> listener) {
+                        Transport.Connection connection = getConnection(null, shard.currentNodeId());
+                        TestSearchPhaseResult testSearchPhaseResult = new TestSearchPhaseResult(contextIdGenerator.incrementAndGet(),
+                            connection.getNode());
+                        if (connection.getNode().equals(slowNode)) {
+                            slowResponses.add(() -> listener.onResponse(testSearchPhaseResult));
+                        } else {
+                            listener.onResponse(testSearchPhaseResult);
+                        }
+                    }
+
+                    @Override
+                    protected SearchPhase getNextPhase(SearchPhaseResults<TestSearchPhaseResult> results, SearchPhaseContext context) {
+                        return new SearchPhase("test") {
+                            @Override
+                            public void run() {
+                                for (int i = 0; i < results.getNumShards(); i++) {
+                                    assertEquals(fastNode, results.getAtomicArray().get(i).node);
+                                }
+                                latch.countDown();
+                            }
+                        };
+                    }
+                };
+            asyncAction.enableHedgedRequests(threadPool, (shardIt, shard) -> TimeValue.timeValueMillis(1));
+            asyncAction.start();
+            // the phase completes without waiting for the slow copies
+            latch.await();
+            SearchResponse searchResponse = asyncAction.buildSearchResponse(null, null);
+            assertEquals(numShards, searchResponse.getSuccessfulShards());
+            assertEquals(0, searchResponse.getFailedShards());
+            // the late responses of the slow copies are discarded and their contexts are released
+            slowResponses.forEach(Runnable::run);
+            assertEquals(slowResponses.size(), numFreedContext.get());
+            assertEquals(numShards, asyncAction.buildSearchResponse(null, null).getSuccessfulShards());
+        } finally {
+            terminate(threadPool);
+        }
+    }
+
+    public void testHedgedRequestsAreThrottled() throws Exception {
+        SearchRequest request = new SearchRequest();
+        request.allowPartialSearchResults(true);
+        request.setMaxConcurrentShardRequests(1);
+        ActionListener<SearchResponse> responseListener = ActionListener.wrap(response -> {},
+            (e) -> { throw new AssertionError("unexpected", e);});
+        DiscoveryNode slowNode = new DiscoveryNode("node_1", buildNewFakeTransportAddress(), Version.CURRENT);
+        DiscoveryNode fastNode = new DiscoveryNode("node_2", buildNewFakeTransportAddress(), Version.CURRENT);
+
+        AtomicInteger contextIdGenerator = new AtomicInteger(0);
+        int numShards = randomIntBetween(2, 10);
+        GroupShardsIterator<SearchShardIterator> shardsIter = getShardsIter("idx",
+            new OriginalIndices(new String[]{"idx"}, SearchRequest.DEFAULT_INDICES_OPTIONS),
+            numShards, true, slowNode, fastNode);
+        AtomicInteger numFreedContext = new AtomicInteger();
+        SearchTransportService transportService = new SearchTransportService(null, null) {
+            @Override
+            public void sendFreeContext(Transport.Connection connection, long contextId, OriginalIndices originalIndices) {
+                numFreedContext.incrementAndGet();
+            }
+        };
+        Map<String, Transport.Connection> lookup = new HashMap<>();
+        lookup.put(slowNode.getId(), new MockConnection(slowNode));
+        lookup.put(fastNode.getId(), new MockConnection(fastNode));
+        Map<String, AliasFilter> aliasFilters = Collections.singletonMap("_na_", new AliasFilter(null, Strings.EMPTY_ARRAY));
+        Map<String, AtomicInteger> inFlightPerNode = new ConcurrentHashMap<>();
+        AtomicInteger maxInFlight = new AtomicInteger();
+        AtomicInteger numResponses = new AtomicInteger();
+        BlockingQueue<Runnable> slowResponses = new LinkedBlockingQueue<>();
+        AtomicBoolean stopped = new AtomicBoolean();
+        // the slow node answers after a while, the requests that are queued for its permit are only sent once it answered
+        Thread slowNodeResponder = new Thread(() -> {
+            try {
+                while (stopped.get() == false) {
+                    Runnable response = slowResponses.poll(10, TimeUnit.MILLISECONDS);
+                    if (response != null) {
+                        Thread.sleep(randomIntBetween(1, 5));
+                        response.run();
+                    }
+                }
+            } catch (InterruptedException e) {
+                throw new AssertionError(e);
+            }
+        });
+        CountDownLatch latch = new CountDownLatch(1);
+        ThreadPool threadPool = new TestThreadPool(getTestName());
+        try {
+            AbstractSearchAsyncAction<TestSearchPhaseResult> asyncAction =
+                new AbstractSearchAsyncAction<TestSearchPhaseResult>(
+                    "test",
+                    logger,
+                    transportService,
+                    (cluster, node) -> {
+                        assert cluster == null : "cluster was not null: " + cluster;
+                        return lookup.get(node); },
+                    aliasFilters,
+                    Collections.emptyMap(),
+                    Collections.emptyMap(),
+                    threadPool.executor(ThreadPool.Names.SEARCH),
+                    request,
+                    responseListener,
+                    shardsIter,
+                    new TransportSearchAction.SearchTimeProvider(0, 0, () -> 0),
+                    0,
+                    null,
+                    new InitialSearchPhase.ArraySearchPhaseResults<>(shardsIter.size()),
+                    request.getMaxConcurrentShardRequests(),
+                    SearchResponse.Clusters.EMPTY) {
+
+                    @Override
+                    protected void executePhaseOnShard(SearchShardIterator shardIt, ShardRouting shard,
+                                                       SearchActionListener<TestSearchPhaseResult> listener) {
+                        final String nodeId = shard.currentNodeId();
+                        final AtomicInteger inFlight = inFlightPerNode.computeIfAbsent(nodeId, n -> new AtomicInteger());
+                        maxInFlight.accumulateAndGet(inFlight.incrementAndGet(), Math::max);
+                        Transport.Connection connection = getConnection(null, nodeId);
+                        TestSearchPhaseResult testSearchPhaseResult = new TestSearchPhaseResult(contextIdGenerator.incrementAndGet(),
+                            connection.getNode());
+                        Runnable response = () -> {
+                            inFlight.decrementAndGet();
+                            numResponses.incrementAndGet();
+                            listener.onResponse(testSearchPhaseResult);
+                        };
+                        if (connection.getNode().equals(slowNode)) {
+                            slowResponses.add(response);
+                        } else {
+                            response.run();
+                        }
+                    }
+
+                    @Override
+                    protected SearchPhase getNextPhase(SearchPhaseResults<TestSearchPhaseResult> results, SearchPhaseContext context) {
+                        return new SearchPhase("test") {
+                            @Override
+                            public void run() {
+                                latch.countDown();
+                            }
+                        };
+                    }
+                };
+            asyncAction.enableHedgedRequests(threadPool, (shardIt, shard) -> TimeValue.timeValueMillis(1));
+            slowNodeResponder.start();
+            asyncAction.start();
+            latch.await();
+            stopped.set(true);
+            slowNodeResponder.join();
+            Runnable response;
+            while ((response = slowResponses.poll()) != null) {
+                response.run();
+            }
+            SearchResponse searchResponse = asyncAction.buildSearchResponse(null, null);
+            assertEquals(numShards, searchResponse.getSuccessfulShards());
+            assertEquals(0, searchResponse.getFailedShards());
+            // hedged requests never exceeded the maximum number of concurrent requests per node
+            assertEquals(1, maxInFlight.get());
+            // the contexts of the responses that weren't used are released
+            assertEquals(numResponses.get() - numShards, numFreedContext.get());
+        } finally {
+            stopped.set(true);
+            terminate(threadPool);
+        }
+    }
+
     static GroupShardsIterator<SearchShardIterator> getShardsIter(String index, OriginalIndices originalIndices, int numShards,
                                                      boolean doReplicas, DiscoveryNode primaryNode, DiscoveryNode replicaNode) {
         ArrayList<SearchShardIterator> list = new ArrayList<>();
@@ -0,0 +1,92 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.elasticsearch.action.search;
+
+import org.elasticsearch.Version;
+import org.elasticsearch.action.ActionListener;
+import org.elasticsearch.action.OriginalIndices;
+import org.elasticsearch.cluster.node.DiscoveryNode;
+import org.elasticsearch.cluster.service.ClusterService;
+import org.elasticsearch.common.settings.ClusterSettings;
+import org.elasticsearch.common.settings.Settings;
+import org.elasticsearch.index.shard.ShardId;
+import org.elasticsearch.node.ResponseCollectorService;
+import org.elasticsearch.search.SearchPhaseResult;
+import org.elasticsearch.search.SearchShardTarget;
+import org.elasticsearch.search.query.QuerySearchResult;
+import org.elasticsearch.test.ESTestCase;
+import org.elasticsearch.threadpool.TestThreadPool;
+import org.elasticsearch.threadpool.ThreadPool;
+
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.lessThanOrEqualTo;
+import static org.hamcrest.Matchers.sameInstance;
+
+public class SearchExecutionStatsCollectorTests extends ESTestCase {
+
+    public void testBatchedResponseTimeIsSplitAcrossItems() throws Exception {
+        ThreadPool threadPool = new TestThreadPool(getTestName());
+        try {
+            ClusterService clusterService = new ClusterService(Settings.EMPTY,
+                new ClusterSettings(Settings.EMPTY, ClusterSettings.BUILT_IN_CLUSTER_SETTINGS), threadPool);
+            ResponseCollectorService service = new ResponseCollectorService(clusterService);
+            DiscoveryNode node = new DiscoveryNode("node_1", buildNewFakeTransportAddress(), Version.CURRENT);
+            ShardId shardId = new ShardId("index", "index-uuid", 0);
+            SearchShardTarget target = new SearchShardTarget(node.getId(), shardId, null, OriginalIndices.NONE);
+            int shardIndex = randomIntBetween(0, 10);
+            AtomicReference<SearchPhaseResult> received = new AtomicReference<>();
+            SearchActionListener<SearchPhaseResult> listener = new SearchActionListener<SearchPhaseResult>(target, shardIndex) {
+                @Override
+                protected void innerOnResponse(SearchPhaseResult response) {
+                    received.set(response);
+                }
+
+                @Override
+                public void onFailure(Exception e) {
+                    throw new AssertionError(e);
+                }
+            };
+            int batchSize = randomIntBetween(2, 8);
+
+            long startNanos = System.nanoTime();
+            @SuppressWarnings("unchecked")
+            ActionListener<SearchPhaseResult> handler = SearchExecutionStatsCollector.makeWrapper(service)
+                .apply(new SearchAsyncActionTests.MockConnection(node),
+                    new SearchTransportService.BatchedSearchActionListener<>(listener, batchSize));
+            Thread.sleep(randomIntBetween(1, 10));
+            QuerySearchResult result = new QuerySearchResult();
+            result.serviceTimeEWMA(1000L);
+            result.nodeQueueSize(0);
+            result.shardServiceTimeNanos(1000L);
+            handler.onResponse(result);
+            long elapsedNanos = System.nanoTime() - startNanos;
+
+            assertThat(received.get(), sameInstance(result));
+            assertThat(result.getShardIndex(), equalTo(shardIndex));
+            assertThat(result.getSearchShardTarget(), equalTo(target));
+            double responseTime = service.getNodeStatistics(node.getId()).get().responseTime;
+            assertThat(responseTime, lessThanOrEqualTo((double) elapsedNanos / batchSize));
+            assertThat(service.getShardCopyStatistics(node.getId(), shardId).get().responseTime, equalTo(responseTime));
+        } finally {
+            terminate(threadPool);
+        }
+    }
+}
@@ -31,12 +31,18 @@ import org.apache.lucene.search.grouping.CollapseTopFieldDocs;
 import org.apache.lucene.util.BytesRef;
 import org.elasticsearch.action.OriginalIndices;
 import org.elasticsearch.common.Strings;
+import org.elasticsearch.common.breaker.CircuitBreaker;
+import org.elasticsearch.common.breaker.CircuitBreakingException;
 import org.elasticsearch.common.lucene.Lucene;
 import org.elasticsearch.common.lucene.search.TopDocsAndMaxScore;
+import org.elasticsearch.common.settings.ClusterSettings;
+import org.elasticsearch.common.settings.Settings;
 import org.elasticsearch.common.text.Text;
 import org.elasticsearch.common.util.BigArrays;
 import org.elasticsearch.common.util.concurrent.AtomicArray;
 import org.elasticsearch.index.shard.ShardId;
+import org.elasticsearch.indices.breaker.CircuitBreakerService;
+import org.elasticsearch.indices.breaker.HierarchyCircuitBreakerService;
 import org.elasticsearch.search.DocValueFormat;
 import org.elasticsearch.search.SearchHit;
 import org.elasticsearch.search.SearchHits;
@@ -72,6 +78,7 @@ import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
 import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.greaterThan;
 import static org.hamcrest.Matchers.greaterThanOrEqualTo;
 import static org.hamcrest.Matchers.instanceOf;
 import static org.hamcrest.Matchers.lessThanOrEqualTo;
@@ -442,6 +449,119 @@ public class SearchPhaseControllerTests extends ESTestCase {
         assertNull(reduce.sortedTopDocs.collapseValues);
     }
 
+    public void testConsumerReducesOnBufferedBytes() {
+        int expectedNumResults = randomIntBetween(2, 100);
+        CircuitBreakerService breakerService = new HierarchyCircuitBreakerService(
+            Settings.builder().put(HierarchyCircuitBreakerService.USE_REAL_MEMORY_USAGE_SETTING.getKey(), false).build(),
+            new ClusterSettings(Settings.EMPTY, ClusterSettings.BUILT_IN_CLUSTER_SETTINGS));
+        SearchPhaseController controller = newControllerWithBreaker(breakerService, "1b");
+        SearchRequest request = randomSearchRequest();
+        request.source(new SearchSourceBuilder().aggregation(AggregationBuilders.max("foo")));
+        request.setBatchedReduceSize(randomIntBetween(expectedNumResults, 200));
+        InitialSearchPhase.ArraySearchPhaseResults<SearchPhaseResult> consumer =
+            controller.newSearchPhaseResults(request, expectedNumResults);
+        assertThat(consumer, instanceOf(SearchPhaseController.QueryPhaseResultConsumer.class));
+        SearchPhaseController.QueryPhaseResultConsumer resultConsumer = (SearchPhaseController.QueryPhaseResultConsumer) consumer;
+        CircuitBreaker breaker = breakerService.getBreaker(CircuitBreaker.REQUEST);
+        int max = 0;
+        for (int i = 0; i < expectedNumResults; i++) {
+            int number = randomIntBetween(1, 1000);
+            max = Math.max(max, number);
+            consumer.consumeResult(newQueryResultWithMax(i, number));
+            // every result exceeds the budget so at most two results are buffered at any time
+            assertThat(resultConsumer.getNumBuffered(), lessThanOrEqualTo(2));
+            assertEquals(resultConsumer.getBufferedBytes(), breaker.getUsed());
+        }
+        assertEquals(expectedNumResults - 2, resultConsumer.getNumReducePhases());
+        assertThat(resultConsumer.getPeakBufferedBytes(), greaterThan(0L));
+        SearchPhaseController.ReducedQueryPhase reduce = consumer.reduce();
+        assertEquals(0, breaker.getUsed());
+        assertEquals(expectedNumResults - 1, reduce.numReducePhases);
+        assertEquals(resultConsumer.getPeakBufferedBytes(), reduce.peakBufferedBytes);
+        InternalMax internalMax = (InternalMax) reduce.aggregations.asList().get(0);
+        assertEquals(max, internalMax.getValue(), 0.0D);
+        assertEquals(expectedNumResults, reduce.totalHits.value);
+    }
+
+    public void testConsumerAccountsSerializedSizeOfRemoteResultsByDefault() {
+        int expectedNumResults = randomIntBetween(2, 100);
+        CircuitBreakerService breakerService = new HierarchyCircuitBreakerService(
+            Settings.builder().put(HierarchyCircuitBreakerService.USE_REAL_MEMORY_USAGE_SETTING.getKey(), false).build(),
+            new ClusterSettings(Settings.EMPTY, ClusterSettings.BUILT_IN_CLUSTER_SETTINGS));
+        SearchPhaseController controller = new SearchPhaseController((finalReduce) ->
+            new InternalAggregation.ReduceContext(BigArrays.NON_RECYCLING_INSTANCE, null, finalReduce),
+            breakerService, Settings.EMPTY, new ClusterSettings(Settings.EMPTY, ClusterSettings.BUILT_IN_CLUSTER_SETTINGS));
+        SearchRequest request = randomSearchRequest();
+        request.source(new SearchSourceBuilder().aggregation(AggregationBuilders.max("foo")));
+        request.setBatchedReduceSize(expectedNumResults);
+        InitialSearchPhase.ArraySearchPhaseResults<SearchPhaseResult> consumer =
+            controller.newSearchPhaseResults(request, expectedNumResults);
+        // the buffered aggregations are accounted even though all results fit into the buffer
+        assertThat(consumer, instanceOf(SearchPhaseController.QueryPhaseResultConsumer.class));
+        SearchPhaseController.QueryPhaseResultConsumer resultConsumer = (SearchPhaseController.QueryPhaseResultConsumer) consumer;
+        long expectedBufferedBytes = 0;
+        for (int i = 0; i < expectedNumResults; i++) {
+            QuerySearchResult result = newQueryResultWithMax(i, randomIntBetween(1, 1000));
+            // results of remote shards are accounted with the size of their response on the wire
+            int serializedSize = randomIntBetween(1, 1000);
+            result.serializedSize(serializedSize);
+            expectedBufferedBytes += serializedSize;
+            consumer.consumeResult(result);
+            assertEquals(expectedBufferedBytes, resultConsumer.getBufferedBytes());
+            assertEquals(expectedBufferedBytes, breakerService.getBreaker(CircuitBreaker.REQUEST).getUsed());
+        }
+        SearchPhaseController.ReducedQueryPhase reduce = consumer.reduce();
+        assertEquals(1, reduce.numReducePhases);
+        assertEquals(expectedBufferedBytes, reduce.peakBufferedBytes);
+        assertEquals(0, breakerService.getBreaker(CircuitBreaker.REQUEST).getUsed());
+    }
+
+    public void testConsumerTripsRequestBreaker() {
+        int expectedNumResults = randomIntBetween(2, 20);
+        CircuitBreakerService breakerService = new HierarchyCircuitBreakerService(
+            Settings.builder()
+                .put(HierarchyCircuitBreakerService.USE_REAL_MEMORY_USAGE_SETTING.getKey(), false)
+                .put(HierarchyCircuitBreakerService.REQUEST_CIRCUIT_BREAKER_LIMIT_SETTING.getKey(), "10b")
+                .build(),
+            new ClusterSettings(Settings.EMPTY, ClusterSettings.BUILT_IN_CLUSTER_SETTINGS));
+        SearchPhaseController controller = newControllerWithBreaker(breakerService, "1mb");
+        SearchRequest request = randomSearchRequest();
+        request.source(new SearchSourceBuilder().aggregation(AggregationBuilders.max("foo")));
+        request.setBatchedReduceSize(randomIntBetween(2, 200));
+        InitialSearchPhase.ArraySearchPhaseResults<SearchPhaseResult> consumer =
+            controller.newSearchPhaseResults(request, expectedNumResults);
+        for (int i = 0; i < expectedNumResults; i++) {
+            consumer.consumeResult(newQueryResultWithMax(i, randomIntBetween(1, 1000)));
+        }
+        expectThrows(CircuitBreakingException.class, consumer::reduce);
+        assertEquals(0, breakerService.getBreaker(CircuitBreaker.REQUEST).getUsed());
+        consumer.close();
+        assertEquals(0, breakerService.getBreaker(CircuitBreaker.REQUEST).getUsed());
+    }
+
+    private SearchPhaseController newControllerWithBreaker(CircuitBreakerService breakerService, String maxReduceBufferSize) {
+        Settings settings = Settings.builder()
+            .put(SearchPhaseController.MAX_REDUCE_BUFFER_SIZE_SETTING.getKey(), maxReduceBufferSize)
+            .build();
+        return new SearchPhaseController((finalReduce) -> {
+            reductions.add(finalReduce);
+            return new InternalAggregation.ReduceContext(BigArrays.NON_RECYCLING_INSTANCE, null, finalReduce);
+        }, breakerService, settings, new ClusterSettings(settings, ClusterSettings.BUILT_IN_CLUSTER_SETTINGS));
+    }
+
+    private static QuerySearchResult newQueryResultWithMax(int shardIndex, int number) {
+        QuerySearchResult result = new QuerySearchResult(shardIndex, new SearchShardTarget("node", new ShardId("a", "b", shardIndex),
+            null, OriginalIndices.NONE));
+        result.topDocs(new TopDocsAndMaxScore(
+            new TopDocs(new TotalHits(1, TotalHits.Relation.EQUAL_TO), new ScoreDoc[] {new ScoreDoc(0, number)}), number),
+            new DocValueFormat[0]);
+        result.aggregations(new InternalAggregations(Collections.singletonList(new InternalMax("test", (double) number,
+            DocValueFormat.RAW, Collections.emptyList(), Collections.emptyMap()))));
+        result.setShardIndex(shardIndex);
+        result.size(1);
+        return result;
+    }
+
     public void testConsumerOnlyAggs() {
         int expectedNumResults = randomIntBetween(1, 100);
         int bufferSize = randomIntBetween(2, 200);
@@ -28,6 +28,7 @@ import org.elasticsearch.common.util.ArrayUtils;
 import org.elasticsearch.index.query.QueryBuilders;
 import org.elasticsearch.search.AbstractSearchTestCase;
 import org.elasticsearch.search.Scroll;
+import org.elasticsearch.search.builder.PointInTimeBuilder;
 import org.elasticsearch.search.builder.SearchSourceBuilder;
 import org.elasticsearch.search.rescore.QueryRescorerBuilder;
 import org.elasticsearch.test.ESTestCase;
@@ -115,6 +116,21 @@ public class SearchRequestTests extends AbstractSearchTestCase {
     }
 
     public void testValidate() throws IOException {
+        {
+            // point in time and scroll, indices or routing aren't valid together
+            SearchRequest searchRequest = new SearchRequest()
+                .source(new SearchSourceBuilder().pointInTimeBuilder(new PointInTimeBuilder("id")));
+            assertNull(searchRequest.validate());
+            searchRequest.scroll(new TimeValue(1000));
+            searchRequest.indices("index");
+            searchRequest.routing("foo");
+            ActionRequestValidationException validationErrors = searchRequest.validate();
+            assertNotNull(validationErrors);
+            assertEquals(3, validationErrors.validationErrors().size());
+            assertEquals("using [point in time] is not allowed in a scroll context", validationErrors.validationErrors().get(0));
+            assertEquals("[indices] cannot be used with point in time", validationErrors.validationErrors().get(1));
+            assertEquals("[routing] cannot be used with point in time", validationErrors.validationErrors().get(2));
+        }
         {
             // if scroll isn't set, validate should never add errors
             SearchRequest searchRequest = createSearchRequest().source(new SearchSourceBuilder());
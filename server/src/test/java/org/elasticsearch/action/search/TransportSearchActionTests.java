@@ -23,6 +23,7 @@ import org.apache.lucene.search.TotalHits;
 import org.apache.lucene.util.SetOnce;
 import org.elasticsearch.Version;
 import org.elasticsearch.action.ActionListener;
+import org.elasticsearch.action.ActionRequestValidationException;
 import org.elasticsearch.action.LatchedActionListener;
 import org.elasticsearch.action.OriginalIndices;
 import org.elasticsearch.action.OriginalIndicesTests;
@@ -52,6 +53,7 @@ import org.elasticsearch.search.SearchHit;
 import org.elasticsearch.search.SearchHits;
 import org.elasticsearch.search.aggregations.InternalAggregation;
 import org.elasticsearch.search.aggregations.InternalAggregations;
+import org.elasticsearch.search.builder.PointInTimeBuilder;
 import org.elasticsearch.search.builder.SearchSourceBuilder;
 import org.elasticsearch.search.collapse.CollapseBuilder;
 import org.elasticsearch.search.internal.AliasFilter;
@@ -111,6 +113,18 @@ public class TransportSearchActionTests extends ESTestCase {
         return new SearchShardIterator(clusterAlias, shardId, shardRoutings, originalIndices);
     }
 
+    public void testValidatePointInTime() {
+        assertNull(TransportSearchAction.validatePointInTime(new SearchRequest("index")));
+        SearchRequest searchRequest = new SearchRequest()
+            .source(new SearchSourceBuilder().pointInTimeBuilder(new PointInTimeBuilder(randomAlphaOfLength(10))));
+        assertNull(TransportSearchAction.validatePointInTime(searchRequest));
+        // indices may be set on an already validated request, for instance by an action filter
+        searchRequest.indices("index");
+        ActionRequestValidationException e = TransportSearchAction.validatePointInTime(searchRequest);
+        assertNotNull(e);
+        assertEquals(Collections.singletonList("[indices] cannot be used with point in time"), e.validationErrors());
+    }
+
     public void testMergeShardsIterators() {
         Index[] indices = new Index[randomIntBetween(1, 10)];
         for (int i = 0; i < indices.length; i++) {
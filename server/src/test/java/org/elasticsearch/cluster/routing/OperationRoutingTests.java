@@ -48,6 +48,7 @@ import static org.hamcrest.CoreMatchers.containsString;
 import static org.hamcrest.Matchers.containsInAnyOrder;
 import static org.hamcrest.Matchers.equalTo;
 import static org.hamcrest.Matchers.greaterThan;
+import static org.hamcrest.Matchers.lessThan;
 import static org.hamcrest.object.HasToString.hasToString;
 
 public class OperationRoutingTests extends ESTestCase{
@@ -606,4 +607,43 @@ public class OperationRoutingTests extends ESTestCase{
         terminate(threadPool);
     }
 
+    public void testAdaptiveReplicaSelectionWithShardCopyStats() throws Exception {
+        final String[] indexNames = new String[] { "test" };
+        ClusterState state = ClusterStateCreationUtils.stateWithAssignedPrimariesAndReplicas(indexNames, 1, 2);
+        OperationRouting opRouting = new OperationRouting(Settings.EMPTY,
+                new ClusterSettings(Settings.EMPTY, ClusterSettings.BUILT_IN_CLUSTER_SETTINGS));
+        opRouting.setUseAdaptiveReplicaSelection(true);
+        TestThreadPool threadPool = new TestThreadPool("testAdaptiveReplicaSelectionWithShardCopyStats");
+        ClusterService clusterService = ClusterServiceUtils.createClusterService(threadPool);
+        ResponseCollectorService collector = new ResponseCollectorService(clusterService);
+        Map<String, Long> outstandingRequests = new HashMap<>();
+        ShardId shardId = state.routingTable().index("test").shard(0).shardId();
+
+        // all the nodes are equally loaded
+        for (String nodeId : new String[] { "node_0", "node_1", "node_2" }) {
+            collector.addNodeStatistics(nodeId, 1, TimeValue.timeValueMillis(100).nanos(), TimeValue.timeValueMillis(50).nanos());
+            outstandingRequests.put(nodeId, 1L);
+        }
+        // but the copy of the shard on node 2 is much cheaper to search
+        collector.addShardCopyStatistics("node_0", shardId, TimeValue.timeValueMillis(150).nanos(), TimeValue.timeValueMillis(100).nanos());
+        collector.addShardCopyStatistics("node_1", shardId, TimeValue.timeValueMillis(200).nanos(), TimeValue.timeValueMillis(150).nanos());
+        collector.addShardCopyStatistics("node_2", shardId, TimeValue.timeValueMillis(20).nanos(), TimeValue.timeValueMillis(10).nanos());
+
+        GroupShardsIterator<ShardIterator> groupIterator = opRouting.searchShards(state, indexNames, null, null, collector,
+            outstandingRequests);
+        assertThat(groupIterator.get(0).nextOrNull().currentNodeId(), equalTo("node_2"));
+
+        // the response and service times of the other copies were moved towards those of the winning copy
+        assertThat(collector.getShardCopyStatistics("node_1", shardId).get().responseTime,
+            lessThan((double) TimeValue.timeValueMillis(200).nanos()));
+        assertThat(collector.getShardCopyStatistics("node_1", shardId).get().serviceTime,
+            lessThan((double) TimeValue.timeValueMillis(150).nanos()));
+        assertThat(collector.getShardCopyStatistics("node_2", shardId).get().responseTime,
+            equalTo((double) TimeValue.timeValueMillis(20).nanos()));
+        assertThat(collector.getShardCopyStatistics("node_2", shardId).get().serviceTime,
+            equalTo((double) TimeValue.timeValueMillis(10).nanos()));
+
+        IOUtils.close(clusterService);
+        terminate(threadPool);
+    }
 }
@@ -943,4 +943,152 @@ public class CacheTests extends ESTestCase {
             assertEquals(RemovalNotification.RemovalReason.INVALIDATED, removalNotifications.get(i).getRemovalReason());
         }
     }
+
+    // with the TINY_LFU eviction policy, frequently read entries must survive a scan of entries that are only used once
+    public void testTinyLfuProtectsFrequentlyReadEntries() {
+        final int maximumWeight = randomIntBetween(100, 500);
+        Cache<Integer, String> cache =
+            CacheBuilder.<Integer, String>builder()
+                .setMaximumWeight(maximumWeight)
+                .setEvictionPolicy(Cache.EvictionPolicy.TINY_LFU)
+                .build();
+        for (int i = 0; i < maximumWeight; i++) {
+            cache.put(i, Integer.toString(i));
+        }
+        for (int round = 0; round < 5; round++) {
+            for (int i = 0; i < maximumWeight; i++) {
+                assertEquals(Integer.toString(i), cache.get(i));
+            }
+            cache.refresh();
+        }
+        for (int i = maximumWeight; i < 3 * maximumWeight; i++) {
+            cache.put(i, Integer.toString(i));
+        }
+        cache.refresh();
+        assertEquals(maximumWeight, cache.count());
+        int remaining = 0;
+        for (int i = 0; i < maximumWeight; i++) {
+            if (cache.get(i) != null) {
+                remaining++;
+            }
+        }
+        // the entries of the admission window are replaced, and a few more because the frequencies are estimates
+        assertTrue("only " + remaining + " frequently read entries remain", remaining >= maximumWeight * 9 / 10);
+    }
+
+    public void testTinyLfuEvictions() {
+        final int maximumWeight = randomIntBetween(1, numberOfEntries);
+        final Set<Integer> keys = new HashSet<>();
+        Cache<Integer, String> cache =
+            CacheBuilder.<Integer, String>builder()
+                .setMaximumWeight(maximumWeight)
+                .weigher((k, v) -> k % 3 + 1)
+                .setEvictionPolicy(Cache.EvictionPolicy.TINY_LFU)
+                .removalListener(notification -> {
+                    assertEquals(RemovalNotification.RemovalReason.EVICTED, notification.getRemovalReason());
+                    assertTrue(keys.remove(notification.getKey()));
+                })
+                .build();
+        for (int i = 0; i < numberOfEntries; i++) {
+            final int key = randomIntBetween(0, numberOfEntries);
+            if (randomBoolean() && keys.contains(key) == false) {
+                keys.add(key);
+                cache.put(key, Integer.toString(key));
+            } else {
+                cache.get(key);
+            }
+        }
+        cache.refresh();
+        assertTrue(cache.weight() <= maximumWeight);
+        assertEquals(keys.size(), cache.count());
+        Set<Integer> cachedKeys = new HashSet<>();
+        for (Integer key : cache.keys()) {
+            cachedKeys.add(key);
+        }
+        assertEquals(keys, cachedKeys);
+        long weight = 0;
+        for (Integer key : keys) {
+            assertEquals(Integer.toString(key), cache.get(key));
+            weight += key % 3 + 1;
+        }
+        assertEquals(weight, cache.weight());
+    }
+
+    public void testTinyLfuExpirationAfterAccess() {
+        AtomicLong now = new AtomicLong();
+        Cache<Integer, String> cache = new Cache<Integer, String>() {
+            @Override
+            protected long now() {
+                return now.get();
+            }
+        };
+        cache.setEvictionPolicy(Cache.EvictionPolicy.TINY_LFU);
+        cache.setExpireAfterAccessNanos(2);
+        now.set(0);
+        for (int i = 0; i < numberOfEntries; i++) {
+            cache.put(i, Integer.toString(i));
+        }
+        now.set(1);
+        for (int i = 0; i < numberOfEntries; i += 2) {
+            assertEquals(Integer.toString(i), cache.get(i));
+        }
+        now.set(3);
+        cache.refresh();
+        assertEquals(numberOfEntries / 2 + numberOfEntries % 2, cache.count());
+        for (int i = 0; i < numberOfEntries; i++) {
+            if (i % 2 == 0) {
+                assertEquals(Integer.toString(i), cache.get(i));
+            } else {
+                assertNull(cache.get(i));
+            }
+        }
+    }
+
+    public void testTinyLfuConcurrentReads() throws BrokenBarrierException, InterruptedException {
+        int numberOfThreads = randomIntBetween(2, 32);
+        final int maximumWeight = 1000;
+        final Cache<Integer, String> cache =
+            CacheBuilder.<Integer, String>builder()
+                .setMaximumWeight(maximumWeight)
+                .setEvictionPolicy(Cache.EvictionPolicy.TINY_LFU)
+                .build();
+        for (int i = 0; i < 2 * maximumWeight; i++) {
+            cache.put(i, Integer.toString(i));
+        }
+
+        CyclicBarrier barrier = new CyclicBarrier(1 + numberOfThreads);
+        for (int i = 0; i < numberOfThreads; i++) {
+            Thread thread = new Thread(() -> {
+                try {
+                    barrier.await();
+                    Random random = new Random(random().nextLong());
+                    for (int j = 0; j < numberOfEntries; j++) {
+                        Integer key = random.nextInt(2 * maximumWeight);
+                        String value = cache.get(key);
+                        if (value != null) {
+                            assertEquals(Integer.toString(key), value);
+                        }
+                    }
+                    barrier.await();
+                } catch (BrokenBarrierException | InterruptedException e) {
+                    throw new AssertionError(e);
+                }
+            });
+            thread.start();
+        }
+
+        // wait for all threads to be ready
+        barrier.await();
+        // wait for all threads to finish
+        barrier.await();
+
+        cache.refresh();
+        assertEquals(maximumWeight, cache.count());
+        int count = 0;
+        for (Integer key : cache.keys()) {
+            assertEquals(Integer.toString(key), cache.get(key));
+            count++;
+        }
+        assertEquals(maximumWeight, count);
+    }
 }
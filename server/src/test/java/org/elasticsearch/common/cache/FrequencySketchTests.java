@@ -0,0 +1,81 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.common.cache;
+
+import org.elasticsearch.test.ESTestCase;
+
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.greaterThan;
+import static org.hamcrest.Matchers.lessThan;
+
+public class FrequencySketchTests extends ESTestCase {
+
+    public void testIncrement() {
+        FrequencySketch sketch = new FrequencySketch();
+        sketch.ensureCapacity(512);
+        int hash = randomInt();
+        assertThat(sketch.frequency(hash), equalTo(0));
+        int increments = randomIntBetween(1, FrequencySketch.MAX_COUNT);
+        for (int i = 0; i < increments; i++) {
+            sketch.increment(hash);
+        }
+        assertThat(sketch.frequency(hash), equalTo(increments));
+        for (int i = 0; i < 10; i++) {
+            sketch.increment(hash);
+        }
+        assertThat(sketch.frequency(hash), equalTo(FrequencySketch.MAX_COUNT));
+    }
+
+    public void testFrequentKeysHaveHigherEstimates() {
+        FrequencySketch sketch = new FrequencySketch();
+        sketch.ensureCapacity(1024);
+        for (int i = 0; i < 512; i++) {
+            sketch.increment(i);
+            if (i < 64) {
+                for (int j = 0; j < 5; j++) {
+                    sketch.increment(i);
+                }
+            }
+        }
+        int frequent = 0;
+        int rare = 0;
+        for (int i = 0; i < 512; i++) {
+            if (i < 64) {
+                frequent += sketch.frequency(i);
+            } else {
+                rare += sketch.frequency(i);
+            }
+        }
+        assertThat(frequent / 64, greaterThan(rare / 448));
+    }
+
+    public void testReset() {
+        FrequencySketch sketch = new FrequencySketch();
+        sketch.ensureCapacity(FrequencySketch.MIN_CAPACITY);
+        for (int i = 0; i < 4; i++) {
+            sketch.increment(42);
+        }
+        // increment other keys until the counters are halved
+        for (int i = 0; i < 10 * FrequencySketch.MIN_CAPACITY; i++) {
+            sketch.increment(1000 + i);
+        }
+        assertThat(sketch.frequency(42), lessThan(4));
+    }
+}
@@ -0,0 +1,114 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.common.compress;
+
+import org.elasticsearch.common.bytes.BytesArray;
+import org.elasticsearch.common.bytes.BytesReference;
+import org.elasticsearch.common.io.stream.BytesStreamOutput;
+import org.elasticsearch.common.io.stream.StreamInput;
+import org.elasticsearch.common.io.stream.StreamOutput;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+import static org.hamcrest.Matchers.lessThan;
+import static org.hamcrest.Matchers.sameInstance;
+
+/**
+ * Runs the streaming compression tests with LZ4 and checks the block format
+ */
+public class Lz4CompressTests extends DeflateCompressTests {
+
+    @Override
+    protected Compressor newCompressor() {
+        return new Lz4Compressor();
+    }
+
+    public void testBlockRoundTrip() throws IOException {
+        final byte[] src = randomBlock(randomIntBetween(0, Lz4Compressor.BLOCK_SIZE));
+        final byte[] compressed = new byte[Lz4Compressor.maxCompressedLength(src.length)];
+        final int compressedLength = Lz4Compressor.compress(src, 0, src.length, compressed, new int[1 << 12]);
+        final byte[] restored = new byte[src.length];
+        Lz4Compressor.decompress(compressed, 0, compressedLength, restored, src.length);
+        assertArrayEquals(src, restored);
+    }
+
+    public void testCompressesRepetitions() throws IOException {
+        final byte[] src = new byte[randomIntBetween(1024, Lz4Compressor.BLOCK_SIZE)];
+        final byte[] pattern = randomAlphaOfLengthBetween(1, 32).getBytes(StandardCharsets.UTF_8);
+        for (int i = 0; i < src.length; ++i) {
+            src[i] = pattern[i % pattern.length];
+        }
+        final byte[] compressed = new byte[Lz4Compressor.maxCompressedLength(src.length)];
+        final int compressedLength = Lz4Compressor.compress(src, 0, src.length, compressed, new int[1 << 12]);
+        assertThat(compressedLength, lessThan(src.length / 10));
+        final byte[] restored = new byte[src.length];
+        Lz4Compressor.decompress(compressed, 0, compressedLength, restored, src.length);
+        assertArrayEquals(src, restored);
+    }
+
+    public void testCorruptedBlock() throws IOException {
+        final byte[] src = "aaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaa".getBytes(StandardCharsets.UTF_8);
+        final byte[] compressed = new byte[Lz4Compressor.maxCompressedLength(src.length)];
+        final int compressedLength = Lz4Compressor.compress(src, 0, src.length, compressed, new int[1 << 12]);
+        final byte[] truncated = Arrays.copyOf(compressed, compressedLength - 1);
+        expectThrows(IOException.class, () -> Lz4Compressor.decompress(truncated, 0, truncated.length, new byte[src.length], src.length));
+        expectThrows(IOException.class,
+            () -> Lz4Compressor.decompress(compressed, 0, compressedLength, new byte[src.length + 1], src.length + 1));
+    }
+
+    public void testDetection() throws IOException {
+        final BytesReference uncompressed = new BytesArray("{\"field\":\"value\"}");
+        final BytesStreamOutput out = new BytesStreamOutput();
+        try (StreamOutput compressedOut = CompressorFactory.LZ4_COMPRESSOR.streamOutput(out)) {
+            uncompressed.writeTo(compressedOut);
+        }
+        assertThat(CompressorFactory.compressor(out.bytes()), sameInstance(CompressorFactory.LZ4_COMPRESSOR));
+        assertFalse(CompressorFactory.COMPRESSOR.isCompressed(out.bytes()));
+        assertEquals(uncompressed, CompressorFactory.uncompress(out.bytes()));
+        try (StreamInput in = CompressorFactory.LZ4_COMPRESSOR.streamInput(out.bytes().streamInput())) {
+            final byte[] bytes = new byte[uncompressed.length()];
+            in.readBytes(bytes, 0, bytes.length);
+            assertEquals(uncompressed, new BytesArray(bytes));
+            assertEquals(-1, in.read());
+        }
+
+        final CompressedXContent compressedXContent = new CompressedXContent(uncompressed, CompressorFactory.LZ4_COMPRESSOR);
+        assertTrue(CompressorFactory.LZ4_COMPRESSOR.isCompressed(compressedXContent.compressedReference()));
+        assertEquals(new CompressedXContent(uncompressed), compressedXContent);
+    }
+
+    public void testForName() {
+        assertThat(CompressorFactory.forName("deflate"), sameInstance(CompressorFactory.COMPRESSOR));
+        assertThat(CompressorFactory.forName("lz4"), sameInstance(CompressorFactory.LZ4_COMPRESSOR));
+        IllegalArgumentException e = expectThrows(IllegalArgumentException.class, () -> CompressorFactory.forName("zstd"));
+        assertEquals("unknown compressor [zstd], expected [deflate] or [lz4]", e.getMessage());
+    }
+
+    private static byte[] randomBlock(int length) {
+        final byte[] bytes = new byte[length];
+        final byte[] alphabet = randomAlphaOfLengthBetween(1, 8).getBytes(StandardCharsets.UTF_8);
+        for (int i = 0; i < length; ++i) {
+            bytes[i] = randomBoolean() ? alphabet[i % alphabet.length] : randomByte();
+        }
+        return bytes;
+    }
+}
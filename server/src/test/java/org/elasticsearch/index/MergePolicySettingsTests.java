@@ -22,6 +22,7 @@ import org.apache.lucene.index.NoMergePolicy;
 import org.elasticsearch.common.settings.Settings;
 import org.elasticsearch.common.unit.ByteSizeUnit;
 import org.elasticsearch.common.unit.ByteSizeValue;
+import org.elasticsearch.common.unit.TimeValue;
 import org.elasticsearch.index.shard.ShardId;
 import org.elasticsearch.test.ESTestCase;
 
@@ -31,6 +32,7 @@ import static org.elasticsearch.common.settings.Settings.Builder.EMPTY_SETTINGS;
 import static org.elasticsearch.index.IndexSettingsTests.newIndexMeta;
 import static org.hamcrest.Matchers.containsString;
 import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.instanceOf;
 
 public class MergePolicySettingsTests extends ESTestCase {
     protected final ShardId shardId = new ShardId("index", "_na_", 1);
@@ -159,6 +161,26 @@ public class MergePolicySettingsTests extends ESTestCase {
             MergePolicyConfig.DEFAULT_DELETES_PCT_ALLOWED, 0);
     }
 
+    public void testTimeBasedMergePolicySettings() throws IOException {
+        assertThat(indexSettings(Settings.EMPTY).getMergePolicy(), instanceOf(EsTieredMergePolicy.class));
+        IndexSettings indexSettings = indexSettings(Settings.builder()
+            .put(MergePolicyConfig.INDEX_MERGE_POLICY_TIMESTAMP_FIELD_SETTING.getKey(), "@timestamp")
+            .put(MergePolicyConfig.INDEX_MERGE_POLICY_SEGMENTS_PER_TIER_SETTING.getKey(), 5)
+            .build());
+        assertThat(indexSettings.getMergePolicy(), instanceOf(TimeBasedMergePolicy.class));
+        final TimeBasedMergePolicy mergePolicy = (TimeBasedMergePolicy) indexSettings.getMergePolicy();
+        assertEquals("@timestamp", mergePolicy.getTimestampField());
+        assertEquals(TimeValue.MINUS_ONE, mergePolicy.getMaxMergeAge());
+        assertEquals(5, mergePolicy.getTieredMergePolicy().getSegmentsPerTier(), 0);
+
+        indexSettings.updateIndexMetaData(newIndexMeta("index", Settings.builder()
+            .put(MergePolicyConfig.INDEX_MERGE_POLICY_TIMESTAMP_FIELD_SETTING.getKey(), "@timestamp")
+            .put(MergePolicyConfig.INDEX_MERGE_POLICY_MAX_MERGE_AGE_SETTING.getKey(), "7d")
+            .build()));
+        assertEquals(TimeValue.timeValueDays(7), mergePolicy.getMaxMergeAge());
+        assertEquals(MergePolicyConfig.DEFAULT_SEGMENTS_PER_TIER, mergePolicy.getTieredMergePolicy().getSegmentsPerTier(), 0);
+    }
+
     public Settings build(String value) {
         return Settings.builder().put(MergePolicyConfig.INDEX_COMPOUND_FORMAT_SETTING.getKey(), value).build();
     }
@@ -0,0 +1,169 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.index;
+
+import org.apache.lucene.document.Document;
+import org.apache.lucene.document.Field;
+import org.apache.lucene.document.LongPoint;
+import org.apache.lucene.document.StringField;
+import org.apache.lucene.index.DirectoryReader;
+import org.apache.lucene.index.IndexWriter;
+import org.apache.lucene.index.IndexWriterConfig;
+import org.apache.lucene.index.LeafReaderContext;
+import org.apache.lucene.index.NoMergePolicy;
+import org.apache.lucene.index.PointValues;
+import org.apache.lucene.index.SegmentInfos;
+import org.apache.lucene.index.SerialMergeScheduler;
+import org.apache.lucene.store.Directory;
+import org.elasticsearch.common.unit.TimeValue;
+import org.elasticsearch.test.ESTestCase;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.lessThan;
+
+public class TimeBasedMergePolicyTests extends ESTestCase {
+
+    private static final String TIMESTAMP_FIELD = "@timestamp";
+    private static final long NOW = TimeUnit.DAYS.toMillis(20_000);
+
+    public void testReadTimestampRange() throws IOException {
+        final long min;
+        final long max;
+        try (Directory dir = newDirectory()) {
+            final IndexWriterConfig iwc = new IndexWriterConfig()
+                .setMergePolicy(NoMergePolicy.INSTANCE)
+                .setUseCompoundFile(randomBoolean());
+            try (IndexWriter writer = new IndexWriter(dir, iwc)) {
+                min = randomLongBetween(0, NOW);
+                max = min + randomIntBetween(0, 1_000_000);
+                writer.addDocument(newDocument(min));
+                writer.addDocument(newDocument(max));
+                final Document noTimestamp = new Document();
+                noTimestamp.add(new StringField("field", "value", Field.Store.NO));
+                writer.addDocument(noTimestamp);
+                writer.commit();
+                writer.addDocument(noTimestamp);
+                writer.commit();
+            }
+            final SegmentInfos infos = SegmentInfos.readLatestCommit(dir);
+            assertThat(infos.size(), equalTo(2));
+            final TimeBasedMergePolicy.TimestampRange range =
+                TimeBasedMergePolicy.readTimestampRange(infos.info(0).info, TIMESTAMP_FIELD);
+            assertThat(range.min, equalTo(min));
+            assertThat(range.max, equalTo(max));
+            final TimeBasedMergePolicy.TimestampRange unknown =
+                TimeBasedMergePolicy.readTimestampRange(infos.info(1).info, TIMESTAMP_FIELD);
+            assertThat(unknown.min, equalTo(Long.MAX_VALUE));
+            assertThat(TimeBasedMergePolicy.readTimestampRange(infos.info(0).info, "field").min, equalTo(Long.MAX_VALUE));
+        }
+    }
+
+    public void testOnlyMergesAdjacentSegments() throws IOException {
+        final EsTieredMergePolicy tieredMergePolicy = new EsTieredMergePolicy();
+        tieredMergePolicy.setSegmentsPerTier(2);
+        tieredMergePolicy.setMaxMergeAtOnce(2);
+        final TimeBasedMergePolicy mergePolicy = new TimeBasedMergePolicy(tieredMergePolicy, TIMESTAMP_FIELD, TimeValue.MINUS_ONE,
+            () -> NOW);
+        // every batch covers the hour after the previous one, but batches have very different sizes
+        final int numBatches = randomIntBetween(10, 30);
+        try (Directory dir = newDirectory()) {
+            final IndexWriterConfig iwc = new IndexWriterConfig()
+                .setMergePolicy(mergePolicy)
+                .setMergeScheduler(new SerialMergeScheduler())
+                .setMaxBufferedDocs(10_000)
+                .setUseCompoundFile(randomBoolean());
+            try (IndexWriter writer = new IndexWriter(dir, iwc)) {
+                for (int batch = 0; batch < numBatches; batch++) {
+                    final long start = NOW - TimeUnit.HOURS.toMillis(numBatches - batch);
+                    final int numDocs = randomBoolean() ? randomIntBetween(1, 10) : randomIntBetween(1000, 5000);
+                    for (int i = 0; i < numDocs; i++) {
+                        writer.addDocument(newDocument(start + randomLongBetween(0, TimeUnit.HOURS.toMillis(1) - 1)));
+                    }
+                    writer.flush();
+                }
+                writer.commit();
+                try (DirectoryReader reader = DirectoryReader.open(writer)) {
+                    assertThat(reader.leaves().size(), lessThan(numBatches));
+                    assertDisjointTimeRanges(reader);
+                }
+            }
+        }
+    }
+
+    public void testDoesNotMergeOldSegments() throws IOException {
+        final EsTieredMergePolicy tieredMergePolicy = new EsTieredMergePolicy();
+        tieredMergePolicy.setSegmentsPerTier(2);
+        tieredMergePolicy.setMaxMergeAtOnce(2);
+        final TimeBasedMergePolicy mergePolicy = new TimeBasedMergePolicy(tieredMergePolicy, TIMESTAMP_FIELD,
+            TimeValue.timeValueDays(1), () -> NOW);
+        final int numOldSegments = randomIntBetween(3, 10);
+        try (Directory dir = newDirectory()) {
+            final IndexWriterConfig iwc = new IndexWriterConfig()
+                .setMergePolicy(mergePolicy)
+                .setMergeScheduler(new SerialMergeScheduler());
+            try (IndexWriter writer = new IndexWriter(dir, iwc)) {
+                for (int i = 0; i < numOldSegments; i++) {
+                    writer.addDocument(newDocument(NOW - TimeUnit.DAYS.toMillis(10 - i)));
+                    writer.flush();
+                }
+                writer.commit();
+                assertThat(SegmentInfos.readLatestCommit(dir).size(), equalTo(numOldSegments));
+
+                // once the merge age is lifted, the old segments get merged
+                mergePolicy.setMaxMergeAge(TimeValue.MINUS_ONE);
+                writer.maybeMerge();
+                writer.commit();
+                final SegmentInfos infos = SegmentInfos.readLatestCommit(dir);
+                assertThat(infos.size(), lessThan(numOldSegments));
+                // forced merges are always allowed
+                mergePolicy.setMaxMergeAge(TimeValue.timeValueDays(1));
+                writer.forceMerge(1);
+                writer.commit();
+                assertThat(SegmentInfos.readLatestCommit(dir).size(), equalTo(1));
+            }
+        }
+    }
+
+    private static Document newDocument(long timestamp) {
+        final Document document = new Document();
+        document.add(new LongPoint(TIMESTAMP_FIELD, timestamp));
+        return document;
+    }
+
+    private static void assertDisjointTimeRanges(DirectoryReader reader) throws IOException {
+        final List<long[]> ranges = new ArrayList<>();
+        for (LeafReaderContext leaf : reader.leaves()) {
+            final PointValues values = leaf.reader().getPointValues(TIMESTAMP_FIELD);
+            ranges.add(new long[] {
+                LongPoint.decodeDimension(values.getMinPackedValue(), 0),
+                LongPoint.decodeDimension(values.getMaxPackedValue(), 0) });
+        }
+        ranges.sort(Comparator.comparingLong(range -> range[0]));
+        for (int i = 1; i < ranges.size(); i++) {
+            assertThat("segments must not overlap in time", ranges.get(i - 1)[1], lessThan(ranges.get(i)[0]));
+        }
+    }
+}
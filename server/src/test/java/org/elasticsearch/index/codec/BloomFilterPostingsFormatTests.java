@@ -0,0 +1,127 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.index.codec;
+
+import org.apache.lucene.codecs.Codec;
+import org.apache.lucene.document.Document;
+import org.apache.lucene.document.Field;
+import org.apache.lucene.document.StringField;
+import org.apache.lucene.index.BasePostingsFormatTestCase;
+import org.apache.lucene.index.DirectoryReader;
+import org.apache.lucene.index.IndexWriter;
+import org.apache.lucene.index.LeafReaderContext;
+import org.apache.lucene.index.SegmentReader;
+import org.apache.lucene.index.Term;
+import org.apache.lucene.index.TermsEnum;
+import org.apache.lucene.store.Directory;
+import org.apache.lucene.util.BytesRef;
+import org.apache.lucene.util.TestUtil;
+import org.elasticsearch.common.hash.MurmurHash3;
+
+import java.io.IOException;
+import java.util.HashSet;
+import java.util.Set;
+
+import static org.hamcrest.Matchers.greaterThan;
+import static org.hamcrest.Matchers.lessThan;
+
+public class BloomFilterPostingsFormatTests extends BasePostingsFormatTestCase {
+
+    private final Codec codec = TestUtil.alwaysPostingsFormat(new BloomFilterPostingsFormat());
+
+    @Override
+    protected Codec getCodec() {
+        return codec;
+    }
+
+    public void testBloomFilter() {
+        final int numTerms = atLeast(1000);
+        final BloomFilterPostingsFormat.BloomFilter filter = BloomFilterPostingsFormat.BloomFilter.create(numTerms * 4);
+        final MurmurHash3.Hash128 hash = new MurmurHash3.Hash128();
+        final Set<BytesRef> terms = new HashSet<>();
+        while (terms.size() < numTerms) {
+            final BytesRef term = new BytesRef(TestUtil.randomSimpleString(random(), 1, 20));
+            if (terms.add(term)) {
+                filter.add(term, hash);
+            }
+        }
+        final BloomFilterPostingsFormat.BloomFilter downsized = filter.downsize(numTerms);
+        assertThat(downsized.numBits(), lessThan(filter.numBits()));
+        assertTrue(downsized.numBits() >= (long) numTerms * BloomFilterPostingsFormat.BloomFilter.BITS_PER_TERM);
+        int falsePositives = 0;
+        int lookups = 0;
+        for (int i = 0; i < 10_000; i++) {
+            final BytesRef term = new BytesRef(TestUtil.randomSimpleString(random(), 21, 30));
+            lookups++;
+            if (downsized.mightContain(term, hash)) {
+                falsePositives++;
+            }
+        }
+        for (BytesRef term : terms) {
+            assertTrue(downsized.mightContain(term, hash));
+        }
+        assertThat((double) falsePositives / lookups, lessThan(0.05));
+    }
+
+    public void testSeekExact() throws IOException {
+        try (Directory dir = newDirectory();
+             IndexWriter writer = new IndexWriter(dir, newIndexWriterConfig().setCodec(getCodec()))) {
+            final int numDocs = atLeast(100);
+            final Set<String> deleted = new HashSet<>();
+            for (int i = 0; i < numDocs; i++) {
+                final Document doc = new Document();
+                doc.add(new StringField("_id", Integer.toString(i), Field.Store.NO));
+                writer.addDocument(doc);
+                if (rarely()) {
+                    writer.commit();
+                }
+                if (i > 0 && rarely()) {
+                    final String id = Integer.toString(random().nextInt(i));
+                    writer.deleteDocuments(new Term("_id", id));
+                    deleted.add(id);
+                }
+            }
+            if (random().nextBoolean()) {
+                writer.forceMerge(1);
+            }
+            try (DirectoryReader reader = DirectoryReader.open(writer)) {
+                long bloomFilterBytes = 0;
+                for (int i = 0; i < numDocs; i++) {
+                    final BytesRef id = new BytesRef(Integer.toString(i));
+                    int found = 0;
+                    for (LeafReaderContext leaf : reader.leaves()) {
+                        final TermsEnum termsEnum = leaf.reader().terms("_id").iterator();
+                        if (termsEnum.seekExact(id)) {
+                            assertEquals(id, termsEnum.term());
+                            found++;
+                        }
+                    }
+                    assertTrue("id [" + i + "] must be found unless deleted", found > 0 || deleted.contains(id.utf8ToString()));
+                }
+                for (LeafReaderContext leaf : reader.leaves()) {
+                    assertFalse(leaf.reader().terms("_id").iterator().seekExact(new BytesRef("missing")));
+                    bloomFilterBytes += BloomFilterPostingsFormat.bloomFilterRamBytesUsed(
+                        ((SegmentReader) leaf.reader()).getPostingsReader());
+                }
+                assertThat(bloomFilterBytes, greaterThan(0L));
+            }
+        }
+    }
+}
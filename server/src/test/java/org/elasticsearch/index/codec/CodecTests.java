@@ -35,6 +35,7 @@ import org.elasticsearch.common.settings.Settings;
 import org.elasticsearch.env.Environment;
 import org.elasticsearch.index.IndexSettings;
 import org.elasticsearch.index.analysis.IndexAnalyzers;
+import org.elasticsearch.index.engine.EngineConfig;
 import org.elasticsearch.index.mapper.MapperService;
 import org.elasticsearch.index.similarity.SimilarityService;
 import org.elasticsearch.indices.mapper.MapperRegistry;
@@ -46,6 +47,7 @@ import java.io.IOException;
 import java.util.Collections;
 
 import static org.hamcrest.Matchers.instanceOf;
+import static org.hamcrest.Matchers.not;
 
 @SuppressCodecs("*") // we test against default codec so never get a random one here!
 public class CodecTests extends ESTestCase {
@@ -67,6 +69,16 @@ public class CodecTests extends ESTestCase {
         assertCompressionEquals(Mode.BEST_COMPRESSION, codec);
     }
 
+    public void testIdBloomFilter() throws Exception {
+        PerFieldMappingPostingFormatCodec codec = (PerFieldMappingPostingFormatCodec) createCodecService(Settings.EMPTY).codec("default");
+        assertThat(codec.getPostingsFormatForField("_id"), not(instanceOf(BloomFilterPostingsFormat.class)));
+
+        Settings settings = Settings.builder().put(EngineConfig.INDEX_CODEC_ID_BLOOM_FILTER_SETTING.getKey(), true).build();
+        codec = (PerFieldMappingPostingFormatCodec) createCodecService(settings).codec(randomFrom("default", "best_compression"));
+        assertThat(codec.getPostingsFormatForField("_id"), instanceOf(BloomFilterPostingsFormat.class));
+        assertThat(codec.getPostingsFormatForField("_seq_no"), not(instanceOf(BloomFilterPostingsFormat.class)));
+    }
+
     // write some docs with it, inspect .si to see this was the used compression
     private void assertCompressionEquals(Mode expected, Codec actual) throws Exception {
         Directory dir = newDirectory();
@@ -86,10 +98,15 @@ public class CodecTests extends ESTestCase {
     }
 
     private CodecService createCodecService() throws IOException {
+        return createCodecService(Settings.EMPTY);
+    }
+
+    private CodecService createCodecService(Settings indexSettings) throws IOException {
         Settings nodeSettings = Settings.builder()
                 .put(Environment.PATH_HOME_SETTING.getKey(), createTempDir())
                 .build();
-        IndexSettings settings = IndexSettingsModule.newIndexSettings("_na", nodeSettings);
+        IndexSettings settings = IndexSettingsModule.newIndexSettings("_na",
+                Settings.builder().put(nodeSettings).put(indexSettings).build());
         SimilarityService similarityService = new SimilarityService(settings, null, Collections.emptyMap());
         IndexAnalyzers indexAnalyzers = createTestAnalysis(settings, nodeSettings).indexAnalyzers;
         MapperRegistry mapperRegistry = new MapperRegistry(Collections.emptyMap(), Collections.emptyMap(), MapperPlugin.NOOP_FIELD_FILTER);
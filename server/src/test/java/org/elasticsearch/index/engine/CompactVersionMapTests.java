@@ -0,0 +1,113 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.index.engine;
+
+import org.apache.lucene.util.BytesRef;
+import org.apache.lucene.util.TestUtil;
+import org.elasticsearch.common.util.BigArrays;
+import org.elasticsearch.index.translog.Translog;
+import org.elasticsearch.test.ESTestCase;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.greaterThan;
+
+public class CompactVersionMapTests extends ESTestCase {
+
+    public void testBasics() {
+        try (CompactVersionMap map = new CompactVersionMap(BigArrays.NON_RECYCLING_INSTANCE, 0)) {
+            final BytesRef uid = new BytesRef("test");
+            assertNull(map.get(uid));
+            final IndexVersionValue value = new IndexVersionValue(new Translog.Location(1, 2, 3), 4, 5, 6);
+            map.put(uid, value);
+            assertEquals(value, map.get(uid));
+            assertEquals(1, map.size());
+
+            final IndexVersionValue noLocation = new IndexVersionValue(null, 7, 8, 9);
+            map.put(uid, noLocation);
+            assertEquals(noLocation, map.get(uid));
+            assertNull(map.get(uid).getLocation());
+            assertEquals(1, map.size());
+
+            map.remove(uid);
+            assertNull(map.get(uid));
+            assertEquals(0, map.size());
+            map.remove(uid);
+            assertEquals(0, map.size());
+
+            map.put(uid, value);
+            assertEquals(value, map.get(uid));
+            assertEquals(1, map.size());
+        }
+    }
+
+    public void testRandomOperations() {
+        final Map<BytesRef, VersionValue> expected = new HashMap<>();
+        final List<BytesRef> uids = new ArrayList<>();
+        final int numUids = randomIntBetween(1, 5000);
+        for (int i = 0; i < numUids; i++) {
+            uids.add(new BytesRef(TestUtil.randomSimpleString(random(), 1, 20)));
+        }
+        try (CompactVersionMap map = new CompactVersionMap(BigArrays.NON_RECYCLING_INSTANCE, randomIntBetween(0, 1000))) {
+            final int numOps = randomIntBetween(1, 20000);
+            for (int i = 0; i < numOps; i++) {
+                final BytesRef uid = randomFrom(uids);
+                if (randomInt(9) < 7) {
+                    final Translog.Location location = randomBoolean() ? null :
+                        new Translog.Location(randomNonNegativeLong(), randomNonNegativeLong(), randomInt(Integer.MAX_VALUE));
+                    final IndexVersionValue value =
+                        new IndexVersionValue(location, randomNonNegativeLong(), randomNonNegativeLong(), randomNonNegativeLong());
+                    map.put(uid, value);
+                    expected.put(uid, value);
+                } else {
+                    map.remove(uid);
+                    expected.remove(uid);
+                }
+                if (rarely()) {
+                    final BytesRef lookup = randomFrom(uids);
+                    assertEquals(expected.get(lookup), map.get(lookup));
+                }
+            }
+            assertThat(map.size(), equalTo((long) expected.size()));
+            assertThat(map.toMap(), equalTo(expected));
+            for (BytesRef uid : uids) {
+                assertEquals(expected.get(uid), map.get(uid));
+            }
+            assertThat(map.ramBytesUsed(), greaterThan(0L));
+        }
+    }
+
+    public void testOperationsAfterCloseAreIgnored() {
+        final CompactVersionMap map = new CompactVersionMap(BigArrays.NON_RECYCLING_INSTANCE, 0);
+        final BytesRef uid = new BytesRef("test");
+        map.put(uid, new IndexVersionValue(null, 1, 1, 1));
+        map.close();
+        assertNull(map.get(uid));
+        map.put(uid, new IndexVersionValue(null, 2, 2, 2));
+        map.remove(uid);
+        assertNull(map.get(uid));
+        assertThat(map.ramBytesUsed(), equalTo(0L));
+        assertTrue(map.toMap().isEmpty());
+    }
+}
@@ -0,0 +1,165 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.index.engine;
+
+import org.apache.lucene.document.Document;
+import org.apache.lucene.document.Field;
+import org.apache.lucene.document.StringField;
+import org.apache.lucene.index.IndexWriter;
+import org.apache.lucene.index.IndexWriterConfig;
+import org.apache.lucene.index.MergePolicy;
+import org.apache.lucene.index.MergeTrigger;
+import org.apache.lucene.index.SegmentCommitInfo;
+import org.apache.lucene.index.SegmentInfos;
+import org.apache.lucene.store.Directory;
+import org.apache.lucene.store.FilterDirectory;
+import org.apache.lucene.store.IOContext;
+import org.apache.lucene.store.IndexOutput;
+import org.elasticsearch.common.settings.Settings;
+import org.elasticsearch.common.unit.ByteSizeUnit;
+import org.elasticsearch.index.IndexSettings;
+import org.elasticsearch.index.MergeSchedulerConfig;
+import org.elasticsearch.index.merge.MergeCoordinator;
+import org.elasticsearch.index.shard.ShardId;
+import org.elasticsearch.test.ESTestCase;
+import org.elasticsearch.test.IndexSettingsModule;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.greaterThanOrEqualTo;
+
+public class ElasticsearchConcurrentMergeSchedulerTests extends ESTestCase {
+
+    /**
+     * Merges all the segments that are not merging yet, as soon as there are at least two of them.
+     */
+    private static class MergeAllMergePolicy extends MergePolicy {
+
+        @Override
+        public MergeSpecification findMerges(MergeTrigger mergeTrigger, SegmentInfos segmentInfos, MergeContext mergeContext) {
+            final List<SegmentCommitInfo> segments = new ArrayList<>();
+            for (SegmentCommitInfo info : segmentInfos) {
+                if (mergeContext.getMergingSegments().contains(info) == false) {
+                    segments.add(info);
+                }
+            }
+            if (segments.size() < 2) {
+                return null;
+            }
+            final MergeSpecification spec = new MergeSpecification();
+            spec.add(new OneMerge(segments));
+            return spec;
+        }
+
+        @Override
+        public MergeSpecification findForcedMerges(SegmentInfos segmentInfos, int maxSegmentCount,
+                                                   Map<SegmentCommitInfo, Boolean> segmentsToMerge, MergeContext mergeContext) {
+            return null;
+        }
+
+        @Override
+        public MergeSpecification findForcedDeletesMerges(SegmentInfos segmentInfos, MergeContext mergeContext) {
+            return null;
+        }
+    }
+
+    public void testQueuedMergeDoesNotPauseRunningMerge() throws Exception {
+        // a single merge thread, so that Lucene pauses all but one of the big merges that it considers running
+        final IndexSettings indexSettings = IndexSettingsModule.newIndexSettings("index", Settings.builder()
+            .put(MergeSchedulerConfig.MAX_THREAD_COUNT_SETTING.getKey(), 1)
+            .put(MergeSchedulerConfig.AUTO_THROTTLE_SETTING.getKey(), false)
+            .build());
+        final ShardId shardId = new ShardId(indexSettings.getIndex(), 0);
+        final CountDownLatch firstMergeStarted = new CountDownLatch(1);
+        final CountDownLatch releaseFirstMerge = new CountDownLatch(1);
+        final AtomicBoolean blockMerge = new AtomicBoolean(true);
+        final AtomicInteger numMerges = new AtomicInteger();
+        try (MergeCoordinator coordinator = new MergeCoordinator(Settings.builder()
+                .put(MergeCoordinator.MAX_MERGES_PER_PATH_SETTING.getKey(), 1).build());
+             Directory directory = new FilterDirectory(newDirectory()) {
+                 @Override
+                 public IndexOutput createOutput(String name, IOContext context) throws IOException {
+                     // holds the first merge, and thus the only permit of the data path, until the second merge is queued
+                     if (context.context == IOContext.Context.MERGE && blockMerge.compareAndSet(true, false)) {
+                         firstMergeStarted.countDown();
+                         try {
+                             releaseFirstMerge.await();
+                         } catch (InterruptedException e) {
+                             throw new AssertionError(e);
+                         }
+                     }
+                     return super.createOutput(name, context);
+                 }
+             }) {
+            final MergeCoordinator.ShardBudget mergeBudget = coordinator.newShardBudget(createTempDir(), () -> false);
+            final ElasticsearchConcurrentMergeScheduler scheduler =
+                new ElasticsearchConcurrentMergeScheduler(shardId, indexSettings, mergeBudget) {
+                    @Override
+                    protected MergeThread getMergeThread(IndexWriter writer, MergePolicy.OneMerge merge) throws IOException {
+                        // Lucene only pauses big merges, and the biggest ones first
+                        final int mergeIndex = numMerges.getAndIncrement();
+                        if (mergeIndex < 2) {
+                            merge.estimatedMergeBytes = ByteSizeUnit.MB.toBytes(200 - 100 * mergeIndex);
+                        }
+                        return super.getMergeThread(writer, merge);
+                    }
+                };
+            final IndexWriterConfig iwc = new IndexWriterConfig()
+                .setMergeScheduler(scheduler)
+                .setMergePolicy(new MergeAllMergePolicy());
+            try (IndexWriter writer = new IndexWriter(directory, iwc)) {
+                for (int i = 0; i < 2; i++) {
+                    addDocumentAndCommit(writer, i);
+                }
+                assertTrue(firstMergeStarted.await(10, TimeUnit.SECONDS));
+                assertThat(mergeBudget.runningMerges(), equalTo(1));
+
+                for (int i = 2; i < 4; i++) {
+                    addDocumentAndCommit(writer, i);
+                }
+                assertBusy(() -> assertThat(mergeBudget.queuedMerges(), equalTo(1)));
+                assertThat(scheduler.stats().getQueued(), equalTo(1L));
+
+                // the first merge must complete and hand its permit over to the queued one
+                releaseFirstMerge.countDown();
+                assertBusy(() -> {
+                    assertThat(mergeBudget.queuedMerges(), equalTo(0));
+                    assertThat(mergeBudget.runningMerges(), equalTo(0));
+                    assertThat(scheduler.stats().getTotal(), greaterThanOrEqualTo(2L));
+                });
+            }
+        }
+    }
+
+    private static void addDocumentAndCommit(IndexWriter writer, int id) throws IOException {
+        final Document document = new Document();
+        document.add(new StringField("id", Integer.toString(id), Field.Store.NO));
+        writer.addDocument(document);
+        writer.commit();
+    }
+}
@@ -24,7 +24,12 @@ import org.apache.lucene.util.BytesRefBuilder;
 import org.apache.lucene.util.Constants;
 import org.apache.lucene.util.RamUsageTester;
 import org.apache.lucene.util.TestUtil;
+import org.elasticsearch.common.breaker.CircuitBreaker;
 import org.elasticsearch.common.lease.Releasable;
+import org.elasticsearch.common.settings.ClusterSettings;
+import org.elasticsearch.common.settings.Settings;
+import org.elasticsearch.common.util.BigArrays;
+import org.elasticsearch.indices.breaker.HierarchyCircuitBreakerService;
 import org.elasticsearch.index.translog.Translog;
 import org.elasticsearch.test.ESTestCase;
 
@@ -93,7 +98,7 @@ public class LiveVersionMapTests extends ESTestCase {
     }
 
     public void testRefreshingBytes() throws IOException {
-        LiveVersionMap map = new LiveVersionMap();
+        LiveVersionMap map = newLiveVersionMap();
         BytesRefBuilder uid = new BytesRefBuilder();
         uid.copyChars(TestUtil.randomSimpleString(random(), 10, 20));
         try (Releasable r = map.acquireLock(uid.toBytesRef())) {
@@ -105,6 +110,43 @@ public class LiveVersionMapTests extends ESTestCase {
         assertThat(map.getRefreshingBytes(), equalTo(0L));
     }
 
+    private static LiveVersionMap newLiveVersionMap() {
+        if (randomBoolean()) {
+            return new LiveVersionMap();
+        } else {
+            return new LiveVersionMap(BigArrays.NON_RECYCLING_INSTANCE);
+        }
+    }
+
+    public void testCompactMapsAreAccounted() throws IOException {
+        final HierarchyCircuitBreakerService breakerService = new HierarchyCircuitBreakerService(Settings.EMPTY,
+            new ClusterSettings(Settings.EMPTY, ClusterSettings.BUILT_IN_CLUSTER_SETTINGS));
+        final CircuitBreaker breaker = breakerService.getBreaker(CircuitBreaker.ACCOUNTING);
+        final LiveVersionMap map = new LiveVersionMap(new BigArrays(null, breakerService, CircuitBreaker.ACCOUNTING));
+        final long emptyMapBytes = breaker.getUsed();
+        assertThat(emptyMapBytes, greaterThan(0L));
+        assertThat(map.ramBytesUsed(), equalTo(emptyMapBytes));
+        final int numRefreshes = randomIntBetween(1, 5);
+        for (int r = 0; r < numRefreshes; r++) {
+            for (int i = 0; i < 1000; ++i) {
+                BytesRef uid = uid(TestUtil.randomSimpleString(random(), 10, 20));
+                try (Releasable ignored = map.acquireLock(uid)) {
+                    map.putIndexUnderLock(uid, randomIndexVersionValue());
+                }
+            }
+            assertThat(map.ramBytesUsedForRefresh(), greaterThan(emptyMapBytes));
+            assertThat(breaker.getUsed(), equalTo(map.ramBytesUsedForRefresh()));
+            map.beforeRefresh();
+            assertThat(map.getRefreshingBytes(), greaterThan(emptyMapBytes));
+            assertThat(breaker.getUsed(), equalTo(map.ramBytesUsedForRefresh() + map.getRefreshingBytes()));
+            map.afterRefresh(randomBoolean());
+            assertThat(map.getRefreshingBytes(), equalTo(0L));
+            assertThat(breaker.getUsed(), equalTo(map.ramBytesUsedForRefresh()));
+        }
+        map.clear();
+        assertThat(breaker.getUsed(), equalTo(0L));
+    }
+
     private BytesRef uid(String string) {
         BytesRefBuilder builder = new BytesRefBuilder();
         builder.copyChars(string);
@@ -113,7 +155,7 @@ public class LiveVersionMapTests extends ESTestCase {
     }
 
     public void testBasics() throws IOException {
-        LiveVersionMap map = new LiveVersionMap();
+        LiveVersionMap map = newLiveVersionMap();
         try (Releasable r = map.acquireLock(uid("test"))) {
             Translog.Location tlogLoc = randomTranslogLocation();
             map.putIndexUnderLock(uid("test"), new IndexVersionValue(tlogLoc, 1, 1, 1));
@@ -145,7 +187,7 @@ public class LiveVersionMapTests extends ESTestCase {
         List<BytesRef> keyList = new ArrayList<>(keySet);
         ConcurrentHashMap<BytesRef, VersionValue> values = new ConcurrentHashMap<>();
         ConcurrentHashMap<BytesRef, DeleteVersionValue> deletes = new ConcurrentHashMap<>();
-        LiveVersionMap map = new LiveVersionMap();
+        LiveVersionMap map = newLiveVersionMap();
         int numThreads = randomIntBetween(2, 5);
 
         Thread[] threads = new Thread[numThreads];
@@ -273,7 +315,7 @@ public class LiveVersionMapTests extends ESTestCase {
     }
 
     public void testCarryOnSafeAccess() throws IOException {
-        LiveVersionMap map = new LiveVersionMap();
+        LiveVersionMap map = newLiveVersionMap();
         assertFalse(map.isUnsafe());
         assertFalse(map.isSafeAccessRequired());
         map.enforceSafeAccess();
@@ -305,7 +347,7 @@ public class LiveVersionMapTests extends ESTestCase {
     }
 
     public void testRefreshTransition() throws IOException {
-        LiveVersionMap map = new LiveVersionMap();
+        LiveVersionMap map = newLiveVersionMap();
         try (Releasable r = map.acquireLock(uid("1"))) {
             map.maybePutIndexUnderLock(uid("1"), randomIndexVersionValue());
             assertTrue(map.isUnsafe());
@@ -333,7 +375,7 @@ public class LiveVersionMapTests extends ESTestCase {
     }
 
     public void testAddAndDeleteRefreshConcurrently() throws IOException, InterruptedException {
-        LiveVersionMap map = new LiveVersionMap();
+        LiveVersionMap map = newLiveVersionMap();
         int numIters = randomIntBetween(1000, 5000);
         AtomicBoolean done = new AtomicBoolean(false);
         AtomicLong version = new AtomicLong();
@@ -390,7 +432,7 @@ public class LiveVersionMapTests extends ESTestCase {
     }
 
     public void testPruneTombstonesWhileLocked() throws InterruptedException, IOException {
-        LiveVersionMap map = new LiveVersionMap();
+        LiveVersionMap map = newLiveVersionMap();
         BytesRef uid = uid("1");
 
         try (Releasable ignore = map.acquireLock(uid)) {
@@ -413,7 +455,7 @@ public class LiveVersionMapTests extends ESTestCase {
     }
 
     public void testRandomlyIndexDeleteAndRefresh() throws Exception {
-        final LiveVersionMap versionMap = new LiveVersionMap();
+        final LiveVersionMap versionMap = newLiveVersionMap();
         final BytesRef uid = uid("1");
         final long versions = between(10, 1000);
         VersionValue latestVersion = null;
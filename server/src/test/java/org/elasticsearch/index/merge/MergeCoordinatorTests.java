@@ -0,0 +1,219 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.index.merge;
+
+import org.elasticsearch.common.lease.Releasable;
+import org.elasticsearch.common.settings.Settings;
+import org.elasticsearch.test.ESTestCase;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.nullValue;
+
+public class MergeCoordinatorTests extends ESTestCase {
+
+    public void testDisabledByDefault() {
+        assertThat(MergeCoordinator.create(Settings.EMPTY), nullValue());
+        try (MergeCoordinator coordinator = MergeCoordinator.create(Settings.builder()
+            .put(MergeCoordinator.ENABLED_SETTING.getKey(), true).build())) {
+            assertNotNull(coordinator);
+        }
+    }
+
+    public void testPrioritizesSearchedShardsAndSmallMerges() throws Exception {
+        final Settings settings = Settings.builder()
+            .put(MergeCoordinator.MAX_MERGES_PER_PATH_SETTING.getKey(), 1)
+            .put(MergeCoordinator.MAX_QUEUE_TIME_SETTING.getKey(), "1h")
+            .build();
+        final Path dataPath = createTempDir();
+        try (MergeCoordinator coordinator = new MergeCoordinator(settings)) {
+            final MergeCoordinator.ShardBudget idleShard = coordinator.newShardBudget(dataPath, () -> false);
+            final MergeCoordinator.ShardBudget searchedShard = coordinator.newShardBudget(dataPath, () -> true);
+            final Releasable running = idleShard.acquire(1, () -> false);
+            final List<String> order = new CopyOnWriteArrayList<>();
+            final List<Thread> threads = new ArrayList<>();
+            threads.add(queueMerge(idleShard, "large", 1_000_000, order));
+            threads.add(queueMerge(idleShard, "small", 1_000, order));
+            threads.add(queueMerge(searchedShard, "searched", 100_000, order));
+            threads.add(queueMerge(idleShard, "medium", 10_000, order));
+            for (Thread thread : threads) {
+                thread.start();
+            }
+            assertBusy(() -> assertThat(idleShard.queuedMerges(), equalTo(threads.size())));
+            assertThat(idleShard.runningMerges(), equalTo(1));
+            running.close();
+            for (Thread thread : threads) {
+                thread.join();
+            }
+            assertThat(order, equalTo(Arrays.asList("searched", "small", "medium", "large")));
+            assertThat(idleShard.runningMerges(), equalTo(0));
+            assertThat(idleShard.queuedMerges(), equalTo(0));
+        }
+    }
+
+    public void testLongQueuedMergesGoFirst() throws Exception {
+        final Settings settings = Settings.builder()
+            .put(MergeCoordinator.MAX_MERGES_PER_PATH_SETTING.getKey(), 1)
+            .put(MergeCoordinator.MAX_QUEUE_TIME_SETTING.getKey(), "0s")
+            .build();
+        final Path dataPath = createTempDir();
+        try (MergeCoordinator coordinator = new MergeCoordinator(settings)) {
+            final MergeCoordinator.ShardBudget budget = coordinator.newShardBudget(dataPath, () -> false);
+            final Releasable running = budget.acquire(1, () -> false);
+            final List<String> order = new CopyOnWriteArrayList<>();
+            final List<Thread> threads = new ArrayList<>();
+            final List<String> expected = new ArrayList<>();
+            final int numMerges = randomIntBetween(2, 5);
+            for (int i = 0; i < numMerges; i++) {
+                final String name = "merge-" + i;
+                final Thread thread = queueMerge(budget, name, randomLongBetween(1, 1_000_000), order);
+                thread.start();
+                threads.add(thread);
+                expected.add(name);
+                final int queued = i + 1;
+                assertBusy(() -> assertThat(budget.queuedMerges(), equalTo(queued)));
+            }
+            running.close();
+            for (Thread thread : threads) {
+                thread.join();
+            }
+            // all merges starve, they run in the order they were queued in regardless of their size
+            assertThat(order, equalTo(expected));
+        }
+    }
+
+    public void testBudgetIsPerDataPath() throws Exception {
+        final Settings settings = Settings.builder()
+            .put(MergeCoordinator.MAX_MERGES_PER_PATH_SETTING.getKey(), 1)
+            .build();
+        try (MergeCoordinator coordinator = new MergeCoordinator(settings)) {
+            final MergeCoordinator.ShardBudget first = coordinator.newShardBudget(createTempDir(), () -> false);
+            final MergeCoordinator.ShardBudget second = coordinator.newShardBudget(createTempDir(), () -> false);
+            try (Releasable ignored = first.acquire(1, () -> false);
+                 Releasable ignored2 = second.acquire(1, () -> false)) {
+                assertThat(first.runningMerges(), equalTo(1));
+                assertThat(second.runningMerges(), equalTo(1));
+            }
+        }
+    }
+
+    public void testAbortedMergeLeavesQueue() throws Exception {
+        final Settings settings = Settings.builder()
+            .put(MergeCoordinator.MAX_MERGES_PER_PATH_SETTING.getKey(), 1)
+            .build();
+        try (MergeCoordinator coordinator = new MergeCoordinator(settings)) {
+            final MergeCoordinator.ShardBudget budget = coordinator.newShardBudget(createTempDir(), () -> false);
+            try (Releasable ignored = budget.acquire(1, () -> false)) {
+                final AtomicBoolean aborted = new AtomicBoolean();
+                final Thread thread = new Thread(() -> {
+                    try {
+                        budget.acquire(1, aborted::get).close();
+                    } catch (InterruptedException e) {
+                        throw new AssertionError(e);
+                    }
+                });
+                thread.start();
+                assertBusy(() -> assertThat(budget.queuedMerges(), equalTo(1)));
+                aborted.set(true);
+                thread.join();
+                assertThat(budget.queuedMerges(), equalTo(0));
+                assertThat(budget.runningMerges(), equalTo(1));
+            }
+            assertThat(budget.runningMerges(), equalTo(0));
+        }
+    }
+
+    public void testIoRateIsSharedAcrossRunningMerges() throws Exception {
+        final Settings settings = Settings.builder()
+            .put(MergeCoordinator.MAX_MERGES_PER_PATH_SETTING.getKey(), 4)
+            .put(MergeCoordinator.MAX_BYTES_PER_SEC_PER_PATH_SETTING.getKey(), "120mb")
+            .build();
+        try (MergeCoordinator coordinator = new MergeCoordinator(settings)) {
+            final Path dataPath = createTempDir();
+            final MergeCoordinator.ShardBudget budget = coordinator.newShardBudget(dataPath, () -> false);
+            final MergeCoordinator.ShardBudget otherBudget = coordinator.newShardBudget(dataPath, () -> false);
+            final AtomicInteger notifications = new AtomicInteger();
+            final Runnable listener = notifications::incrementAndGet;
+            budget.addListener(listener);
+            assertThat(budget.maxMbPerSecPerMerge(), equalTo(120.0));
+            final Releasable first = budget.acquire(1, () -> false);
+            assertThat(notifications.get(), equalTo(1));
+            assertThat(budget.maxMbPerSecPerMerge(), equalTo(120.0));
+            final Releasable second = otherBudget.acquire(1, () -> false);
+            assertThat(notifications.get(), equalTo(2));
+            assertThat(budget.maxMbPerSecPerMerge(), equalTo(60.0));
+            final Releasable third = otherBudget.acquire(1, () -> false);
+            assertThat(budget.maxMbPerSecPerMerge(), equalTo(40.0));
+            second.close();
+            third.close();
+            // releasing twice is a no-op
+            third.close();
+            assertThat(notifications.get(), equalTo(5));
+            assertThat(budget.maxMbPerSecPerMerge(), equalTo(120.0));
+            budget.removeListener(listener);
+            first.close();
+            assertThat(notifications.get(), equalTo(5));
+        }
+        try (MergeCoordinator coordinator = new MergeCoordinator(Settings.EMPTY)) {
+            final MergeCoordinator.ShardBudget budget = coordinator.newShardBudget(createTempDir(), () -> false);
+            assertThat(budget.maxMbPerSecPerMerge(), equalTo(Double.POSITIVE_INFINITY));
+        }
+    }
+
+    public void testCloseReleasesQueuedMerges() throws Exception {
+        final Settings settings = Settings.builder()
+            .put(MergeCoordinator.MAX_MERGES_PER_PATH_SETTING.getKey(), 1)
+            .build();
+        final MergeCoordinator coordinator = new MergeCoordinator(settings);
+        final MergeCoordinator.ShardBudget budget = coordinator.newShardBudget(createTempDir(), () -> false);
+        final Releasable running = budget.acquire(1, () -> false);
+        final List<String> order = new CopyOnWriteArrayList<>();
+        final Thread thread = queueMerge(budget, "queued", 1, order);
+        thread.start();
+        assertBusy(() -> assertThat(budget.queuedMerges(), equalTo(1)));
+        coordinator.close();
+        thread.join();
+        assertThat(order, equalTo(Arrays.asList("queued")));
+        running.close();
+        assertThat(budget.runningMerges(), equalTo(0));
+        // once closed merges don't wait anymore
+        try (Releasable first = budget.acquire(1, () -> false);
+             Releasable second = budget.acquire(1, () -> false)) {
+            assertThat(budget.runningMerges(), equalTo(2));
+        }
+    }
+
+    private static Thread queueMerge(MergeCoordinator.ShardBudget budget, String name, long estimatedMergeBytes, List<String> order) {
+        return new Thread(() -> {
+            try (Releasable ignored = budget.acquire(estimatedMergeBytes, () -> false)) {
+                order.add(name);
+            } catch (InterruptedException e) {
+                throw new AssertionError(e);
+            }
+        });
+    }
+}
@@ -29,7 +29,8 @@ public class RefreshStatsTests extends ESTestCase {
 
     public void testSerialize() throws IOException {
         RefreshStats stats = new RefreshStats(randomNonNegativeLong(), randomNonNegativeLong(), randomNonNegativeLong(),
-            randomNonNegativeLong(), between(0, Integer.MAX_VALUE));
+            randomNonNegativeLong(), between(0, Integer.MAX_VALUE), randomNonNegativeLong(), randomNonNegativeLong(),
+            randomNonNegativeLong(), randomNonNegativeLong(), randomNonNegativeLong());
         BytesStreamOutput out = new BytesStreamOutput();
         stats.writeTo(out);
         StreamInput input = out.bytes().streamInput();
@@ -40,5 +41,11 @@ public class RefreshStatsTests extends ESTestCase {
         assertEquals(stats.getListeners(), read.getListeners());
         assertEquals(stats.getTotalTimeInMillis(), read.getTotalTimeInMillis());
         assertEquals(stats.getExternalTotalTimeInMillis(), read.getExternalTotalTimeInMillis());
+        assertEquals(stats.getScheduledTotal(), read.getScheduledTotal());
+        assertEquals(stats.getSearchIdleSkippedTotal(), read.getSearchIdleSkippedTotal());
+        assertEquals(stats.getSearchIdleTotal(), read.getSearchIdleTotal());
+        assertEquals(stats.getSearchWakeupTotal(), read.getSearchWakeupTotal());
+        assertEquals(stats.getIndexingBufferTotal(), read.getIndexingBufferTotal());
+        assertEquals(stats, read);
     }
 }
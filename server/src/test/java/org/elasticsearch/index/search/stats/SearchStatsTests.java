@@ -19,6 +19,7 @@
 
 package org.elasticsearch.index.search.stats;
 
+import org.elasticsearch.common.io.stream.BytesStreamOutput;
 import org.elasticsearch.index.search.stats.SearchStats.Stats;
 import org.elasticsearch.test.ESTestCase;
 
@@ -32,9 +33,9 @@ public class SearchStatsTests extends ESTestCase {
         // let's create two dummy search stats with groups
         Map<String, Stats> groupStats1 = new HashMap<>();
         Map<String, Stats> groupStats2 = new HashMap<>();
-        groupStats2.put("group1", new Stats(1, 1, 1, 1, 1, 1, 1, 1, 1, 1, 1, 1));
-        SearchStats searchStats1 = new SearchStats(new Stats(1, 1, 1, 1, 1, 1, 1, 1, 1, 1, 1, 1), 0, groupStats1);
-        SearchStats searchStats2 = new SearchStats(new Stats(1, 1, 1, 1, 1, 1, 1, 1, 1, 1, 1, 1), 0, groupStats2);
+        groupStats2.put("group1", new Stats(1, 1, 1, 1, 1, 1, 1, 1, 1, 1, 1, 1, 1, 1, 1));
+        SearchStats searchStats1 = new SearchStats(new Stats(1, 1, 1, 1, 1, 1, 1, 1, 1, 1, 1, 1, 1, 1, 1), 0, 1, groupStats1);
+        SearchStats searchStats2 = new SearchStats(new Stats(1, 1, 1, 1, 1, 1, 1, 1, 1, 1, 1, 1, 1, 1, 1), 0, 1, groupStats2);
 
         // adding these two search stats and checking group stats are correct
         searchStats1.add(searchStats2);
@@ -50,6 +51,20 @@ public class SearchStatsTests extends ESTestCase {
         // adding again would then return wrong search stats (would return 4! instead of 3)
         searchStats1.add(searchStats2);
         assertStats(groupStats1.get("group1"), 3);
+        assertEquals(4, searchStats1.getPointInTimeSegmentsSizeInBytes());
+    }
+
+    public void testSerialization() throws Exception {
+        SearchStats stats = new SearchStats(new Stats(1, 2, 3, 4, 5, 6, 7, 8, 9, 10, 11, 12, 13, 14, 15), 16, 17, null);
+        BytesStreamOutput out = new BytesStreamOutput();
+        stats.writeTo(out);
+        SearchStats read = new SearchStats(out.bytes().streamInput());
+        assertEquals(16, read.getOpenContexts());
+        assertEquals(17, read.getPointInTimeSegmentsSizeInBytes());
+        assertEquals(13, read.getTotal().getPointInTimeCount());
+        assertEquals(14, read.getTotal().getPointInTimeTimeInMillis());
+        assertEquals(15, read.getTotal().getPointInTimeCurrent());
+        assertEquals(12, read.getTotal().getSuggestCurrent());
     }
 
     private static void assertStats(Stats stats, long equalTo) {
@@ -65,6 +80,9 @@ public class SearchStatsTests extends ESTestCase {
         assertEquals(equalTo, stats.getSuggestCount());
         assertEquals(equalTo, stats.getSuggestTimeInMillis());
         assertEquals(equalTo, stats.getSuggestCurrent());
+        assertEquals(equalTo, stats.getPointInTimeCount());
+        assertEquals(equalTo, stats.getPointInTimeTimeInMillis());
+        assertEquals(equalTo, stats.getPointInTimeCurrent());
     }
 
 }
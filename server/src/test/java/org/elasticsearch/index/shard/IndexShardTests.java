@@ -1544,6 +1544,42 @@ public class IndexShardTests extends IndexShardTestCase {
         closeShards(shard);
     }
 
+    public void testPreParseIndexOperation() throws IOException {
+        IndexShard shard = newStartedShard(true);
+        indexDoc(shard, "_doc", "0", "{\"foo\":\"bar\"}");
+        final String index = shard.shardId().getIndexName();
+
+        SourceToParse known = new SourceToParse(index, "_doc", "1", new BytesArray("{\"foo\":\"baz\"}"), XContentType.JSON);
+        IndexShard.PreParsedDocument preParsed = shard.preParseIndexOperation(known);
+        assertThat(preParsed, notNullValue());
+        // requires a dynamic mapping update
+        assertThat(shard.preParseIndexOperation(
+            new SourceToParse(index, "_doc", "2", new BytesArray("{\"bar\":\"baz\"}"), XContentType.JSON)), nullValue());
+        // fails to parse
+        assertThat(shard.preParseIndexOperation(
+            new SourceToParse(index, "_doc", "3", new BytesArray("{\"foo\":"), XContentType.JSON)), nullValue());
+
+        Engine.IndexResult result = shard.applyIndexOperationOnPrimary(Versions.MATCH_ANY, VersionType.INTERNAL, known,
+            SequenceNumbers.UNASSIGNED_SEQ_NO, 0, IndexRequest.UNSET_AUTO_GENERATED_TIMESTAMP, false, preParsed);
+        assertThat(result.getResultType(), equalTo(Engine.Result.Type.SUCCESS));
+
+        // the source is parsed again if the pre-parsed document was parsed from another source or with another mapping
+        preParsed = shard.preParseIndexOperation(
+            new SourceToParse(index, "_doc", "4", new BytesArray("{\"foo\":\"baz\"}"), XContentType.JSON));
+        assertThat(preParsed, notNullValue());
+        indexDoc(shard, "_doc", "5", "{\"bar\":\"baz\"}");
+        SourceToParse other = new SourceToParse(index, "_doc", "4", new BytesArray("{\"bar\":1}"), XContentType.JSON);
+        result = shard.applyIndexOperationOnPrimary(Versions.MATCH_ANY, VersionType.INTERNAL, other,
+            SequenceNumbers.UNASSIGNED_SEQ_NO, 0, IndexRequest.UNSET_AUTO_GENERATED_TIMESTAMP, false, preParsed);
+        assertThat(result.getResultType(), equalTo(Engine.Result.Type.SUCCESS));
+        shard.refresh("test");
+        try (Engine.Searcher searcher = shard.acquireSearcher("test")) {
+            assertThat(searcher.searcher().count(new TermQuery(new Term("bar", "1"))), equalTo(1));
+            assertThat(searcher.searcher().count(new TermQuery(new Term("foo", "baz"))), equalTo(1));
+        }
+        closeShards(shard);
+    }
+
     public void testIndexingOperationsListeners() throws IOException {
         IndexShard shard = newStartedShard(true);
         indexDoc(shard, "_doc", "0", "{\"foo\" : \"bar\"}");
@@ -1955,6 +1991,52 @@ public class IndexShardTests extends IndexShardTestCase {
         closeShards(newShard);
     }
 
+    public void testRecoverFromStoreWithParallelTranslogReplay() throws IOException {
+        final Settings settings = Settings.builder()
+            .put(IndexSettings.INDEX_TRANSLOG_RECOVERY_PARALLELISM_SETTING.getKey(), randomIntBetween(2, 8))
+            .build();
+        final IndexShard shard = newStartedShard(true, settings);
+        final int numIds = randomIntBetween(1, 50);
+        final Set<String> liveIds = new HashSet<>();
+        final int totalOps = randomIntBetween(1, 500);
+        for (int i = 0; i < totalOps; i++) {
+            final String id = Integer.toString(randomInt(numIds));
+            if (liveIds.contains(id) && rarely()) {
+                deleteDoc(shard, "_doc", id);
+                liveIds.remove(id);
+            } else {
+                indexDoc(shard, "_doc", id, "{\"value\":" + i + "}");
+                liveIds.add(id);
+            }
+        }
+        IndexShard newShard = reinitShard(shard);
+        DiscoveryNode localNode = new DiscoveryNode("foo", buildNewFakeTransportAddress(), emptyMap(), emptySet(), Version.CURRENT);
+        newShard.markAsRecovering("store", new RecoveryState(newShard.routingEntry(), localNode, null));
+        assertTrue(newShard.recoverFromStore());
+        assertEquals(totalOps, newShard.recoveryState().getTranslog().recoveredOperations());
+        assertEquals(0, newShard.recoveryState().getTranslog().remainingOperations());
+        IndexShardTestCase.updateRoutingEntry(newShard, newShard.routingEntry().moveToStarted());
+        assertThat(newShard.getLocalCheckpoint(), equalTo(totalOps - 1L));
+        assertDocCount(newShard, liveIds.size());
+        closeShards(newShard);
+    }
+
+    public void testTranslogReplayPartition() {
+        final int parallelism = randomIntBetween(1, 16);
+        final String id = randomAlphaOfLength(8);
+        final Translog.Operation index = new Translog.Index("_doc", id, randomNonNegativeLong(), 1, 1,
+            "{}".getBytes(Charset.forName("UTF-8")), null, -1);
+        final Translog.Operation delete = new Translog.Delete("_doc", id, new Term("_id", Uid.encodeId(id)),
+            randomNonNegativeLong(), 1, 2);
+        final int partition = IndexShard.translogReplayPartition(index, parallelism);
+        assertThat(partition, greaterThanOrEqualTo(0));
+        assertThat(partition, lessThan(parallelism));
+        assertEquals(partition, IndexShard.translogReplayPartition(delete, parallelism));
+        final int noOpPartition = IndexShard.translogReplayPartition(new Translog.NoOp(randomNonNegativeLong(), 1, "test"), parallelism);
+        assertThat(noOpPartition, greaterThanOrEqualTo(0));
+        assertThat(noOpPartition, lessThan(parallelism));
+    }
+
     public void testRecoverFromStalePrimaryForceNewHistoryUUID() throws IOException {
         final IndexShard shard = newStartedShard(true);
         int totalOps = randomInt(10);
@@ -2540,7 +2622,7 @@ public class IndexShardTests extends IndexShardTestCase {
         primary.recoveryState().getTranslog().totalOperationsOnStart(snapshot.totalOperations());
         primary.state = IndexShardState.RECOVERING; // translog recovery on the next line would otherwise fail as we are in POST_RECOVERY
         primary.runTranslogRecovery(primary.getEngine(), snapshot, Engine.Operation.Origin.LOCAL_TRANSLOG_RECOVERY,
-            primary.recoveryState().getTranslog()::incrementRecoveredOperations);
+            primary.recoveryState().getTranslog()::incrementRecoveredOperations, randomIntBetween(1, 4));
         assertThat(primary.recoveryState().getTranslog().recoveredOperations(), equalTo(numTotalEntries - numCorruptEntries));
 
         closeShards(primary);
@@ -3259,6 +3341,7 @@ public class IndexShardTests extends IndexShardTestCase {
         indexDoc(primary, "_doc", "0", "{\"foo\" : \"bar\"}");
         assertTrue(primary.getEngine().refreshNeeded());
         assertTrue(primary.scheduledRefresh());
+        assertEquals(1, primary.refreshStats().getScheduledTotal());
         IndexScopedSettings scopedSettings = primary.indexSettings().getScopedSettings();
         settings = Settings.builder().put(settings).put(IndexSettings.INDEX_SEARCH_IDLE_AFTER.getKey(), TimeValue.ZERO).build();
         scopedSettings.applySettings(settings);
@@ -3271,6 +3354,8 @@ public class IndexShardTests extends IndexShardTestCase {
         assertEquals(lastSearchAccess, primary.getLastSearcherAccess());
         // wait until the thread-pool has moved the timestamp otherwise we can't assert on this below
         awaitBusy(() -> primary.getThreadPool().relativeTimeInMillis() > lastSearchAccess);
+        // block the refresh pool so that the refresh forked by the first search can't race with the scheduled refresh below
+        final CountDownLatch releaseRefreshPool = blockRefreshPool();
         CountDownLatch latch = new CountDownLatch(10);
         for (int i = 0; i < 10; i++) {
             primary.awaitShardSearchActive(refreshed -> {
@@ -3291,6 +3376,7 @@ public class IndexShardTests extends IndexShardTestCase {
         assertTrue(primary.getEngine().refreshNeeded());
         assertTrue(primary.scheduledRefresh());
         latch.await();
+        releaseRefreshPool.countDown();
         CountDownLatch latch1 = new CountDownLatch(1);
         primary.awaitShardSearchActive(refreshed -> {
             assertFalse(refreshed);
@@ -3304,8 +3390,10 @@ public class IndexShardTests extends IndexShardTestCase {
         latch1.await();
 
         indexDoc(primary, "_doc", "2", "{\"foo\" : \"bar\"}");
+        final long skippedRefreshes = primary.refreshStats().getSearchIdleSkippedTotal();
         assertFalse(primary.scheduledRefresh());
         assertTrue(primary.isSearchIdle());
+        assertEquals(skippedRefreshes + 1, primary.refreshStats().getSearchIdleSkippedTotal());
         primary.checkIdle(0);
         assertTrue(primary.scheduledRefresh()); // make sure we refresh once the shard is inactive
         try (Engine.Searcher searcher = primary.acquireSearcher("test")) {
@@ -3314,6 +3402,96 @@ public class IndexShardTests extends IndexShardTestCase {
         closeShards(primary);
     }
 
+    public void testSearchWakeupRefresh() throws Exception {
+        Settings settings = Settings.builder().put(IndexMetaData.SETTING_VERSION_CREATED, Version.CURRENT)
+            .put(IndexMetaData.SETTING_NUMBER_OF_REPLICAS, 1)
+            .put(IndexMetaData.SETTING_NUMBER_OF_SHARDS, 1)
+            .put(IndexSettings.INDEX_SEARCH_IDLE_AFTER.getKey(), TimeValue.ZERO)
+            .build();
+        IndexMetaData metaData = IndexMetaData.builder("test")
+            .putMapping("_doc", "{ \"properties\": { \"foo\":  { \"type\": \"text\"}}}")
+            .settings(settings)
+            .primaryTerm(0, 1).build();
+        IndexShard primary = newShard(new ShardId(metaData.getIndex(), 0), true, "n1", metaData, null);
+        recoverShardFromStore(primary);
+        indexDoc(primary, "_doc", "0", "{\"foo\" : \"bar\"}");
+        assertTrue(primary.isSearchIdle());
+        assertFalse(primary.scheduledRefresh());
+        assertEquals(0, primary.refreshStats().getSearchWakeupTotal());
+
+        // the first search after the shard became search idle refreshes without waiting for the next scheduled refresh
+        CountDownLatch latch = new CountDownLatch(1);
+        primary.awaitShardSearchActive(refreshed -> {
+            assertTrue(refreshed);
+            try (Engine.Searcher searcher = primary.acquireSearcher("test")) {
+                assertEquals(1, searcher.reader().numDocs());
+            } finally {
+                latch.countDown();
+            }
+        });
+        latch.await();
+        // the refresh listeners are notified before the refresh is counted
+        assertBusy(() -> assertEquals(1, primary.refreshStats().getSearchWakeupTotal()));
+        assertEquals(0, primary.refreshStats().getScheduledTotal());
+        closeShards(primary);
+    }
+
+    /**
+     * Occupies all threads of the refresh thread pool until the returned latch is released.
+     */
+    private CountDownLatch blockRefreshPool() throws InterruptedException {
+        final int numThreads = threadPool.info(ThreadPool.Names.REFRESH).getMax();
+        final CountDownLatch blocked = new CountDownLatch(numThreads);
+        final CountDownLatch release = new CountDownLatch(1);
+        for (int i = 0; i < numThreads; i++) {
+            threadPool.executor(ThreadPool.Names.REFRESH).execute(() -> {
+                blocked.countDown();
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    throw new AssertionError(e);
+                }
+            });
+        }
+        blocked.await();
+        return release;
+    }
+
+    public void testSearchIdleRefreshInterval() throws IOException {
+        Settings settings = Settings.builder().put(IndexMetaData.SETTING_VERSION_CREATED, Version.CURRENT)
+            .put(IndexMetaData.SETTING_NUMBER_OF_REPLICAS, 1)
+            .put(IndexMetaData.SETTING_NUMBER_OF_SHARDS, 1)
+            .put(IndexSettings.INDEX_SEARCH_IDLE_AFTER.getKey(), TimeValue.ZERO)
+            .put(IndexSettings.INDEX_SEARCH_IDLE_REFRESH_INTERVAL.getKey(), TimeValue.timeValueHours(1))
+            .build();
+        IndexMetaData metaData = IndexMetaData.builder("test")
+            .putMapping("_doc", "{ \"properties\": { \"foo\":  { \"type\": \"text\"}}}")
+            .settings(settings)
+            .primaryTerm(0, 1).build();
+        IndexShard primary = newShard(new ShardId(metaData.getIndex(), 0), true, "n1", metaData, null);
+        recoverShardFromStore(primary);
+        indexDoc(primary, "_doc", "0", "{\"foo\" : \"bar\"}");
+        assertTrue(primary.isSearchIdle());
+        assertFalse(primary.isSearchIdleRefreshDue());
+        assertFalse(primary.scheduledRefresh());
+        assertEquals(1, primary.refreshStats().getSearchIdleSkippedTotal());
+        assertEquals(0, primary.refreshStats().getSearchIdleTotal());
+
+        IndexScopedSettings scopedSettings = primary.indexSettings().getScopedSettings();
+        settings = Settings.builder().put(settings)
+            .put(IndexSettings.INDEX_SEARCH_IDLE_REFRESH_INTERVAL.getKey(), TimeValue.ZERO).build();
+        scopedSettings.applySettings(settings);
+        assertTrue(primary.isSearchIdleRefreshDue());
+        assertTrue(primary.scheduledRefresh());
+        assertEquals(1, primary.refreshStats().getSearchIdleSkippedTotal());
+        assertEquals(1, primary.refreshStats().getSearchIdleTotal());
+        assertEquals(0, primary.refreshStats().getScheduledTotal());
+        try (Engine.Searcher searcher = primary.acquireSearcher("test")) {
+            assertEquals(1, searcher.reader().numDocs());
+        }
+        closeShards(primary);
+    }
+
     public void testRefreshIsNeededWithRefreshListeners() throws IOException, InterruptedException {
         Settings settings = Settings.builder().put(IndexMetaData.SETTING_VERSION_CREATED, Version.CURRENT)
             .put(IndexMetaData.SETTING_NUMBER_OF_REPLICAS, 1)
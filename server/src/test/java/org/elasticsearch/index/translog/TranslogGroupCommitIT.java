@@ -0,0 +1,71 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.index.translog;
+
+import org.elasticsearch.action.admin.indices.stats.IndicesStatsResponse;
+import org.elasticsearch.action.bulk.BulkRequestBuilder;
+import org.elasticsearch.action.bulk.BulkResponse;
+import org.elasticsearch.common.settings.Settings;
+import org.elasticsearch.common.xcontent.XContentType;
+import org.elasticsearch.index.IndexSettings;
+import org.elasticsearch.test.ESSingleNodeTestCase;
+
+import java.util.Arrays;
+
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.greaterThan;
+
+public class TranslogGroupCommitIT extends ESSingleNodeTestCase {
+
+    @Override
+    protected Settings nodeSettings() {
+        return Settings.builder()
+            .put(super.nodeSettings())
+            .put(TranslogSyncScheduler.ENABLED_SETTING.getKey(), true)
+            .put(TranslogSyncScheduler.MAX_WAIT_SETTING.getKey(), randomFrom("0ms", "1ms", "5ms"))
+            .build();
+    }
+
+    public void testIndexWithGroupCommit() throws Exception {
+        createIndex("test", Settings.builder()
+            .put(IndexSettings.INDEX_TRANSLOG_DURABILITY_SETTING.getKey(), Translog.Durability.REQUEST)
+            .put("index.number_of_shards", randomIntBetween(1, 4))
+            .build());
+        final int numRequests = randomIntBetween(1, 20);
+        int numDocs = 0;
+        for (int i = 0; i < numRequests; i++) {
+            final BulkRequestBuilder bulk = client().prepareBulk();
+            final int numItems = randomIntBetween(1, 10);
+            for (int j = 0; j < numItems; j++) {
+                bulk.add(client().prepareIndex("test", "_doc", Integer.toString(numDocs++)).setSource("{}", XContentType.JSON));
+            }
+            final BulkResponse response = bulk.get();
+            assertFalse(response.buildFailureMessage(), response.hasFailures());
+        }
+        final IndicesStatsResponse stats = client().admin().indices().prepareStats("test").clear().setTranslog(true).get();
+        final TranslogStats translogStats = stats.getPrimaries().getTranslog();
+        assertThat(translogStats.estimatedNumberOfOperations(), equalTo(numDocs));
+        final TranslogStats.SyncStats syncStats = translogStats.getSyncStats();
+        assertThat(syncStats.getCount(), greaterThan(0L));
+        assertThat(Arrays.stream(syncStats.getLatencyHistogram()).sum(), equalTo(syncStats.getCount()));
+        // the syncs of the bulk requests ran on the dedicated sync thread
+        assertTrue(Thread.getAllStackTraces().keySet().stream().anyMatch(t -> t.getName().contains("[translog_sync]")));
+    }
+}
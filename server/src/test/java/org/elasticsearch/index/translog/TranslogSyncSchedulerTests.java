@@ -0,0 +1,205 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.index.translog;
+
+import org.elasticsearch.common.settings.Settings;
+import org.elasticsearch.test.ESTestCase;
+import org.elasticsearch.threadpool.TestThreadPool;
+import org.elasticsearch.threadpool.ThreadPool;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
+
+import static org.hamcrest.Matchers.containsString;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.lessThan;
+import static org.hamcrest.Matchers.nullValue;
+import static org.hamcrest.Matchers.sameInstance;
+
+public class TranslogSyncSchedulerTests extends ESTestCase {
+
+    private ThreadPool threadPool;
+
+    @Override
+    public void setUp() throws Exception {
+        super.setUp();
+        threadPool = new TestThreadPool(getTestName());
+    }
+
+    @Override
+    public void tearDown() throws Exception {
+        ThreadPool.terminate(threadPool, 10, TimeUnit.SECONDS);
+        super.tearDown();
+    }
+
+    public void testDisabledByDefault() {
+        assertThat(TranslogSyncScheduler.create(Settings.EMPTY, threadPool.generic()), nullValue());
+        try (TranslogSyncScheduler scheduler = TranslogSyncScheduler.create(Settings.builder()
+            .put(TranslogSyncScheduler.ENABLED_SETTING.getKey(), true).build(), threadPool.generic())) {
+            assertNotNull(scheduler);
+        }
+    }
+
+    public void testCoalescesSyncsPerTarget() throws Exception {
+        final Settings settings = Settings.builder()
+            .put(TranslogSyncScheduler.MAX_WAIT_SETTING.getKey(), "50ms")
+            .build();
+        final Path dataPath = createTempDir();
+        final int numTargets = randomIntBetween(1, 5);
+        final int numRequestsPerTarget = randomIntBetween(1, 20);
+        final List<List<List<Translog.Location>>> syncs = new ArrayList<>();
+        final List<TranslogSyncScheduler.SyncTarget> targets = new ArrayList<>();
+        for (int i = 0; i < numTargets; i++) {
+            final List<List<Translog.Location>> targetSyncs = new CopyOnWriteArrayList<>();
+            syncs.add(targetSyncs);
+            targets.add(locations -> targetSyncs.add(new ArrayList<>(locations)));
+        }
+        final CountDownLatch latch = new CountDownLatch(numTargets * numRequestsPerTarget);
+        final AtomicReference<Exception> failure = new AtomicReference<>();
+        // the listeners are notified on the executor, not on the collector thread of the data path
+        final List<String> listenerThreads = new CopyOnWriteArrayList<>();
+        try (TranslogSyncScheduler scheduler = new TranslogSyncScheduler(settings, threadPool.generic())) {
+            for (int r = 0; r < numRequestsPerTarget; r++) {
+                for (int t = 0; t < numTargets; t++) {
+                    scheduler.sync(dataPath, targets.get(t), new Translog.Location(1, r * 10, 10), e -> {
+                        if (e != null) {
+                            failure.set(e);
+                        }
+                        listenerThreads.add(Thread.currentThread().getName());
+                        latch.countDown();
+                    });
+                }
+            }
+            assertTrue(latch.await(10, TimeUnit.SECONDS));
+        }
+        assertThat(failure.get(), nullValue());
+        int totalLocations = 0;
+        for (List<List<Translog.Location>> targetSyncs : syncs) {
+            // the requests of a target may be split across groups but never more than one sync per request
+            assertThat(targetSyncs.size(), lessThan(numRequestsPerTarget + 1));
+            for (List<Translog.Location> locations : targetSyncs) {
+                totalLocations += locations.size();
+            }
+        }
+        assertThat(totalLocations, equalTo(numTargets * numRequestsPerTarget));
+        for (String listenerThread : listenerThreads) {
+            assertThat(listenerThread, containsString("[" + ThreadPool.Names.GENERIC + "]"));
+        }
+    }
+
+    public void testSyncsTargetsOfADataPathConcurrently() throws Exception {
+        final Settings settings = Settings.builder()
+            .put(TranslogSyncScheduler.MAX_WAIT_SETTING.getKey(), "10s")
+            .build();
+        // the first target can only complete its fsync once the second one is synced
+        final CountDownLatch secondSynced = new CountDownLatch(1);
+        final TranslogSyncScheduler.SyncTarget first = locations -> {
+            try {
+                assertTrue(secondSynced.await(10, TimeUnit.SECONDS));
+            } catch (InterruptedException e) {
+                throw new AssertionError(e);
+            }
+        };
+        final TranslogSyncScheduler.SyncTarget second = locations -> secondSynced.countDown();
+        final CountDownLatch latch = new CountDownLatch(2);
+        final AtomicReference<Exception> failure = new AtomicReference<>();
+        final Consumer<Exception> listener = e -> {
+            if (e != null) {
+                failure.set(e);
+            }
+            latch.countDown();
+        };
+        final Path dataPath = createTempDir();
+        try (TranslogSyncScheduler scheduler = new TranslogSyncScheduler(settings, threadPool.generic())) {
+            scheduler.sync(dataPath, first, new Translog.Location(1, 0, 10), listener);
+            scheduler.sync(dataPath, second, new Translog.Location(1, 0, 10), listener);
+        }
+        // closing the scheduler flushes the pending syncs as a single group
+        assertTrue(latch.await(10, TimeUnit.SECONDS));
+        assertThat(failure.get(), nullValue());
+    }
+
+    public void testWaitsForMoreSyncs() throws Exception {
+        final Settings settings = Settings.builder()
+            .put(TranslogSyncScheduler.MAX_WAIT_SETTING.getKey(), "10s")
+            .build();
+        final AtomicInteger numSyncs = new AtomicInteger();
+        final TranslogSyncScheduler.SyncTarget target = locations -> numSyncs.incrementAndGet();
+        final CountDownLatch latch = new CountDownLatch(2);
+        final Path dataPath = createTempDir();
+        try (TranslogSyncScheduler scheduler = new TranslogSyncScheduler(settings, threadPool.generic())) {
+            scheduler.sync(dataPath, target, new Translog.Location(1, 0, 10), e -> latch.countDown());
+            scheduler.sync(dataPath, target, new Translog.Location(1, 10, 10), e -> latch.countDown());
+            assertFalse(latch.await(50, TimeUnit.MILLISECONDS));
+            assertThat(numSyncs.get(), equalTo(0));
+        }
+        // closing the scheduler flushes the pending syncs
+        assertTrue(latch.await(10, TimeUnit.SECONDS));
+        assertThat(numSyncs.get(), equalTo(1));
+    }
+
+    public void testFailuresAreReportedToListenersOfTheFailedTarget() throws Exception {
+        final Settings settings = Settings.builder()
+            .put(TranslogSyncScheduler.MAX_WAIT_SETTING.getKey(), "0ms")
+            .build();
+        final IOException exception = new IOException("boom");
+        final TranslogSyncScheduler.SyncTarget failingTarget = locations -> {
+            throw exception;
+        };
+        final TranslogSyncScheduler.SyncTarget target = locations -> {};
+        final AtomicReference<Exception> failingTargetResult = new AtomicReference<>();
+        final AtomicReference<Exception> targetResult = new AtomicReference<>();
+        final CountDownLatch latch = new CountDownLatch(2);
+        final Path dataPath = createTempDir();
+        try (TranslogSyncScheduler scheduler = new TranslogSyncScheduler(settings, threadPool.generic())) {
+            scheduler.sync(dataPath, failingTarget, new Translog.Location(1, 0, 10), e -> {
+                failingTargetResult.set(e);
+                latch.countDown();
+            });
+            scheduler.sync(dataPath, target, new Translog.Location(1, 0, 10), e -> {
+                targetResult.set(e);
+                latch.countDown();
+            });
+            assertTrue(latch.await(10, TimeUnit.SECONDS));
+        }
+        assertThat(failingTargetResult.get(), sameInstance(exception));
+        assertThat(targetResult.get(), nullValue());
+    }
+
+    public void testSyncsOnCallerThreadOnceClosed() throws IOException {
+        final TranslogSyncScheduler scheduler = new TranslogSyncScheduler(Settings.EMPTY, threadPool.generic());
+        scheduler.close();
+        final List<Translog.Location> synced = new ArrayList<>();
+        final AtomicReference<Exception> result = new AtomicReference<>(new Exception("not notified"));
+        final Translog.Location location = new Translog.Location(1, 0, 10);
+        scheduler.sync(createTempDir(), synced::addAll, location, result::set);
+        assertThat(synced, equalTo(Collections.singletonList(location)));
+        assertThat(result.get(), nullValue());
+    }
+}
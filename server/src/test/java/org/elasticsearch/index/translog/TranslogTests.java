@@ -109,6 +109,7 @@ import java.util.concurrent.BrokenBarrierException;
 import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicLong;
@@ -478,13 +479,25 @@ public class TranslogTests extends ESTestCase {
             assertThat(copy.estimatedNumberOfOperations(), equalTo(4));
             assertThat(copy.getTranslogSizeInBytes(), equalTo(expectedSizeInBytes));
 
+            assertThat(copy.getSyncStats().getCount(), equalTo(stats.getSyncStats().getCount()));
+            assertThat(copy.getSyncStats().getTotalTime(), equalTo(stats.getSyncStats().getTotalTime()));
+            assertArrayEquals(stats.getSyncStats().getLatencyHistogram(), copy.getSyncStats().getLatencyHistogram());
+
+            final String syncStats;
+            try (XContentBuilder builder = XContentFactory.jsonBuilder()) {
+                builder.startObject();
+                copy.getSyncStats().toXContent(builder, ToXContent.EMPTY_PARAMS);
+                builder.endObject();
+                syncStats = Strings.toString(builder);
+            }
             try (XContentBuilder builder = XContentFactory.jsonBuilder()) {
                 builder.startObject();
                 copy.toXContent(builder, ToXContent.EMPTY_PARAMS);
                 builder.endObject();
                 assertThat(Strings.toString(builder), equalTo("{\"translog\":{\"operations\":4,\"size_in_bytes\":" + expectedSizeInBytes
                     + ",\"uncommitted_operations\":4,\"uncommitted_size_in_bytes\":" + expectedSizeInBytes
-                    + ",\"earliest_last_modified_age\":" + stats.getEarliestLastModifiedAge() + "}}"));
+                    + ",\"earliest_last_modified_age\":" + stats.getEarliestLastModifiedAge() + ","
+                    + syncStats.substring(1, syncStats.length() - 1) + "}}"));
             }
         }
 
@@ -553,6 +566,44 @@ public class TranslogTests extends ESTestCase {
             equalTo(1L));
     }
 
+    public void testSyncStats() throws IOException {
+        final TranslogStats.SyncStats before = translog.stats().getSyncStats();
+        final int syncs = randomIntBetween(1, 8);
+        for (int i = 0; i < syncs; i++) {
+            translog.add(new Translog.Index("test", Integer.toString(i), i, primaryTerm.get(), new byte[]{1}));
+            translog.sync();
+        }
+        // nothing to sync
+        translog.sync();
+        final TranslogStats.SyncStats after = stats().getSyncStats();
+        assertThat(after.getCount(), equalTo(before.getCount() + syncs));
+        assertThat(after.getTotalTime().nanos(), greaterThanOrEqualTo(before.getTotalTime().nanos()));
+        assertThat(Arrays.stream(after.getLatencyHistogram()).sum(), equalTo(after.getCount()));
+    }
+
+    public void testSyncStatsLatencyBuckets() {
+        assertThat(TranslogStats.SyncStats.bucket(0), equalTo(0));
+        assertThat(TranslogStats.SyncStats.bucket(TimeUnit.MICROSECONDS.toNanos(999)), equalTo(0));
+        assertThat(TranslogStats.SyncStats.bucket(TimeUnit.MILLISECONDS.toNanos(1)), equalTo(1));
+        assertThat(TranslogStats.SyncStats.bucket(TimeUnit.MILLISECONDS.toNanos(7)), equalTo(3));
+        assertThat(TranslogStats.SyncStats.bucket(TimeUnit.MILLISECONDS.toNanos(999)), equalTo(9));
+        assertThat(TranslogStats.SyncStats.bucket(TimeUnit.SECONDS.toNanos(5)), equalTo(10));
+
+        final TranslogSyncMetric metric = new TranslogSyncMetric();
+        metric.onSync(TimeUnit.MICROSECONDS.toNanos(200));
+        metric.onSync(TimeUnit.MILLISECONDS.toNanos(3));
+        metric.onSync(TimeUnit.MILLISECONDS.toNanos(4));
+        final TranslogStats.SyncStats stats = metric.stats();
+        assertThat(stats.getCount(), equalTo(3L));
+        assertThat(stats.getTotalTime().micros(), equalTo(7200L));
+        assertArrayEquals(new long[] { 1, 0, 2, 0, 0, 0, 0, 0, 0, 0, 0 }, stats.getLatencyHistogram());
+
+        final TranslogStats total = new TranslogStats(0, 0, 0, 0, 1, stats);
+        total.add(new TranslogStats(0, 0, 0, 0, 1, stats));
+        assertThat(total.getSyncStats().getCount(), equalTo(6L));
+        assertArrayEquals(new long[] { 2, 0, 4, 0, 0, 0, 0, 0, 0, 0, 0 }, total.getSyncStats().getLatencyHistogram());
+    }
+
     public void testNegativeNumberOfOperations() {
         IllegalArgumentException e =
             expectThrows(IllegalArgumentException.class,
@@ -0,0 +1,82 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.indices;
+
+import org.elasticsearch.action.search.SearchResponse;
+import org.elasticsearch.common.settings.Settings;
+import org.elasticsearch.index.query.QueryBuilders;
+import org.elasticsearch.search.sort.SortOrder;
+import org.elasticsearch.test.ESSingleNodeTestCase;
+
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.greaterThan;
+
+public class IndicesTopDocsCacheSingleNodeTests extends ESSingleNodeTestCase {
+
+    public void testCachedTopDocsAfterRefresh() {
+        createIndex("test", Settings.builder()
+            .put("index.number_of_shards", 1)
+            .put("index.refresh_interval", -1)
+            .put(IndicesTopDocsCache.INDEX_TOP_DOCS_CACHE_ENABLED_SETTING.getKey(), true)
+            .build());
+        final IndicesTopDocsCache cache = getInstanceFromNode(IndicesService.class).indicesTopDocsCache;
+        int numDocs = 0;
+        for (int round = 0; round < 3; round++) {
+            final int numNewDocs = randomIntBetween(1, 20);
+            for (int i = 0; i < numNewDocs; i++) {
+                client().prepareIndex("test", "_doc", Integer.toString(numDocs))
+                    .setSource("rank", numDocs, "group", numDocs % 2 == 0 ? "even" : "odd")
+                    .get();
+                numDocs++;
+            }
+            client().admin().indices().prepareRefresh("test").get();
+
+            final int size = randomIntBetween(1, numDocs);
+            for (int i = 0; i < 2; i++) {
+                // the second search is served from the cache, the results must be the same
+                SearchResponse response = client().prepareSearch("test")
+                    .setQuery(QueryBuilders.matchAllQuery())
+                    .addSort("rank", SortOrder.DESC)
+                    .setSize(size)
+                    .get();
+                assertThat(response.getHits().getTotalHits().value, equalTo((long) numDocs));
+                assertThat(response.getHits().getHits().length, equalTo(size));
+                for (int j = 0; j < size; j++) {
+                    assertThat(response.getHits().getAt(j).getId(), equalTo(Integer.toString(numDocs - 1 - j)));
+                }
+            }
+            assertThat(cache.count(), greaterThan(0));
+        }
+
+        // requests that disable the request cache don't use the top docs cache either
+        cache.clear(getInstanceFromNode(IndicesService.class).indexServiceSafe(resolveIndex("test")).getShard(0));
+        SearchResponse response = client().prepareSearch("test")
+            .setQuery(QueryBuilders.termQuery("group", "even"))
+            .addSort("rank", SortOrder.ASC)
+            .setRequestCache(false)
+            .get();
+        assertThat(response.getHits().getAt(0).getId(), equalTo("0"));
+        assertThat(cache.count(), equalTo(0));
+
+        // sorting by score is never cached
+        client().prepareSearch("test").setQuery(QueryBuilders.termQuery("group", "even")).get();
+        assertThat(cache.count(), equalTo(0));
+    }
+}
@@ -0,0 +1,178 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.indices;
+
+import org.apache.lucene.document.Document;
+import org.apache.lucene.document.NumericDocValuesField;
+import org.apache.lucene.index.DirectoryReader;
+import org.apache.lucene.index.IndexWriter;
+import org.apache.lucene.index.LeafReaderContext;
+import org.apache.lucene.index.NoMergePolicy;
+import org.apache.lucene.search.BulkScorer;
+import org.apache.lucene.search.IndexSearcher;
+import org.apache.lucene.search.MatchAllDocsQuery;
+import org.apache.lucene.search.ScoreMode;
+import org.apache.lucene.search.Sort;
+import org.apache.lucene.search.SortField;
+import org.apache.lucene.search.TopDocs;
+import org.apache.lucene.search.TopFieldCollector;
+import org.apache.lucene.search.TopFieldDocs;
+import org.apache.lucene.search.Weight;
+import org.apache.lucene.store.Directory;
+import org.elasticsearch.common.bytes.BytesArray;
+import org.elasticsearch.common.bytes.BytesReference;
+import org.elasticsearch.common.lucene.index.ElasticsearchDirectoryReader;
+import org.elasticsearch.common.settings.Settings;
+import org.elasticsearch.core.internal.io.IOUtils;
+import org.elasticsearch.index.shard.ShardId;
+import org.elasticsearch.test.ESTestCase;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class IndicesTopDocsCacheTests extends ESTestCase {
+
+    private static final Sort SORT = new Sort(new SortField("rank", SortField.Type.LONG, true));
+
+    public void testReuseTopDocsOfUnchangedSegments() throws Exception {
+        IndicesTopDocsCache cache = new IndicesTopDocsCache(Settings.EMPTY);
+        Directory dir = newDirectory();
+        IndexWriter writer = new IndexWriter(dir, newIndexWriterConfig().setMergePolicy(NoMergePolicy.INSTANCE));
+        int numSegments = randomIntBetween(1, 5);
+        for (int i = 0; i < numSegments; i++) {
+            addDocuments(writer, randomIntBetween(1, 20));
+            writer.flush();
+        }
+        final Object shard = new Object();
+        final BytesReference requestKey = new BytesArray("request");
+        final int numHits = randomIntBetween(1, 30);
+
+        DirectoryReader reader = ElasticsearchDirectoryReader.wrap(DirectoryReader.open(writer), new ShardId("foo", "bar", 1));
+        AtomicInteger loads = new AtomicInteger();
+        assertTopDocs(reader, search(cache.forRequest(shard, requestKey), reader, numHits, loads), numHits);
+        assertEquals(numSegments, loads.get());
+        assertEquals(numSegments, cache.count());
+        assertEquals(numSegments, cache.numRegisteredCloseListeners());
+
+        // cache hits
+        loads.set(0);
+        assertTopDocs(reader, search(cache.forRequest(shard, requestKey), reader, numHits, loads), numHits);
+        assertEquals(0, loads.get());
+
+        // another request doesn't use the same entries
+        assertTopDocs(reader, search(cache.forRequest(shard, new BytesArray("other")), reader, numHits, loads), numHits);
+        assertEquals(numSegments, loads.get());
+        assertEquals(2 * numSegments, cache.count());
+
+        // only the new segment is searched after a refresh
+        addDocuments(writer, randomIntBetween(1, 20));
+        DirectoryReader newReader = DirectoryReader.openIfChanged(reader, writer);
+        assertNotNull(newReader);
+        loads.set(0);
+        assertTopDocs(newReader, search(cache.forRequest(shard, requestKey), newReader, numHits, loads), numHits);
+        assertEquals(1, loads.get());
+        assertEquals(2 * numSegments + 1, cache.count());
+
+        // segments that are still used by the new reader are not cleaned
+        reader.close();
+        cache.cleanCache();
+        assertEquals(2 * numSegments + 1, cache.count());
+
+        cache.clear(shard);
+        assertEquals(0, cache.count());
+
+        IOUtils.close(newReader, writer, dir, cache);
+        assertEquals(0, cache.numRegisteredCloseListeners());
+    }
+
+    public void testCleanClosedSegments() throws Exception {
+        IndicesTopDocsCache cache = new IndicesTopDocsCache(Settings.EMPTY);
+        Directory dir = newDirectory();
+        IndexWriter writer = new IndexWriter(dir, newIndexWriterConfig());
+        addDocuments(writer, randomIntBetween(1, 20));
+        DirectoryReader reader = ElasticsearchDirectoryReader.wrap(DirectoryReader.open(writer), new ShardId("foo", "bar", 1));
+        search(cache.forRequest(new Object(), new BytesArray("request")), reader, 10, new AtomicInteger());
+        assertEquals(reader.leaves().size(), cache.count());
+
+        // the writer might still hold references to the segment readers
+        writer.close();
+        reader.close();
+        assertEquals(0, cache.numRegisteredCloseListeners());
+        cache.cleanCache();
+        assertEquals(0, cache.count());
+        IOUtils.close(dir, cache);
+    }
+
+    public void testNotCacheableSegments() throws IOException {
+        Directory dir = newDirectory();
+        IndexWriter writer = new IndexWriter(dir, newIndexWriterConfig());
+        addDocuments(writer, 1);
+        try (DirectoryReader reader = DirectoryReader.open(writer)) {
+            for (LeafReaderContext leaf : reader.leaves()) {
+                assertFalse(IndicesTopDocsCache.isCacheable(leaf));
+            }
+        }
+        try (DirectoryReader reader = ElasticsearchDirectoryReader.wrap(DirectoryReader.open(writer), new ShardId("foo", "bar", 1))) {
+            for (LeafReaderContext leaf : reader.leaves()) {
+                assertTrue(IndicesTopDocsCache.isCacheable(leaf));
+            }
+        }
+        IOUtils.close(writer, dir);
+    }
+
+    private static void addDocuments(IndexWriter writer, int numDocs) throws IOException {
+        for (int i = 0; i < numDocs; i++) {
+            Document doc = new Document();
+            doc.add(new NumericDocValuesField("rank", randomIntBetween(0, 10)));
+            writer.addDocument(doc);
+        }
+    }
+
+    private static TopDocs search(IndicesTopDocsCache.ShardRequestCache cache, DirectoryReader reader,
+                                  int numHits, AtomicInteger loads) throws IOException {
+        IndexSearcher searcher = new IndexSearcher(reader);
+        Weight weight = searcher.createWeight(new MatchAllDocsQuery(), ScoreMode.COMPLETE_NO_SCORES, 1f);
+        List<LeafReaderContext> leaves = reader.leaves();
+        TopFieldDocs[] topDocs = new TopFieldDocs[leaves.size()];
+        for (int i = 0; i < leaves.size(); i++) {
+            final LeafReaderContext leaf = leaves.get(i);
+            topDocs[i] = (TopFieldDocs) cache.getOrCompute(leaf, () -> {
+                loads.incrementAndGet();
+                TopFieldCollector collector = TopFieldCollector.create(SORT, numHits, Integer.MAX_VALUE);
+                BulkScorer scorer = weight.bulkScorer(leaf);
+                if (scorer != null) {
+                    scorer.score(collector.getLeafCollector(leaf), leaf.reader().getLiveDocs());
+                }
+                return collector.topDocs();
+            });
+        }
+        return TopDocs.merge(SORT, numHits, topDocs);
+    }
+
+    private static void assertTopDocs(DirectoryReader reader, TopDocs actual, int numHits) throws IOException {
+        TopDocs expected = new IndexSearcher(reader).search(new MatchAllDocsQuery(), numHits, SORT);
+        assertEquals(expected.totalHits, actual.totalHits);
+        assertEquals(expected.scoreDocs.length, actual.scoreDocs.length);
+        for (int i = 0; i < expected.scoreDocs.length; i++) {
+            assertEquals(expected.scoreDocs[i].doc, actual.scoreDocs[i].doc);
+        }
+    }
+}
@@ -401,6 +401,7 @@ public class RecoveryTargetTests extends ESTestCase {
             totalOps += iterationOps;
             translog.totalOperations(totalOps);
             assertThat((double) translog.recoveredPercent(), closeTo(100.0 * ops / totalOps, 0.1));
+            assertThat(translog.remainingOperations(), equalTo(totalOps - ops));
             for (int j = iterationOps; j > 0; j--) {
                 ops++;
                 translog.incrementRecoveredOperations();
@@ -412,6 +413,8 @@ public class RecoveryTargetTests extends ESTestCase {
             assertThat(translog.recoveredOperations(), equalTo(ops));
             assertThat(translog.totalOperations(), equalTo(totalOps));
             assertThat(translog.recoveredPercent(), equalTo(100.f));
+            assertThat(translog.remainingOperations(), equalTo(0));
+            assertThat(translog.recoveredOperationsPerSecond(), greaterThanOrEqualTo(0.0));
             assertThat(streamer.lastRead().recoveredOperations(), greaterThanOrEqualTo(0));
             assertThat(streamer.lastRead().recoveredOperations(), lessThanOrEqualTo(ops));
             assertThat(streamer.lastRead().totalOperations(), lessThanOrEqualTo(totalOps));
@@ -433,6 +436,7 @@ public class RecoveryTargetTests extends ESTestCase {
             assertThat(translog.recoveredOperations(), equalTo(0));
             assertThat(translog.totalOperationsOnStart(), equalTo(Translog.UNKNOWN));
             assertThat(translog.totalOperations(), equalTo(Translog.UNKNOWN));
+            assertThat(translog.remainingOperations(), equalTo(Translog.UNKNOWN));
         }
 
         stop.set(true);
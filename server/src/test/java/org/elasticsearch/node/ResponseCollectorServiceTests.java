@@ -19,24 +19,31 @@
 
 package org.elasticsearch.node;
 
+import org.elasticsearch.Version;
 import org.elasticsearch.cluster.ClusterChangedEvent;
 import org.elasticsearch.cluster.ClusterName;
 import org.elasticsearch.cluster.ClusterState;
+import org.elasticsearch.cluster.metadata.IndexMetaData;
+import org.elasticsearch.cluster.metadata.MetaData;
 import org.elasticsearch.cluster.node.DiscoveryNode;
 import org.elasticsearch.cluster.node.DiscoveryNodes;
 import org.elasticsearch.cluster.service.ClusterService;
 import org.elasticsearch.common.settings.ClusterSettings;
 import org.elasticsearch.common.settings.Settings;
 import org.elasticsearch.common.transport.TransportAddress;
+import org.elasticsearch.index.shard.ShardId;
 import org.elasticsearch.test.ESTestCase;
 import org.elasticsearch.threadpool.TestThreadPool;
 import org.elasticsearch.threadpool.ThreadPool;
 import org.junit.After;
 import org.junit.Before;
 
+import java.util.List;
 import java.util.Map;
+import java.util.Optional;
 import java.util.concurrent.CountDownLatch;
 
+import static org.hamcrest.Matchers.closeTo;
 import static org.hamcrest.Matchers.equalTo;
 import static org.hamcrest.Matchers.greaterThan;
 
@@ -136,4 +143,61 @@ public class ResponseCollectorServiceTests extends ESTestCase {
         assertTrue(nodeStats.containsKey("node1"));
         assertFalse(nodeStats.containsKey("node2"));
     }
+
+    public void testShardCopyStats() throws Exception {
+        final ShardId shardId = new ShardId("index", "_na_", 0);
+        assertFalse(collector.getShardCopyStatistics("node1", shardId).isPresent());
+        collector.addShardCopyStatistics("node1", shardId, 100, -1);
+        ResponseCollectorService.ComputedShardCopyStats stats = collector.getShardCopyStatistics("node1", shardId).get();
+        assertThat(stats.responseTime, equalTo(100.0));
+        assertThat(stats.p95ResponseTime, equalTo(100.0));
+        assertThat(stats.serviceTime, equalTo(-1.0));
+        assertFalse(collector.getShardCopyStatistics("node2", shardId).isPresent());
+        assertFalse(collector.getShardCopyStatistics("node1", new ShardId("index", "_na_", 1)).isPresent());
+
+        // variations of the response time widen the estimated 95th percentile
+        for (int i = 0; i < 10; i++) {
+            collector.addShardCopyStatistics("node1", shardId, i % 2 == 0 ? 50 : 150, i == 0 ? 40 : 20);
+        }
+        stats = collector.getShardCopyStatistics("node1", shardId).get();
+        assertThat(stats.responseTime, closeTo(100.0, 25.0));
+        assertThat(stats.p95ResponseTime, greaterThan(stats.responseTime + 25.0));
+        // the service time starts from the first reported value
+        assertThat(stats.serviceTime, closeTo(20.0, 1.0));
+        // and is left untouched by responses that don't report it
+        collector.addShardCopyStatistics("node1", shardId, 100, -1);
+        assertThat(collector.getShardCopyStatistics("node1", shardId).get().serviceTime, equalTo(stats.serviceTime));
+
+        Map<String, List<ResponseCollectorService.ComputedShardCopyStats>> allStats = collector.getAllShardCopyStatistics();
+        assertThat(allStats.size(), equalTo(1));
+        assertThat(allStats.get("node1").size(), equalTo(1));
+        assertThat(allStats.get("node1").get(0).shardId, equalTo(shardId));
+    }
+
+    public void testShardCopyRemoval() throws Exception {
+        final ShardId shardId = new ShardId("index", "_na_", 0);
+        final ShardId otherShardId = new ShardId("other", "_na_", 0);
+        collector.addShardCopyStatistics("node1", shardId, randomIntBetween(1, 100), randomIntBetween(-1, 100));
+        collector.addShardCopyStatistics("node1", otherShardId, randomIntBetween(1, 100), randomIntBetween(-1, 100));
+        collector.addShardCopyStatistics("node2", shardId, randomIntBetween(1, 100), randomIntBetween(-1, 100));
+
+        ClusterState previousState = ClusterState.builder(new ClusterName("cluster")).nodes(DiscoveryNodes.builder()
+                .add(DiscoveryNode.createLocal(Settings.EMPTY, new TransportAddress(TransportAddress.META_ADDRESS, 9200), "node1"))
+                .add(DiscoveryNode.createLocal(Settings.EMPTY, new TransportAddress(TransportAddress.META_ADDRESS, 9201), "node2")))
+                .metaData(MetaData.builder()
+                    .put(IndexMetaData.builder("index").settings(settings(Version.CURRENT)
+                        .put(IndexMetaData.SETTING_INDEX_UUID, "_na_")).numberOfShards(1).numberOfReplicas(1))
+                    .put(IndexMetaData.builder("other").settings(settings(Version.CURRENT)
+                        .put(IndexMetaData.SETTING_INDEX_UUID, "_na_")).numberOfShards(1).numberOfReplicas(1)))
+                .build();
+        ClusterState newState = ClusterState.builder(previousState)
+                .nodes(DiscoveryNodes.builder(previousState.nodes()).remove("node2"))
+                .metaData(MetaData.builder(previousState.metaData()).remove("other"))
+                .build();
+        collector.clusterChanged(new ClusterChangedEvent("test", newState, previousState));
+
+        assertTrue(collector.getShardCopyStatistics("node1", shardId).isPresent());
+        assertEquals(Optional.empty(), collector.getShardCopyStatistics("node1", otherShardId));
+        assertEquals(Optional.empty(), collector.getShardCopyStatistics("node2", shardId));
+    }
 }
@@ -73,4 +73,20 @@ public class RestBulkActionTests extends ESTestCase {
                 }
             }), any());
     }
+
+    public void testSupportsStreamContentType() {
+        RestBulkAction action = new RestBulkAction(settings(Version.CURRENT).build(), mock(RestController.class));
+        for (XContentType xContentType : XContentType.values()) {
+            RestRequest newline = new FakeRestRequest.Builder(xContentRegistry()).withPath("/_bulk")
+                .withContent(new BytesArray("{}"), xContentType).build();
+            assertEquals(xContentType == XContentType.JSON || xContentType == XContentType.SMILE,
+                action.supportsStreamContentType(newline));
+
+            Map<String, String> params = new HashMap<>();
+            params.put("framing", "length_prefixed");
+            RestRequest lengthPrefixed = new FakeRestRequest.Builder(xContentRegistry()).withPath("/_bulk").withParams(params)
+                .withContent(new BytesArray("{}"), xContentType).build();
+            assertTrue(action.supportsStreamContentType(lengthPrefixed));
+        }
+    }
 }
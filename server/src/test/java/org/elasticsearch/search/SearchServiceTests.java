@@ -27,6 +27,12 @@ import org.elasticsearch.action.ActionListener;
 import org.elasticsearch.action.OriginalIndices;
 import org.elasticsearch.action.index.IndexResponse;
 import org.elasticsearch.action.search.ClearScrollRequest;
+import org.elasticsearch.action.search.ClearScrollResponse;
+import org.elasticsearch.action.search.ClosePointInTimeAction;
+import org.elasticsearch.action.search.ClosePointInTimeRequest;
+import org.elasticsearch.action.search.OpenPointInTimeAction;
+import org.elasticsearch.action.search.OpenPointInTimeRequest;
+import org.elasticsearch.action.search.OpenPointInTimeResponse;
 import org.elasticsearch.action.search.SearchPhaseExecutionException;
 import org.elasticsearch.action.search.SearchRequest;
 import org.elasticsearch.action.search.SearchResponse;
@@ -51,6 +57,7 @@ import org.elasticsearch.index.query.QueryBuilder;
 import org.elasticsearch.index.query.QueryRewriteContext;
 import org.elasticsearch.index.query.QueryShardContext;
 import org.elasticsearch.index.query.TermQueryBuilder;
+import org.elasticsearch.index.search.stats.SearchStats;
 import org.elasticsearch.index.shard.IndexShard;
 import org.elasticsearch.index.shard.SearchOperationListener;
 import org.elasticsearch.index.shard.ShardId;
@@ -67,6 +74,7 @@ import org.elasticsearch.search.aggregations.MultiBucketConsumerService;
 import org.elasticsearch.search.aggregations.bucket.global.GlobalAggregationBuilder;
 import org.elasticsearch.search.aggregations.bucket.terms.TermsAggregationBuilder;
 import org.elasticsearch.search.aggregations.support.ValueType;
+import org.elasticsearch.search.builder.PointInTimeBuilder;
 import org.elasticsearch.search.builder.SearchSourceBuilder;
 import org.elasticsearch.search.fetch.FetchSearchResult;
 import org.elasticsearch.search.fetch.ShardFetchRequest;
@@ -74,16 +82,21 @@ import org.elasticsearch.search.internal.AliasFilter;
 import org.elasticsearch.search.internal.SearchContext;
 import org.elasticsearch.search.internal.ShardSearchLocalRequest;
 import org.elasticsearch.search.internal.ShardSearchTransportRequest;
+import org.elasticsearch.search.slice.SliceBuilder;
 import org.elasticsearch.search.suggest.SuggestBuilder;
+import org.elasticsearch.tasks.TaskCancelledException;
 import org.elasticsearch.test.ESSingleNodeTestCase;
 
 import java.io.IOException;
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.HashSet;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Locale;
 import java.util.Map;
+import java.util.Set;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.Semaphore;
@@ -92,15 +105,18 @@ import java.util.function.Function;
 
 import static java.util.Collections.singletonList;
 import static org.elasticsearch.action.support.WriteRequest.RefreshPolicy.IMMEDIATE;
+import static org.elasticsearch.action.support.WriteRequest.RefreshPolicy.NONE;
 import static org.elasticsearch.indices.cluster.IndicesClusterStateService.AllocatedIndices.IndexRemovalReason.DELETED;
 import static org.elasticsearch.test.hamcrest.ElasticsearchAssertions.assertAcked;
 import static org.elasticsearch.test.hamcrest.ElasticsearchAssertions.assertHitCount;
 import static org.elasticsearch.test.hamcrest.ElasticsearchAssertions.assertSearchHits;
+import static org.hamcrest.CoreMatchers.containsString;
 import static org.hamcrest.CoreMatchers.equalTo;
 import static org.hamcrest.CoreMatchers.instanceOf;
 import static org.hamcrest.CoreMatchers.is;
 import static org.hamcrest.CoreMatchers.notNullValue;
 import static org.hamcrest.CoreMatchers.startsWith;
+import static org.hamcrest.Matchers.greaterThan;
 
 public class SearchServiceTests extends ESSingleNodeTestCase {
 
@@ -197,6 +213,102 @@ public class SearchServiceTests extends ESSingleNodeTestCase {
         assertEquals(0, service.getActiveContexts());
     }
 
+    public void testPointInTime() {
+        final int numShards = randomIntBetween(1, 3);
+        createIndex("index", Settings.builder().put("index.number_of_shards", numShards).build());
+        client().prepareIndex("index", "type", "1").setSource("field", "value").setRefreshPolicy(IMMEDIATE).get();
+        SearchService service = getInstanceFromNode(SearchService.class);
+        OpenPointInTimeResponse openResponse = client().execute(OpenPointInTimeAction.INSTANCE,
+            new OpenPointInTimeRequest("index").keepAlive(TimeValue.timeValueMinutes(1))).actionGet();
+        assertEquals(numShards, service.getActivePointInTimes());
+        assertEquals(0, service.getActiveContexts());
+
+        SearchStats stats = client().admin().indices().prepareStats("index").setSearch(true).get().getTotal().getSearch();
+        assertEquals(numShards, stats.getTotal().getPointInTimeCurrent());
+        assertThat(stats.getPointInTimeSegmentsSizeInBytes(), greaterThan(0L));
+
+        // changes that happen after the point in time was opened are not visible
+        client().prepareIndex("index", "type", "2").setSource("field", "value").setRefreshPolicy(IMMEDIATE).get();
+        PointInTimeBuilder pointInTime = new PointInTimeBuilder(openResponse.getId()).setKeepAlive(TimeValue.timeValueMinutes(2));
+        for (int i = 0; i < 3; i++) {
+            SearchResponse searchResponse = client().prepareSearch()
+                .setSource(new SearchSourceBuilder().pointInTimeBuilder(pointInTime)).get();
+            assertHitCount(searchResponse, 1);
+        }
+        assertHitCount(client().prepareSearch("index").get(), 2);
+        assertEquals(numShards, service.getActivePointInTimes());
+
+        ClearScrollResponse closeResponse = client().execute(ClosePointInTimeAction.INSTANCE,
+            new ClosePointInTimeRequest(openResponse.getId())).actionGet();
+        assertTrue(closeResponse.isSucceeded());
+        assertEquals(numShards, closeResponse.getNumFreed());
+        assertEquals(0, service.getActivePointInTimes());
+        stats = client().admin().indices().prepareStats("index").setSearch(true).get().getTotal().getSearch();
+        assertEquals(0, stats.getTotal().getPointInTimeCurrent());
+        assertEquals(numShards, stats.getTotal().getPointInTimeCount());
+        assertEquals(0L, stats.getPointInTimeSegmentsSizeInBytes());
+
+        SearchPhaseExecutionException e = expectThrows(SearchPhaseExecutionException.class, () -> client().prepareSearch()
+            .setSource(new SearchSourceBuilder().pointInTimeBuilder(pointInTime)).get());
+        assertThat(e.getCause(), instanceOf(SearchContextMissingException.class));
+    }
+
+    public void testSliceOnDocIdsWithPointInTime() {
+        final int numShards = randomIntBetween(1, 3);
+        createIndex("index", Settings.builder().put("index.number_of_shards", numShards).build());
+        final int numDocs = randomIntBetween(1, 50);
+        for (int i = 0; i < numDocs; i++) {
+            client().prepareIndex("index", "type", Integer.toString(i)).setSource("field", "value")
+                .setRefreshPolicy(randomBoolean() ? IMMEDIATE : NONE).get();
+        }
+        client().admin().indices().prepareRefresh("index").get();
+        OpenPointInTimeResponse openResponse = client().execute(OpenPointInTimeAction.INSTANCE,
+            new OpenPointInTimeRequest("index").keepAlive(TimeValue.timeValueMinutes(1))).actionGet();
+        PointInTimeBuilder pointInTime = new PointInTimeBuilder(openResponse.getId());
+        final int max = randomIntBetween(2, 5);
+        Set<String> ids = new HashSet<>();
+        for (int id = 0; id < max; id++) {
+            SearchResponse searchResponse = client().prepareSearch()
+                .setSource(new SearchSourceBuilder().pointInTimeBuilder(pointInTime).size(numDocs)
+                    .slice(new SliceBuilder(SliceBuilder.DOC_FIELD_NAME, id, max))).get();
+            for (SearchHit hit : searchResponse.getHits().getHits()) {
+                assertTrue("document [" + hit.getId() + "] returned by more than one slice", ids.add(hit.getId()));
+            }
+        }
+        assertEquals(numDocs, ids.size());
+        client().execute(ClosePointInTimeAction.INSTANCE, new ClosePointInTimeRequest(openResponse.getId())).actionGet();
+
+        SearchPhaseExecutionException e = expectThrows(SearchPhaseExecutionException.class, () -> client().prepareSearch("index")
+            .setSource(new SearchSourceBuilder().slice(new SliceBuilder(SliceBuilder.DOC_FIELD_NAME, 0, 2))).get());
+        assertThat(e.toString(), containsString("`slice` cannot be used outside of a scroll context or a point in time"));
+
+        // the slices of a scroll don't share the same view of the shards
+        e = expectThrows(SearchPhaseExecutionException.class, () -> client().prepareSearch("index").setScroll(TimeValue.timeValueMinutes(1))
+            .setSource(new SearchSourceBuilder().slice(new SliceBuilder(SliceBuilder.DOC_FIELD_NAME, 0, 2))).get());
+        assertThat(e.toString(), containsString("`slice` on the [_doc] field can only be used with a point in time"));
+    }
+
+    public void testPointInTimeIsFreedOnIndexDelete() {
+        createIndex("index", Settings.builder().put("index.number_of_shards", 1).build());
+        client().prepareIndex("index", "type", "1").setSource("field", "value").setRefreshPolicy(IMMEDIATE).get();
+        SearchService service = getInstanceFromNode(SearchService.class);
+        client().execute(OpenPointInTimeAction.INSTANCE, new OpenPointInTimeRequest("index").keepAlive(TimeValue.timeValueMinutes(1)))
+            .actionGet();
+        assertEquals(1, service.getActivePointInTimes());
+        assertAcked(client().admin().indices().prepareDelete("index"));
+        assertEquals(0, service.getActivePointInTimes());
+    }
+
+    public void testPointInTimeKeepAliveIsLimited() {
+        createIndex("index");
+        IndexShard indexShard = getInstanceFromNode(IndicesService.class).indexServiceSafe(resolveIndex("index")).getShard(0);
+        SearchService service = getInstanceFromNode(SearchService.class);
+        IllegalArgumentException e = expectThrows(IllegalArgumentException.class,
+            () -> service.openPointInTime(indexShard.shardId(), TimeValue.timeValueHours(25)));
+        assertThat(e.getMessage(), startsWith("Keep alive for point in time (1d) is too large."));
+        assertEquals(0, service.getActivePointInTimes());
+    }
+
     public void testCloseSearchContextOnRewriteException() {
         // if refresh happens while checking the exception, the subsequent reference count might not match, so we switch it off
         createIndex("index", Settings.builder().put("index.refresh_interval", -1).build());
@@ -215,6 +327,69 @@ public class SearchServiceTests extends ESSingleNodeTestCase {
         assertEquals(activeRefs, indexShard.store().refCount());
     }
 
+    public void testExecuteQueryPhaseBatch() throws Exception {
+        createIndex("index", Settings.builder().put("index.refresh_interval", -1).build());
+        final int numDocs = randomIntBetween(1, 10);
+        for (int i = 0; i < numDocs; i++) {
+            client().prepareIndex("index", "type", Integer.toString(i)).setSource("field", i % 2 == 0 ? "even" : "odd").get();
+        }
+        client().admin().indices().prepareRefresh("index").get();
+
+        final SearchService service = getInstanceFromNode(SearchService.class);
+        final IndicesService indicesService = getInstanceFromNode(IndicesService.class);
+        final IndexShard indexShard = indicesService.indexServiceSafe(resolveIndex("index")).getShard(0);
+        final int activeContexts = service.getActiveContexts();
+        final int activeRefs = indexShard.store().refCount();
+
+        final List<ShardSearchLocalRequest> requests = new ArrayList<>();
+        final List<SearchTask> tasks = new ArrayList<>();
+        final List<PlainActionFuture<SearchPhaseResult>> listeners = new ArrayList<>();
+        final int numRequests = randomIntBetween(3, 10);
+        final int failingRequest = randomIntBetween(0, numRequests - 1);
+        final int cancelledRequest = randomValueOtherThan(failingRequest, () -> randomIntBetween(0, numRequests - 1));
+        for (int i = 0; i < numRequests; i++) {
+            final SearchSourceBuilder source = new SearchSourceBuilder().query(new TermQueryBuilder("field", i % 2 == 0 ? "even" : "odd"));
+            if (i == failingRequest) {
+                source.from(IndexSettings.MAX_RESULT_WINDOW_SETTING.get(Settings.EMPTY));
+            }
+            final SearchRequest searchRequest = new SearchRequest().allowPartialSearchResults(true).source(source);
+            requests.add(new ShardSearchLocalRequest(searchRequest, indexShard.shardId(), 2,
+                new AliasFilter(null, Strings.EMPTY_ARRAY), 1.0f, -1, null, null));
+            if (i == cancelledRequest) {
+                tasks.add(new SearchTask(123L + i, "", "", "", null, Collections.emptyMap()) {
+                    @Override
+                    public boolean isCancelled() {
+                        return true;
+                    }
+                });
+            } else {
+                tasks.add(new SearchTask(123L + i, "", "", "", null, Collections.emptyMap()));
+            }
+            listeners.add(new PlainActionFuture<>());
+        }
+        service.executeQueryPhase(requests, tasks, listeners);
+
+        for (int i = 0; i < numRequests; i++) {
+            if (i == failingRequest) {
+                ExecutionException e = expectThrows(ExecutionException.class, listeners.get(i)::get);
+                assertThat(e.getCause().getMessage(), containsString("Result window is too large"));
+            } else if (i == cancelledRequest) {
+                ExecutionException e = expectThrows(ExecutionException.class, listeners.get(i)::get);
+                assertThat(e.getCause(), instanceOf(TaskCancelledException.class));
+            } else {
+                final SearchPhaseResult result = listeners.get(i).get();
+                final long expectedHits = i % 2 == 0 ? (numDocs + 1) / 2 : numDocs / 2;
+                assertEquals(expectedHits, result.queryResult().topDocs().topDocs.totalHits.value);
+                // the contexts of the batch that have hits to fetch share the searcher of the batch until they are freed
+                if (expectedHits > 0) {
+                    assertTrue(service.freeContext(result.getRequestId()));
+                }
+            }
+        }
+        assertEquals(activeContexts, service.getActiveContexts());
+        assertEquals(activeRefs, indexShard.store().refCount());
+    }
+
     public void testSearchWhileIndexDeleted() throws InterruptedException {
         createIndex("index");
         client().prepareIndex("index", "type", "1").setSource("field", "value").setRefreshPolicy(IMMEDIATE).get();
@@ -0,0 +1,163 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.search.aggregations;
+
+import org.apache.lucene.document.Document;
+import org.apache.lucene.index.DirectoryReader;
+import org.apache.lucene.index.IndexReader;
+import org.apache.lucene.index.LeafReaderContext;
+import org.apache.lucene.index.RandomIndexWriter;
+import org.apache.lucene.search.CollectionTerminatedException;
+import org.apache.lucene.search.IndexSearcher;
+import org.apache.lucene.search.MatchAllDocsQuery;
+import org.apache.lucene.search.ScoreMode;
+import org.apache.lucene.store.Directory;
+import org.elasticsearch.test.ESTestCase;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+public class BatchingBucketCollectorTests extends ESTestCase {
+
+    /**
+     * Records the documents that it collects, per segment, and checks that they are collected in order and that all documents of
+     * a segment are collected before the next segment starts.
+     */
+    private static class RecordingBucketCollector extends BucketCollector {
+
+        private final int terminateAfter;
+        private final List<List<Integer>> docsPerLeaf = new ArrayList<>();
+        private int batches;
+        private boolean postCollection;
+
+        RecordingBucketCollector(int terminateAfter) {
+            this.terminateAfter = terminateAfter;
+        }
+
+        @Override
+        public LeafBucketCollector getLeafCollector(LeafReaderContext context) throws IOException {
+            final List<Integer> docs = new ArrayList<>();
+            docsPerLeaf.add(docs);
+            return new LeafBucketCollector() {
+                @Override
+                public void collect(int doc, long bucket) throws IOException {
+                    assertSame("documents must be collected before the next segment starts",
+                        docs, docsPerLeaf.get(docsPerLeaf.size() - 1));
+                    assertEquals(0, bucket);
+                    if (docs.isEmpty() == false) {
+                        assertTrue(doc > docs.get(docs.size() - 1));
+                    }
+                    if (docs.size() >= terminateAfter) {
+                        throw new CollectionTerminatedException();
+                    }
+                    docs.add(doc);
+                }
+
+                @Override
+                public void collect(int[] docs, int count, long bucket) throws IOException {
+                    assertTrue(count > 0);
+                    assertTrue(count <= BatchingBucketCollector.BATCH_SIZE);
+                    batches++;
+                    super.collect(docs, count, bucket);
+                }
+            };
+        }
+
+        @Override
+        public ScoreMode scoreMode() {
+            return ScoreMode.COMPLETE_NO_SCORES;
+        }
+
+        @Override
+        public void preCollection() {}
+
+        @Override
+        public void postCollection() {
+            postCollection = true;
+        }
+    }
+
+    public void testCollectInBatches() throws IOException {
+        try (Directory directory = newDirectory()) {
+            final int numDocs = randomIntBetween(1, 1000);
+            try (RandomIndexWriter iw = new RandomIndexWriter(random(), directory)) {
+                for (int i = 0; i < numDocs; i++) {
+                    iw.addDocument(new Document());
+                    if (rarely()) {
+                        iw.commit();
+                    }
+                }
+            }
+            try (IndexReader reader = DirectoryReader.open(directory)) {
+                // a single threaded searcher, the collector isn't thread safe
+                final IndexSearcher searcher = new IndexSearcher(reader);
+                final RecordingBucketCollector recording = new RecordingBucketCollector(Integer.MAX_VALUE);
+                final BatchingBucketCollector collector = new BatchingBucketCollector(recording);
+                collector.preCollection();
+                searcher.search(new MatchAllDocsQuery(), collector);
+                assertFalse(recording.postCollection);
+                collector.postCollection();
+                assertTrue(recording.postCollection);
+
+                assertEquals(reader.leaves().size(), recording.docsPerLeaf.size());
+                int totalDocs = 0;
+                for (int i = 0; i < reader.leaves().size(); i++) {
+                    final List<Integer> docs = recording.docsPerLeaf.get(i);
+                    assertEquals(reader.leaves().get(i).reader().numDocs(), docs.size());
+                    totalDocs += docs.size();
+                }
+                assertEquals(numDocs, totalDocs);
+                // every segment ends with a partial batch at most
+                assertTrue(recording.batches <= numDocs / BatchingBucketCollector.BATCH_SIZE + reader.leaves().size());
+            }
+        }
+    }
+
+    public void testCollectionTerminated() throws IOException {
+        try (Directory directory = newDirectory()) {
+            final int numDocs = randomIntBetween(1, 1000);
+            try (RandomIndexWriter iw = new RandomIndexWriter(random(), directory)) {
+                for (int i = 0; i < numDocs; i++) {
+                    iw.addDocument(new Document());
+                    if (rarely()) {
+                        iw.commit();
+                    }
+                }
+            }
+            try (IndexReader reader = DirectoryReader.open(directory)) {
+                // a single threaded searcher, the collector isn't thread safe
+                final IndexSearcher searcher = new IndexSearcher(reader);
+                final int terminateAfter = randomIntBetween(0, 300);
+                final RecordingBucketCollector recording = new RecordingBucketCollector(terminateAfter);
+                final BatchingBucketCollector collector = new BatchingBucketCollector(recording);
+                collector.preCollection();
+                searcher.search(new MatchAllDocsQuery(), collector);
+                collector.postCollection();
+
+                assertEquals(reader.leaves().size(), recording.docsPerLeaf.size());
+                for (int i = 0; i < reader.leaves().size(); i++) {
+                    final List<Integer> docs = recording.docsPerLeaf.get(i);
+                    assertEquals(Math.min(terminateAfter, reader.leaves().get(i).reader().numDocs()), docs.size());
+                }
+            }
+        }
+    }
+}
@@ -23,8 +23,13 @@ import org.apache.lucene.document.Document;
 import org.apache.lucene.document.LongPoint;
 import org.apache.lucene.document.SortedNumericDocValuesField;
 import org.apache.lucene.index.DirectoryReader;
+import org.apache.lucene.index.IndexOptions;
 import org.apache.lucene.index.IndexReader;
+import org.apache.lucene.index.LeafReaderContext;
+import org.apache.lucene.index.PointValues;
 import org.apache.lucene.index.RandomIndexWriter;
+import org.apache.lucene.search.BooleanClause;
+import org.apache.lucene.search.BooleanQuery;
 import org.apache.lucene.search.IndexSearcher;
 import org.apache.lucene.search.MatchAllDocsQuery;
 import org.apache.lucene.search.MatchNoDocsQuery;
@@ -38,11 +43,17 @@ import org.elasticsearch.search.aggregations.MultiBucketConsumerService.TooManyB
 import org.elasticsearch.search.aggregations.support.AggregationInspectionHelper;
 
 import java.io.IOException;
+import java.time.ZoneId;
 import java.util.Arrays;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
 import java.util.function.Consumer;
 
+import static org.hamcrest.Matchers.greaterThanOrEqualTo;
+
 public class DateHistogramAggregatorTests extends AggregatorTestCase {
 
     private static final String DATE_FIELD = "date";
@@ -389,6 +400,132 @@ public class DateHistogramAggregatorTests extends AggregatorTestCase {
             histogram -> {}, 5));
     }
 
+    public void testCountFromPoints() throws IOException {
+        final long start = asLong("2019-01-01T00:00:00");
+        final long end = asLong("2019-03-01T00:00:00");
+        try (Directory directory = newDirectory()) {
+            try (RandomIndexWriter indexWriter = new RandomIndexWriter(random(), directory)) {
+                final int numDocs = randomIntBetween(100, 1000);
+                for (int i = 0; i < numDocs; i++) {
+                    final Document document = new Document();
+                    if (randomBoolean()) {
+                        final long instant = randomLongBetween(start, end);
+                        document.add(new SortedNumericDocValuesField(DATE_FIELD, instant));
+                        document.add(new LongPoint(DATE_FIELD, instant));
+                    }
+                    indexWriter.addDocument(document);
+                    if (rarely()) {
+                        indexWriter.commit();
+                    }
+                }
+            }
+
+            try (IndexReader indexReader = DirectoryReader.open(directory)) {
+                final IndexSearcher indexSearcher = newSearcher(indexReader, true, true);
+                final DateFieldMapper.DateFieldType fieldType = new DateFieldMapper.Builder("_name").fieldType();
+                fieldType.setName(DATE_FIELD);
+                fieldType.setHasDocValues(true);
+                fieldType.setIndexOptions(IndexOptions.DOCS);
+
+                final DateHistogramInterval interval = randomFrom(DateHistogramInterval.HOUR, DateHistogramInterval.DAY,
+                    DateHistogramInterval.WEEK, DateHistogramInterval.MONTH, DateHistogramInterval.minutes(90));
+                final DateHistogramAggregationBuilder aggregationBuilder = new DateHistogramAggregationBuilder("_name")
+                    .field(DATE_FIELD)
+                    .dateHistogramInterval(interval);
+                if (randomBoolean()) {
+                    aggregationBuilder.offset(randomLongBetween(-TimeUnit.HOURS.toMillis(12), TimeUnit.HOURS.toMillis(12)));
+                }
+                if (randomBoolean()) {
+                    aggregationBuilder.timeZone(ZoneId.of(randomFrom("Europe/Paris", "America/New_York", "Asia/Kolkata")));
+                }
+                final long from = randomLongBetween(start, end);
+                final Query query = randomBoolean()
+                    ? new MatchAllDocsQuery()
+                    : LongPoint.newRangeQuery(DATE_FIELD, from, randomLongBetween(from, end));
+
+                // a disjunction can't be counted from points so it collects every document
+                final Query collectingQuery = new BooleanQuery.Builder().add(query, BooleanClause.Occur.SHOULD).build();
+                final InternalDateHistogram expected = search(indexSearcher, collectingQuery, aggregationBuilder, fieldType);
+
+                final DateHistogramAggregator aggregator = createAggregator(query, aggregationBuilder, indexSearcher, fieldType);
+                aggregator.preCollection();
+                indexSearcher.search(query, aggregator);
+                aggregator.postCollection();
+                final InternalDateHistogram histogram = (InternalDateHistogram) aggregator.buildAggregation(0L);
+                assertEquals(expected.getBuckets().size(), histogram.getBuckets().size());
+                for (int i = 0; i < expected.getBuckets().size(); i++) {
+                    assertEquals(expected.getBuckets().get(i).getKey(), histogram.getBuckets().get(i).getKey());
+                    assertEquals(expected.getBuckets().get(i).getDocCount(), histogram.getBuckets().get(i).getDocCount());
+                }
+
+                final Map<String, Long> debug = new HashMap<>();
+                aggregator.collectDebugInfo(debug::put);
+                final List<LeafReaderContext> leaves = indexSearcher.getIndexReader().leaves();
+                assertEquals(leaves.size(), debug.get("segments_collected") + debug.get("segments_counted_from_points"));
+                if (interval == DateHistogramInterval.MONTH) {
+                    // segments are only collected if they have no dates or too few dates per bucket
+                    long countable = 0;
+                    for (LeafReaderContext leaf : leaves) {
+                        final PointValues pointValues = leaf.reader().getPointValues(DATE_FIELD);
+                        if (pointValues != null && pointValues.size() >= 4 * DateHistogramAggregator.MIN_POINTS_PER_BUCKET) {
+                            countable++;
+                        }
+                    }
+                    assertThat(debug.get("segments_counted_from_points"), greaterThanOrEqualTo(countable));
+                }
+            }
+        }
+    }
+
+    public void testCountFromPointsOnlyWithFewBuckets() throws IOException {
+        final long start = asLong("2019-01-01T00:00:00");
+        final long end = asLong("2019-01-02T23:59:59");
+        try (Directory directory = newDirectory()) {
+            final int numDocs = randomIntBetween(2, 10) * DateHistogramAggregator.MIN_POINTS_PER_BUCKET;
+            try (RandomIndexWriter indexWriter = new RandomIndexWriter(random(), directory)) {
+                for (int i = 0; i < numDocs; i++) {
+                    final Document document = new Document();
+                    final long instant = randomLongBetween(start, end);
+                    document.add(new SortedNumericDocValuesField(DATE_FIELD, instant));
+                    document.add(new LongPoint(DATE_FIELD, instant));
+                    indexWriter.addDocument(document);
+                }
+                indexWriter.forceMerge(1);
+            }
+
+            try (IndexReader indexReader = DirectoryReader.open(directory)) {
+                // a single segment
+                final IndexSearcher indexSearcher = newSearcher(indexReader, false, true);
+                final DateFieldMapper.DateFieldType fieldType = new DateFieldMapper.Builder("_name").fieldType();
+                fieldType.setName(DATE_FIELD);
+                fieldType.setHasDocValues(true);
+                fieldType.setIndexOptions(IndexOptions.DOCS);
+
+                // two daily buckets are counted, but 48 hourly buckets hold too few documents each
+                final boolean hourly = randomBoolean();
+                final DateHistogramAggregationBuilder aggregationBuilder = new DateHistogramAggregationBuilder("_name")
+                    .field(DATE_FIELD)
+                    .dateHistogramInterval(hourly ? DateHistogramInterval.HOUR : DateHistogramInterval.DAY);
+                final Query query = new MatchAllDocsQuery();
+                final DateHistogramAggregator aggregator = createAggregator(query, aggregationBuilder, indexSearcher, fieldType);
+                aggregator.preCollection();
+                indexSearcher.search(query, aggregator);
+                aggregator.postCollection();
+                final InternalDateHistogram histogram = (InternalDateHistogram) aggregator.buildAggregation(0L);
+                long totalDocCount = 0;
+                for (InternalDateHistogram.Bucket bucket : histogram.getBuckets()) {
+                    totalDocCount += bucket.getDocCount();
+                }
+                assertEquals(numDocs, totalDocCount);
+
+                final Map<String, Long> debug = new HashMap<>();
+                aggregator.collectDebugInfo(debug::put);
+                assertEquals(hourly ? 0L : 1L, (long) debug.get("segments_counted_from_points"));
+                assertEquals(hourly ? 1L : 0L, (long) debug.get("segments_collected"));
+            }
+        }
+    }
+
     private void testSearchCase(Query query, List<String> dataset,
                                 Consumer<DateHistogramAggregationBuilder> configure,
                                 Consumer<InternalDateHistogram> verify) throws IOException {
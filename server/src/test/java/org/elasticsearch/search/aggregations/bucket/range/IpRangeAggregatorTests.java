@@ -21,10 +21,12 @@ package org.elasticsearch.search.aggregations.bucket.range;
 import org.apache.lucene.document.Document;
 import org.apache.lucene.document.InetAddressPoint;
 import org.apache.lucene.document.SortedSetDocValuesField;
+import org.apache.lucene.index.IndexOptions;
 import org.apache.lucene.index.IndexReader;
 import org.apache.lucene.index.RandomIndexWriter;
 import org.apache.lucene.search.IndexSearcher;
 import org.apache.lucene.search.MatchAllDocsQuery;
+import org.apache.lucene.search.Query;
 import org.apache.lucene.store.Directory;
 import org.apache.lucene.util.BytesRef;
 import org.elasticsearch.common.collect.Tuple;
@@ -38,6 +40,8 @@ import java.net.InetAddress;
 import java.net.UnknownHostException;
 import java.util.Arrays;
 import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Map;
 
 public class IpRangeAggregatorTests extends AggregatorTestCase {
 
@@ -152,4 +156,55 @@ public class IpRangeAggregatorTests extends AggregatorTestCase {
             }
         }
     }
+
+    public void testCountFromPoints() throws Exception {
+        IpRangeAggregationBuilder builder = new IpRangeAggregationBuilder("test_agg").field("field");
+        int numRanges = randomIntBetween(1, 10);
+        Tuple<BytesRef, BytesRef>[] requestedRanges = new Tuple[numRanges];
+        for (int i = 0; i < numRanges; i++) {
+            InetAddress[] addresses = new InetAddress[] { randomIp(true), randomIp(true) };
+            Arrays.sort(addresses, Comparator.comparing(address -> new BytesRef(InetAddressPoint.encode(address))));
+            builder.addRange(NetworkAddress.format(addresses[0]), NetworkAddress.format(addresses[1]));
+            requestedRanges[i] = new Tuple<>(new BytesRef(InetAddressPoint.encode(addresses[0])),
+                new BytesRef(InetAddressPoint.encode(addresses[1])));
+        }
+        Arrays.sort(requestedRanges, RANGE_COMPARATOR);
+        int[] expectedCounts = new int[numRanges];
+        try (Directory dir = newDirectory();
+             RandomIndexWriter w = new RandomIndexWriter(random(), dir)) {
+            int numDocs = randomIntBetween(10, 100);
+            for (int i = 0; i < numDocs; i++) {
+                Document doc = new Document();
+                InetAddress address = randomIp(true);
+                BytesRef value = new BytesRef(InetAddressPoint.encode(address));
+                doc.add(new InetAddressPoint("field", address));
+                doc.add(new SortedSetDocValuesField("field", value));
+                for (int j = 0; j < numRanges; j++) {
+                    if (isInRange(value, requestedRanges[j].v1(), requestedRanges[j].v2())) {
+                        expectedCounts[j]++;
+                    }
+                }
+                w.addDocument(doc);
+            }
+            MappedFieldType fieldType = new IpFieldMapper.IpFieldType();
+            fieldType.setName("field");
+            fieldType.setIndexOptions(IndexOptions.DOCS);
+            try (IndexReader reader = w.getReader()) {
+                IndexSearcher searcher = new IndexSearcher(reader);
+                Query query = new MatchAllDocsQuery();
+                BinaryRangeAggregator aggregator = createAggregator(query, builder, searcher, fieldType);
+                aggregator.preCollection();
+                searcher.search(query, aggregator);
+                aggregator.postCollection();
+                InternalBinaryRange range = (InternalBinaryRange) aggregator.buildAggregation(0L);
+                assertEquals(numRanges, range.getBuckets().size());
+                for (int i = 0; i < range.getBuckets().size(); i++) {
+                    assertEquals(expectedCounts[i], range.getBuckets().get(i).getDocCount());
+                }
+                Map<String, Long> debug = new HashMap<>();
+                aggregator.collectDebugInfo(debug::put);
+                assertEquals(0L, (long) debug.get("segments_collected"));
+            }
+        }
+    }
 }
@@ -0,0 +1,190 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.search.aggregations.bucket.range;
+
+import org.apache.lucene.document.Document;
+import org.apache.lucene.document.DoublePoint;
+import org.apache.lucene.document.IntPoint;
+import org.apache.lucene.document.LongPoint;
+import org.apache.lucene.document.SortedNumericDocValuesField;
+import org.apache.lucene.index.DirectoryReader;
+import org.apache.lucene.index.IndexOptions;
+import org.apache.lucene.index.IndexReader;
+import org.apache.lucene.index.RandomIndexWriter;
+import org.apache.lucene.search.BooleanClause;
+import org.apache.lucene.search.BooleanQuery;
+import org.apache.lucene.search.IndexSearcher;
+import org.apache.lucene.search.MatchAllDocsQuery;
+import org.apache.lucene.search.Query;
+import org.apache.lucene.store.Directory;
+import org.apache.lucene.util.NumericUtils;
+import org.elasticsearch.index.mapper.MappedFieldType;
+import org.elasticsearch.index.mapper.NumberFieldMapper;
+import org.elasticsearch.search.aggregations.AggregatorTestCase;
+
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+public class RangeAggregatorTests extends AggregatorTestCase {
+
+    private static final String FIELD = "field";
+
+    public void testCountFromPoints() throws IOException {
+        final NumberFieldMapper.NumberType type = randomFrom(NumberFieldMapper.NumberType.LONG, NumberFieldMapper.NumberType.INTEGER,
+            NumberFieldMapper.NumberType.DOUBLE);
+        try (Directory directory = newDirectory()) {
+            try (RandomIndexWriter indexWriter = new RandomIndexWriter(random(), directory)) {
+                final int numDocs = randomIntBetween(100, 1000);
+                for (int i = 0; i < numDocs; i++) {
+                    final Document document = new Document();
+                    if (randomBoolean()) {
+                        addValue(document, type, randomIntBetween(-1000, 1000) + (type == NumberFieldMapper.NumberType.DOUBLE
+                            ? randomFrom(0.0, 0.25, 0.5) : 0));
+                    }
+                    indexWriter.addDocument(document);
+                    if (rarely()) {
+                        indexWriter.commit();
+                    }
+                }
+            }
+
+            try (IndexReader indexReader = DirectoryReader.open(directory)) {
+                final IndexSearcher indexSearcher = newSearcher(indexReader, true, true);
+                final RangeAggregationBuilder aggregationBuilder = new RangeAggregationBuilder("_name").field(FIELD);
+                final int numRanges = randomIntBetween(1, 5);
+                for (int i = 0; i < numRanges; i++) {
+                    final double from = randomIntBetween(-1100, 1100) + randomFrom(0.0, 0.5);
+                    final double to = from + randomIntBetween(0, 500) + randomFrom(0.0, 0.5);
+                    if (rarely()) {
+                        aggregationBuilder.addUnboundedTo(to);
+                    } else if (rarely()) {
+                        aggregationBuilder.addUnboundedFrom(from);
+                    } else {
+                        aggregationBuilder.addRange(from, to);
+                    }
+                }
+                final int queryFrom = randomIntBetween(-1000, 1000);
+                final int queryTo = randomIntBetween(queryFrom, 1000);
+                final Query query = randomBoolean() ? new MatchAllDocsQuery() : rangeQuery(type, queryFrom, queryTo);
+                final MappedFieldType fieldType = new NumberFieldMapper.NumberFieldType(type);
+                fieldType.setName(FIELD);
+                fieldType.setIndexOptions(IndexOptions.DOCS);
+
+                // a disjunction can't be counted from points so it collects every document
+                final Query collectingQuery = new BooleanQuery.Builder().add(query, BooleanClause.Occur.SHOULD).build();
+                final InternalRange<?, ?> expected = search(indexSearcher, collectingQuery, aggregationBuilder, fieldType);
+
+                final RangeAggregator aggregator = createAggregator(query, aggregationBuilder, indexSearcher, fieldType);
+                aggregator.preCollection();
+                indexSearcher.search(query, aggregator);
+                aggregator.postCollection();
+                final InternalRange<?, ?> range = (InternalRange<?, ?>) aggregator.buildAggregation(0L);
+                assertEquals(expected.getBuckets().size(), range.getBuckets().size());
+                for (int i = 0; i < expected.getBuckets().size(); i++) {
+                    assertEquals(expected.getBuckets().get(i).getKey(), range.getBuckets().get(i).getKey());
+                    assertEquals(expected.getBuckets().get(i).getDocCount(), range.getBuckets().get(i).getDocCount());
+                }
+
+                final Map<String, Long> debug = new HashMap<>();
+                aggregator.collectDebugInfo(debug::put);
+                assertEquals(0L, (long) debug.get("segments_collected"));
+                assertEquals(indexSearcher.getIndexReader().leaves().size(),
+                    debug.get("segments_skipped") + debug.get("segments_counted_from_points"));
+            }
+        }
+    }
+
+    public void testSkipSegmentsOutsideOfRanges() throws IOException {
+        try (Directory directory = newDirectory()) {
+            try (RandomIndexWriter indexWriter = new RandomIndexWriter(random(), directory)) {
+                final int numDocs = randomIntBetween(10, 100);
+                for (int i = 0; i < numDocs; i++) {
+                    final Document document = new Document();
+                    // documents have several values, so the segments can't be counted from points
+                    addValue(document, NumberFieldMapper.NumberType.LONG, randomIntBetween(100, 200));
+                    addValue(document, NumberFieldMapper.NumberType.LONG, randomIntBetween(100, 200));
+                    indexWriter.addDocument(document);
+                    if (rarely()) {
+                        indexWriter.commit();
+                    }
+                }
+            }
+
+            try (IndexReader indexReader = DirectoryReader.open(directory)) {
+                final IndexSearcher indexSearcher = newSearcher(indexReader, true, true);
+                final MappedFieldType fieldType = new NumberFieldMapper.NumberFieldType(NumberFieldMapper.NumberType.LONG);
+                fieldType.setName(FIELD);
+                fieldType.setIndexOptions(IndexOptions.DOCS);
+                final RangeAggregationBuilder aggregationBuilder = new RangeAggregationBuilder("_name").field(FIELD)
+                    .addUnboundedTo(100)
+                    .addRange(200.5, 300);
+                final Query query = new MatchAllDocsQuery();
+
+                final RangeAggregator aggregator = createAggregator(query, aggregationBuilder, indexSearcher, fieldType);
+                aggregator.preCollection();
+                indexSearcher.search(query, aggregator);
+                aggregator.postCollection();
+                final InternalRange<?, ?> range = (InternalRange<?, ?>) aggregator.buildAggregation(0L);
+                final List<? extends InternalRange.Bucket> buckets = range.getBuckets();
+                assertEquals(2, buckets.size());
+                assertEquals(0, buckets.get(0).getDocCount());
+                assertEquals(0, buckets.get(1).getDocCount());
+
+                final Map<String, Long> debug = new HashMap<>();
+                aggregator.collectDebugInfo(debug::put);
+                assertEquals(indexSearcher.getIndexReader().leaves().size(), (long) debug.get("segments_skipped"));
+            }
+        }
+    }
+
+    private static void addValue(Document document, NumberFieldMapper.NumberType type, double value) {
+        switch (type) {
+            case LONG:
+                document.add(new LongPoint(FIELD, (long) value));
+                document.add(new SortedNumericDocValuesField(FIELD, (long) value));
+                break;
+            case INTEGER:
+                document.add(new IntPoint(FIELD, (int) value));
+                document.add(new SortedNumericDocValuesField(FIELD, (int) value));
+                break;
+            case DOUBLE:
+                document.add(new DoublePoint(FIELD, value));
+                document.add(new SortedNumericDocValuesField(FIELD, NumericUtils.doubleToSortableLong(value)));
+                break;
+            default:
+                throw new AssertionError("unsupported type " + type);
+        }
+    }
+
+    private static Query rangeQuery(NumberFieldMapper.NumberType type, int from, int to) {
+        switch (type) {
+            case LONG:
+                return LongPoint.newRangeQuery(FIELD, from, to);
+            case INTEGER:
+                return IntPoint.newRangeQuery(FIELD, from, to);
+            case DOUBLE:
+                return DoublePoint.newRangeQuery(FIELD, from, to);
+            default:
+                throw new AssertionError("unsupported type " + type);
+        }
+    }
+}
@@ -89,12 +89,14 @@ public class StringTermsIT extends AbstractTermsTestCase {
     public void randomizeOptimizations() {
         TermsAggregatorFactory.COLLECT_SEGMENT_ORDS = randomBoolean();
         TermsAggregatorFactory.REMAP_GLOBAL_ORDS = randomBoolean();
+        TermsAggregatorFactory.DENSE_ORDS = randomBoolean();
     }
 
     @After
     public void resetOptimizations() {
         TermsAggregatorFactory.COLLECT_SEGMENT_ORDS = null;
         TermsAggregatorFactory.REMAP_GLOBAL_ORDS = null;
+        TermsAggregatorFactory.DENSE_ORDS = null;
     }
 
     public static class CustomScriptPlugin extends AggregationTestScriptsPlugin {
@@ -106,11 +106,13 @@ public class TermsAggregatorTests extends AggregatorTestCase {
             if (randomizeAggregatorImpl) {
                 TermsAggregatorFactory.COLLECT_SEGMENT_ORDS = randomBoolean();
                 TermsAggregatorFactory.REMAP_GLOBAL_ORDS = randomBoolean();
+                TermsAggregatorFactory.DENSE_ORDS = randomBoolean();
             }
             return super.createAggregator(aggregationBuilder, indexSearcher, fieldTypes);
         } finally {
             TermsAggregatorFactory.COLLECT_SEGMENT_ORDS = null;
             TermsAggregatorFactory.REMAP_GLOBAL_ORDS = null;
+            TermsAggregatorFactory.DENSE_ORDS = null;
         }
     }
 
@@ -921,6 +923,79 @@ public class TermsAggregatorTests extends AggregatorTestCase {
         }
     }
 
+    public void testDenseOrdsUnderBucketAggregator() throws Exception {
+        randomizeAggregatorImpl = false;
+        try (Directory directory = newDirectory()) {
+            try (RandomIndexWriter indexWriter = new RandomIndexWriter(random(), directory)) {
+                int numDocs = randomIntBetween(10, 200);
+                for (int i = 0; i < numDocs; i++) {
+                    Document document = new Document();
+                    document.add(new SortedSetDocValuesField("field1", new BytesRef("a" + randomIntBetween(0, 9))));
+                    int numValues = randomIntBetween(0, 3);
+                    for (int j = 0; j < numValues; j++) {
+                        document.add(new SortedSetDocValuesField("field2", new BytesRef("b" + randomIntBetween(0, 19))));
+                    }
+                    indexWriter.addDocument(document);
+                }
+                try (IndexReader indexReader = maybeWrapReaderEs(indexWriter.getReader())) {
+                    IndexSearcher indexSearcher = newIndexSearcher(indexReader);
+                    TermsAggregationBuilder aggregationBuilder = new TermsAggregationBuilder("_name1", ValueType.STRING)
+                        .field("field1")
+                        .size(10)
+                        .order(BucketOrder.key(true))
+                        .subAggregation(new TermsAggregationBuilder("_name2", ValueType.STRING)
+                            .field("field2")
+                            .size(randomIntBetween(1, 20))
+                            .minDocCount(randomIntBetween(0, 1))
+                            .order(randomFrom(BucketOrder.key(true), BucketOrder.count(false)))
+                        );
+                    MappedFieldType fieldType1 = new KeywordFieldMapper.KeywordFieldType();
+                    fieldType1.setName("field1");
+                    fieldType1.setHasDocValues(true);
+                    MappedFieldType fieldType2 = new KeywordFieldMapper.KeywordFieldType();
+                    fieldType2.setName("field2");
+                    fieldType2.setHasDocValues(true);
+
+                    TermsAggregatorFactory.DENSE_ORDS = false;
+                    Aggregator aggregator = createAggregator(aggregationBuilder, indexSearcher, fieldType1, fieldType2);
+                    aggregator.preCollection();
+                    indexSearcher.search(new MatchAllDocsQuery(), aggregator);
+                    aggregator.postCollection();
+                    Terms expected = (Terms) aggregator.buildAggregation(0L);
+
+                    TermsAggregatorFactory.DENSE_ORDS = true;
+                    aggregator = createAggregator(aggregationBuilder, indexSearcher, fieldType1, fieldType2);
+                    Aggregator subAggregator = aggregator.subAggregator("_name2");
+                    assertThat(subAggregator, instanceOf(GlobalOrdinalsStringTermsAggregator.DenseOrds.class));
+                    aggregator.preCollection();
+                    indexSearcher.search(new MatchAllDocsQuery(), aggregator);
+                    aggregator.postCollection();
+                    Terms result = (Terms) aggregator.buildAggregation(0L);
+
+                    assertEquals(expected.getBuckets().size(), result.getBuckets().size());
+                    for (int i = 0; i < expected.getBuckets().size(); i++) {
+                        Terms.Bucket expectedBucket = expected.getBuckets().get(i);
+                        Terms.Bucket bucket = result.getBuckets().get(i);
+                        assertEquals(expectedBucket.getKeyAsString(), bucket.getKeyAsString());
+                        assertEquals(expectedBucket.getDocCount(), bucket.getDocCount());
+                        List<? extends Terms.Bucket> expectedSubBuckets = ((Terms) expectedBucket.getAggregations().get("_name2")).getBuckets();
+                        List<? extends Terms.Bucket> subBuckets = ((Terms) bucket.getAggregations().get("_name2")).getBuckets();
+                        assertEquals(expectedSubBuckets.size(), subBuckets.size());
+                        for (int j = 0; j < expectedSubBuckets.size(); j++) {
+                            assertEquals(expectedSubBuckets.get(j).getKeyAsString(), subBuckets.get(j).getKeyAsString());
+                            assertEquals(expectedSubBuckets.get(j).getDocCount(), subBuckets.get(j).getDocCount());
+                        }
+                    }
+
+                    Map<String, Long> debug = new HashMap<>();
+                    subAggregator.collectDebugInfo(debug::put);
+                    assertEquals(1L, (long) debug.get("dense_ords"));
+                    assertEquals(0L, (long) debug.get("remap_global_ords"));
+                }
+            }
+        }
+    }
+
     public void testMixLongAndDouble() throws Exception {
         for (TermsAggregatorFactory.ExecutionMode executionMode : TermsAggregatorFactory.ExecutionMode.values()) {
             TermsAggregationBuilder aggregationBuilder = new TermsAggregationBuilder("_name", ValueType.LONG)
@@ -21,13 +21,29 @@ package org.elasticsearch.search.aggregations.metrics;
 
 import com.carrotsearch.hppc.BitMixer;
 import com.carrotsearch.hppc.IntHashSet;
+import org.elasticsearch.Version;
+import org.elasticsearch.common.breaker.CircuitBreaker;
+import org.elasticsearch.common.io.stream.BytesStreamOutput;
+import org.elasticsearch.common.io.stream.StreamInput;
+import org.elasticsearch.common.settings.ClusterSettings;
+import org.elasticsearch.common.settings.Settings;
 import org.elasticsearch.common.util.BigArrays;
+import org.elasticsearch.common.util.ByteArray;
+import org.elasticsearch.indices.breaker.HierarchyCircuitBreakerService;
 import org.elasticsearch.search.aggregations.metrics.HyperLogLogPlusPlus;
 import org.elasticsearch.test.ESTestCase;
+import org.elasticsearch.test.VersionUtils;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import static org.elasticsearch.search.aggregations.metrics.HyperLogLogPlusPlus.MAX_PRECISION;
 import static org.elasticsearch.search.aggregations.metrics.HyperLogLogPlusPlus.MIN_PRECISION;
 import static org.hamcrest.Matchers.closeTo;
+import static org.hamcrest.Matchers.lessThan;
+import static org.hamcrest.Matchers.lessThanOrEqualTo;
 
 public class HyperLogLogPlusPlusTests extends ESTestCase {
     public void testEncodeDecode() {
@@ -118,6 +134,92 @@ public class HyperLogLogPlusPlusTests extends ESTestCase {
         assertEquals(1, counts.cardinality(0));
     }
 
+    public void testSerialization() throws IOException {
+        final int p = randomIntBetween(MIN_PRECISION, MAX_PRECISION);
+        final HyperLogLogPlusPlus counts = new HyperLogLogPlusPlus(p, BigArrays.NON_RECYCLING_INSTANCE, 1);
+        final int numValues = randomIntBetween(1, randomBoolean() ? 100 : 100000);
+        for (int i = 0; i < numValues; ++i) {
+            counts.collect(0, BitMixer.mix64(randomInt()));
+        }
+        final Version version = randomFrom(Version.CURRENT, VersionUtils.getPreviousVersion(Version.V_8_0_0));
+        try (BytesStreamOutput out = new BytesStreamOutput()) {
+            out.setVersion(version);
+            counts.writeTo(0, out);
+            try (StreamInput in = out.bytes().streamInput()) {
+                in.setVersion(version);
+                final HyperLogLogPlusPlus copy = HyperLogLogPlusPlus.readFrom(in, BigArrays.NON_RECYCLING_INSTANCE);
+                assertTrue(counts.equals(0, copy));
+                assertEquals(counts.cardinality(0), copy.cardinality(0));
+            }
+        }
+    }
+
+    public void testSparseBucketsMemoryUsage() {
+        final HierarchyCircuitBreakerService breakerService = new HierarchyCircuitBreakerService(
+            Settings.builder().put(HierarchyCircuitBreakerService.USE_REAL_MEMORY_USAGE_SETTING.getKey(), false).build(),
+            new ClusterSettings(Settings.EMPTY, ClusterSettings.BUILT_IN_CLUSTER_SETTINGS));
+        final BigArrays bigArrays = new BigArrays(null, breakerService, CircuitBreaker.REQUEST).withCircuitBreaking();
+        final CircuitBreaker breaker = breakerService.getBreaker(CircuitBreaker.REQUEST);
+        final int p = randomIntBetween(12, MAX_PRECISION);
+        final int numBuckets = randomIntBetween(100, 1000);
+        try (HyperLogLogPlusPlus counts = new HyperLogLogPlusPlus(p, bigArrays, 1)) {
+            for (int bucket = 0; bucket < numBuckets; ++bucket) {
+                final int numValues = randomIntBetween(1, 10);
+                for (int i = 0; i < numValues; ++i) {
+                    counts.collect(bucket, BitMixer.mix64(randomInt()));
+                }
+                assertThat((double) counts.cardinality(bucket), closeTo(numValues, 1));
+            }
+            // buckets with few values don't allocate the hyperloglog registers
+            assertThat(breaker.getUsed(), lessThan(numBuckets * HyperLogLogPlusPlus.memoryUsage(p) / 10));
+
+            // upgrading to hyperloglog releases the sparse representation of the bucket
+            final long bucket = randomInt(numBuckets - 1);
+            for (int i = 0; i < 100000; ++i) {
+                counts.collect(bucket, BitMixer.mix64(i));
+            }
+            assertThat((double) counts.cardinality(bucket), closeTo(100000, 10000));
+        }
+        assertEquals(0, breaker.getUsed());
+    }
+
+    public void testDuplicatesAtLinearCountingThreshold() {
+        final AtomicInteger listRewrites = new AtomicInteger();
+        final BigArrays bigArrays = new BigArrays(null, null, CircuitBreaker.REQUEST) {
+            @Override
+            public ByteArray newByteArray(long size, boolean clearOnResize) {
+                // the sorted list of a bucket is rewritten into a new array whenever the buffered hashes are merged into it
+                listRewrites.incrementAndGet();
+                return super.newByteArray(size, clearOnResize);
+            }
+        };
+        final int p = randomIntBetween(MIN_PRECISION, 14);
+        // the number of hashes above which a bucket is upgraded to hyperloglog
+        final int threshold = (int) ((1 << p) / 4 * 0.75f);
+        try (HyperLogLogPlusPlus counts = new HyperLogLogPlusPlus(p, bigArrays, 1);
+             HyperLogLogPlusPlus expected = new HyperLogLogPlusPlus(p, BigArrays.NON_RECYCLING_INSTANCE, 1)) {
+            final IntHashSet encodedHashes = new IntHashSet();
+            final List<Long> hashes = new ArrayList<>();
+            for (long i = 0; hashes.size() < threshold; ++i) {
+                final long hash = BitMixer.mix64(i);
+                if (encodedHashes.add(HyperLogLogPlusPlus.encodeHash(hash, p))) {
+                    hashes.add(hash);
+                    counts.collect(0, hash);
+                    expected.collect(0, hash);
+                }
+            }
+
+            // the bucket holds exactly as many hashes as it can, duplicates must neither rewrite the list nor upgrade the bucket
+            final int rewritesAtThreshold = listRewrites.get();
+            final int numDuplicates = scaledRandomIntBetween(1000, 10000);
+            for (int i = 0; i < numDuplicates; ++i) {
+                counts.collect(0, randomFrom(hashes));
+            }
+            assertThat(listRewrites.get() - rewritesAtThreshold, lessThanOrEqualTo(1));
+            assertEquals(expected.cardinality(0), counts.cardinality(0));
+        }
+    }
+
     public void testPrecisionFromThreshold() {
         assertEquals(4, HyperLogLogPlusPlus.precisionFromThreshold(0));
         assertEquals(6, HyperLogLogPlusPlus.precisionFromThreshold(10));
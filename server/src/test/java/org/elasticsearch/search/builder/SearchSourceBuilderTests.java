@@ -21,6 +21,7 @@ package org.elasticsearch.search.builder;
 
 import com.fasterxml.jackson.core.JsonParseException;
 import org.elasticsearch.common.ParsingException;
+import org.elasticsearch.common.Strings;
 import org.elasticsearch.common.bytes.BytesReference;
 import org.elasticsearch.common.io.stream.BytesStreamOutput;
 import org.elasticsearch.common.io.stream.NamedWriteableAwareStreamInput;
@@ -342,6 +343,28 @@ public class SearchSourceBuilderTests extends AbstractSearchTestCase {
         }
     }
 
+    public void testParsePointInTime() throws IOException {
+        {
+            String restContent = "{ \"pit\": { \"id\": \"abc\", \"keep_alive\": \"5m\" } }";
+            try (XContentParser parser = createParser(JsonXContent.jsonXContent, restContent)) {
+                SearchSourceBuilder searchSourceBuilder = SearchSourceBuilder.fromXContent(parser);
+                PointInTimeBuilder expected = new PointInTimeBuilder("abc").setKeepAlive(TimeValue.timeValueMinutes(5));
+                assertEquals(expected, searchSourceBuilder.pointInTimeBuilder());
+                assertEquals(searchSourceBuilder, copyBuilder(searchSourceBuilder));
+                try (XContentParser reparser = createParser(JsonXContent.jsonXContent, Strings.toString(searchSourceBuilder))) {
+                    assertEquals(searchSourceBuilder, SearchSourceBuilder.fromXContent(reparser));
+                }
+            }
+        }
+        {
+            String restContent = "{ \"pit\": { \"keep_alive\": \"5m\" } }";
+            try (XContentParser parser = createParser(JsonXContent.jsonXContent, restContent)) {
+                IllegalArgumentException e = expectThrows(IllegalArgumentException.class, () -> SearchSourceBuilder.fromXContent(parser));
+                assertEquals("[id] is required for a point in time", e.getMessage());
+            }
+        }
+    }
+
     public void testTimeoutWithoutUnits() throws IOException {
         final int timeout = randomIntBetween(1, 1024);
         final String query = "{ \"query\": { \"match_all\": {}}, \"timeout\": \"" + timeout + "\"}";
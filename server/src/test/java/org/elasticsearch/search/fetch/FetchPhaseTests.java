@@ -0,0 +1,76 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.search.fetch;
+
+import org.elasticsearch.action.search.SearchResponse;
+import org.elasticsearch.common.settings.Settings;
+import org.elasticsearch.search.SearchHit;
+import org.elasticsearch.search.sort.SortOrder;
+import org.elasticsearch.test.ESSingleNodeTestCase;
+
+import static org.elasticsearch.index.query.QueryBuilders.termQuery;
+import static org.hamcrest.Matchers.equalTo;
+
+public class FetchPhaseTests extends ESSingleNodeTestCase {
+
+    public void testHitsKeepSortOrder() {
+        createIndex("test", Settings.builder().put("index.number_of_shards", 1).build());
+        int numDocs = randomIntBetween(FetchPhase.SEQUENTIAL_ACCESS_MIN_DOCS, 200);
+        for (int i = 0; i < numDocs; i++) {
+            client().prepareIndex("test", "_doc", Integer.toString(i))
+                .setSource("rank", i, "group", i % 3 == 0 ? "a" : "b", "body", randomAlphaOfLength(20))
+                .get();
+            if (rarely()) {
+                client().admin().indices().prepareRefresh("test").get();
+            }
+        }
+        if (randomBoolean()) {
+            client().admin().indices().prepareForceMerge("test").setMaxNumSegments(1).get();
+        }
+        client().admin().indices().prepareRefresh("test").get();
+
+        // hits are fetched in doc id order, they must come back in the order of the sort
+        SearchResponse response = client().prepareSearch("test")
+            .addSort("rank", SortOrder.DESC)
+            .setSize(numDocs)
+            .get();
+        assertThat(response.getHits().getHits().length, equalTo(numDocs));
+        for (int i = 0; i < numDocs; i++) {
+            SearchHit hit = response.getHits().getAt(i);
+            int rank = numDocs - 1 - i;
+            assertThat(hit.getId(), equalTo(Integer.toString(rank)));
+            assertThat(hit.getSourceAsMap().get("rank"), equalTo(rank));
+        }
+
+        // non-consecutive hits
+        response = client().prepareSearch("test")
+            .setQuery(termQuery("group", "a"))
+            .addSort("rank", SortOrder.ASC)
+            .setSize(numDocs)
+            .get();
+        int expectedRank = 0;
+        for (SearchHit hit : response.getHits().getHits()) {
+            assertThat(hit.getId(), equalTo(Integer.toString(expectedRank)));
+            assertThat(hit.getSourceAsMap().get("rank"), equalTo(expectedRank));
+            expectedRank += 3;
+        }
+        assertThat(expectedRank / 3, equalTo((numDocs + 2) / 3));
+    }
+}
@@ -0,0 +1,189 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.search.internal;
+
+import org.apache.lucene.document.Document;
+import org.apache.lucene.document.Field.Store;
+import org.apache.lucene.document.StringField;
+import org.apache.lucene.document.TextField;
+import org.apache.lucene.index.DirectoryReader;
+import org.apache.lucene.index.IndexReader;
+import org.apache.lucene.index.LeafReaderContext;
+import org.apache.lucene.index.RandomIndexWriter;
+import org.apache.lucene.index.Term;
+import org.apache.lucene.search.CollectorManager;
+import org.apache.lucene.search.DocIdSetIterator;
+import org.apache.lucene.search.IndexSearcher;
+import org.apache.lucene.search.MatchAllDocsQuery;
+import org.apache.lucene.search.Query;
+import org.apache.lucene.search.QueryCachingPolicy;
+import org.apache.lucene.search.TermQuery;
+import org.apache.lucene.search.TopDocs;
+import org.apache.lucene.search.TopScoreDocCollector;
+import org.apache.lucene.store.Directory;
+import org.elasticsearch.index.engine.Engine;
+import org.elasticsearch.tasks.TaskCancelledException;
+import org.elasticsearch.test.ESTestCase;
+import org.elasticsearch.threadpool.TestThreadPool;
+import org.elasticsearch.threadpool.ThreadPool;
+
+import java.io.IOException;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.greaterThan;
+import static org.hamcrest.Matchers.lessThanOrEqualTo;
+
+public class ContextIndexSearcherTests extends ESTestCase {
+
+    private static final QueryCachingPolicy NEVER_CACHE_POLICY = new QueryCachingPolicy() {
+        @Override
+        public void onUse(Query query) {}
+
+        @Override
+        public boolean shouldCache(Query query) {
+            return false;
+        }
+    };
+
+    public void testComputeSlices() throws IOException {
+        try (Directory dir = newDirectory();
+             RandomIndexWriter w = new RandomIndexWriter(random(), dir)) {
+            final int numDocs = randomIntBetween(1, 500);
+            for (int i = 0; i < numDocs; i++) {
+                w.addDocument(new Document());
+                if (rarely()) {
+                    w.commit();
+                }
+            }
+            try (IndexReader reader = w.getReader()) {
+                final int maxSlices = randomIntBetween(1, 16);
+                final int minDocsPerSlice = randomIntBetween(1, 100);
+                final List<List<ContextIndexSearcher.LeafPartition>> slices =
+                    ContextIndexSearcher.computeSlices(reader.leaves(), maxSlices, minDocsPerSlice);
+                assertThat(slices.size(), lessThanOrEqualTo(maxSlices));
+                assertThat(slices.size(), greaterThan(0));
+                // partitions must cover every doc of every leaf exactly once, in doc id order
+                LeafReaderContext current = null;
+                int nextDoc = 0;
+                int leafOrd = 0;
+                for (List<ContextIndexSearcher.LeafPartition> slice : slices) {
+                    assertThat(slice.isEmpty(), equalTo(false));
+                    for (ContextIndexSearcher.LeafPartition partition : slice) {
+                        if (partition.ctx != current) {
+                            if (current != null) {
+                                assertThat(nextDoc, equalTo(DocIdSetIterator.NO_MORE_DOCS));
+                            }
+                            while (reader.leaves().get(leafOrd).reader().maxDoc() == 0) {
+                                leafOrd++;
+                            }
+                            assertSame(reader.leaves().get(leafOrd++), partition.ctx);
+                            current = partition.ctx;
+                            nextDoc = 0;
+                        }
+                        assertThat(partition.minDoc, equalTo(nextDoc));
+                        assertThat(partition.maxDoc, greaterThan(partition.minDoc));
+                        nextDoc = partition.maxDoc;
+                    }
+                }
+                assertThat(nextDoc, equalTo(DocIdSetIterator.NO_MORE_DOCS));
+            }
+        }
+    }
+
+    public void testComputeSlicesEmptyReader() {
+        assertThat(ContextIndexSearcher.computeSlices(Collections.emptyList(), 4, 1).size(), equalTo(0));
+    }
+
+    public void testSearchConcurrently() throws IOException {
+        ThreadPool threadPool = new TestThreadPool(getTestName());
+        try (Directory dir = newDirectory();
+             RandomIndexWriter w = new RandomIndexWriter(random(), dir)) {
+            final int numDocs = randomIntBetween(1, 1000);
+            for (int i = 0; i < numDocs; i++) {
+                Document doc = new Document();
+                doc.add(new StringField("foo", randomBoolean() ? "bar" : "baz", Store.NO));
+                doc.add(new TextField("text", randomFrom("a", "a a", "a b", "a a a b"), Store.NO));
+                w.addDocument(doc);
+            }
+            try (DirectoryReader reader = w.getReader()) {
+                Engine.Searcher engineSearcher = new Engine.Searcher("test", new IndexSearcher(reader), null);
+                ContextIndexSearcher searcher = new ContextIndexSearcher(engineSearcher, null, NEVER_CACHE_POLICY,
+                    threadPool.executor(ThreadPool.Names.SEARCH_WORKER), randomIntBetween(2, 8));
+                searcher.setMinDocsPerSlice(randomIntBetween(1, 50));
+                assertTrue(searcher.isConcurrent());
+                final int numHits = randomIntBetween(1, 50);
+                for (Query query : new Query[] { new MatchAllDocsQuery(), new TermQuery(new Term("foo", "bar")),
+                        new TermQuery(new Term("text", "a")) }) {
+                    TopDocs expected = new IndexSearcher(reader).search(query, numHits);
+                    TopDocs actual = searcher.searchConcurrently(query, topDocsManager(numHits));
+                    assertThat(actual.totalHits.value, equalTo(expected.totalHits.value));
+                    assertThat(actual.scoreDocs.length, equalTo(expected.scoreDocs.length));
+                    for (int i = 0; i < expected.scoreDocs.length; i++) {
+                        assertThat(actual.scoreDocs[i].doc, equalTo(expected.scoreDocs[i].doc));
+                        assertThat(actual.scoreDocs[i].score, equalTo(expected.scoreDocs[i].score));
+                    }
+                }
+            }
+        } finally {
+            terminate(threadPool);
+        }
+    }
+
+    public void testSearchConcurrentlyIsCancellable() throws IOException {
+        ThreadPool threadPool = new TestThreadPool(getTestName());
+        try (Directory dir = newDirectory();
+             RandomIndexWriter w = new RandomIndexWriter(random(), dir)) {
+            final int numDocs = randomIntBetween(10, 100);
+            for (int i = 0; i < numDocs; i++) {
+                w.addDocument(new Document());
+            }
+            try (DirectoryReader reader = w.getReader()) {
+                Engine.Searcher engineSearcher = new Engine.Searcher("test", new IndexSearcher(reader), null);
+                ContextIndexSearcher searcher = new ContextIndexSearcher(engineSearcher, null, NEVER_CACHE_POLICY,
+                    threadPool.executor(ThreadPool.Names.SEARCH_WORKER), 4);
+                searcher.setMinDocsPerSlice(1);
+                searcher.setCheckCancelled(() -> {
+                    throw new TaskCancelledException("cancelled");
+                });
+                expectThrows(TaskCancelledException.class, () -> searcher.searchConcurrently(new MatchAllDocsQuery(), topDocsManager(10)));
+            }
+        } finally {
+            terminate(threadPool);
+        }
+    }
+
+    private static CollectorManager<TopScoreDocCollector, TopDocs> topDocsManager(int numHits) {
+        return new CollectorManager<TopScoreDocCollector, TopDocs>() {
+            @Override
+            public TopScoreDocCollector newCollector() {
+                return TopScoreDocCollector.create(numHits, Integer.MAX_VALUE);
+            }
+
+            @Override
+            public TopDocs reduce(Collection<TopScoreDocCollector> collectors) {
+                final TopDocs[] topDocs = collectors.stream().map(TopScoreDocCollector::topDocs).toArray(TopDocs[]::new);
+                return TopDocs.merge(0, numHits, topDocs, true);
+            }
+        };
+    }
+}
@@ -21,8 +21,11 @@ package org.elasticsearch.search.msearch;
 
 import org.elasticsearch.action.search.MultiSearchRequest;
 import org.elasticsearch.action.search.MultiSearchResponse;
+import org.elasticsearch.common.settings.Settings;
 import org.elasticsearch.common.xcontent.XContentType;
+import org.elasticsearch.index.IndexNotFoundException;
 import org.elasticsearch.index.query.QueryBuilders;
+import org.elasticsearch.search.sort.SortOrder;
 import org.elasticsearch.test.ESIntegTestCase;
 
 import static org.elasticsearch.test.hamcrest.ElasticsearchAssertions.assertFirstHit;
@@ -30,6 +33,7 @@ import static org.elasticsearch.test.hamcrest.ElasticsearchAssertions.assertHitC
 import static org.elasticsearch.test.hamcrest.ElasticsearchAssertions.assertNoFailures;
 import static org.elasticsearch.test.hamcrest.ElasticsearchAssertions.hasId;
 import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.instanceOf;
 
 public class MultiSearchIT extends ESIntegTestCase {
 
@@ -81,4 +85,43 @@ public class MultiSearchIT extends ESIntegTestCase {
         }
     }
 
+    public void testBatchedShardRequests() {
+        createIndex("test", Settings.builder().put("index.number_of_shards", between(1, 5)).build());
+        createIndex("test2");
+        ensureGreen();
+        int numDocs = randomIntBetween(1, 32);
+        for (int i = 0; i < numDocs; i++) {
+            client().prepareIndex("test", "type", Integer.toString(i)).setSource("field", i % 2 == 0 ? "even" : "odd", "num", i).get();
+        }
+        client().prepareIndex("test2", "type", "1").setSource("field", "even").get();
+        refresh();
+
+        MultiSearchResponse response = client().prepareMultiSearch()
+            .setBatchedShardRequests(true)
+            .setMaxConcurrentSearchRequests(randomIntBetween(1, 5))
+            .add(client().prepareSearch("test").setQuery(QueryBuilders.termQuery("field", "even")).setSize(numDocs))
+            .add(client().prepareSearch("test").setQuery(QueryBuilders.termQuery("field", "odd")).setSize(numDocs))
+            .add(client().prepareSearch("test").addSort("num", SortOrder.DESC).setFrom(1).setSize(2))
+            .add(client().prepareSearch("test", "test2").setSize(0).setQuery(QueryBuilders.termQuery("field", "even")))
+            .add(client().prepareSearch("missing"))
+            .get();
+
+        assertThat(response.getResponses().length, equalTo(5));
+        assertNoFailures(response.getResponses()[0].getResponse());
+        assertHitCount(response.getResponses()[0].getResponse(), (numDocs + 1) / 2);
+        assertThat(response.getResponses()[0].getResponse().getHits().getHits().length, equalTo((numDocs + 1) / 2));
+        assertNoFailures(response.getResponses()[1].getResponse());
+        assertHitCount(response.getResponses()[1].getResponse(), numDocs / 2);
+        assertThat(response.getResponses()[1].getResponse().getHits().getHits().length, equalTo(numDocs / 2));
+        assertNoFailures(response.getResponses()[2].getResponse());
+        assertHitCount(response.getResponses()[2].getResponse(), numDocs);
+        if (numDocs > 1) {
+            assertFirstHit(response.getResponses()[2].getResponse(), hasId(Integer.toString(numDocs - 2)));
+        }
+        assertNoFailures(response.getResponses()[3].getResponse());
+        assertHitCount(response.getResponses()[3].getResponse(), (numDocs + 1) / 2 + 1);
+        assertTrue(response.getResponses()[4].isFailure());
+        assertThat(response.getResponses()[4].getFailure(), instanceOf(IndexNotFoundException.class));
+    }
+
 }
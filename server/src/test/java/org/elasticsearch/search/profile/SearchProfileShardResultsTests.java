@@ -78,9 +78,10 @@ public class SearchProfileShardResultsTests  extends ESTestCase {
         BytesReference originalBytes = toShuffledXContent(shardResult, xContentType, ToXContent.EMPTY_PARAMS, humanReadable);
         BytesReference mutated;
         if (addRandomFields) {
-            // The ProfileResults "breakdown" section just consists of key/value pairs, we shouldn't add anything random there
-            // also we don't want to insert into the root object here, its just the PROFILE_FIELD itself
-            Predicate<String> excludeFilter = (s) -> (s.isEmpty() || s.endsWith(ProfileResult.BREAKDOWN.getPreferredName()));
+            // The ProfileResults "breakdown" and "debug" sections just consist of key/value pairs, we shouldn't add anything random
+            // there, also we don't want to insert into the root object here, its just the PROFILE_FIELD itself
+            Predicate<String> excludeFilter = (s) -> (s.isEmpty() || s.endsWith(ProfileResult.BREAKDOWN.getPreferredName())
+                || s.endsWith(ProfileResult.DEBUG.getPreferredName()));
             mutated = insertRandomFields(xContentType, originalBytes, excludeFilter, random());
         } else {
             mutated = originalBytes;
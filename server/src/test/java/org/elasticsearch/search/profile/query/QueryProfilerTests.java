@@ -21,6 +21,7 @@ package org.elasticsearch.search.profile.query;
 
 import org.apache.lucene.document.Document;
 import org.apache.lucene.document.Field.Store;
+import org.apache.lucene.document.NumericDocValuesField;
 import org.apache.lucene.document.StringField;
 import org.apache.lucene.index.DirectoryReader;
 import org.apache.lucene.index.IndexReader;
@@ -28,8 +29,10 @@ import org.apache.lucene.index.IndexWriter;
 import org.apache.lucene.index.LeafReaderContext;
 import org.apache.lucene.index.RandomIndexWriter;
 import org.apache.lucene.index.Term;
+import org.apache.lucene.queries.SearchAfterSortedDocQuery;
 import org.apache.lucene.search.ConstantScoreQuery;
 import org.apache.lucene.search.Explanation;
+import org.apache.lucene.search.FieldDoc;
 import org.apache.lucene.search.IndexSearcher;
 import org.apache.lucene.search.LeafCollector;
 import org.apache.lucene.search.Query;
@@ -39,6 +42,7 @@ import org.apache.lucene.search.ScoreMode;
 import org.apache.lucene.search.Scorer;
 import org.apache.lucene.search.ScorerSupplier;
 import org.apache.lucene.search.Sort;
+import org.apache.lucene.search.SortField;
 import org.apache.lucene.search.TermQuery;
 import org.apache.lucene.search.TotalHitCountCollector;
 import org.apache.lucene.search.Weight;
@@ -506,4 +510,29 @@ public class QueryProfilerTests extends ESTestCase {
 
     };
 
+    public void testSearchAfterSkippedDocs() throws IOException {
+        final Sort indexSort = new Sort(new SortField("rank", SortField.Type.LONG));
+        try (Directory dir = newDirectory();
+             RandomIndexWriter w = new RandomIndexWriter(random(), dir, newIndexWriterConfig().setIndexSort(indexSort))) {
+            final int numDocs = TestUtil.nextInt(random(), 1, 100);
+            for (int i = 0; i < numDocs; ++i) {
+                Document doc = new Document();
+                doc.add(new NumericDocValuesField("rank", i));
+                w.addDocument(doc);
+            }
+            try (IndexReader reader = w.getReader()) {
+                Engine.Searcher engineSearcher = new Engine.Searcher("test", new IndexSearcher(reader), null);
+                ContextIndexSearcher searcher = new ContextIndexSearcher(engineSearcher, IndexSearcher.getDefaultQueryCache(),
+                    MAYBE_CACHE_POLICY);
+                QueryProfiler profiler = new QueryProfiler();
+                searcher.setProfiler(profiler);
+                final long after = randomIntBetween(0, numDocs - 1);
+                Query query = new SearchAfterSortedDocQuery(indexSort, new FieldDoc(Integer.MAX_VALUE, Float.NaN, new Object[] { after }));
+                searcher.search(query, 1);
+                List<ProfileResult> results = profiler.getTree();
+                assertEquals(1, results.size());
+                assertThat(results.get(0).getDebugInfo().get(ContextIndexSearcher.SKIPPED_DOCS), equalTo(after + 1));
+            }
+        }
+    }
 }
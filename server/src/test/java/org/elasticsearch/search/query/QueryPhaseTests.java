@@ -51,30 +51,42 @@ import org.apache.lucene.search.Query;
 import org.apache.lucene.search.Sort;
 import org.apache.lucene.search.SortField;
 import org.apache.lucene.search.TermQuery;
+import org.apache.lucene.search.TopDocs;
+import org.apache.lucene.search.TotalHits;
 import org.apache.lucene.search.TotalHitCountCollector;
 import org.apache.lucene.search.Weight;
 import org.apache.lucene.store.Directory;
 import org.apache.lucene.util.BytesRef;
 import org.elasticsearch.action.search.SearchTask;
 import org.elasticsearch.common.settings.Settings;
+import org.elasticsearch.common.unit.TimeValue;
+import org.elasticsearch.index.engine.Engine;
 import org.elasticsearch.index.query.ParsedQuery;
 import org.elasticsearch.index.shard.IndexShard;
 import org.elasticsearch.index.shard.IndexShardTestCase;
 import org.elasticsearch.search.DocValueFormat;
+import org.elasticsearch.search.internal.ContextIndexSearcher;
 import org.elasticsearch.search.internal.ScrollContext;
 import org.elasticsearch.search.internal.SearchContext;
+import org.elasticsearch.search.internal.ShardSearchRequest;
 import org.elasticsearch.search.sort.SortAndFormats;
 import org.elasticsearch.test.TestSearchContext;
+import org.elasticsearch.threadpool.ThreadPool;
 
 import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
 
 import static org.hamcrest.Matchers.anyOf;
 import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.greaterThan;
 import static org.hamcrest.Matchers.greaterThanOrEqualTo;
 import static org.hamcrest.Matchers.instanceOf;
+import static org.hamcrest.Matchers.lessThanOrEqualTo;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
 
 public class QueryPhaseTests extends IndexShardTestCase {
 
@@ -560,6 +572,206 @@ public class QueryPhaseTests extends IndexShardTestCase {
         dir.close();
     }
 
+    public void testIndexSortSearchAfterOptimization() throws Exception {
+        Directory dir = newDirectory();
+        final Sort indexSort = new Sort(
+            new SortField("rank", SortField.Type.LONG, true),
+            new SortField("tiebreaker", SortField.Type.INT)
+        );
+        IndexWriterConfig iwc = newIndexWriterConfig().setIndexSort(indexSort);
+        RandomIndexWriter w = new RandomIndexWriter(random(), dir, iwc);
+        final int numDocs = scaledRandomIntBetween(100, 200);
+        for (int i = 0; i < numDocs; ++i) {
+            Document doc = new Document();
+            doc.add(new NumericDocValuesField("rank", randomIntBetween(0, 50)));
+            doc.add(new NumericDocValuesField("tiebreaker", i));
+            w.addDocument(doc);
+        }
+        if (randomBoolean()) {
+            w.forceMerge(randomIntBetween(1, 10));
+        }
+        w.close();
+
+        final IndexReader reader = DirectoryReader.open(dir);
+        final SortAndFormats sortAndFormats = new SortAndFormats(indexSort, new DocValueFormat[]{DocValueFormat.RAW, DocValueFormat.RAW});
+        // not a query whose hit count can be computed without collecting it
+        final Query query = new DocValuesFieldExistsQuery("rank");
+        final boolean trackTotalHits = randomBoolean();
+        final int size = randomIntBetween(1, 20);
+        final TopDocs expected = new IndexSearcher(reader).search(query, numDocs, indexSort);
+        FieldDoc after = null;
+        int seen = 0;
+        while (seen < numDocs) {
+            TestSearchContext context = new TestSearchContext(null, indexShard);
+            context.parsedQuery(new ParsedQuery(query));
+            context.setTask(new SearchTask(123L, "", "", "", null, Collections.emptyMap()));
+            context.setSize(size);
+            context.sort(sortAndFormats);
+            context.trackTotalHitsUpTo(trackTotalHits ? SearchContext.DEFAULT_TRACK_TOTAL_HITS_UP_TO :
+                SearchContext.TRACK_TOTAL_HITS_DISABLED);
+            if (after != null) {
+                // the cursor of a search_after request never references a doc
+                context.searchAfter(new FieldDoc(Integer.MAX_VALUE, Float.NaN, after.fields));
+                // the hit count of the query can't be computed upfront so the docs before the cursor must be counted
+                assertThat(QueryPhase.canSeekToSearchAfter(context, reader), equalTo(trackTotalHits == false));
+            }
+            final int[] collected = new int[1];
+            final IndexSearcher searcher = new IndexSearcher(reader) {
+                @Override
+                protected void search(List<LeafReaderContext> leaves, Weight weight, Collector collector) throws IOException {
+                    super.search(leaves, weight, new FilterCollector(collector) {
+                        @Override
+                        public LeafCollector getLeafCollector(LeafReaderContext context) throws IOException {
+                            return new FilterLeafCollector(super.getLeafCollector(context)) {
+                                @Override
+                                public void collect(int doc) throws IOException {
+                                    collected[0]++;
+                                    super.collect(doc);
+                                }
+                            };
+                        }
+                    });
+                }
+            };
+            QueryPhase.execute(context, searcher, checkCancelled -> {});
+
+            final TopDocs actual = context.queryResult().topDocs().topDocs;
+            assertThat(actual.scoreDocs.length, equalTo(Math.min(size, numDocs - seen)));
+            for (int i = 0; i < actual.scoreDocs.length; i++) {
+                assertThat(actual.scoreDocs[i].doc, equalTo(expected.scoreDocs[seen + i].doc));
+            }
+            if (trackTotalHits) {
+                // the docs before the cursor are collected and counted
+                assertThat(collected[0], equalTo(numDocs));
+                assertThat(actual.totalHits.value, equalTo((long) numDocs));
+                assertThat(actual.totalHits.relation, equalTo(TotalHits.Relation.EQUAL_TO));
+            } else {
+                // the docs before the cursor are not collected
+                assertThat(collected[0], lessThanOrEqualTo(numDocs - seen));
+            }
+            seen += actual.scoreDocs.length;
+            after = (FieldDoc) actual.scoreDocs[actual.scoreDocs.length - 1];
+        }
+        assertThat(seen, equalTo(numDocs));
+        reader.close();
+        dir.close();
+    }
+
+    public void testSearchAfterSeekKeepsAccurateTotalHits() throws Exception {
+        Directory dir = newDirectory();
+        final Sort indexSort = new Sort(new SortField("rank", SortField.Type.LONG));
+        IndexWriterConfig iwc = newIndexWriterConfig().setIndexSort(indexSort);
+        RandomIndexWriter w = new RandomIndexWriter(random(), dir, iwc);
+        final int numDocs = scaledRandomIntBetween(10, 200);
+        for (int i = 0; i < numDocs; ++i) {
+            Document doc = new Document();
+            doc.add(new NumericDocValuesField("rank", i));
+            w.addDocument(doc);
+        }
+        w.close();
+
+        final IndexReader reader = DirectoryReader.open(dir);
+        TestSearchContext context = new TestSearchContext(null, indexShard);
+        // the hit count of a match_all query is known without collecting it
+        context.parsedQuery(new ParsedQuery(new MatchAllDocsQuery()));
+        context.setTask(new SearchTask(123L, "", "", "", null, Collections.emptyMap()));
+        context.setSize(10);
+        context.sort(new SortAndFormats(indexSort, new DocValueFormat[]{DocValueFormat.RAW}));
+        context.trackTotalHitsUpTo(SearchContext.DEFAULT_TRACK_TOTAL_HITS_UP_TO);
+        final long cursor = randomIntBetween(0, numDocs - 1);
+        context.searchAfter(new FieldDoc(Integer.MAX_VALUE, Float.NaN, new Object[]{ cursor }));
+        assertTrue(QueryPhase.canSeekToSearchAfter(context, reader));
+
+        QueryPhase.execute(context, new IndexSearcher(reader), checkCancelled -> {});
+        final TopDocs topDocs = context.queryResult().topDocs().topDocs;
+        assertThat(topDocs.totalHits.value, equalTo((long) numDocs));
+        assertThat(topDocs.totalHits.relation, equalTo(TotalHits.Relation.EQUAL_TO));
+        assertThat(topDocs.scoreDocs.length, equalTo((int) Math.min(10, numDocs - 1 - cursor)));
+
+        // a post filter hides the hit count of the query
+        context.parsedPostFilter(new ParsedQuery(new MatchAllDocsQuery()));
+        assertFalse(QueryPhase.canSeekToSearchAfter(context, reader));
+        reader.close();
+        dir.close();
+    }
+
+    public void testSearchAfterSeekRequiresIndexSort() throws Exception {
+        Directory dir = newDirectory();
+        RandomIndexWriter w = new RandomIndexWriter(random(), dir);
+        Document doc = new Document();
+        doc.add(new NumericDocValuesField("rank", 1));
+        w.addDocument(doc);
+        w.close();
+
+        final IndexReader reader = DirectoryReader.open(dir);
+        final Sort sort = new Sort(new SortField("rank", SortField.Type.LONG));
+        TestSearchContext context = new TestSearchContext(null, indexShard);
+        context.parsedQuery(new ParsedQuery(new MatchAllDocsQuery()));
+        context.setSize(10);
+        context.sort(new SortAndFormats(sort, new DocValueFormat[]{DocValueFormat.RAW}));
+        context.searchAfter(new FieldDoc(Integer.MAX_VALUE, Float.NaN, new Object[]{ 0L }));
+        assertFalse(QueryPhase.canSeekToSearchAfter(context, reader));
+        reader.close();
+        dir.close();
+    }
+
+    public void testConcurrentSearchReturnsPartialHitsOnTimeout() throws Exception {
+        Directory dir = newDirectory();
+        IndexWriterConfig iwc = newIndexWriterConfig().setMergePolicy(NoMergePolicy.INSTANCE);
+        RandomIndexWriter w = new RandomIndexWriter(random(), dir, iwc);
+        final int numDocs = scaledRandomIntBetween(100, 5000);
+        for (int i = 0; i < numDocs; ++i) {
+            Document doc = new Document();
+            doc.add(new NumericDocValuesField("rank", i));
+            w.addDocument(doc);
+        }
+        w.close();
+
+        final IndexReader reader = DirectoryReader.open(dir);
+        final Engine.Searcher engineSearcher = new Engine.Searcher("test", new IndexSearcher(reader), null);
+        final ContextIndexSearcher searcher = new ContextIndexSearcher(engineSearcher, null, IndexSearcher.getDefaultQueryCachingPolicy(),
+            threadPool.executor(ThreadPool.Names.SEARCH_WORKER), randomIntBetween(2, 8));
+        searcher.setMinDocsPerSlice(1);
+        assertTrue(searcher.isConcurrent());
+
+        final ShardSearchRequest request = mock(ShardSearchRequest.class);
+        when(request.allowPartialSearchResults()).thenReturn(true);
+        TestSearchContext context = new TestSearchContext(null, indexShard) {
+            // every check of the timeout moves the clock forward, so the search times out on the second check
+            private final AtomicLong relativeTime = new AtomicLong();
+
+            @Override
+            public TimeValue timeout() {
+                return TimeValue.timeValueMillis(1);
+            }
+
+            @Override
+            public long getRelativeTimeInMillis() {
+                return relativeTime.getAndIncrement();
+            }
+
+            @Override
+            public ShardSearchRequest request() {
+                return request;
+            }
+        };
+        // a query whose hit count can't be computed upfront
+        context.parsedQuery(new ParsedQuery(new DocValuesFieldExistsQuery("rank")));
+        final int size = randomIntBetween(1, 50);
+        context.setSize(size);
+        context.setTask(new SearchTask(123L, "", "", "", null, Collections.emptyMap()));
+
+        QueryPhase.execute(context, searcher, searcher::setCheckCancelled);
+        assertTrue(context.queryResult().searchTimedOut());
+        // the documents of the first chunk were collected before the timeout
+        final TopDocs topDocs = context.queryResult().topDocs().topDocs;
+        assertThat(topDocs.totalHits.value, greaterThan(0L));
+        assertThat(topDocs.totalHits.value, lessThanOrEqualTo((long) numDocs));
+        assertThat(topDocs.scoreDocs.length, equalTo((int) Math.min(size, topDocs.totalHits.value)));
+        reader.close();
+        dir.close();
+    }
+
     private static IndexSearcher getAssertingEarlyTerminationSearcher(IndexReader reader, int size) {
         return new IndexSearcher(reader) {
             @Override
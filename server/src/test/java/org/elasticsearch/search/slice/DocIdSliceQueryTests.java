@@ -0,0 +1,113 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.search.slice;
+
+import org.apache.lucene.document.Document;
+import org.apache.lucene.index.IndexReader;
+import org.apache.lucene.index.LeafReaderContext;
+import org.apache.lucene.index.RandomIndexWriter;
+import org.apache.lucene.search.IndexSearcher;
+import org.apache.lucene.search.QueryUtils;
+import org.apache.lucene.search.ScoreMode;
+import org.apache.lucene.search.SimpleCollector;
+import org.apache.lucene.store.Directory;
+import org.elasticsearch.test.ESTestCase;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.lessThanOrEqualTo;
+
+public class DocIdSliceQueryTests extends ESTestCase {
+
+    public void testBasics() {
+        DocIdSliceQuery query1 = new DocIdSliceQuery(1, 10);
+        DocIdSliceQuery query2 = new DocIdSliceQuery(1, 10);
+        DocIdSliceQuery query3 = new DocIdSliceQuery(2, 10);
+        DocIdSliceQuery query4 = new DocIdSliceQuery(1, 5);
+        QueryUtils.check(query1);
+        QueryUtils.checkEqual(query1, query2);
+        QueryUtils.checkUnequal(query1, query3);
+        QueryUtils.checkUnequal(query1, query4);
+    }
+
+    public void testSearch() throws Exception {
+        final int numDocs = randomIntBetween(0, 500);
+        final Directory dir = newDirectory();
+        final RandomIndexWriter w = new RandomIndexWriter(random(), dir);
+        for (int i = 0; i < numDocs; ++i) {
+            w.addDocument(new Document());
+            if (rarely()) {
+                w.commit();
+            }
+        }
+        final IndexReader reader = w.getReader();
+        final IndexSearcher searcher = newSearcher(reader);
+        final int max = randomIntBetween(2, 20);
+        int nextDoc = 0;
+        for (int id = 0; id < max; id++) {
+            DocIdSliceQuery query = new DocIdSliceQuery(id, max);
+            List<Integer> docs = collect(searcher, query);
+            // slices are contiguous, balanced and cover every document exactly once
+            assertThat(docs.size(), lessThanOrEqualTo(reader.maxDoc() / max + 1));
+            for (int doc : docs) {
+                assertThat(doc, equalTo(nextDoc++));
+            }
+        }
+        assertThat(nextDoc, equalTo(reader.maxDoc()));
+        w.close();
+        reader.close();
+        dir.close();
+    }
+
+    public void testSliceBoundary() {
+        assertThat(DocIdSliceQuery.sliceBoundary(0, 3, 10), equalTo(0));
+        assertThat(DocIdSliceQuery.sliceBoundary(1, 3, 10), equalTo(3));
+        assertThat(DocIdSliceQuery.sliceBoundary(2, 3, 10), equalTo(6));
+        assertThat(DocIdSliceQuery.sliceBoundary(3, 3, 10), equalTo(10));
+        // no overflow on large shards
+        assertThat(DocIdSliceQuery.sliceBoundary(1023, 1024, Integer.MAX_VALUE), equalTo(2145386495));
+    }
+
+    private static List<Integer> collect(IndexSearcher searcher, DocIdSliceQuery query) throws IOException {
+        final List<Integer> docs = new ArrayList<>();
+        searcher.search(query, new SimpleCollector() {
+            private int docBase;
+
+            @Override
+            protected void doSetNextReader(LeafReaderContext context) {
+                docBase = context.docBase;
+            }
+
+            @Override
+            public void collect(int doc) {
+                docs.add(docBase + doc);
+            }
+
+            @Override
+            public ScoreMode scoreMode() {
+                return ScoreMode.COMPLETE_NO_SCORES;
+            }
+        });
+        return docs;
+    }
+}
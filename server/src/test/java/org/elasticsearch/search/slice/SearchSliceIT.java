@@ -207,7 +207,7 @@ public class SearchSliceIT extends ESIntegTestCase {
         Throwable rootCause = findRootCause(exc);
         assertThat(rootCause.getClass(), equalTo(SearchContextException.class));
         assertThat(rootCause.getMessage(),
-            equalTo("`slice` cannot be used outside of a scroll context"));
+            equalTo("`slice` cannot be used outside of a scroll context or a point in time"));
     }
 
     private void assertSearchSlicesWithScroll(SearchRequestBuilder request, String field, int numSlice, int numDocs) {
@@ -46,6 +46,7 @@ import org.elasticsearch.common.Strings;
 import org.elasticsearch.common.bytes.BytesReference;
 import org.elasticsearch.common.io.stream.NamedWriteableRegistry;
 import org.elasticsearch.common.settings.Settings;
+import org.elasticsearch.common.unit.TimeValue;
 import org.elasticsearch.common.xcontent.XContentBuilder;
 import org.elasticsearch.common.xcontent.XContentFactory;
 import org.elasticsearch.common.xcontent.XContentParser;
@@ -59,6 +60,7 @@ import org.elasticsearch.index.query.QueryShardContext;
 import org.elasticsearch.index.query.Rewriteable;
 import org.elasticsearch.index.shard.ShardId;
 import org.elasticsearch.search.Scroll;
+import org.elasticsearch.search.builder.PointInTimeBuilder;
 import org.elasticsearch.search.builder.SearchSourceBuilder;
 import org.elasticsearch.search.internal.AliasFilter;
 import org.elasticsearch.search.internal.ShardSearchRequest;
@@ -440,6 +442,39 @@ public class SliceBuilderTests extends ESTestCase {
         }
     }
 
+    public void testToFilterOnDocIds() throws IOException {
+        Directory dir = new RAMDirectory();
+        try (IndexWriter writer = new IndexWriter(dir, newIndexWriterConfig(new MockAnalyzer(random())))) {
+            writer.commit();
+        }
+        try (IndexReader reader = DirectoryReader.open(dir)) {
+            QueryShardContext context = createShardContext(Version.CURRENT, reader, "field", null, 1, 0);
+            SliceBuilder builder = new SliceBuilder(SliceBuilder.DOC_FIELD_NAME, 5, 10);
+            IllegalArgumentException exc = expectThrows(IllegalArgumentException.class,
+                () -> builder.toFilter(null, createRequest(0), context, Version.CURRENT));
+            assertThat(exc.getMessage(), containsString("requires a point in time"));
+
+            // the slices of a scroll don't share the same reader
+            ShardSearchRequest scrollRequest = new ShardSearchRequestTest("index", 0, Strings.EMPTY_ARRAY, null) {
+                @Override
+                public Scroll scroll() {
+                    return new Scroll(TimeValue.timeValueMinutes(1));
+                }
+            };
+            exc = expectThrows(IllegalArgumentException.class, () -> builder.toFilter(null, scrollRequest, context, Version.CURRENT));
+            assertThat(exc.getMessage(), containsString("requires a point in time"));
+
+            ShardSearchRequest pointInTimeRequest = new ShardSearchRequestTest("index", 0, Strings.EMPTY_ARRAY, null) {
+                @Override
+                public SearchSourceBuilder source() {
+                    return new SearchSourceBuilder().pointInTimeBuilder(new PointInTimeBuilder("id"));
+                }
+            };
+            Query query = builder.toFilter(null, pointInTimeRequest, context, Version.CURRENT);
+            assertThat(query, equalTo(new DocIdSliceQuery(5, 10)));
+        }
+    }
+
     public void testToFilterDeprecationMessage() throws IOException {
         Directory dir = new RAMDirectory();
         try (IndexWriter writer = new IndexWriter(dir, newIndexWriterConfig(new MockAnalyzer(random())))) {
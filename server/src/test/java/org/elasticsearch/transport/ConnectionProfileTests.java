@@ -18,6 +18,7 @@
  */
 package org.elasticsearch.transport;
 
+import org.elasticsearch.common.compress.CompressorFactory;
 import org.elasticsearch.common.settings.Settings;
 import org.elasticsearch.common.unit.TimeValue;
 import org.elasticsearch.test.ESTestCase;
@@ -179,6 +180,10 @@ public class ConnectionProfileTests extends ESTestCase {
         if (connectionCompressSet) {
             builder.setCompressionEnabled(randomBoolean());
         }
+        final boolean compressionSchemeSet = randomBoolean();
+        if (compressionSchemeSet) {
+            builder.setCompressionScheme(randomFrom(CompressorFactory.COMPRESSOR, CompressorFactory.LZ4_COMPRESSOR));
+        }
 
         final ConnectionProfile profile = builder.build();
         final ConnectionProfile resolved = ConnectionProfile.resolveConnectionProfile(profile, defaultProfile);
@@ -194,6 +199,8 @@ public class ConnectionProfileTests extends ESTestCase {
             equalTo(pingIntervalSet ? profile.getPingInterval() : defaultProfile.getPingInterval()));
         assertThat(resolved.getCompressionEnabled(),
             equalTo(connectionCompressSet ? profile.getCompressionEnabled() : defaultProfile.getCompressionEnabled()));
+        assertThat(resolved.getCompressionScheme(),
+            equalTo(compressionSchemeSet ? profile.getCompressionScheme() : defaultProfile.getCompressionScheme()));
     }
 
     public void testDefaultConnectionProfile() {
@@ -207,6 +214,7 @@ public class ConnectionProfileTests extends ESTestCase {
         assertEquals(TransportSettings.CONNECT_TIMEOUT.get(Settings.EMPTY), profile.getConnectTimeout());
         assertEquals(TransportSettings.CONNECT_TIMEOUT.get(Settings.EMPTY), profile.getHandshakeTimeout());
         assertEquals(TransportSettings.TRANSPORT_COMPRESS.get(Settings.EMPTY), profile.getCompressionEnabled());
+        assertSame(CompressorFactory.COMPRESSOR, profile.getCompressionScheme());
         assertEquals(TransportSettings.PING_SCHEDULE.get(Settings.EMPTY), profile.getPingInterval());
 
         profile = ConnectionProfile.buildDefaultConnectionProfile(Settings.builder().put("node.master", false).build());
@@ -25,6 +25,8 @@ import org.elasticsearch.action.ActionListener;
 import org.elasticsearch.cluster.node.DiscoveryNode;
 import org.elasticsearch.common.bytes.BytesArray;
 import org.elasticsearch.common.bytes.BytesReference;
+import org.elasticsearch.common.compress.Compressor;
+import org.elasticsearch.common.compress.CompressorFactory;
 import org.elasticsearch.common.io.stream.NamedWriteableRegistry;
 import org.elasticsearch.common.io.stream.StreamInput;
 import org.elasticsearch.common.io.stream.StreamOutput;
@@ -106,7 +108,8 @@ public class OutboundHandlerTests extends ESTestCase {
         String action = "handshake";
         long requestId = randomLongBetween(0, 300);
         boolean isHandshake = randomBoolean();
-        boolean compress = randomBoolean();
+        Compressor compressor = randomFrom(null, CompressorFactory.COMPRESSOR, CompressorFactory.LZ4_COMPRESSOR);
+        boolean compress = compressor != null;
         String value = "message";
         threadContext.putHeader("header", "header_value");
         Request request = new Request(value);
@@ -125,7 +128,7 @@ public class OutboundHandlerTests extends ESTestCase {
                 requestRef.set(request);
             }
         });
-        handler.sendRequest(node, channel, requestId, action, request, options, version, compress, isHandshake);
+        handler.sendRequest(node, channel, requestId, action, request, options, version, compressor, isHandshake);
 
         BytesReference reference = channel.getMessageCaptor().get();
         ActionListener<Void> sendListener  = channel.getListenerCaptor().get();
@@ -155,6 +158,7 @@ public class OutboundHandlerTests extends ESTestCase {
             } else {
                 assertFalse(inboundMessage.isCompress());
             }
+            assertSame(compressor, inboundMessage.getCompressor());
             InboundMessage.Request inboundRequest = (InboundMessage.Request) inboundMessage;
             assertThat(inboundRequest.getFeatures(), contains(feature1, feature2));
 
@@ -177,7 +181,8 @@ public class OutboundHandlerTests extends ESTestCase {
         String action = "handshake";
         long requestId = randomLongBetween(0, 300);
         boolean isHandshake = randomBoolean();
-        boolean compress = randomBoolean();
+        Compressor compressor = randomFrom(null, CompressorFactory.COMPRESSOR, CompressorFactory.LZ4_COMPRESSOR);
+        boolean compress = compressor != null;
         String value = "message";
         threadContext.putHeader("header", "header_value");
         Response response = new Response(value);
@@ -193,7 +198,7 @@ public class OutboundHandlerTests extends ESTestCase {
                 responseRef.set(response);
             }
         });
-        handler.sendResponse(version, Collections.emptySet(), channel, requestId, action, response, compress, isHandshake);
+        handler.sendResponse(version, Collections.emptySet(), channel, requestId, action, response, compressor, isHandshake);
 
         BytesReference reference = channel.getMessageCaptor().get();
         ActionListener<Void> sendListener  = channel.getListenerCaptor().get();
@@ -222,6 +227,7 @@ public class OutboundHandlerTests extends ESTestCase {
             } else {
                 assertFalse(inboundMessage.isCompress());
             }
+            assertSame(compressor, inboundMessage.getCompressor());
 
             InboundMessage.Response inboundResponse = (InboundMessage.Response) inboundMessage;
             assertFalse(inboundResponse.isError());
@@ -324,15 +324,27 @@ public abstract class AggregatorTestCase extends ESTestCase {
                                                                              MappedFieldType... fieldTypes) throws IOException {
         MultiBucketConsumer bucketConsumer = new MultiBucketConsumer(maxBucket);
         C a = createAggregator(query, builder, searcher, bucketConsumer, fieldTypes);
-        a.preCollection();
-        searcher.search(query, a);
-        a.postCollection();
+        final BucketCollector collector = maybeCollectInBatches(a);
+        collector.preCollection();
+        searcher.search(query, collector);
+        collector.postCollection();
         @SuppressWarnings("unchecked")
         A internalAgg = (A) a.buildAggregation(0L);
         InternalAggregationTestCase.assertMultiBucketConsumer(internalAgg, bucketConsumer);
         return internalAgg;
     }
 
+    /**
+     * Randomly collects top level aggregators in batches of documents, like the aggregation phase does for aggregators that don't
+     * need scores.
+     */
+    private static BucketCollector maybeCollectInBatches(Aggregator aggregator) {
+        if (aggregator.scoreMode().needsScores() == false && randomBoolean()) {
+            return new BatchingBucketCollector(aggregator);
+        }
+        return aggregator;
+    }
+
     protected <A extends InternalAggregation, C extends Aggregator> A searchAndReduce(IndexSearcher searcher,
                                                                                       Query query,
                                                                                       AggregationBuilder builder,
@@ -376,9 +388,10 @@ public abstract class AggregatorTestCase extends ESTestCase {
         for (ShardSearcher subSearcher : subSearchers) {
             MultiBucketConsumer shardBucketConsumer = new MultiBucketConsumer(maxBucket);
             C a = createAggregator(query, builder, subSearcher, shardBucketConsumer, fieldTypes);
-            a.preCollection();
-            subSearcher.search(weight, a);
-            a.postCollection();
+            final BucketCollector collector = maybeCollectInBatches(a);
+            collector.preCollection();
+            subSearcher.search(weight, collector);
+            collector.postCollection();
             InternalAggregation agg = a.buildAggregation(0L);
             aggs.add(agg);
             InternalAggregationTestCase.assertMultiBucketConsumer(agg, shardBucketConsumer);
@@ -12,6 +12,7 @@ import org.elasticsearch.action.admin.indices.alias.get.GetAliasesRequest;
 import org.elasticsearch.action.admin.indices.exists.indices.IndicesExistsRequest;
 import org.elasticsearch.action.admin.indices.mapping.put.PutMappingRequest;
 import org.elasticsearch.action.fieldcaps.FieldCapabilitiesRequest;
+import org.elasticsearch.action.search.PointInTimeId;
 import org.elasticsearch.action.search.SearchRequest;
 import org.elasticsearch.action.support.IndicesOptions;
 import org.elasticsearch.cluster.metadata.AliasMetaData;
@@ -120,6 +121,21 @@ class IndicesAndAliasesResolver {
             assert indicesRequest.indices() == null || indicesRequest.indices().length == 0
                     : "indices are: " + Arrays.toString(indicesRequest.indices()); // Arrays.toString() can handle null values - all good
             resolvedIndicesBuilder.addLocal(getPutMappingIndexOrAlias((PutMappingRequest) indicesRequest, authorizedIndices, metaData));
+        } else if (isPointInTimeSearch(indicesRequest)) {
+            /*
+             * A search on a point in time targets the concrete indices that the point in time was opened against. They are
+             * authorized as they are but never set on the request, which would otherwise be rejected for setting both indices
+             * and a point in time.
+             */
+            assert indicesRequest.indices() == null || indicesRequest.indices().length == 0
+                    : "indices are: " + Arrays.toString(indicesRequest.indices());
+            final SearchRequest searchRequest = (SearchRequest) indicesRequest;
+            final String[] indices = PointInTimeId.decode(searchRequest.source().pointInTimeBuilder().getId()).indices();
+            if (indices.length == 0) {
+                resolvedIndicesBuilder.addLocal(NO_INDEX_PLACEHOLDER);
+            } else {
+                resolvedIndicesBuilder.addLocal(indices);
+            }
         } else if (indicesRequest instanceof IndicesRequest.Replaceable) {
             IndicesRequest.Replaceable replaceable = (IndicesRequest.Replaceable) indicesRequest;
             final boolean replaceWildcards = indicesRequest.indicesOptions().expandWildcardsOpen()
@@ -314,6 +330,11 @@ class IndicesAndAliasesResolver {
         return finalAliases;
     }
 
+    private static boolean isPointInTimeSearch(IndicesRequest request) {
+        return request instanceof SearchRequest && ((SearchRequest) request).source() != null
+            && ((SearchRequest) request).source().pointInTimeBuilder() != null;
+    }
+
     private boolean containsWildcards(IndicesRequest indicesRequest) {
         if (IndexNameExpressionResolver.isAllIndices(indicesList(indicesRequest.indices()))) {
             return true;
@@ -21,6 +21,7 @@ import org.elasticsearch.action.delete.DeleteAction;
 import org.elasticsearch.action.get.MultiGetAction;
 import org.elasticsearch.action.index.IndexAction;
 import org.elasticsearch.action.search.ClearScrollAction;
+import org.elasticsearch.action.search.ClosePointInTimeAction;
 import org.elasticsearch.action.search.MultiSearchAction;
 import org.elasticsearch.action.search.SearchScrollAction;
 import org.elasticsearch.action.search.SearchTransportService;
@@ -547,6 +548,8 @@ public class RBACEngine implements AuthorizationEngine {
             action.equals(SearchTransportService.FREE_CONTEXT_SCROLL_ACTION_NAME) ||
             action.equals(ClearScrollAction.NAME) ||
             action.equals("indices:data/read/sql/close_cursor") ||
-            action.equals(SearchTransportService.CLEAR_SCROLL_CONTEXTS_ACTION_NAME);
+            action.equals(SearchTransportService.CLEAR_SCROLL_CONTEXTS_ACTION_NAME) ||
+            action.equals(ClosePointInTimeAction.NAME) ||
+            action.equals(SearchTransportService.FREE_POINT_IN_TIME_ACTION_NAME);
     }
 }
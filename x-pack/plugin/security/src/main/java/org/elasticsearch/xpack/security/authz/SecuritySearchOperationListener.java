@@ -9,6 +9,7 @@ import org.elasticsearch.common.util.concurrent.ThreadContext;
 import org.elasticsearch.index.shard.SearchOperationListener;
 import org.elasticsearch.license.XPackLicenseState;
 import org.elasticsearch.search.SearchContextMissingException;
+import org.elasticsearch.search.internal.PointInTimeContext;
 import org.elasticsearch.search.internal.ScrollContext;
 import org.elasticsearch.search.internal.SearchContext;
 import org.elasticsearch.transport.TransportRequest;
@@ -22,13 +23,14 @@ import static org.elasticsearch.xpack.security.authz.AuthorizationService.AUTHOR
 import static org.elasticsearch.xpack.security.authz.AuthorizationService.ORIGINATING_ACTION_KEY;
 
 /**
- * A {@link SearchOperationListener} that is used to provide authorization for scroll requests.
+ * A {@link SearchOperationListener} that is used to provide authorization for scroll and point in time requests.
  *
  * In order to identify the user associated with a scroll request, we replace the {@link ScrollContext}
  * on creation with a custom implementation that holds the {@link Authentication} object. When
  * this context is accessed again in {@link SearchOperationListener#onPreQueryPhase(SearchContext)}
  * the ScrollContext is inspected for the authentication, which is compared to the currently
- * authentication.
+ * authentication. Points in time are handled the same way, the authentication is stored in the
+ * {@link PointInTimeContext} when it is opened and compared whenever it is searched or freed.
  */
 public final class SecuritySearchOperationListener implements SearchOperationListener {
 
@@ -70,6 +72,32 @@ public final class SecuritySearchOperationListener implements SearchOperationLis
         }
     }
 
+    /**
+     * Adds the {@link Authentication} to the {@link PointInTimeContext}
+     */
+    @Override
+    public void onNewPointInTime(PointInTimeContext context) {
+        if (licenseState.isAuthAllowed()) {
+            context.putInContext(AuthenticationField.AUTHENTICATION_KEY, Authentication.getAuthentication(threadContext));
+        }
+    }
+
+    /**
+     * Compares the {@link Authentication} object from the point in time with the current authentication context
+     */
+    @Override
+    public void validatePointInTime(PointInTimeContext context, TransportRequest request) {
+        if (licenseState.isAuthAllowed()) {
+            final Authentication originalAuth = context.getFromContext(AuthenticationField.AUTHENTICATION_KEY);
+            if (originalAuth != null) {
+                final Authentication current = Authentication.getAuthentication(threadContext);
+                final String action = threadContext.getTransient(ORIGINATING_ACTION_KEY);
+                ensureAuthenticatedUserIsSame(originalAuth, current, auditTrailService, context.id(), action, request,
+                        AuditUtil.extractRequestId(threadContext), threadContext.getTransient(AUTHORIZATION_INFO_KEY));
+            }
+        }
+    }
+
     /**
      * Compares the {@link Authentication} that was stored in the {@link ScrollContext} with the
      * current authentication. We cannot guarantee that all of the details of the authentication will
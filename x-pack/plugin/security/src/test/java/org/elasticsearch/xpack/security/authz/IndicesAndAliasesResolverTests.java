@@ -40,13 +40,18 @@ import org.elasticsearch.cluster.metadata.MetaData;
 import org.elasticsearch.cluster.service.ClusterService;
 import org.elasticsearch.common.Strings;
 import org.elasticsearch.common.UUIDs;
+import org.elasticsearch.common.bytes.BytesReference;
 import org.elasticsearch.common.collect.Tuple;
+import org.elasticsearch.common.io.stream.BytesStreamOutput;
 import org.elasticsearch.common.regex.Regex;
 import org.elasticsearch.common.settings.ClusterSettings;
 import org.elasticsearch.common.settings.Settings;
 import org.elasticsearch.index.Index;
 import org.elasticsearch.index.IndexNotFoundException;
+import org.elasticsearch.index.shard.ShardId;
 import org.elasticsearch.protocol.xpack.graph.GraphExploreRequest;
+import org.elasticsearch.search.builder.PointInTimeBuilder;
+import org.elasticsearch.search.builder.SearchSourceBuilder;
 import org.elasticsearch.search.internal.ShardSearchTransportRequest;
 import org.elasticsearch.test.ESTestCase;
 import org.elasticsearch.transport.TransportRequest;
@@ -72,6 +77,7 @@ import org.joda.time.format.DateTimeFormat;
 import org.junit.Before;
 
 import java.util.Arrays;
+import java.util.Base64;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
@@ -323,6 +329,38 @@ public class IndicesAndAliasesResolverTests extends ESTestCase {
         assertThat(request.indices(), arrayContainingInAnyOrder(replacedIndices));
     }
 
+    public void testResolvePointInTimeSearch() throws Exception {
+        final String[] pointInTimeIndices = randomBoolean() ? new String[] { "bar" } : new String[] { "bar", "foofoo" };
+        SearchRequest request = new SearchRequest();
+        request.source(new SearchSourceBuilder().pointInTimeBuilder(new PointInTimeBuilder(encodePointInTimeId(pointInTimeIndices))));
+        List<String> indices = resolveIndices(request, buildAuthorizedIndices(user, SearchAction.NAME)).getLocal();
+        assertThat(indices, containsInAnyOrder(pointInTimeIndices));
+        // the indices of the point in time are authorized but not set on the request
+        assertThat(request.indices().length, equalTo(0));
+
+        request = new SearchRequest();
+        request.source(new SearchSourceBuilder().pointInTimeBuilder(new PointInTimeBuilder(encodePointInTimeId())));
+        indices = resolveIndices(request, buildAuthorizedIndices(user, SearchAction.NAME)).getLocal();
+        assertThat(indices, contains(IndicesAndAliasesResolverField.NO_INDEX_PLACEHOLDER));
+        assertThat(request.indices().length, equalTo(0));
+    }
+
+    /**
+     * Encodes a point in time id that pins the first shard of the provided indices, see {@code PointInTimeId#decode(String)}
+     */
+    private static String encodePointInTimeId(String... indices) throws Exception {
+        try (BytesStreamOutput out = new BytesStreamOutput()) {
+            Version.writeVersion(Version.CURRENT, out);
+            out.writeVInt(indices.length);
+            for (String index : indices) {
+                new ShardId(index, UUIDs.randomBase64UUID(), 0).writeTo(out);
+                out.writeString(randomAlphaOfLength(8));
+                out.writeLong(randomNonNegativeLong());
+            }
+            return Base64.getUrlEncoder().encodeToString(BytesReference.toBytes(out.bytes()));
+        }
+    }
+
     public void testResolveEmptyIndicesExpandWilcardsOpen() {
         SearchRequest request = new SearchRequest();
         request.indicesOptions(IndicesOptions.fromOptions(randomBoolean(), randomBoolean(), true, false));
@@ -0,0 +1,112 @@
+/*
+ * Copyright Elasticsearch B.V. and/or licensed to Elasticsearch B.V. under one
+ * or more contributor license agreements. Licensed under the Elastic License;
+ * you may not use this file except in compliance with the Elastic License.
+ */
+package org.elasticsearch.xpack.security.authz;
+
+import org.elasticsearch.ExceptionsHelper;
+import org.elasticsearch.action.index.IndexRequestBuilder;
+import org.elasticsearch.action.search.ClearScrollResponse;
+import org.elasticsearch.action.search.ClosePointInTimeAction;
+import org.elasticsearch.action.search.ClosePointInTimeRequest;
+import org.elasticsearch.action.search.OpenPointInTimeAction;
+import org.elasticsearch.action.search.OpenPointInTimeRequest;
+import org.elasticsearch.action.search.SearchPhaseExecutionException;
+import org.elasticsearch.action.search.SearchResponse;
+import org.elasticsearch.action.search.ShardSearchFailure;
+import org.elasticsearch.client.Client;
+import org.elasticsearch.common.settings.SecureString;
+import org.elasticsearch.common.unit.TimeValue;
+import org.elasticsearch.search.SearchContextMissingException;
+import org.elasticsearch.search.builder.PointInTimeBuilder;
+import org.elasticsearch.search.builder.SearchSourceBuilder;
+import org.elasticsearch.test.SecurityIntegTestCase;
+import org.elasticsearch.test.SecuritySettingsSourceField;
+import org.elasticsearch.xpack.core.security.authc.support.UsernamePasswordToken;
+import org.junit.After;
+
+import java.util.Collections;
+
+import static org.elasticsearch.test.hamcrest.ElasticsearchAssertions.assertHitCount;
+import static org.hamcrest.Matchers.greaterThan;
+import static org.hamcrest.Matchers.instanceOf;
+
+public class SecurityPointInTimeTests extends SecurityIntegTestCase {
+
+    public void testOpenSearchAndClosePointInTime() throws Exception {
+        final int numDocs = indexDocs("idx");
+        final String id = client().execute(OpenPointInTimeAction.INSTANCE,
+            new OpenPointInTimeRequest("idx").keepAlive(TimeValue.timeValueMinutes(1))).get().getId();
+        try {
+            SearchResponse response = client().prepareSearch()
+                .setSource(new SearchSourceBuilder().pointInTimeBuilder(new PointInTimeBuilder(id)))
+                .get();
+            assertHitCount(response, numDocs);
+        } finally {
+            ClearScrollResponse closeResponse = client().execute(ClosePointInTimeAction.INSTANCE, new ClosePointInTimeRequest(id)).get();
+            assertTrue(closeResponse.isSucceeded());
+            assertThat(closeResponse.getNumFreed(), greaterThan(0));
+        }
+    }
+
+    public void testPointInTimeIsPerUser() throws Exception {
+        assertSecurityIndexActive();
+        securityClient().preparePutRole("pit_reader")
+                .addIndices(new String[] { "foo" }, new String[] { "read" }, null, null, null, randomBoolean())
+                .get();
+        securityClient().preparePutUser("other", SecuritySettingsSourceField.TEST_PASSWORD.toCharArray(), getFastStoredHashAlgoForTests(),
+            "pit_reader")
+            .get();
+        final int numDocs = indexDocs("foo");
+        final String id = client().execute(OpenPointInTimeAction.INSTANCE,
+            new OpenPointInTimeRequest("foo").keepAlive(TimeValue.timeValueMinutes(1))).get().getId();
+        final Client otherClient = client().filterWithHeader(Collections.singletonMap("Authorization",
+            UsernamePasswordToken.basicAuthHeaderValue("other", SecuritySettingsSourceField.TEST_PASSWORD_SECURE_STRING)));
+
+        SearchPhaseExecutionException e = expectThrows(SearchPhaseExecutionException.class, () ->
+            otherClient.prepareSearch()
+                .setSource(new SearchSourceBuilder().pointInTimeBuilder(new PointInTimeBuilder(id)))
+                .get());
+        for (ShardSearchFailure failure : e.shardFailures()) {
+            assertThat(ExceptionsHelper.unwrapCause(failure.getCause()), instanceOf(SearchContextMissingException.class));
+        }
+
+        ClearScrollResponse closeResponse = otherClient.execute(ClosePointInTimeAction.INSTANCE, new ClosePointInTimeRequest(id)).get();
+        assertFalse(closeResponse.isSucceeded());
+        assertEquals(0, closeResponse.getNumFreed());
+
+        // the point in time is still usable by the user that opened it
+        SearchResponse response = client().prepareSearch()
+            .setSource(new SearchSourceBuilder().pointInTimeBuilder(new PointInTimeBuilder(id)))
+            .get();
+        assertHitCount(response, numDocs);
+        closeResponse = client().execute(ClosePointInTimeAction.INSTANCE, new ClosePointInTimeRequest(id)).get();
+        assertTrue(closeResponse.isSucceeded());
+        assertThat(closeResponse.getNumFreed(), greaterThan(0));
+    }
+
+    private int indexDocs(String index) throws Exception {
+        IndexRequestBuilder[] docs = new IndexRequestBuilder[randomIntBetween(4, 16)];
+        for (int i = 0; i < docs.length; i++) {
+            docs[i] = client().prepareIndex(index, "doc").setSource("field", i);
+        }
+        indexRandom(true, docs);
+        return docs.length;
+    }
+
+    @After
+    public void cleanupSecurityIndex() throws Exception {
+        super.deleteSecurityIndex();
+    }
+
+    @Override
+    public String transportClientUsername() {
+        return this.nodeClientUsername();
+    }
+
+    @Override
+    public SecureString transportClientPassword() {
+        return this.nodeClientPassword();
+    }
+}
@@ -5,14 +5,19 @@
  */
 package org.elasticsearch.xpack.security.authz;
 
+import org.apache.lucene.index.MultiReader;
+import org.apache.lucene.search.IndexSearcher;
 import org.elasticsearch.common.settings.Settings;
 import org.elasticsearch.common.unit.TimeValue;
 import org.elasticsearch.common.util.concurrent.ThreadContext;
 import org.elasticsearch.common.util.concurrent.ThreadContext.StoredContext;
+import org.elasticsearch.index.engine.Engine;
+import org.elasticsearch.index.shard.IndexShard;
 import org.elasticsearch.license.XPackLicenseState;
 import org.elasticsearch.search.Scroll;
 import org.elasticsearch.search.SearchContextMissingException;
 import org.elasticsearch.search.internal.InternalScrollSearchRequest;
+import org.elasticsearch.search.internal.PointInTimeContext;
 import org.elasticsearch.search.internal.ScrollContext;
 import org.elasticsearch.search.internal.SearchContext;
 import org.elasticsearch.test.ESTestCase;
@@ -166,6 +171,40 @@ public class SecuritySearchOperationListenerTests extends ESTestCase {
         }
     }
 
+    public void testValidatePointInTime() throws Exception {
+        Engine.Searcher searcher = new Engine.Searcher("test", new IndexSearcher(new MultiReader()), () -> {});
+        PointInTimeContext pointInTime = new PointInTimeContext(randomNonNegativeLong(), mock(IndexShard.class), searcher,
+            TimeValue.timeValueMinutes(1).millis(), 0L);
+        XPackLicenseState licenseState = mock(XPackLicenseState.class);
+        when(licenseState.isAuthAllowed()).thenReturn(true);
+        ThreadContext threadContext = new ThreadContext(Settings.EMPTY);
+        AuditTrailService auditTrailService = mock(AuditTrailService.class);
+        SecuritySearchOperationListener listener = new SecuritySearchOperationListener(threadContext, licenseState, auditTrailService);
+
+        try (StoredContext ignore = threadContext.newStoredContext(false)) {
+            Authentication authentication = new Authentication(new User("test", "role"), new RealmRef("realm", "file", "node"), null);
+            authentication.writeToContext(threadContext);
+            listener.onNewPointInTime(pointInTime);
+            assertEquals(authentication, pointInTime.getFromContext(AuthenticationField.AUTHENTICATION_KEY));
+            listener.validatePointInTime(pointInTime, Empty.INSTANCE);
+            verifyZeroInteractions(auditTrailService);
+        }
+
+        try (StoredContext ignore = threadContext.newStoredContext(false)) {
+            Authentication authentication = new Authentication(new User("other", "role"), new RealmRef("realm", "file", "node"), null);
+            authentication.writeToContext(threadContext);
+            threadContext.putTransient(ORIGINATING_ACTION_KEY, "action");
+            threadContext.putTransient(AUTHORIZATION_INFO_KEY,
+                (AuthorizationInfo) () -> Collections.singletonMap(PRINCIPAL_ROLES_FIELD_NAME, authentication.getUser().roles()));
+            SearchContextMissingException expected =
+                expectThrows(SearchContextMissingException.class, () -> listener.validatePointInTime(pointInTime, Empty.INSTANCE));
+            assertEquals(pointInTime.id(), expected.id());
+            verify(auditTrailService).accessDenied(eq(null), eq(authentication), eq("action"), eq(Empty.INSTANCE),
+                authzInfoRoles(authentication.getUser().roles()));
+        }
+        verify(licenseState, times(3)).isAuthAllowed();
+    }
+
     public void testEnsuredAuthenticatedUserIsSame() {
         Authentication original = new Authentication(new User("test", "role"), new RealmRef("realm", "file", "node"), null);
         Authentication current =